@@ -0,0 +1,141 @@
+package org.bouncycastle.asn1.x509;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+
+import org.bouncycastle.asn1.ASN1Sequence;
+
+/**
+ * A serial number index over the revokedCertificates of a TBSCertList.
+ * <p>
+ * The index is built with a single pass over the entries and holds one long per entry (the hash of the
+ * serial number and the position of the entry in the CRL), plus one int per entry for an indirect CRL.
+ * Entries themselves are left in the underlying ASN.1 sequence and only wrapped (and their extensions
+ * decoded) when a lookup matches, so a lookup costs O(log n) rather than a scan of the whole list.
+ * </p>
+ * <p>
+ * Note: the index is built over the parsed revokedCertificates sequence, so it speeds up lookups but does not
+ * reduce the memory held by a CRL - building it (like verifying the CRL signature, which DER encodes the
+ * TBSCertList) forces a lazily parsed sequence to be fully decoded, and the decoded entries stay with the CRL.
+ * </p>
+ */
+public class CRLEntryIndex
+{
+    private final ASN1Sequence revokedCertificates;
+    private final long[] keys;
+    private final int[] certificateIssuerEntries;
+
+    /**
+     * Build an index for the passed in CRL.
+     *
+     * @param tbsCertList the CRL to index.
+     * @param isIndirect true if the CRL is an indirect CRL, in which case the certificate issuer in effect
+     *                   for each entry is also tracked.
+     */
+    public CRLEntryIndex(TBSCertList tbsCertList, boolean isIndirect)
+    {
+        this.revokedCertificates = tbsCertList.revokedCertificates;
+
+        int count = revokedCertificates == null ? 0 : revokedCertificates.size();
+
+        this.keys = new long[count];
+        this.certificateIssuerEntries = isIndirect ? new int[count] : null;
+
+        int certificateIssuerEntry = -1;
+        for (int i = 0; i != count; i++)
+        {
+            TBSCertList.CRLEntry entry = TBSCertList.CRLEntry.getInstance(revokedCertificates.getObjectAt(i));
+
+            keys[i] = makeKey(entry.getUserCertificate().getValue().hashCode(), i);
+
+            if (isIndirect)
+            {
+                certificateIssuerEntries[i] = certificateIssuerEntry;
+
+                if (entry.hasExtensions()
+                    && entry.getExtensions().getExtension(Extension.certificateIssuer) != null)
+                {
+                    certificateIssuerEntry = i;
+                }
+            }
+        }
+
+        // entries with the same hash stay in CRL order, so the first match found is the first in the CRL.
+        Arrays.sort(keys);
+    }
+
+    /**
+     * Return the number of entries in the CRL.
+     *
+     * @return the number of revoked certificate entries.
+     */
+    public int size()
+    {
+        return keys.length;
+    }
+
+    /**
+     * Return the entry at the given position in the CRL.
+     *
+     * @param index the position of the entry.
+     * @return the CRL entry.
+     */
+    public TBSCertList.CRLEntry getEntry(int index)
+    {
+        return TBSCertList.CRLEntry.getInstance(revokedCertificates.getObjectAt(index));
+    }
+
+    /**
+     * Return the position of the first entry for the passed in serial number.
+     *
+     * @param serialNumber the serial number to look for.
+     * @return the position of the entry in the CRL, -1 if there is no entry for the serial number.
+     */
+    public int indexOf(BigInteger serialNumber)
+    {
+        int hash = serialNumber.hashCode();
+
+        int pos = Arrays.binarySearch(keys, makeKey(hash, 0));
+        if (pos < 0)
+        {
+            pos = -(pos + 1);
+        }
+
+        while (pos < keys.length && (int)(keys[pos] >> 32) == hash)
+        {
+            int index = (int)keys[pos];
+            if (getEntry(index).getUserCertificate().hasValue(serialNumber))
+            {
+                return index;
+            }
+            ++pos;
+        }
+
+        return -1;
+    }
+
+    /**
+     * Return the certificate issuer set by the entries preceding the given position in an indirect CRL.
+     *
+     * @param index the position of the entry.
+     * @return the last certificate issuer given before the entry, null if none was given (or the CRL is
+     * not indirect).
+     */
+    public GeneralNames getPrecedingCertificateIssuer(int index)
+    {
+        if (certificateIssuerEntries == null || certificateIssuerEntries[index] < 0)
+        {
+            return null;
+        }
+
+        Extension certificateIssuer = getEntry(certificateIssuerEntries[index]).getExtensions()
+            .getExtension(Extension.certificateIssuer);
+
+        return GeneralNames.getInstance(certificateIssuer.getParsedValue());
+    }
+
+    private static long makeKey(int hash, int index)
+    {
+        return ((long)hash << 32) | (index & 0xFFFFFFFFL);
+    }
+}
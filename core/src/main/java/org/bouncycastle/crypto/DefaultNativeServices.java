@@ -201,6 +201,26 @@ class DefaultNativeServices
                 set.add(AES_GCMSIV_PC);
             }
 
+            if (NativeFeatures.hasOCBHardwareSupport())
+            {
+                set.add(AES_OCB);
+            }
+
+            if (NativeFeatures.hasOCBPCHardwareSupport())
+            {
+                set.add(AES_OCB_PC);
+            }
+
+            if (NativeFeatures.hasEAXHardwareSupport())
+            {
+                set.add(AES_EAX);
+            }
+
+            if (NativeFeatures.hasEAXPCHardwareSupport())
+            {
+                set.add(AES_EAX_PC);
+            }
+
             if (NativeFeatures.hasMultiplyAcc())
             {
                 set.add(MULACC);
@@ -220,6 +240,16 @@ class DefaultNativeServices
             {
                 set.add(SLHDSA_SHA256);
             }
+
+            if (NativeFeatures.hasChaCha20Poly1305())
+            {
+                set.add(CHACHA20_POLY1305);
+            }
+
+            if (NativeFeatures.hasChaCha20Poly1305PC())
+            {
+                set.add(CHACHA20_POLY1305_PC);
+            }
         }
 
         if (set.isEmpty())
@@ -27,11 +27,18 @@ public class ExceptionMessages
     public static final String GCM_INVALID_PARAMETER = "invalid parameters passed to GCM";
     public static final String CTR_INVALID_PARAMETER = "CTR/SIC mode requires ParametersWithIV";
     public static final String GCM_SIV_INVALID_PARAMETER = "invalid parameters passed to GCM-SIV";
+    public static final String OCB_INVALID_PARAMETER = "invalid parameters passed to OCB";
+    public static final String EAX_INVALID_PARAMETER = "invalid parameters passed to EAX";
     public static final String CTR16_IV_TOO_LONG = "CTR/SIC mode requires IV no greater than: 16 bytes.";
     public static final String CTR16_IV_TOO_SHORT = "CTR/SIC mode requires IV of at least: 8 bytes.";
     public static final String GCM_INVALID_MAC_SIZE = "invalid mac size: ";
     public static final String GCM_IV_TOO_SHORT = "nonce must be at least 12 byte";
     public static final String GCM_SIV_IV_SIZE = "invalid nonce";
+    public static final String OCB_IV_TOO_LONG = "IV must be no more than 15 bytes";
+    public static final String OCB_MAC_SIZE = "Invalid value for MAC size: ";
+    public static final String EAX_MAC_SIZE = "invalid value for MAC size: ";
+    public static final String NONCE_NULL = "nonce is null";
     public static final String LEN_PARAMETER_INVALID="len parameter invalid";
     public static final String INPUT_OVERFLOW = "too much input";
+    public static final String PACKETS_LENGTH_MISMATCH = "packet arrays must all be the same length";
 }
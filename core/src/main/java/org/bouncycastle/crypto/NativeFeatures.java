@@ -159,6 +159,78 @@ class NativeFeatures
 
     private static native boolean nativeCCMPC();
 
+    static boolean hasOCBHardwareSupport()
+    {
+        try
+        {
+            return nativeOCB();
+        }
+        catch (UnsatisfiedLinkError ule)
+        {
+            if (LOG.isLoggable(Level.FINE))
+            {
+                LOG.log(Level.FINE, "native ocb exception: " + ule.getMessage(), ule);
+            }
+            return false;
+        }
+    }
+
+    private static native boolean nativeOCB();
+
+    static boolean hasOCBPCHardwareSupport()
+    {
+        try
+        {
+            return nativeOCBPC();
+        }
+        catch (UnsatisfiedLinkError ule)
+        {
+            if (LOG.isLoggable(Level.WARNING))
+            {
+                LOG.log(Level.WARNING, "native ocb packet cipher exception: " + ule.getMessage(), ule);
+            }
+            return false;
+        }
+    }
+
+    private static native boolean nativeOCBPC();
+
+    static boolean hasEAXHardwareSupport()
+    {
+        try
+        {
+            return nativeEAX();
+        }
+        catch (UnsatisfiedLinkError ule)
+        {
+            if (LOG.isLoggable(Level.FINE))
+            {
+                LOG.log(Level.FINE, "native eax exception: " + ule.getMessage(), ule);
+            }
+            return false;
+        }
+    }
+
+    private static native boolean nativeEAX();
+
+    static boolean hasEAXPCHardwareSupport()
+    {
+        try
+        {
+            return nativeEAXPC();
+        }
+        catch (UnsatisfiedLinkError ule)
+        {
+            if (LOG.isLoggable(Level.WARNING))
+            {
+                LOG.log(Level.WARNING, "native eax packet cipher exception: " + ule.getMessage(), ule);
+            }
+            return false;
+        }
+    }
+
+    private static native boolean nativeEAXPC();
+
     static boolean hasCBCPCHardwareSupport()
     {
         try
@@ -416,6 +488,38 @@ class NativeFeatures
         }
     }
 
+    static boolean hasChaCha20Poly1305()
+    {
+        try
+        {
+            return nativeChaCha20Poly1305();
+        }
+        catch (UnsatisfiedLinkError ule)
+        {
+            if (LOG.isLoggable(Level.FINE))
+            {
+                LOG.log(Level.FINE, "native chacha20-poly1305 exception: " + ule.getMessage(), ule);
+            }
+            return false;
+        }
+    }
+
+    static boolean hasChaCha20Poly1305PC()
+    {
+        try
+        {
+            return nativeChaCha20Poly1305PC();
+        }
+        catch (UnsatisfiedLinkError ule)
+        {
+            if (LOG.isLoggable(Level.WARNING))
+            {
+                LOG.log(Level.WARNING, "native chacha20-poly1305 packet cipher exception: " + ule.getMessage(), ule);
+            }
+            return false;
+        }
+    }
+
 
     private static native boolean nativeSHAKE();
 
@@ -434,4 +538,8 @@ class NativeFeatures
     private static native boolean nativeRSA();
 
     private static native boolean nativeSlhDSASha256();
+
+    private static native boolean nativeChaCha20Poly1305();
+
+    private static native boolean nativeChaCha20Poly1305PC();
 }
\ No newline at end of file
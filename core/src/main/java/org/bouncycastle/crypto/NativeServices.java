@@ -14,6 +14,8 @@ public interface NativeServices
     String AES_CFB = "AES/CFB";
     String AES_CTR = "AES/CTR";
     String AES_CCM = "AES/CCM";
+    String AES_OCB = "AES/OCB";
+    String AES_EAX = "AES/EAX";
 
     String AES_CBC_PC = "AES/CBC-PC";
     String AES_CCM_PC = "AES/CCM-PC";
@@ -21,6 +23,8 @@ public interface NativeServices
     String AES_CTR_PC = "AES/CTR-PC";
     String AES_GCM_PC = "AES/GCM-PC";
     String AES_GCMSIV_PC = "AES/GCMSIV-PC";
+    String AES_OCB_PC = "AES/OCB-PC";
+    String AES_EAX_PC = "AES/EAX-PC";
     String SHA2 = "SHA2";
 
     String SHA256 = "SHA256";
@@ -38,6 +42,9 @@ public interface NativeServices
 
     String SLHDSA_SHA256 = "SLHDSA_SHA256";
 
+    String CHACHA20_POLY1305 = "CHACHA20/POLY1305";
+    String CHACHA20_POLY1305_PC = "CHACHA20/POLY1305-PC";
+
     String NONE = "NONE";
 
     String getStatusMessage();
@@ -3,6 +3,7 @@ package org.bouncycastle.crypto;
 public class PacketCipherException extends Exception
 {
     private final Reason reason;
+    private final int packetIndex;
 
     public enum Reason
     {
@@ -33,10 +34,33 @@ public class PacketCipherException extends Exception
         return new PacketCipherException(Reason.OTHER, throwable.getMessage(), throwable);
     }
 
+    /**
+     * Create an exception for a failure of one packet in a batch, the message names the packet.
+     *
+     * @param throwable   the cause of the failure.
+     * @param packetIndex the index of the packet in the batch, -1 if the failure is not down to a single packet.
+     */
+    public static PacketCipherException from(Throwable throwable, int packetIndex)
+    {
+        PacketCipherException e = from(throwable);
+        if (packetIndex < 0)
+        {
+            return e;
+        }
+        return new PacketCipherException(e.reason, "packet " + packetIndex + ": " + e.getMessage(), e.getCause(),
+            packetIndex);
+    }
+
     private PacketCipherException(Reason reason, String message, Throwable cause)
+    {
+        this(reason, message, cause, -1);
+    }
+
+    private PacketCipherException(Reason reason, String message, Throwable cause, int packetIndex)
     {
         super(message, cause);
         this.reason = reason;
+        this.packetIndex = packetIndex;
     }
 
 
@@ -64,4 +88,12 @@ public class PacketCipherException extends Exception
     {
         return reason;
     }
+
+    /**
+     * @return the index of the failed packet for a batch call, -1 otherwise.
+     */
+    public int getPacketIndex()
+    {
+        return packetIndex;
+    }
 }
@@ -1,9 +1,13 @@
 package org.bouncycastle.crypto.engines;
 
+import java.nio.ByteBuffer;
+import java.nio.ReadOnlyBufferException;
+
 import org.bouncycastle.crypto.BlockCipher;
 import org.bouncycastle.crypto.CipherParameters;
 import org.bouncycastle.crypto.DataLengthException;
 import org.bouncycastle.crypto.MultiBlockCipher;
+import org.bouncycastle.crypto.OutputLengthException;
 import org.bouncycastle.crypto.modes.CBCModeCipher;
 import org.bouncycastle.crypto.params.KeyParameter;
 import org.bouncycastle.crypto.params.ParametersWithIV;
@@ -192,8 +196,47 @@ class AESNativeCBC
         return process(referenceWrapper.getReference(), in, inOff, blockCount, out, outOff);
     }
 
+    @Override
+    public int processBlocks(ByteBuffer in, ByteBuffer out)
+        throws DataLengthException
+    {
+        if (!(in.isDirect() && out.isDirect()))
+        {
+            return CBCModeCipher.super.processBlocks(in, out);
+        }
+
+        if (referenceWrapper == null)
+        {
+            throw new IllegalStateException("not initialized");
+        }
+
+        if (out.isReadOnly())
+        {
+            throw new ReadOnlyBufferException();
+        }
+
+        int len = in.remaining();
+        if (len % getBlockSize() != 0)
+        {
+            throw new DataLengthException("input length not multiple of block size");
+        }
+
+        if (out.remaining() < len)
+        {
+            throw new OutputLengthException("output buffer too short");
+        }
+
+        int written = processDirect(referenceWrapper.getReference(), in, in.position(), len, out, out.position());
+
+        in.position(in.position() + len);
+        out.position(out.position() + written);
+        return written;
+    }
+
     private static native int process(long ref, byte[] in, int inOff, int blockCount, byte[] out, int outOff);
 
+    private static native int processDirect(long ref, ByteBuffer in, int inOff, int len, ByteBuffer out, int outOff);
+
     private static native int getMultiBlockSize(long ref);
 
     private static native int getBlockSize(long ref);
@@ -1,6 +1,8 @@
 package org.bouncycastle.crypto.engines;
 
 import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ReadOnlyBufferException;
 
 import org.bouncycastle.crypto.BlockCipher;
 import org.bouncycastle.crypto.CipherParameters;
@@ -11,6 +13,7 @@ import org.bouncycastle.crypto.modes.CCMModeCipher;
 import org.bouncycastle.crypto.params.AEADParameters;
 import org.bouncycastle.crypto.params.KeyParameter;
 import org.bouncycastle.crypto.params.ParametersWithIV;
+import org.bouncycastle.util.Arrays;
 import org.bouncycastle.util.dispose.NativeDisposer;
 import org.bouncycastle.util.dispose.NativeReference;
 
@@ -70,27 +73,44 @@ class AESNativeCCM
             throw new IllegalArgumentException("invalid parameters passed to CCM");
         }
 
-        // NOTE: Very basic support for key re-use, but no performance gain from it
         if (cipherParameters != null)
         {
             keyParam = (KeyParameter) cipherParameters;
         }
 
+        // null means a nonce only re-initialisation, the native side keeps its key schedule.
+        byte[] newKey = null;
         if (keyParam != null)
         {
-            lastKey = keyParam.getKey();
-            if (lastKey == null)
+            byte[] key = keyParam.getKey();
+            if (key == null)
             {
                 throw new IllegalArgumentException("key was null");
             }
-            initRef(lastKey.length);
+            if (refWrapper == null || !Arrays.areEqual(lastKey, key))
+            {
+                newKey = key;
+            }
+            if (refWrapper == null)
+            {
+                initRef(key.length);
+            }
+        }
+        else if (refWrapper == null)
+        {
+            throw new IllegalArgumentException("key must be specified in initial init");
         }
 
         int iatLen = initialAssociatedText != null ? initialAssociatedText.length : 0;
         initNative(
                 refWrapper.getReference(),
-                forEncryption, lastKey,
+                forEncryption, newKey,
                 nonce, initialAssociatedText, iatLen, macSize * 8);
+        if (newKey != null)
+        {
+            // Take a copy, the caller may reuse the array for a different key
+            lastKey = Arrays.clone(newKey);
+        }
         reset();
         initialised = true;
     }
@@ -215,6 +235,52 @@ class AESNativeCCM
         return len;
     }
 
+    @Override
+    public int processBytes(ByteBuffer in, ByteBuffer out)
+            throws DataLengthException
+    {
+        checkStatus();
+
+        data.write(in);
+
+        return 0;
+    }
+
+    @Override
+    public int doFinal(ByteBuffer out)
+            throws IllegalStateException, InvalidCipherTextException
+    {
+        if (!out.isDirect())
+        {
+            return CCMModeCipher.super.doFinal(out);
+        }
+
+        int len;
+        try
+        {
+            checkStatus();
+            if (out.isReadOnly())
+            {
+                throw new ReadOnlyBufferException();
+            }
+            if (getOutputSize(0) > out.remaining())
+            {
+                throw new OutputLengthException("output buffer too short");
+            }
+            len = processPacketDirect(refWrapper.getReference(), data.getBuffer(), 0, data.size(),
+                    associatedText.getBuffer(), 0, associatedText.size(), out, out.position(), out.remaining());
+            resetKeepMac();
+        }
+        catch (IllegalStateException e)
+        {
+            reset();
+            throw e;
+        }
+
+        out.position(out.position() + len);
+        return len;
+    }
+
 
     @Override
     public byte[] getMac()
@@ -295,6 +361,9 @@ class AESNativeCCM
 
     static native byte[] getMac(long ref);
 
+    static native int processPacketDirect(long ref, byte[] in, int inOff, int inLen, byte[] aad, int aadOff, int aadLen,
+            ByteBuffer out, int outOff, int outLen);
+
     static native int processPacket(long ref, byte[] in, int inOff, int inLen, byte[] aad, int aadOff, int aadlen,
                                     byte[] out, int outOff);
 
@@ -385,5 +454,16 @@ class AESNativeCCM
         {
             return this.buf;
         }
+
+        public void write(ByteBuffer in)
+        {
+            int len = in.remaining();
+            if (count + len > buf.length)
+            {
+                buf = org.bouncycastle.util.Arrays.copyOf(buf, Math.max(buf.length << 1, count + len));
+            }
+            in.get(buf, count, len);
+            count += len;
+        }
     }
 }
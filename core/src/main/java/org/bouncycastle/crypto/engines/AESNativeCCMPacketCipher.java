@@ -2,10 +2,13 @@ package org.bouncycastle.crypto.engines;
 
 import org.bouncycastle.crypto.*;
 import org.bouncycastle.crypto.modes.AESCCMModePacketCipher;
+import org.bouncycastle.crypto.modes.KeyedAEADPacketCipher;
 import org.bouncycastle.crypto.modes.PacketCipherChecks;
 import org.bouncycastle.crypto.params.AEADParameters;
 import org.bouncycastle.crypto.params.KeyParameter;
 import org.bouncycastle.crypto.params.ParametersWithIV;
+import org.bouncycastle.util.dispose.NativeDisposer;
+import org.bouncycastle.util.dispose.NativeReference;
 
 public class AESNativeCCMPacketCipher
     implements PacketCipher, AESCCMModePacketCipher
@@ -64,6 +67,16 @@ public class AESNativeCCMPacketCipher
         return processAEADPacketCipher(forEncryption, input, inOff, len, output, outOff, initialAssociatedText, key, nonce, macSize);
     }
 
+    /**
+     * Return a cipher for packets under key, holding the key schedule in a native context so that it is computed
+     * once rather than for every packet.
+     */
+    @Override
+    public KeyedAEADPacketCipher withKey(KeyParameter key)
+    {
+        return new Keyed(key.getKey());
+    }
+
     private static int processAEADPacketCipher(boolean forEncryption, byte[] input, int inOff, int len, byte[] output, int outOff, byte[] initialAssociatedText, byte[] key, byte[] nonce, int macSize)
         throws PacketCipherException
     {
@@ -86,9 +99,85 @@ public class AESNativeCCMPacketCipher
     static native int processPacket(boolean encryption, byte[] key, byte[] nonce, byte[] aad,
                                     int macSize, byte[] in, int inOff, int inLen, byte[] out, int outOff, int outLen);
 
+    static native long makeKeyed(byte[] key);
+
+    static native void disposeKeyed(long ref);
+
+    static native int processPacketKeyed(long ref, boolean encryption, byte[] nonce, byte[] aad, int macSize,
+                                         byte[] in, int inOff, int inLen, byte[] out, int outOff, int outLen);
+
     @Override
     public String toString()
     {
         return "CCM-PS[Native](AES[Native])";
     }
+
+    private static class Keyed
+        implements KeyedAEADPacketCipher
+    {
+        private final KeyRefWrapper refWrapper;
+
+        Keyed(byte[] key)
+        {
+            this.refWrapper = new KeyRefWrapper(makeKeyed(key));
+        }
+
+        @Override
+        public int getOutputSize(boolean encryption, int macSize, int len)
+        {
+            return AESNativeCCMPacketCipher.getOutputSize(encryption, len, macSize);
+        }
+
+        @Override
+        public int processPacket(boolean encryption, byte[] nonce, byte[] aad, int macSize, byte[] input, int inOff,
+                                 int len, byte[] output, int outOff)
+            throws PacketCipherException
+        {
+            if (encryption && (macSize < 4 || macSize > 16 || (macSize & 1) != 0))
+            {
+                throw PacketCipherException.from(new IllegalArgumentException(ExceptionMessages.CCM_MAC_SIZE));
+            }
+
+            int outLen = output != null ? output.length - outOff : 0;
+            try
+            {
+                return processPacketKeyed(refWrapper.getReference(), encryption, nonce, aad, macSize, input, inOff,
+                    len, output, outOff, outLen);
+            }
+            catch (Exception e)
+            {
+                throw PacketCipherException.from(e);
+            }
+        }
+    }
+
+    private static class KeyRefWrapper
+        extends NativeReference
+    {
+        KeyRefWrapper(long reference)
+        {
+            super(reference, "CCM-PS Key");
+        }
+
+        @Override
+        protected Runnable createAction()
+        {
+            return new Disposer(reference);
+        }
+    }
+
+    private static class Disposer
+        extends NativeDisposer
+    {
+        Disposer(long ref)
+        {
+            super(ref);
+        }
+
+        @Override
+        protected void dispose(long reference)
+        {
+            disposeKeyed(reference);
+        }
+    }
 }
@@ -1,7 +1,11 @@
 package org.bouncycastle.crypto.engines;
 
+import java.nio.ByteBuffer;
+import java.nio.ReadOnlyBufferException;
+
 import org.bouncycastle.crypto.CipherParameters;
 import org.bouncycastle.crypto.DataLengthException;
+import org.bouncycastle.crypto.OutputLengthException;
 import org.bouncycastle.crypto.modes.CFBModeCipher;
 import org.bouncycastle.crypto.params.KeyParameter;
 import org.bouncycastle.crypto.params.ParametersWithIV;
@@ -152,6 +156,38 @@ class AESNativeCFB
         return processBytes(referenceWrapper.getReference(), in, inOff, len, out, outOff);
     }
 
+    @Override
+    public int processBytes(ByteBuffer in, ByteBuffer out)
+        throws DataLengthException
+    {
+        if (!(in.isDirect() && out.isDirect()))
+        {
+            return CFBModeCipher.super.processBytes(in, out);
+        }
+
+        if (referenceWrapper == null)
+        {
+            throw new IllegalStateException("not initialized");
+        }
+
+        if (out.isReadOnly())
+        {
+            throw new ReadOnlyBufferException();
+        }
+
+        int len = in.remaining();
+        if (out.remaining() < len)
+        {
+            throw new OutputLengthException("output buffer too short");
+        }
+
+        int written = processBytesDirect(referenceWrapper.getReference(), in, in.position(), len, out, out.position());
+
+        in.position(in.position() + len);
+        out.position(out.position() + written);
+        return written;
+    }
+
     @Override
     public int getBlockSize()
     {
@@ -213,6 +249,9 @@ class AESNativeCFB
     private static native int processBytes(long ref, byte[] in, int inOff, int len, byte[] out, int outOff)
         throws DataLengthException;
 
+    private static native int processBytesDirect(long ref, ByteBuffer in, int inOff, int len, ByteBuffer out, int outOff)
+        throws DataLengthException;
+
     static native long makeNative(boolean encrypting, int keyLen);
 
     native void init(long nativeRef, byte[] key, byte[] iv);
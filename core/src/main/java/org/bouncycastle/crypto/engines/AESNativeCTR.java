@@ -1,5 +1,8 @@
 package org.bouncycastle.crypto.engines;
 
+import java.nio.ByteBuffer;
+import java.nio.ReadOnlyBufferException;
+
 import org.bouncycastle.crypto.*;
 import org.bouncycastle.crypto.modes.CTRModeCipher;
 import org.bouncycastle.crypto.params.KeyParameter;
@@ -193,9 +196,17 @@ public class AESNativeCTR
                     throw new IllegalArgumentException("invalid key length, key must be 16,24 or 32 bytes");
                 }
 
-                init(referenceWrapper.getReference(), key, iv);
-                lastKey = Arrays.clone(key);
-                keyLen = key.length * 8;
+                // an unchanged key is also treated as an IV change, so the key schedule is not recalculated.
+                if (Arrays.areEqual(lastKey, key))
+                {
+                    init(referenceWrapper.getReference(), null, iv);
+                }
+                else
+                {
+                    init(referenceWrapper.getReference(), key, iv);
+                    lastKey = Arrays.clone(key);
+                    keyLen = key.length * 8;
+                }
             }
 
             reset();
@@ -261,6 +272,37 @@ public class AESNativeCTR
         return processBytes(referenceWrapper.getReference(), in, inOff, len, out, outOff);
     }
 
+    @Override
+    public int processBytes(ByteBuffer in, ByteBuffer out)
+        throws DataLengthException
+    {
+        if (!(in.isDirect() && out.isDirect()))
+        {
+            return CTRModeCipher.super.processBytes(in, out);
+        }
+
+        if (referenceWrapper == null)
+        {
+            throw new IllegalStateException("not initialized");
+        }
+
+        if (out.isReadOnly())
+        {
+            throw new ReadOnlyBufferException();
+        }
+
+        int len = in.remaining();
+        if (out.remaining() < len)
+        {
+            throw new OutputLengthException("output buffer too short");
+        }
+
+        int written = processBytesDirect(referenceWrapper.getReference(), in, in.position(), len, out, out.position());
+
+        in.position(in.position() + len);
+        out.position(out.position() + written);
+        return written;
+    }
 
     @Override
     public void reset()
@@ -287,6 +329,8 @@ public class AESNativeCTR
 
     private static native int processBytes(long ref, byte[] in, int inOff, int len, byte[] out, int outOff);
 
+    private static native int processBytesDirect(long ref, ByteBuffer in, int inOff, int len, ByteBuffer out, int outOff);
+
     private static native void reset(long ref);
 
 
@@ -2,6 +2,7 @@ package org.bouncycastle.crypto.engines;
 
 import org.bouncycastle.crypto.*;
 import org.bouncycastle.crypto.modes.AESCTRModePacketCipher;
+import org.bouncycastle.crypto.modes.PacketCipherChecks;
 import org.bouncycastle.crypto.params.KeyParameter;
 import org.bouncycastle.crypto.params.ParametersWithIV;
 import org.bouncycastle.util.Arrays;
@@ -27,23 +28,8 @@ public class AESNativeCTRPacketCipher
                              byte[] output, int outOff)
     throws PacketCipherException
     {
-        byte[] iv;
-        byte[] key;
-        if (parameters instanceof ParametersWithIV)
-        {
-            ParametersWithIV ivParam = (ParametersWithIV) parameters;
-            iv = Arrays.clone(ivParam.getIV());
-            KeyParameter keyParameter = (KeyParameter) ivParam.getParameters();
-            if (keyParameter == null)
-            {
-                throw PacketCipherException.from(new IllegalStateException(ExceptionMessages.CTR_CIPHER_UNITIALIZED));
-            }
-            key = keyParameter.getKey();
-        }
-        else
-        {
-            throw new IllegalArgumentException(ExceptionMessages.CTR_INVALID_PARAMETER);
-        }
+        byte[] iv = getIV(parameters);
+        byte[] key = getKey(parameters);
         int result;
         try
         {
@@ -56,11 +42,72 @@ public class AESNativeCTRPacketCipher
         return result;
     }
 
+    @Override
+    public int processPackets(boolean encryption, CipherParameters[] parameters, byte[][] input, int[] inOff,
+                              int[] len, byte[][] output, int[] outOff, int[] written)
+    throws PacketCipherException
+    {
+        int count = PacketCipherChecks.checkPackets(parameters, input, inOff, len, output, outOff, written);
+
+        byte[][] keys = new byte[count][];
+        byte[][] ivs = new byte[count][];
+        for (int i = 0; i != count; i++)
+        {
+            try
+            {
+                ivs[i] = getIV(parameters[i]);
+                keys[i] = getKey(parameters[i]);
+            }
+            catch (Exception e)
+            {
+                throw PacketCipherException.from(e, i);
+            }
+        }
+
+        int[] failed = new int[]{ -1 };
+        try
+        {
+            // one transition into native code for the whole batch.
+            return processPackets(encryption, keys, ivs, input, inOff, len, output, outOff, written, failed);
+        }
+        catch (Exception e)
+        {
+            throw PacketCipherException.from(e, failed[0]);
+        }
+    }
+
+    private static byte[] getIV(CipherParameters parameters)
+    {
+        if (parameters instanceof ParametersWithIV)
+        {
+            return Arrays.clone(((ParametersWithIV) parameters).getIV());
+        }
+        throw new IllegalArgumentException(ExceptionMessages.CTR_INVALID_PARAMETER);
+    }
+
+    private static byte[] getKey(CipherParameters parameters)
+    throws PacketCipherException
+    {
+        KeyParameter keyParameter = (KeyParameter) ((ParametersWithIV) parameters).getParameters();
+        if (keyParameter == null)
+        {
+            throw PacketCipherException.from(new IllegalStateException(ExceptionMessages.CTR_CIPHER_UNITIALIZED));
+        }
+        return keyParameter.getKey();
+    }
+
     static native int getOutputSize(int len);
 
     static native int processPacket(boolean encryption, byte[] key, byte[] nonce, byte[] in, int inOff, int inLen,
                                     byte[] out, int outOff, int outLen);
 
+    /**
+     * Process a batch, the key schedule is only expanded again when a packet's key differs from the previous
+     * packet's. On failure failed[0] is set to the index of the packet that failed.
+     */
+    static native int processPackets(boolean encryption, byte[][] keys, byte[][] nonces, byte[][] in, int[] inOff,
+                                     int[] inLen, byte[][] out, int[] outOff, int[] written, int[] failed);
+
     @Override
     public String toString()
     {
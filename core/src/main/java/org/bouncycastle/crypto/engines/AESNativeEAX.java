@@ -0,0 +1,349 @@
+package org.bouncycastle.crypto.engines;
+
+import java.nio.ByteBuffer;
+import java.nio.ReadOnlyBufferException;
+
+import org.bouncycastle.crypto.BlockCipher;
+import org.bouncycastle.crypto.CipherParameters;
+import org.bouncycastle.crypto.DataLengthException;
+import org.bouncycastle.crypto.InvalidCipherTextException;
+import org.bouncycastle.crypto.modes.EAXModeCipher;
+import org.bouncycastle.crypto.params.AEADParameters;
+import org.bouncycastle.crypto.params.KeyParameter;
+import org.bouncycastle.crypto.params.ParametersWithIV;
+import org.bouncycastle.util.Arrays;
+import org.bouncycastle.util.dispose.NativeDisposer;
+import org.bouncycastle.util.dispose.NativeReference;
+
+class AESNativeEAX
+    implements EAXModeCipher
+{
+    private EAXRefWrapper refWrapper;
+    private byte[] lastKey;
+    private boolean forEncryption = false;
+
+    @Override
+    public BlockCipher getUnderlyingCipher()
+    {
+        BlockCipher engine = AESEngine.newInstance();
+        if (lastKey != null)
+        {
+            engine.init(true, new KeyParameter(lastKey));
+        }
+        return engine;
+    }
+
+
+    public void init(boolean forEncryption, CipherParameters params)
+        throws IllegalArgumentException
+    {
+        this.forEncryption = forEncryption;
+
+        KeyParameter keyParam;
+        byte[] nonce;
+        byte[] initialAssociatedText;
+        int macSizeBits;
+
+        if (params instanceof AEADParameters)
+        {
+            AEADParameters param = (AEADParameters)params;
+
+            nonce = param.getNonce();
+            initialAssociatedText = param.getAssociatedText();
+
+            // the tag is truncated to whole bytes, as in EAXBlockCipher.
+            macSizeBits = (param.getMacSize() / 8) * 8;
+            if (macSizeBits < 0 || macSizeBits > 128)
+            {
+                throw new IllegalArgumentException("invalid value for MAC size: " + param.getMacSize());
+            }
+
+            keyParam = param.getKey();
+        }
+        else if (params instanceof ParametersWithIV)
+        {
+            ParametersWithIV param = (ParametersWithIV)params;
+
+            nonce = param.getIV();
+            initialAssociatedText = null;
+            macSizeBits = 64;
+            keyParam = (KeyParameter)param.getParameters();
+        }
+        else
+        {
+            throw new IllegalArgumentException("invalid parameters passed to EAX");
+        }
+
+        if (nonce == null)
+        {
+            throw new IllegalArgumentException("nonce must not be null");
+        }
+
+        // null means a nonce only re-initialisation, the native side keeps its key schedule and OMAC sub keys.
+        byte[] newKey = null;
+        if (keyParam != null)
+        {
+            byte[] key = keyParam.getKey();
+            switch (key.length)
+            {
+            case 16:
+            case 24:
+            case 32:
+                break;
+            default:
+                throw new IllegalArgumentException("Key length not 128/192/256 bits.");
+            }
+
+            if (refWrapper == null || !Arrays.areEqual(lastKey, key))
+            {
+                newKey = key;
+                // Take a copy, the caller may reuse the array for a different key
+                lastKey = Arrays.clone(key);
+            }
+        }
+        else if (refWrapper == null)
+        {
+            throw new IllegalArgumentException("key must be specified in initial init");
+        }
+
+        if (refWrapper == null)
+        {
+            refWrapper = new EAXRefWrapper(makeInstance());
+        }
+
+        initNative(
+            refWrapper.getReference(),
+            forEncryption, newKey,
+            nonce, initialAssociatedText, macSizeBits);
+    }
+
+
+    @Override
+    public String getAlgorithmName()
+    {
+        return "AES/EAX";
+    }
+
+    @Override
+    public void processAADByte(byte in)
+    {
+        checkInitialised();
+
+        processAADByte(refWrapper.getReference(), in);
+    }
+
+
+    @Override
+    public void processAADBytes(byte[] in, int inOff, int len)
+    {
+        checkInitialised();
+
+        processAADBytes(refWrapper.getReference(), in, inOff, len);
+    }
+
+
+    @Override
+    public int processByte(byte in, byte[] out, int outOff)
+        throws DataLengthException
+    {
+        checkInitialised();
+
+        return processByte(refWrapper.getReference(), in, out, outOff);
+    }
+
+
+    @Override
+    public int processBytes(byte[] in, int inOff, int len, byte[] out, int outOff)
+        throws DataLengthException
+    {
+        checkInitialised();
+
+        return processBytes(refWrapper.getReference(), in, inOff, len, out, outOff);
+    }
+
+
+    @Override
+    public int processBytes(ByteBuffer in, ByteBuffer out)
+        throws DataLengthException
+    {
+        if (!(in.isDirect() && out.isDirect()))
+        {
+            return EAXModeCipher.super.processBytes(in, out);
+        }
+
+        checkInitialised();
+
+        if (out.isReadOnly())
+        {
+            throw new ReadOnlyBufferException();
+        }
+
+        int len = in.remaining();
+        int written = processBytesDirect(refWrapper.getReference(), in, in.position(), len, out, out.position(),
+            out.remaining());
+
+        in.position(in.position() + len);
+        out.position(out.position() + written);
+        return written;
+    }
+
+
+    @Override
+    public int doFinal(byte[] out, int outOff)
+        throws IllegalStateException, InvalidCipherTextException
+    {
+        checkInitialised();
+
+        return doFinal(refWrapper.getReference(), out, outOff);
+    }
+
+
+    @Override
+    public int doFinal(ByteBuffer out)
+        throws IllegalStateException, InvalidCipherTextException
+    {
+        if (!out.isDirect())
+        {
+            return EAXModeCipher.super.doFinal(out);
+        }
+
+        checkInitialised();
+
+        if (out.isReadOnly())
+        {
+            throw new ReadOnlyBufferException();
+        }
+
+        int len = doFinalDirect(refWrapper.getReference(), out, out.position(), out.remaining());
+
+        out.position(out.position() + len);
+        return len;
+    }
+
+
+    @Override
+    public byte[] getMac()
+    {
+        checkInitialised();
+
+        return getMac(refWrapper.getReference());
+    }
+
+
+    @Override
+    public int getUpdateOutputSize(int len)
+    {
+        checkInitialised();
+
+        return getUpdateOutputSize(refWrapper.getReference(), len);
+    }
+
+
+    @Override
+    public int getOutputSize(int len)
+    {
+        checkInitialised();
+
+        return getOutputSize(refWrapper.getReference(), len);
+    }
+
+
+    @Override
+    public void reset()
+    {
+        if (refWrapper == null)
+        {
+            // deal with reset being called before init.
+            return;
+        }
+
+        reset(refWrapper.getReference());
+    }
+
+
+    private void checkInitialised()
+    {
+        if (refWrapper == null)
+        {
+            throw new IllegalStateException("EAX is uninitialized");
+        }
+    }
+
+    private static native void reset(long ref);
+
+    static native void initNative(
+        long reference,
+        boolean forEncryption,
+        byte[] keyParam,
+        byte[] nonce,
+        byte[] initialAssociatedText,
+        int macSizeBits);
+
+    static native long makeInstance();
+
+    static native void dispose(long nativeRef);
+
+    private static native void processAADByte(long ref, byte in);
+
+    private static native void processAADBytes(long ref, byte[] in, int inOff, int len);
+
+    private static native int processByte(long ref, byte in, byte[] out, int outOff);
+
+    private static native int processBytes(long ref, byte[] in, int inOff, int len, byte[] out, int outOff);
+
+    private static native int doFinal(long ref, byte[] out, int outOff);
+
+    private static native int processBytesDirect(long ref, ByteBuffer in, int inOff, int len, ByteBuffer out,
+                                                 int outOff, int outLen);
+
+    private static native int doFinalDirect(long ref, ByteBuffer out, int outOff, int outLen);
+
+    private static native int getUpdateOutputSize(long ref, int len);
+
+    private static native int getOutputSize(long ref, int len);
+
+    private static native byte[] getMac(long ref);
+
+
+    private static class EAXRefWrapper
+        extends NativeReference
+    {
+        public EAXRefWrapper(long reference)
+        {
+            super(reference, "EAX");
+        }
+
+        @Override
+        public Runnable createAction()
+        {
+            return new Disposer(reference);
+        }
+
+    }
+
+
+    private static class Disposer
+        extends NativeDisposer
+    {
+        Disposer(long ref)
+        {
+            super(ref);
+        }
+
+        @Override
+        protected void dispose(long reference)
+        {
+            AESNativeEAX.dispose(reference);
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        if (lastKey != null)
+        {
+            return "EAX[Native](AES[Native](" + (lastKey.length * 8) + "))";
+        }
+        return "EAX[Native](AES[Native](not initialized))";
+    }
+}
@@ -0,0 +1,85 @@
+package org.bouncycastle.crypto.engines;
+
+import org.bouncycastle.crypto.CipherParameters;
+import org.bouncycastle.crypto.ExceptionMessages;
+import org.bouncycastle.crypto.PacketCipherException;
+import org.bouncycastle.crypto.modes.AESEAXModePacketCipher;
+import org.bouncycastle.crypto.params.AEADParameters;
+import org.bouncycastle.crypto.params.KeyParameter;
+import org.bouncycastle.crypto.params.ParametersWithIV;
+
+public class AESNativeEAXPacketCipher
+    implements AESEAXModePacketCipher
+{
+    public AESNativeEAXPacketCipher()
+    {
+    }
+
+    @Override
+    public int getOutputSize(boolean encryption, CipherParameters params, int len)
+    {
+        int macSize = getMacSize(params);
+        return getOutputSize(encryption, len, macSize);
+    }
+
+    @Override
+    public int processPacket(boolean forEncryption, CipherParameters params, byte[] input, int inOff, int len,
+                             byte[] output, int outOff)
+        throws PacketCipherException
+    {
+        int macSize;
+        byte[] nonce;
+        byte[] initialAssociatedText;
+        KeyParameter keyParam;
+        try
+        {
+            macSize = getMacSize(params);
+            if (params instanceof AEADParameters)
+            {
+                AEADParameters param = (AEADParameters)params;
+                nonce = param.getNonce();
+                initialAssociatedText = param.getAssociatedText();
+                keyParam = param.getKey();
+            }
+            else if (params instanceof ParametersWithIV)
+            {
+                ParametersWithIV param = (ParametersWithIV)params;
+                nonce = param.getIV();
+                initialAssociatedText = null;
+                keyParam = (KeyParameter)param.getParameters();
+            }
+            else
+            {
+                throw new IllegalArgumentException(ExceptionMessages.EAX_INVALID_PARAMETER);
+            }
+        }
+        catch (Exception e)
+        {
+            throw PacketCipherException.from(e);
+        }
+
+        int outLen = output != null ? output.length - outOff : 0;
+        int result;
+        try
+        {
+            result = processPacket(forEncryption, keyParam.getKey(), nonce, initialAssociatedText,
+                macSize, input, inOff, len, output, outOff, outLen);
+        }
+        catch (Exception e)
+        {
+            throw PacketCipherException.from(e);
+        }
+        return result;
+    }
+
+    static native int getOutputSize(boolean encryption, int len, int macSize);
+
+    static native int processPacket(boolean encryption, byte[] key, byte[] nonce, byte[] aad,
+                                    int macSize, byte[] in, int inOff, int inLen, byte[] out, int outOff, int outLen);
+
+    @Override
+    public String toString()
+    {
+        return "EAX-PS[Native](AES[Native])";
+    }
+}
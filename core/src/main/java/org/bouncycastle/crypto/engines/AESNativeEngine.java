@@ -229,12 +229,22 @@ class AESNativeEngine
     @Override
     public EAXModeCipher createEAX()
     {
+        if (CryptoServicesRegistrar.hasEnabledService(NativeServices.AES_EAX))
+        {
+            return new AESNativeEAX();
+        }
+
         return new EAXBlockCipher(AESEngine.newInstance());
     }
 
     @Override
     public OCBModeCipher createOCB()
     {
+        if (CryptoServicesRegistrar.hasEnabledService(NativeServices.AES_OCB))
+        {
+            return new AESNativeOCB();
+        }
+
         return new OCBBlockCipher(AESEngine.newInstance(), AESEngine.newInstance());
     }
 
@@ -1,9 +1,13 @@
 package org.bouncycastle.crypto.engines;
 
+import java.nio.ByteBuffer;
+import java.nio.ReadOnlyBufferException;
+
 import org.bouncycastle.crypto.BlockCipher;
 import org.bouncycastle.crypto.CipherParameters;
 import org.bouncycastle.crypto.DataLengthException;
 import org.bouncycastle.crypto.InvalidCipherTextException;
+import org.bouncycastle.crypto.OutputLengthException;
 import org.bouncycastle.crypto.modes.GCMModeCipher;
 import org.bouncycastle.crypto.params.AEADParameters;
 import org.bouncycastle.crypto.params.KeyParameter;
@@ -104,11 +108,24 @@ class AESNativeGCM
         }
 
         nonce = newNonce;
+
+        // null means a nonce only re-initialisation, the native side keeps its key schedule and hash keys.
+        byte[] newKey = null;
         if (keyParam != null)
         {
-            lastKey = keyParam.getKey();
+            byte[] key = keyParam.getKey();
+            if (!Arrays.areEqual(lastKey, key))
+            {
+                newKey = key;
+                // Take a copy, the caller may reuse the array for a different key
+                lastKey = Arrays.clone(key);
+            }
         }
 
+        if (lastKey == null)
+        {
+            throw new IllegalArgumentException("Key must be specified in initial init");
+        }
 
         switch (lastKey.length)
         {
@@ -120,12 +137,16 @@ class AESNativeGCM
             throw new IllegalStateException("key must be only 16,24,or 32 bytes long.");
         }
 
-        initRef(lastKey.length);
+        if (refWrapper == null)
+        {
+            initRef(lastKey.length);
+            newKey = lastKey;
+        }
 
 
         initNative(
             refWrapper.getReference(),
-            forEncryption, lastKey,
+            forEncryption, newKey,
             nonce, initialAssociatedText, macSize);
 
 
@@ -242,6 +263,40 @@ class AESNativeGCM
     }
 
 
+    @Override
+    public int processBytes(ByteBuffer in, ByteBuffer out)
+        throws DataLengthException
+    {
+        if (!(in.isDirect() && out.isDirect()))
+        {
+            return GCMModeCipher.super.processBytes(in, out);
+        }
+
+        if (refWrapper == null)
+        {
+            throw new IllegalStateException("GCM is uninitialized");
+        }
+
+        if (out.isReadOnly())
+        {
+            throw new ReadOnlyBufferException();
+        }
+
+        int len = in.remaining();
+        if (getUpdateOutputSize(refWrapper.getReference(), len) > out.remaining())
+        {
+            throw new OutputLengthException("output len too short");
+        }
+
+        int written = processBytesDirect(refWrapper.getReference(), in, in.position(), len, out, out.position(),
+            out.remaining());
+
+        in.position(in.position() + len);
+        out.position(out.position() + written);
+        return written;
+    }
+
+
     @Override
     public int doFinal(byte[] out, int outOff)
         throws IllegalStateException, InvalidCipherTextException
@@ -261,6 +316,30 @@ class AESNativeGCM
     }
 
 
+    @Override
+    public int doFinal(ByteBuffer out)
+        throws IllegalStateException, InvalidCipherTextException
+    {
+        if (!out.isDirect())
+        {
+            return GCMModeCipher.super.doFinal(out);
+        }
+
+        checkStatus();
+
+        if (out.isReadOnly())
+        {
+            throw new ReadOnlyBufferException();
+        }
+
+        int len = doFinalDirect(refWrapper.getReference(), out, out.position(), out.remaining());
+
+        resetKeepMac();
+        out.position(out.position() + len);
+        return len;
+    }
+
+
     @Override
     public byte[] getMac()
     {
@@ -350,6 +429,11 @@ class AESNativeGCM
 
     private static native int doFinal(long ref, byte[] out, int outOff);
 
+    private static native int processBytesDirect(long ref, ByteBuffer in, int inOff, int len, ByteBuffer out,
+                                                 int outOff, int outLen);
+
+    private static native int doFinalDirect(long ref, ByteBuffer out, int outOff, int outLen);
+
     private static native int getUpdateOutputSize(long ref, int len);
 
     private static native int getOutputSize(long ref, int len);
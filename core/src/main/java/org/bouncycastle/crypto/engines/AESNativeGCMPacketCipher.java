@@ -4,10 +4,14 @@ import org.bouncycastle.crypto.CipherParameters;
 import org.bouncycastle.crypto.ExceptionMessages;
 import org.bouncycastle.crypto.PacketCipherException;
 import org.bouncycastle.crypto.modes.AESGCMModePacketCipher;
+import org.bouncycastle.crypto.modes.KeyedAEADPacketCipher;
+import org.bouncycastle.crypto.modes.PacketCipherChecks;
 import org.bouncycastle.crypto.params.AEADParameters;
 import org.bouncycastle.crypto.params.KeyParameter;
 import org.bouncycastle.crypto.params.ParametersWithIV;
 import org.bouncycastle.util.Arrays;
+import org.bouncycastle.util.dispose.NativeDisposer;
+import org.bouncycastle.util.dispose.NativeReference;
 
 import javax.security.auth.DestroyFailedException;
 
@@ -34,81 +38,125 @@ public class AESNativeGCMPacketCipher
                              byte[] output, int outOff)
             throws PacketCipherException
     {
-        int macSize;
-        byte[] nonce;
-        byte[] initialAssociatedText;
-        byte[] key;
+        Packet packet;
         try
         {
-            if (params instanceof AEADParameters)
-            {
-                AEADParameters param = (AEADParameters) params;
-                nonce = param.getNonce();
-                initialAssociatedText = param.getAssociatedText();
-
-                int macSizeBits = param.getMacSize();
-                if (macSizeBits < 32 || macSizeBits > 128 || (macSizeBits & 7) != 0)
-                {
-                    throw new IllegalArgumentException(ExceptionMessages.GCM_INVALID_MAC_SIZE + macSizeBits);
-                }
+            packet = unpack(encryption, params);
+        }
+        catch (Exception e)
+        {
+            throw PacketCipherException.from(e);
+        }
 
-                macSize = macSizeBits >> 3;
 
-                key = param.getKey().getKey();
+        int outLen = output != null ? output.length - outOff : 0;
+        int result;
+        try
+        {
+            result = processPacket(encryption, packet.key, packet.nonce, packet.aad,
+                    packet.macSize, input, inOff, len, output, outOff, outLen);
+        }
+        catch (Exception e)
+        {
+            throw PacketCipherException.from(e);
+        }
+        return result;
+    }
 
-                // This only works if you use the same instance of packet cipher
-                // It matches the existing behavior of the normal GCM implementation
-                if (encryption && Arrays.areEqual(key, lastKey) && Arrays.areEqual(nonce, lastNonce))
-                {
-                    throw new IllegalArgumentException("cannot reuse nonce for GCM encryption");
-                }
+    @Override
+    public int processPackets(boolean encryption, CipherParameters[] parameters, byte[][] input, int[] inOff,
+                              int[] len, byte[][] output, int[] outOff, int[] written)
+            throws PacketCipherException
+    {
+        int count = PacketCipherChecks.checkPackets(parameters, input, inOff, len, output, outOff, written);
 
-                lastKey = Arrays.clone(key);
-                lastNonce = Arrays.clone(nonce);
+        byte[][] keys = new byte[count][];
+        byte[][] nonces = new byte[count][];
+        byte[][] aads = new byte[count][];
+        int[] macSizes = new int[count];
+        for (int i = 0; i != count; i++)
+        {
+            try
+            {
+                Packet packet = unpack(encryption, parameters[i]);
+                keys[i] = packet.key;
+                nonces[i] = packet.nonce;
+                aads[i] = packet.aad;
+                macSizes[i] = packet.macSize;
             }
-            else if (params instanceof ParametersWithIV)
+            catch (Exception e)
             {
-                ParametersWithIV param = (ParametersWithIV) params;
-                nonce = param.getIV().clone();
-                initialAssociatedText = null;
-                macSize = 16;
+                throw PacketCipherException.from(e, i);
+            }
+        }
 
-                key = ((KeyParameter) param.getParameters()).getKey();
+        int[] failed = new int[]{ -1 };
+        try
+        {
+            // one transition into native code for the whole batch.
+            return processPackets(encryption, keys, nonces, aads, macSizes, input, inOff, len, output, outOff,
+                    written, failed);
+        }
+        catch (Exception e)
+        {
+            throw PacketCipherException.from(e, failed[0]);
+        }
+    }
 
-                // This only works if you use the same instance of packet cipher
-                // It matches the existing behavior of the normal GCM implementation
-                if (encryption && Arrays.areEqual(key, lastKey) && Arrays.areEqual(nonce, lastNonce))
-                {
-                    throw new IllegalArgumentException("cannot reuse nonce for GCM encryption");
-                }
+    /**
+     * Return a cipher for packets under key, holding the key schedule and hash key powers in a native context so
+     * that they are computed once rather than for every packet.
+     */
+    @Override
+    public KeyedAEADPacketCipher withKey(KeyParameter key)
+    {
+        return new Keyed(key.getKey());
+    }
 
-                lastKey = Arrays.clone(key);
-                lastNonce = Arrays.clone(nonce);
+    private Packet unpack(boolean encryption, CipherParameters params)
+    {
+        Packet packet = new Packet();
+        if (params instanceof AEADParameters)
+        {
+            AEADParameters param = (AEADParameters) params;
+            packet.nonce = param.getNonce();
+            packet.aad = param.getAssociatedText();
 
-            }
-            else
+            int macSizeBits = param.getMacSize();
+            if (macSizeBits < 32 || macSizeBits > 128 || (macSizeBits & 7) != 0)
             {
-                throw new IllegalArgumentException(ExceptionMessages.GCM_INVALID_PARAMETER);
+                throw new IllegalArgumentException(ExceptionMessages.GCM_INVALID_MAC_SIZE + macSizeBits);
             }
+
+            packet.macSize = macSizeBits >> 3;
+
+            packet.key = param.getKey().getKey();
         }
-        catch (Exception e)
+        else if (params instanceof ParametersWithIV)
         {
-            throw PacketCipherException.from(e);
-        }
-
+            ParametersWithIV param = (ParametersWithIV) params;
+            packet.nonce = param.getIV().clone();
+            packet.aad = null;
+            packet.macSize = 16;
 
-        int outLen = output != null ? output.length - outOff : 0;
-        int result;
-        try
+            packet.key = ((KeyParameter) param.getParameters()).getKey();
+        }
+        else
         {
-            result = processPacket(encryption, key,  nonce,  initialAssociatedText,
-                    macSize, input, inOff, len, output, outOff, outLen);
+            throw new IllegalArgumentException(ExceptionMessages.GCM_INVALID_PARAMETER);
         }
-        catch (Exception e)
+
+        // This only works if you use the same instance of packet cipher
+        // It matches the existing behavior of the normal GCM implementation
+        if (encryption && Arrays.areEqual(packet.key, lastKey) && Arrays.areEqual(packet.nonce, lastNonce))
         {
-            throw PacketCipherException.from(e);
+            throw new IllegalArgumentException("cannot reuse nonce for GCM encryption");
         }
-        return result;
+
+        lastKey = Arrays.clone(packet.key);
+        lastNonce = Arrays.clone(packet.nonce);
+
+        return packet;
     }
 
     static native int getOutputSize(boolean encryption, int len, int macSize);
@@ -117,6 +165,21 @@ public class AESNativeGCMPacketCipher
                                     int macSize, byte[] in, int inOff, int inLen, byte[] out, int outOff,
                                     int outLen);
 
+    /**
+     * Process a batch, the key schedule and hash key powers are only computed again when a packet's key differs
+     * from the previous packet's. On failure failed[0] is set to the index of the packet that failed.
+     */
+    static native int processPackets(boolean encryption, byte[][] keys, byte[][] nonces, byte[][] aads,
+                                     int[] macSizes, byte[][] in, int[] inOff, int[] inLen, byte[][] out,
+                                     int[] outOff, int[] written, int[] failed);
+
+    static native long makeKeyed(byte[] key);
+
+    static native void disposeKeyed(long ref);
+
+    static native int processPacketKeyed(long ref, boolean encryption, byte[] nonce, byte[] aad, int macSize,
+                                         byte[] in, int inOff, int inLen, byte[] out, int outOff, int outLen);
+
     @Override
     public String toString()
     {
@@ -140,4 +203,93 @@ public class AESNativeGCMPacketCipher
         return destroyed;
     }
 
+    private static class Keyed
+        implements KeyedAEADPacketCipher
+    {
+        private final KeyRefWrapper refWrapper;
+        private byte[] lastNonce;
+
+        Keyed(byte[] key)
+        {
+            this.refWrapper = new KeyRefWrapper(makeKeyed(key));
+        }
+
+        @Override
+        public int getOutputSize(boolean encryption, int macSize, int len)
+        {
+            return AESNativeGCMPacketCipher.getOutputSize(encryption, len, macSize);
+        }
+
+        @Override
+        public int processPacket(boolean encryption, byte[] nonce, byte[] aad, int macSize, byte[] input, int inOff,
+                                 int len, byte[] output, int outOff)
+            throws PacketCipherException
+        {
+            if (nonce == null || nonce.length < 12)
+            {
+                throw PacketCipherException.from(new IllegalArgumentException(ExceptionMessages.GCM_IV_TOO_SHORT));
+            }
+
+            // The key never changes, so a repeated nonce is always a reuse
+            if (encryption && Arrays.areEqual(nonce, lastNonce))
+            {
+                throw PacketCipherException.from(new IllegalArgumentException("cannot reuse nonce for GCM encryption"));
+            }
+
+            if (lastNonce == null || lastNonce.length != nonce.length)
+            {
+                lastNonce = new byte[nonce.length];
+            }
+            System.arraycopy(nonce, 0, lastNonce, 0, nonce.length);
+
+            int outLen = output != null ? output.length - outOff : 0;
+            try
+            {
+                return processPacketKeyed(refWrapper.getReference(), encryption, nonce, aad, macSize, input, inOff,
+                    len, output, outOff, outLen);
+            }
+            catch (Exception e)
+            {
+                throw PacketCipherException.from(e);
+            }
+        }
+    }
+
+    private static class KeyRefWrapper
+        extends NativeReference
+    {
+        KeyRefWrapper(long reference)
+        {
+            super(reference, "GCM-PS Key");
+        }
+
+        @Override
+        protected Runnable createAction()
+        {
+            return new Disposer(reference);
+        }
+    }
+
+    private static class Disposer
+        extends NativeDisposer
+    {
+        Disposer(long ref)
+        {
+            super(ref);
+        }
+
+        @Override
+        protected void dispose(long reference)
+        {
+            disposeKeyed(reference);
+        }
+    }
+
+    private static class Packet
+    {
+        byte[] key;
+        byte[] nonce;
+        byte[] aad;
+        int macSize;
+    }
 }
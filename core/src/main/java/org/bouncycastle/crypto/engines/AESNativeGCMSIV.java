@@ -1,12 +1,15 @@
 package org.bouncycastle.crypto.engines;
 
 import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ReadOnlyBufferException;
 
 import org.bouncycastle.crypto.BlockCipher;
 import org.bouncycastle.crypto.CipherParameters;
 import org.bouncycastle.crypto.DataLengthException;
 import org.bouncycastle.crypto.ExceptionMessages;
 import org.bouncycastle.crypto.InvalidCipherTextException;
+import org.bouncycastle.crypto.OutputLengthException;
 import org.bouncycastle.crypto.modes.GCMSIVModeCipher;
 import org.bouncycastle.crypto.params.AEADParameters;
 import org.bouncycastle.crypto.params.KeyParameter;
@@ -165,6 +168,54 @@ public class AESNativeGCMSIV
         return 0;
     }
 
+    @Override
+    public int processBytes(ByteBuffer in, ByteBuffer out)
+            throws DataLengthException
+    {
+        if (refWrapper == null)
+        {
+            throw new IllegalStateException(ExceptionMessages.GCM_SIV_UNINITIALIZED);
+        }
+        theEncData.write(in);
+        return 0;
+    }
+
+    @Override
+    public int doFinal(ByteBuffer out)
+            throws IllegalStateException, InvalidCipherTextException
+    {
+        if (refWrapper == null)
+        {
+            throw new IllegalStateException(ExceptionMessages.GCM_SIV_UNINITIALIZED);
+        }
+
+        if (out.isReadOnly())
+        {
+            throw new ReadOnlyBufferException();
+        }
+
+        // the native output size does not include the buffered data.
+        if (getOutputSize(refWrapper.getReference(), theEncData.size()) > out.remaining())
+        {
+            throw new OutputLengthException("output buffer too short");
+        }
+
+        int len;
+        if (out.isDirect())
+        {
+            len = doFinalDirect(refWrapper.getReference(), theEncData.getBuffer(), theEncData.size(), out, out.position(), out.remaining());
+            keptMac = getMac();
+            reset();
+        }
+        else
+        {
+            len = doFinal(out.array(), out.arrayOffset() + out.position());
+        }
+
+        out.position(out.position() + len);
+        return len;
+    }
+
     @Override
     public int doFinal(byte[] out, int outOff)
             throws IllegalStateException, InvalidCipherTextException
@@ -285,6 +336,8 @@ public class AESNativeGCMSIV
 
     static native int doFinal(long ref, byte[] input, int inputLen, byte[] out, int outOff);
 
+    static native int doFinalDirect(long ref, byte[] input, int inputLen, ByteBuffer out, int outOff, int outLen);
+
     static native int getUpdateOutputSize(long ref, int len, int streamLen);
 
     static native int getOutputSize(long ref, int len);
@@ -321,6 +374,22 @@ public class AESNativeGCMSIV
             return this.buf;
         }
 
+        /**
+         * Append the remaining content of a ByteBuffer.
+         *
+         * @param in the buffer to consume
+         */
+        void write(ByteBuffer in)
+        {
+            int len = in.remaining();
+            if (count + len > buf.length)
+            {
+                buf = Arrays.copyOf(buf, Math.max(buf.length << 1, count + len));
+            }
+            in.get(buf, count, len);
+            count += len;
+        }
+
         /**
          * Clear the buffer.
          */
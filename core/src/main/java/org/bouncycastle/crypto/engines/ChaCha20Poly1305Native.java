@@ -0,0 +1,298 @@
+package org.bouncycastle.crypto.engines;
+
+import org.bouncycastle.crypto.CipherParameters;
+import org.bouncycastle.crypto.DataLengthException;
+import org.bouncycastle.crypto.InvalidCipherTextException;
+import org.bouncycastle.crypto.modes.AEADCipher;
+import org.bouncycastle.crypto.params.AEADParameters;
+import org.bouncycastle.crypto.params.KeyParameter;
+import org.bouncycastle.crypto.params.ParametersWithIV;
+import org.bouncycastle.util.Arrays;
+import org.bouncycastle.util.dispose.NativeDisposer;
+import org.bouncycastle.util.dispose.NativeReference;
+
+/**
+ * ChaCha20-Poly1305 (RFC 8439) backed by the native library, it follows the behaviour of
+ * {@link org.bouncycastle.crypto.modes.ChaCha20Poly1305}.
+ * Use {@link org.bouncycastle.crypto.modes.ChaCha20Poly1305#newInstance()} rather than creating this directly.
+ */
+public class ChaCha20Poly1305Native
+    implements AEADCipher
+{
+    private static final int KEY_SIZE = 32;
+    private static final int NONCE_SIZE = 12;
+    private static final int MAC_SIZE = 16;
+
+    private ChaChaRefWrapper refWrapper;
+
+    private byte[] key;
+    private byte[] nonce;
+
+    public String getAlgorithmName()
+    {
+        return "ChaCha20Poly1305";
+    }
+
+    public void init(boolean forEncryption, CipherParameters params)
+        throws IllegalArgumentException
+    {
+        KeyParameter initKeyParam;
+        byte[] initNonce;
+        byte[] initialAAD;
+
+        if (params instanceof AEADParameters)
+        {
+            AEADParameters aeadParams = (AEADParameters)params;
+
+            int macSizeBits = aeadParams.getMacSize();
+            if ((MAC_SIZE * 8) != macSizeBits)
+            {
+                throw new IllegalArgumentException("Invalid value for MAC size: " + macSizeBits);
+            }
+
+            initKeyParam = aeadParams.getKey();
+            initNonce = aeadParams.getNonce();
+            initialAAD = aeadParams.getAssociatedText();
+        }
+        else if (params instanceof ParametersWithIV)
+        {
+            ParametersWithIV ivParams = (ParametersWithIV)params;
+
+            initKeyParam = (KeyParameter)ivParams.getParameters();
+            initNonce = ivParams.getIV();
+            initialAAD = null;
+        }
+        else
+        {
+            throw new IllegalArgumentException("invalid parameters passed to ChaCha20Poly1305");
+        }
+
+        // Validate key
+        if (null == initKeyParam)
+        {
+            if (null == key)
+            {
+                throw new IllegalArgumentException("Key must be specified in initial init");
+            }
+        }
+        else
+        {
+            if (KEY_SIZE != initKeyParam.getKeyLength())
+            {
+                throw new IllegalArgumentException("Key must be 256 bits");
+            }
+        }
+
+        // Validate nonce
+        if (null == initNonce || NONCE_SIZE != initNonce.length)
+        {
+            throw new IllegalArgumentException("Nonce must be 96 bits");
+        }
+
+        // Check for encryption with reused nonce
+        if (null != key && forEncryption && Arrays.areEqual(nonce, initNonce))
+        {
+            if (null == initKeyParam || Arrays.areEqual(key, initKeyParam.getKey()))
+            {
+                throw new IllegalArgumentException("cannot reuse nonce for ChaCha20Poly1305 encryption");
+            }
+        }
+
+        if (null != initKeyParam)
+        {
+            key = initKeyParam.getKey();
+        }
+
+        nonce = Arrays.clone(initNonce);
+
+        if (refWrapper == null)
+        {
+            refWrapper = new ChaChaRefWrapper(makeInstance());
+        }
+
+        initNative(refWrapper.getReference(), forEncryption, key, nonce, initialAAD);
+    }
+
+    public void processAADByte(byte in)
+    {
+        checkInitialised();
+
+        processAADBytes(refWrapper.getReference(), new byte[]{ in }, 0, 1);
+    }
+
+    public void processAADBytes(byte[] in, int inOff, int len)
+    {
+        if (null == in)
+        {
+            throw new NullPointerException("'in' cannot be null");
+        }
+        if (inOff < 0)
+        {
+            throw new IllegalArgumentException("'inOff' cannot be negative");
+        }
+        if (len < 0)
+        {
+            throw new IllegalArgumentException("'len' cannot be negative");
+        }
+        if (inOff > (in.length - len))
+        {
+            throw new DataLengthException("Input buffer too short");
+        }
+
+        checkInitialised();
+
+        processAADBytes(refWrapper.getReference(), in, inOff, len);
+    }
+
+    public int processByte(byte in, byte[] out, int outOff)
+        throws DataLengthException
+    {
+        checkInitialised();
+
+        return processBytes(refWrapper.getReference(), new byte[]{ in }, 0, 1, out, outOff);
+    }
+
+    public int processBytes(byte[] in, int inOff, int len, byte[] out, int outOff)
+        throws DataLengthException
+    {
+        if (null == in)
+        {
+            throw new NullPointerException("'in' cannot be null");
+        }
+        if (inOff < 0)
+        {
+            throw new IllegalArgumentException("'inOff' cannot be negative");
+        }
+        if (len < 0)
+        {
+            throw new IllegalArgumentException("'len' cannot be negative");
+        }
+        if (inOff > (in.length - len))
+        {
+            throw new DataLengthException("Input buffer too short");
+        }
+        if (outOff < 0)
+        {
+            throw new IllegalArgumentException("'outOff' cannot be negative");
+        }
+
+        checkInitialised();
+
+        return processBytes(refWrapper.getReference(), in, inOff, len, out, outOff);
+    }
+
+    public int doFinal(byte[] out, int outOff)
+        throws IllegalStateException, InvalidCipherTextException
+    {
+        if (null == out)
+        {
+            throw new NullPointerException("'out' cannot be null");
+        }
+        if (outOff < 0)
+        {
+            throw new IllegalArgumentException("'outOff' cannot be negative");
+        }
+
+        checkInitialised();
+
+        return doFinal(refWrapper.getReference(), out, outOff);
+    }
+
+    public byte[] getMac()
+    {
+        if (refWrapper == null)
+        {
+            return new byte[MAC_SIZE];
+        }
+        return getMac(refWrapper.getReference());
+    }
+
+    public int getUpdateOutputSize(int len)
+    {
+        checkInitialised();
+
+        return getUpdateOutputSize(refWrapper.getReference(), Math.max(0, len));
+    }
+
+    public int getOutputSize(int len)
+    {
+        checkInitialised();
+
+        return getOutputSize(refWrapper.getReference(), Math.max(0, len));
+    }
+
+    public void reset()
+    {
+        if (refWrapper == null)
+        {
+            // deal with reset being called before init.
+            return;
+        }
+
+        reset(refWrapper.getReference());
+    }
+
+    private void checkInitialised()
+    {
+        if (refWrapper == null)
+        {
+            throw new IllegalStateException("ChaCha20Poly1305 needs to be initialised");
+        }
+    }
+
+    static native long makeInstance();
+
+    static native void dispose(long nativeRef);
+
+    static native void initNative(long ref, boolean forEncryption, byte[] key, byte[] nonce, byte[] initialAAD);
+
+    private static native void reset(long ref);
+
+    static native void processAADBytes(long ref, byte[] in, int inOff, int len);
+
+    static native int processBytes(long ref, byte[] in, int inOff, int len, byte[] out, int outOff);
+
+    static native int doFinal(long ref, byte[] out, int outOff);
+
+    private static native byte[] getMac(long ref);
+
+    static native int getUpdateOutputSize(long ref, int len);
+
+    static native int getOutputSize(long ref, int len);
+
+    private static class ChaChaRefWrapper
+        extends NativeReference
+    {
+        public ChaChaRefWrapper(long reference)
+        {
+            super(reference, "ChaCha20Poly1305");
+        }
+
+        @Override
+        public Runnable createAction()
+        {
+            return new Disposer(reference);
+        }
+    }
+
+    private static class Disposer
+        extends NativeDisposer
+    {
+        Disposer(long ref)
+        {
+            super(ref);
+        }
+
+        @Override
+        protected void dispose(long reference)
+        {
+            ChaCha20Poly1305Native.dispose(reference);
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return "ChaCha20Poly1305[Native]";
+    }
+}
@@ -0,0 +1,112 @@
+package org.bouncycastle.crypto.engines;
+
+import org.bouncycastle.crypto.CipherParameters;
+import org.bouncycastle.crypto.PacketCipherException;
+import org.bouncycastle.crypto.modes.ChaCha20Poly1305ModePacketCipher;
+import org.bouncycastle.crypto.params.AEADParameters;
+import org.bouncycastle.crypto.params.KeyParameter;
+import org.bouncycastle.crypto.params.ParametersWithIV;
+import org.bouncycastle.util.Arrays;
+
+import javax.security.auth.DestroyFailedException;
+
+public class ChaCha20Poly1305NativePacketCipher
+        implements ChaCha20Poly1305ModePacketCipher
+{
+    private byte[] lastKey;
+    private byte[] lastNonce;
+    private boolean destroyed;
+
+    public ChaCha20Poly1305NativePacketCipher()
+    {
+    }
+
+    @Override
+    public int getOutputSize(boolean encryption, CipherParameters parameters, int len)
+    {
+        checkParameters(parameters);
+        return getOutputSize(encryption, len);
+    }
+
+    @Override
+    public int processPacket(boolean encryption, CipherParameters params, byte[] input, int inOff, int len,
+                             byte[] output, int outOff)
+            throws PacketCipherException
+    {
+        byte[] key;
+        byte[] nonce;
+        byte[] aad;
+        try
+        {
+            checkParameters(params);
+            if (params instanceof AEADParameters)
+            {
+                AEADParameters param = (AEADParameters) params;
+                key = param.getKey().getKey();
+                nonce = param.getNonce();
+                aad = param.getAssociatedText();
+            }
+            else
+            {
+                ParametersWithIV param = (ParametersWithIV) params;
+                key = ((KeyParameter) param.getParameters()).getKey();
+                nonce = param.getIV().clone();
+                aad = null;
+            }
+
+            // This only works if you use the same instance of packet cipher
+            // It matches the existing behavior of the normal ChaCha20Poly1305 implementation
+            if (encryption && Arrays.areEqual(key, lastKey) && Arrays.areEqual(nonce, lastNonce))
+            {
+                throw new IllegalArgumentException("cannot reuse nonce for ChaCha20Poly1305 encryption");
+            }
+
+            lastKey = Arrays.clone(key);
+            lastNonce = Arrays.clone(nonce);
+        }
+        catch (Exception e)
+        {
+            throw PacketCipherException.from(e);
+        }
+
+        int outLen = output != null ? output.length - outOff : 0;
+        int result;
+        try
+        {
+            result = processPacket(encryption, key, nonce, aad, input, inOff, len, output, outOff, outLen);
+        }
+        catch (Exception e)
+        {
+            throw PacketCipherException.from(e);
+        }
+        return result;
+    }
+
+    static native int getOutputSize(boolean encryption, int len);
+
+    static native int processPacket(boolean encryption, byte[] key, byte[] nonce, byte[] aad, byte[] in, int inOff,
+                                    int inLen, byte[] out, int outOff, int outLen);
+
+    @Override
+    public String toString()
+    {
+        return "ChaCha20Poly1305-PS[Native]";
+    }
+
+    @Override
+    public void destroy()
+            throws DestroyFailedException
+    {
+        Arrays.clear(lastKey);
+        Arrays.clear(lastNonce);
+        lastKey = null;
+        lastNonce = null;
+        destroyed = true;
+    }
+
+    @Override
+    public boolean isDestroyed()
+    {
+        return destroyed;
+    }
+}
@@ -35,7 +35,7 @@ public class AEAD
             cipher = new GCMBlockCipher(new AESEngine());
             break;
         case HPKE.aead_CHACHA20_POLY1305:
-            cipher = new ChaCha20Poly1305();
+            cipher = ChaCha20Poly1305.newInstance();
             break;
         case HPKE.aead_EXPORT_ONLY:
             break;
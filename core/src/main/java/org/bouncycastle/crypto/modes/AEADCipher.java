@@ -1,5 +1,7 @@
 package org.bouncycastle.crypto.modes;
 
+import java.nio.ByteBuffer;
+
 import org.bouncycastle.crypto.CipherParameters;
 import org.bouncycastle.crypto.DataLengthException;
 import org.bouncycastle.crypto.InvalidCipherTextException;
@@ -81,6 +83,24 @@ public interface AEADCipher
     public int processBytes(byte[] in, int inOff, int len, byte[] out, int outOff)
         throws DataLengthException;
 
+    /**
+     * process the remaining bytes in the input buffer putting the result into the output buffer.
+     * <p>
+     * The position of in is advanced to its limit and the position of out by the number of bytes written.
+     * Implementations backed by native code will process direct buffers without copying them.
+     * </p>
+     *
+     * @param in the input buffer.
+     * @param out the output buffer the processed bytes go into.
+     * @return the number of bytes written to out.
+     * @exception DataLengthException if the output buffer is too small.
+     */
+    default int processBytes(ByteBuffer in, ByteBuffer out)
+        throws DataLengthException
+    {
+        return ByteBufferCipherUtil.processBytes(this, in, out);
+    }
+
     /**
      * Finish the operation either appending or verifying the MAC at the end of the data.
      *
@@ -93,6 +113,21 @@ public interface AEADCipher
     public int doFinal(byte[] out, int outOff)
         throws IllegalStateException, InvalidCipherTextException;
 
+    /**
+     * Finish the operation either appending or verifying the MAC at the end of the data, writing
+     * any resulting output at the current position of out.
+     *
+     * @param out the buffer for any resulting output data.
+     * @return number of bytes written into out.
+     * @throws IllegalStateException if the cipher is in an inappropriate state.
+     * @throws org.bouncycastle.crypto.InvalidCipherTextException if the MAC fails to match.
+     */
+    default int doFinal(ByteBuffer out)
+        throws IllegalStateException, InvalidCipherTextException
+    {
+        return ByteBufferCipherUtil.doFinal(this, out);
+    }
+
     /**
      * Return the value of the MAC associated with the last stream processed.
      *
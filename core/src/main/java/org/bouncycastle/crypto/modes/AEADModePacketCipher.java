@@ -0,0 +1,25 @@
+package org.bouncycastle.crypto.modes;
+
+import org.bouncycastle.crypto.PacketCipher;
+import org.bouncycastle.crypto.params.KeyParameter;
+
+/**
+ * Base interface for AEAD packet ciphers, which can also be bound to a single key.
+ */
+public interface AEADModePacketCipher
+    extends PacketCipher
+{
+    /**
+     * Return a cipher for packets all under the one key, with the key set up once rather than for every packet.
+     * <p>
+     * The default implementation passes the key to this packet cipher with each packet.
+     * </p>
+     *
+     * @param key the key for every packet.
+     * @return a packet cipher bound to key.
+     */
+    default KeyedAEADPacketCipher withKey(KeyParameter key)
+    {
+        return new AEADPacketCipherWithKey(this, key);
+    }
+}
@@ -0,0 +1,55 @@
+package org.bouncycastle.crypto.modes;
+
+import org.bouncycastle.crypto.ExceptionMessages;
+import org.bouncycastle.crypto.OutputLengthException;
+import org.bouncycastle.crypto.PacketCipher;
+import org.bouncycastle.crypto.PacketCipherException;
+import org.bouncycastle.crypto.params.AEADParameters;
+import org.bouncycastle.crypto.params.KeyParameter;
+
+/**
+ * Default {@link KeyedAEADPacketCipher}, passing the key with each packet to an ordinary packet cipher.
+ */
+final class AEADPacketCipherWithKey
+    implements KeyedAEADPacketCipher
+{
+    private final PacketCipher cipher;
+    private final KeyParameter key;
+
+    AEADPacketCipherWithKey(PacketCipher cipher, KeyParameter key)
+    {
+        if (key == null)
+        {
+            throw new NullPointerException("'key' cannot be null");
+        }
+
+        this.cipher = cipher;
+        // Take a copy, the caller may reuse the array for a different key
+        this.key = new KeyParameter(key.getKey());
+    }
+
+    public int getOutputSize(boolean encryption, int macSize, int len)
+    {
+        if (len < 0)
+        {
+            throw new IllegalArgumentException(ExceptionMessages.LEN_NEGATIVE);
+        }
+        if (encryption)
+        {
+            return PacketCipherChecks.addCheckInputOverflow(len, macSize);
+        }
+        else if (len < macSize)
+        {
+            throw new OutputLengthException(ExceptionMessages.OUTPUT_LENGTH);
+        }
+        return len - macSize;
+    }
+
+    public int processPacket(boolean encryption, byte[] nonce, byte[] aad, int macSize, byte[] input, int inOff,
+                             int len, byte[] output, int outOff)
+        throws PacketCipherException
+    {
+        return cipher.processPacket(encryption, new AEADParameters(key, macSize * 8, nonce, aad), input, inOff, len,
+            output, outOff);
+    }
+}
@@ -2,14 +2,13 @@ package org.bouncycastle.crypto.modes;
 
 import org.bouncycastle.crypto.CipherParameters;
 import org.bouncycastle.crypto.ExceptionMessages;
-import org.bouncycastle.crypto.PacketCipher;
 import org.bouncycastle.crypto.params.AEADParameters;
 import org.bouncycastle.crypto.params.KeyParameter;
 import org.bouncycastle.crypto.params.ParametersWithIV;
 
 
 public interface AESCCMModePacketCipher
-    extends PacketCipher
+    extends AEADModePacketCipher
 {
     default int getMacSize(boolean encryption, CipherParameters params)
     {
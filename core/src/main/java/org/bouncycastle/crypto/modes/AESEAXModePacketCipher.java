@@ -0,0 +1,54 @@
+package org.bouncycastle.crypto.modes;
+
+import org.bouncycastle.crypto.CipherParameters;
+import org.bouncycastle.crypto.ExceptionMessages;
+import org.bouncycastle.crypto.PacketCipher;
+import org.bouncycastle.crypto.params.AEADParameters;
+import org.bouncycastle.crypto.params.KeyParameter;
+import org.bouncycastle.crypto.params.ParametersWithIV;
+
+public interface AESEAXModePacketCipher
+    extends PacketCipher
+{
+    /**
+     * Validate the parameters and return the tag length in bytes.
+     */
+    default int getMacSize(CipherParameters params)
+    {
+        int macSize;
+        byte[] nonce;
+        KeyParameter keyParam;
+        if (params instanceof AEADParameters)
+        {
+            AEADParameters param = (AEADParameters)params;
+            macSize = param.getMacSize() / 8;
+            if (macSize < 0 || macSize > 16)
+            {
+                throw new IllegalArgumentException(ExceptionMessages.EAX_MAC_SIZE + param.getMacSize());
+            }
+            keyParam = param.getKey();
+            nonce = param.getNonce();
+        }
+        else if (params instanceof ParametersWithIV)
+        {
+            ParametersWithIV param = (ParametersWithIV)params;
+            macSize = 8;
+            keyParam = (KeyParameter)param.getParameters();
+            nonce = param.getIV();
+        }
+        else
+        {
+            throw new IllegalArgumentException(ExceptionMessages.EAX_INVALID_PARAMETER);
+        }
+        if (nonce == null)
+        {
+            throw new IllegalArgumentException(ExceptionMessages.NONCE_NULL);
+        }
+        if (keyParam == null)
+        {
+            throw new IllegalArgumentException(ExceptionMessages.AES_KEY_LENGTH);
+        }
+        PacketCipherChecks.checkKeyLenIllegalArgumentException(keyParam.getKeyLength());
+        return macSize;
+    }
+}
@@ -2,7 +2,7 @@ package org.bouncycastle.crypto.modes;
 
 import org.bouncycastle.crypto.CipherParameters;
 import org.bouncycastle.crypto.ExceptionMessages;
-import org.bouncycastle.crypto.PacketCipher;
+import org.bouncycastle.crypto.PacketCipherException;
 import org.bouncycastle.crypto.params.AEADParameters;
 import org.bouncycastle.crypto.params.KeyParameter;
 import org.bouncycastle.crypto.params.ParametersWithIV;
@@ -10,7 +10,7 @@ import org.bouncycastle.crypto.params.ParametersWithIV;
 import javax.security.auth.Destroyable;
 
 public interface AESGCMModePacketCipher
-    extends PacketCipher, Destroyable
+    extends AEADModePacketCipher, Destroyable
 {
     default int checkParameters(CipherParameters params)
     {
@@ -58,4 +58,51 @@ public interface AESGCMModePacketCipher
         }
         return macSize;
     }
+
+    /**
+     * Process a batch of independent packets, each with its own parameters, input and output.
+     * <p>
+     * Packets are processed in order. If one fails its exception is thrown immediately; the packets before it
+     * have been fully processed and those after it are left untouched.
+     * </p>
+     * <p>
+     * A batch saves the per call overhead of {@link #processPacket}: native implementations make one transition
+     * into native code and only expand the key again when it changes from one packet to the next. Each packet is
+     * still processed on its own, blocks from different packets are not interleaved.
+     * </p>
+     *
+     * @param encryption encryption if true
+     * @param parameters the parameters for each packet
+     * @param input      the input array for each packet
+     * @param inOff      the offset in each input array to start reading from
+     * @param len        the number of bytes of each input to process
+     * @param output     the output array for each packet
+     * @param outOff     the offset in each output array to start writing to
+     * @param written    receives the number of bytes written for each packet
+     * @return the total number of bytes written.
+     * @throws PacketCipherException if a packet encounters an error, {@link PacketCipherException#getPacketIndex()}
+     * gives the index of the failed packet, or -1 if the failure was not down to a single packet.
+     */
+    default int processPackets(boolean encryption, CipherParameters[] parameters, byte[][] input, int[] inOff,
+                               int[] len, byte[][] output, int[] outOff, int[] written)
+        throws PacketCipherException
+    {
+        int count = PacketCipherChecks.checkPackets(parameters, input, inOff, len, output, outOff, written);
+
+        int total = 0;
+        for (int i = 0; i != count; i++)
+        {
+            try
+            {
+                written[i] = processPacket(encryption, parameters[i], input[i], inOff[i], len[i], output[i],
+                    outOff[i]);
+            }
+            catch (PacketCipherException e)
+            {
+                throw PacketCipherException.from(e, i);
+            }
+            total += written[i];
+        }
+        return total;
+    }
 }
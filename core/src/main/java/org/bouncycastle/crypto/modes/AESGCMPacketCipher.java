@@ -377,6 +377,11 @@ public class AESGCMPacketCipher
 
     private static void gHASHPartial(byte[] Y, byte[] b, int off, int len, long[][] T)
     {
+        // An empty final block (e.g. no plaintext) contributes nothing to the hash
+        if (len == 0)
+        {
+            return;
+        }
         GCMUtil.xor(Y, b, off, len);
         multiplyH(Y, T);
     }
@@ -0,0 +1,54 @@
+package org.bouncycastle.crypto.modes;
+
+import org.bouncycastle.crypto.CipherParameters;
+import org.bouncycastle.crypto.ExceptionMessages;
+import org.bouncycastle.crypto.PacketCipher;
+import org.bouncycastle.crypto.params.AEADParameters;
+import org.bouncycastle.crypto.params.KeyParameter;
+import org.bouncycastle.crypto.params.ParametersWithIV;
+
+public interface AESOCBModePacketCipher
+    extends PacketCipher
+{
+    /**
+     * Validate the parameters and return the tag length in bytes.
+     */
+    default int getMacSize(CipherParameters params)
+    {
+        int macSizeBits;
+        byte[] nonce;
+        KeyParameter keyParam;
+        if (params instanceof AEADParameters)
+        {
+            AEADParameters param = (AEADParameters)params;
+            macSizeBits = param.getMacSize();
+            keyParam = param.getKey();
+            nonce = param.getNonce();
+        }
+        else if (params instanceof ParametersWithIV)
+        {
+            ParametersWithIV param = (ParametersWithIV)params;
+            macSizeBits = 128;
+            keyParam = (KeyParameter)param.getParameters();
+            nonce = param.getIV();
+        }
+        else
+        {
+            throw new IllegalArgumentException(ExceptionMessages.OCB_INVALID_PARAMETER);
+        }
+        if (macSizeBits < 64 || macSizeBits > 128 || macSizeBits % 8 != 0)
+        {
+            throw new IllegalArgumentException(ExceptionMessages.OCB_MAC_SIZE + macSizeBits);
+        }
+        if (nonce != null && nonce.length > 15)
+        {
+            throw new IllegalArgumentException(ExceptionMessages.OCB_IV_TOO_LONG);
+        }
+        if (keyParam == null)
+        {
+            throw new IllegalArgumentException(ExceptionMessages.AES_KEY_LENGTH);
+        }
+        PacketCipherChecks.checkKeyLenIllegalArgumentException(keyParam.getKeyLength());
+        return macSizeBits / 8;
+    }
+}
@@ -0,0 +1,85 @@
+package org.bouncycastle.crypto.modes;
+
+import org.bouncycastle.crypto.CipherParameters;
+import org.bouncycastle.crypto.CryptoServicesRegistrar;
+import org.bouncycastle.crypto.ExceptionMessages;
+import org.bouncycastle.crypto.NativeServices;
+import org.bouncycastle.crypto.OutputLengthException;
+import org.bouncycastle.crypto.PacketCipherException;
+import org.bouncycastle.crypto.engines.AESEngine;
+import org.bouncycastle.crypto.engines.AESNativeOCBPacketCipher;
+import org.bouncycastle.util.Arrays;
+
+public class AESOCBPacketCipher
+    implements AESOCBModePacketCipher
+{
+    public static AESOCBModePacketCipher newInstance()
+    {
+        if (CryptoServicesRegistrar.hasEnabledService(NativeServices.AES_OCB_PC))
+        {
+            return new AESNativeOCBPacketCipher();
+        }
+        return new AESOCBPacketCipher();
+    }
+
+    public AESOCBPacketCipher()
+    {
+    }
+
+    @Override
+    public int getOutputSize(boolean encryption, CipherParameters params, int len)
+    {
+        if (len < 0)
+        {
+            throw new IllegalArgumentException(ExceptionMessages.LEN_NEGATIVE);
+        }
+        int macSize = getMacSize(params);
+        if (encryption)
+        {
+            return PacketCipherChecks.addCheckInputOverflow(len, macSize);
+        }
+        else if (len < macSize)
+        {
+            throw new OutputLengthException(ExceptionMessages.OUTPUT_LENGTH);
+        }
+        return len - macSize;
+    }
+
+    @Override
+    public int processPacket(boolean forEncryption, CipherParameters params, byte[] in, int inOff, int inLen,
+                             byte[] output, int outOff)
+        throws PacketCipherException
+    {
+        PacketCipherChecks.checkBoundsInput(in, inOff, inLen, output, outOff);
+        int macSize;
+        try
+        {
+            macSize = getMacSize(params);
+            PacketCipherChecks.checkInputAndOutputAEAD(forEncryption, in, inOff, inLen, output, outOff, macSize);
+        }
+        catch (IllegalArgumentException e)
+        {
+            throw PacketCipherException.from(e);
+        }
+
+        OCBBlockCipher cipher = new OCBBlockCipher(AESEngine.newInstance(), AESEngine.newInstance());
+        int outputLen = forEncryption ? inLen + macSize : inLen - macSize;
+        try
+        {
+            cipher.init(forEncryption, params);
+            int len = cipher.processBytes(in, inOff, inLen, output, outOff);
+            return len + cipher.doFinal(output, outOff + len);
+        }
+        catch (Exception ex)
+        {
+            Arrays.clear(output, outOff, Math.min(outputLen, output.length - outOff));
+            throw PacketCipherException.from(ex);
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return "OCB-PS[Java](AES[Java])";
+    }
+}
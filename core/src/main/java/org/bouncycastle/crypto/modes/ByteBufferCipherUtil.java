@@ -0,0 +1,144 @@
+package org.bouncycastle.crypto.modes;
+
+import java.nio.ByteBuffer;
+import java.nio.ReadOnlyBufferException;
+
+import org.bouncycastle.crypto.DataLengthException;
+import org.bouncycastle.crypto.InvalidCipherTextException;
+import org.bouncycastle.crypto.MultiBlockCipher;
+import org.bouncycastle.crypto.OutputLengthException;
+import org.bouncycastle.crypto.StreamCipher;
+
+/**
+ * Default ByteBuffer handling for the mode cipher interfaces.
+ * <p>
+ * Buffers with an accessible backing array are passed straight to the byte[] methods of the cipher,
+ * anything else (direct or read-only buffers) is staged through a temporary array. Implementations
+ * able to work on direct buffers natively override the interface methods and only fall back to these.
+ * </p>
+ */
+final class ByteBufferCipherUtil
+{
+    private ByteBufferCipherUtil()
+    {
+    }
+
+    static void checkOutput(ByteBuffer out, int required)
+    {
+        if (out.isReadOnly())
+        {
+            throw new ReadOnlyBufferException();
+        }
+
+        if (out.remaining() < required)
+        {
+            throw new OutputLengthException("output buffer too short");
+        }
+    }
+
+    static int processBytes(StreamCipher cipher, ByteBuffer in, ByteBuffer out)
+        throws DataLengthException
+    {
+        int len = in.remaining();
+        checkOutput(out, len);
+
+        int written;
+        if (in.hasArray() && out.hasArray())
+        {
+            written = cipher.processBytes(in.array(), in.arrayOffset() + in.position(), len,
+                out.array(), out.arrayOffset() + out.position());
+            in.position(in.limit());
+            out.position(out.position() + written);
+        }
+        else
+        {
+            byte[] inBuf = new byte[len];
+            byte[] outBuf = new byte[len];
+            in.get(inBuf);
+            written = cipher.processBytes(inBuf, 0, len, outBuf, 0);
+            out.put(outBuf, 0, written);
+        }
+
+        return written;
+    }
+
+    static int processBlocks(MultiBlockCipher cipher, ByteBuffer in, ByteBuffer out)
+        throws DataLengthException
+    {
+        int blockSize = cipher.getBlockSize();
+        int len = in.remaining();
+        if (len % blockSize != 0)
+        {
+            throw new DataLengthException("input length not multiple of block size");
+        }
+        checkOutput(out, len);
+
+        int written;
+        if (in.hasArray() && out.hasArray())
+        {
+            written = cipher.processBlocks(in.array(), in.arrayOffset() + in.position(), len / blockSize,
+                out.array(), out.arrayOffset() + out.position());
+            in.position(in.limit());
+            out.position(out.position() + written);
+        }
+        else
+        {
+            byte[] inBuf = new byte[len];
+            byte[] outBuf = new byte[len];
+            in.get(inBuf);
+            written = cipher.processBlocks(inBuf, 0, len / blockSize, outBuf, 0);
+            out.put(outBuf, 0, written);
+        }
+
+        return written;
+    }
+
+    static int processBytes(AEADCipher cipher, ByteBuffer in, ByteBuffer out)
+        throws DataLengthException
+    {
+        int len = in.remaining();
+        int outLen = cipher.getUpdateOutputSize(len);
+        checkOutput(out, outLen);
+
+        int written;
+        if (in.hasArray() && out.hasArray())
+        {
+            written = cipher.processBytes(in.array(), in.arrayOffset() + in.position(), len,
+                out.array(), out.arrayOffset() + out.position());
+            in.position(in.limit());
+            out.position(out.position() + written);
+        }
+        else
+        {
+            byte[] inBuf = new byte[len];
+            byte[] outBuf = new byte[outLen];
+            in.get(inBuf);
+            written = cipher.processBytes(inBuf, 0, len, outBuf, 0);
+            out.put(outBuf, 0, written);
+        }
+
+        return written;
+    }
+
+    static int doFinal(AEADCipher cipher, ByteBuffer out)
+        throws IllegalStateException, InvalidCipherTextException
+    {
+        int outLen = cipher.getOutputSize(0);
+        checkOutput(out, outLen);
+
+        int written;
+        if (out.hasArray())
+        {
+            written = cipher.doFinal(out.array(), out.arrayOffset() + out.position());
+            out.position(out.position() + written);
+        }
+        else
+        {
+            byte[] outBuf = new byte[outLen];
+            written = cipher.doFinal(outBuf, 0);
+            out.put(outBuf, 0, written);
+        }
+
+        return written;
+    }
+}
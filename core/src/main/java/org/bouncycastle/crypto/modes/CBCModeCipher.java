@@ -1,6 +1,9 @@
 package org.bouncycastle.crypto.modes;
 
+import java.nio.ByteBuffer;
+
 import org.bouncycastle.crypto.BlockCipher;
+import org.bouncycastle.crypto.DataLengthException;
 import org.bouncycastle.crypto.MultiBlockCipher;
 
 public interface CBCModeCipher
@@ -12,4 +15,22 @@ public interface CBCModeCipher
      * @return the underlying block cipher that we are wrapping.
      */
     BlockCipher getUnderlyingCipher();
+
+    /**
+     * process the remaining blocks in the input buffer putting the result into the output buffer.
+     * <p>
+     * The position of in is advanced to its limit and the position of out by the number of bytes written.
+     * Implementations backed by native code will process direct buffers without copying them.
+     * </p>
+     *
+     * @param in the input buffer, the bytes remaining must be a multiple of the block size.
+     * @param out the output buffer the processed blocks go into.
+     * @return the number of bytes written to out.
+     * @throws DataLengthException if the input is not block aligned or the output buffer is too small.
+     */
+    default int processBlocks(ByteBuffer in, ByteBuffer out)
+        throws DataLengthException
+    {
+        return ByteBufferCipherUtil.processBlocks(this, in, out);
+    }
 }
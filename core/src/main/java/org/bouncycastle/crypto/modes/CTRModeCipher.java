@@ -1,9 +1,11 @@
 package org.bouncycastle.crypto.modes;
 
+import java.nio.ByteBuffer;
+
 import org.bouncycastle.crypto.BlockCipher;
+import org.bouncycastle.crypto.DataLengthException;
 import org.bouncycastle.crypto.MultiBlockCipher;
 import org.bouncycastle.crypto.SkippingStreamCipher;
-import org.bouncycastle.crypto.StreamCipher;
 
 public interface CTRModeCipher
     extends MultiBlockCipher, SkippingStreamCipher
@@ -14,4 +16,22 @@ public interface CTRModeCipher
      * @return the underlying block cipher that we are wrapping.
      */
     BlockCipher getUnderlyingCipher();
+
+    /**
+     * process the remaining bytes in the input buffer putting the result into the output buffer.
+     * <p>
+     * The position of in is advanced to its limit and the position of out by the number of bytes written.
+     * Implementations backed by native code will process direct buffers without copying them.
+     * </p>
+     *
+     * @param in the input buffer.
+     * @param out the output buffer the processed bytes go into.
+     * @return the number of bytes written to out.
+     * @throws DataLengthException if the output buffer is too small.
+     */
+    default int processBytes(ByteBuffer in, ByteBuffer out)
+        throws DataLengthException
+    {
+        return ByteBufferCipherUtil.processBytes(this, in, out);
+    }
 }
@@ -1,10 +1,13 @@
 package org.bouncycastle.crypto.modes;
 
 import org.bouncycastle.crypto.CipherParameters;
+import org.bouncycastle.crypto.CryptoServicesRegistrar;
 import org.bouncycastle.crypto.DataLengthException;
 import org.bouncycastle.crypto.InvalidCipherTextException;
 import org.bouncycastle.crypto.Mac;
+import org.bouncycastle.crypto.NativeServices;
 import org.bouncycastle.crypto.OutputLengthException;
+import org.bouncycastle.crypto.engines.ChaCha20Poly1305Native;
 import org.bouncycastle.crypto.engines.ChaCha7539Engine;
 import org.bouncycastle.crypto.macs.Poly1305;
 import org.bouncycastle.crypto.params.AEADParameters;
@@ -53,6 +56,21 @@ public class ChaCha20Poly1305
     private int state = State.UNINITIALIZED;
     private int bufPos;
 
+    /**
+     * Return a new ChaCha20-Poly1305 cipher, using the native implementation if it is available.
+     *
+     * @return a ChaCha20-Poly1305 AEAD cipher.
+     */
+    public static AEADCipher newInstance()
+    {
+        if (CryptoServicesRegistrar.hasEnabledService(NativeServices.CHACHA20_POLY1305))
+        {
+            return new ChaCha20Poly1305Native();
+        }
+
+        return new ChaCha20Poly1305();
+    }
+
     public ChaCha20Poly1305()
     {
         this(new Poly1305());
@@ -611,4 +629,9 @@ public class ChaCha20Poly1305
             processAADBytes(initialAAD, 0, initialAAD.length);
         }
     }
+
+    public String toString()
+    {
+        return "ChaCha20Poly1305[Java]";
+    }
 }
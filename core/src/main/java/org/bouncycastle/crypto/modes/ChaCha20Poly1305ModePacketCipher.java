@@ -0,0 +1,104 @@
+package org.bouncycastle.crypto.modes;
+
+import org.bouncycastle.crypto.CipherParameters;
+import org.bouncycastle.crypto.PacketCipher;
+import org.bouncycastle.crypto.PacketCipherException;
+import org.bouncycastle.crypto.params.AEADParameters;
+import org.bouncycastle.crypto.params.KeyParameter;
+import org.bouncycastle.crypto.params.ParametersWithIV;
+
+import javax.security.auth.Destroyable;
+
+public interface ChaCha20Poly1305ModePacketCipher
+    extends PacketCipher, Destroyable
+{
+    /**
+     * The key length.
+     */
+    int KEY_SIZE = 32;
+    /**
+     * The nonce length.
+     */
+    int NONCE_SIZE = 12;
+    /**
+     * The tag length.
+     */
+    int MAC_SIZE = 16;
+
+    default void checkParameters(CipherParameters params)
+    {
+        byte[] newNonce;
+        KeyParameter keyParam;
+        if (params instanceof AEADParameters)
+        {
+            AEADParameters param = (AEADParameters)params;
+            int macSizeBits = param.getMacSize();
+            if ((MAC_SIZE * 8) != macSizeBits)
+            {
+                throw new IllegalArgumentException("Invalid value for MAC size: " + macSizeBits);
+            }
+            newNonce = param.getNonce();
+            keyParam = param.getKey();
+        }
+        else if (params instanceof ParametersWithIV)
+        {
+            ParametersWithIV param = (ParametersWithIV)params;
+            newNonce = param.getIV();
+            keyParam = (KeyParameter)param.getParameters();
+        }
+        else
+        {
+            throw new IllegalArgumentException("invalid parameters passed to ChaCha20Poly1305");
+        }
+        if (keyParam == null || KEY_SIZE != keyParam.getKeyLength())
+        {
+            throw new IllegalArgumentException("Key must be 256 bits");
+        }
+        if (newNonce == null || NONCE_SIZE != newNonce.length)
+        {
+            throw new IllegalArgumentException("Nonce must be 96 bits");
+        }
+    }
+
+    /**
+     * Process a batch of independent packets, each with its own parameters, input and output.
+     * <p>
+     * Packets are processed in order. If one fails its exception is thrown immediately; the packets before it
+     * have been fully processed and those after it are left untouched.
+     * </p>
+     *
+     * @param encryption encryption if true
+     * @param parameters the parameters for each packet
+     * @param input      the input array for each packet
+     * @param inOff      the offset in each input array to start reading from
+     * @param len        the number of bytes of each input to process
+     * @param output     the output array for each packet
+     * @param outOff     the offset in each output array to start writing to
+     * @param written    receives the number of bytes written for each packet
+     * @return the total number of bytes written.
+     * @throws PacketCipherException if a packet encounters an error, {@link PacketCipherException#getPacketIndex()}
+     * gives the index of the failed packet.
+     */
+    default int processPackets(boolean encryption, CipherParameters[] parameters, byte[][] input, int[] inOff,
+                               int[] len, byte[][] output, int[] outOff, int[] written)
+        throws PacketCipherException
+    {
+        int count = PacketCipherChecks.checkPackets(parameters, input, inOff, len, output, outOff, written);
+
+        int total = 0;
+        for (int i = 0; i != count; i++)
+        {
+            try
+            {
+                written[i] = processPacket(encryption, parameters[i], input[i], inOff[i], len[i], output[i],
+                    outOff[i]);
+            }
+            catch (PacketCipherException e)
+            {
+                throw PacketCipherException.from(e, i);
+            }
+            total += written[i];
+        }
+        return total;
+    }
+}
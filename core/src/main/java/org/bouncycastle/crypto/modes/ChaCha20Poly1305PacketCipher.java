@@ -0,0 +1,207 @@
+package org.bouncycastle.crypto.modes;
+
+import org.bouncycastle.crypto.CipherParameters;
+import org.bouncycastle.crypto.CryptoServicesRegistrar;
+import org.bouncycastle.crypto.ExceptionMessages;
+import org.bouncycastle.crypto.InvalidCipherTextException;
+import org.bouncycastle.crypto.NativeServices;
+import org.bouncycastle.crypto.OutputLengthException;
+import org.bouncycastle.crypto.PacketCipherException;
+import org.bouncycastle.crypto.engines.ChaCha20Poly1305NativePacketCipher;
+import org.bouncycastle.crypto.engines.ChaCha7539Engine;
+import org.bouncycastle.crypto.macs.Poly1305;
+import org.bouncycastle.crypto.params.AEADParameters;
+import org.bouncycastle.crypto.params.KeyParameter;
+import org.bouncycastle.crypto.params.ParametersWithIV;
+import org.bouncycastle.util.Arrays;
+import org.bouncycastle.util.Pack;
+
+import javax.security.auth.DestroyFailedException;
+
+public class ChaCha20Poly1305PacketCipher
+    implements ChaCha20Poly1305ModePacketCipher
+{
+    private static final byte[] ZEROES = new byte[MAC_SIZE - 1];
+
+    private byte[] lastKey;
+    private byte[] lastNonce;
+    private boolean destroyed;
+
+    public static ChaCha20Poly1305ModePacketCipher newInstance()
+    {
+        if (CryptoServicesRegistrar.hasEnabledService(NativeServices.CHACHA20_POLY1305_PC))
+        {
+            return new ChaCha20Poly1305NativePacketCipher();
+        }
+        return new ChaCha20Poly1305PacketCipher();
+    }
+
+    public ChaCha20Poly1305PacketCipher()
+    {
+    }
+
+    @Override
+    public int getOutputSize(boolean encryption, CipherParameters parameters, int len)
+    {
+        if (len < 0)
+        {
+            throw new IllegalArgumentException(ExceptionMessages.LEN_NEGATIVE);
+        }
+        checkParameters(parameters);
+        if (encryption)
+        {
+            return PacketCipherChecks.addCheckInputOverflow(len, MAC_SIZE);
+        }
+        else if (len < MAC_SIZE)
+        {
+            throw new OutputLengthException(ExceptionMessages.OUTPUT_LENGTH);
+        }
+        return len - MAC_SIZE;
+    }
+
+    @Override
+    public int processPacket(boolean encryption, CipherParameters parameters, byte[] input, int inOff, int len,
+                             byte[] output, int outOff)
+        throws PacketCipherException
+    {
+        PacketCipherChecks.checkBoundsInput(input, inOff, len, output, outOff);
+
+        byte[] key;
+        byte[] nonce;
+        byte[] aad;
+        try
+        {
+            checkParameters(parameters);
+            if (parameters instanceof AEADParameters)
+            {
+                AEADParameters param = (AEADParameters)parameters;
+                key = param.getKey().getKey();
+                nonce = param.getNonce();
+                aad = param.getAssociatedText();
+            }
+            else
+            {
+                ParametersWithIV param = (ParametersWithIV)parameters;
+                key = ((KeyParameter)param.getParameters()).getKey();
+                nonce = Arrays.clone(param.getIV());
+                aad = null;
+            }
+        }
+        catch (Exception e)
+        {
+            throw PacketCipherException.from(e);
+        }
+
+        // This only works if you use the same instance of packet cipher
+        // It matches the existing behavior of the normal ChaCha20Poly1305 implementation
+        if (encryption && Arrays.areEqual(key, lastKey) && Arrays.areEqual(nonce, lastNonce))
+        {
+            throw PacketCipherException.from(
+                new IllegalArgumentException("cannot reuse nonce for ChaCha20Poly1305 encryption"));
+        }
+
+        lastKey = Arrays.clone(key);
+        lastNonce = Arrays.clone(nonce);
+
+        if (!encryption && len < MAC_SIZE)
+        {
+            throw PacketCipherException.from(new InvalidCipherTextException("data too short"));
+        }
+
+        final int dataLen = encryption ? len : len - MAC_SIZE;
+        PacketCipherChecks.checkOutputAgainstRequiredLength(output, outOff, encryption ? len + MAC_SIZE : dataLen);
+
+        ChaCha7539Engine chacha20 = new ChaCha7539Engine();
+        Poly1305 poly1305 = new Poly1305();
+        byte[] firstBlock = new byte[64];
+        byte[] mac = new byte[MAC_SIZE];
+
+        try
+        {
+            chacha20.init(true, new ParametersWithIV(new KeyParameter(key), nonce));
+
+            // The first key stream block provides the Poly1305 key.
+            chacha20.processBytes(firstBlock, 0, 64, firstBlock, 0);
+            poly1305.init(new KeyParameter(firstBlock, 0, 32));
+
+            int aadLen = 0;
+            if (aad != null)
+            {
+                aadLen = aad.length;
+                poly1305.update(aad, 0, aadLen);
+                padMAC(poly1305, aadLen);
+            }
+
+            if (encryption)
+            {
+                chacha20.processBytes(input, inOff, dataLen, output, outOff);
+                poly1305.update(output, outOff, dataLen);
+                finishMAC(poly1305, aadLen, dataLen, mac);
+                System.arraycopy(mac, 0, output, outOff + dataLen, MAC_SIZE);
+                return dataLen + MAC_SIZE;
+            }
+
+            poly1305.update(input, inOff, dataLen);
+            finishMAC(poly1305, aadLen, dataLen, mac);
+            if (!Arrays.constantTimeAreEqual(MAC_SIZE, mac, 0, input, inOff + dataLen))
+            {
+                throw new InvalidCipherTextException("mac check in ChaCha20Poly1305 failed");
+            }
+            chacha20.processBytes(input, inOff, dataLen, output, outOff);
+            return dataLen;
+        }
+        catch (Exception e)
+        {
+            throw PacketCipherException.from(e);
+        }
+        finally
+        {
+            Arrays.clear(firstBlock);
+            Arrays.clear(mac);
+        }
+    }
+
+    private static void padMAC(Poly1305 poly1305, int count)
+    {
+        int partial = count % MAC_SIZE;
+        if (0 != partial)
+        {
+            poly1305.update(ZEROES, 0, MAC_SIZE - partial);
+        }
+    }
+
+    private static void finishMAC(Poly1305 poly1305, int aadLen, int dataLen, byte[] mac)
+    {
+        padMAC(poly1305, dataLen);
+
+        byte[] lengths = new byte[16];
+        Pack.longToLittleEndian(aadLen & 0xFFFFFFFFL, lengths, 0);
+        Pack.longToLittleEndian(dataLen & 0xFFFFFFFFL, lengths, 8);
+        poly1305.update(lengths, 0, 16);
+
+        poly1305.doFinal(mac, 0);
+    }
+
+    @Override
+    public String toString()
+    {
+        return "ChaCha20Poly1305-PS[Java]";
+    }
+
+    @Override
+    public void destroy()
+        throws DestroyFailedException
+    {
+        Arrays.clear(lastKey);
+        Arrays.clear(lastNonce);
+        lastKey = null;
+        lastNonce = null;
+        destroyed = true;
+    }
+
+    @Override
+    public boolean isDestroyed()
+    {
+        return destroyed;
+    }
+}
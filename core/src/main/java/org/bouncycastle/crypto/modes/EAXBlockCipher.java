@@ -52,6 +52,21 @@ public class EAXBlockCipher
     private boolean cipherInitialized;
     private byte[] initialAssociatedText;
 
+    /**
+     * Return a new EAX mode cipher based on the passed in base cipher
+     *
+     * @param cipher the base cipher for the EAX mode.
+     */
+    public static EAXModeCipher newInstance(BlockCipher cipher)
+    {
+        if (cipher instanceof NativeEAXProvider)
+        {
+            NativeEAXProvider engine = (NativeEAXProvider)cipher;
+            return engine.createEAX();
+        }
+        return new EAXBlockCipher(cipher);
+    }
+
     /**
      * Constructor that accepts an instance of a block cipher engine.
      *
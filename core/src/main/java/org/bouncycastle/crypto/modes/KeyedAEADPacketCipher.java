@@ -0,0 +1,39 @@
+package org.bouncycastle.crypto.modes;
+
+import org.bouncycastle.crypto.PacketCipherException;
+
+/**
+ * An AEAD packet cipher bound to a single key, for a stream of packets under one key such as the records of
+ * one direction of a TLS connection. The key is set up once, when the instance is created, and the nonce and
+ * associated data of each packet are passed directly rather than through a new set of cipher parameters.
+ */
+public interface KeyedAEADPacketCipher
+{
+    /**
+     * Returns the expected output size for direction and MAC size.
+     *
+     * @param encryption encryption if true
+     * @param macSize    the MAC size in bytes.
+     * @param len        the input length.
+     * @return the required minimum output length in bytes.
+     */
+    int getOutputSize(boolean encryption, int macSize, int len);
+
+    /**
+     * Process a packet under the key of this instance.
+     *
+     * @param encryption encryption if true
+     * @param nonce      the nonce for this packet, read but not retained.
+     * @param aad        the associated data for this packet, may be null.
+     * @param macSize    the MAC size in bytes.
+     * @param input      The input byte array
+     * @param inOff      Offset within byte array to start reading input.
+     * @param len        the number of bytes of input to process.
+     * @param output     The output array
+     * @param outOff     the offset within the output array to start writing output.
+     * @return the number of bytes written to output.
+     * @throws PacketCipherException if the transformation encounters an error.
+     */
+    int processPacket(boolean encryption, byte[] nonce, byte[] aad, int macSize, byte[] input, int inOff, int len,
+                      byte[] output, int outOff) throws PacketCipherException;
+}
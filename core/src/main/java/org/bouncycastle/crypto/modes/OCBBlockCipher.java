@@ -75,6 +75,22 @@ public class OCBBlockCipher
     // NOTE: The MAC value is preserved after doFinal
     private byte[] macBlock;
 
+    /**
+     * Return a new OCB mode cipher based on the passed in base ciphers.
+     *
+     * @param hashCipher the cipher used for the hash, always in the forward direction.
+     * @param mainCipher the cipher used for encryption/decryption.
+     */
+    public static OCBModeCipher newInstance(BlockCipher hashCipher, BlockCipher mainCipher)
+    {
+        if (hashCipher instanceof NativeOCBProvider && mainCipher instanceof NativeOCBProvider)
+        {
+            NativeOCBProvider engine = (NativeOCBProvider)mainCipher;
+            return engine.createOCB();
+        }
+        return new OCBBlockCipher(hashCipher, mainCipher);
+    }
+
     public OCBBlockCipher(BlockCipher hashCipher, BlockCipher mainCipher)
     {
         if (hashCipher == null)
@@ -1,5 +1,6 @@
 package org.bouncycastle.crypto.modes;
 
+import org.bouncycastle.crypto.CipherParameters;
 import org.bouncycastle.crypto.DataLengthException;
 import org.bouncycastle.crypto.ExceptionMessages;
 import org.bouncycastle.crypto.OutputLengthException;
@@ -214,4 +215,29 @@ public class PacketCipherChecks
         }
     }
 
+    /**
+     * Check the per packet arrays passed to a batch call line up.
+     *
+     * @return the number of packets in the batch.
+     */
+    public static int checkPackets(CipherParameters[] parameters, byte[][] input, int[] inOff, int[] len, byte[][] output,
+                                   int[] outOff, int[] written)
+            throws PacketCipherException
+    {
+        if (parameters == null || input == null || inOff == null || len == null || output == null || outOff == null
+                || written == null)
+        {
+            throw PacketCipherException.from(new IllegalArgumentException(ExceptionMessages.INPUT_NULL));
+        }
+
+        int count = parameters.length;
+        if (input.length != count || inOff.length != count || len.length != count || output.length != count
+                || outOff.length != count || written.length != count)
+        {
+            throw PacketCipherException.from(new IllegalArgumentException(ExceptionMessages.PACKETS_LENGTH_MISMATCH));
+        }
+
+        return count;
+    }
+
 }
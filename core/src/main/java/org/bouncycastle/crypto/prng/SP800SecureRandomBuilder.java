@@ -121,6 +121,11 @@ public class SP800SecureRandomBuilder
 
     /**
      * Build a SecureRandom based on a SP 800-90A CTR DRBG.
+     * <p>
+     * If the cipher is from AESEngine.newInstance() and native support is available, bulk output is generated using
+     * the native AES CTR mode. A builder constructed with CryptoServicesRegistrar.getDefaultEntropySourceProvider()
+     * will also seed and reseed from the hardware entropy source where one is present.
+     * </p>
      *
      * @param cipher the block cipher to base the DRBG on.
      * @param keySizeInBits key size in bits to be used with the block cipher.
@@ -1,14 +1,22 @@
 package org.bouncycastle.crypto.prng.drbg;
 
 import org.bouncycastle.crypto.BlockCipher;
+import org.bouncycastle.crypto.NativeBlockCipherProvider;
+import org.bouncycastle.crypto.modes.CTRModeCipher;
 import org.bouncycastle.crypto.params.KeyParameter;
+import org.bouncycastle.crypto.params.ParametersWithIV;
 import org.bouncycastle.crypto.prng.EntropySource;
 import org.bouncycastle.util.Arrays;
 import org.bouncycastle.util.Bytes;
+import org.bouncycastle.util.Pack;
 import org.bouncycastle.util.encoders.Hex;
 
 /**
  * A SP800-90A CTR DRBG.
+ * <p>
+ * If the block cipher passed in is a native AES engine, output is generated through the matching native CTR mode
+ * cipher, allowing a request to be processed as a single keystream rather than a block at a time.
+ * </p>
  */
 public class CTRSP800DRBG
     implements SP80090DRBG
@@ -20,6 +28,7 @@ public class CTRSP800DRBG
 
     private EntropySource          _entropySource;
     private BlockCipher           _engine;
+    private CTRModeCipher         _ctrEngine;
     private int                   _keySizeInBits;
     private int                   _seedLength;
     private int                   _securityStrength;
@@ -52,6 +61,11 @@ public class CTRSP800DRBG
         _seedLength = keySizeInBits + engine.getBlockSize() * 8;
         _isTDEA = isTDEA(engine);
 
+        if (engine instanceof NativeBlockCipherProvider)
+        {
+            _ctrEngine = ((NativeBlockCipherProvider)engine).createCTR();
+        }
+
         if (securityStrength > 256)
         {
             throw new IllegalArgumentException("Requested security strength is not supported by the derivation function");
@@ -376,23 +390,30 @@ public class CTRSP800DRBG
             additionalInput = new byte[_seedLength / 8];
         }
 
-        byte[] out = new byte[_V.length];
-
-        _engine.init(true, new KeyParameter(expandKey(_Key)));
-
-        for (int i = 0; i <= output.length / out.length; i++)
+        if (_ctrEngine != null && !lowCounterWraps(output.length))
         {
-            int bytesToCopy = ((output.length - i * out.length) > out.length)
-                    ? out.length
-                    : (output.length - i * _V.length);
+            generateKeyStream(output);
+        }
+        else
+        {
+            byte[] out = new byte[_V.length];
+
+            _engine.init(true, new KeyParameter(expandKey(_Key)));
 
-            if (bytesToCopy != 0)
+            for (int i = 0; i <= output.length / out.length; i++)
             {
-                addOneTo(_V);
+                int bytesToCopy = ((output.length - i * out.length) > out.length)
+                        ? out.length
+                        : (output.length - i * _V.length);
 
-                _engine.processBlock(_V, 0, out, 0);
+                if (bytesToCopy != 0)
+                {
+                    addOneTo(_V);
 
-                System.arraycopy(out, 0, output, i * out.length, bytesToCopy);
+                    _engine.processBlock(_V, 0, out, 0);
+
+                    System.arraycopy(out, 0, output, i * out.length, bytesToCopy);
+                }
             }
         }
 
@@ -403,6 +424,54 @@ public class CTRSP800DRBG
         return output.length * 8;
     }
 
+    /**
+     * The CTR mode cipher only carries within the low 64 bits of a full block counter, so requests where V would
+     * wrap in its low half have to use the block at a time path to carry into the high half.
+     */
+    private boolean lowCounterWraps(int outputLength)
+    {
+        int blocks = (outputLength + _V.length - 1) / _V.length;
+        if (blocks == 0)
+        {
+            return false;
+        }
+
+        long first = Pack.bigEndianToLong(_V, _V.length - 8) + 1;
+        long last = first + (blocks - 1);
+
+        return first == 0 || (first & ~last) < 0;
+    }
+
+    private void generateKeyStream(byte[] output)
+    {
+        int blocks = (output.length + _V.length - 1) / _V.length;
+        if (blocks == 0)
+        {
+            return;
+        }
+
+        byte[] iv = Arrays.clone(_V);
+        addOneTo(iv);
+
+        Arrays.fill(output, (byte)0);
+
+        _ctrEngine.init(true, new ParametersWithIV(new KeyParameter(_Key), iv));
+        _ctrEngine.processBytes(output, 0, output.length, output, 0);
+
+        addTo(_V, blocks);
+    }
+
+    private void addTo(byte[] longer, int value)
+    {
+        long carry = value & 0xffffffffL;
+        for (int i = 1; i <= longer.length && carry != 0; i++)
+        {
+            long res = (longer[longer.length - i] & 0xff) + carry;
+            carry = res >>> 8;
+            longer[longer.length - i] = (byte)res;
+        }
+    }
+
     /**
       * Reseed the DRBG.
       *
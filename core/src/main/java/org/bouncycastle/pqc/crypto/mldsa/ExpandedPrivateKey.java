@@ -0,0 +1,33 @@
+package org.bouncycastle.pqc.crypto.mldsa;
+
+/**
+ * The parts of an ML-DSA private key needed for signing, held in the form the signing loop
+ * uses them: the matrix A expanded from rho, and s1, s2 and t0 in the NTT domain.
+ * <p>
+ * Computing these is a significant part of the cost of a signature, so they are derived once per
+ * private key and then only ever read.
+ * </p>
+ */
+final class ExpandedPrivateKey
+{
+    final PolyVecMatrix aMatrix;
+    final PolyVecL s1Hat;
+    final PolyVecK s2Hat;
+    final PolyVecK t0Hat;
+
+    ExpandedPrivateKey(MLDSAEngine engine, byte[] rho, byte[] t0Enc, byte[] s1Enc, byte[] s2Enc)
+    {
+        aMatrix = new PolyVecMatrix(engine);
+        s1Hat = new PolyVecL(engine);
+        s2Hat = new PolyVecK(engine);
+        t0Hat = new PolyVecK(engine);
+
+        Packing.unpackSecretKey(t0Hat, s1Hat, s2Hat, t0Enc, s1Enc, s2Enc, engine);
+
+        aMatrix.expandMatrix(rho);
+
+        s1Hat.polyVecNtt();
+        s2Hat.polyVecNtt();
+        t0Hat.polyVecNtt();
+    }
+}
@@ -26,6 +26,7 @@ public class HashMLDSASigner
     private SecureRandom random;
 
     private MLDSAEngine engine;
+    private MLDSAParameters engineParameters;
     private Digest digest;
     private byte[] digestOIDEncoding;
 
@@ -66,7 +67,7 @@ public class HashMLDSASigner
             }
 
             parameters = privKey.getParameters();
-            engine = parameters.getEngine(random);
+            engine = getEngine(parameters);
 
             engine.initSign(privKey.tr, true, ctx);
         }
@@ -77,7 +78,7 @@ public class HashMLDSASigner
             random = null;
 
             parameters = pubKey.getParameters();
-            engine = parameters.getEngine(null);
+            engine = getEngine(parameters);
 
             engine.initVerify(pubKey.rho, pubKey.t1, true, ctx);
         }
@@ -85,6 +86,17 @@ public class HashMLDSASigner
         initDigest(parameters);
     }
 
+    private MLDSAEngine getEngine(MLDSAParameters parameters)
+    {
+        // keep the engine, and with it the signing scratch space, while the parameter set is unchanged
+        if (engine == null || engineParameters != parameters)
+        {
+            engineParameters = parameters;
+            return parameters.getEngine(null);
+        }
+        return engine;
+    }
+
     private void initDigest(MLDSAParameters parameters)
     {
         digest = createDigest(parameters);
@@ -120,7 +132,7 @@ public class HashMLDSASigner
             random.nextBytes(rnd);
         }
 
-        return engine.generateSignature(msgDigest, privKey.rho, privKey.k, privKey.t0, privKey.s1, privKey.s2, rnd);
+        return engine.generateSignature(msgDigest, privKey.k, privKey.getExpandedKey(), rnd);
     }
 
     public boolean verifySignature(byte[] signature)
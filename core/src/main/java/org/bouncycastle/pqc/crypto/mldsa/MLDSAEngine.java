@@ -50,6 +50,12 @@ class MLDSAEngine
 
     private final Symmetric symmetric;
 
+    // signing scratch space, allocated on first use and reused by later signatures
+    private PolyVecL sigY, sigZ;
+    private PolyVecK sigW1, sigW0, sigH;
+    private Poly sigCp;
+    private byte[] sigBuf, sigKeyMu, sigRhoPrime;
+
     protected Symmetric GetSymmetric()
     {
         return symmetric;
@@ -310,6 +316,8 @@ class MLDSAEngine
 
     void initSign(byte[] tr, boolean isPreHash, byte[] ctx)
     {
+        // the engine may be re-initialised by a signer, so start from an empty digest
+        shake256Digest.reset();
         shake256Digest.update(tr, 0, TrBytes);
         if (ctx != null)
         {
@@ -323,6 +331,7 @@ class MLDSAEngine
     {
         byte[] mu = new byte[TrBytes];
 
+        shake256Digest.reset();
         shake256Digest.update(rho, 0, rho.length);
         shake256Digest.update(encT1, 0, encT1.length);
         shake256Digest.doFinal(mu, 0, TrBytes);
@@ -347,98 +356,124 @@ class MLDSAEngine
 
     byte[] generateSignature(SHAKEDigest shake256Digest, byte[] rho, byte[] key, byte[] t0Enc, byte[] s1Enc, byte[] s2Enc, byte[] rnd)
     {
-        byte[] mu = new byte[CrhBytes];
-
-        shake256Digest.doFinal(mu, 0, CrhBytes);
-
-        int n;
-        byte[] outSig = new byte[CryptoBytes];
-        byte[] rhoPrime = new byte[CrhBytes];
-        short nonce = 0;
-        PolyVecL s1 = new PolyVecL(this), y = new PolyVecL(this), z = new PolyVecL(this);
-        PolyVecK t0 = new PolyVecK(this), s2 = new PolyVecK(this), w1 = new PolyVecK(this), w0 = new PolyVecK(this), h = new PolyVecK(this);
-        Poly cp = new Poly(this);
-        PolyVecMatrix aMatrix = new PolyVecMatrix(this);
-
-        Packing.unpackSecretKey(t0, s1, s2, t0Enc, s1Enc, s2Enc, this);
-
-        byte[] keyMu = Arrays.copyOf(key, SeedBytes + RndBytes + CrhBytes);
-        System.arraycopy(rnd, 0, keyMu, SeedBytes, RndBytes);
-        System.arraycopy(mu, 0, keyMu, SeedBytes + RndBytes, CrhBytes);
-        shake256Digest.update(keyMu, 0, SeedBytes + RndBytes + CrhBytes);
-        shake256Digest.doFinal(rhoPrime, 0, CrhBytes);
-
-        aMatrix.expandMatrix(rho);
-
-        s1.polyVecNtt();
-        s2.polyVecNtt();
-
-        t0.polyVecNtt();
+        return generateSignature(shake256Digest, key, new ExpandedPrivateKey(this, rho, t0Enc, s1Enc, s2Enc), rnd);
+    }
 
-        int count = 0;
-        while (count < 1000)
+    byte[] generateSignature(SHAKEDigest shake256Digest, byte[] key, ExpandedPrivateKey expandedKey, byte[] rnd)
+    {
+        if (sigY == null)
         {
-            count++;
-            // Sample intermediate vector
-            y.uniformGamma1(rhoPrime, nonce++);
-
-            y.copyPolyVecL(z);
-            z.polyVecNtt();
-
-            // Matrix-vector multiplication
-            aMatrix.pointwiseMontgomery(w1, z);
-            w1.reduce();
-            w1.invNttToMont();
-
-            // Decompose w and call the random oracle
-            w1.conditionalAddQ();
-            w1.decompose(w0);
-
-            System.arraycopy(w1.packW1(), 0, outSig, 0, DilithiumK * DilithiumPolyW1PackedBytes);
+            sigY = new PolyVecL(this);
+            sigZ = new PolyVecL(this);
+            sigW1 = new PolyVecK(this);
+            sigW0 = new PolyVecK(this);
+            sigH = new PolyVecK(this);
+            sigCp = new Poly(this);
+            sigBuf = new byte[CryptoBytes];
+            sigKeyMu = new byte[SeedBytes + RndBytes + CrhBytes];
+            sigRhoPrime = new byte[CrhBytes];
+        }
 
-            shake256Digest.update(mu, 0, CrhBytes);
-            shake256Digest.update(outSig, 0, DilithiumK * DilithiumPolyW1PackedBytes);
-            shake256Digest.doFinal(outSig, 0, DilithiumCTilde);
+        PolyVecL y = sigY, z = sigZ;
+        PolyVecK w1 = sigW1, w0 = sigW0, h = sigH;
+        Poly cp = sigCp;
+        byte[] outSig = sigBuf;
+        byte[] keyMu = sigKeyMu;
+        byte[] rhoPrime = sigRhoPrime;
 
-            cp.challenge(Arrays.copyOfRange(outSig, 0, DilithiumCTilde));  // uses only the first DilithiumCTilde bytes of sig
-            cp.polyNtt();
+        PolyVecMatrix aMatrix = expandedKey.aMatrix;
+        PolyVecL s1 = expandedKey.s1Hat;
+        PolyVecK s2 = expandedKey.s2Hat, t0 = expandedKey.t0Hat;
 
-            // Compute z, reject if it reveals secret
-            z.pointwisePolyMontgomery(cp, s1);
-            z.invNttToMont();
-            z.addPolyVecL(y);
-            z.reduce();
-            if (z.checkNorm(DilithiumGamma1 - DilithiumBeta))
-            {
-                continue;
-            }
+        int n;
+        short nonce = 0;
 
-            h.pointwisePolyMontgomery(cp, s2);
-            h.invNttToMont();
-            w0.subtract(h);
-            w0.reduce();
-            if (w0.checkNorm(DilithiumGamma2 - DilithiumBeta))
-            {
-                continue;
-            }
+        try
+        {
+            // mu is held in keyMu, following key and rnd
+            int muOff = SeedBytes + RndBytes;
+            shake256Digest.doFinal(keyMu, muOff, CrhBytes);
 
-            h.pointwisePolyMontgomery(cp, t0);
-            h.invNttToMont();
-            h.reduce();
-            if (h.checkNorm(DilithiumGamma2))
-            {
-                continue;
-            }
+            System.arraycopy(key, 0, keyMu, 0, SeedBytes);
+            System.arraycopy(rnd, 0, keyMu, SeedBytes, RndBytes);
+            shake256Digest.update(keyMu, 0, SeedBytes + RndBytes + CrhBytes);
+            shake256Digest.doFinal(rhoPrime, 0, CrhBytes);
 
-            w0.addPolyVecK(h);
-            w0.conditionalAddQ();
-            n = h.makeHint(w0, w1);
-            if (n > DilithiumOmega)
+            int count = 0;
+            while (count < 1000)
             {
-                continue;
+                count++;
+                // Sample intermediate vector
+                y.uniformGamma1(rhoPrime, nonce++);
+
+                y.copyPolyVecL(z);
+                z.polyVecNtt();
+
+                // Matrix-vector multiplication
+                aMatrix.pointwiseMontgomery(w1, z);
+                w1.reduce();
+                w1.invNttToMont();
+
+                // Decompose w and call the random oracle
+                w1.conditionalAddQ();
+                w1.decompose(w0);
+
+                System.arraycopy(w1.packW1(), 0, outSig, 0, DilithiumK * DilithiumPolyW1PackedBytes);
+
+                shake256Digest.update(keyMu, muOff, CrhBytes);
+                shake256Digest.update(outSig, 0, DilithiumK * DilithiumPolyW1PackedBytes);
+                shake256Digest.doFinal(outSig, 0, DilithiumCTilde);
+
+                cp.challenge(outSig);  // uses only the first DilithiumCTilde bytes of sig
+                cp.polyNtt();
+
+                // Compute z, reject if it reveals secret
+                z.pointwisePolyMontgomery(cp, s1);
+                z.invNttToMont();
+                z.addPolyVecL(y);
+                z.reduce();
+                if (z.checkNorm(DilithiumGamma1 - DilithiumBeta))
+                {
+                    continue;
+                }
+
+                h.pointwisePolyMontgomery(cp, s2);
+                h.invNttToMont();
+                w0.subtract(h);
+                w0.reduce();
+                if (w0.checkNorm(DilithiumGamma2 - DilithiumBeta))
+                {
+                    continue;
+                }
+
+                h.pointwisePolyMontgomery(cp, t0);
+                h.invNttToMont();
+                h.reduce();
+                if (h.checkNorm(DilithiumGamma2))
+                {
+                    continue;
+                }
+
+                w0.addPolyVecK(h);
+                w0.conditionalAddQ();
+                n = h.makeHint(w0, w1);
+                if (n > DilithiumOmega)
+                {
+                    continue;
+                }
+
+                return Packing.packSignature(outSig, z, h, this);
             }
-
-            return Packing.packSignature(outSig, z, h, this);
+        }
+        finally
+        {
+            // don't leave the key, rho', y or values derived from the secret vectors in the scratch space
+            Arrays.clear(keyMu);
+            Arrays.clear(rhoPrime);
+            y.clear();
+            z.clear();
+            w0.clear();
+            h.clear();
         }
 
         return null;
@@ -15,6 +15,8 @@ public class MLDSAPrivateKeyParameters
     private final byte[] t1;
     private final byte[] seed;
 
+    private volatile ExpandedPrivateKey expandedKey;
+
     public MLDSAPrivateKeyParameters(MLDSAParameters params, byte[] encoding)
     {
         this(params, encoding, null);
@@ -87,6 +89,22 @@ public class MLDSAPrivateKeyParameters
         }
     }
 
+    /**
+     * Return the signing form of this key, computing it on first use. The result is never modified, so
+     * it can be shared by any number of signers; if two threads race to compute it the second result
+     * simply replaces an identical first one.
+     */
+    ExpandedPrivateKey getExpandedKey()
+    {
+        ExpandedPrivateKey key = expandedKey;
+        if (key == null)
+        {
+            key = new ExpandedPrivateKey(getParameters().getEngine(null), rho, t0, s1, s2);
+            expandedKey = key;
+        }
+        return key;
+    }
+
     public byte[] getEncoded()
     {
         return Arrays.concatenate(new byte[][]{rho, k, tr, s1, s2, t0});
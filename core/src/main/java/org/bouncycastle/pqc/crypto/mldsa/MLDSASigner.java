@@ -20,6 +20,7 @@ public class MLDSASigner
     private SecureRandom random;
 
     private MLDSAEngine engine;
+    private MLDSAParameters engineParameters;
     private SHAKEDigest msgDigest;
 
     public MLDSASigner()
@@ -59,7 +60,7 @@ public class MLDSASigner
             }
 
             parameters = privKey.getParameters();
-            engine = parameters.getEngine(random);
+            engine = getEngine(parameters);
 
             engine.initSign(privKey.tr, false, ctx);
         }
@@ -70,7 +71,7 @@ public class MLDSASigner
             random = null;
 
             parameters = pubKey.getParameters();
-            engine = parameters.getEngine(null);
+            engine = getEngine(parameters);
 
             engine.initVerify(pubKey.rho, pubKey.t1, false, ctx);
         }
@@ -83,6 +84,17 @@ public class MLDSASigner
         reset();
     }
 
+    private MLDSAEngine getEngine(MLDSAParameters parameters)
+    {
+        // keep the engine, and with it the signing scratch space, while the parameter set is unchanged
+        if (engine == null || engineParameters != parameters)
+        {
+            engineParameters = parameters;
+            return parameters.getEngine(null);
+        }
+        return engine;
+    }
+
     public void update(byte b)
     {
         msgDigest.update(b);
@@ -102,7 +114,7 @@ public class MLDSASigner
             random.nextBytes(rnd);
         }
 
-        byte[] sig = engine.generateSignature(msgDigest, privKey.rho, privKey.k, privKey.t0, privKey.s1, privKey.s2, rnd);
+        byte[] sig = engine.generateSignature(msgDigest, privKey.k, privKey.getExpandedKey(), rnd);
 
         reset();
 
@@ -1,6 +1,7 @@
 package org.bouncycastle.pqc.crypto.mldsa;
 
 import org.bouncycastle.crypto.digests.SHAKEDigest;
+import org.bouncycastle.util.Arrays;
 
 class Poly
 {
@@ -41,6 +42,11 @@ class Poly
         this.coeffs = coeffs;
     }
 
+    void clear()
+    {
+        Arrays.clear(this.coeffs);
+    }
+
     public void uniformBlocks(byte[] seed, short nonce)
     {
         int i, ctr, off,
@@ -188,17 +194,18 @@ class Poly
     public void pointwiseAccountMontgomery(PolyVecL u, PolyVecL v)
     {
         int i;
-        Poly t = new Poly(engine);
 
         this.pointwiseMontgomery(u.getVectorIndex(0), v.getVectorIndex(0));
 
+        // accumulate directly into the coefficients, rather than through a temporary Poly
         for (i = 1; i < engine.getDilithiumL(); ++i)
         {
-            t.pointwiseMontgomery(u.getVectorIndex(i), v.getVectorIndex(i));
-            this.addPoly(t);
+            int[] a = u.getVectorIndex(i).coeffs, b = v.getVectorIndex(i).coeffs;
+            for (int j = 0; j < dilithiumN; ++j)
+            {
+                coeffs[j] += Reduce.montgomeryReduce((long)a[j] * (long)b[j]);
+            }
         }
-
-
     }
 
     public void addPoly(Poly a)
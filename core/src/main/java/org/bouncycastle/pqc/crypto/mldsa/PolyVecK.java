@@ -58,6 +58,14 @@ class PolyVecK
         }
     }
 
+    void clear()
+    {
+        for (int i = 0; i < dilithiumK; ++i)
+        {
+            this.getVectorIndex(i).clear();
+        }
+    }
+
     public void invNttToMont()
     {
         for (int i = 0; i < dilithiumK; ++i)
@@ -116,6 +116,14 @@ class PolyVecL
         }
     }
 
+    void clear()
+    {
+        for (int i = 0; i < dilithiumL; ++i)
+        {
+            this.getVectorIndex(i).clear();
+        }
+    }
+
     public boolean checkNorm(int bound)
     {
         for (int i = 0; i < dilithiumL; ++i)
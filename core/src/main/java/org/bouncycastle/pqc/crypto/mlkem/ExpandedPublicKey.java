@@ -0,0 +1,23 @@
+package org.bouncycastle.pqc.crypto.mlkem;
+
+/**
+ * An ML-KEM encapsulation key in the form used by encryption: t unpacked, the transpose of the
+ * matrix A expanded from rho, and (where needed) H(ek).
+ * <p>
+ * Expanding A is the dominant cost of an encapsulation, so where a public key is used repeatedly
+ * the expanded form is computed once and then only ever read.
+ * </p>
+ */
+final class ExpandedPublicKey
+{
+    final PolyVec t;
+    final PolyVec[] aMatrixTranspose;
+    final byte[] hash;
+
+    ExpandedPublicKey(PolyVec t, PolyVec[] aMatrixTranspose, byte[] hash)
+    {
+        this.t = t;
+        this.aMatrixTranspose = aMatrixTranspose;
+        this.hash = hash;
+    }
+}
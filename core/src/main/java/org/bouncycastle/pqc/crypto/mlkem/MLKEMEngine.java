@@ -206,6 +206,11 @@ class MLKEMEngine
     }
 
     public byte[][] kemEncryptInternal(byte[] publicKeyInput, byte[] randBytes)
+    {
+        return kemEncryptInternal(expandPublicKey(publicKeyInput), randBytes);
+    }
+
+    byte[][] kemEncryptInternal(ExpandedPublicKey publicKey, byte[] randBytes)
     {
         byte[] outputCipherText;
 
@@ -215,13 +220,13 @@ class MLKEMEngine
         System.arraycopy(randBytes, 0, buf, 0, KyberSymBytes);
 
         // SHA3-256 Public Key
-        symmetric.hash_h(buf, publicKeyInput, KyberSymBytes);
+        System.arraycopy(publicKey.hash, 0, buf, KyberSymBytes, KyberSymBytes);
 
         // SHA3-512( SHA3-256(RandBytes) || SHA3-256(PublicKey) )
         symmetric.hash_g(kr, buf);
 
         // IndCpa Encryption
-        outputCipherText = indCpa.encrypt(publicKeyInput, Arrays.copyOfRange(buf, 0, KyberSymBytes), Arrays.copyOfRange(kr, 32, kr.length));
+        outputCipherText = indCpa.encrypt(publicKey, Arrays.copyOfRange(buf, 0, KyberSymBytes), Arrays.copyOfRange(kr, 32, kr.length));
 
         byte[] outputSharedSecret = new byte[sessionKeyLength];
 
@@ -233,6 +238,14 @@ class MLKEMEngine
         return outBuf;
     }
 
+    ExpandedPublicKey expandPublicKey(byte[] publicKeyInput)
+    {
+        byte[] hash = new byte[KyberSymBytes];
+        symmetric.hash_h(hash, publicKeyInput, 0);
+
+        return indCpa.expandPublicKey(publicKeyInput, hash);
+    }
+
     public byte[] kemDecryptInternal(byte[] secretKey, byte[] cipherText)
     {
         byte[] buf = new byte[2 * KyberSymBytes],
@@ -274,6 +287,24 @@ class MLKEMEngine
     }
 
     public byte[][] kemEncrypt(byte[] publicKeyInput, byte[] randBytes)
+    {
+        checkPublicKey(publicKeyInput);
+
+        return kemEncryptInternal(publicKeyInput, randBytes);
+    }
+
+    /**
+     * Return the expanded form of an encapsulation key, after the input validation of FIPS 203
+     * (6.2 ML-KEM Encaps), so it can be used for any number of encapsulations.
+     */
+    ExpandedPublicKey expandCheckedPublicKey(byte[] publicKeyInput)
+    {
+        checkPublicKey(publicKeyInput);
+
+        return expandPublicKey(publicKeyInput);
+    }
+
+    private void checkPublicKey(byte[] publicKeyInput)
     {
         //TODO: do input validation elsewhere?
         // Input validation (6.2 ML-KEM Encaps)
@@ -290,9 +321,8 @@ class MLKEMEngine
         {
             throw new IllegalArgumentException("Input validation: Modulus check failed for ml-kem encapsulation");
         }
-
-        return kemEncryptInternal(publicKeyInput, randBytes);
     }
+
     public byte[] kemDecrypt(byte[] secretKey, byte[] cipherText)
     {
         //TODO: do input validation
@@ -27,7 +27,7 @@ public class MLKEMGenerator
         byte[] randBytes = new byte[32];
         engine.getRandomBytes(randBytes);
 
-        byte[][] kemEncrypt = engine.kemEncrypt(key.getEncoded(), randBytes);
+        byte[][] kemEncrypt = engine.kemEncryptInternal(key.getExpandedKey(), randBytes);
         return new SecretWithEncapsulationImpl(kemEncrypt[0], kemEncrypt[1]);
     }
     public SecretWithEncapsulation internalGenerateEncapsulated(AsymmetricKeyParameter recipientKey, byte[] randBytes)
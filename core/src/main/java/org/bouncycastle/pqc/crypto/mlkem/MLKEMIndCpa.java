@@ -139,46 +139,43 @@ class MLKEMIndCpa
         return new byte[][]{packPublicKey(publicKey, publicSeed), packSecretKey(secretKey)};
     }
 
+    ExpandedPublicKey expandPublicKey(byte[] publicKeyInput, byte[] hash)
+    {
+        PolyVec publicKeyPolyVec = new PolyVec(engine);
+        PolyVec[] aMatrixTranspose = new PolyVec[kyberK];
+
+        byte[] seed = unpackPublicKey(publicKeyPolyVec, publicKeyInput);
+
+        for (int i = 0; i < kyberK; i++)
+        {
+            aMatrixTranspose[i] = new PolyVec(engine);
+        }
+
+        generateMatrix(aMatrixTranspose, seed, true);
+
+        return new ExpandedPublicKey(publicKeyPolyVec, aMatrixTranspose, hash);
+    }
+
     public byte[] encrypt(byte[] publicKeyInput, byte[] msg, byte[] coins)
+    {
+        return encrypt(expandPublicKey(publicKeyInput, null), msg, coins);
+    }
+
+    byte[] encrypt(ExpandedPublicKey publicKey, byte[] msg, byte[] coins)
     {
         int i;
-        byte[] seed;
         byte nonce = (byte)0;
         PolyVec sp = new PolyVec(engine),
-            publicKeyPolyVec = new PolyVec(engine),
             errorPolyVector = new PolyVec(engine),
             bp = new PolyVec(engine);
-        PolyVec[] aMatrixTranspose = new PolyVec[engine.getKyberK()];
+        PolyVec publicKeyPolyVec = publicKey.t;
+        PolyVec[] aMatrixTranspose = publicKey.aMatrixTranspose;
         Poly errorPoly = new Poly(engine),
             v = new Poly(engine),
             k = new Poly(engine);
 
-
-        // System.out.print("publickeyinput = ");
-        // Helper.printByteArray(publicKeyInput);
-        // System.out.println();
-
-        seed = unpackPublicKey(publicKeyPolyVec, publicKeyInput);
-
-        // System.out.print("publickeyPolyVec = [");
-        // for (i = 0; i < kyberK; i++) {
-        //     Helper.printShortArray(publicKeyPolyVec.getVectorIndex(i).getCoeffs());
-        //     System.out.print("], \n");
-        // }
-        // System.out.println("]"); 
-
-        // System.out.print("seed = ");
-        // Helper.printByteArray(seed);
-        // System.out.println();
-
         k.fromMsg(msg);
 
-        for (i = 0; i < kyberK; i++)
-        {
-            aMatrixTranspose[i] = new PolyVec(engine);
-        }
-
-        generateMatrix(aMatrixTranspose, seed, true);
 
         // System.out.print("matrix transposed = ");
         // for (i = 0; i < kyberK; i++) {
@@ -13,6 +13,8 @@ public class MLKEMPublicKeyParameters
     final byte[] t;
     final byte[] rho;
 
+    private volatile ExpandedPublicKey expandedKey;
+
     public MLKEMPublicKeyParameters(MLKEMParameters params, byte[] t, byte[] rho)
     {
         super(false, params);
@@ -32,6 +34,21 @@ public class MLKEMPublicKeyParameters
         return getEncoded(t, rho);
     }
 
+    /**
+     * Return the validated and expanded form of this key, computing it on first use. The result is never
+     * modified, so repeated encapsulations against this key (from any thread) skip expanding the matrix.
+     */
+    ExpandedPublicKey getExpandedKey()
+    {
+        ExpandedPublicKey key = expandedKey;
+        if (key == null)
+        {
+            key = getParameters().getEngine().expandCheckedPublicKey(getEncoded());
+            expandedKey = key;
+        }
+        return key;
+    }
+
     public byte[] getRho()
     {
         return Arrays.clone(rho);
@@ -23,6 +23,12 @@ class Fors
             return null;
         }
 
+        byte[] root = engine.fors_treehash(skSeed, s, z, pkSeed, adrsParam);
+        if (root != null)
+        {
+            return root;
+        }
+
         LinkedList<NodeEntry> stack = new LinkedList<NodeEntry>();
         ADRS adrs = new ADRS(adrsParam);
 
@@ -153,6 +153,12 @@ class HT
             return null;
         }
 
+        byte[] root = engine.xmss_treehash(skSeed, s, z, pkSeed, adrsParam);
+        if (root != null)
+        {
+            return root;
+        }
+
         LinkedList<NodeEntry> stack = new LinkedList<NodeEntry>();
         ADRS adrs = new ADRS(adrsParam);
 
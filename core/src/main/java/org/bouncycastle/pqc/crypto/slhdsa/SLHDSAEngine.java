@@ -89,4 +89,37 @@ abstract class SLHDSAEngine
     abstract byte[] PRF(byte[] pkSeed, byte[] skSeed, ADRS adrs);
 
     abstract byte[] PRF_msg(byte[] prf, byte[] randomiser, byte[] msgPrefix, byte[] msg);
+
+    /**
+     * Advance all WOTS_LEN WOTS+ chains in a single operation, chain i being advanced steps[i] times from
+     * hash address start[i].
+     *
+     * @param x the concatenated chain inputs, or null to start from the WOTS+ private key derived from skSeed.
+     * @return the concatenated chain outputs, or null if the engine has no direct implementation, in which
+     * case the caller computes the chains hash by hash.
+     */
+    byte[] wots_chains(byte[] x, byte[] skSeed, byte[] pkSeed, ADRS adrs, int[] start, int[] steps)
+    {
+        return null;
+    }
+
+    /**
+     * Compute the root of the XMSS subtree of height z whose leftmost leaf is s in a single operation.
+     *
+     * @return the root node, or null if the engine has no direct implementation.
+     */
+    byte[] xmss_treehash(byte[] skSeed, int s, int z, byte[] pkSeed, ADRS adrs)
+    {
+        return null;
+    }
+
+    /**
+     * Compute the root of the FORS subtree of height z whose leftmost leaf is s in a single operation.
+     *
+     * @return the root node, or null if the engine has no direct implementation.
+     */
+    byte[] fors_treehash(byte[] skSeed, int s, int z, byte[] pkSeed, ADRS adrs)
+    {
+        return null;
+    }
 }
@@ -119,6 +119,38 @@ class SLHDSASha2NativeEngine
         return Arrays.copyOfRange(hmacBuf, 0, N);
     }
 
+    byte[] wots_chains(byte[] x, byte[] skSeed, byte[] pkSeed, ADRS adrs, int[] start, int[] steps)
+    {
+        byte[] chains = (x == null) ? new byte[WOTS_LEN * N] : Arrays.copyOfRange(x, 0, WOTS_LEN * N);
+        wotsChains(ref.getReference(), chains, x == null ? skSeed : null, adrs.value, toBytes(start),
+            toBytes(steps));
+        return chains;
+    }
+
+    byte[] xmss_treehash(byte[] skSeed, int s, int z, byte[] pkSeed, ADRS adrs)
+    {
+        byte[] root = new byte[N];
+        xmssTreehash(ref.getReference(), root, skSeed, s, z, adrs.value);
+        return root;
+    }
+
+    byte[] fors_treehash(byte[] skSeed, int s, int z, byte[] pkSeed, ADRS adrs)
+    {
+        byte[] root = new byte[N];
+        forsTreehash(ref.getReference(), root, skSeed, s, z, adrs.value);
+        return root;
+    }
+
+    private static byte[] toBytes(int[] digits)
+    {
+        byte[] rv = new byte[digits.length];
+        for (int i = 0; i != rv.length; i++)
+        {
+            rv[i] = (byte)digits[i];
+        }
+        return rv;
+    }
+
     private byte[] compressedADRS(ADRS adrs)
     {
         byte[] rv = new byte[22];
@@ -222,4 +254,36 @@ class SLHDSASha2NativeEngine
 
     static native void bitmask(long ref, byte[] key, byte[] result, byte[] i0, byte[] i1, byte[] i2, byte[] i3);
 
+    /**
+     * Advance the WOTS+ chains, see {@link SLHDSAEngine#wots_chains}.
+     *
+     * @param ref    reference
+     * @param chains WOTS_LEN * N bytes, the chain inputs and on return the chain outputs.
+     * @param skSeed if not null the chain inputs are the WOTS+ private key derived from it.
+     * @param adrs   the address, with layer, tree and key pair address set.
+     * @param start  start hash address of each chain.
+     * @param steps  number of steps for each chain.
+     */
+    static native void wotsChains(long ref, byte[] chains, byte[] skSeed, byte[] adrs, byte[] start, byte[] steps);
+
+    /**
+     * @param ref    reference
+     * @param root   receives the N byte root of the XMSS subtree.
+     * @param skSeed secret seed.
+     * @param s      leftmost leaf, a multiple of 2^z.
+     * @param z      height of the subtree.
+     * @param adrs   the address, with layer and tree address set.
+     */
+    static native void xmssTreehash(long ref, byte[] root, byte[] skSeed, int s, int z, byte[] adrs);
+
+    /**
+     * @param ref    reference
+     * @param root   receives the N byte root of the FORS subtree.
+     * @param skSeed secret seed.
+     * @param s      leftmost leaf, a multiple of 2^z.
+     * @param z      height of the subtree.
+     * @param adrs   the address, with layer, tree and key pair address set.
+     */
+    static native void forsTreehash(long ref, byte[] root, byte[] skSeed, int s, int z, byte[] adrs);
+
 }
@@ -90,6 +90,12 @@ class WotsPlus
         byte[] csum_bytes = Pack.intToBigEndian(csum);
         base_w(csum_bytes, 4 - len_2_bytes, w, msg, engine.WOTS_LEN1, engine.WOTS_LEN2);
 
+        byte[] chains = engine.wots_chains(null, skSeed, pkSeed, adrs, new int[engine.WOTS_LEN], msg);
+        if (chains != null)
+        {
+            return chains;
+        }
+
         byte[][] sig = new byte[engine.WOTS_LEN][];
         for (int i = 0; i < engine.WOTS_LEN; i++)
         {
@@ -149,18 +155,29 @@ class WotsPlus
         byte[] csum_bytes = Pack.intToBigEndian(csum);
         base_w(csum_bytes, 4 - len_2_bytes, w, msg, engine.WOTS_LEN1, engine.WOTS_LEN2);
 
-        byte[] sigI = new byte[engine.N];
-        byte[][] tmp = new byte[engine.WOTS_LEN][];
-        for (int  i = 0; i < engine.WOTS_LEN; i++ )
+        int[] steps = new int[engine.WOTS_LEN];
+        for (int i = 0; i < engine.WOTS_LEN; i++)
         {
-            adrs.setChainAddress(i);
-            System.arraycopy(sig, i * engine.N, sigI, 0, engine.N);
-            tmp[i] = chain(sigI, msg[i], w - 1 - msg[i], pkSeed, adrs);
+            steps[i] = w - 1 - msg[i];
+        }
+
+        byte[] chains = engine.wots_chains(sig, null, pkSeed, adrs, msg, steps);
+        if (chains == null)
+        {
+            byte[] sigI = new byte[engine.N];
+            byte[][] tmp = new byte[engine.WOTS_LEN][];
+            for (int  i = 0; i < engine.WOTS_LEN; i++ )
+            {
+                adrs.setChainAddress(i);
+                System.arraycopy(sig, i * engine.N, sigI, 0, engine.N);
+                tmp[i] = chain(sigI, msg[i], steps[i], pkSeed, adrs);
+            }
+            chains = Arrays.concatenate(tmp);
         }
 
         wotspkADRS.setTypeAndClear(ADRS.WOTS_PK);
         wotspkADRS.setKeyPairAddress(adrs.getKeyPairAddress());
         
-        return engine.T_l(pkSeed, wotspkADRS, Arrays.concatenate(tmp));
+        return engine.T_l(pkSeed, wotspkADRS, chains);
     }
 }
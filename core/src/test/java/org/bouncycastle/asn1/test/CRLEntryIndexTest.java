@@ -0,0 +1,125 @@
+package org.bouncycastle.asn1.test;
+
+import java.math.BigInteger;
+import java.security.SecureRandom;
+import java.util.Date;
+
+import org.bouncycastle.asn1.ASN1Integer;
+import org.bouncycastle.asn1.DERNull;
+import org.bouncycastle.asn1.pkcs.PKCSObjectIdentifiers;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.x509.AlgorithmIdentifier;
+import org.bouncycastle.asn1.x509.CRLEntryIndex;
+import org.bouncycastle.asn1.x509.CRLReason;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.asn1.x509.ExtensionsGenerator;
+import org.bouncycastle.asn1.x509.GeneralName;
+import org.bouncycastle.asn1.x509.GeneralNames;
+import org.bouncycastle.asn1.x509.TBSCertList;
+import org.bouncycastle.asn1.x509.Time;
+import org.bouncycastle.asn1.x509.V2TBSCertListGenerator;
+import org.bouncycastle.util.test.SimpleTest;
+
+public class CRLEntryIndexTest
+    extends SimpleTest
+{
+    private static final int ENTRIES = 2000;
+
+    public String getName()
+    {
+        return "CRLEntryIndex";
+    }
+
+    public void performTest()
+        throws Exception
+    {
+        SecureRandom random = new SecureRandom();
+
+        GeneralNames otherCA = new GeneralNames(new GeneralName(new X500Name("CN=Other CA")));
+        BigInteger duplicate = new BigInteger(159, random);
+
+        V2TBSCertListGenerator gen = new V2TBSCertListGenerator();
+
+        gen.setIssuer(new X500Name("CN=Test CA"));
+        gen.setThisUpdate(new Time(new Date(500)));
+        gen.setSignature(new AlgorithmIdentifier(PKCSObjectIdentifiers.sha256WithRSAEncryption, DERNull.INSTANCE));
+
+        BigInteger[] serials = new BigInteger[ENTRIES];
+        for (int i = 0; i != ENTRIES; i++)
+        {
+            // mix of small serials and the large random ones most CAs issue.
+            serials[i] = (i % 3 == 0) ? BigInteger.valueOf(i) : new BigInteger(159, random);
+        }
+        serials[100] = duplicate;
+        serials[1500] = duplicate;
+
+        for (int i = 0; i != ENTRIES; i++)
+        {
+            if (i == 1000)
+            {
+                ExtensionsGenerator extGen = new ExtensionsGenerator();
+                extGen.addExtension(Extension.certificateIssuer, true, otherCA);
+                gen.addCRLEntry(new ASN1Integer(serials[i]), new Time(new Date(1000)), extGen.generate());
+            }
+            else
+            {
+                gen.addCRLEntry(new ASN1Integer(serials[i]), new Time(new Date(1000)), CRLReason.keyCompromise);
+            }
+        }
+
+        TBSCertList tbsCertList = TBSCertList.getInstance(gen.generateTBSCertList().getEncoded());
+
+        CRLEntryIndex index = new CRLEntryIndex(tbsCertList, true);
+
+        isEquals(ENTRIES, index.size());
+
+        for (int i = 0; i != ENTRIES; i++)
+        {
+            if (i == 1500)
+            {
+                continue;
+            }
+
+            int pos = index.indexOf(serials[i]);
+            isEquals(i, pos);
+            isTrue(index.getEntry(pos).getUserCertificate().hasValue(serials[i]));
+        }
+
+        // the first entry in CRL order is the one found.
+        isEquals(100, index.indexOf(duplicate));
+
+        for (int i = 0; i != 100; i++)
+        {
+            isEquals(-1, index.indexOf(new BigInteger(158, random).setBit(158).negate()));
+        }
+        isEquals(-1, index.indexOf(BigInteger.valueOf(ENTRIES + 1)));
+
+        isTrue(null == index.getPrecedingCertificateIssuer(1000));
+        isEquals(otherCA, index.getPrecedingCertificateIssuer(1001));
+        isEquals(otherCA, index.getPrecedingCertificateIssuer(ENTRIES - 1));
+
+        CRLEntryIndex direct = new CRLEntryIndex(tbsCertList, false);
+        isTrue(null == direct.getPrecedingCertificateIssuer(ENTRIES - 1));
+
+        CRLEntryIndex empty = new CRLEntryIndex(emptyList(), false);
+        isEquals(0, empty.size());
+        isEquals(-1, empty.indexOf(BigInteger.ONE));
+    }
+
+    private static TBSCertList emptyList()
+    {
+        V2TBSCertListGenerator gen = new V2TBSCertListGenerator();
+
+        gen.setIssuer(new X500Name("CN=Test CA"));
+        gen.setThisUpdate(new Time(new Date(500)));
+        gen.setSignature(new AlgorithmIdentifier(PKCSObjectIdentifiers.sha256WithRSAEncryption, DERNull.INSTANCE));
+
+        return gen.generateTBSCertList();
+    }
+
+    public static void main(
+        String[]    args)
+    {
+        runTest(new CRLEntryIndexTest());
+    }
+}
@@ -39,6 +39,7 @@ public class RegressionTest
         new NameOrPseudonymUnitTest(),
         new PersonalDataUnitTest(),
         new IssuingDistributionPointUnitTest(),
+        new CRLEntryIndexTest(),
         new TargetInformationTest(),
         new SubjectKeyIdentifierTest(),
         new ParsingTest(),
@@ -29,11 +29,15 @@ public class AllTests
         suite.addTestSuite(GCMSIVJavaAgreementTest.class);
         suite.addTestSuite(SHA256JavaAgreementTest.class);
         suite.addTestSuite(CCMJavaAgreementTest.class);
+        suite.addTestSuite(OCBJavaAgreementTest.class);
+        suite.addTestSuite(EAXJavaAgreementTest.class);
+        suite.addTestSuite(ByteBufferAgreementTest.class);
         suite.addTestSuite(SHA224JavaAgreementTest.class);
         suite.addTestSuite(SHA512JavaAgreementTest.class);
         suite.addTestSuite(SHA384JavaAgreementTest.class);
         suite.addTestSuite(SHA3JavaAgreementTest.class);
         suite.addTestSuite(SHAKEJavaAgreementTest.class);
+        suite.addTestSuite(ChaCha20Poly1305JavaAgreementTest.class);
 
         suite.addTestSuite(CBCNativeLimitTest.class);
         suite.addTestSuite(CFBNativeLimitTest.class);
@@ -42,11 +46,17 @@ public class AllTests
         suite.addTestSuite(GCMNativeLimitTest.class);
         suite.addTestSuite(GCMSIVNativeLimitTest.class);
         suite.addTestSuite(CCMNativeLimitTest.class);
+        suite.addTestSuite(OCBNativeLimitTest.class);
+        suite.addTestSuite(EAXNativeLimitTest.class);
+        suite.addTestSuite(ChaCha20Poly1305NativeLimitTest.class);
         suite.addTestSuite(NativeCBCPacketCipherLimitTest.class);
         suite.addTestSuite(NativeCCMPacketCipherLimitTest.class);
+        suite.addTestSuite(NativeChaCha20Poly1305PacketCipherLimitTest.class);
         suite.addTestSuite(NativeCFBPacketCipherLimitTest.class);
         suite.addTestSuite(NativeCTRPacketCipherLimitTest.class);
+        suite.addTestSuite(NativeEAXPacketCipherLimitTest.class);
         suite.addTestSuite(NativeGCMPacketCipherLimitTest.class);
+        suite.addTestSuite(NativeOCBPacketCipherLimitTest.class);
         suite.addTestSuite(NativeSIVPacketCipherLimitTest.class);
         suite.addTestSuite(SHA256NativeDigestTests.class);
         suite.addTestSuite(SHA224NativeDigestTests.class);
@@ -0,0 +1,345 @@
+package org.bouncycastle.crypto.engines;
+
+import java.nio.ByteBuffer;
+import java.nio.ReadOnlyBufferException;
+import java.security.SecureRandom;
+
+import junit.framework.TestCase;
+import org.bouncycastle.crypto.DataLengthException;
+import org.bouncycastle.crypto.OutputLengthException;
+import org.bouncycastle.crypto.modes.AEADCipher;
+import org.bouncycastle.crypto.modes.CBCBlockCipher;
+import org.bouncycastle.crypto.modes.CBCModeCipher;
+import org.bouncycastle.crypto.modes.CCMBlockCipher;
+import org.bouncycastle.crypto.modes.CFBBlockCipher;
+import org.bouncycastle.crypto.modes.CFBModeCipher;
+import org.bouncycastle.crypto.modes.CTRModeCipher;
+import org.bouncycastle.crypto.modes.GCMBlockCipher;
+import org.bouncycastle.crypto.modes.GCMSIVBlockCipher;
+import org.bouncycastle.crypto.modes.SICBlockCipher;
+import org.bouncycastle.crypto.params.AEADParameters;
+import org.bouncycastle.crypto.params.KeyParameter;
+import org.bouncycastle.crypto.params.ParametersWithIV;
+import org.bouncycastle.util.Arrays;
+
+/**
+ * Check the ByteBuffer methods on the mode ciphers agree with the byte[] methods for
+ * direct, heap and read-only input buffers, whichever implementation is loaded.
+ */
+public class ByteBufferAgreementTest
+    extends TestCase
+{
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private static final int[] LENGTHS = {0, 1, 15, 16, 17, 64, 1025};
+
+    public void testGCM()
+        throws Exception
+    {
+        for (int len : LENGTHS)
+        {
+            byte[] key = randomBytes(16);
+            byte[] nonce = randomBytes(12);
+            byte[] msg = randomBytes(len);
+            AEADParameters params = new AEADParameters(new KeyParameter(key), 128, nonce);
+
+            AEADCipher expectedCipher = GCMBlockCipher.newInstance(AESEngine.newInstance());
+            expectedCipher.init(true, params);
+            byte[] expected = aeadArray(expectedCipher, msg);
+
+            for (int kind = 0; kind != 3; kind++)
+            {
+                AEADCipher enc = GCMBlockCipher.newInstance(AESEngine.newInstance());
+                enc.init(true, params);
+                byte[] ct = aeadBuffer(enc, msg, kind);
+                assertTrue("GCM encrypt " + len + " " + kind, Arrays.areEqual(expected, ct));
+
+                AEADCipher dec = GCMBlockCipher.newInstance(AESEngine.newInstance());
+                dec.init(false, params);
+                assertTrue("GCM decrypt " + len + " " + kind, Arrays.areEqual(msg, aeadBuffer(dec, ct, kind)));
+            }
+        }
+    }
+
+    public void testCCM()
+        throws Exception
+    {
+        for (int len : LENGTHS)
+        {
+            byte[] key = randomBytes(16);
+            byte[] nonce = randomBytes(13);
+            byte[] msg = randomBytes(len);
+            AEADParameters params = new AEADParameters(new KeyParameter(key), 128, nonce);
+
+            AEADCipher expectedCipher = CCMBlockCipher.newInstance(AESEngine.newInstance());
+            expectedCipher.init(true, params);
+            byte[] expected = aeadArray(expectedCipher, msg);
+
+            for (int kind = 0; kind != 3; kind++)
+            {
+                AEADCipher enc = CCMBlockCipher.newInstance(AESEngine.newInstance());
+                enc.init(true, params);
+                byte[] ct = aeadBuffer(enc, msg, kind);
+                assertTrue("CCM encrypt " + len + " " + kind, Arrays.areEqual(expected, ct));
+
+                AEADCipher dec = CCMBlockCipher.newInstance(AESEngine.newInstance());
+                dec.init(false, params);
+                assertTrue("CCM decrypt " + len + " " + kind, Arrays.areEqual(msg, aeadBuffer(dec, ct, kind)));
+            }
+        }
+    }
+
+    public void testGCMSIV()
+        throws Exception
+    {
+        for (int len : LENGTHS)
+        {
+            byte[] key = randomBytes(16);
+            byte[] nonce = randomBytes(12);
+            byte[] msg = randomBytes(len);
+            AEADParameters params = new AEADParameters(new KeyParameter(key), 128, nonce);
+
+            AEADCipher expectedCipher = GCMSIVBlockCipher.newInstance(AESEngine.newInstance());
+            expectedCipher.init(true, params);
+            byte[] expected = aeadArray(expectedCipher, msg);
+
+            for (int kind = 0; kind != 3; kind++)
+            {
+                AEADCipher enc = GCMSIVBlockCipher.newInstance(AESEngine.newInstance());
+                enc.init(true, params);
+                byte[] ct = aeadBuffer(enc, msg, kind);
+                assertTrue("GCM-SIV encrypt " + len + " " + kind, Arrays.areEqual(expected, ct));
+
+                AEADCipher dec = GCMSIVBlockCipher.newInstance(AESEngine.newInstance());
+                dec.init(false, params);
+                assertTrue("GCM-SIV decrypt " + len + " " + kind, Arrays.areEqual(msg, aeadBuffer(dec, ct, kind)));
+            }
+        }
+    }
+
+    public void testCTR()
+    {
+        for (int len : LENGTHS)
+        {
+            ParametersWithIV params = new ParametersWithIV(new KeyParameter(randomBytes(16)), randomBytes(16));
+            byte[] msg = randomBytes(len);
+
+            CTRModeCipher expectedCipher = SICBlockCipher.newInstance(AESEngine.newInstance());
+            expectedCipher.init(true, params);
+            byte[] expected = new byte[len];
+            expectedCipher.processBytes(msg, 0, len, expected, 0);
+
+            for (int kind = 0; kind != 3; kind++)
+            {
+                CTRModeCipher ctr = SICBlockCipher.newInstance(AESEngine.newInstance());
+                ctr.init(true, params);
+                ByteBuffer in = wrap(msg, kind);
+                ByteBuffer out = allocate(len, kind);
+                assertEquals(len, ctr.processBytes(in, out));
+                assertEquals(0, in.remaining());
+                assertTrue("CTR " + len + " " + kind, Arrays.areEqual(expected, contents(out)));
+            }
+        }
+    }
+
+    public void testCFB()
+    {
+        for (int len : LENGTHS)
+        {
+            ParametersWithIV params = new ParametersWithIV(new KeyParameter(randomBytes(16)), randomBytes(16));
+            byte[] msg = randomBytes(len);
+
+            CFBModeCipher expectedCipher = CFBBlockCipher.newInstance(AESEngine.newInstance(), 128);
+            expectedCipher.init(true, params);
+            byte[] expected = new byte[len];
+            expectedCipher.processBytes(msg, 0, len, expected, 0);
+
+            for (int kind = 0; kind != 3; kind++)
+            {
+                CFBModeCipher enc = CFBBlockCipher.newInstance(AESEngine.newInstance(), 128);
+                enc.init(true, params);
+                ByteBuffer out = allocate(len, kind);
+                assertEquals(len, enc.processBytes(wrap(msg, kind), out));
+                assertTrue("CFB encrypt " + len + " " + kind, Arrays.areEqual(expected, contents(out)));
+
+                CFBModeCipher dec = CFBBlockCipher.newInstance(AESEngine.newInstance(), 128);
+                dec.init(false, params);
+                out = allocate(len, kind);
+                dec.processBytes(wrap(expected, kind), out);
+                assertTrue("CFB decrypt " + len + " " + kind, Arrays.areEqual(msg, contents(out)));
+            }
+        }
+    }
+
+    public void testCBC()
+    {
+        for (int blocks = 0; blocks != 5; blocks++)
+        {
+            int len = blocks * 16;
+            ParametersWithIV params = new ParametersWithIV(new KeyParameter(randomBytes(32)), randomBytes(16));
+            byte[] msg = randomBytes(len);
+
+            CBCModeCipher expectedCipher = CBCBlockCipher.newInstance(AESEngine.newInstance());
+            expectedCipher.init(true, params);
+            byte[] expected = new byte[len];
+            expectedCipher.processBlocks(msg, 0, blocks, expected, 0);
+
+            for (int kind = 0; kind != 3; kind++)
+            {
+                CBCModeCipher enc = CBCBlockCipher.newInstance(AESEngine.newInstance());
+                enc.init(true, params);
+                ByteBuffer out = allocate(len, kind);
+                assertEquals(len, enc.processBlocks(wrap(msg, kind), out));
+                assertTrue("CBC encrypt " + len + " " + kind, Arrays.areEqual(expected, contents(out)));
+
+                CBCModeCipher dec = CBCBlockCipher.newInstance(AESEngine.newInstance());
+                dec.init(false, params);
+                out = allocate(len, kind);
+                dec.processBlocks(wrap(expected, kind), out);
+                assertTrue("CBC decrypt " + len + " " + kind, Arrays.areEqual(msg, contents(out)));
+            }
+        }
+
+        CBCModeCipher cbc = CBCBlockCipher.newInstance(AESEngine.newInstance());
+        cbc.init(true, new ParametersWithIV(new KeyParameter(randomBytes(16)), randomBytes(16)));
+        try
+        {
+            cbc.processBlocks(ByteBuffer.allocateDirect(17), ByteBuffer.allocateDirect(32));
+            fail("partial block accepted");
+        }
+        catch (DataLengthException e)
+        {
+            // expected
+        }
+    }
+
+    public void testShortOutput()
+    {
+        CTRModeCipher ctr = SICBlockCipher.newInstance(AESEngine.newInstance());
+        ctr.init(true, new ParametersWithIV(new KeyParameter(randomBytes(16)), randomBytes(16)));
+        try
+        {
+            ctr.processBytes(ByteBuffer.allocateDirect(32), ByteBuffer.allocateDirect(31));
+            fail("short output accepted");
+        }
+        catch (OutputLengthException e)
+        {
+            // expected
+        }
+
+        try
+        {
+            ctr.processBytes(ByteBuffer.allocate(32), ByteBuffer.allocate(32).asReadOnlyBuffer());
+            fail("read only output accepted");
+        }
+        catch (ReadOnlyBufferException e)
+        {
+            // expected
+        }
+
+        AEADCipher gcm = GCMBlockCipher.newInstance(AESEngine.newInstance());
+        gcm.init(true, new AEADParameters(new KeyParameter(randomBytes(16)), 128, randomBytes(12)));
+        try
+        {
+            gcm.processBytes(ByteBuffer.allocateDirect(1024), ByteBuffer.allocateDirect(15));
+            fail("short GCM output accepted");
+        }
+        catch (OutputLengthException e)
+        {
+            // expected
+        }
+    }
+
+    public void testUninitialisedCCM()
+    {
+        if (!TestUtil.hasNativeService("AES/CCM"))
+        {
+            return;
+        }
+
+        AEADCipher ccm = CCMBlockCipher.newInstance(AESEngine.newInstance());
+        try
+        {
+            ccm.processBytes(ByteBuffer.allocateDirect(16), ByteBuffer.allocateDirect(32));
+            fail("uninitialised CCM accepted input");
+        }
+        catch (IllegalStateException e)
+        {
+            // expected
+        }
+    }
+
+    private static byte[] aeadArray(AEADCipher cipher, byte[] msg)
+        throws Exception
+    {
+        byte[] out = new byte[cipher.getOutputSize(msg.length)];
+        int len = cipher.processBytes(msg, 0, msg.length, out, 0);
+        len += cipher.doFinal(out, len);
+        return Arrays.copyOf(out, len);
+    }
+
+    private static byte[] aeadBuffer(AEADCipher cipher, byte[] msg, int kind)
+        throws Exception
+    {
+        ByteBuffer out = allocate(msg.length + 16, kind);
+        ByteBuffer in = wrap(msg, kind);
+
+        // feed the input in two pieces to exercise the buffering paths.
+        int split = msg.length / 3;
+        ByteBuffer first = in.duplicate();
+        first.limit(first.position() + split);
+        cipher.processBytes(first, out);
+        in.position(in.position() + split);
+        cipher.processBytes(in, out);
+        cipher.doFinal(out);
+
+        return contents(out);
+    }
+
+    /**
+     * kind 0 is a direct buffer, 1 a heap buffer at a non-zero array offset, 2 a read-only heap buffer.
+     */
+    private static ByteBuffer wrap(byte[] data, int kind)
+    {
+        ByteBuffer buf;
+        switch (kind)
+        {
+        case 0:
+            buf = ByteBuffer.allocateDirect(data.length + 3);
+            buf.position(3);
+            buf = buf.slice();
+            buf.put(data).flip();
+            return buf;
+        case 1:
+            buf = ByteBuffer.allocate(data.length + 5);
+            buf.position(5);
+            buf = buf.slice();
+            buf.put(data).flip();
+            return buf;
+        default:
+            return ByteBuffer.wrap(Arrays.clone(data)).asReadOnlyBuffer();
+        }
+    }
+
+    private static ByteBuffer allocate(int len, int kind)
+    {
+        ByteBuffer buf = (kind == 0) ? ByteBuffer.allocateDirect(len + 7) : ByteBuffer.allocate(len + 7);
+        buf.position(7);
+        return buf.slice();
+    }
+
+    private static byte[] contents(ByteBuffer out)
+    {
+        out.flip();
+        byte[] data = new byte[out.remaining()];
+        out.get(data);
+        return data;
+    }
+
+    private static byte[] randomBytes(int len)
+    {
+        byte[] data = new byte[len];
+        RANDOM.nextBytes(data);
+        return data;
+    }
+}
@@ -5,6 +5,7 @@ import java.security.SecureRandom;
 
 import junit.framework.TestCase;
 import org.bouncycastle.crypto.CryptoServicesRegistrar;
+import org.bouncycastle.crypto.InvalidCipherTextException;
 import org.bouncycastle.crypto.modes.CCMBlockCipher;
 import org.bouncycastle.crypto.modes.CCMModeCipher;
 import org.bouncycastle.crypto.params.AEADParameters;
@@ -483,6 +484,141 @@ public class CCMJavaAgreementTest extends TestCase
     }
 
 
+    /**
+     * A nonce only re-init (null key) keeps the native key schedule, it must give the same result as a
+     * fresh init with the full key, including after the key has been changed or passed again unchanged.
+     */
+    @Test
+    public void testNonceOnlyReinit() throws Exception
+    {
+        if (!TestUtil.hasNativeService("AES/CCM"))
+        {
+            if (!System.getProperty("test.bclts.ignore.native", "").contains("ccm"))
+            {
+                TestCase.fail("Skipping CCM Agreement Test: " + TestUtil.errorMsg());
+            }
+            return;
+        }
+
+        SecureRandom secureRandom = new SecureRandom();
+
+        for (int keySize : new int[]{16, 24, 32})
+        {
+            byte[] key = new byte[keySize];
+            secureRandom.nextBytes(key);
+
+            byte[] firstNonce = new byte[12];
+            secureRandom.nextBytes(firstNonce);
+
+            CryptoServicesRegistrar.setNativeEnabled(true);
+            CCMModeCipher nativeEnc = createOutputEncryptor(key, firstNonce, 128);
+            CCMModeCipher nativeDec = createOutputDecryptor(key, firstNonce, 128);
+            TestCase.assertTrue(nativeEnc.toString().contains("Native"));
+
+            for (int step = 0; step < 6; step++)
+            {
+                // step 2 changes the key, step 4 passes the current key again, the rest pass no key.
+                KeyParameter keyParam = null;
+                if (step == 2)
+                {
+                    key = new byte[keySize];
+                    secureRandom.nextBytes(key);
+                    keyParam = new KeyParameter(key);
+                }
+                else if (step == 4)
+                {
+                    keyParam = new KeyParameter(key);
+                }
+
+                byte[] nonce = new byte[12];
+                secureRandom.nextBytes(nonce);
+
+                byte[] aad = new byte[secureRandom.nextInt(40)];
+                secureRandom.nextBytes(aad);
+
+                byte[] msg = new byte[secureRandom.nextInt(200)];
+                secureRandom.nextBytes(msg);
+
+                nativeEnc.init(true, new AEADParameters(keyParam, 128, nonce));
+                nativeDec.init(false, new AEADParameters(keyParam, 128, nonce));
+                byte[] nativeCT = process(nativeEnc, aad, msg);
+
+                CryptoServicesRegistrar.setNativeEnabled(false);
+                CCMModeCipher javaEnc = createOutputEncryptor(key, nonce, 128);
+                TestCase.assertTrue(javaEnc.toString().contains("Java"));
+                byte[] javaCT = process(javaEnc, aad, msg);
+
+                CryptoServicesRegistrar.setNativeEnabled(true);
+                CCMModeCipher freshEnc = createOutputEncryptor(key, nonce, 128);
+                TestCase.assertTrue(freshEnc.toString().contains("Native"));
+                byte[] freshCT = process(freshEnc, aad, msg);
+
+                TestCase.assertTrue("step " + step, Arrays.areEqual(javaCT, nativeCT));
+                TestCase.assertTrue("step " + step, Arrays.areEqual(freshCT, nativeCT));
+                TestCase.assertTrue("step " + step, Arrays.areEqual(msg, process(nativeDec, aad, nativeCT)));
+            }
+        }
+    }
+
+    /**
+     * A null key is only a nonce change, so it cannot be used before a key has been supplied.
+     */
+    @Test
+    public void testNullKeyBeforeKey() throws Exception
+    {
+        if (!TestUtil.hasNativeService("AES/CCM"))
+        {
+            if (!System.getProperty("test.bclts.ignore.native", "").contains("ccm"))
+            {
+                TestCase.fail("Skipping CCM Agreement Test: " + TestUtil.errorMsg());
+            }
+            return;
+        }
+
+        CryptoServicesRegistrar.setNativeEnabled(true);
+
+        for (boolean forEncryption : new boolean[]{true, false})
+        {
+            CCMModeCipher c = CCMBlockCipher.newInstance(AESEngine.newInstance());
+            TestCase.assertTrue(c.toString().contains("Native"));
+
+            try
+            {
+                c.init(forEncryption, new AEADParameters(null, 128, new byte[12]));
+                TestCase.fail("null key accepted before any key");
+            }
+            catch (IllegalArgumentException e)
+            {
+                TestCase.assertEquals("key must be specified in initial init", e.getMessage());
+            }
+
+            // the failed init leaves the cipher usable once it is given a key
+            byte[] key = new byte[16];
+            byte[] nonce = new byte[12];
+            c.init(forEncryption, new AEADParameters(new KeyParameter(key), 128, nonce));
+            if (forEncryption)
+            {
+                CryptoServicesRegistrar.setNativeEnabled(false);
+                byte[] javaCT = process(createOutputEncryptor(key, nonce, 128), new byte[0], new byte[33]);
+                CryptoServicesRegistrar.setNativeEnabled(true);
+
+                TestCase.assertTrue(Arrays.areEqual(javaCT, process(c, new byte[0], new byte[33])));
+            }
+        }
+    }
+
+    private static byte[] process(CCMModeCipher c, byte[] aad, byte[] in) throws InvalidCipherTextException
+    {
+        c.processAADBytes(aad, 0, aad.length);
+
+        byte[] out = new byte[c.getOutputSize(in.length)];
+        int len = c.processBytes(in, 0, in.length, out, 0);
+        len += c.doFinal(out, len);
+        TestCase.assertEquals(out.length, len);
+
+        return out;
+    }
+
     private static CCMModeCipher createOutputEncryptor(byte[] key, byte[] iv, int macSize)
     {
 
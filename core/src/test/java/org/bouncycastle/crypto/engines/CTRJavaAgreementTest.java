@@ -975,6 +975,120 @@ public class CTRJavaAgreementTest extends TestCase
         }
     }
 
+    /**
+     * A nonce only re-init (null key) keeps the native key schedule, it must give the same result as a
+     * fresh init with the full key, including after the key has been changed or passed again unchanged.
+     */
+    @Test
+    public void testNonceOnlyReinit()
+    {
+        if (!TestUtil.hasNativeService("AES/CTR"))
+        {
+            if (!System.getProperty("test.bclts.ignore.native", "").contains("ctr"))
+            {
+                TestCase.fail("Skipping CTR spread test: " + TestUtil.errorMsg());
+            }
+            return;
+        }
+
+        SecureRandom rand = new SecureRandom();
+        for (int ks : new int[]{16, 24, 32})
+        {
+            byte[] key = new byte[ks];
+            rand.nextBytes(key);
+
+            byte[] firstIV = new byte[12];
+            rand.nextBytes(firstIV);
+
+            AESNativeCTR nativeEnc = new AESNativeCTR();
+            nativeEnc.init(true, new ParametersWithIV(new KeyParameter(key), firstIV));
+
+            for (int step = 0; step < 6; step++)
+            {
+                // step 2 changes the key, step 4 passes the current key again, the rest pass no key.
+                KeyParameter keyParam = null;
+                if (step == 2)
+                {
+                    key = new byte[ks];
+                    rand.nextBytes(key);
+                    keyParam = new KeyParameter(key);
+                }
+                else if (step == 4)
+                {
+                    keyParam = new KeyParameter(key);
+                }
+
+                byte[] iv = new byte[12];
+                rand.nextBytes(iv);
+
+                byte[] msg = new byte[rand.nextInt(200)];
+                rand.nextBytes(msg);
+
+                nativeEnc.init(true, new ParametersWithIV(keyParam, iv));
+                byte[] nct = new byte[msg.length];
+                nativeEnc.processBytes(msg, 0, msg.length, nct, 0);
+
+                SICBlockCipher javaEnc = new SICBlockCipher(new AESEngine());
+                javaEnc.init(true, new ParametersWithIV(new KeyParameter(key), iv));
+                byte[] jct = new byte[msg.length];
+                javaEnc.processBytes(msg, 0, msg.length, jct, 0);
+
+                AESNativeCTR freshEnc = new AESNativeCTR();
+                freshEnc.init(true, new ParametersWithIV(new KeyParameter(key), iv));
+                byte[] fct = new byte[msg.length];
+                freshEnc.processBytes(msg, 0, msg.length, fct, 0);
+
+                TestCase.assertTrue("step " + step, Arrays.areEqual(jct, nct));
+                TestCase.assertTrue("step " + step, Arrays.areEqual(fct, nct));
+            }
+        }
+    }
+
+    /**
+     * A null key is only an IV change, so it cannot be used before a key has been supplied.
+     */
+    @Test
+    public void testNullKeyBeforeKey()
+    {
+        if (!TestUtil.hasNativeService("AES/CTR"))
+        {
+            if (!System.getProperty("test.bclts.ignore.native", "").contains("ctr"))
+            {
+                TestCase.fail("Skipping CTR spread test: " + TestUtil.errorMsg());
+            }
+            return;
+        }
+
+        for (boolean forEncryption : new boolean[]{true, false})
+        {
+            AESNativeCTR nativeCtr = new AESNativeCTR();
+            try
+            {
+                nativeCtr.init(forEncryption, new ParametersWithIV(null, new byte[12]));
+                TestCase.fail("null key accepted before any key");
+            }
+            catch (IllegalArgumentException e)
+            {
+                TestCase.assertEquals("cannot replace iv unless key was previously supplied", e.getMessage());
+            }
+
+            // the failed init leaves the cipher usable once it is given a key
+            ParametersWithIV params = new ParametersWithIV(new KeyParameter(new byte[16]), new byte[12]);
+            nativeCtr.init(forEncryption, params);
+
+            SICBlockCipher javaCtr = new SICBlockCipher(new AESEngine());
+            javaCtr.init(forEncryption, params);
+
+            byte[] msg = new byte[33];
+            byte[] nout = new byte[msg.length];
+            byte[] jout = new byte[msg.length];
+            nativeCtr.processBytes(msg, 0, msg.length, nout, 0);
+            javaCtr.processBytes(msg, 0, msg.length, jout, 0);
+
+            TestCase.assertTrue(Arrays.areEqual(jout, nout));
+        }
+    }
+
     @Test
     public void testBlock()
     {
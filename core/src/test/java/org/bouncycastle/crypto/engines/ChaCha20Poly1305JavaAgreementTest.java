@@ -0,0 +1,282 @@
+package org.bouncycastle.crypto.engines;
+
+import junit.framework.TestCase;
+import org.bouncycastle.crypto.CryptoServicesRegistrar;
+import org.bouncycastle.crypto.InvalidCipherTextException;
+import org.bouncycastle.crypto.NativeServices;
+import org.bouncycastle.crypto.modes.AEADCipher;
+import org.bouncycastle.crypto.modes.ChaCha20Poly1305;
+import org.bouncycastle.crypto.params.AEADParameters;
+import org.bouncycastle.crypto.params.KeyParameter;
+import org.bouncycastle.crypto.params.ParametersWithIV;
+import org.bouncycastle.util.Arrays;
+import org.bouncycastle.util.encoders.Hex;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.security.SecureRandom;
+
+public class ChaCha20Poly1305JavaAgreementTest extends TestCase
+{
+
+    private static final String BCFIPS_LIB_CPU_VARIANT = "org.bouncycastle.native.cpu_variant";
+
+    @Before
+    public void setUp()
+    {
+        String forcedVariant = System.getProperty(BCFIPS_LIB_CPU_VARIANT);
+        if (forcedVariant != null)
+        {
+
+            if (!forcedVariant.equals(CryptoServicesRegistrar.getNativeServices().getLibraryIdent()))
+            {
+                throw new RuntimeException("Forced variant not the same as loaded variant: " + forcedVariant + " " + CryptoServicesRegistrar.getNativeServices().getVariant());
+            }
+        }
+
+    }
+
+    @After
+    public void tearDown()
+    {
+        CryptoServicesRegistrar.setNativeEnabled(true);
+    }
+
+
+    static boolean skipIfNotSupported()
+    {
+        NativeServices nativeServices = CryptoServicesRegistrar.getNativeServices();
+        if (!nativeServices.hasService(NativeServices.CHACHA20_POLY1305))
+        {
+            if (!System.getProperty("test.bclts.ignore.native", "").contains("chacha"))
+            {
+                fail("no native chacha20-poly1305 and no skip set for it");
+                return false;
+            }
+            System.out.println("Skipping ChaCha20-Poly1305 native agreement test: " + CryptoServicesRegistrar.isNativeEnabled());
+            return true;
+        }
+        return false;
+    }
+
+
+    private static AEADCipher createCipher(boolean forEncryption, byte[] key, byte[] nonce, byte[] aad,
+                                           boolean expectNative)
+    {
+        AEADCipher cipher = ChaCha20Poly1305.newInstance();
+
+        if (expectNative)
+        {
+            TestCase.assertTrue("Native implementation expected", cipher.toString().contains("ChaCha20Poly1305[Native]"));
+        }
+        else
+        {
+            TestCase.assertTrue("Java implementation expected", cipher.toString().contains("ChaCha20Poly1305[Java]"));
+        }
+
+        cipher.init(forEncryption, new AEADParameters(new KeyParameter(key), 128, nonce, aad));
+        return cipher;
+    }
+
+    /**
+     * Feed the input in randomly sized pieces, mixing in the AAD first.
+     */
+    private static byte[] process(AEADCipher cipher, byte[] aad, byte[] in, SecureRandom random)
+        throws InvalidCipherTextException
+    {
+        int pos = 0;
+        while (pos < aad.length)
+        {
+            int len = Math.min(aad.length - pos, random.nextInt(67));
+            cipher.processAADBytes(aad, pos, len);
+            pos += len;
+        }
+
+        byte[] out = new byte[cipher.getOutputSize(in.length)];
+        int j = 0;
+        pos = 0;
+        while (pos < in.length)
+        {
+            int len = Math.min(in.length - pos, random.nextInt(300));
+            j += cipher.processBytes(in, pos, len, out, j);
+            pos += len;
+        }
+        j += cipher.doFinal(out, j);
+
+        TestCase.assertEquals(out.length, j);
+        return out;
+    }
+
+    @Test
+    public void testRFC8439()
+        throws Exception
+    {
+        if (skipIfNotSupported())
+        {
+            return;
+        }
+
+        // RFC 8439 2.8.2
+        byte[] key = Hex.decode("808182838485868788898a8b8c8d8e8f909192939495969798999a9b9c9d9e9f");
+        byte[] nonce = Hex.decode("070000004041424344454647");
+        byte[] aad = Hex.decode("50515253c0c1c2c3c4c5c6c7");
+        byte[] pt = ("Ladies and Gentlemen of the class of '99: If I could offer you only one tip for the future, "
+            + "sunscreen would be it.").getBytes("US-ASCII");
+        byte[] expected = Hex.decode("d31a8d34648e60db7b86afbc53ef7ec2a4aded51296e08fea9e2b5a736ee62d63dbea45e8ca96712"
+            + "82fafb69da92728b1a71de0a9e060b2905d6a5b67ecd3b3692ddbd7f2d778b8c9803aee328091b58fab324e4fad675945585808b"
+            + "4831d7bc3ff4def08e4b7a9de576d26586cec64b61161ae10b594f09e26a7e902ecbd0600691");
+
+        AEADCipher enc = createCipher(true, key, nonce, aad, true);
+        byte[] ct = new byte[enc.getOutputSize(pt.length)];
+        int j = enc.processBytes(pt, 0, pt.length, ct, 0);
+        enc.doFinal(ct, j);
+        TestCase.assertTrue("native CT did not match", Arrays.areEqual(expected, ct));
+        TestCase.assertTrue("mac did not match",
+            Arrays.areEqual(Arrays.copyOfRange(expected, pt.length, expected.length), enc.getMac()));
+
+        AEADCipher dec = createCipher(false, key, nonce, aad, true);
+        byte[] out = new byte[dec.getOutputSize(ct.length)];
+        j = dec.processBytes(ct, 0, ct.length, out, 0);
+        dec.doFinal(out, j);
+        TestCase.assertTrue("native PT did not match", Arrays.areEqual(pt, out));
+    }
+
+    @Test
+    public void testAgreement()
+        throws Exception
+    {
+        if (skipIfNotSupported())
+        {
+            return;
+        }
+
+        SecureRandom random = new SecureRandom();
+
+        for (int t = 0; t < 2000; t++)
+        {
+            byte[] key = new byte[32];
+            random.nextBytes(key);
+            byte[] nonce = new byte[12];
+            random.nextBytes(nonce);
+            byte[] aad = new byte[random.nextInt(100)];
+            random.nextBytes(aad);
+            byte[] msg = new byte[random.nextInt(2048)];
+            random.nextBytes(msg);
+
+            CryptoServicesRegistrar.setNativeEnabled(false);
+            byte[] javaCT = process(createCipher(true, key, nonce, null, false), aad, msg, random);
+
+            CryptoServicesRegistrar.setNativeEnabled(true);
+            byte[] nativeCT = process(createCipher(true, key, nonce, null, true), aad, msg, random);
+
+            if (!Arrays.areEqual(javaCT, nativeCT))
+            {
+                System.out.println("Java:   " + Hex.toHexString(javaCT));
+                System.out.println("Native: " + Hex.toHexString(nativeCT));
+                TestCase.fail("native CT did not match java CT, length " + msg.length);
+            }
+
+            byte[] pt = process(createCipher(false, key, nonce, null, true), aad, nativeCT, random);
+            TestCase.assertTrue("native PT did not match", Arrays.areEqual(msg, pt));
+        }
+    }
+
+    @Test
+    public void testInitialAADAndReset()
+        throws Exception
+    {
+        if (skipIfNotSupported())
+        {
+            return;
+        }
+
+        SecureRandom random = new SecureRandom();
+        byte[] key = new byte[32];
+        random.nextBytes(key);
+        byte[] nonce = new byte[12];
+        random.nextBytes(nonce);
+        byte[] aad = new byte[21];
+        random.nextBytes(aad);
+        byte[] msg = new byte[333];
+        random.nextBytes(msg);
+
+        CryptoServicesRegistrar.setNativeEnabled(false);
+        byte[] javaCT = process(createCipher(true, key, nonce, aad, false), new byte[0], msg, random);
+
+        CryptoServicesRegistrar.setNativeEnabled(true);
+        AEADCipher dec = createCipher(false, key, nonce, aad, true);
+
+        // a reset after decryption replays the initial AAD.
+        for (int i = 0; i < 3; i++)
+        {
+            byte[] pt = process(dec, new byte[0], javaCT, random);
+            TestCase.assertTrue("native PT did not match", Arrays.areEqual(msg, pt));
+            dec.reset();
+        }
+
+        // as the Java version encryption cannot continue after doFinal without a new nonce.
+        AEADCipher enc = createCipher(true, key, nonce, aad, true);
+        process(enc, new byte[0], msg, random);
+        try
+        {
+            enc.processBytes(msg, 0, msg.length, new byte[msg.length], 0);
+            fail("expected exception");
+        }
+        catch (IllegalStateException e)
+        {
+            TestCase.assertEquals("ChaCha20Poly1305 cannot be reused for encryption", e.getMessage());
+        }
+
+        try
+        {
+            enc.init(true, new ParametersWithIV(null, nonce));
+            fail("expected exception");
+        }
+        catch (IllegalArgumentException e)
+        {
+            TestCase.assertEquals("cannot reuse nonce for ChaCha20Poly1305 encryption", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testTamperedInput()
+        throws Exception
+    {
+        if (skipIfNotSupported())
+        {
+            return;
+        }
+
+        SecureRandom random = new SecureRandom();
+        byte[] key = new byte[32];
+        random.nextBytes(key);
+        byte[] nonce = new byte[12];
+        random.nextBytes(nonce);
+        byte[] msg = new byte[100];
+        random.nextBytes(msg);
+
+        byte[] ct = process(createCipher(true, key, nonce, null, true), new byte[0], msg, random);
+        ct[random.nextInt(ct.length)] ^= 1;
+
+        try
+        {
+            process(createCipher(false, key, nonce, null, true), new byte[0], ct, random);
+            fail("expected exception");
+        }
+        catch (InvalidCipherTextException e)
+        {
+            TestCase.assertEquals("mac check in ChaCha20Poly1305 failed", e.getMessage());
+        }
+
+        try
+        {
+            process(createCipher(false, key, nonce, null, true), new byte[0], new byte[15], random);
+            fail("expected exception");
+        }
+        catch (InvalidCipherTextException e)
+        {
+            TestCase.assertEquals("data too short", e.getMessage());
+        }
+    }
+}
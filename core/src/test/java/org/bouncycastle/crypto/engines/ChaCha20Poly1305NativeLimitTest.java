@@ -0,0 +1,573 @@
+package org.bouncycastle.crypto.engines;
+
+import junit.framework.TestCase;
+import org.bouncycastle.crypto.CryptoServicesRegistrar;
+import org.bouncycastle.crypto.InvalidCipherTextException;
+import org.bouncycastle.crypto.NativeServices;
+import org.bouncycastle.crypto.OutputLengthException;
+import org.junit.Test;
+
+public class ChaCha20Poly1305NativeLimitTest
+        extends TestCase
+{
+
+    static boolean skipIfNotSupported()
+    {
+        NativeServices nativeServices = CryptoServicesRegistrar.getNativeServices();
+        if (!nativeServices.hasService(NativeServices.CHACHA20_POLY1305))
+        {
+            if (!System.getProperty("test.bclts.ignore.native", "").contains("chacha"))
+            {
+                fail("no native chacha20poly1305 and no skip set for it");
+                return false;
+            }
+            System.out.println("Skipping ChaCha20Poly1305 native limit test: "
+                    + CryptoServicesRegistrar.isNativeEnabled());
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Test the jni layer throws exceptions as required for broken init parameters.
+     * This bypasses the java layer and passes the parameters to the jni layer directly.
+     */
+    @Test
+    public void testInitNative()
+            throws Exception
+    {
+        if (skipIfNotSupported())
+        {
+            return;
+        }
+
+        new ChaCha20Poly1305Native()
+        {
+            {
+                long ref = makeInstance();
+                try
+                {
+                    try
+                    {
+                        initNative(ref, true, null, new byte[12], null);
+                        fail("null key");
+                    }
+                    catch (Exception ex)
+                    {
+                        assertTrue(ex instanceof NullPointerException);
+                        assertTrue(ex.getMessage().contains("key was null"));
+                    }
+
+                    for (int keyLen : new int[]{0, 16, 31, 33})
+                    {
+                        try
+                        {
+                            initNative(ref, true, new byte[keyLen], new byte[12], null);
+                            fail("invalid key len " + keyLen);
+                        }
+                        catch (Exception ex)
+                        {
+                            assertTrue(ex.getMessage().contains("Key must be 256 bits"));
+                        }
+                    }
+
+                    try
+                    {
+                        initNative(ref, true, new byte[32], null, null);
+                        fail("null nonce");
+                    }
+                    catch (Exception ex)
+                    {
+                        assertTrue(ex instanceof NullPointerException);
+                        assertTrue(ex.getMessage().contains("nonce was null"));
+                    }
+
+                    for (int nonceLen : new int[]{0, 8, 11, 13, 24})
+                    {
+                        try
+                        {
+                            initNative(ref, true, new byte[32], new byte[nonceLen], null);
+                            fail("invalid nonce len " + nonceLen);
+                        }
+                        catch (Exception ex)
+                        {
+                            assertTrue(ex.getMessage().contains("Nonce must be 96 bits"));
+                        }
+                    }
+
+                    // Valid
+                    initNative(ref, true, new byte[32], new byte[12], null);
+                    initNative(ref, false, new byte[32], new byte[12], new byte[0]);
+                    initNative(ref, false, new byte[32], new byte[12], new byte[65]);
+                }
+                finally
+                {
+                    dispose(ref);
+                }
+            }
+        };
+    }
+
+    @Test
+    public void testAADBytes()
+            throws Exception
+    {
+        if (skipIfNotSupported())
+        {
+            return;
+        }
+
+        new ChaCha20Poly1305Native()
+        {
+            {
+                long ref = makeInstance();
+                try
+                {
+                    // Not initialised
+                    try
+                    {
+                        processAADBytes(ref, new byte[10], 0, 10);
+                        fail("not initialised");
+                    }
+                    catch (Exception ex)
+                    {
+                        assertTrue(ex instanceof IllegalStateException);
+                        assertTrue(ex.getMessage().contains("needs to be initialised"));
+                    }
+
+                    initNative(ref, true, new byte[32], new byte[12], null);
+
+                    try
+                    {
+                        processAADBytes(ref, null, 0, 0);
+                        fail("null aad array");
+                    }
+                    catch (Exception ex)
+                    {
+                        assertTrue(ex instanceof NullPointerException);
+                        assertTrue(ex.getMessage().contains("aad was null"));
+                    }
+
+                    try
+                    {
+                        processAADBytes(ref, new byte[0], -1, 0);
+                        fail("negative aad offset");
+                    }
+                    catch (Exception ex)
+                    {
+                        assertTrue(ex.getMessage().contains("offset is negative"));
+                    }
+
+                    try
+                    {
+                        processAADBytes(ref, new byte[0], 0, -1);
+                        fail("negative aad len");
+                    }
+                    catch (Exception ex)
+                    {
+                        assertTrue(ex.getMessage().contains("len is negative"));
+                    }
+
+                    try
+                    {
+                        processAADBytes(ref, new byte[10], 1, 10);
+                        fail("len + offset too long");
+                    }
+                    catch (Exception ex)
+                    {
+                        assertTrue(ex.getMessage().contains("array too short for offset + len"));
+                    }
+
+                    try
+                    {
+                        processAADBytes(ref, new byte[10], 0, Integer.MAX_VALUE);
+                        fail("len too long");
+                    }
+                    catch (Exception ex)
+                    {
+                        assertTrue(ex.getMessage().contains("array too short for offset + len"));
+                    }
+
+                    try
+                    {
+                        processAADBytes(ref, new byte[10], Integer.MAX_VALUE, 10);
+                        fail("offset + len overflows");
+                    }
+                    catch (Exception ex)
+                    {
+                        assertTrue(ex.getMessage().contains("array too short for offset + len"));
+                    }
+
+                    processAADBytes(ref, new byte[10], 0, 10);
+                    processBytes(ref, new byte[1], 0, 1, null, 0);
+
+                    try
+                    {
+                        processAADBytes(ref, new byte[10], 0, 10);
+                        fail("aad after data");
+                    }
+                    catch (Exception ex)
+                    {
+                        assertTrue(ex instanceof IllegalStateException);
+                        assertTrue(ex.getMessage().contains("AAD cannot be processed after data"));
+                    }
+                }
+                finally
+                {
+                    dispose(ref);
+                }
+            }
+        };
+    }
+
+    @Test
+    public void testProcessBytes()
+            throws Exception
+    {
+        if (skipIfNotSupported())
+        {
+            return;
+        }
+
+        new ChaCha20Poly1305Native()
+        {
+            {
+                long ref = makeInstance();
+                try
+                {
+                    try
+                    {
+                        processBytes(ref, new byte[16], 0, 16, new byte[16], 0);
+                        fail("not initialised");
+                    }
+                    catch (Exception ex)
+                    {
+                        assertTrue(ex instanceof IllegalStateException);
+                        assertTrue(ex.getMessage().contains("needs to be initialised"));
+                    }
+
+                    initNative(ref, true, new byte[32], new byte[12], null);
+
+                    try
+                    {
+                        processBytes(ref, null, 0, 1, new byte[16], 0);
+                        fail("accepted null input array");
+                    }
+                    catch (Exception ex)
+                    {
+                        assertTrue(ex instanceof NullPointerException);
+                        assertTrue(ex.getMessage().contains("input was null"));
+                    }
+
+                    try
+                    {
+                        processBytes(ref, new byte[0], -1, 1, new byte[0], 0);
+                        fail("accepted negative in offset");
+                    }
+                    catch (Exception ex)
+                    {
+                        assertTrue(ex.getMessage().contains("offset is negative"));
+                    }
+
+                    try
+                    {
+                        processBytes(ref, new byte[0], 0, -1, new byte[0], 0);
+                        fail("accepted negative len");
+                    }
+                    catch (Exception ex)
+                    {
+                        assertTrue(ex.getMessage().contains("len is negative"));
+                    }
+
+                    try
+                    {
+                        processBytes(ref, new byte[1], 0, 1, new byte[0], -1);
+                        fail("accepted negative out offset");
+                    }
+                    catch (Exception ex)
+                    {
+                        assertTrue(ex.getMessage().contains("output offset is negative"));
+                    }
+
+                    try
+                    {
+                        processBytes(ref, new byte[1], 0, 1, new byte[16], 17);
+                        fail("accepted out offset past end");
+                    }
+                    catch (Exception ex)
+                    {
+                        assertTrue(ex.getMessage().contains("offset past end of array"));
+                    }
+
+                    try
+                    {
+                        processBytes(ref, new byte[10], 1, 10, new byte[16], 0);
+                        fail("in offset + len > in len");
+                    }
+                    catch (Exception ex)
+                    {
+                        assertTrue(ex.getMessage().contains("array too short for offset + len"));
+                    }
+
+                    try
+                    {
+                        processBytes(ref, new byte[10], 0, Integer.MAX_VALUE, new byte[16], 0);
+                        fail("len > in len");
+                    }
+                    catch (Exception ex)
+                    {
+                        assertTrue(ex.getMessage().contains("array too short for offset + len"));
+                    }
+
+                    try
+                    {
+                        processBytes(ref, new byte[10], Integer.MAX_VALUE, 10, new byte[16], 0);
+                        fail("in offset + len overflows");
+                    }
+                    catch (Exception ex)
+                    {
+                        assertTrue(ex.getMessage().contains("array too short for offset + len"));
+                    }
+
+                    try
+                    {
+                        processBytes(ref, new byte[64], 0, 64, new byte[63], 0);
+                        fail("output too short");
+                    }
+                    catch (Exception ex)
+                    {
+                        assertTrue(ex instanceof OutputLengthException);
+                        assertTrue(ex.getMessage().contains("Output buffer too short"));
+                    }
+
+                    try
+                    {
+                        processBytes(ref, new byte[64], 0, 64, new byte[64], 1);
+                        fail("output too short for offset");
+                    }
+                    catch (Exception ex)
+                    {
+                        assertTrue(ex instanceof OutputLengthException);
+                        assertTrue(ex.getMessage().contains("Output buffer too short"));
+                    }
+
+                    try
+                    {
+                        processBytes(ref, new byte[64], 0, 64, null, 0);
+                        fail("null output when output produced");
+                    }
+                    catch (Exception ex)
+                    {
+                        assertTrue(ex instanceof OutputLengthException);
+                        assertTrue(ex.getMessage().contains("Output buffer too short"));
+                    }
+
+                    // Partial block, nothing produced so a null output is fine.
+                    assertEquals(0, processBytes(ref, new byte[63], 0, 63, null, 0));
+                    assertEquals(64, processBytes(ref, new byte[1], 0, 1, new byte[64], 0));
+                }
+                finally
+                {
+                    dispose(ref);
+                }
+            }
+        };
+    }
+
+    @Test
+    public void testDoFinal()
+            throws Exception
+    {
+        if (skipIfNotSupported())
+        {
+            return;
+        }
+
+        new ChaCha20Poly1305Native()
+        {
+            {
+                long ref = makeInstance();
+                try
+                {
+                    try
+                    {
+                        doFinal(ref, new byte[16], 0);
+                        fail("not initialised");
+                    }
+                    catch (Exception ex)
+                    {
+                        assertTrue(ex instanceof IllegalStateException);
+                        assertTrue(ex.getMessage().contains("needs to be initialised"));
+                    }
+
+                    initNative(ref, true, new byte[32], new byte[12], null);
+
+                    try
+                    {
+                        doFinal(ref, null, 0);
+                        fail("null output");
+                    }
+                    catch (Exception ex)
+                    {
+                        assertTrue(ex instanceof NullPointerException);
+                        assertTrue(ex.getMessage().contains("output was null"));
+                    }
+
+                    try
+                    {
+                        doFinal(ref, new byte[16], -1);
+                        fail("negative offset");
+                    }
+                    catch (Exception ex)
+                    {
+                        assertTrue(ex.getMessage().contains("offset is negative"));
+                    }
+
+                    try
+                    {
+                        doFinal(ref, new byte[16], 17);
+                        fail("offset past end");
+                    }
+                    catch (Exception ex)
+                    {
+                        assertTrue(ex.getMessage().contains("offset past end of array"));
+                    }
+
+                    // Five buffered bytes and a 16 byte tag.
+                    processBytes(ref, new byte[5], 0, 5, null, 0);
+                    try
+                    {
+                        doFinal(ref, new byte[21], 1);
+                        fail("output too short");
+                    }
+                    catch (Exception ex)
+                    {
+                        assertTrue(ex instanceof OutputLengthException);
+                        assertTrue(ex.getMessage().contains("Output buffer too short"));
+                    }
+
+                    assertEquals(21, doFinal(ref, new byte[21], 0));
+
+                    // The key and nonce have been used for encryption.
+                    try
+                    {
+                        processBytes(ref, new byte[5], 0, 5, null, 0);
+                        fail("key and nonce reused");
+                    }
+                    catch (Exception ex)
+                    {
+                        assertTrue(ex instanceof IllegalStateException);
+                        assertTrue(ex.getMessage().contains("cannot be reused for encryption"));
+                    }
+
+                    initNative(ref, false, new byte[32], new byte[12], null);
+                    processBytes(ref, new byte[15], 0, 15, null, 0);
+                    try
+                    {
+                        doFinal(ref, new byte[16], 0);
+                        fail("cipher text shorter than the tag");
+                    }
+                    catch (Exception ex)
+                    {
+                        assertTrue(ex instanceof InvalidCipherTextException);
+                        assertTrue(ex.getMessage().contains("data too short"));
+                    }
+
+                    initNative(ref, false, new byte[32], new byte[12], null);
+                    processBytes(ref, new byte[20], 0, 20, null, 0);
+                    try
+                    {
+                        doFinal(ref, new byte[3], 0);
+                        fail("output too short for decryption");
+                    }
+                    catch (Exception ex)
+                    {
+                        assertTrue(ex instanceof OutputLengthException);
+                        assertTrue(ex.getMessage().contains("Output buffer too short"));
+                    }
+
+                    try
+                    {
+                        doFinal(ref, new byte[4], 0);
+                        fail("tag check");
+                    }
+                    catch (Exception ex)
+                    {
+                        assertTrue(ex instanceof InvalidCipherTextException);
+                        assertTrue(ex.getMessage().contains("mac check in ChaCha20Poly1305 failed"));
+                    }
+                }
+                finally
+                {
+                    dispose(ref);
+                }
+            }
+        };
+    }
+
+    @Test
+    public void testOutputSize()
+            throws Exception
+    {
+        if (skipIfNotSupported())
+        {
+            return;
+        }
+
+        new ChaCha20Poly1305Native()
+        {
+            {
+                long ref = makeInstance();
+                try
+                {
+                    try
+                    {
+                        getOutputSize(ref, 10);
+                        fail("not initialised");
+                    }
+                    catch (Exception ex)
+                    {
+                        assertTrue(ex instanceof IllegalStateException);
+                        assertTrue(ex.getMessage().contains("not in a state to process data"));
+                    }
+
+                    initNative(ref, true, new byte[32], new byte[12], null);
+
+                    try
+                    {
+                        getOutputSize(ref, -1);
+                        fail("negative len");
+                    }
+                    catch (Exception ex)
+                    {
+                        assertTrue(ex.getMessage().contains("len is negative"));
+                    }
+
+                    try
+                    {
+                        getUpdateOutputSize(ref, -1);
+                        fail("negative len");
+                    }
+                    catch (Exception ex)
+                    {
+                        assertTrue(ex.getMessage().contains("len is negative"));
+                    }
+
+                    assertEquals(48, getOutputSize(ref, 32));
+                    assertEquals(64, getUpdateOutputSize(ref, 127));
+                    assertEquals(0, getUpdateOutputSize(ref, 63));
+
+                    initNative(ref, false, new byte[32], new byte[12], null);
+                    assertEquals(32, getOutputSize(ref, 48));
+                    assertEquals(0, getOutputSize(ref, 11));
+                    assertEquals(64, getUpdateOutputSize(ref, 80));
+                    assertEquals(0, getUpdateOutputSize(ref, 79));
+                }
+                finally
+                {
+                    dispose(ref);
+                }
+            }
+        };
+    }
+}
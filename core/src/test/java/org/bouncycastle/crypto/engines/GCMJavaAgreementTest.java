@@ -355,6 +355,63 @@ public class GCMJavaAgreementTest extends TestCase
         }
     }
 
+    /**
+     * Decryption fed in uneven chunks, exercises the carry over of the held back
+     * bytes between calls in the native implementation.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testGCMChunkedDecryptAgreement() throws Exception
+    {
+        if (!TestUtil.hasNativeService("AES/GCM"))
+        {
+            if (!System.getProperty("test.bclts.ignore.native", "").contains("gcm"))
+            {
+                TestCase.fail("Skipping GCM Chunked Decrypt Agreement: " + TestUtil.errorMsg());
+            }
+            return;
+        }
+
+        SecureRandom rand = new SecureRandom();
+
+        for (int t = 0; t < 2000; t++)
+        {
+            byte[] key = new byte[16 + 8 * rand.nextInt(3)];
+            rand.nextBytes(key);
+            byte[] iv = new byte[12];
+            rand.nextBytes(iv);
+            byte[] msg = new byte[rand.nextInt(2048)];
+            rand.nextBytes(msg);
+
+            CryptoServicesRegistrar.setNativeEnabled(false);
+            GCMModeCipher javaEnc = createOutputEncryptor(key, iv, 128);
+            ByteArrayOutputStream javaCt = new ByteArrayOutputStream();
+            writeAllAndClose(msg, javaCt, javaEnc);
+            byte[] ct = javaCt.toByteArray();
+
+            CryptoServicesRegistrar.setNativeEnabled(true);
+            GCMModeCipher nativeDec = createOutputDecryptor(key, iv, 128);
+
+            byte[] pt = new byte[nativeDec.getOutputSize(ct.length)];
+            int i = 0;
+            int j = 0;
+            while (i < ct.length)
+            {
+                int len = Math.min(ct.length - i, 1 + rand.nextInt(600));
+                int expected = nativeDec.getUpdateOutputSize(len);
+                int written = nativeDec.processBytes(ct, i, len, pt, j);
+                TestCase.assertEquals("update output size", expected, written);
+                i += len;
+                j += written;
+            }
+            j += nativeDec.doFinal(pt, j);
+
+            TestCase.assertEquals(msg.length, j);
+            TestCase.assertTrue("plain text", Arrays.areEqual(msg, pt));
+        }
+    }
+
     // 36864
 
 
@@ -418,6 +475,141 @@ public class GCMJavaAgreementTest extends TestCase
         doTest(32);
     }
 
+    /**
+     * A nonce only re-init (null key) keeps the native key schedule, it must give the same result as a
+     * fresh init with the full key, including after the key has been changed or passed again unchanged.
+     */
+    @Test
+    public void testNonceOnlyReinit() throws Exception
+    {
+        if (!TestUtil.hasNativeService("AES/GCM"))
+        {
+            if (!System.getProperty("test.bclts.ignore.native", "").contains("gcm"))
+            {
+                TestCase.fail("Skipping GCM Agreement Test: " + TestUtil.errorMsg());
+            }
+            return;
+        }
+
+        SecureRandom secureRandom = new SecureRandom();
+
+        for (int keySize : new int[]{16, 24, 32})
+        {
+            byte[] key = new byte[keySize];
+            secureRandom.nextBytes(key);
+
+            byte[] firstNonce = new byte[12];
+            secureRandom.nextBytes(firstNonce);
+
+            CryptoServicesRegistrar.setNativeEnabled(true);
+            GCMModeCipher nativeEnc = createOutputEncryptor(key, firstNonce, 128);
+            GCMModeCipher nativeDec = createOutputDecryptor(key, firstNonce, 128);
+            TestCase.assertTrue(nativeEnc.toString().contains("Native"));
+
+            for (int step = 0; step < 6; step++)
+            {
+                // step 2 changes the key, step 4 passes the current key again, the rest pass no key.
+                KeyParameter keyParam = null;
+                if (step == 2)
+                {
+                    key = new byte[keySize];
+                    secureRandom.nextBytes(key);
+                    keyParam = new KeyParameter(key);
+                }
+                else if (step == 4)
+                {
+                    keyParam = new KeyParameter(key);
+                }
+
+                byte[] nonce = new byte[12];
+                secureRandom.nextBytes(nonce);
+
+                byte[] aad = new byte[secureRandom.nextInt(40)];
+                secureRandom.nextBytes(aad);
+
+                byte[] msg = new byte[secureRandom.nextInt(200)];
+                secureRandom.nextBytes(msg);
+
+                nativeEnc.init(true, new AEADParameters(keyParam, 128, nonce));
+                nativeDec.init(false, new AEADParameters(keyParam, 128, nonce));
+                byte[] nativeCT = process(nativeEnc, aad, msg);
+
+                CryptoServicesRegistrar.setNativeEnabled(false);
+                GCMModeCipher javaEnc = createOutputEncryptor(key, nonce, 128);
+                TestCase.assertTrue(javaEnc.toString().contains("Java"));
+                byte[] javaCT = process(javaEnc, aad, msg);
+
+                CryptoServicesRegistrar.setNativeEnabled(true);
+                GCMModeCipher freshEnc = createOutputEncryptor(key, nonce, 128);
+                TestCase.assertTrue(freshEnc.toString().contains("Native"));
+                byte[] freshCT = process(freshEnc, aad, msg);
+
+                TestCase.assertTrue("step " + step, Arrays.areEqual(javaCT, nativeCT));
+                TestCase.assertTrue("step " + step, Arrays.areEqual(freshCT, nativeCT));
+                TestCase.assertTrue("step " + step, Arrays.areEqual(msg, process(nativeDec, aad, nativeCT)));
+            }
+        }
+    }
+
+    /**
+     * A null key is only a nonce change, so it cannot be used before a key has been supplied.
+     */
+    @Test
+    public void testNullKeyBeforeKey() throws Exception
+    {
+        if (!TestUtil.hasNativeService("AES/GCM"))
+        {
+            if (!System.getProperty("test.bclts.ignore.native", "").contains("gcm"))
+            {
+                TestCase.fail("Skipping GCM Agreement Test: " + TestUtil.errorMsg());
+            }
+            return;
+        }
+
+        CryptoServicesRegistrar.setNativeEnabled(true);
+
+        for (boolean forEncryption : new boolean[]{true, false})
+        {
+            GCMModeCipher c = GCMBlockCipher.newInstance(AESEngine.newInstance());
+            TestCase.assertTrue(c.toString().contains("Native"));
+
+            try
+            {
+                c.init(forEncryption, new AEADParameters(null, 128, new byte[12]));
+                TestCase.fail("null key accepted before any key");
+            }
+            catch (IllegalArgumentException e)
+            {
+                TestCase.assertEquals("Key must be specified in initial init", e.getMessage());
+            }
+
+            // the failed init leaves the cipher usable once it is given a key
+            byte[] key = new byte[16];
+            byte[] nonce = new byte[12];
+            c.init(forEncryption, new AEADParameters(new KeyParameter(key), 128, nonce));
+            if (forEncryption)
+            {
+                CryptoServicesRegistrar.setNativeEnabled(false);
+                byte[] javaCT = process(createOutputEncryptor(key, nonce, 128), new byte[0], new byte[33]);
+                CryptoServicesRegistrar.setNativeEnabled(true);
+
+                TestCase.assertTrue(Arrays.areEqual(javaCT, process(c, new byte[0], new byte[33])));
+            }
+        }
+    }
+
+    private static byte[] process(GCMModeCipher c, byte[] aad, byte[] in) throws InvalidCipherTextException
+    {
+        c.processAADBytes(aad, 0, aad.length);
+
+        byte[] out = new byte[c.getOutputSize(in.length)];
+        int len = c.processBytes(in, 0, in.length, out, 0);
+        len += c.doFinal(out, len);
+        TestCase.assertEquals(out.length, len);
+
+        return out;
+    }
+
     private static GCMModeCipher createOutputEncryptor(byte[] key, byte[] iv, int macSize)
     {
 
@@ -0,0 +1,512 @@
+package org.bouncycastle.crypto.engines;
+
+import junit.framework.TestCase;
+import org.bouncycastle.crypto.CryptoServicesRegistrar;
+import org.bouncycastle.crypto.NativeServices;
+import org.junit.Test;
+
+public class NativeChaCha20Poly1305PacketCipherLimitTest extends TestCase
+{
+
+    @Test
+    public void testProcessPacketKeyLen()
+    {
+        if (TestUtil.skipPS())
+        {
+            System.out.println("Skipping packet cipher test.");
+            return;
+        }
+
+        if (!isNativeVariant())
+        {
+            System.out.println("Skipping as native is not available");
+            return;
+        }
+
+        //
+        // Invalid key sizes!
+        //
+        for (int len : new int[]{0, 16, 24, 31, 33})
+        {
+            try
+            { // processPacket -- key len invalid
+                new ChaCha20Poly1305NativePacketCipher()
+                {
+                    {
+                        processPacket(true, new byte[len], new byte[12], null, new byte[0], 0, 0,
+                                new byte[16], 0, 16);
+                        fail("keylen invalid");
+                    }
+                };
+            }
+            catch (Exception ex)
+            {
+                TestCase.assertEquals("Key must be 256 bits", ex.getMessage());
+            }
+        }
+
+        try
+        { // processPacket -- key null
+            new ChaCha20Poly1305NativePacketCipher()
+            {
+                {
+                    processPacket(true, null, new byte[12], null, new byte[0], 0, 0, new byte[16], 0, 16);
+                    fail("key null");
+                }
+            };
+        }
+        catch (Exception ex)
+        {
+            TestCase.assertEquals("key was null", ex.getMessage());
+        }
+
+        // Valid case
+        new ChaCha20Poly1305NativePacketCipher()
+        {
+            {
+                TestCase.assertEquals(16, processPacket(true, new byte[32], new byte[12], null, new byte[0], 0, 0,
+                        new byte[16], 0, 16));
+            }
+        };
+    }
+
+    @Test
+    public void testProcessPacketNonceLen()
+    {
+        if (TestUtil.skipPS())
+        {
+            System.out.println("Skipping packet cipher test.");
+            return;
+        }
+
+        if (!isNativeVariant())
+        {
+            System.out.println("Skipping as native is not available");
+            return;
+        }
+
+        try
+        { // processPacket -- nonce null
+            new ChaCha20Poly1305NativePacketCipher()
+            {
+                {
+                    processPacket(true, new byte[32], null, null, new byte[0], 0, 0, new byte[16], 0, 16);
+                    fail("nonce is null");
+                }
+            };
+        }
+        catch (Exception ex)
+        {
+            TestCase.assertEquals("nonce is null", ex.getMessage());
+        }
+
+        for (int len : new int[]{0, 8, 11, 13, 16})
+        {
+            try
+            { // processPacket -- nonce len invalid
+                new ChaCha20Poly1305NativePacketCipher()
+                {
+                    {
+                        processPacket(true, new byte[32], new byte[len], null, new byte[0], 0, 0,
+                                new byte[16], 0, 16);
+                        fail("nonce len invalid");
+                    }
+                };
+            }
+            catch (Exception ex)
+            {
+                TestCase.assertEquals("Nonce must be 96 bits", ex.getMessage());
+            }
+        }
+    }
+
+    @Test
+    public void testProcessPacketAADLen()
+    {
+        if (TestUtil.skipPS())
+        {
+            System.out.println("Skipping packet cipher test.");
+            return;
+        }
+
+        if (!isNativeVariant())
+        {
+            System.out.println("Skipping as native is not available");
+            return;
+        }
+
+        // null and empty aad are valid, as is aad with a partial last block
+        for (byte[] aad : new byte[][]{null, new byte[0], new byte[67]})
+        {
+            new ChaCha20Poly1305NativePacketCipher()
+            {
+                {
+                    TestCase.assertEquals(16, processPacket(true, new byte[32], new byte[12], aad, new byte[0], 0, 0,
+                            new byte[16], 0, 16));
+                }
+            };
+        }
+    }
+
+    @Test
+    public void testProcessPacketInputArray()
+    {
+        if (TestUtil.skipPS())
+        {
+            System.out.println("Skipping packet cipher test.");
+            return;
+        }
+
+        if (!isNativeVariant())
+        {
+            System.out.println("Skipping as native is not available");
+            return;
+        }
+
+        try
+        { // processPacket -- input null
+            new ChaCha20Poly1305NativePacketCipher()
+            {
+                {
+                    processPacket(true, new byte[32], new byte[12], null, null, 0, 0, new byte[16], 0, 16);
+                    fail();
+                }
+            };
+        }
+        catch (Exception ex)
+        {
+            TestCase.assertEquals("input was null", ex.getMessage());
+        }
+
+        try
+        { // processPacket -- input offset negative
+            new ChaCha20Poly1305NativePacketCipher()
+            {
+                {
+                    processPacket(true, new byte[32], new byte[12], null, new byte[16], -1, 0,
+                            new byte[16], 0, 16);
+                    fail();
+                }
+            };
+        }
+        catch (Exception ex)
+        {
+            TestCase.assertEquals("input offset is negative", ex.getMessage());
+        }
+
+        try
+        { // processPacket -- input len negative
+            new ChaCha20Poly1305NativePacketCipher()
+            {
+                {
+                    processPacket(true, new byte[32], new byte[12], null, new byte[16], 0, -1,
+                            new byte[16], 0, 16);
+                    fail();
+                }
+            };
+        }
+        catch (Exception ex)
+        {
+            TestCase.assertEquals("input len is negative", ex.getMessage());
+        }
+
+        try
+        { // processPacket -- input buffer too short for offset and len
+            new ChaCha20Poly1305NativePacketCipher()
+            {
+                {
+                    processPacket(true, new byte[32], new byte[12], null, new byte[16], 1, 16,
+                            new byte[32], 0, 32);
+                    fail();
+                }
+            };
+        }
+        catch (Exception ex)
+        {
+            TestCase.assertEquals("input buffer too short for offset + length", ex.getMessage());
+        }
+
+        try
+        { // processPacket -- input len larger than any array
+            new ChaCha20Poly1305NativePacketCipher()
+            {
+                {
+                    processPacket(true, new byte[32], new byte[12], null, new byte[16], 0, Integer.MAX_VALUE,
+                            new byte[32], 0, 32);
+                    fail();
+                }
+            };
+        }
+        catch (Exception ex)
+        {
+            TestCase.assertEquals("input buffer too short for offset + length", ex.getMessage());
+        }
+
+        try
+        { // processPacket -- input offset + len overflows
+            new ChaCha20Poly1305NativePacketCipher()
+            {
+                {
+                    processPacket(true, new byte[32], new byte[12], null, new byte[16], Integer.MAX_VALUE, 16,
+                            new byte[32], 0, 32);
+                    fail();
+                }
+            };
+        }
+        catch (Exception ex)
+        {
+            TestCase.assertEquals("input buffer too short for offset + length", ex.getMessage());
+        }
+
+        // Valid, zero length input at the end of the array
+        new ChaCha20Poly1305NativePacketCipher()
+        {
+            {
+                processPacket(true, new byte[32], new byte[12], null, new byte[15], 15, 0,
+                        new byte[16], 0, 16);
+            }
+        };
+    }
+
+    @Test
+    public void testProcessPacketOutputArray()
+    {
+        if (TestUtil.skipPS())
+        {
+            System.out.println("Skipping packet cipher test.");
+            return;
+        }
+
+        if (!isNativeVariant())
+        {
+            System.out.println("Skipping as native is not available");
+            return;
+        }
+
+        try
+        { // processPacket -- output null
+            new ChaCha20Poly1305NativePacketCipher()
+            {
+                {
+                    processPacket(true, new byte[32], new byte[12], null, new byte[16], 0, 16, null, 0, 32);
+                    fail();
+                }
+            };
+        }
+        catch (Exception ex)
+        {
+            TestCase.assertEquals("output was null", ex.getMessage());
+        }
+
+        try
+        { // processPacket -- output offset negative
+            new ChaCha20Poly1305NativePacketCipher()
+            {
+                {
+                    processPacket(true, new byte[32], new byte[12], null, new byte[16], 0, 16,
+                            new byte[32], -1, 32);
+                    fail();
+                }
+            };
+        }
+        catch (Exception ex)
+        {
+            TestCase.assertEquals("output offset is negative", ex.getMessage());
+        }
+
+        try
+        { // processPacket -- output len negative
+            new ChaCha20Poly1305NativePacketCipher()
+            {
+                {
+                    processPacket(true, new byte[32], new byte[12], null, new byte[16], 0, 16,
+                            new byte[32], 0, -1);
+                    fail();
+                }
+            };
+        }
+        catch (Exception ex)
+        {
+            TestCase.assertEquals("output len is negative", ex.getMessage());
+        }
+
+        try
+        { // processPacket -- output buffer too short for offset and len
+            new ChaCha20Poly1305NativePacketCipher()
+            {
+                {
+                    processPacket(true, new byte[32], new byte[12], null, new byte[16], 0, 16,
+                            new byte[32], 1, 32);
+                    fail();
+                }
+            };
+        }
+        catch (Exception ex)
+        {
+            TestCase.assertEquals("output buffer too short for offset + length", ex.getMessage());
+        }
+
+        try
+        { // processPacket -- output len larger than any array
+            new ChaCha20Poly1305NativePacketCipher()
+            {
+                {
+                    processPacket(true, new byte[32], new byte[12], null, new byte[16], 0, 16,
+                            new byte[32], 0, Integer.MAX_VALUE);
+                    fail();
+                }
+            };
+        }
+        catch (Exception ex)
+        {
+            TestCase.assertEquals("output buffer too short for offset + length", ex.getMessage());
+        }
+    }
+
+    @Test
+    public void testOutputTooShort()
+    {
+        if (TestUtil.skipPS())
+        {
+            System.out.println("Skipping packet cipher test.");
+            return;
+        }
+
+        if (!isNativeVariant())
+        {
+            System.out.println("Skipping as native is not available");
+            return;
+        }
+
+        try
+        { // processPacket -- output too small to hold cipher text and tag
+            new ChaCha20Poly1305NativePacketCipher()
+            {
+                {
+                    processPacket(true, new byte[32], new byte[12], null, new byte[16], 0, 16,
+                            new byte[31], 0, 31);
+                    fail();
+                }
+            };
+        }
+        catch (Exception ex)
+        {
+            TestCase.assertEquals("output buffer too short", ex.getMessage());
+        }
+
+        try
+        { // processPacket -- output too small to hold plain text
+            new ChaCha20Poly1305NativePacketCipher()
+            {
+                {
+                    processPacket(false, new byte[32], new byte[12], null, new byte[33], 0, 33,
+                            new byte[16], 0, 16);
+                    fail();
+                }
+            };
+        }
+        catch (Exception ex)
+        {
+            TestCase.assertEquals("output buffer too short", ex.getMessage());
+        }
+
+        try
+        { // processPacket -- input too short for decryption
+            new ChaCha20Poly1305NativePacketCipher()
+            {
+                {
+                    processPacket(false, new byte[32], new byte[12], null, new byte[15], 0, 15,
+                            new byte[0], 0, 0);
+                    fail();
+                }
+            };
+        }
+        catch (Exception ex)
+        {
+            TestCase.assertEquals("input data too short", ex.getMessage());
+        }
+
+        try
+        { // processPacket -- tag check
+            new ChaCha20Poly1305NativePacketCipher()
+            {
+                {
+                    processPacket(false, new byte[32], new byte[12], null, new byte[20], 0, 20,
+                            new byte[4], 0, 4);
+                    fail();
+                }
+            };
+        }
+        catch (Exception ex)
+        {
+            TestCase.assertEquals("mac check in ChaCha20Poly1305 failed", ex.getMessage());
+        }
+    }
+
+    @Test
+    public void testGetOutputSize()
+    {
+        if (TestUtil.skipPS())
+        {
+            System.out.println("Skipping packet cipher test.");
+            return;
+        }
+
+        if (!isNativeVariant())
+        {
+            System.out.println("Skipping as native is not available");
+            return;
+        }
+
+        try
+        { // get output size
+            new ChaCha20Poly1305NativePacketCipher()
+            {
+                {
+                    getOutputSize(true, -1);
+                    fail("len negative");
+                }
+            };
+        }
+        catch (Exception ex)
+        {
+            TestCase.assertEquals("input len is negative", ex.getMessage());
+        }
+
+        try
+        { // get output size
+            new ChaCha20Poly1305NativePacketCipher()
+            {
+                {
+                    getOutputSize(false, 5);
+                    fail("len too small");
+                }
+            };
+        }
+        catch (Exception ex)
+        {
+            TestCase.assertEquals("len parameter invalid", ex.getMessage());
+        }
+
+        new ChaCha20Poly1305NativePacketCipher()
+        {
+            {
+                TestCase.assertEquals(0, getOutputSize(false, 16));
+                TestCase.assertEquals(16, getOutputSize(false, 32));
+                TestCase.assertEquals(48, getOutputSize(true, 32));
+            }
+        };
+    }
+
+    public boolean isNativeVariant()
+    {
+        String variant = CryptoServicesRegistrar.getNativeServices().getVariant();
+        if (variant == null || "java".equals(variant))
+        {
+            return false;
+        }
+
+        // May not be ported to native platform, so exercise java version only.
+        return CryptoServicesRegistrar.hasEnabledService(NativeServices.CHACHA20_POLY1305_PC);
+    }
+}
@@ -0,0 +1,597 @@
+package org.bouncycastle.crypto.engines;
+
+import junit.framework.TestCase;
+import org.bouncycastle.crypto.CryptoServicesRegistrar;
+import org.bouncycastle.crypto.NativeServices;
+import org.junit.Test;
+
+public class NativeOCBPacketCipherLimitTest extends TestCase
+{
+
+    @Test
+    public void testProcessPacketKeyLen()
+    {
+        if (TestUtil.skipPS())
+        {
+            System.out.println("Skipping packet cipher test.");
+            return;
+        }
+
+        if (!isNativeVariant())
+        {
+            System.out.println("Skipping as native is not available");
+            return;
+        }
+
+        //
+        // Invalid key sizes!
+        //
+        for (int len : new int[]{15, 17, 23, 25, 31, 33})
+        {
+            try
+            { // processPacket -- key len invalid
+                new AESNativeOCBPacketCipher()
+                {
+                    {
+                        processPacket(true, new byte[len], new byte[12], null, 16, new byte[0], 0, 0,
+                                new byte[16], 0, 16);
+                        fail("keylen invalid");
+                    }
+                };
+            }
+            catch (Exception ex)
+            {
+                TestCase.assertEquals("key must be only 16, 24 or 32 bytes long", ex.getMessage());
+            }
+        }
+
+        try
+        { // processPacket -- key null
+            new AESNativeOCBPacketCipher()
+            {
+                {
+                    processPacket(true, null, new byte[12], null, 16, new byte[0], 0, 0, new byte[16], 0, 16);
+                    fail("key null");
+                }
+            };
+        }
+        catch (Exception ex)
+        {
+            TestCase.assertEquals("key was null", ex.getMessage());
+        }
+
+        // Valid cases
+
+        for (int len : new int[]{16, 24, 32})
+        {
+            new AESNativeOCBPacketCipher()
+            {
+                {
+                    processPacket(true, new byte[len], new byte[12], null, 16, new byte[0], 0, 0,
+                            new byte[16], 0, 16);
+                }
+            };
+        }
+    }
+
+    @Test
+    public void testProcessPacketIvLen()
+    {
+        if (TestUtil.skipPS())
+        {
+            System.out.println("Skipping packet cipher test.");
+            return;
+        }
+
+        if (!isNativeVariant())
+        {
+            System.out.println("Skipping as native is not available");
+            return;
+        }
+
+        try
+        { // processPacket -- nonce null
+            new AESNativeOCBPacketCipher()
+            {
+                {
+                    processPacket(true, new byte[16], null, null, 16, new byte[0], 0, 0, new byte[16], 0, 16);
+                    fail("nonce is null");
+                }
+            };
+        }
+        catch (Exception ex)
+        {
+            TestCase.assertEquals("nonce is null", ex.getMessage());
+        }
+
+        try
+        { // processPacket -- nonce too long
+            new AESNativeOCBPacketCipher()
+            {
+                {
+                    processPacket(true, new byte[16], new byte[16], null, 16, new byte[0], 0, 0, new byte[16], 0,
+                            16);
+                    fail("nonce too long");
+                }
+            };
+        }
+        catch (Exception ex)
+        {
+            TestCase.assertEquals("IV must be no more than 15 bytes", ex.getMessage());
+        }
+
+        // Valid cases, OCB takes any nonce up to 15 bytes
+
+        for (int len : new int[]{0, 1, 12, 15})
+        {
+            new AESNativeOCBPacketCipher()
+            {
+                {
+                    processPacket(true, new byte[16], new byte[len], null, 16, new byte[0], 0, 0, new byte[16],
+                            0, 16);
+                }
+            };
+        }
+    }
+
+    @Test
+    public void testProcessPacketAADLen()
+    {
+        if (TestUtil.skipPS())
+        {
+            System.out.println("Skipping packet cipher test.");
+            return;
+        }
+
+        if (!isNativeVariant())
+        {
+            System.out.println("Skipping as native is not available");
+            return;
+        }
+
+        // null aad is valid
+        new AESNativeOCBPacketCipher()
+        {
+            {
+                processPacket(true, new byte[16], new byte[12], null, 16, new byte[0], 0, 0, new byte[16],
+                        0, 16);
+            }
+        };
+
+        // aad over several blocks with a partial last block
+        new AESNativeOCBPacketCipher()
+        {
+            {
+                processPacket(true, new byte[16], new byte[12], new byte[67], 16, new byte[0], 0, 0,
+                        new byte[16], 0, 16);
+            }
+        };
+    }
+
+    @Test
+    public void testProcessPacketInputArray()
+    {
+        if (TestUtil.skipPS())
+        {
+            System.out.println("Skipping packet cipher test.");
+            return;
+        }
+
+        if (!isNativeVariant())
+        {
+            System.out.println("Skipping as native is not available");
+            return;
+        }
+
+        try
+        { // processPacket -- input null
+            new AESNativeOCBPacketCipher()
+            {
+                {
+                    processPacket(true, new byte[16], new byte[12], null, 16, null, 0, 0, new byte[16], 0, 16);
+                    fail();
+                }
+            };
+        }
+        catch (Exception ex)
+        {
+            TestCase.assertEquals("input was null", ex.getMessage());
+        }
+
+        try
+        { // processPacket -- input offset negative
+            new AESNativeOCBPacketCipher()
+            {
+                {
+                    processPacket(true, new byte[16], new byte[12], null, 16, new byte[16], -1, 0,
+                            new byte[16], 0, 16);
+                    fail();
+                }
+            };
+        }
+        catch (Exception ex)
+        {
+            TestCase.assertEquals("input offset is negative", ex.getMessage());
+        }
+
+        try
+        { // processPacket -- input len negative
+            new AESNativeOCBPacketCipher()
+            {
+                {
+                    processPacket(true, new byte[16], new byte[12], null, 16, new byte[16], 0, -1,
+                            new byte[16], 0, 16);
+                    fail();
+                }
+            };
+        }
+        catch (Exception ex)
+        {
+            TestCase.assertEquals("input len is negative", ex.getMessage());
+        }
+
+        try
+        { // processPacket -- input buffer too short for offset and len
+            new AESNativeOCBPacketCipher()
+            {
+                {
+                    processPacket(true, new byte[16], new byte[12], null, 16, new byte[16], 1, 16,
+                            new byte[32], 0, 32);
+                    fail();
+                }
+            };
+        }
+        catch (Exception ex)
+        {
+            TestCase.assertEquals("input buffer too short for offset + length", ex.getMessage());
+        }
+
+        try
+        { // processPacket -- input len larger than any array
+            new AESNativeOCBPacketCipher()
+            {
+                {
+                    processPacket(true, new byte[16], new byte[12], null, 16, new byte[16], 0, Integer.MAX_VALUE,
+                            new byte[32], 0, 32);
+                    fail();
+                }
+            };
+        }
+        catch (Exception ex)
+        {
+            TestCase.assertEquals("input buffer too short for offset + length", ex.getMessage());
+        }
+
+        try
+        { // processPacket -- input offset + len overflows
+            new AESNativeOCBPacketCipher()
+            {
+                {
+                    processPacket(true, new byte[16], new byte[12], null, 16, new byte[16], Integer.MAX_VALUE, 16,
+                            new byte[32], 0, 32);
+                    fail();
+                }
+            };
+        }
+        catch (Exception ex)
+        {
+            TestCase.assertEquals("input buffer too short for offset + length", ex.getMessage());
+        }
+
+        // Valid, zero length input at the end of the array
+        new AESNativeOCBPacketCipher()
+        {
+            {
+                processPacket(true, new byte[16], new byte[12], null, 16, new byte[15], 15, 0,
+                        new byte[16], 0, 16);
+            }
+        };
+    }
+
+    @Test
+    public void testProcessPacketOutputArray()
+    {
+        if (TestUtil.skipPS())
+        {
+            System.out.println("Skipping packet cipher test.");
+            return;
+        }
+
+        if (!isNativeVariant())
+        {
+            System.out.println("Skipping as native is not available");
+            return;
+        }
+
+        try
+        { // processPacket -- output null
+            new AESNativeOCBPacketCipher()
+            {
+                {
+                    processPacket(true, new byte[16], new byte[12], null, 16, new byte[16], 0, 16, null, 0, 32);
+                    fail();
+                }
+            };
+        }
+        catch (Exception ex)
+        {
+            TestCase.assertEquals("output was null", ex.getMessage());
+        }
+
+        try
+        { // processPacket -- output offset negative
+            new AESNativeOCBPacketCipher()
+            {
+                {
+                    processPacket(true, new byte[16], new byte[12], null, 16, new byte[16], 0, 16,
+                            new byte[32], -1, 32);
+                    fail();
+                }
+            };
+        }
+        catch (Exception ex)
+        {
+            TestCase.assertEquals("output offset is negative", ex.getMessage());
+        }
+
+        try
+        { // processPacket -- output len negative
+            new AESNativeOCBPacketCipher()
+            {
+                {
+                    processPacket(true, new byte[16], new byte[12], null, 16, new byte[16], 0, 16,
+                            new byte[32], 0, -1);
+                    fail();
+                }
+            };
+        }
+        catch (Exception ex)
+        {
+            TestCase.assertEquals("output len is negative", ex.getMessage());
+        }
+
+        try
+        { // processPacket -- output buffer too short for offset and len
+            new AESNativeOCBPacketCipher()
+            {
+                {
+                    processPacket(true, new byte[16], new byte[12], null, 16, new byte[16], 0, 16,
+                            new byte[32], 1, 32);
+                    fail();
+                }
+            };
+        }
+        catch (Exception ex)
+        {
+            TestCase.assertEquals("output buffer too short for offset + length", ex.getMessage());
+        }
+
+        try
+        { // processPacket -- output len larger than any array
+            new AESNativeOCBPacketCipher()
+            {
+                {
+                    processPacket(true, new byte[16], new byte[12], null, 16, new byte[16], 0, 16,
+                            new byte[32], 0, Integer.MAX_VALUE);
+                    fail();
+                }
+            };
+        }
+        catch (Exception ex)
+        {
+            TestCase.assertEquals("output buffer too short for offset + length", ex.getMessage());
+        }
+    }
+
+    @Test
+    public void testOutputTooShort()
+    {
+        if (TestUtil.skipPS())
+        {
+            System.out.println("Skipping packet cipher test.");
+            return;
+        }
+
+        if (!isNativeVariant())
+        {
+            System.out.println("Skipping as native is not available");
+            return;
+        }
+
+        try
+        { // processPacket -- output too small to hold cipher text and tag
+            new AESNativeOCBPacketCipher()
+            {
+                {
+                    processPacket(true, new byte[16], new byte[12], null, 16, new byte[16], 0, 16,
+                            new byte[31], 0, 31);
+                    fail();
+                }
+            };
+        }
+        catch (Exception ex)
+        {
+            TestCase.assertEquals("output buffer too short", ex.getMessage());
+        }
+
+        try
+        { // processPacket -- output too small to hold plain text
+            new AESNativeOCBPacketCipher()
+            {
+                {
+                    processPacket(false, new byte[16], new byte[12], null, 16, new byte[33], 0, 33,
+                            new byte[16], 0, 16);
+                    fail();
+                }
+            };
+        }
+        catch (Exception ex)
+        {
+            TestCase.assertEquals("output buffer too short", ex.getMessage());
+        }
+
+        try
+        { // processPacket -- input too short for decryption
+            new AESNativeOCBPacketCipher()
+            {
+                {
+                    processPacket(false, new byte[16], new byte[12], null, 16, new byte[15], 0, 15,
+                            new byte[0], 0, 0);
+                    fail();
+                }
+            };
+        }
+        catch (Exception ex)
+        {
+            TestCase.assertEquals("input data too short", ex.getMessage());
+        }
+
+        try
+        { // processPacket -- input too short for decryption, short tag
+            new AESNativeOCBPacketCipher()
+            {
+                {
+                    processPacket(false, new byte[16], new byte[12], null, 8, new byte[15], 0, 7,
+                            new byte[0], 0, 0);
+                    fail();
+                }
+            };
+        }
+        catch (Exception ex)
+        {
+            TestCase.assertEquals("input data too short", ex.getMessage());
+        }
+    }
+
+    @Test
+    public void testMacLen()
+    {
+        if (TestUtil.skipPS())
+        {
+            System.out.println("Skipping packet cipher test.");
+            return;
+        }
+
+        if (!isNativeVariant())
+        {
+            System.out.println("Skipping as native is not available");
+            return;
+        }
+
+        for (int macSize : new int[]{-1, 0, 7, 17})
+        {
+            try
+            { // processPacket -- mac size out of range
+                new AESNativeOCBPacketCipher()
+                {
+                    {
+                        processPacket(true, new byte[16], new byte[12], null, macSize, new byte[16], 0, 16,
+                                new byte[48], 0, 48);
+                        fail("mac size " + macSize);
+                    }
+                };
+            }
+            catch (Exception ex)
+            {
+                TestCase.assertEquals("invalid mac size", ex.getMessage());
+            }
+
+            try
+            { // get output size -- mac size out of range
+                new AESNativeOCBPacketCipher()
+                {
+                    {
+                        getOutputSize(true, 10, macSize);
+                        fail("mac size " + macSize);
+                    }
+                };
+            }
+            catch (Exception ex)
+            {
+                TestCase.assertEquals("invalid mac size", ex.getMessage());
+            }
+        }
+
+        // Valid cases
+
+        for (int macSize = 8; macSize <= 16; macSize++)
+        {
+            int t = macSize;
+            new AESNativeOCBPacketCipher()
+            {
+                {
+                    TestCase.assertEquals(16 + t, getOutputSize(true, 16, t));
+                    TestCase.assertEquals(16 + t, processPacket(true, new byte[16], new byte[12], null, t,
+                            new byte[16], 0, 16, new byte[16 + t], 0, 16 + t));
+                }
+            };
+        }
+    }
+
+    @Test
+    public void testGetOutputSize()
+    {
+        if (TestUtil.skipPS())
+        {
+            System.out.println("Skipping packet cipher test.");
+            return;
+        }
+
+        if (!isNativeVariant())
+        {
+            System.out.println("Skipping as native is not available");
+            return;
+        }
+
+        try
+        { // get output size
+            new AESNativeOCBPacketCipher()
+            {
+                {
+                    getOutputSize(true, -1, 16);
+                    fail("len negative");
+                }
+            };
+        }
+        catch (Exception ex)
+        {
+            TestCase.assertEquals("input len is negative", ex.getMessage());
+        }
+
+        try
+        { // get output size
+            new AESNativeOCBPacketCipher()
+            {
+                {
+                    getOutputSize(false, 5, 16);
+                    fail("len too small");
+                }
+            };
+        }
+        catch (Exception ex)
+        {
+            TestCase.assertEquals("len parameter invalid", ex.getMessage());
+        }
+
+        new AESNativeOCBPacketCipher()
+        {
+            {
+                TestCase.assertEquals(0, getOutputSize(false, 16, 16));
+                TestCase.assertEquals(16, getOutputSize(false, 32, 16));
+                TestCase.assertEquals(40, getOutputSize(true, 32, 8));
+            }
+        };
+    }
+
+    public boolean isNativeVariant()
+    {
+        String variant = CryptoServicesRegistrar.getNativeServices().getVariant();
+        if (variant == null || "java".equals(variant))
+        {
+            return false;
+        }
+
+        // May not be ported to native platform, so exercise java version only.
+        return CryptoServicesRegistrar.hasEnabledService(NativeServices.AES_OCB_PC);
+    }
+}
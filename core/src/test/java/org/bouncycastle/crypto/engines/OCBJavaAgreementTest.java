@@ -0,0 +1,319 @@
+package org.bouncycastle.crypto.engines;
+
+import java.nio.ByteBuffer;
+import java.security.SecureRandom;
+
+import junit.framework.TestCase;
+import org.bouncycastle.crypto.CryptoServicesRegistrar;
+import org.bouncycastle.crypto.InvalidCipherTextException;
+import org.bouncycastle.crypto.PacketCipher;
+import org.bouncycastle.crypto.PacketCipherException;
+import org.bouncycastle.crypto.modes.AEADCipher;
+import org.bouncycastle.crypto.modes.AESOCBPacketCipher;
+import org.bouncycastle.crypto.modes.OCBBlockCipher;
+import org.bouncycastle.crypto.modes.OCBModeCipher;
+import org.bouncycastle.crypto.params.AEADParameters;
+import org.bouncycastle.crypto.params.KeyParameter;
+import org.bouncycastle.util.Arrays;
+import org.bouncycastle.util.encoders.Hex;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class OCBJavaAgreementTest
+    extends TestCase
+{
+    private static final String BCFIPS_LIB_CPU_VARIANT = "org.bouncycastle.native.cpu_variant";
+
+    @Before
+    public void setUp()
+    {
+        String forcedVariant = System.getProperty(BCFIPS_LIB_CPU_VARIANT);
+        if (forcedVariant != null)
+        {
+            String variant = CryptoServicesRegistrar.getNativeServices().getVariant();
+            if (variant == null)
+            {
+                variant = "java";
+            }
+
+            if (!forcedVariant.equals(variant))
+            {
+                throw new RuntimeException("Forced variant not the same as loaded variant: " + forcedVariant + " " + CryptoServicesRegistrar.getNativeServices().getVariant());
+            }
+        }
+    }
+
+    @After
+    public void tearDown()
+    {
+        CryptoServicesRegistrar.setNativeEnabled(true);
+    }
+
+    private static OCBModeCipher newCipher(boolean expectNative)
+    {
+        CryptoServicesRegistrar.setNativeEnabled(expectNative);
+        OCBModeCipher ocb = OCBBlockCipher.newInstance(AESEngine.newInstance(), AESEngine.newInstance());
+        if (expectNative)
+        {
+            TestCase.assertTrue("Native implementation expected", ocb.toString().contains("OCB[Native]"));
+        }
+        else
+        {
+            TestCase.assertTrue("Java implementation expected", ocb instanceof OCBBlockCipher);
+        }
+        return ocb;
+    }
+
+    /**
+     * Feed the input in random sized chunks, aad first, then the message.
+     */
+    private static byte[] process(AEADCipher cipher, byte[] aad, byte[] in, SecureRandom rand)
+        throws InvalidCipherTextException
+    {
+        int a = 0;
+        while (a < aad.length)
+        {
+            int len = Math.min(aad.length - a, rand.nextInt(40));
+            if (len == 1)
+            {
+                cipher.processAADByte(aad[a]);
+            }
+            else
+            {
+                cipher.processAADBytes(aad, a, len);
+            }
+            a += len;
+        }
+
+        byte[] out = new byte[cipher.getOutputSize(in.length)];
+        int i = 0;
+        int j = 0;
+        while (i < in.length)
+        {
+            int len = Math.min(in.length - i, rand.nextInt(100));
+            int expected = cipher.getUpdateOutputSize(len);
+            int written;
+            if (len == 1)
+            {
+                written = cipher.processByte(in[i], out, j);
+            }
+            else
+            {
+                written = cipher.processBytes(in, i, len, out, j);
+            }
+            TestCase.assertEquals(expected, written);
+            j += written;
+            i += len;
+        }
+        j += cipher.doFinal(out, j);
+        TestCase.assertEquals(out.length, j);
+        return out;
+    }
+
+    @Test
+    public void testOCBSpreadAgreement()
+        throws Exception
+    {
+        if (!TestUtil.hasNativeService("AES/OCB"))
+        {
+            if (!System.getProperty("test.bclts.ignore.native", "").contains("ocb"))
+            {
+                TestCase.fail("Skipping OCB Spread Agreement: " + TestUtil.errorMsg());
+            }
+            return;
+        }
+
+        SecureRandom rand = new SecureRandom();
+
+        for (int ks : new int[]{16, 24, 32})
+        {
+            for (int t = 0; t < 1500; t++)
+            {
+                byte[] key = new byte[ks];
+                rand.nextBytes(key);
+                byte[] nonce = new byte[rand.nextInt(16)];
+                rand.nextBytes(nonce);
+                byte[] iat = rand.nextBoolean() ? null : new byte[rand.nextInt(50)];
+                if (iat != null)
+                {
+                    rand.nextBytes(iat);
+                }
+                byte[] aad = new byte[rand.nextInt(300)];
+                rand.nextBytes(aad);
+                byte[] msg = new byte[rand.nextInt(1100)];
+                rand.nextBytes(msg);
+                int macSize = 64 + 8 * rand.nextInt(9);
+
+                AEADParameters params = new AEADParameters(new KeyParameter(key), macSize, nonce, iat);
+
+                OCBModeCipher javaEnc = newCipher(false);
+                javaEnc.init(true, params);
+                byte[] javaCT = process(javaEnc, aad, msg, rand);
+
+                OCBModeCipher nativeEnc = newCipher(true);
+                nativeEnc.init(true, params);
+                byte[] nativeCT = process(nativeEnc, aad, msg, rand);
+
+                if (!Arrays.areEqual(javaCT, nativeCT))
+                {
+                    System.out.println("Native: " + Hex.toHexString(nativeCT));
+                    System.out.println("Java:   " + Hex.toHexString(javaCT));
+                }
+                TestCase.assertTrue(ks + " native CT did not match java CT", Arrays.areEqual(javaCT, nativeCT));
+                TestCase.assertTrue(Arrays.areEqual(javaEnc.getMac(), nativeEnc.getMac()));
+
+                OCBModeCipher nativeDec = newCipher(true);
+                nativeDec.init(false, params);
+                TestCase.assertTrue(Arrays.areEqual(msg, process(nativeDec, aad, javaCT, rand)));
+
+                //
+                // Nonce only re-init, the key schedule is retained.
+                //
+                byte[] nextNonce = new byte[15];
+                rand.nextBytes(nextNonce);
+                AEADParameters nextParams = new AEADParameters(null, macSize, nextNonce, iat);
+                javaEnc.init(true, nextParams);
+                nativeEnc.init(true, nextParams);
+                TestCase.assertTrue(Arrays.areEqual(process(javaEnc, aad, msg, rand), process(nativeEnc, aad, msg, rand)));
+
+                //
+                // Tampering
+                //
+                if (javaCT.length > 0)
+                {
+                    javaCT[rand.nextInt(javaCT.length)] ^= 1 << rand.nextInt(8);
+                    nativeDec.init(false, params);
+                    try
+                    {
+                        process(nativeDec, aad, javaCT, rand);
+                        TestCase.fail("tampered message accepted");
+                    }
+                    catch (InvalidCipherTextException e)
+                    {
+                        TestCase.assertEquals("mac check in OCB failed", e.getMessage());
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testOCBByteBufferAgreement()
+        throws Exception
+    {
+        if (!TestUtil.hasNativeService("AES/OCB"))
+        {
+            if (!System.getProperty("test.bclts.ignore.native", "").contains("ocb"))
+            {
+                TestCase.fail("Skipping OCB ByteBuffer Agreement: " + TestUtil.errorMsg());
+            }
+            return;
+        }
+
+        SecureRandom rand = new SecureRandom();
+
+        for (int t = 0; t < 1000; t++)
+        {
+            byte[] key = new byte[16];
+            rand.nextBytes(key);
+            byte[] nonce = new byte[12];
+            rand.nextBytes(nonce);
+            byte[] msg = new byte[rand.nextInt(1100)];
+            rand.nextBytes(msg);
+
+            AEADParameters params = new AEADParameters(new KeyParameter(key), 128, nonce);
+
+            OCBModeCipher javaEnc = newCipher(false);
+            javaEnc.init(true, params);
+            byte[] javaCT = process(javaEnc, new byte[0], msg, rand);
+
+            OCBModeCipher nativeEnc = newCipher(true);
+            nativeEnc.init(true, params);
+
+            ByteBuffer in = ByteBuffer.allocateDirect(msg.length);
+            in.put(msg);
+            in.flip();
+            ByteBuffer out = ByteBuffer.allocateDirect(nativeEnc.getOutputSize(msg.length));
+            nativeEnc.processBytes(in, out);
+            nativeEnc.doFinal(out);
+            out.flip();
+
+            byte[] nativeCT = new byte[out.remaining()];
+            out.get(nativeCT);
+            TestCase.assertTrue("direct buffer CT did not match java CT", Arrays.areEqual(javaCT, nativeCT));
+        }
+    }
+
+    @Test
+    public void testOCBPacketCipherAgreement()
+        throws Exception
+    {
+        if (!TestUtil.hasNativeService("AES/OCB-PC"))
+        {
+            if (!System.getProperty("test.bclts.ignore.native", "").contains("ocb"))
+            {
+                TestCase.fail("Skipping OCB Packet Cipher Agreement: " + TestUtil.errorMsg());
+            }
+            return;
+        }
+
+        SecureRandom rand = new SecureRandom();
+
+        for (int ks : new int[]{16, 24, 32})
+        {
+            for (int t = 0; t < 1000; t++)
+            {
+                byte[] key = new byte[ks];
+                rand.nextBytes(key);
+                byte[] nonce = new byte[1 + rand.nextInt(15)];
+                rand.nextBytes(nonce);
+                byte[] aad = new byte[rand.nextInt(100)];
+                rand.nextBytes(aad);
+                byte[] msg = new byte[rand.nextInt(1100)];
+                rand.nextBytes(msg);
+                int macSize = 64 + 8 * rand.nextInt(9);
+
+                AEADParameters params = new AEADParameters(new KeyParameter(key), macSize, nonce, aad);
+
+                CryptoServicesRegistrar.setNativeEnabled(false);
+                PacketCipher javaPC = AESOCBPacketCipher.newInstance();
+                TestCase.assertTrue(javaPC.toString().contains("[Java]"));
+
+                CryptoServicesRegistrar.setNativeEnabled(true);
+                PacketCipher nativePC = AESOCBPacketCipher.newInstance();
+                TestCase.assertTrue(nativePC.toString().contains("[Native]"));
+
+                byte[] javaCT = new byte[javaPC.getOutputSize(true, params, msg.length)];
+                javaPC.processPacket(true, params, msg, 0, msg.length, javaCT, 0);
+
+                byte[] nativeCT = new byte[nativePC.getOutputSize(true, params, msg.length)];
+                nativePC.processPacket(true, params, msg, 0, msg.length, nativeCT, 0);
+                TestCase.assertTrue(ks + " packet CT did not match", Arrays.areEqual(javaCT, nativeCT));
+
+                //
+                // Agreement with the streaming cipher.
+                //
+                OCBModeCipher ocb = newCipher(false);
+                ocb.init(true, params);
+                TestCase.assertTrue(Arrays.areEqual(javaCT, process(ocb, new byte[0], msg, rand)));
+
+                byte[] pt = new byte[nativePC.getOutputSize(false, params, nativeCT.length)];
+                TestCase.assertEquals(msg.length, nativePC.processPacket(false, params, nativeCT, 0, nativeCT.length, pt, 0));
+                TestCase.assertTrue(Arrays.areEqual(msg, pt));
+
+                nativeCT[rand.nextInt(nativeCT.length)] ^= 1;
+                try
+                {
+                    nativePC.processPacket(false, params, nativeCT, 0, nativeCT.length, pt, 0);
+                    TestCase.fail("tampered packet accepted");
+                }
+                catch (PacketCipherException e)
+                {
+                    TestCase.assertEquals(PacketCipherException.Reason.INVALID_CIPHERTEXT, e.getReason());
+                    TestCase.assertTrue(Arrays.areAllZeroes(pt, 0, pt.length));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,734 @@
+package org.bouncycastle.crypto.engines;
+
+import java.nio.ByteBuffer;
+
+import junit.framework.TestCase;
+import org.bouncycastle.crypto.CryptoServicesRegistrar;
+import org.bouncycastle.crypto.InvalidCipherTextException;
+import org.bouncycastle.crypto.NativeServices;
+import org.bouncycastle.crypto.OutputLengthException;
+import org.bouncycastle.crypto.params.AEADParameters;
+import org.bouncycastle.crypto.params.KeyParameter;
+import org.bouncycastle.crypto.params.ParametersWithIV;
+import org.bouncycastle.util.Arrays;
+import org.junit.Test;
+
+public class OCBNativeLimitTest
+        extends TestCase
+{
+
+    static boolean skipIfNotSupported()
+    {
+        NativeServices nativeServices = CryptoServicesRegistrar.getNativeServices();
+        if (!nativeServices.hasService("AES/OCB"))
+        {
+            if (!System.getProperty("test.bclts.ignore.native", "").contains("ocb"))
+            {
+                fail("no native ocb and no skip set for it");
+                return false;
+            }
+            System.out.println("Skipping OCB native limit test: " + CryptoServicesRegistrar.isNativeEnabled());
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Test the jni layer throws exceptions as required for broken init parameters.
+     * This bypasses the java layer and passes the parameters to the jni layer directly.
+     */
+    @Test
+    public void testOCBInitNative()
+            throws Exception
+    {
+        if (skipIfNotSupported())
+        {
+            return;
+        }
+
+        new AESNativeOCB()
+        {
+            {
+                long ref = makeInstance();
+                try
+                {
+                    for (int macSize : new int[]{-8, 0, 56, 68, 136})
+                    {
+                        try
+                        {
+                            initNative(ref, true, new byte[16], new byte[12], null, macSize);
+                            fail("invalid mac size " + macSize);
+                        }
+                        catch (Exception ex)
+                        {
+                            assertTrue(ex instanceof IllegalArgumentException);
+                            assertTrue(ex.getMessage().contains("Invalid value for MAC size"));
+                        }
+                    }
+
+                    for (int keyLen : new int[]{0, 15, 17, 31, 33})
+                    {
+                        try
+                        {
+                            initNative(ref, true, new byte[keyLen], new byte[12], null, 128);
+                            fail("invalid key len " + keyLen);
+                        }
+                        catch (Exception ex)
+                        {
+                            assertTrue(ex.getMessage().contains("key must be only 16, 24 or 32 bytes long"));
+                        }
+                    }
+
+                    try
+                    {
+                        initNative(ref, true, new byte[16], null, null, 128);
+                        fail("null iv");
+                    }
+                    catch (Exception ex)
+                    {
+                        assertTrue(ex instanceof NullPointerException);
+                        assertTrue(ex.getMessage().contains("iv was null"));
+                    }
+
+                    try
+                    {
+                        initNative(ref, true, new byte[16], new byte[16], null, 128);
+                        fail("iv too long");
+                    }
+                    catch (Exception ex)
+                    {
+                        assertTrue(ex.getMessage().contains("IV must be no more than 15 bytes"));
+                    }
+
+                    try
+                    {
+                        initNative(ref, true, null, new byte[12], null, 128);
+                        fail("null key before a key was set");
+                    }
+                    catch (Exception ex)
+                    {
+                        assertTrue(ex.getMessage().contains("cannot replace iv unless key was previously supplied"));
+                    }
+
+                    // Valid, including a nonce only re-init once a key is set.
+                    initNative(ref, true, new byte[16], new byte[0], null, 64);
+                    initNative(ref, true, new byte[24], new byte[15], new byte[33], 96);
+                    initNative(ref, true, null, new byte[12], null, 128);
+                }
+                finally
+                {
+                    dispose(ref);
+                }
+            }
+        };
+    }
+
+    @Test
+    public void testOCBInit()
+            throws Exception
+    {
+        if (skipIfNotSupported())
+        {
+            return;
+        }
+
+        AESNativeOCB ocb = new AESNativeOCB();
+
+        try
+        {
+            ocb.init(true, new KeyParameter(new byte[16]));
+            fail("invalid parameters");
+        }
+        catch (IllegalArgumentException ex)
+        {
+            assertTrue(ex.getMessage().contains("invalid parameters passed to OCB"));
+        }
+
+        try
+        {
+            ocb.init(true, new AEADParameters(new KeyParameter(new byte[16]), 60, new byte[12]));
+            fail("invalid mac size");
+        }
+        catch (IllegalArgumentException ex)
+        {
+            assertTrue(ex.getMessage().contains("Invalid value for MAC size: 60"));
+        }
+
+        try
+        {
+            ocb.init(true, new ParametersWithIV(new KeyParameter(new byte[16]), new byte[16]));
+            fail("iv too long");
+        }
+        catch (IllegalArgumentException ex)
+        {
+            assertTrue(ex.getMessage().contains("IV must be no more than 15 bytes"));
+        }
+
+        try
+        {
+            ocb.init(true, new ParametersWithIV(new KeyParameter(new byte[17]), new byte[12]));
+            fail("invalid key len");
+        }
+        catch (IllegalArgumentException ex)
+        {
+            assertTrue(ex.getMessage().contains("Key length not 128/192/256 bits."));
+        }
+
+        try
+        {
+            ocb.init(true, new ParametersWithIV(null, new byte[12]));
+            fail("null key in initial init");
+        }
+        catch (IllegalArgumentException ex)
+        {
+            assertTrue(ex.getMessage().contains("key must be specified in initial init"));
+        }
+
+        ocb.init(true, new ParametersWithIV(new KeyParameter(new byte[16]), new byte[12]));
+
+        try
+        {
+            ocb.init(false, new ParametersWithIV(null, new byte[12]));
+            fail("direction change without key");
+        }
+        catch (IllegalArgumentException ex)
+        {
+            assertTrue(ex.getMessage().contains("cannot change encrypting state without providing key."));
+        }
+
+        // nonce only re-init in the same direction is fine.
+        ocb.init(true, new ParametersWithIV(null, new byte[12]));
+    }
+
+    @Test
+    public void testOCBAADBytes()
+            throws Exception
+    {
+        if (skipIfNotSupported())
+        {
+            return;
+        }
+
+        AEADParameters piv = new AEADParameters(new KeyParameter(new byte[16]), 128, new byte[12]);
+        new AESNativeOCB()
+        {
+            {
+                init(true, piv);
+
+                try
+                {
+                    processAADBytes(null, 0, 0);
+                    fail("null aad array");
+                }
+                catch (Exception ex)
+                {
+                    assertTrue(ex instanceof NullPointerException);
+                    assertTrue(ex.getMessage().contains("aad was null"));
+                }
+
+                try
+                {
+                    processAADBytes(new byte[0], -1, 0);
+                    fail("negative aad offset");
+                }
+                catch (Exception ex)
+                {
+                    assertTrue(ex.getMessage().contains("offset is negative"));
+                }
+
+                try
+                {
+                    processAADBytes(new byte[0], 0, -1);
+                    fail("negative aad len");
+                }
+                catch (Exception ex)
+                {
+                    assertTrue(ex.getMessage().contains("len is negative"));
+                }
+
+                try
+                {
+                    processAADBytes(new byte[10], 1, 10);
+                    fail("len + offset too long");
+                }
+                catch (Exception ex)
+                {
+                    assertTrue(ex.getMessage().contains("array too short for offset + len"));
+                }
+
+                try
+                {
+                    processAADBytes(new byte[10], 0, Integer.MAX_VALUE);
+                    fail("len too long");
+                }
+                catch (Exception ex)
+                {
+                    assertTrue(ex.getMessage().contains("array too short for offset + len"));
+                }
+
+                try
+                {
+                    processAADBytes(new byte[10], Integer.MAX_VALUE, 10);
+                    fail("offset + len overflows");
+                }
+                catch (Exception ex)
+                {
+                    assertTrue(ex.getMessage().contains("array too short for offset + len"));
+                }
+            }
+        };
+
+        new AESNativeOCB()
+        {
+            {
+                try
+                {
+                    processAADBytes(new byte[10], 0, 10);
+                    fail("uninitialised OCB");
+                }
+                catch (Exception ex)
+                {
+                    assertTrue(ex.getMessage().contains("OCB is uninitialized"));
+                }
+            }
+        };
+    }
+
+    @Test
+    public void testOCBProcessByte()
+            throws Exception
+    {
+        if (skipIfNotSupported())
+        {
+            return;
+        }
+
+        byte b = (byte)1;
+        AEADParameters piv = new AEADParameters(new KeyParameter(new byte[16]), 128, new byte[12]);
+
+        new AESNativeOCB()
+        {
+            {
+                init(true, piv);
+
+                // Null out array is fine while no output is produced.
+                assertEquals(0, processByte(b, null, 0));
+                assertEquals(0, processByte(b, null, 20));
+
+                try
+                {
+                    processByte(b, new byte[0], -1);
+                    fail("negative out offset");
+                }
+                catch (Exception ex)
+                {
+                    assertTrue(ex.getMessage().contains("offset is negative"));
+                }
+
+                try
+                {
+                    processByte(b, new byte[0], 1);
+                    fail("offset past end of array");
+                }
+                catch (Exception ex)
+                {
+                    assertTrue(ex.getMessage().contains("offset past end of array"));
+                }
+
+                // 16th byte completes a block, so output is needed.
+                processBytes(new byte[13], 0, 13, null, 0);
+                try
+                {
+                    processByte(b, null, 0);
+                    fail("null output for a whole block");
+                }
+                catch (Exception ex)
+                {
+                    assertTrue(ex instanceof OutputLengthException);
+                    assertTrue(ex.getMessage().contains("output buffer too short"));
+                }
+
+                try
+                {
+                    processByte(b, new byte[16], 1);
+                    fail("output too short for a whole block");
+                }
+                catch (Exception ex)
+                {
+                    assertTrue(ex instanceof OutputLengthException);
+                    assertTrue(ex.getMessage().contains("output buffer too short"));
+                }
+
+                assertEquals(16, processByte(b, new byte[16], 0));
+            }
+        };
+
+        new AESNativeOCB()
+        {
+            {
+                try
+                {
+                    processByte(b, new byte[10], 0);
+                    fail("not initialized");
+                }
+                catch (Exception ex)
+                {
+                    assertTrue(ex.getMessage().contains("uninitialized"));
+                }
+            }
+        };
+    }
+
+    @Test
+    public void testOCBProcessBytes()
+            throws Exception
+    {
+        if (skipIfNotSupported())
+        {
+            return;
+        }
+
+        AEADParameters piv = new AEADParameters(new KeyParameter(new byte[16]), 128, new byte[12]);
+
+        new AESNativeOCB()
+        {
+            {
+                init(true, piv);
+
+                try
+                {
+                    processBytes(null, 0, 1, new byte[16], 0);
+                    fail("accepted null input array");
+                }
+                catch (Exception ex)
+                {
+                    assertTrue(ex instanceof NullPointerException);
+                    assertTrue(ex.getMessage().contains("input was null"));
+                }
+
+                try
+                {
+                    processBytes(new byte[0], -1, 1, new byte[0], 0);
+                    fail("accepted negative in offset");
+                }
+                catch (Exception ex)
+                {
+                    assertTrue(ex.getMessage().contains("offset is negative"));
+                }
+
+                try
+                {
+                    processBytes(new byte[0], 0, -1, new byte[0], 0);
+                    fail("accepted negative len");
+                }
+                catch (Exception ex)
+                {
+                    assertTrue(ex.getMessage().contains("len is negative"));
+                }
+
+                try
+                {
+                    processBytes(new byte[1], 0, 1, new byte[0], -1);
+                    fail("accepted negative out offset");
+                }
+                catch (Exception ex)
+                {
+                    assertTrue(ex.getMessage().contains("output offset is negative"));
+                }
+
+                try
+                {
+                    processBytes(new byte[1], 0, 1, new byte[16], 17);
+                    fail("accepted out offset past end");
+                }
+                catch (Exception ex)
+                {
+                    assertTrue(ex.getMessage().contains("offset past end of array"));
+                }
+
+                try
+                {
+                    processBytes(new byte[10], 1, 10, new byte[16], 0);
+                    fail("in offset + len > in len");
+                }
+                catch (Exception ex)
+                {
+                    assertTrue(ex.getMessage().contains("array too short for offset + len"));
+                }
+
+                try
+                {
+                    processBytes(new byte[10], 0, Integer.MAX_VALUE, new byte[16], 0);
+                    fail("len > in len");
+                }
+                catch (Exception ex)
+                {
+                    assertTrue(ex.getMessage().contains("array too short for offset + len"));
+                }
+
+                try
+                {
+                    processBytes(new byte[10], Integer.MAX_VALUE, 10, new byte[16], 0);
+                    fail("in offset + len overflows");
+                }
+                catch (Exception ex)
+                {
+                    assertTrue(ex.getMessage().contains("array too short for offset + len"));
+                }
+
+                try
+                {
+                    processBytes(new byte[32], 0, 32, new byte[31], 0);
+                    fail("output too short");
+                }
+                catch (Exception ex)
+                {
+                    assertTrue(ex instanceof OutputLengthException);
+                    assertTrue(ex.getMessage().contains("output buffer too short"));
+                }
+
+                try
+                {
+                    processBytes(new byte[32], 0, 32, null, 0);
+                    fail("null output when output produced");
+                }
+                catch (Exception ex)
+                {
+                    assertTrue(ex instanceof OutputLengthException);
+                    assertTrue(ex.getMessage().contains("output buffer too short"));
+                }
+
+                // Partial block, nothing produced so a null output is fine.
+                assertEquals(0, processBytes(new byte[15], 0, 15, null, 0));
+            }
+        };
+
+        new AESNativeOCB()
+        {
+            {
+                try
+                {
+                    processBytes(new byte[16], 0, 1, new byte[16], 0);
+                    fail("not initialized");
+                }
+                catch (Exception ex)
+                {
+                    assertTrue(ex.getMessage().contains("uninitialized"));
+                }
+            }
+        };
+    }
+
+    @Test
+    public void testOCBProcessBytesDirect()
+            throws Exception
+    {
+        if (skipIfNotSupported())
+        {
+            return;
+        }
+
+        AESNativeOCB ocb = new AESNativeOCB();
+        ocb.init(true, new AEADParameters(new KeyParameter(new byte[16]), 128, new byte[12]));
+
+        ByteBuffer in = ByteBuffer.allocateDirect(32);
+        ByteBuffer out = ByteBuffer.allocateDirect(31);
+        try
+        {
+            ocb.processBytes(in, out);
+            fail("output too short");
+        }
+        catch (Exception ex)
+        {
+            assertTrue(ex instanceof OutputLengthException);
+            assertTrue(ex.getMessage().contains("output buffer too short"));
+        }
+
+        ocb.reset();
+        out = ByteBuffer.allocateDirect(32);
+        assertEquals(32, ocb.processBytes(in, out));
+
+        ByteBuffer tag = ByteBuffer.allocateDirect(15);
+        try
+        {
+            ocb.doFinal(tag);
+            fail("output too short for tag");
+        }
+        catch (Exception ex)
+        {
+            assertTrue(ex instanceof OutputLengthException);
+            assertTrue(ex.getMessage().contains("output buffer too short"));
+        }
+    }
+
+    @Test
+    public void testOCBDoFinal()
+            throws Exception
+    {
+        if (skipIfNotSupported())
+        {
+            return;
+        }
+
+        AEADParameters piv = new AEADParameters(new KeyParameter(new byte[16]), 128, new byte[12]);
+
+        new AESNativeOCB()
+        {
+            {
+                init(true, piv);
+
+                try
+                {
+                    doFinal(null, 0);
+                    fail("null output");
+                }
+                catch (Exception ex)
+                {
+                    assertTrue(ex instanceof NullPointerException);
+                    assertTrue(ex.getMessage().contains("output was null"));
+                }
+
+                try
+                {
+                    doFinal(new byte[16], -1);
+                    fail("negative offset");
+                }
+                catch (Exception ex)
+                {
+                    assertTrue(ex.getMessage().contains("offset is negative"));
+                }
+
+                try
+                {
+                    doFinal(new byte[16], 17);
+                    fail("offset past end");
+                }
+                catch (Exception ex)
+                {
+                    assertTrue(ex.getMessage().contains("offset past end of array"));
+                }
+
+                // Five buffered bytes and a 16 byte tag.
+                processBytes(new byte[5], 0, 5, null, 0);
+                try
+                {
+                    doFinal(new byte[21], 1);
+                    fail("output too short");
+                }
+                catch (Exception ex)
+                {
+                    assertTrue(ex instanceof OutputLengthException);
+                    assertTrue(ex.getMessage().contains("output buffer too short"));
+                }
+
+                assertEquals(21, doFinal(new byte[21], 0));
+            }
+        };
+
+        new AESNativeOCB()
+        {
+            {
+                init(false, piv);
+
+                processBytes(new byte[15], 0, 15, null, 0);
+                try
+                {
+                    doFinal(new byte[16], 0);
+                    fail("cipher text shorter than the tag");
+                }
+                catch (Exception ex)
+                {
+                    assertTrue(ex instanceof InvalidCipherTextException);
+                    assertTrue(ex.getMessage().contains("data too short"));
+                }
+            }
+        };
+
+        new AESNativeOCB()
+        {
+            {
+                init(false, piv);
+
+                byte[] out = new byte[4];
+                Arrays.fill(out, (byte)0x55);
+                processBytes(new byte[20], 0, 20, null, 0);
+                try
+                {
+                    doFinal(out, 0);
+                    fail("tag check");
+                }
+                catch (Exception ex)
+                {
+                    assertTrue(ex instanceof InvalidCipherTextException);
+                    assertTrue(ex.getMessage().contains("mac check in OCB failed"));
+                }
+                assertTrue("plain text not erased", Arrays.areAllZeroes(out, 0, out.length));
+            }
+        };
+
+        new AESNativeOCB()
+        {
+            {
+                try
+                {
+                    doFinal(new byte[16], 0);
+                    fail("not initialized");
+                }
+                catch (Exception ex)
+                {
+                    assertTrue(ex.getMessage().contains("uninitialized"));
+                }
+            }
+        };
+    }
+
+    @Test
+    public void testOCBOutputSize()
+            throws Exception
+    {
+        if (skipIfNotSupported())
+        {
+            return;
+        }
+
+        new AESNativeOCB()
+        {
+            {
+                init(true, new AEADParameters(new KeyParameter(new byte[16]), 96, new byte[12]));
+                assertEquals(44, getOutputSize(32));
+                assertEquals(32, getUpdateOutputSize(33));
+
+                try
+                {
+                    getOutputSize(-1);
+                    fail("negative len");
+                }
+                catch (Exception ex)
+                {
+                    assertTrue(ex.getMessage().contains("len is negative"));
+                }
+
+                try
+                {
+                    getUpdateOutputSize(-1);
+                    fail("negative len");
+                }
+                catch (Exception ex)
+                {
+                    assertTrue(ex.getMessage().contains("len is negative"));
+                }
+            }
+        };
+
+        new AESNativeOCB()
+        {
+            {
+                init(false, new AEADParameters(new KeyParameter(new byte[16]), 96, new byte[12]));
+                assertEquals(32, getOutputSize(44));
+                assertEquals(0, getOutputSize(11));
+                assertEquals(16, getUpdateOutputSize(43));
+                assertEquals(0, getUpdateOutputSize(11));
+            }
+        };
+    }
+}
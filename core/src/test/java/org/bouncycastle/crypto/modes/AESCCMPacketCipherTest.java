@@ -377,6 +377,85 @@ public class AESCCMPacketCipherTest
     }
 
 
+    /**
+     * Tests a packet cipher bound to a key with withKey() agrees with processPacket() given the key each time.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testWithKey()
+    throws Exception
+    {
+        if (TestUtil.skipPS())
+        {
+            System.out.println("Skipping packet cipher test.");
+            return;
+        }
+
+        SecureRandom rand = new SecureRandom();
+
+        for (int ks : new int[]{16, 24, 32})
+        {
+            byte[] key = new byte[ks];
+            rand.nextBytes(key);
+            KeyParameter keyParam = new KeyParameter(key);
+
+            AESCCMModePacketCipher single = AESCCMPacketCipher.newInstance();
+            KeyedAEADPacketCipher keyed = AESCCMPacketCipher.newInstance().withKey(new KeyParameter(key));
+
+            // The keyed cipher must not depend on the caller's array
+            Arrays.fill(key, (byte)0);
+
+            for (int t = 0; t < 100; t++)
+            {
+                // Includes empty messages, with and without associated data
+                byte[] msg = new byte[t * 7 % 100];
+                byte[] iv = new byte[7 + t % 7];
+                byte[] aad = (t % 3 == 0) ? null : new byte[t % 20];
+                int macSize = 4 + 2 * (t % 7);
+                rand.nextBytes(msg);
+                rand.nextBytes(iv);
+                if (aad != null)
+                {
+                    rand.nextBytes(aad);
+                }
+                AEADParameters params = new AEADParameters(keyParam, macSize * 8, iv, aad);
+
+                byte[] expected = new byte[single.getOutputSize(true, params, msg.length)];
+                single.processPacket(true, params, msg, 0, msg.length, expected, 0);
+
+                TestCase.assertEquals(expected.length, keyed.getOutputSize(true, macSize, msg.length));
+                byte[] ct = new byte[expected.length];
+                TestCase.assertEquals(ct.length, keyed.processPacket(true, iv, aad, macSize, msg, 0, msg.length, ct,
+                    0));
+                TestCase.assertTrue(Arrays.areEqual(expected, ct));
+
+                // Decrypt in place
+                TestCase.assertEquals(msg.length, keyed.getOutputSize(false, macSize, ct.length));
+                TestCase.assertEquals(msg.length, keyed.processPacket(false, iv, aad, macSize, ct, 0, ct.length, ct,
+                    0));
+                TestCase.assertTrue(Arrays.areEqual(msg, Arrays.copyOfRange(ct, 0, msg.length)));
+            }
+
+            byte[] iv = new byte[12];
+            rand.nextBytes(iv);
+            byte[] ct = new byte[32];
+            keyed.processPacket(true, iv, null, 16, new byte[16], 0, 16, ct, 0);
+
+            ct[31] ^= 1;
+            try
+            {
+                keyed.processPacket(false, iv, null, 16, ct, 0, 32, new byte[16], 0);
+                fail("bad tag not detected");
+            }
+            catch (PacketCipherException e)
+            {
+                TestCase.assertEquals(PacketCipherException.Reason.INVALID_CIPHERTEXT, e.getReason());
+            }
+        }
+    }
+
+
     /**
      * Tests operation of packet cipher where input and output arrays are the same
      *
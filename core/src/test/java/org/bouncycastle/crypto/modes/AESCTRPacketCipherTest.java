@@ -321,6 +321,110 @@ public class AESCTRPacketCipherTest
         }
     }
 
+    /**
+     * Tests a batch of packets processed in one call agrees with the same packets processed one at a time.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testProcessPackets()
+            throws Exception
+    {
+        if (TestUtil.skipPS())
+        {
+            System.out.println("Skipping packet cipher test.");
+            return;
+        }
+
+        SecureRandom rand = new SecureRandom();
+        AESCTRModePacketCipher ctrPC = AESCTRPacketCipher.newInstance();
+
+        int count = 67;
+        CipherParameters[] params = new CipherParameters[count];
+        byte[][] msgs = new byte[count][];
+        byte[][] cts = new byte[count][];
+        int[] inOff = new int[count];
+        int[] len = new int[count];
+        int[] outOff = new int[count];
+        int[] written = new int[count];
+
+        int expectedTotal = 0;
+        byte[] key = null;
+        for (int i = 0; i != count; i++)
+        {
+            // runs of packets under one key, as a batch from a single connection would be
+            if (i % 8 == 0)
+            {
+                key = new byte[16 + 8 * ((i / 8) % 3)];
+                rand.nextBytes(key);
+            }
+            byte[] iv = new byte[8 + (i % 9)];
+            rand.nextBytes(iv);
+            params[i] = new ParametersWithIV(new KeyParameter(key), iv);
+
+            inOff[i] = i % 3;
+            len[i] = i * 7;
+            outOff[i] = i % 4;
+            msgs[i] = new byte[inOff[i] + len[i]];
+            rand.nextBytes(msgs[i]);
+            cts[i] = new byte[outOff[i] + len[i]];
+            expectedTotal += len[i];
+        }
+
+        TestCase.assertEquals(expectedTotal, ctrPC.processPackets(true, params, msgs, inOff, len, cts, outOff,
+                written));
+
+        for (int i = 0; i != count; i++)
+        {
+            TestCase.assertEquals(len[i], written[i]);
+
+            SICBlockCipher javaEnc = new SICBlockCipher(new AESEngine());
+            javaEnc.init(true, params[i]);
+            byte[] expected = new byte[cts[i].length];
+            javaEnc.processBytes(msgs[i], inOff[i], len[i], expected, outOff[i]);
+            TestCase.assertTrue(Arrays.areEqual(expected, cts[i]));
+        }
+
+        byte[][] pts = new byte[count][];
+        for (int i = 0; i != count; i++)
+        {
+            pts[i] = new byte[inOff[i] + len[i]];
+        }
+        ctrPC.processPackets(false, params, cts, outOff, len, pts, inOff, written);
+        for (int i = 0; i != count; i++)
+        {
+            byte[] expected = Arrays.clone(msgs[i]);
+            Arrays.fill(expected, 0, inOff[i], (byte)0);
+            TestCase.assertTrue(Arrays.areEqual(expected, pts[i]));
+        }
+
+        //
+        // An output buffer that is too short part way through fails the batch at that packet.
+        //
+        cts[40] = new byte[outOff[40] + len[40] - 1];
+        java.util.Arrays.fill(written, -1);
+        try
+        {
+            ctrPC.processPackets(true, params, msgs, inOff, len, cts, outOff, written);
+            fail("short output not detected");
+        }
+        catch (PacketCipherException e)
+        {
+            TestCase.assertEquals(40, e.getPacketIndex());
+        }
+        TestCase.assertEquals(len[39], written[39]);
+        TestCase.assertEquals(-1, written[40]);
+
+        try
+        {
+            ctrPC.processPackets(true, params, msgs, inOff, len, cts, null, written);
+            fail("null array accepted");
+        }
+        catch (PacketCipherException e)
+        {
+            TestCase.assertEquals(ExceptionMessages.INPUT_NULL, e.getMessage());
+        }
+    }
 
     /**
      * Tests operation of packet cipher where input and output arrays are the same
@@ -0,0 +1,356 @@
+package org.bouncycastle.crypto.modes;
+
+import java.security.SecureRandom;
+
+import junit.framework.TestCase;
+import org.bouncycastle.crypto.CipherParameters;
+import org.bouncycastle.crypto.CryptoServicesRegistrar;
+import org.bouncycastle.crypto.ExceptionMessages;
+import org.bouncycastle.crypto.NativeServices;
+import org.bouncycastle.crypto.PacketCipherException;
+import org.bouncycastle.crypto.engines.AESEngine;
+import org.bouncycastle.crypto.engines.AESNativeEAXPacketCipher;
+import org.bouncycastle.crypto.engines.TestUtil;
+import org.bouncycastle.crypto.params.AEADParameters;
+import org.bouncycastle.crypto.params.KeyParameter;
+import org.bouncycastle.crypto.params.ParametersWithIV;
+import org.bouncycastle.util.Arrays;
+import org.bouncycastle.util.encoders.Hex;
+import org.junit.Test;
+
+public class AESEAXPacketCipherTest
+        extends TestCase
+{
+    // EAX paper test vectors
+    private byte[] K1 = Hex.decode("233952DEE4D5ED5F9B9C6D6FF80FF478");
+    private byte[] N1 = Hex.decode("62EC67F9C3A4A407FCB2A8C49031A8B3");
+    private byte[] A1 = Hex.decode("6BFB914FD07EAE6B");
+    private byte[] P1 = Hex.decode("");
+    private byte[] C1 = Hex.decode("E037830E8389F27B025A2D6527E79D01");
+
+    private byte[] K2 = Hex.decode("91945D3F4DCBEE0BF45EF52255F095A4");
+    private byte[] N2 = Hex.decode("BECAF043B0A23D843194BA972C66DEBD");
+    private byte[] A2 = Hex.decode("FA3BFD4806EB53FA");
+    private byte[] P2 = Hex.decode("F7FB");
+    private byte[] C2 = Hex.decode("19DD5C4C9331049D0BDAB0277408F67967E5");
+
+    private byte[] K3 = Hex.decode("01F74AD64077F2E704C0F60ADA3DD523");
+    private byte[] N3 = Hex.decode("70C3DB4F0D26368400A10ED05D2BFF5E");
+    private byte[] A3 = Hex.decode("234A3463C1264AC6");
+    private byte[] P3 = Hex.decode("1A47CB4933");
+    private byte[] C3 = Hex.decode("D851D5BAE03A59F238A23E39199DC9266626C40F80");
+
+    public AESEAXPacketCipherTest()
+    {
+    }
+
+    @Test
+    public void testVectors()
+            throws Exception
+    {
+        if (TestUtil.skipPS())
+        {
+            System.out.println("Skipping packet cipher test.");
+            return;
+        }
+
+        AESEAXModePacketCipher eax = AESEAXPacketCipher.newInstance();
+
+        isCorrectTypeForVariant(eax);
+
+        checkVectors(0, eax, K1, 128, N1, A1, P1, C1);
+        checkVectors(1, eax, K2, 128, N2, A2, P2, C2);
+        checkVectors(2, eax, K3, 128, N3, A3, P3, C3);
+    }
+
+    @Test
+    public void testAgreement()
+            throws Exception
+    {
+        if (TestUtil.skipPS())
+        {
+            System.out.println("Skipping packet cipher test.");
+            return;
+        }
+
+        SecureRandom random = new SecureRandom();
+        AESEAXModePacketCipher packetCipher = AESEAXPacketCipher.newInstance();
+        isCorrectTypeForVariant(packetCipher);
+
+        for (int t = 0; t < 2000; t++)
+        {
+            byte[] key = new byte[16 + 8 * random.nextInt(3)];
+            random.nextBytes(key);
+            byte[] nonce = new byte[random.nextInt(33)];
+            random.nextBytes(nonce);
+            byte[] aad = random.nextBoolean() ? null : new byte[random.nextInt(64)];
+            if (aad != null)
+            {
+                random.nextBytes(aad);
+            }
+            byte[] msg = new byte[random.nextInt(2048)];
+            random.nextBytes(msg);
+            int macSize = 8 * random.nextInt(17);
+
+            AEADParameters params = new AEADParameters(new KeyParameter(key), macSize, nonce, aad);
+
+            EAXBlockCipher streaming = new EAXBlockCipher(new AESEngine());
+            streaming.init(true, params);
+            byte[] expected = new byte[streaming.getOutputSize(msg.length)];
+            int j = streaming.processBytes(msg, 0, msg.length, expected, 0);
+            streaming.doFinal(expected, j);
+
+            int offset = random.nextInt(16);
+            byte[] ct = new byte[offset + expected.length];
+            TestCase.assertEquals(expected.length,
+                    packetCipher.processPacket(true, params, msg, 0, msg.length, ct, offset));
+            TestCase.assertTrue(packetCipher.toString() + " CT did not match",
+                    Arrays.areEqual(expected, Arrays.copyOfRange(ct, offset, ct.length)));
+
+            byte[] pt = new byte[msg.length];
+            TestCase.assertEquals(msg.length,
+                    packetCipher.processPacket(false, params, expected, 0, expected.length, pt, 0));
+            TestCase.assertTrue(packetCipher.toString() + " PT did not match", Arrays.areEqual(msg, pt));
+        }
+    }
+
+    @Test
+    public void testJavaAndNativeAgreement()
+            throws Exception
+    {
+        if (TestUtil.skipPS())
+        {
+            System.out.println("Skipping packet cipher test.");
+            return;
+        }
+
+        SecureRandom random = new SecureRandom();
+        AESEAXModePacketCipher javaCipher = new AESEAXPacketCipher();
+        AESEAXModePacketCipher packetCipher = AESEAXPacketCipher.newInstance();
+
+        for (int len = 0; len < 600; len++)
+        {
+            byte[] key = new byte[32];
+            random.nextBytes(key);
+            byte[] nonce = new byte[12];
+            random.nextBytes(nonce);
+            byte[] msg = new byte[len];
+            random.nextBytes(msg);
+
+            ParametersWithIV params = new ParametersWithIV(new KeyParameter(key), nonce);
+
+            byte[] javaCT = new byte[len + 8];
+            javaCipher.processPacket(true, params, msg, 0, len, javaCT, 0);
+
+            // in place.
+            byte[] ct = Arrays.copyOf(msg, len + 8);
+            packetCipher.processPacket(true, params, ct, 0, len, ct, 0);
+            TestCase.assertTrue(packetCipher.toString() + " CT did not match", Arrays.areEqual(javaCT, ct));
+
+            packetCipher.processPacket(false, params, ct, 0, ct.length, ct, 0);
+            TestCase.assertTrue(packetCipher.toString() + " PT did not match",
+                    Arrays.areEqual(msg, Arrays.copyOf(ct, len)));
+        }
+    }
+
+    @Test
+    public void testOutputErase()
+            throws Exception
+    {
+        if (TestUtil.skipPS())
+        {
+            System.out.println("Skipping packet cipher test.");
+            return;
+        }
+
+        SecureRandom rand = new SecureRandom();
+
+        byte[] key = new byte[16];
+        byte[] iv = new byte[12];
+        byte[] msg = new byte[37];
+
+        rand.nextBytes(key);
+        rand.nextBytes(iv);
+        rand.nextBytes(msg);
+
+        CipherParameters cp = new ParametersWithIV(new KeyParameter(key), iv);
+        EAXBlockCipher eaxNormal = new EAXBlockCipher(new AESEngine());
+        eaxNormal.init(true, cp);
+
+        byte[] ct = new byte[eaxNormal.getOutputSize(msg.length)];
+        int len = eaxNormal.processBytes(msg, 0, msg.length, ct, 0);
+        eaxNormal.doFinal(ct, len);
+
+        // Vandalise cipher text which will lead to tag failure
+        ct[0] ^= 1;
+
+        AESEAXModePacketCipher eax = AESEAXPacketCipher.newInstance();
+        isCorrectTypeForVariant(eax);
+
+        byte[] ptPk = new byte[eax.getOutputSize(false, cp, ct.length) + 5];
+        Arrays.fill(ptPk, (byte)0x01);
+
+        // Should be a one followed by zero bytes followed by four 0x01.
+        byte[] expected = Arrays.clone(ptPk);
+        Arrays.fill(expected, 1, 1 + msg.length, (byte)0);
+
+        try
+        {
+            eax.processPacket(false, cp, ct, 0, ct.length, ptPk, 1);
+            fail("mac failure expected");
+        }
+        catch (PacketCipherException e)
+        {
+            TestCase.assertEquals(PacketCipherException.Reason.INVALID_CIPHERTEXT, e.getReason());
+            TestCase.assertTrue(Arrays.areEqual(expected, ptPk));
+        }
+    }
+
+    @Test
+    public void testExceptions()
+    {
+        if (TestUtil.skipPS())
+        {
+            System.out.println("Skipping packet cipher test.");
+            return;
+        }
+
+        AESEAXModePacketCipher eax = AESEAXPacketCipher.newInstance();
+
+        try
+        {
+            eax.getOutputSize(false, new KeyParameter(new byte[16]), 0);
+            fail("invalid parameters for getOutputSize");
+        }
+        catch (IllegalArgumentException e)
+        {
+            TestCase.assertTrue("wrong message", e.getMessage().contains(ExceptionMessages.EAX_INVALID_PARAMETER));
+        }
+
+        try
+        {
+            eax.getOutputSize(false, new AEADParameters(new KeyParameter(new byte[16]), 128, new byte[12]), -1);
+            fail("negative value for getOutputSize");
+        }
+        catch (IllegalArgumentException e)
+        {
+            TestCase.assertEquals("wrong message", ExceptionMessages.LEN_NEGATIVE, e.getMessage());
+        }
+
+        try
+        {
+            eax.processPacket(true, new AEADParameters(new KeyParameter(new byte[18]), 128, new byte[12]),
+                    new byte[16], 0, 16, new byte[32], 0);
+            fail("invalid key size for processPacket");
+        }
+        catch (PacketCipherException e)
+        {
+            TestCase.assertTrue("wrong message", e.getMessage().contains(ExceptionMessages.AES_KEY_LENGTH));
+        }
+
+        try
+        {
+            eax.processPacket(true, new AEADParameters(new KeyParameter(new byte[16]), 128, null),
+                    new byte[16], 0, 16, new byte[32], 0);
+            fail("null nonce for processPacket");
+        }
+        catch (PacketCipherException e)
+        {
+            TestCase.assertTrue("wrong message", e.getMessage().contains(ExceptionMessages.NONCE_NULL));
+        }
+
+        try
+        {
+            eax.processPacket(true, new AEADParameters(new KeyParameter(new byte[16]), 136, new byte[12]),
+                    new byte[16], 0, 16, new byte[32], 0);
+            fail("invalid mac size for processPacket");
+        }
+        catch (PacketCipherException e)
+        {
+            TestCase.assertTrue("wrong message", e.getMessage().contains(ExceptionMessages.EAX_MAC_SIZE));
+        }
+
+        AEADParameters params = new AEADParameters(new KeyParameter(new byte[16]), 128, new byte[12]);
+
+        try
+        {
+            eax.processPacket(true, params, null, 0, 0, new byte[16], 0);
+            fail("input was null for processPacket");
+        }
+        catch (PacketCipherException e)
+        {
+            TestCase.assertTrue("wrong message", e.getMessage().contains(ExceptionMessages.INPUT_NULL));
+        }
+
+        try
+        {
+            eax.processPacket(true, params, new byte[16], 0, 16, new byte[31], 0);
+            fail("output buffer too small for processPacket");
+        }
+        catch (PacketCipherException e)
+        {
+            TestCase.assertTrue("wrong message", e.getMessage().contains(ExceptionMessages.OUTPUT_LENGTH));
+        }
+
+        try
+        {
+            eax.processPacket(false, params, new byte[15], 0, 15, new byte[16], 0);
+            fail("input shorter than the tag for processPacket");
+        }
+        catch (PacketCipherException e)
+        {
+            TestCase.assertTrue("wrong message", e.getMessage().contains(ExceptionMessages.INPUT_SHORT));
+        }
+    }
+
+    private void checkVectors(
+            int count,
+            AESEAXModePacketCipher eax,
+            byte[] k,
+            int macSize,
+            byte[] n,
+            byte[] a,
+            byte[] p,
+            byte[] c)
+            throws PacketCipherException
+    {
+        AEADParameters parameters = new AEADParameters(new KeyParameter(k), macSize, n, a);
+        byte[] enc = new byte[eax.getOutputSize(true, parameters, p.length)];
+        eax.processPacket(true, parameters, p, 0, p.length, enc, 0);
+
+        TestCase.assertTrue("encrypted stream fails to match in test " + count, Arrays.areEqual(c, enc));
+
+        byte[] dec = new byte[eax.getOutputSize(false, parameters, enc.length)];
+        eax.processPacket(false, parameters, enc, 0, enc.length, dec, 0);
+
+        TestCase.assertTrue("decrypted stream fails to match in test " + count, Arrays.areEqual(p, dec));
+    }
+
+    private boolean isNativeVariant()
+    {
+        String variant = CryptoServicesRegistrar.getNativeServices().getVariant();
+        if (variant == null || "java".equals(variant))
+        {
+            return false;
+        }
+        // May not be ported to native platform, so exercise java version only.
+        return CryptoServicesRegistrar.hasEnabledService(NativeServices.AES_EAX_PC);
+    }
+
+    private void isCorrectTypeForVariant(Object o)
+    {
+        //
+        // Verify we are getting is what we expect.
+        //
+        if (isNativeVariant())
+        {
+            TestCase.assertTrue(o.toString().contains("EAX-PS[Native]"));
+            TestCase.assertTrue(o instanceof AESNativeEAXPacketCipher);
+        }
+        else
+        {
+            TestCase.assertTrue(o.toString().contains("EAX-PS[Java]"));
+            TestCase.assertTrue(o instanceof AESEAXPacketCipher);
+        }
+    }
+}
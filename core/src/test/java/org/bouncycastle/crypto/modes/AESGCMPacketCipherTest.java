@@ -483,6 +483,226 @@ public class AESGCMPacketCipherTest
     }
 
 
+    /**
+     * Tests a batch of packets processed in one call agrees with the same packets processed one at a time.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testProcessPackets()
+    throws Exception
+    {
+        if (TestUtil.skipPS())
+        {
+            System.out.println("Skipping packet cipher test.");
+            return;
+        }
+
+        SecureRandom rand = new SecureRandom();
+        AESGCMModePacketCipher batch = AESGCMPacketCipher.newInstance();
+        AESGCMModePacketCipher single = AESGCMPacketCipher.newInstance();
+
+        int count = 67;
+        CipherParameters[] params = new CipherParameters[count];
+        byte[][] msgs = new byte[count][];
+        byte[][] cts = new byte[count][];
+        int[] inOff = new int[count];
+        int[] len = new int[count];
+        int[] outOff = new int[count];
+        int[] written = new int[count];
+
+        int expectedTotal = 0;
+        byte[] key = null;
+        for (int i = 0; i != count; i++)
+        {
+            // runs of packets under one key, as a batch from a single connection would be
+            if (i % 8 == 0)
+            {
+                key = new byte[16 + 8 * ((i / 8) % 3)];
+                rand.nextBytes(key);
+            }
+            byte[] iv = new byte[12 + (i % 5)];
+            rand.nextBytes(iv);
+            if ((i & 1) == 0)
+            {
+                byte[] aad = new byte[i % 20];
+                rand.nextBytes(aad);
+                params[i] = new AEADParameters(new KeyParameter(key), 96 + 32 * (i % 2), iv, aad);
+            }
+            else
+            {
+                params[i] = new ParametersWithIV(new KeyParameter(key), iv);
+            }
+
+            inOff[i] = i % 3;
+            len[i] = i * 7;
+            outOff[i] = i % 4;
+            msgs[i] = new byte[inOff[i] + len[i]];
+            rand.nextBytes(msgs[i]);
+            cts[i] = new byte[outOff[i] + batch.getOutputSize(true, params[i], len[i])];
+            expectedTotal += cts[i].length - outOff[i];
+        }
+
+        TestCase.assertEquals(expectedTotal, batch.processPackets(true, params, msgs, inOff, len, cts, outOff,
+                written));
+
+        byte[][] pts = new byte[count][];
+        int[] ctLen = new int[count];
+        for (int i = 0; i != count; i++)
+        {
+            byte[] expected = new byte[cts[i].length];
+            TestCase.assertEquals(written[i], single.processPacket(true, params[i], msgs[i], inOff[i], len[i],
+                    expected, outOff[i]));
+            TestCase.assertTrue(Arrays.areEqual(expected, cts[i]));
+
+            ctLen[i] = written[i];
+            pts[i] = new byte[len[i]];
+        }
+
+        TestCase.assertEquals(0, batch.processPackets(false, new CipherParameters[0], new byte[0][], new int[0],
+                new int[0], new byte[0][], new int[0], new int[0]));
+
+        batch.processPackets(false, params, cts, outOff, ctLen, pts, new int[count], written);
+        for (int i = 0; i != count; i++)
+        {
+            TestCase.assertEquals(len[i], written[i]);
+            TestCase.assertTrue(Arrays.areEqual(Arrays.copyOfRange(msgs[i], inOff[i], msgs[i].length), pts[i]));
+        }
+
+        //
+        // A bad tag part way through fails the batch at that packet.
+        //
+        cts[40][cts[40].length - 1] ^= 1;
+        java.util.Arrays.fill(written, -1);
+        try
+        {
+            batch.processPackets(false, params, cts, outOff, ctLen, pts, new int[count], written);
+            fail("bad tag not detected");
+        }
+        catch (PacketCipherException e)
+        {
+            TestCase.assertEquals(PacketCipherException.Reason.INVALID_CIPHERTEXT, e.getReason());
+            TestCase.assertEquals(40, e.getPacketIndex());
+        }
+        TestCase.assertEquals(len[39], written[39]);
+        TestCase.assertEquals(-1, written[40]);
+
+        //
+        // Bad parameters are reported against their packet, a problem with the batch as a whole against none.
+        //
+        params[5] = new AEADParameters(new KeyParameter(key), 136, new byte[12], null);
+        try
+        {
+            batch.processPackets(true, params, msgs, inOff, len, cts, outOff, written);
+            fail("bad mac size accepted");
+        }
+        catch (PacketCipherException e)
+        {
+            TestCase.assertEquals(5, e.getPacketIndex());
+        }
+
+        try
+        {
+            batch.processPackets(true, params, msgs, inOff, len, cts, outOff, new int[count - 1]);
+            fail("mismatched arrays accepted");
+        }
+        catch (PacketCipherException e)
+        {
+            TestCase.assertEquals(ExceptionMessages.PACKETS_LENGTH_MISMATCH, e.getMessage());
+            TestCase.assertEquals(-1, e.getPacketIndex());
+        }
+    }
+
+
+    /**
+     * Tests a packet cipher bound to a key with withKey() agrees with processPacket() given the key each time.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testWithKey()
+    throws Exception
+    {
+        if (TestUtil.skipPS())
+        {
+            System.out.println("Skipping packet cipher test.");
+            return;
+        }
+
+        SecureRandom rand = new SecureRandom();
+
+        for (int ks : new int[]{16, 24, 32})
+        {
+            byte[] key = new byte[ks];
+            rand.nextBytes(key);
+            KeyParameter keyParam = new KeyParameter(key);
+
+            AESGCMModePacketCipher single = AESGCMPacketCipher.newInstance();
+            KeyedAEADPacketCipher keyed = AESGCMPacketCipher.newInstance().withKey(new KeyParameter(key));
+
+            // The keyed cipher must not depend on the caller's array
+            Arrays.fill(key, (byte)0);
+
+            for (int t = 0; t < 100; t++)
+            {
+                // Includes empty messages, with and without associated data
+                byte[] msg = new byte[t * 7 % 100];
+                byte[] iv = new byte[12 + t % 5];
+                byte[] aad = (t % 3 == 0) ? null : new byte[t % 20];
+                int macSize = 12 + 4 * (t % 2);
+                rand.nextBytes(msg);
+                rand.nextBytes(iv);
+                if (aad != null)
+                {
+                    rand.nextBytes(aad);
+                }
+                AEADParameters params = new AEADParameters(keyParam, macSize * 8, iv, aad);
+
+                byte[] expected = new byte[single.getOutputSize(true, params, msg.length)];
+                single.processPacket(true, params, msg, 0, msg.length, expected, 0);
+
+                TestCase.assertEquals(expected.length, keyed.getOutputSize(true, macSize, msg.length));
+                byte[] ct = new byte[expected.length];
+                TestCase.assertEquals(ct.length, keyed.processPacket(true, iv, aad, macSize, msg, 0, msg.length, ct,
+                    0));
+                TestCase.assertTrue(Arrays.areEqual(expected, ct));
+
+                // Decrypt in place
+                TestCase.assertEquals(msg.length, keyed.getOutputSize(false, macSize, ct.length));
+                TestCase.assertEquals(msg.length, keyed.processPacket(false, iv, aad, macSize, ct, 0, ct.length, ct,
+                    0));
+                TestCase.assertTrue(Arrays.areEqual(msg, Arrays.copyOfRange(ct, 0, msg.length)));
+            }
+
+            byte[] iv = new byte[12];
+            rand.nextBytes(iv);
+            byte[] ct = new byte[32];
+            keyed.processPacket(true, iv, null, 16, new byte[16], 0, 16, ct, 0);
+
+            try
+            {
+                keyed.processPacket(true, iv, null, 16, new byte[16], 0, 16, new byte[32], 0);
+                fail("nonce reuse not detected");
+            }
+            catch (PacketCipherException e)
+            {
+                TestCase.assertTrue(e.getMessage().contains("cannot reuse nonce"));
+            }
+
+            ct[31] ^= 1;
+            try
+            {
+                keyed.processPacket(false, iv, null, 16, ct, 0, 32, new byte[16], 0);
+                fail("bad tag not detected");
+            }
+            catch (PacketCipherException e)
+            {
+                TestCase.assertEquals(PacketCipherException.Reason.INVALID_CIPHERTEXT, e.getReason());
+            }
+        }
+    }
+
+
     /**
      * Tests operation of packet cipher where input and output arrays are the same
      *
@@ -0,0 +1,361 @@
+package org.bouncycastle.crypto.modes;
+
+import java.security.SecureRandom;
+
+import junit.framework.TestCase;
+import org.bouncycastle.crypto.CipherParameters;
+import org.bouncycastle.crypto.CryptoServicesRegistrar;
+import org.bouncycastle.crypto.ExceptionMessages;
+import org.bouncycastle.crypto.NativeServices;
+import org.bouncycastle.crypto.PacketCipherException;
+import org.bouncycastle.crypto.engines.AESEngine;
+import org.bouncycastle.crypto.engines.AESNativeOCBPacketCipher;
+import org.bouncycastle.crypto.engines.TestUtil;
+import org.bouncycastle.crypto.params.AEADParameters;
+import org.bouncycastle.crypto.params.KeyParameter;
+import org.bouncycastle.crypto.params.ParametersWithIV;
+import org.bouncycastle.util.Arrays;
+import org.bouncycastle.util.encoders.Hex;
+import org.junit.Test;
+
+public class AESOCBPacketCipherTest
+        extends TestCase
+{
+    // RFC 7253 Appendix A
+    private byte[] K = Hex.decode("000102030405060708090A0B0C0D0E0F");
+
+    private byte[] N1 = Hex.decode("BBAA99887766554433221100");
+    private byte[] A1 = Hex.decode("");
+    private byte[] P1 = Hex.decode("");
+    private byte[] C1 = Hex.decode("785407BFFFC8AD9EDCC5520AC9111EE6");
+
+    private byte[] N2 = Hex.decode("BBAA99887766554433221101");
+    private byte[] A2 = Hex.decode("0001020304050607");
+    private byte[] P2 = Hex.decode("0001020304050607");
+    private byte[] C2 = Hex.decode("6820B3657B6F615A5725BDA0D3B4EB3A257C9AF1F8F03009");
+
+    private byte[] N3 = Hex.decode("BBAA99887766554433221102");
+    private byte[] A3 = Hex.decode("0001020304050607");
+    private byte[] P3 = Hex.decode("");
+    private byte[] C3 = Hex.decode("81017F8203F081277152FADE694A0A00");
+
+    private byte[] N4 = Hex.decode("BBAA99887766554433221103");
+    private byte[] A4 = Hex.decode("");
+    private byte[] P4 = Hex.decode("0001020304050607");
+    private byte[] C4 = Hex.decode("45DD69F8F5AAE72414054CD1F35D82760B2CD00D2F99BFA9");
+
+    public AESOCBPacketCipherTest()
+    {
+    }
+
+    @Test
+    public void testVectors()
+            throws Exception
+    {
+        if (TestUtil.skipPS())
+        {
+            System.out.println("Skipping packet cipher test.");
+            return;
+        }
+
+        AESOCBModePacketCipher ocb = AESOCBPacketCipher.newInstance();
+
+        isCorrectTypeForVariant(ocb);
+
+        checkVectors(0, ocb, K, 128, N1, A1, P1, C1);
+        checkVectors(1, ocb, K, 128, N2, A2, P2, C2);
+        checkVectors(2, ocb, K, 128, N3, A3, P3, C3);
+        checkVectors(3, ocb, K, 128, N4, A4, P4, C4);
+    }
+
+    @Test
+    public void testAgreement()
+            throws Exception
+    {
+        if (TestUtil.skipPS())
+        {
+            System.out.println("Skipping packet cipher test.");
+            return;
+        }
+
+        SecureRandom random = new SecureRandom();
+        AESOCBModePacketCipher packetCipher = AESOCBPacketCipher.newInstance();
+        isCorrectTypeForVariant(packetCipher);
+
+        for (int t = 0; t < 2000; t++)
+        {
+            byte[] key = new byte[16 + 8 * random.nextInt(3)];
+            random.nextBytes(key);
+            byte[] nonce = new byte[1 + random.nextInt(15)];
+            random.nextBytes(nonce);
+            byte[] aad = random.nextBoolean() ? null : new byte[random.nextInt(64)];
+            if (aad != null)
+            {
+                random.nextBytes(aad);
+            }
+            byte[] msg = new byte[random.nextInt(2048)];
+            random.nextBytes(msg);
+            int macSize = 64 + 8 * random.nextInt(9);
+
+            AEADParameters params = new AEADParameters(new KeyParameter(key), macSize, nonce, aad);
+
+            OCBBlockCipher streaming = new OCBBlockCipher(new AESEngine(), new AESEngine());
+            streaming.init(true, params);
+            byte[] expected = new byte[streaming.getOutputSize(msg.length)];
+            int j = streaming.processBytes(msg, 0, msg.length, expected, 0);
+            streaming.doFinal(expected, j);
+
+            int offset = random.nextInt(16);
+            byte[] ct = new byte[offset + expected.length];
+            TestCase.assertEquals(expected.length,
+                    packetCipher.processPacket(true, params, msg, 0, msg.length, ct, offset));
+            TestCase.assertTrue(packetCipher.toString() + " CT did not match",
+                    Arrays.areEqual(expected, Arrays.copyOfRange(ct, offset, ct.length)));
+
+            byte[] pt = new byte[msg.length];
+            TestCase.assertEquals(msg.length,
+                    packetCipher.processPacket(false, params, expected, 0, expected.length, pt, 0));
+            TestCase.assertTrue(packetCipher.toString() + " PT did not match", Arrays.areEqual(msg, pt));
+        }
+    }
+
+    @Test
+    public void testJavaAndNativeAgreement()
+            throws Exception
+    {
+        if (TestUtil.skipPS())
+        {
+            System.out.println("Skipping packet cipher test.");
+            return;
+        }
+
+        SecureRandom random = new SecureRandom();
+        AESOCBModePacketCipher javaCipher = new AESOCBPacketCipher();
+        AESOCBModePacketCipher packetCipher = AESOCBPacketCipher.newInstance();
+
+        for (int len = 0; len < 600; len++)
+        {
+            byte[] key = new byte[32];
+            random.nextBytes(key);
+            byte[] nonce = new byte[12];
+            random.nextBytes(nonce);
+            byte[] msg = new byte[len];
+            random.nextBytes(msg);
+
+            ParametersWithIV params = new ParametersWithIV(new KeyParameter(key), nonce);
+
+            byte[] javaCT = new byte[len + 16];
+            javaCipher.processPacket(true, params, msg, 0, len, javaCT, 0);
+
+            // in place.
+            byte[] ct = Arrays.copyOf(msg, len + 16);
+            packetCipher.processPacket(true, params, ct, 0, len, ct, 0);
+            TestCase.assertTrue(packetCipher.toString() + " CT did not match", Arrays.areEqual(javaCT, ct));
+
+            packetCipher.processPacket(false, params, ct, 0, ct.length, ct, 0);
+            TestCase.assertTrue(packetCipher.toString() + " PT did not match",
+                    Arrays.areEqual(msg, Arrays.copyOf(ct, len)));
+        }
+    }
+
+    @Test
+    public void testOutputErase()
+            throws Exception
+    {
+        if (TestUtil.skipPS())
+        {
+            System.out.println("Skipping packet cipher test.");
+            return;
+        }
+
+        SecureRandom rand = new SecureRandom();
+
+        byte[] key = new byte[16];
+        byte[] iv = new byte[12];
+        byte[] msg = new byte[37];
+
+        rand.nextBytes(key);
+        rand.nextBytes(iv);
+        rand.nextBytes(msg);
+
+        CipherParameters cp = new ParametersWithIV(new KeyParameter(key), iv);
+        OCBBlockCipher ocbNormal = new OCBBlockCipher(new AESEngine(), new AESEngine());
+        ocbNormal.init(true, cp);
+
+        byte[] ct = new byte[ocbNormal.getOutputSize(msg.length)];
+        int len = ocbNormal.processBytes(msg, 0, msg.length, ct, 0);
+        ocbNormal.doFinal(ct, len);
+
+        // Vandalise cipher text which will lead to tag failure
+        ct[0] ^= 1;
+
+        AESOCBModePacketCipher ocb = AESOCBPacketCipher.newInstance();
+        isCorrectTypeForVariant(ocb);
+
+        byte[] ptPk = new byte[ocb.getOutputSize(false, cp, ct.length) + 5];
+        Arrays.fill(ptPk, (byte)0x01);
+
+        // Should be a one followed by zero bytes followed by four 0x01.
+        byte[] expected = Arrays.clone(ptPk);
+        Arrays.fill(expected, 1, 1 + msg.length, (byte)0);
+
+        try
+        {
+            ocb.processPacket(false, cp, ct, 0, ct.length, ptPk, 1);
+            fail("mac failure expected");
+        }
+        catch (PacketCipherException e)
+        {
+            TestCase.assertEquals(PacketCipherException.Reason.INVALID_CIPHERTEXT, e.getReason());
+            TestCase.assertTrue(Arrays.areEqual(expected, ptPk));
+        }
+    }
+
+    @Test
+    public void testExceptions()
+    {
+        if (TestUtil.skipPS())
+        {
+            System.out.println("Skipping packet cipher test.");
+            return;
+        }
+
+        AESOCBModePacketCipher ocb = AESOCBPacketCipher.newInstance();
+
+        try
+        {
+            ocb.getOutputSize(false, new KeyParameter(new byte[16]), 0);
+            fail("invalid parameters for getOutputSize");
+        }
+        catch (IllegalArgumentException e)
+        {
+            TestCase.assertTrue("wrong message", e.getMessage().contains(ExceptionMessages.OCB_INVALID_PARAMETER));
+        }
+
+        try
+        {
+            ocb.getOutputSize(false, new AEADParameters(new KeyParameter(new byte[16]), 128, new byte[12]), -1);
+            fail("negative value for getOutputSize");
+        }
+        catch (IllegalArgumentException e)
+        {
+            TestCase.assertEquals("wrong message", ExceptionMessages.LEN_NEGATIVE, e.getMessage());
+        }
+
+        try
+        {
+            ocb.processPacket(true, new AEADParameters(new KeyParameter(new byte[18]), 128, new byte[12]),
+                    new byte[16], 0, 16, new byte[32], 0);
+            fail("invalid key size for processPacket");
+        }
+        catch (PacketCipherException e)
+        {
+            TestCase.assertTrue("wrong message", e.getMessage().contains(ExceptionMessages.AES_KEY_LENGTH));
+        }
+
+        try
+        {
+            ocb.processPacket(true, new AEADParameters(new KeyParameter(new byte[16]), 128, new byte[16]),
+                    new byte[16], 0, 16, new byte[32], 0);
+            fail("invalid nonce size for processPacket");
+        }
+        catch (PacketCipherException e)
+        {
+            TestCase.assertTrue("wrong message", e.getMessage().contains(ExceptionMessages.OCB_IV_TOO_LONG));
+        }
+
+        try
+        {
+            ocb.processPacket(true, new AEADParameters(new KeyParameter(new byte[16]), 56, new byte[12]),
+                    new byte[16], 0, 16, new byte[32], 0);
+            fail("invalid mac size for processPacket");
+        }
+        catch (PacketCipherException e)
+        {
+            TestCase.assertTrue("wrong message", e.getMessage().contains(ExceptionMessages.OCB_MAC_SIZE));
+        }
+
+        AEADParameters params = new AEADParameters(new KeyParameter(new byte[16]), 128, new byte[12]);
+
+        try
+        {
+            ocb.processPacket(true, params, null, 0, 0, new byte[16], 0);
+            fail("input was null for processPacket");
+        }
+        catch (PacketCipherException e)
+        {
+            TestCase.assertTrue("wrong message", e.getMessage().contains(ExceptionMessages.INPUT_NULL));
+        }
+
+        try
+        {
+            ocb.processPacket(true, params, new byte[16], 0, 16, new byte[31], 0);
+            fail("output buffer too small for processPacket");
+        }
+        catch (PacketCipherException e)
+        {
+            TestCase.assertTrue("wrong message", e.getMessage().contains(ExceptionMessages.OUTPUT_LENGTH));
+        }
+
+        try
+        {
+            ocb.processPacket(false, params, new byte[15], 0, 15, new byte[16], 0);
+            fail("input shorter than the tag for processPacket");
+        }
+        catch (PacketCipherException e)
+        {
+            TestCase.assertTrue("wrong message", e.getMessage().contains(ExceptionMessages.INPUT_SHORT));
+        }
+    }
+
+    private void checkVectors(
+            int count,
+            AESOCBModePacketCipher ocb,
+            byte[] k,
+            int macSize,
+            byte[] n,
+            byte[] a,
+            byte[] p,
+            byte[] c)
+            throws PacketCipherException
+    {
+        AEADParameters parameters = new AEADParameters(new KeyParameter(k), macSize, n, a);
+        byte[] enc = new byte[ocb.getOutputSize(true, parameters, p.length)];
+        ocb.processPacket(true, parameters, p, 0, p.length, enc, 0);
+
+        TestCase.assertTrue("encrypted stream fails to match in test " + count, Arrays.areEqual(c, enc));
+
+        byte[] dec = new byte[ocb.getOutputSize(false, parameters, enc.length)];
+        ocb.processPacket(false, parameters, enc, 0, enc.length, dec, 0);
+
+        TestCase.assertTrue("decrypted stream fails to match in test " + count, Arrays.areEqual(p, dec));
+    }
+
+    private boolean isNativeVariant()
+    {
+        String variant = CryptoServicesRegistrar.getNativeServices().getVariant();
+        if (variant == null || "java".equals(variant))
+        {
+            return false;
+        }
+        // May not be ported to native platform, so exercise java version only.
+        return CryptoServicesRegistrar.hasEnabledService(NativeServices.AES_OCB_PC);
+    }
+
+    private void isCorrectTypeForVariant(Object o)
+    {
+        //
+        // Verify we are getting is what we expect.
+        //
+        if (isNativeVariant())
+        {
+            TestCase.assertTrue(o.toString().contains("OCB-PS[Native]"));
+            TestCase.assertTrue(o instanceof AESNativeOCBPacketCipher);
+        }
+        else
+        {
+            TestCase.assertTrue(o.toString().contains("OCB-PS[Java]"));
+            TestCase.assertTrue(o instanceof AESOCBPacketCipher);
+        }
+    }
+}
@@ -20,8 +20,11 @@ public class AllTests extends TestCase
         suite.addTestSuite(AESCCMPacketCipherTest.class);
         suite.addTestSuite(AESCFBPacketCipherTest.class);
         suite.addTestSuite(AESCTRPacketCipherTest.class);
+        suite.addTestSuite(AESEAXPacketCipherTest.class);
         suite.addTestSuite(AESGCMPacketCipherTest.class);
         suite.addTestSuite(AESGCMSIVPacketCipherTest.class);
+        suite.addTestSuite(AESOCBPacketCipherTest.class);
+        suite.addTestSuite(ChaCha20Poly1305PacketCipherTest.class);
         return new BCTestSetup(suite);
     }
 
@@ -0,0 +1,251 @@
+package org.bouncycastle.crypto.modes;
+
+import java.security.SecureRandom;
+
+import junit.framework.TestCase;
+import org.bouncycastle.crypto.CryptoServicesRegistrar;
+import org.bouncycastle.crypto.ExceptionMessages;
+import org.bouncycastle.crypto.PacketCipherException;
+import org.bouncycastle.crypto.engines.TestUtil;
+import org.bouncycastle.crypto.params.AEADParameters;
+import org.bouncycastle.crypto.params.KeyParameter;
+import org.bouncycastle.crypto.params.ParametersWithIV;
+import org.bouncycastle.util.Arrays;
+import org.bouncycastle.util.encoders.Hex;
+import org.junit.Test;
+
+public class ChaCha20Poly1305PacketCipherTest
+        extends TestCase
+{
+    public ChaCha20Poly1305PacketCipherTest()
+    {
+    }
+
+    @Test
+    public void testRFC8439()
+            throws Exception
+    {
+        if (TestUtil.skipPS())
+        {
+            System.out.println("Skipping packet cipher test.");
+            return;
+        }
+
+        // RFC 8439 2.8.2
+        byte[] key = Hex.decode("808182838485868788898a8b8c8d8e8f909192939495969798999a9b9c9d9e9f");
+        byte[] nonce = Hex.decode("070000004041424344454647");
+        byte[] aad = Hex.decode("50515253c0c1c2c3c4c5c6c7");
+        byte[] pt = ("Ladies and Gentlemen of the class of '99: If I could offer you only one tip for the future, "
+                + "sunscreen would be it.").getBytes("US-ASCII");
+        byte[] expected = Hex.decode("d31a8d34648e60db7b86afbc53ef7ec2a4aded51296e08fea9e2b5a736ee62d63dbea45e8ca96712"
+                + "82fafb69da92728b1a71de0a9e060b2905d6a5b67ecd3b3692ddbd7f2d778b8c9803aee328091b58fab324e4fad675945585808b"
+                + "4831d7bc3ff4def08e4b7a9de576d26586cec64b61161ae10b594f09e26a7e902ecbd0600691");
+
+        AEADParameters params = new AEADParameters(new KeyParameter(key), 128, nonce, aad);
+
+        ChaCha20Poly1305ModePacketCipher cipher = ChaCha20Poly1305PacketCipher.newInstance();
+        byte[] ct = new byte[cipher.getOutputSize(true, params, pt.length)];
+        TestCase.assertEquals(ct.length, cipher.processPacket(true, params, pt, 0, pt.length, ct, 0));
+        TestCase.assertTrue(cipher.toString() + " CT did not match", Arrays.areEqual(expected, ct));
+
+        byte[] out = new byte[cipher.getOutputSize(false, params, ct.length)];
+        TestCase.assertEquals(pt.length, cipher.processPacket(false, params, ct, 0, ct.length, out, 0));
+        TestCase.assertTrue(cipher.toString() + " PT did not match", Arrays.areEqual(pt, out));
+    }
+
+    @Test
+    public void testAgreement()
+            throws Exception
+    {
+        if (TestUtil.skipPS())
+        {
+            System.out.println("Skipping packet cipher test.");
+            return;
+        }
+
+        SecureRandom random = new SecureRandom();
+        ChaCha20Poly1305ModePacketCipher packetCipher = ChaCha20Poly1305PacketCipher.newInstance();
+
+        for (int t = 0; t < 2000; t++)
+        {
+            byte[] key = new byte[32];
+            random.nextBytes(key);
+            byte[] nonce = new byte[12];
+            random.nextBytes(nonce);
+            byte[] aad = random.nextBoolean() ? null : new byte[random.nextInt(64)];
+            if (aad != null)
+            {
+                random.nextBytes(aad);
+            }
+            byte[] msg = new byte[random.nextInt(2048)];
+            random.nextBytes(msg);
+
+            AEADParameters params = new AEADParameters(new KeyParameter(key), 128, nonce, aad);
+
+            ChaCha20Poly1305 streaming = new ChaCha20Poly1305();
+            streaming.init(true, params);
+            byte[] expected = new byte[streaming.getOutputSize(msg.length)];
+            int j = streaming.processBytes(msg, 0, msg.length, expected, 0);
+            streaming.doFinal(expected, j);
+
+            int offset = random.nextInt(16);
+            byte[] ct = new byte[offset + msg.length + 16];
+            TestCase.assertEquals(msg.length + 16,
+                    packetCipher.processPacket(true, params, msg, 0, msg.length, ct, offset));
+            TestCase.assertTrue(packetCipher.toString() + " CT did not match",
+                    Arrays.areEqual(expected, Arrays.copyOfRange(ct, offset, ct.length)));
+
+            byte[] pt = new byte[msg.length];
+            TestCase.assertEquals(msg.length,
+                    packetCipher.processPacket(false, params, expected, 0, expected.length, pt, 0));
+            TestCase.assertTrue(packetCipher.toString() + " PT did not match", Arrays.areEqual(msg, pt));
+        }
+    }
+
+    @Test
+    public void testJavaAndNativeAgreement()
+            throws Exception
+    {
+        if (TestUtil.skipPS())
+        {
+            System.out.println("Skipping packet cipher test.");
+            return;
+        }
+
+        SecureRandom random = new SecureRandom();
+        ChaCha20Poly1305ModePacketCipher javaCipher = new ChaCha20Poly1305PacketCipher();
+        ChaCha20Poly1305ModePacketCipher packetCipher = ChaCha20Poly1305PacketCipher.newInstance();
+
+        for (int len = 0; len < 600; len++)
+        {
+            byte[] key = new byte[32];
+            random.nextBytes(key);
+            byte[] nonce = new byte[12];
+            random.nextBytes(nonce);
+            byte[] msg = new byte[len];
+            random.nextBytes(msg);
+
+            ParametersWithIV params = new ParametersWithIV(new KeyParameter(key), nonce);
+
+            byte[] javaCT = new byte[len + 16];
+            javaCipher.processPacket(true, params, msg, 0, len, javaCT, 0);
+
+            // in place.
+            byte[] ct = Arrays.copyOf(msg, len + 16);
+            packetCipher.processPacket(true, params, ct, 0, len, ct, 0);
+            TestCase.assertTrue(packetCipher.toString() + " CT did not match", Arrays.areEqual(javaCT, ct));
+
+            packetCipher.processPacket(false, params, ct, 0, ct.length, ct, 0);
+            TestCase.assertTrue(packetCipher.toString() + " PT did not match",
+                    Arrays.areEqual(msg, Arrays.copyOf(ct, len)));
+        }
+    }
+
+    @Test
+    public void testExceptions()
+    {
+        if (TestUtil.skipPS())
+        {
+            System.out.println("Skipping packet cipher test.");
+            return;
+        }
+
+        ChaCha20Poly1305ModePacketCipher cipher = ChaCha20Poly1305PacketCipher.newInstance();
+        AEADParameters params = new AEADParameters(new KeyParameter(new byte[32]), 128, new byte[12]);
+
+        try
+        {
+            cipher.getOutputSize(false, params, -1);
+            fail("negative value for getOutputSize");
+        }
+        catch (IllegalArgumentException e)
+        {
+            // expected
+            TestCase.assertTrue("wrong message", e.getMessage().equals(ExceptionMessages.LEN_NEGATIVE));
+        }
+
+        try
+        {
+            cipher.processPacket(true, new AEADParameters(new KeyParameter(new byte[16]), 128, new byte[12]),
+                    new byte[16], 0, 16, new byte[32], 0);
+            fail("invalid key size for processPacket");
+        }
+        catch (PacketCipherException e)
+        {
+            TestCase.assertTrue("wrong message", e.getMessage().contains("Key must be 256 bits"));
+        }
+
+        try
+        {
+            cipher.processPacket(true, new AEADParameters(new KeyParameter(new byte[32]), 128, new byte[8]),
+                    new byte[16], 0, 16, new byte[32], 0);
+            fail("invalid nonce size for processPacket");
+        }
+        catch (PacketCipherException e)
+        {
+            TestCase.assertTrue("wrong message", e.getMessage().contains("Nonce must be 96 bits"));
+        }
+
+        try
+        {
+            cipher.processPacket(true, new AEADParameters(new KeyParameter(new byte[32]), 96, new byte[12]),
+                    new byte[16], 0, 16, new byte[32], 0);
+            fail("invalid mac size for processPacket");
+        }
+        catch (PacketCipherException e)
+        {
+            TestCase.assertTrue("wrong message", e.getMessage().contains("Invalid value for MAC size"));
+        }
+
+        try
+        {
+            ChaCha20Poly1305PacketCipher.newInstance().processPacket(true, params, null, 0, 0, new byte[16], 0);
+            fail("input was null for processPacket");
+        }
+        catch (PacketCipherException e)
+        {
+            TestCase.assertTrue("wrong message", e.getMessage().contains(ExceptionMessages.INPUT_NULL));
+        }
+
+        try
+        {
+            ChaCha20Poly1305PacketCipher.newInstance().processPacket(true, params, new byte[16], 0, 16, new byte[31],
+                    0);
+            fail("output buffer too small for processPacket");
+        }
+        catch (PacketCipherException e)
+        {
+            TestCase.assertTrue("wrong message", e.getMessage().contains(ExceptionMessages.OUTPUT_LENGTH));
+        }
+
+        try
+        {
+            cipher.processPacket(true, params, new byte[16], 0, 16, new byte[32], 0);
+        }
+        catch (PacketCipherException e)
+        {
+            fail("unexpected exception: " + e.getMessage());
+        }
+
+        try
+        {
+            cipher.processPacket(true, params, new byte[16], 0, 16, new byte[32], 0);
+            fail("nonce reuse for processPacket");
+        }
+        catch (PacketCipherException e)
+        {
+            TestCase.assertTrue("wrong message", e.getMessage().contains("cannot reuse nonce"));
+        }
+
+        try
+        {
+            byte[] ct = new byte[32];
+            cipher.processPacket(false, params, ct, 0, ct.length, new byte[16], 0);
+            fail("tampered input for processPacket");
+        }
+        catch (PacketCipherException e)
+        {
+            TestCase.assertEquals(PacketCipherException.Reason.INVALID_CIPHERTEXT, e.getReason());
+        }
+    }
+}
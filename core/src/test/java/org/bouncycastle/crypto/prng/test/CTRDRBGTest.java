@@ -1,5 +1,8 @@
 package org.bouncycastle.crypto.prng.test;
 
+import java.security.SecureRandom;
+import java.util.Random;
+
 import org.bouncycastle.crypto.BlockCipher;
 import org.bouncycastle.crypto.CipherParameters;
 import org.bouncycastle.crypto.DataLengthException;
@@ -7,6 +10,7 @@ import org.bouncycastle.crypto.engines.AESEngine;
 import org.bouncycastle.crypto.engines.DESedeEngine;
 import org.bouncycastle.crypto.params.DESedeParameters;
 import org.bouncycastle.crypto.params.KeyParameter;
+import org.bouncycastle.crypto.prng.EntropySource;
 import org.bouncycastle.crypto.prng.drbg.CTRSP800DRBG;
 import org.bouncycastle.crypto.prng.drbg.SP80090DRBG;
 import org.bouncycastle.util.Arrays;
@@ -365,6 +369,8 @@ public class CTRDRBGTest
 
         drbg.generate(output, tv.additionalInput(0), tv.predictionResistance());
 
+        bulkGenerationTest();
+
         // Exception tests
         SP80090DRBG d;
         try
@@ -420,6 +426,78 @@ public class CTRDRBGTest
         }
     }
 
+    /**
+     * AESEngine.newInstance() may use the native CTR mode for output generation, check it agrees with the Java engine
+     * over a range of request sizes, with and without additional input and prediction resistance.
+     */
+    private void bulkGenerationTest()
+    {
+        SecureRandom random = new SecureRandom();
+
+        for (int keySize = 128; keySize <= 256; keySize += 64)
+        {
+            long seed = random.nextLong();
+            byte[] nonce = new byte[16];
+            random.nextBytes(nonce);
+
+            SP80090DRBG javaDRBG = new CTRSP800DRBG(new AESEngine(), keySize, keySize, new SeededEntropySource(seed), null, nonce);
+            SP80090DRBG drbg = new CTRSP800DRBG(AESEngine.newInstance(), keySize, keySize, new SeededEntropySource(seed), null, nonce);
+
+            for (int i = 0; i != 200; i++)
+            {
+                byte[] expected = new byte[random.nextInt(4) == 0 ? random.nextInt(64) : random.nextInt(1 << 15)];
+                byte[] output = new byte[expected.length];
+                byte[] additionalInput = null;
+                if (random.nextBoolean())
+                {
+                    additionalInput = new byte[random.nextInt(64)];
+                    random.nextBytes(additionalInput);
+                }
+                boolean predictionResistant = random.nextInt(8) == 0;
+
+                random.nextBytes(output);
+
+                javaDRBG.generate(expected, additionalInput, predictionResistant);
+                drbg.generate(output, additionalInput, predictionResistant);
+
+                if (!areEqual(expected, output))
+                {
+                    fail("bulk generation failed for key size " + keySize + " on request " + i + " of " + output.length + " bytes");
+                }
+            }
+        }
+    }
+
+    private static class SeededEntropySource
+        implements EntropySource
+    {
+        private final Random random;
+
+        SeededEntropySource(long seed)
+        {
+            this.random = new Random(seed);
+        }
+
+        public boolean isPredictionResistant()
+        {
+            return true;
+        }
+
+        public byte[] getEntropy()
+        {
+            byte[] entropy = new byte[32];
+
+            random.nextBytes(entropy);
+
+            return entropy;
+        }
+
+        public int entropySize()
+        {
+            return 256;
+        }
+    }
+
     private static class Bit232EntropyProvider
         extends TestEntropySourceProvider
     {
@@ -0,0 +1,152 @@
+package org.bouncycastle.crypto.test.speedy;
+
+import java.security.SecureRandom;
+
+import org.bouncycastle.crypto.CipherParameters;
+import org.bouncycastle.crypto.PacketCipherException;
+import org.bouncycastle.crypto.modes.AESCTRModePacketCipher;
+import org.bouncycastle.crypto.modes.AESCTRPacketCipher;
+import org.bouncycastle.crypto.modes.AESGCMModePacketCipher;
+import org.bouncycastle.crypto.modes.AESGCMPacketCipher;
+import org.bouncycastle.crypto.params.AEADParameters;
+import org.bouncycastle.crypto.params.KeyParameter;
+import org.bouncycastle.crypto.params.ParametersWithIV;
+
+/**
+ * Microbenchmark of the packet ciphers, one processPacket() call per packet against one processPackets() call
+ * per batch, for batches of packets under a single key as a connection would produce them.
+ */
+public class PacketThroughputTest
+{
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private static final int BATCH = 64;
+    private static final int[] PACKET_SIZES = { 64, 576, 1500 };
+    private static final int TOTAL_BYTES = 1 << 28;
+
+    public static void main(String[] args)
+        throws PacketCipherException
+    {
+        for (int keySize = 16; keySize <= 32; keySize += 16)
+        {
+            byte[] key = new byte[keySize];
+            RANDOM.nextBytes(key);
+
+            for (int i = 0; i != PACKET_SIZES.length; i++)
+            {
+                testGCM(key, PACKET_SIZES[i]);
+                testCTR(key, PACKET_SIZES[i]);
+            }
+        }
+    }
+
+    private static void testGCM(byte[] key, int packetSize)
+        throws PacketCipherException
+    {
+        AESGCMModePacketCipher cipher = AESGCMPacketCipher.newInstance();
+
+        CipherParameters[] params = new CipherParameters[BATCH];
+        for (int i = 0; i != BATCH; i++)
+        {
+            byte[] nonce = new byte[12];
+            RANDOM.nextBytes(nonce);
+            params[i] = new AEADParameters(new KeyParameter(key), 128, nonce, new byte[13]);
+        }
+        byte[][] in = newPackets(packetSize);
+        byte[][] out = new byte[BATCH][packetSize + 16];
+        int[] offs = new int[BATCH];
+        int[] lens = new int[BATCH];
+        int[] written = new int[BATCH];
+        java.util.Arrays.fill(lens, packetSize);
+
+        int rounds = TOTAL_BYTES / (BATCH * packetSize);
+        String name = cipher.toString() + " AES-" + key.length * 8 + " " + packetSize;
+
+        for (int pass = 0; pass != 2; pass++)
+        {
+            long start = System.nanoTime();
+            for (int r = 0; r != rounds; r++)
+            {
+                for (int i = 0; i != BATCH; i++)
+                {
+                    cipher.processPacket(true, params[i], in[i], 0, packetSize, out[i], 0);
+                }
+            }
+            long single = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int r = 0; r != rounds; r++)
+            {
+                cipher.processPackets(true, params, in, offs, lens, out, offs, written);
+            }
+            long batch = System.nanoTime() - start;
+
+            report(name, pass, single, batch);
+        }
+    }
+
+    private static void testCTR(byte[] key, int packetSize)
+        throws PacketCipherException
+    {
+        AESCTRModePacketCipher cipher = AESCTRPacketCipher.newInstance();
+
+        CipherParameters[] params = new CipherParameters[BATCH];
+        for (int i = 0; i != BATCH; i++)
+        {
+            byte[] iv = new byte[16];
+            RANDOM.nextBytes(iv);
+            params[i] = new ParametersWithIV(new KeyParameter(key), iv);
+        }
+        byte[][] in = newPackets(packetSize);
+        byte[][] out = new byte[BATCH][packetSize];
+        int[] offs = new int[BATCH];
+        int[] lens = new int[BATCH];
+        int[] written = new int[BATCH];
+        java.util.Arrays.fill(lens, packetSize);
+
+        int rounds = TOTAL_BYTES / (BATCH * packetSize);
+        String name = cipher.toString() + " AES-" + key.length * 8 + " " + packetSize;
+
+        for (int pass = 0; pass != 2; pass++)
+        {
+            long start = System.nanoTime();
+            for (int r = 0; r != rounds; r++)
+            {
+                for (int i = 0; i != BATCH; i++)
+                {
+                    cipher.processPacket(true, params[i], in[i], 0, packetSize, out[i], 0);
+                }
+            }
+            long single = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int r = 0; r != rounds; r++)
+            {
+                cipher.processPackets(true, params, in, offs, lens, out, offs, written);
+            }
+            long batch = System.nanoTime() - start;
+
+            report(name, pass, single, batch);
+        }
+    }
+
+    private static byte[][] newPackets(int packetSize)
+    {
+        byte[][] packets = new byte[BATCH][packetSize];
+        for (int i = 0; i != BATCH; i++)
+        {
+            RANDOM.nextBytes(packets[i]);
+        }
+        return packets;
+    }
+
+    private static void report(String name, int pass, long single, long batch)
+    {
+        if (pass == 0)
+        {
+            return; // warm up
+        }
+        System.out.printf("%-40s single: %,8.1f MB/s  batch: %,8.1f MB/s\n", name,
+            TOTAL_BYTES * 1000.0 / single, TOTAL_BYTES * 1000.0 / batch);
+    }
+}
@@ -86,6 +86,48 @@ public class MLDSATest
         }
     }
 
+    public void testSignerReuse()
+        throws Exception
+    {
+        SecureRandom random = new SecureRandom();
+
+        MLDSAKeyPairGenerator kpg = new MLDSAKeyPairGenerator();
+
+        // one signer, re-initialised across keys and parameter sets, must agree with fresh signers and keys
+        MLDSASigner signer = new MLDSASigner();
+
+        for (int idx = 0; idx != PARAMETER_SETS.length; idx++)
+        {
+            MLDSAParameters parameters = PARAMETER_SETS[idx];
+            kpg.init(new MLDSAKeyGenerationParameters(random, parameters));
+
+            for (int i = 0; i < 2; ++i)
+            {
+                AsymmetricCipherKeyPair kp = kpg.generateKeyPair();
+                MLDSAPrivateKeyParameters privKey = (MLDSAPrivateKeyParameters)kp.getPrivate();
+
+                for (int j = 0; j < 3; ++j)
+                {
+                    byte[] msg = new byte[33 * j];
+                    random.nextBytes(msg);
+
+                    signer.init(true, privKey);
+                    signer.update(msg, 0, msg.length);
+                    byte[] signature = signer.generateSignature();
+
+                    MLDSASigner freshSigner = new MLDSASigner();
+                    freshSigner.init(true, new MLDSAPrivateKeyParameters(parameters, privKey.getEncoded()));
+                    freshSigner.update(msg, 0, msg.length);
+                    assertTrue(Arrays.areEqual(freshSigner.generateSignature(), signature));
+
+                    signer.init(false, kp.getPublic());
+                    signer.update(msg, 0, msg.length);
+                    assertTrue(signer.verifySignature(signature));
+                }
+            }
+        }
+    }
+
     public void testKeyGen()
         throws IOException
     {
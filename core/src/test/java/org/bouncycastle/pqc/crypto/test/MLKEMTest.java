@@ -11,6 +11,7 @@ import org.bouncycastle.pqc.crypto.util.*;
 import org.bouncycastle.test.TestResourceFinder;
 import org.bouncycastle.util.Arrays;
 import org.bouncycastle.util.encoders.Hex;
+import org.bouncycastle.util.test.FixedSecureRandom;
 
 import java.io.BufferedReader;
 import java.io.IOException;
@@ -526,4 +527,37 @@ public class MLKEMTest
             assertTrue(Arrays.areEqual(secretEncap.getSecret(), decryptedSharedSecret));
         }
     }
+
+    public void testMLKEMReusedPublicKey()
+    {
+        SecureRandom random = new SecureRandom();
+        MLKEMParameters[] params = new MLKEMParameters[]{
+            MLKEMParameters.ml_kem_512, MLKEMParameters.ml_kem_768, MLKEMParameters.ml_kem_1024 };
+
+        for (int p = 0; p != params.length; p++)
+        {
+            MLKEMKeyPairGenerator keyGen = new MLKEMKeyPairGenerator();
+            keyGen.init(new MLKEMKeyGenerationParameters(random, params[p]));
+
+            AsymmetricCipherKeyPair keyPair = keyGen.generateKeyPair();
+            MLKEMPublicKeyParameters pubKey = (MLKEMPublicKeyParameters)keyPair.getPublic();
+            MLKEMExtractor kemExtract = new MLKEMExtractor((MLKEMPrivateKeyParameters)keyPair.getPrivate());
+
+            // repeated encapsulations against one key object must match those against a freshly decoded key
+            for (int i = 0; i != 10; i++)
+            {
+                byte[] randBytes = new byte[32];
+                random.nextBytes(randBytes);
+
+                SecretWithEncapsulation secretEncap = new MLKEMGenerator(new FixedSecureRandom(randBytes))
+                    .generateEncapsulated(pubKey);
+                SecretWithEncapsulation freshEncap = new MLKEMGenerator(new FixedSecureRandom(randBytes))
+                    .generateEncapsulated(new MLKEMPublicKeyParameters(params[p], pubKey.getEncoded()));
+
+                assertTrue(Arrays.areEqual(freshEncap.getEncapsulation(), secretEncap.getEncapsulation()));
+                assertTrue(Arrays.areEqual(freshEncap.getSecret(), secretEncap.getSecret()));
+                assertTrue(Arrays.areEqual(secretEncap.getSecret(), kemExtract.extractSecret(secretEncap.getEncapsulation())));
+            }
+        }
+    }
 }
@@ -87,7 +87,16 @@ ccm_err *ccm_init(
     ctx->macBlockLenInBytes = macBlockLenBytes;
     ctx->q = 15 - nonceLen;
 
-    init_aes_key(&ctx->key,key,keyLen,true);
+    if (keyLen != 0) {
+
+        //
+        // This mode supports nonce only re-initialisation, jni layer must check for previous initialisation.
+        //
+
+        assert(key != NULL);
+
+        init_aes_key(&ctx->key,key,keyLen,true);
+    }
 
     ctx->initialChainblock = vdupq_n_u8(0);//_mm_loadu_si128((__m128i *) ctx->macBlock);
     ctx->chainblock = ctx->initialChainblock;
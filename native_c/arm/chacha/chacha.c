@@ -0,0 +1,179 @@
+//
+//
+
+#include <memory.h>
+#include "chacha.h"
+#include "../util/util.h"
+
+// "expand 32-byte k"
+#define SIGMA0 0x61707865
+#define SIGMA1 0x3320646e
+#define SIGMA2 0x79622d32
+#define SIGMA3 0x6b206574
+
+static const uint8_t __attribute__ ((aligned(16))) _chacha_rot8[16] = {
+        3, 0, 1, 2, 7, 4, 5, 6, 11, 8, 9, 10, 15, 12, 13, 14
+};
+
+#define CHACHA_ROTL(v, n) vsriq_n_u32(vshlq_n_u32(v, n), v, 32 - (n))
+
+#define CHACHA_ROTL16(v) vreinterpretq_u32_u16(vrev32q_u16(vreinterpretq_u16_u32(v)))
+
+#define CHACHA_ROTL8(v) vreinterpretq_u32_u8(vqtbl1q_u8(vreinterpretq_u8_u32(v), rot8))
+
+#define CHACHA_QR(a, b, c, d) \
+    a = vaddq_u32(a, b); d = veorq_u32(d, a); d = CHACHA_ROTL16(d); \
+    c = vaddq_u32(c, d); b = veorq_u32(b, c); b = CHACHA_ROTL(b, 12); \
+    a = vaddq_u32(a, b); d = veorq_u32(d, a); d = CHACHA_ROTL8(d); \
+    c = vaddq_u32(c, d); b = veorq_u32(b, c); b = CHACHA_ROTL(b, 7);
+
+static inline uint32_t le32(const uint8_t *p) {
+    return (uint32_t) p[0] | ((uint32_t) p[1] << 8) | ((uint32_t) p[2] << 16) | ((uint32_t) p[3] << 24);
+}
+
+/**
+ * Transpose the same 4 words of 4 blocks into 4 runs of 16 bytes, one for each block.
+ */
+static inline void chacha_transpose(uint32x4_t *a0, uint32x4_t *a1, uint32x4_t *a2, uint32x4_t *a3) {
+    const uint64x2_t t0 = vreinterpretq_u64_u32(vtrn1q_u32(*a0, *a1));
+    const uint64x2_t t1 = vreinterpretq_u64_u32(vtrn2q_u32(*a0, *a1));
+    const uint64x2_t t2 = vreinterpretq_u64_u32(vtrn1q_u32(*a2, *a3));
+    const uint64x2_t t3 = vreinterpretq_u64_u32(vtrn2q_u32(*a2, *a3));
+    *a0 = vreinterpretq_u32_u64(vtrn1q_u64(t0, t2));
+    *a1 = vreinterpretq_u32_u64(vtrn1q_u64(t1, t3));
+    *a2 = vreinterpretq_u32_u64(vtrn2q_u64(t0, t2));
+    *a3 = vreinterpretq_u32_u64(vtrn2q_u64(t1, t3));
+}
+
+/**
+ * Generate 4 key stream blocks starting at the state's counter, each vector holds the same word
+ * from 4 consecutive blocks while the rounds run.
+ * On return x[4 * b + g] holds bytes 16 * g to 16 * g + 15 of block b.
+ */
+static inline void chacha_blocks(const uint32_t *state, uint8x16_t *x) {
+    static const uint32_t __attribute__ ((aligned(16))) ctr_inc[4] = {0, 1, 2, 3};
+    const uint8x16_t rot8 = vld1q_u8(_chacha_rot8);
+    uint32x4_t s[16];
+    int i;
+
+    for (i = 0; i < 16; i++) {
+        s[i] = vdupq_n_u32(state[i]);
+    }
+    s[CHACHA_COUNTER] = vaddq_u32(s[CHACHA_COUNTER], vld1q_u32(ctr_inc));
+
+    uint32x4_t x0 = s[0], x1 = s[1], x2 = s[2], x3 = s[3];
+    uint32x4_t x4 = s[4], x5 = s[5], x6 = s[6], x7 = s[7];
+    uint32x4_t x8 = s[8], x9 = s[9], x10 = s[10], x11 = s[11];
+    uint32x4_t x12 = s[12], x13 = s[13], x14 = s[14], x15 = s[15];
+
+    for (i = 0; i < 10; i++) {
+        CHACHA_QR(x0, x4, x8, x12)
+        CHACHA_QR(x1, x5, x9, x13)
+        CHACHA_QR(x2, x6, x10, x14)
+        CHACHA_QR(x3, x7, x11, x15)
+        CHACHA_QR(x0, x5, x10, x15)
+        CHACHA_QR(x1, x6, x11, x12)
+        CHACHA_QR(x2, x7, x8, x13)
+        CHACHA_QR(x3, x4, x9, x14)
+    }
+
+    x0 = vaddq_u32(x0, s[0]);
+    x1 = vaddq_u32(x1, s[1]);
+    x2 = vaddq_u32(x2, s[2]);
+    x3 = vaddq_u32(x3, s[3]);
+    x4 = vaddq_u32(x4, s[4]);
+    x5 = vaddq_u32(x5, s[5]);
+    x6 = vaddq_u32(x6, s[6]);
+    x7 = vaddq_u32(x7, s[7]);
+    x8 = vaddq_u32(x8, s[8]);
+    x9 = vaddq_u32(x9, s[9]);
+    x10 = vaddq_u32(x10, s[10]);
+    x11 = vaddq_u32(x11, s[11]);
+    x12 = vaddq_u32(x12, s[12]);
+    x13 = vaddq_u32(x13, s[13]);
+    x14 = vaddq_u32(x14, s[14]);
+    x15 = vaddq_u32(x15, s[15]);
+
+    chacha_transpose(&x0, &x1, &x2, &x3);
+    chacha_transpose(&x4, &x5, &x6, &x7);
+    chacha_transpose(&x8, &x9, &x10, &x11);
+    chacha_transpose(&x12, &x13, &x14, &x15);
+
+    x[0] = vreinterpretq_u8_u32(x0);
+    x[1] = vreinterpretq_u8_u32(x4);
+    x[2] = vreinterpretq_u8_u32(x8);
+    x[3] = vreinterpretq_u8_u32(x12);
+    x[4] = vreinterpretq_u8_u32(x1);
+    x[5] = vreinterpretq_u8_u32(x5);
+    x[6] = vreinterpretq_u8_u32(x9);
+    x[7] = vreinterpretq_u8_u32(x13);
+    x[8] = vreinterpretq_u8_u32(x2);
+    x[9] = vreinterpretq_u8_u32(x6);
+    x[10] = vreinterpretq_u8_u32(x10);
+    x[11] = vreinterpretq_u8_u32(x14);
+    x[12] = vreinterpretq_u8_u32(x3);
+    x[13] = vreinterpretq_u8_u32(x7);
+    x[14] = vreinterpretq_u8_u32(x11);
+    x[15] = vreinterpretq_u8_u32(x15);
+}
+
+void chacha20_init_state(uint32_t *state, const uint8_t *key, const uint8_t *nonce, uint32_t counter) {
+    state[0] = SIGMA0;
+    state[1] = SIGMA1;
+    state[2] = SIGMA2;
+    state[3] = SIGMA3;
+    for (int i = 0; i < 8; i++) {
+        state[4 + i] = le32(key + 4 * i);
+    }
+    state[CHACHA_COUNTER] = counter;
+    state[13] = le32(nonce);
+    state[14] = le32(nonce + 4);
+    state[15] = le32(nonce + 8);
+}
+
+void chacha20_key_stream4(const uint32_t *state, uint8_t *keyStream) {
+    uint8x16_t x[16];
+    chacha_blocks(state, x);
+    for (int i = 0; i < 16; i++) {
+        vst1q_u8(keyStream + 16 * i, x[i]);
+    }
+    memzero(x, sizeof(x));
+}
+
+void chacha20_process_blocks(uint32_t *state, const uint8_t *in, uint8_t *out, size_t blocks) {
+    uint8x16_t x[16];
+    int i;
+
+    while (blocks >= 4) {
+        chacha_blocks(state, x);
+        for (i = 0; i < 16; i++) {
+            vst1q_u8(out + 16 * i, veorq_u8(vld1q_u8(in + 16 * i), x[i]));
+        }
+        state[CHACHA_COUNTER] += 4;
+        in += 4 * CHACHA_BLOCK_SIZE;
+        out += 4 * CHACHA_BLOCK_SIZE;
+        blocks -= 4;
+    }
+
+    if (blocks > 0) {
+        chacha_blocks(state, x);
+        for (i = 0; i < 4 * (int) blocks; i++) {
+            vst1q_u8(out + 16 * i, veorq_u8(vld1q_u8(in + 16 * i), x[i]));
+        }
+        state[CHACHA_COUNTER] += (uint32_t) blocks;
+    }
+
+    memzero(x, sizeof(x));
+}
+
+void chacha20_process_partial(uint32_t *state, const uint8_t *in, uint8_t *out, size_t len) {
+    uint8_t keyStream[4 * CHACHA_BLOCK_SIZE];
+
+    chacha20_key_stream4(state, keyStream);
+    for (size_t i = 0; i < len; i++) {
+        out[i] = in[i] ^ keyStream[i];
+    }
+    state[CHACHA_COUNTER]++;
+
+    memzero(keyStream, sizeof(keyStream));
+}
@@ -0,0 +1,55 @@
+//
+//
+
+#ifndef BC_LTS_C_CHACHA_H
+#define BC_LTS_C_CHACHA_H
+
+#include <arm_neon.h>
+#include <stdbool.h>
+#include <stdint.h>
+#include <stdlib.h>
+
+#define CHACHA_BLOCK_SIZE 64
+#define CHACHA_KEY_SIZE 32
+#define CHACHA_NONCE_SIZE 12
+
+// index of the block counter in the state.
+#define CHACHA_COUNTER 12
+
+/**
+ * Set up a ChaCha20 (RFC 8439) state.
+ * @param state receives the 16 word state
+ * @param key 32 byte key
+ * @param nonce 12 byte nonce
+ * @param counter initial block counter
+ */
+void chacha20_init_state(uint32_t *state, const uint8_t *key, const uint8_t *nonce, uint32_t counter);
+
+/**
+ * Generate four consecutive key stream blocks starting at the state's counter, the state is not updated.
+ * @param state the state
+ * @param keyStream receives 4 * CHACHA_BLOCK_SIZE bytes
+ */
+void chacha20_key_stream4(const uint32_t *state, uint8_t *keyStream);
+
+/**
+ * Process whole blocks, the counter in state is advanced by the number of blocks.
+ *
+ * @param state the state
+ * @param in input, may be the same as out
+ * @param out output
+ * @param blocks the number of CHACHA_BLOCK_SIZE blocks to process
+ */
+void chacha20_process_blocks(uint32_t *state, const uint8_t *in, uint8_t *out, size_t blocks);
+
+/**
+ * Process a trailing partial block, the counter in state is advanced by one.
+ * @param state the state
+ * @param in input, may be the same as out
+ * @param out output
+ * @param len the number of bytes, less than CHACHA_BLOCK_SIZE
+ */
+void chacha20_process_partial(uint32_t *state, const uint8_t *in, uint8_t *out, size_t len);
+
+
+#endif //BC_LTS_C_CHACHA_H
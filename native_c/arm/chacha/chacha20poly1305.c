@@ -0,0 +1,433 @@
+//
+//
+
+#include <assert.h>
+#include <memory.h>
+#include "chacha20poly1305.h"
+#include "../util/util.h"
+
+static const uint8_t zeroes[CHACHA_BLOCK_SIZE] = {0};
+
+chacha_err *make_chacha_error(const char *msg, int type) {
+    chacha_err *err = calloc(1, sizeof(chacha_err));
+    assert(err != NULL);
+    err->msg = msg;
+    err->type = type;
+    return err;
+}
+
+void chacha_err_free(chacha_err *err) {
+    if (err != NULL) {
+        free(err);
+    }
+}
+
+chacha20poly1305_ctx *chacha20poly1305_create_ctx(void) {
+    chacha20poly1305_ctx *ctx = calloc(1, sizeof(chacha20poly1305_ctx));
+    assert(ctx != NULL);
+    return ctx;
+}
+
+void chacha20poly1305_free_ctx(chacha20poly1305_ctx *ctx) {
+    if (ctx == NULL) {
+        return;
+    }
+
+    if (ctx->initAD != NULL) {
+        memzero(ctx->initAD, ctx->initADLen);
+        free(ctx->initAD);
+    }
+
+    memzero(ctx, sizeof(chacha20poly1305_ctx));
+    free(ctx);
+}
+
+static inline void store_le64(uint8_t *p, uint64_t v) {
+    for (int i = 0; i < 8; i++) {
+        p[i] = (uint8_t) (v >> (8 * i));
+    }
+}
+
+static inline bool tag_equals(const uint8_t *left, const uint8_t *right, size_t len) {
+    uint8_t diff = 0;
+    for (size_t i = 0; i < len; i++) {
+        diff |= left[i] ^ right[i];
+    }
+    return diff == 0;
+}
+
+static void init_mac(chacha20poly1305_ctx *ctx) {
+    uint8_t firstBlock[POLY1305_KEY_SIZE];
+
+    // the first 32 bytes of block 0 are the Poly1305 key, data starts at block 1.
+    chacha20_process_partial(ctx->state, zeroes, firstBlock, POLY1305_KEY_SIZE);
+    poly1305_init(&ctx->poly, firstBlock);
+
+    memzero(firstBlock, sizeof(firstBlock));
+}
+
+static chacha_err *check_aad(chacha20poly1305_ctx *ctx) {
+    switch (ctx->st) {
+        case CHACHA_DEC_INIT:
+            ctx->st = CHACHA_DEC_AAD;
+            break;
+        case CHACHA_ENC_INIT:
+            ctx->st = CHACHA_ENC_AAD;
+            break;
+        case CHACHA_DEC_AAD:
+        case CHACHA_ENC_AAD:
+            break;
+        case CHACHA_ENC_FINAL:
+            return make_chacha_error(CHACHA_REUSE_ERROR_MSG, ILLEGAL_STATE);
+        case CHACHA_UNINITIALIZED:
+            return make_chacha_error("ChaCha20Poly1305 needs to be initialised", ILLEGAL_STATE);
+        default:
+            return make_chacha_error("AAD cannot be processed after data", ILLEGAL_STATE);
+    }
+    return NULL;
+}
+
+static chacha_err *check_data(chacha20poly1305_ctx *ctx) {
+    switch (ctx->st) {
+        case CHACHA_DEC_INIT:
+        case CHACHA_DEC_AAD:
+            poly1305_pad(&ctx->poly);
+            ctx->st = CHACHA_DEC_DATA;
+            break;
+        case CHACHA_ENC_INIT:
+        case CHACHA_ENC_AAD:
+            poly1305_pad(&ctx->poly);
+            ctx->st = CHACHA_ENC_DATA;
+            break;
+        case CHACHA_DEC_DATA:
+        case CHACHA_ENC_DATA:
+            break;
+        case CHACHA_ENC_FINAL:
+            return make_chacha_error(CHACHA_REUSE_ERROR_MSG, ILLEGAL_STATE);
+        default:
+            return make_chacha_error("ChaCha20Poly1305 needs to be initialised", ILLEGAL_STATE);
+    }
+    return NULL;
+}
+
+static void finish_data(chacha20poly1305_ctx *ctx, chacha_state next) {
+    uint8_t lengths[16];
+
+    poly1305_pad(&ctx->poly);
+    store_le64(lengths, ctx->aadCount);
+    store_le64(lengths + 8, ctx->dataCount);
+    poly1305_update(&ctx->poly, lengths, sizeof(lengths));
+    poly1305_final(&ctx->poly, ctx->mac);
+
+    ctx->st = next;
+}
+
+static void reset(chacha20poly1305_ctx *ctx, bool clearMac, bool resetCipher) {
+    memzero(ctx->buf, sizeof(ctx->buf));
+
+    if (clearMac) {
+        memzero(ctx->mac, sizeof(ctx->mac));
+    }
+
+    ctx->aadCount = 0;
+    ctx->dataCount = 0;
+    ctx->bufPos = 0;
+
+    switch (ctx->st) {
+        case CHACHA_DEC_INIT:
+        case CHACHA_ENC_INIT:
+            break;
+        case CHACHA_DEC_AAD:
+        case CHACHA_DEC_DATA:
+        case CHACHA_DEC_FINAL:
+            ctx->st = CHACHA_DEC_INIT;
+            break;
+        case CHACHA_ENC_AAD:
+        case CHACHA_ENC_DATA:
+        case CHACHA_ENC_FINAL:
+            // a key and nonce must not be used for encryption twice.
+            ctx->st = CHACHA_ENC_FINAL;
+            return;
+        default:
+            return;
+    }
+
+    if (resetCipher) {
+        ctx->state[CHACHA_COUNTER] = 0;
+    }
+
+    init_mac(ctx);
+
+    if (ctx->initAD != NULL) {
+        chacha_err *err = chacha20poly1305_process_aad_bytes(ctx, ctx->initAD, ctx->initADLen);
+        assert(err == NULL);
+        (void) err;
+    }
+}
+
+void chacha20poly1305_reset(chacha20poly1305_ctx *ctx) {
+    reset(ctx, true, true);
+}
+
+chacha_err *chacha20poly1305_init(chacha20poly1305_ctx *ctx, bool encryption, const uint8_t *key, const uint8_t *nonce,
+                                  const uint8_t *ad, size_t adLen) {
+    chacha20_init_state(ctx->state, key, nonce, 0);
+
+    if (ctx->initAD != NULL) {
+        memzero(ctx->initAD, ctx->initADLen);
+        free(ctx->initAD);
+        ctx->initAD = NULL;
+        ctx->initADLen = 0;
+    }
+
+    if (ad != NULL) {
+        // allocate at least one byte so an empty initial AAD is still distinct from none.
+        ctx->initAD = malloc(adLen > 0 ? adLen : 1);
+        assert(ctx->initAD != NULL);
+        memcpy(ctx->initAD, ad, adLen);
+        ctx->initADLen = adLen;
+    }
+
+    ctx->st = encryption ? CHACHA_ENC_INIT : CHACHA_DEC_INIT;
+
+    reset(ctx, true, false);
+
+    return NULL;
+}
+
+chacha_err *chacha20poly1305_process_aad_bytes(chacha20poly1305_ctx *ctx, const uint8_t *aad, size_t len) {
+    chacha_err *err = check_aad(ctx);
+    if (err != NULL) {
+        return err;
+    }
+
+    if (len > 0) {
+        if (ctx->aadCount + len < ctx->aadCount) {
+            return make_chacha_error("Limit exceeded", ILLEGAL_STATE);
+        }
+        ctx->aadCount += len;
+        poly1305_update(&ctx->poly, aad, len);
+    }
+
+    return NULL;
+}
+
+int64_t chacha20poly1305_get_update_output_size(chacha20poly1305_ctx *ctx, size_t len) {
+    int64_t total = (int64_t) len + (int64_t) ctx->bufPos;
+
+    switch (ctx->st) {
+        case CHACHA_DEC_INIT:
+        case CHACHA_DEC_AAD:
+        case CHACHA_DEC_DATA:
+            total = total > CHACHA_MAC_SIZE ? total - CHACHA_MAC_SIZE : 0;
+            break;
+        case CHACHA_ENC_INIT:
+        case CHACHA_ENC_AAD:
+        case CHACHA_ENC_DATA:
+            break;
+        default:
+            return -1;
+    }
+
+    return total - (total % CHACHA_BUF_SIZE);
+}
+
+int64_t chacha20poly1305_get_output_size(chacha20poly1305_ctx *ctx, size_t len) {
+    int64_t total = (int64_t) len + (int64_t) ctx->bufPos;
+
+    switch (ctx->st) {
+        case CHACHA_DEC_INIT:
+        case CHACHA_DEC_AAD:
+        case CHACHA_DEC_DATA:
+            return total > CHACHA_MAC_SIZE ? total - CHACHA_MAC_SIZE : 0;
+        case CHACHA_ENC_INIT:
+        case CHACHA_ENC_AAD:
+        case CHACHA_ENC_DATA:
+            return total + CHACHA_MAC_SIZE;
+        default:
+            return -1;
+    }
+}
+
+static chacha_err *add_data_count(chacha20poly1305_ctx *ctx, size_t len) {
+    if ((uint64_t) len > CHACHA_DATA_LIMIT - ctx->dataCount) {
+        return make_chacha_error("Limit exceeded", ILLEGAL_STATE);
+    }
+    ctx->dataCount += len;
+    return NULL;
+}
+
+/*
+ * Whole blocks, encrypting a chunk at a time and then authenticating it while still in cache.
+ */
+static void encrypt_blocks(chacha20poly1305_ctx *ctx, const uint8_t *in, uint8_t *out, size_t len) {
+    while (len > 0) {
+        const size_t chunk = len < CHACHA_CHUNK_SIZE ? len : CHACHA_CHUNK_SIZE;
+        chacha20_process_blocks(ctx->state, in, out, chunk / CHACHA_BLOCK_SIZE);
+        poly1305_update(&ctx->poly, out, chunk);
+        in += chunk;
+        out += chunk;
+        len -= chunk;
+    }
+}
+
+/*
+ * Whole blocks, the cipher text is authenticated before it is decrypted as it may be decrypted in place.
+ */
+static void decrypt_blocks(chacha20poly1305_ctx *ctx, const uint8_t *in, uint8_t *out, size_t len) {
+    while (len > 0) {
+        const size_t chunk = len < CHACHA_CHUNK_SIZE ? len : CHACHA_CHUNK_SIZE;
+        poly1305_update(&ctx->poly, in, chunk);
+        chacha20_process_blocks(ctx->state, in, out, chunk / CHACHA_BLOCK_SIZE);
+        in += chunk;
+        out += chunk;
+        len -= chunk;
+    }
+}
+
+chacha_err *chacha20poly1305_process_bytes(chacha20poly1305_ctx *ctx, const uint8_t *input, size_t len,
+                                           uint8_t *output, size_t outputLen, size_t *written) {
+    *written = 0;
+
+    chacha_err *err = check_data(ctx);
+    if (err != NULL) {
+        return err;
+    }
+
+    const int64_t expected = chacha20poly1305_get_update_output_size(ctx, len);
+    if (expected > 0) {
+        if (output == NULL || outputLen < (size_t) expected) {
+            return make_chacha_error("Output buffer too short", OUTPUT_LENGTH);
+        }
+        err = add_data_count(ctx, (size_t) expected);
+        if (err != NULL) {
+            return err;
+        }
+    }
+
+    if (ctx->st == CHACHA_ENC_DATA) {
+        if (ctx->bufPos > 0) {
+            size_t take = CHACHA_BUF_SIZE - ctx->bufPos;
+            if (take > len) {
+                take = len;
+            }
+            memcpy(ctx->buf + ctx->bufPos, input, take);
+            ctx->bufPos += take;
+            input += take;
+            len -= take;
+
+            if (ctx->bufPos < CHACHA_BUF_SIZE) {
+                return NULL;
+            }
+
+            encrypt_blocks(ctx, ctx->buf, output, CHACHA_BUF_SIZE);
+            output += CHACHA_BUF_SIZE;
+            *written += CHACHA_BUF_SIZE;
+            ctx->bufPos = 0;
+        }
+
+        const size_t whole = len - (len % CHACHA_BUF_SIZE);
+        encrypt_blocks(ctx, input, output, whole);
+        *written += whole;
+
+        memcpy(ctx->buf, input + whole, len - whole);
+        ctx->bufPos = len - whole;
+    } else {
+        // the last MAC_SIZE bytes seen might be the tag, so are always held back.
+        size_t blocks = (size_t) expected / CHACHA_BUF_SIZE;
+
+        while (blocks > 0 && ctx->bufPos > 0) {
+            if (ctx->bufPos < CHACHA_BUF_SIZE) {
+                const size_t take = CHACHA_BUF_SIZE - ctx->bufPos;
+                memcpy(ctx->buf + ctx->bufPos, input, take);
+                ctx->bufPos += take;
+                input += take;
+                len -= take;
+            }
+
+            decrypt_blocks(ctx, ctx->buf, output, CHACHA_BUF_SIZE);
+            output += CHACHA_BUF_SIZE;
+            *written += CHACHA_BUF_SIZE;
+            blocks--;
+
+            ctx->bufPos -= CHACHA_BUF_SIZE;
+            memmove(ctx->buf, ctx->buf + CHACHA_BUF_SIZE, ctx->bufPos);
+        }
+
+        if (blocks > 0) {
+            const size_t whole = blocks * CHACHA_BUF_SIZE;
+            decrypt_blocks(ctx, input, output, whole);
+            *written += whole;
+            input += whole;
+            len -= whole;
+        }
+
+        memcpy(ctx->buf + ctx->bufPos, input, len);
+        ctx->bufPos += len;
+    }
+
+    return NULL;
+}
+
+chacha_err *chacha20poly1305_doFinal(chacha20poly1305_ctx *ctx, uint8_t *output, size_t outputLen, size_t *written) {
+    *written = 0;
+
+    chacha_err *err = check_data(ctx);
+    if (err != NULL) {
+        return err;
+    }
+
+    memzero(ctx->mac, sizeof(ctx->mac));
+
+    if (ctx->st == CHACHA_DEC_DATA) {
+        if (ctx->bufPos < CHACHA_MAC_SIZE) {
+            return make_chacha_error("data too short", ILLEGAL_CIPHER_TEXT);
+        }
+
+        const size_t resultLen = ctx->bufPos - CHACHA_MAC_SIZE;
+        if (outputLen < resultLen) {
+            return make_chacha_error("Output buffer too short", OUTPUT_LENGTH);
+        }
+
+        if (resultLen > 0) {
+            err = add_data_count(ctx, resultLen);
+            if (err != NULL) {
+                return err;
+            }
+            poly1305_update(&ctx->poly, ctx->buf, resultLen);
+            chacha20_process_partial(ctx->state, ctx->buf, output, resultLen);
+        }
+
+        finish_data(ctx, CHACHA_DEC_FINAL);
+
+        if (!tag_equals(ctx->mac, ctx->buf + resultLen, CHACHA_MAC_SIZE)) {
+            return make_chacha_error("mac check in ChaCha20Poly1305 failed", ILLEGAL_CIPHER_TEXT);
+        }
+
+        *written = resultLen;
+    } else {
+        const size_t resultLen = ctx->bufPos + CHACHA_MAC_SIZE;
+        if (outputLen < resultLen) {
+            return make_chacha_error("Output buffer too short", OUTPUT_LENGTH);
+        }
+
+        if (ctx->bufPos > 0) {
+            err = add_data_count(ctx, ctx->bufPos);
+            if (err != NULL) {
+                return err;
+            }
+            chacha20_process_partial(ctx->state, ctx->buf, output, ctx->bufPos);
+            poly1305_update(&ctx->poly, output, ctx->bufPos);
+        }
+
+        finish_data(ctx, CHACHA_ENC_FINAL);
+
+        memcpy(output + ctx->bufPos, ctx->mac, CHACHA_MAC_SIZE);
+
+        *written = resultLen;
+    }
+
+    reset(ctx, false, true);
+
+    return NULL;
+}
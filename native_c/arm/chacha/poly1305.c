@@ -0,0 +1,200 @@
+//
+//
+
+#include <memory.h>
+#include "poly1305.h"
+#include "../util/util.h"
+
+#define MASK26 0x3ffffff
+
+static inline uint32_t le32(const uint8_t *p) {
+    return (uint32_t) p[0] | ((uint32_t) p[1] << 8) | ((uint32_t) p[2] << 16) | ((uint32_t) p[3] << 24);
+}
+
+static inline void store_le32(uint8_t *p, uint32_t v) {
+    p[0] = (uint8_t) v;
+    p[1] = (uint8_t) (v >> 8);
+    p[2] = (uint8_t) (v >> 16);
+    p[3] = (uint8_t) (v >> 24);
+}
+
+void poly1305_init(poly1305_ctx *ctx, const uint8_t *key) {
+    // clamp r
+    ctx->r[0] = le32(key) & 0x3ffffff;
+    ctx->r[1] = (le32(key + 3) >> 2) & 0x3ffff03;
+    ctx->r[2] = (le32(key + 6) >> 4) & 0x3ffc0ff;
+    ctx->r[3] = (le32(key + 9) >> 6) & 0x3f03fff;
+    ctx->r[4] = (le32(key + 12) >> 8) & 0x00fffff;
+
+    memset(ctx->h, 0, sizeof(ctx->h));
+
+    ctx->pad[0] = le32(key + 16);
+    ctx->pad[1] = le32(key + 20);
+    ctx->pad[2] = le32(key + 24);
+    ctx->pad[3] = le32(key + 28);
+
+    ctx->bufPos = 0;
+}
+
+static void poly1305_blocks(poly1305_ctx *ctx, const uint8_t *in, size_t len, uint32_t hibit) {
+    const uint32_t r0 = ctx->r[0], r1 = ctx->r[1], r2 = ctx->r[2], r3 = ctx->r[3], r4 = ctx->r[4];
+    const uint32_t s1 = r1 * 5, s2 = r2 * 5, s3 = r3 * 5, s4 = r4 * 5;
+    uint32_t h0 = ctx->h[0], h1 = ctx->h[1], h2 = ctx->h[2], h3 = ctx->h[3], h4 = ctx->h[4];
+
+    while (len >= POLY1305_BLOCK_SIZE) {
+        h0 += le32(in) & MASK26;
+        h1 += (le32(in + 3) >> 2) & MASK26;
+        h2 += (le32(in + 6) >> 4) & MASK26;
+        h3 += (le32(in + 9) >> 6) & MASK26;
+        h4 += (le32(in + 12) >> 8) | hibit;
+
+        uint64_t d0 = (uint64_t) h0 * r0 + (uint64_t) h1 * s4 + (uint64_t) h2 * s3 + (uint64_t) h3 * s2 +
+                      (uint64_t) h4 * s1;
+        uint64_t d1 = (uint64_t) h0 * r1 + (uint64_t) h1 * r0 + (uint64_t) h2 * s4 + (uint64_t) h3 * s3 +
+                      (uint64_t) h4 * s2;
+        uint64_t d2 = (uint64_t) h0 * r2 + (uint64_t) h1 * r1 + (uint64_t) h2 * r0 + (uint64_t) h3 * s4 +
+                      (uint64_t) h4 * s3;
+        uint64_t d3 = (uint64_t) h0 * r3 + (uint64_t) h1 * r2 + (uint64_t) h2 * r1 + (uint64_t) h3 * r0 +
+                      (uint64_t) h4 * s4;
+        uint64_t d4 = (uint64_t) h0 * r4 + (uint64_t) h1 * r3 + (uint64_t) h2 * r2 + (uint64_t) h3 * r1 +
+                      (uint64_t) h4 * r0;
+
+        uint32_t c;
+        c = (uint32_t) (d0 >> 26);
+        h0 = (uint32_t) d0 & MASK26;
+        d1 += c;
+        c = (uint32_t) (d1 >> 26);
+        h1 = (uint32_t) d1 & MASK26;
+        d2 += c;
+        c = (uint32_t) (d2 >> 26);
+        h2 = (uint32_t) d2 & MASK26;
+        d3 += c;
+        c = (uint32_t) (d3 >> 26);
+        h3 = (uint32_t) d3 & MASK26;
+        d4 += c;
+        c = (uint32_t) (d4 >> 26);
+        h4 = (uint32_t) d4 & MASK26;
+        h0 += c * 5;
+        c = h0 >> 26;
+        h0 &= MASK26;
+        h1 += c;
+
+        in += POLY1305_BLOCK_SIZE;
+        len -= POLY1305_BLOCK_SIZE;
+    }
+
+    ctx->h[0] = h0;
+    ctx->h[1] = h1;
+    ctx->h[2] = h2;
+    ctx->h[3] = h3;
+    ctx->h[4] = h4;
+}
+
+void poly1305_update(poly1305_ctx *ctx, const uint8_t *in, size_t len) {
+    if (ctx->bufPos > 0) {
+        size_t take = POLY1305_BLOCK_SIZE - ctx->bufPos;
+        if (take > len) {
+            take = len;
+        }
+        memcpy(ctx->buf + ctx->bufPos, in, take);
+        ctx->bufPos += take;
+        in += take;
+        len -= take;
+
+        if (ctx->bufPos < POLY1305_BLOCK_SIZE) {
+            return;
+        }
+        poly1305_blocks(ctx, ctx->buf, POLY1305_BLOCK_SIZE, 1 << 24);
+        ctx->bufPos = 0;
+    }
+
+    size_t whole = len & ~((size_t) POLY1305_BLOCK_SIZE - 1);
+    if (whole > 0) {
+        poly1305_blocks(ctx, in, whole, 1 << 24);
+        in += whole;
+        len -= whole;
+    }
+
+    if (len > 0) {
+        memcpy(ctx->buf, in, len);
+        ctx->bufPos = len;
+    }
+}
+
+void poly1305_pad(poly1305_ctx *ctx) {
+    if (ctx->bufPos > 0) {
+        memset(ctx->buf + ctx->bufPos, 0, POLY1305_BLOCK_SIZE - ctx->bufPos);
+        poly1305_blocks(ctx, ctx->buf, POLY1305_BLOCK_SIZE, 1 << 24);
+        ctx->bufPos = 0;
+    }
+}
+
+void poly1305_final(poly1305_ctx *ctx, uint8_t *mac) {
+    if (ctx->bufPos > 0) {
+        ctx->buf[ctx->bufPos] = 1;
+        memset(ctx->buf + ctx->bufPos + 1, 0, POLY1305_BLOCK_SIZE - ctx->bufPos - 1);
+        poly1305_blocks(ctx, ctx->buf, POLY1305_BLOCK_SIZE, 0);
+    }
+
+    uint32_t h0 = ctx->h[0], h1 = ctx->h[1], h2 = ctx->h[2], h3 = ctx->h[3], h4 = ctx->h[4];
+    uint32_t c;
+
+    // fully carry h
+    c = h1 >> 26;
+    h1 &= MASK26;
+    h2 += c;
+    c = h2 >> 26;
+    h2 &= MASK26;
+    h3 += c;
+    c = h3 >> 26;
+    h3 &= MASK26;
+    h4 += c;
+    c = h4 >> 26;
+    h4 &= MASK26;
+    h0 += c * 5;
+    c = h0 >> 26;
+    h0 &= MASK26;
+    h1 += c;
+
+    // g = h + -p
+    uint32_t g0 = h0 + 5;
+    c = g0 >> 26;
+    g0 &= MASK26;
+    uint32_t g1 = h1 + c;
+    c = g1 >> 26;
+    g1 &= MASK26;
+    uint32_t g2 = h2 + c;
+    c = g2 >> 26;
+    g2 &= MASK26;
+    uint32_t g3 = h3 + c;
+    c = g3 >> 26;
+    g3 &= MASK26;
+    uint32_t g4 = (uint32_t) (h4 + c - (1UL << 26));
+
+    // select h if h < p, otherwise g, in constant time
+    uint32_t mask = (g4 >> 31) - 1;
+    h0 = (h0 & ~mask) | (g0 & mask);
+    h1 = (h1 & ~mask) | (g1 & mask);
+    h2 = (h2 & ~mask) | (g2 & mask);
+    h3 = (h3 & ~mask) | (g3 & mask);
+    h4 = (h4 & ~mask) | (g4 & mask);
+
+    // h = h % 2^128
+    h0 = h0 | (h1 << 26);
+    h1 = (h1 >> 6) | (h2 << 20);
+    h2 = (h2 >> 12) | (h3 << 14);
+    h3 = (h3 >> 18) | (h4 << 8);
+
+    // mac = (h + pad) % 2^128
+    uint64_t f;
+    f = (uint64_t) h0 + ctx->pad[0];
+    store_le32(mac, (uint32_t) f);
+    f = (uint64_t) h1 + ctx->pad[1] + (f >> 32);
+    store_le32(mac + 4, (uint32_t) f);
+    f = (uint64_t) h2 + ctx->pad[2] + (f >> 32);
+    store_le32(mac + 8, (uint32_t) f);
+    f = (uint64_t) h3 + ctx->pad[3] + (f >> 32);
+    store_le32(mac + 12, (uint32_t) f);
+
+    memzero(ctx, sizeof(poly1305_ctx));
+}
@@ -0,0 +1,448 @@
+//
+// EAX using the ARMv8 crypto extensions.
+//
+// The key stream is CTR mode and the counter blocks are independent, they are produced four at
+// a time with interleaved AES rounds. OMAC over the cipher text is inherently serial.
+//
+
+#include <assert.h>
+#include <memory.h>
+#include "eax.h"
+#include "arm_neon.h"
+
+#define N_TAG 0
+#define H_TAG 1
+#define C_TAG 2
+
+#define EAX_WIDTH 4
+
+
+eax_err *make_eax_error(const char *msg, int type) {
+    eax_err *err = calloc(1, sizeof(eax_err));
+    assert(err != NULL);
+    err->msg = msg;
+    err->type = type;
+    return err;
+}
+
+void eax_err_free(eax_err *err) {
+    if (err != NULL) {
+        free(err);
+    }
+}
+
+eax_ctx *eax_create_ctx() {
+    eax_ctx *ctx = calloc(1, sizeof(eax_ctx));
+    assert(ctx != NULL);
+    return ctx;
+}
+
+void eax_free(eax_ctx *ctx) {
+    if (ctx == NULL) {
+        return;
+    }
+
+    if (ctx->initAD != NULL) {
+        memzero(ctx->initAD, ctx->initADLen);
+        free(ctx->initAD);
+    }
+
+    memzero(ctx, sizeof(eax_ctx));
+    free(ctx);
+}
+
+
+/**
+ * Encrypt up to EAX_WIDTH blocks in place with interleaved rounds.
+ */
+static inline void encrypt_blocks(const aes_key *key, uint8x16_t *b, const size_t n) {
+    const uint8x16_t *rk = key->round_keys;
+    const size_t rounds = key->rounds;
+    size_t r;
+    for (r = 0; r < rounds - 1; r++) {
+        const uint8x16_t k = rk[r];
+        for (size_t i = 0; i < n; i++) {
+            b[i] = vaesmcq_u8(vaeseq_u8(b[i], k));
+        }
+    }
+    for (size_t i = 0; i < n; i++) {
+        b[i] = veorq_u8(vaeseq_u8(b[i], rk[r]), rk[r + 1]);
+    }
+}
+
+static inline uint8x16_t encrypt_block(eax_ctx *ctx, uint8x16_t in) {
+    encrypt_blocks(&ctx->key, &in, 1);
+    return in;
+}
+
+/**
+ * Multiply by x in GF(2^128), the block is a big endian bit string.
+ */
+static uint8x16_t omac_double(uint8x16_t in) {
+    uint8_t b[BLOCK_SIZE];
+    uint8_t carry = 0;
+    vst1q_u8(b, in);
+    for (int i = BLOCK_SIZE - 1; i >= 0; i--) {
+        uint8_t v = b[i];
+        b[i] = (uint8_t) ((v << 1) | carry);
+        carry = (uint8_t) (v >> 7);
+    }
+    // constant time reduction
+    b[BLOCK_SIZE - 1] ^= (uint8_t) (0x87 & -carry);
+    uint8x16_t out = vld1q_u8(b);
+    memzero(b, BLOCK_SIZE);
+    return out;
+}
+
+
+static void omac_start(eax_omac *omac, uint8_t tag) {
+    omac->X = vdupq_n_u8(0);
+    memzero(omac->buf, BLOCK_SIZE);
+    omac->buf[BLOCK_SIZE - 1] = tag;
+    omac->bufPos = BLOCK_SIZE;
+}
+
+static void omac_update(eax_ctx *ctx, eax_omac *omac, const uint8_t *in, size_t len) {
+    const size_t gap = BLOCK_SIZE - omac->bufPos;
+
+    if (len > gap) {
+        memcpy(omac->buf + omac->bufPos, in, gap);
+        omac->X = encrypt_block(ctx, veorq_u8(omac->X, vld1q_u8(omac->buf)));
+        omac->bufPos = 0;
+        in += gap;
+        len -= gap;
+
+        uint8x16_t X = omac->X;
+        while (len > BLOCK_SIZE) {
+            X = encrypt_block(ctx, veorq_u8(X, vld1q_u8(in)));
+            in += BLOCK_SIZE;
+            len -= BLOCK_SIZE;
+        }
+        omac->X = X;
+    }
+
+    memcpy(omac->buf + omac->bufPos, in, len);
+    omac->bufPos += len;
+}
+
+static uint8x16_t omac_final(eax_ctx *ctx, eax_omac *omac) {
+    uint8x16_t k;
+    if (omac->bufPos == BLOCK_SIZE) {
+        k = ctx->K1;
+    } else {
+        omac->buf[omac->bufPos] = 0x80;
+        for (size_t i = omac->bufPos + 1; i < BLOCK_SIZE; i++) {
+            omac->buf[i] = 0;
+        }
+        k = ctx->K2;
+    }
+
+    uint8x16_t b = veorq_u8(vld1q_u8(omac->buf), k);
+    return encrypt_block(ctx, veorq_u8(omac->X, b));
+}
+
+
+static inline uint8x16_t counter_block(const uint64_t *ctr) {
+    return vrev64q_u8(vreinterpretq_u8_u64(vcombine_u64(vcreate_u64(ctr[0]), vcreate_u64(ctr[1]))));
+}
+
+static inline void counter_increment(uint64_t *ctr) {
+    if (++ctr[1] == 0) {
+        ctr[0]++;
+    }
+}
+
+/**
+ * Encrypt or decrypt whole blocks, src and dest may be the same.
+ */
+static void eax_blocks(eax_ctx *ctx, const uint8_t *src, uint8_t *dest, size_t blocks) {
+    if (!ctx->encryption) {
+        omac_update(ctx, &ctx->cipherMac, src, blocks * BLOCK_SIZE);
+    }
+
+    uint8_t *start = dest;
+    const size_t len = blocks * BLOCK_SIZE;
+
+    while (blocks > 0) {
+        const size_t n = blocks >= EAX_WIDTH ? EAX_WIDTH : blocks;
+        uint8x16_t b[EAX_WIDTH];
+
+        for (size_t i = 0; i < n; i++) {
+            b[i] = counter_block(ctx->ctr);
+            counter_increment(ctx->ctr);
+        }
+
+        encrypt_blocks(&ctx->key, b, n);
+
+        for (size_t i = 0; i < n; i++) {
+            uint8x16_t in = vld1q_u8(&src[i * BLOCK_SIZE]);
+            vst1q_u8(&dest[i * BLOCK_SIZE], veorq_u8(in, b[i]));
+        }
+
+        src += n * BLOCK_SIZE;
+        dest += n * BLOCK_SIZE;
+        blocks -= n;
+    }
+
+    if (ctx->encryption) {
+        omac_update(ctx, &ctx->cipherMac, start, len);
+    }
+}
+
+
+static void init_cipher(eax_ctx *ctx) {
+    if (ctx->cipherInitialized) {
+        return;
+    }
+
+    ctx->cipherInitialized = true;
+    ctx->associatedTextMac = omac_final(ctx, &ctx->aadMac);
+    omac_start(&ctx->cipherMac, C_TAG);
+}
+
+
+void eax_reset(eax_ctx *ctx, bool keepMac) {
+    ctx->ctr[0] = ctx->initialCtr[0];
+    ctx->ctr[1] = ctx->initialCtr[1];
+
+    ctx->bufPos = 0;
+    memzero(ctx->bufBlock, EAX_BUF_SIZE);
+
+    if (!keepMac) {
+        memzero(ctx->macBlock, EAX_MAC_BLOCK_LEN);
+    }
+
+    omac_start(&ctx->aadMac, H_TAG);
+    ctx->cipherInitialized = false;
+
+    if (ctx->initAD != NULL) {
+        omac_update(ctx, &ctx->aadMac, ctx->initAD, ctx->initADLen);
+    }
+}
+
+
+eax_err *eax_init(eax_ctx *ctx, bool encryption, uint8_t *key, size_t keyLen, uint8_t *nonce, size_t nonceLen,
+                  uint8_t *initialText, size_t initialTextLen, uint32_t macSizeBytes) {
+
+    //
+    // All assertions of correctness need to be done by the caller.
+    //
+    assert(macSizeBytes <= EAX_MAC_BLOCK_LEN);
+
+    ctx->encryption = encryption;
+    ctx->macSize = macSizeBytes;
+
+    if (key != NULL) {
+        init_aes_key(&ctx->key, key, keyLen, true);
+
+        ctx->K1 = omac_double(encrypt_block(ctx, vdupq_n_u8(0)));
+        ctx->K2 = omac_double(ctx->K1);
+    }
+
+    //
+    // N = OMAC^0(nonce), the initial counter.
+    //
+    eax_omac omac;
+    omac_start(&omac, N_TAG);
+    omac_update(ctx, &omac, nonce, nonceLen);
+    ctx->nonceMac = omac_final(ctx, &omac);
+    memzero(&omac, sizeof(eax_omac));
+
+    uint8_t n[BLOCK_SIZE];
+    vst1q_u8(n, ctx->nonceMac);
+    ctx->initialCtr[0] = 0;
+    ctx->initialCtr[1] = 0;
+    for (int i = 0; i < 8; i++) {
+        ctx->initialCtr[0] = (ctx->initialCtr[0] << 8) | n[i];
+        ctx->initialCtr[1] = (ctx->initialCtr[1] << 8) | n[i + 8];
+    }
+    memzero(n, BLOCK_SIZE);
+
+    //
+    // Initial associated text
+    //
+    if (ctx->initAD != NULL) {
+        memzero(ctx->initAD, ctx->initADLen);
+        free(ctx->initAD);
+        ctx->initAD = NULL;
+        ctx->initADLen = 0;
+    }
+
+    if (initialText != NULL) {
+        ctx->initAD = malloc(initialTextLen);
+        assert(ctx->initAD != NULL);
+        ctx->initADLen = initialTextLen;
+        memcpy(ctx->initAD, initialText, initialTextLen);
+    }
+
+    eax_reset(ctx, false);
+
+    return NULL;
+}
+
+
+eax_err *eax_process_aad_byte(eax_ctx *ctx, uint8_t byte) {
+    return eax_process_aad_bytes(ctx, &byte, 1);
+}
+
+eax_err *eax_process_aad_bytes(eax_ctx *ctx, uint8_t *aad, size_t len) {
+    if (ctx->cipherInitialized) {
+        return make_eax_error("AAD data cannot be added after encryption/decryption processing has begun.",
+                              ILLEGAL_STATE);
+    }
+    omac_update(ctx, &ctx->aadMac, aad, len);
+    return NULL;
+}
+
+
+size_t eax_get_update_output_size(eax_ctx *ctx, size_t len) {
+    size_t totalData = len + ctx->bufPos;
+    if (!ctx->encryption) {
+        if (totalData < ctx->macSize) {
+            return 0;
+        }
+        totalData -= ctx->macSize;
+    }
+    return totalData - totalData % BLOCK_SIZE;
+}
+
+size_t eax_get_output_size(eax_ctx *ctx, size_t len) {
+    size_t totalData = len + ctx->bufPos;
+    if (ctx->encryption) {
+        return totalData + ctx->macSize;
+    }
+    return totalData < ctx->macSize ? 0 : totalData - ctx->macSize;
+}
+
+
+eax_err *eax_process_byte(eax_ctx *ctx, uint8_t byte, uint8_t *output, size_t outputLen, size_t *written) {
+    return eax_process_bytes(ctx, &byte, 1, output, outputLen, written);
+}
+
+eax_err *eax_process_bytes(eax_ctx *ctx, uint8_t *input, size_t len, uint8_t *output, size_t outputLen,
+                           size_t *written) {
+    *written = 0;
+
+    init_cipher(ctx);
+
+    if (eax_get_update_output_size(ctx, len) > outputLen) {
+        return make_eax_error("output buffer too short", OUTPUT_LENGTH);
+    }
+
+    //
+    // On decryption the last macSize bytes seen may be the tag so they are always held back.
+    //
+    const size_t holdBack = ctx->encryption ? 0 : ctx->macSize;
+    const size_t available = ctx->bufPos + len;
+    size_t blocks = available < holdBack ? 0 : (available - holdBack) / BLOCK_SIZE;
+
+    //
+    // Blocks that start in the buffer.
+    //
+    while (blocks > 0 && ctx->bufPos > 0) {
+        if (ctx->bufPos < BLOCK_SIZE) {
+            size_t n = BLOCK_SIZE - ctx->bufPos;
+            memcpy(ctx->bufBlock + ctx->bufPos, input, n);
+            input += n;
+            len -= n;
+            ctx->bufPos = BLOCK_SIZE;
+        }
+
+        eax_blocks(ctx, ctx->bufBlock, output, 1);
+        output += BLOCK_SIZE;
+        *written += BLOCK_SIZE;
+
+        ctx->bufPos -= BLOCK_SIZE;
+        memmove(ctx->bufBlock, ctx->bufBlock + BLOCK_SIZE, ctx->bufPos);
+        blocks--;
+    }
+
+    //
+    // The buffer is empty, so the rest come straight from the input.
+    //
+    if (blocks > 0) {
+        const size_t n = blocks * BLOCK_SIZE;
+        eax_blocks(ctx, input, output, blocks);
+        input += n;
+        len -= n;
+        *written += n;
+    }
+
+    if (len > 0) {
+        assert(ctx->bufPos + len <= EAX_BUF_SIZE);
+        memcpy(ctx->bufBlock + ctx->bufPos, input, len);
+        ctx->bufPos += len;
+    }
+
+    return NULL;
+}
+
+
+eax_err *eax_doFinal(eax_ctx *ctx, uint8_t *output, size_t outLen, size_t *written) {
+    uint8_t block[BLOCK_SIZE];
+    size_t extra = ctx->bufPos;
+
+    *written = 0;
+
+    init_cipher(ctx);
+
+    if (!ctx->encryption) {
+        if (extra < ctx->macSize) {
+            return make_eax_error("data too short", ILLEGAL_CIPHER_TEXT);
+        }
+        extra -= ctx->macSize;
+    }
+
+    if ((ctx->encryption ? extra + ctx->macSize : extra) > outLen) {
+        return make_eax_error("output buffer too short", OUTPUT_LENGTH);
+    }
+
+    if (!ctx->encryption && extra > 0) {
+        omac_update(ctx, &ctx->cipherMac, ctx->bufBlock, extra);
+    }
+
+    if (extra > 0) {
+        uint8x16_t ks = encrypt_block(ctx, counter_block(ctx->ctr));
+        vst1q_u8(block, veorq_u8(vld1q_u8(ctx->bufBlock), ks));
+        memcpy(output, block, extra);
+        memzero(block, BLOCK_SIZE);
+    }
+
+    if (ctx->encryption && extra > 0) {
+        omac_update(ctx, &ctx->cipherMac, output, extra);
+    }
+
+    uint8x16_t tag = omac_final(ctx, &ctx->cipherMac);
+    tag = veorq_u8(tag, veorq_u8(ctx->nonceMac, ctx->associatedTextMac));
+    vst1q_u8(ctx->macBlock, tag);
+
+    if (ctx->encryption) {
+        memcpy(output + extra, ctx->macBlock, ctx->macSize);
+        *written = extra + ctx->macSize;
+    } else {
+        uint32_t nonEqual = 0;
+        for (size_t i = 0; i < ctx->macSize; i++) {
+            nonEqual |= (ctx->macBlock[i] ^ ctx->bufBlock[extra + i]);
+        }
+
+        if (nonEqual != 0) {
+            if (extra > 0) {
+                memzero(output, extra);
+            }
+            return make_eax_error("mac check in EAX failed", ILLEGAL_CIPHER_TEXT);
+        }
+        *written = extra;
+    }
+
+    eax_reset(ctx, true);
+
+    return NULL;
+}
+
+
+size_t eax_getMac(eax_ctx *ctx, uint8_t *destination) {
+    if (destination != NULL) {
+        memcpy(destination, ctx->macBlock, ctx->macSize);
+    }
+    return ctx->macSize;
+}
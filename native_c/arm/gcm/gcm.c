@@ -179,8 +179,6 @@ gcm_err *gcm_init(
         size_t initialTextLen,
         uint32_t macBlockLenBits) {
 
-    clear_aes_key(&ctx->aesKey);
-    init_aes_key(&ctx->aesKey, key, keyLen, true);
     ctx->encryption = encryption;
 
 
@@ -232,9 +230,34 @@ gcm_err *gcm_init(
     ctx->X = vdupq_n_u8(0);
     ctx->Y = vdupq_n_u8(0);
     ctx->T = vdupq_n_u8(0);
-    ctx->H = vdupq_n_u8(0);
 
-    uint8x16_t tmp1, tmp2;
+    uint8x16_t tmp1;
+
+    if (keyLen != 0) {
+
+        //
+        // This mode supports nonce only re-initialisation, the round keys, H and the
+        // hash key powers only depend on the key so are only derived when a key is supplied,
+        // jni layer must check for previous initialisation.
+        //
+
+        assert(key != NULL);
+
+        clear_aes_key(&ctx->aesKey);
+        init_aes_key(&ctx->aesKey, key, keyLen, true);
+
+        // H = E(K, 0^128)
+        single_block(&ctx->aesKey, ctx->X, &ctx->H);
+        // swap endian -le only.
+        swap_endian_inplace(&ctx->H);
+
+        ctx->hashKeys[HASHKEY_0] = ctx->H;
+        for (int t = HASHKEY_1; t >= 0; t--) {
+            ctx->hashKeys[t] = gfmul(ctx->hashKeys[t + 1], ctx->H);
+        }
+    } else if (ctx->aesKey.rounds == 0) {
+        return make_gcm_error("cannot replace nonce unless key was previously supplied", ILLEGAL_STATE);
+    }
 
     if (nonceLen == 12) {
         //
@@ -248,20 +271,9 @@ gcm_err *gcm_init(
         memzero(nonceBuf,  16);
         ctx->Y = vorrq_u8(ctx->Y, insert_32);
 
-        dual_block(&ctx->aesKey, ctx->X, ctx->Y, &ctx->H, &ctx->T);
-
-        // swap endian -le only.
-//        ctx->H = vrev64q_u8(ctx->H);
-//        ctx->H = vextq_u8(ctx->H, ctx->H, 8);
-        swap_endian_inplace(&ctx->H);
+        // E(K,Y0)
+        single_block(&ctx->aesKey, ctx->Y, &ctx->T);
     } else {
-        single_block(&ctx->aesKey, ctx->X, &ctx->H);
-        // swap endian -le only.
-        swap_endian_inplace(&ctx->H);
-//        ctx->H = vrev64q_u8(ctx->H);
-//        ctx->H = vextq_u8(ctx->H, ctx->H, 8);
-
-
         ctx->Y = veorq_u8(ctx->Y, ctx->Y);
 
         int i;
@@ -329,12 +341,6 @@ gcm_err *gcm_init(
     ctx->ctr1 = vreinterpretq_u32_u8(vrev64q_u8(ctx->Y));
     ctx->blocksRemaining = BLOCKS_REMAINING_INIT;
 
-    ctx->hashKeys[HASHKEY_0] = ctx->H;
-    for (int t = HASHKEY_1; t >= 0; t--) {
-        ctx->hashKeys[t] = gfmul(ctx->hashKeys[t + 1], ctx->H);
-    }
-
-
     return NULL;// All good
 
 }
@@ -1050,7 +1050,7 @@ gcm_err *process_buffer_dec(gcm_ctx *ctx,
             //
 
             size_t toCopy = ctx->bufBlockIndex - FOUR_BLOCKS;
-            memcpy(ctx->bufBlock, ctx->bufBlock + ctx->bufBlockIndex, toCopy);
+            memcpy(ctx->bufBlock, ctx->bufBlock + FOUR_BLOCKS, toCopy);
             ctx->bufBlockIndex = toCopy;
         }
 
@@ -1076,6 +1076,7 @@ gcm_err *process_buffer_dec(gcm_ctx *ctx,
             *read += toCopy;
             ctx->totalBytes += toCopy;
             outputLen -= FOUR_BLOCKS;
+            inlen -= toCopy;
             in += toCopy;
             out += FOUR_BLOCKS;
         }
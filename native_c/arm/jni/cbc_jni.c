@@ -170,3 +170,36 @@ JNIEXPORT void JNICALL Java_org_bouncycastle_crypto_engines_AESNativeCBC_reset
     cbc_ctx *ctx = (cbc_ctx *) ((void *) ref);
     cbc_reset(ctx);
 }
+
+/*
+ * Class:     org_bouncycastle_crypto_engines_AESNativeCBC
+ * Method:    processDirect
+ * Signature: (JLjava/nio/ByteBuffer;IILjava/nio/ByteBuffer;I)I
+ */
+JNIEXPORT jint JNICALL Java_org_bouncycastle_crypto_engines_AESNativeCBC_processDirect
+        (JNIEnv *env, jclass cl, jlong ref, jobject in, jint inOff, jint len, jobject out, jint outOff) {
+
+    direct_buffer_ctx input;
+    direct_buffer_ctx output;
+
+    uint8_t *inStart;
+    uint8_t *outStart;
+
+    if (len % CBC_BLOCK_SIZE != 0) {
+        throw_bc_data_length_exception(env, "input length not multiple of block size");
+        return 0;
+    }
+
+    if (!direct_processing_init(env, &input, &output, in, inOff, len, out, outOff, len, &inStart, &outStart)) {
+        return 0;
+    }
+
+    uint32_t blocks = (uint32_t) (len / CBC_BLOCK_SIZE);
+
+    cbc_ctx *ctx = (cbc_ctx *) ((void *) ref);
+    if (ctx->encryption) {
+        return (jint) cbc_encrypt(ctx, inStart, blocks, outStart);
+    }
+
+    return (jint) cbc_decrypt(ctx, inStart, blocks, outStart);
+}
@@ -177,3 +177,29 @@ JNIEXPORT jint JNICALL Java_org_bouncycastle_crypto_engines_AESNativeCFB_getNati
     return CFB_BLOCK_SIZE * 16;
 #endif
 }
+
+/*
+ * Class:     org_bouncycastle_crypto_engines_AESNativeCFB
+ * Method:    processBytesDirect
+ * Signature: (JLjava/nio/ByteBuffer;IILjava/nio/ByteBuffer;I)I
+ */
+JNIEXPORT jint JNICALL Java_org_bouncycastle_crypto_engines_AESNativeCFB_processBytesDirect
+        (JNIEnv *env, jclass class, jlong ref, jobject in, jint inOff, jint len, jobject out, jint outOff) {
+
+    direct_buffer_ctx input;
+    direct_buffer_ctx output;
+
+    uint8_t *inStart;
+    uint8_t *outStart;
+
+    if (!direct_processing_init(env, &input, &output, in, inOff, len, out, outOff, len, &inStart, &outStart)) {
+        return 0;
+    }
+
+    cfb_ctx *ctx = (cfb_ctx *) ((void *) ref);
+    if (ctx->encryption) {
+        return (jint) cfb_encrypt(ctx, inStart, (size_t) len, outStart);
+    }
+
+    return (jint) cfb_decrypt(ctx, inStart, (size_t) len, outStart);
+}
@@ -88,7 +88,7 @@ JNIEXPORT void JNICALL Java_org_bouncycastle_crypto_engines_AESNativeGCM_initNat
     }
 
 
-    if (!aes_keysize_is_valid_and_not_null(env, &key)) {
+    if (!aes_keysize_is_valid_or_null(env, &key)) {
         goto exit;
     }
 
@@ -101,6 +101,14 @@ JNIEXPORT void JNICALL Java_org_bouncycastle_crypto_engines_AESNativeGCM_initNat
         goto exit;
     }
 
+    // A null key is a nonce only re-initialisation, the existing key schedule is reused.
+    if (key.bytearray == NULL) {
+        if (ctx->aesKey.rounds == 0) {
+            throw_java_illegal_argument(env, "cannot replace iv unless key was previously supplied");
+            goto exit;
+        }
+    }
+
 
     err = gcm_init(
             ctx,
@@ -467,3 +475,61 @@ JNIEXPORT void JNICALL Java_org_bouncycastle_crypto_engines_AESNativeGCM_setBloc
 
     ctx->blocksRemaining -= downValue;
 }
+
+/*
+ * Class:     org_bouncycastle_crypto_engines_AESNativeGCM
+ * Method:    processBytesDirect
+ * Signature: (JLjava/nio/ByteBuffer;IILjava/nio/ByteBuffer;II)I
+ */
+JNIEXPORT jint JNICALL Java_org_bouncycastle_crypto_engines_AESNativeGCM_processBytesDirect
+        (JNIEnv *env, jclass cl, jlong ref, jobject in, jint inOff, jint len, jobject out, jint outOff, jint outLen) {
+
+    gcm_err *err = NULL;
+    gcm_ctx *ctx = (gcm_ctx *) ref;
+    size_t written = 0;
+
+    direct_buffer_ctx input, output;
+    uint8_t *src;
+    uint8_t *dest;
+
+    if (!direct_processing_init(env, &input, &output, in, inOff, len, out, outOff, outLen, &src, &dest)) {
+        return 0;
+    }
+
+    err = gcm_process_bytes(ctx,
+                            src,
+                            (size_t) len,
+                            dest,
+                            (size_t) outLen,
+                            &written);
+
+    handle_gcm_result(env, err);
+
+    return (jint) written;
+}
+
+/*
+ * Class:     org_bouncycastle_crypto_engines_AESNativeGCM
+ * Method:    doFinalDirect
+ * Signature: (JLjava/nio/ByteBuffer;II)I
+ */
+JNIEXPORT jint JNICALL Java_org_bouncycastle_crypto_engines_AESNativeGCM_doFinalDirect
+        (JNIEnv *env, jclass cl, jlong ref, jobject out, jint outOff, jint outLen) {
+
+    gcm_err *err = NULL;
+    size_t written = 0;
+    gcm_ctx *ctx = (gcm_ctx *) ref;
+
+    direct_buffer_ctx output;
+    uint8_t *dest;
+
+    if (!direct_output_init(env, &output, out, outOff, outLen, &dest)) {
+        return 0;
+    }
+
+    err = gcm_doFinal(ctx, dest, (size_t) outLen, &written);
+
+    handle_gcm_result(env, err);
+
+    return (jint) written;
+}
@@ -339,6 +339,54 @@ JNIEXPORT jboolean JNICALL Java_org_bouncycastle_crypto_NativeFeatures_nativeCCM
     return JNI_FALSE;
 }
 
+/*
+ * Class:     org_bouncycastle_crypto_NativeFeatures
+ * Method:    nativeOCB
+ * Signature: ()Z
+ */
+JNIEXPORT jboolean JNICALL Java_org_bouncycastle_crypto_NativeFeatures_nativeOCB
+        (JNIEnv *env, jclass cl) {
+    probe_system();
+
+    return cpu_info.aes && cpu_info.neon ? JNI_TRUE : JNI_FALSE;
+}
+
+/*
+ * Class:     org_bouncycastle_crypto_NativeFeatures
+ * Method:    nativeOCBPC
+ * Signature: ()Z
+ */
+JNIEXPORT jboolean JNICALL Java_org_bouncycastle_crypto_NativeFeatures_nativeOCBPC
+        (JNIEnv *env, jclass cl) {
+    probe_system();
+
+    return cpu_info.aes && cpu_info.neon ? JNI_TRUE : JNI_FALSE;
+}
+
+/*
+ * Class:     org_bouncycastle_crypto_NativeFeatures
+ * Method:    nativeEAX
+ * Signature: ()Z
+ */
+JNIEXPORT jboolean JNICALL Java_org_bouncycastle_crypto_NativeFeatures_nativeEAX
+        (JNIEnv *env, jclass cl) {
+    probe_system();
+
+    return cpu_info.aes && cpu_info.neon ? JNI_TRUE : JNI_FALSE;
+}
+
+/*
+ * Class:     org_bouncycastle_crypto_NativeFeatures
+ * Method:    nativeEAXPC
+ * Signature: ()Z
+ */
+JNIEXPORT jboolean JNICALL Java_org_bouncycastle_crypto_NativeFeatures_nativeEAXPC
+        (JNIEnv *env, jclass cl) {
+    probe_system();
+
+    return cpu_info.aes && cpu_info.neon ? JNI_TRUE : JNI_FALSE;
+}
+
 /*
  * Class:     org_bouncycastle_crypto_NativeFeatures
  * Method:    nativeRSA
@@ -357,4 +405,25 @@ JNIEXPORT jboolean JNICALL Java_org_bouncycastle_crypto_NativeFeatures_nativeRSA
 JNIEXPORT jboolean JNICALL Java_org_bouncycastle_crypto_NativeFeatures_nativeSlhDSASha256
         (JNIEnv *, jclass) {
     return JNI_FALSE;
-}
\ No newline at end of file
+}
+/*
+ * Class:     org_bouncycastle_crypto_NativeFeatures
+ * Method:    nativeChaCha20Poly1305
+ * Signature: ()Z
+ */
+JNIEXPORT jboolean JNICALL Java_org_bouncycastle_crypto_NativeFeatures_nativeChaCha20Poly1305
+        (JNIEnv *env, jclass cl) {
+    probe_system();
+    return cpu_info.neon ? JNI_TRUE : JNI_FALSE;
+}
+
+/*
+ * Class:     org_bouncycastle_crypto_NativeFeatures
+ * Method:    nativeChaCha20Poly1305PC
+ * Signature: ()Z
+ */
+JNIEXPORT jboolean JNICALL Java_org_bouncycastle_crypto_NativeFeatures_nativeChaCha20Poly1305PC
+        (JNIEnv *env, jclass cl) {
+    probe_system();
+    return cpu_info.neon ? JNI_TRUE : JNI_FALSE;
+}
@@ -0,0 +1,538 @@
+//
+// OCB (RFC 7253) using the ARMv8 crypto extensions.
+//
+// The offset for block i is Offset_{i-1} xor L[ntz(i)]. With every L[j] precomputed at key time the
+// offsets for a run of blocks are a chain of xors, and the block cipher calls themselves are
+// independent, so full blocks are processed four at a time with interleaved AES rounds.
+//
+
+#include <assert.h>
+#include <memory.h>
+#include "ocb.h"
+#include "arm_neon.h"
+
+
+ocb_err *make_ocb_error(const char *msg, int type) {
+    ocb_err *err = calloc(1, sizeof(ocb_err));
+    assert(err != NULL);
+    err->msg = msg;
+    err->type = type;
+    return err;
+}
+
+void ocb_err_free(ocb_err *err) {
+    if (err != NULL) {
+        free(err);
+    }
+}
+
+ocb_ctx *ocb_create_ctx() {
+    ocb_ctx *ctx = calloc(1, sizeof(ocb_ctx));
+    assert(ctx != NULL);
+    return ctx;
+}
+
+void ocb_free(ocb_ctx *ctx) {
+    if (ctx == NULL) {
+        return;
+    }
+
+    if (ctx->initAD != NULL) {
+        memzero(ctx->initAD, ctx->initADLen);
+        free(ctx->initAD);
+    }
+
+    memzero(ctx, sizeof(ocb_ctx));
+    free(ctx);
+}
+
+
+#define OCB_WIDTH 4
+
+/**
+ * Encrypt up to OCB_WIDTH blocks in place with interleaved rounds.
+ */
+static inline void encrypt_blocks(const aes_key *key, uint8x16_t *b, const size_t n) {
+    const uint8x16_t *rk = key->round_keys;
+    const size_t rounds = key->rounds;
+    size_t r;
+    for (r = 0; r < rounds - 1; r++) {
+        const uint8x16_t k = rk[r];
+        for (size_t i = 0; i < n; i++) {
+            b[i] = vaesmcq_u8(vaeseq_u8(b[i], k));
+        }
+    }
+    for (size_t i = 0; i < n; i++) {
+        b[i] = veorq_u8(vaeseq_u8(b[i], rk[r]), rk[r + 1]);
+    }
+}
+
+/**
+ * Decrypt up to OCB_WIDTH blocks in place with interleaved rounds, key must be a decryption schedule.
+ */
+static inline void decrypt_blocks(const aes_key *key, uint8x16_t *b, const size_t n) {
+    const uint8x16_t *rk = key->round_keys;
+    for (size_t r = key->rounds; r > 1; r--) {
+        const uint8x16_t k = rk[r];
+        for (size_t i = 0; i < n; i++) {
+            b[i] = vaesimcq_u8(vaesdq_u8(b[i], k));
+        }
+    }
+    for (size_t i = 0; i < n; i++) {
+        b[i] = veorq_u8(vaesdq_u8(b[i], rk[1]), rk[0]);
+    }
+}
+
+static inline uint8x16_t encrypt_block(ocb_ctx *ctx, uint8x16_t in) {
+    encrypt_blocks(&ctx->encKey, &in, 1);
+    return in;
+}
+
+/**
+ * Multiply by x in GF(2^128), the block is a big endian bit string.
+ */
+static void ocb_double(const uint8_t *in, uint8_t *out) {
+    uint8_t carry = 0;
+    for (int i = BLOCK_SIZE - 1; i >= 0; i--) {
+        uint8_t b = in[i];
+        out[i] = (uint8_t) ((b << 1) | carry);
+        carry = (uint8_t) (b >> 7);
+    }
+    // constant time reduction
+    out[BLOCK_SIZE - 1] ^= (uint8_t) (0x87 & -carry);
+}
+
+static inline void ocb_extend(uint8_t *block, size_t pos) {
+    block[pos] = 0x80;
+    while (++pos < BLOCK_SIZE) {
+        block[pos] = 0;
+    }
+}
+
+
+/**
+ * Process whole blocks of the hash, the associated data.
+ */
+static void ocb_hash_blocks(ocb_ctx *ctx, const uint8_t *src, size_t blocks) {
+    uint8x16_t offset = ctx->offsetHash;
+    uint8x16_t sum = ctx->sum;
+    uint64_t count = ctx->hashBlockCount;
+
+    while (blocks > 0) {
+        const size_t n = blocks >= OCB_WIDTH ? OCB_WIDTH : blocks;
+        uint8x16_t b[OCB_WIDTH];
+
+        for (size_t i = 0; i < n; i++) {
+            offset = veorq_u8(offset, ctx->L[__builtin_ctzll(++count)]);
+            b[i] = veorq_u8(vld1q_u8(&src[i * BLOCK_SIZE]), offset);
+        }
+
+        encrypt_blocks(&ctx->encKey, b, n);
+
+        for (size_t i = 0; i < n; i++) {
+            sum = veorq_u8(sum, b[i]);
+        }
+
+        src += n * BLOCK_SIZE;
+        blocks -= n;
+    }
+
+    ctx->offsetHash = offset;
+    ctx->sum = sum;
+    ctx->hashBlockCount = count;
+}
+
+
+/**
+ * Encrypt or decrypt whole blocks, src and dest may be the same.
+ */
+static void ocb_main_blocks(ocb_ctx *ctx, const uint8_t *src, uint8_t *dest, size_t blocks) {
+    uint8x16_t offset = ctx->offsetMain;
+    uint8x16_t checksum = ctx->checksum;
+    uint64_t count = ctx->mainBlockCount;
+    const bool encryption = ctx->encryption;
+
+    while (blocks > 0) {
+        const size_t n = blocks >= OCB_WIDTH ? OCB_WIDTH : blocks;
+        uint8x16_t o[OCB_WIDTH];
+        uint8x16_t b[OCB_WIDTH];
+
+        for (size_t i = 0; i < n; i++) {
+            offset = veorq_u8(offset, ctx->L[__builtin_ctzll(++count)]);
+            o[i] = offset;
+            b[i] = vld1q_u8(&src[i * BLOCK_SIZE]);
+            if (encryption) {
+                checksum = veorq_u8(checksum, b[i]);
+            }
+            b[i] = veorq_u8(b[i], o[i]);
+        }
+
+        if (encryption) {
+            encrypt_blocks(&ctx->encKey, b, n);
+        } else {
+            decrypt_blocks(&ctx->decKey, b, n);
+        }
+
+        for (size_t i = 0; i < n; i++) {
+            b[i] = veorq_u8(b[i], o[i]);
+            if (!encryption) {
+                checksum = veorq_u8(checksum, b[i]);
+            }
+            vst1q_u8(&dest[i * BLOCK_SIZE], b[i]);
+        }
+
+        src += n * BLOCK_SIZE;
+        dest += n * BLOCK_SIZE;
+        blocks -= n;
+    }
+
+    ctx->offsetMain = offset;
+    ctx->checksum = checksum;
+    ctx->mainBlockCount = count;
+}
+
+
+void ocb_reset(ocb_ctx *ctx, bool keepMac) {
+    memzero(ctx->hashBlock, BLOCK_SIZE);
+    memzero(ctx->mainBlock, OCB_BUF_SIZE);
+
+    ctx->hashBlockPos = 0;
+    ctx->mainBlockPos = 0;
+    ctx->hashBlockCount = 0;
+    ctx->mainBlockCount = 0;
+
+    ctx->offsetHash = vdupq_n_u8(0);
+    ctx->sum = vdupq_n_u8(0);
+    ctx->offsetMain = ctx->offsetMain0;
+    ctx->checksum = vdupq_n_u8(0);
+
+    if (!keepMac) {
+        memzero(ctx->macBlock, OCB_MAC_BLOCK_LEN);
+    }
+
+    if (ctx->initAD != NULL) {
+        ocb_process_aad_bytes(ctx, ctx->initAD, ctx->initADLen);
+    }
+}
+
+
+ocb_err *ocb_init(ocb_ctx *ctx, bool encryption, uint8_t *key, size_t keyLen, uint8_t *nonce, size_t nonceLen,
+                  uint8_t *initialText, size_t initialTextLen, uint32_t macSizeBytes) {
+
+    //
+    // All assertions of correctness need to be done by the caller.
+    //
+    assert(nonceLen <= OCB_MAX_NONCE_LEN);
+    assert(macSizeBytes <= OCB_MAC_BLOCK_LEN);
+
+    ctx->encryption = encryption;
+    ctx->macSize = macSizeBytes;
+
+    if (key != NULL) {
+        init_aes_key(&ctx->encKey, key, keyLen, true);
+        init_aes_key(&ctx->decKey, key, keyLen, false);
+
+        //
+        // L_* = E(0), L_$ = double(L_*), L[0] = double(L_$), L[i] = double(L[i-1])
+        //
+        uint8_t tmp[BLOCK_SIZE];
+        uint8_t next[BLOCK_SIZE];
+
+        ctx->L_asterisk = encrypt_block(ctx, vdupq_n_u8(0));
+        vst1q_u8(tmp, ctx->L_asterisk);
+        ocb_double(tmp, next);
+        ctx->L_dollar = vld1q_u8(next);
+
+        for (int i = 0; i < OCB_L_TABLE_SIZE; i++) {
+            memcpy(tmp, next, BLOCK_SIZE);
+            ocb_double(tmp, next);
+            ctx->L[i] = vld1q_u8(next);
+        }
+
+        memzero(tmp, BLOCK_SIZE);
+        memzero(next, BLOCK_SIZE);
+
+        ctx->ktopValid = false;
+    }
+
+    //
+    // Nonce dependent
+    //
+    uint8_t n[BLOCK_SIZE];
+    memzero(n, BLOCK_SIZE);
+    if (nonceLen > 0) {
+        memcpy(n + BLOCK_SIZE - nonceLen, nonce, nonceLen);
+    }
+    n[0] = (uint8_t) (macSizeBytes << 4);
+    n[15 - nonceLen] |= 1;
+
+    const int bottom = n[15] & 0x3F;
+    n[15] &= 0xC0;
+
+    //
+    // When used with incrementing nonces, the cipher is only applied once every 64 inits.
+    //
+    if (!ctx->ktopValid || memcmp(n, ctx->ktopInput, BLOCK_SIZE) != 0) {
+        uint8_t ktop[BLOCK_SIZE];
+        memcpy(ctx->ktopInput, n, BLOCK_SIZE);
+        vst1q_u8(ktop, encrypt_block(ctx, vld1q_u8(n)));
+        memcpy(ctx->stretch, ktop, BLOCK_SIZE);
+        for (int i = 0; i < 8; i++) {
+            ctx->stretch[16 + i] = (uint8_t) (ktop[i] ^ ktop[i + 1]);
+        }
+        memzero(ktop, BLOCK_SIZE);
+        ctx->ktopValid = true;
+    }
+
+    uint8_t offset0[BLOCK_SIZE];
+    const int bits = bottom % 8;
+    int bytes = bottom / 8;
+    if (bits == 0) {
+        memcpy(offset0, &ctx->stretch[bytes], BLOCK_SIZE);
+    } else {
+        for (int i = 0; i < BLOCK_SIZE; i++) {
+            uint32_t b1 = ctx->stretch[bytes];
+            uint32_t b2 = ctx->stretch[++bytes];
+            offset0[i] = (uint8_t) ((b1 << bits) | (b2 >> (8 - bits)));
+        }
+    }
+    ctx->offsetMain0 = vld1q_u8(offset0);
+    memzero(offset0, BLOCK_SIZE);
+
+    //
+    // Initial associated text
+    //
+    if (ctx->initAD != NULL) {
+        memzero(ctx->initAD, ctx->initADLen);
+        free(ctx->initAD);
+        ctx->initAD = NULL;
+        ctx->initADLen = 0;
+    }
+
+    if (initialText != NULL) {
+        ctx->initAD = malloc(initialTextLen);
+        assert(ctx->initAD != NULL);
+        ctx->initADLen = initialTextLen;
+        memcpy(ctx->initAD, initialText, initialTextLen);
+    }
+
+    ocb_reset(ctx, false);
+
+    return NULL;
+}
+
+
+void ocb_process_aad_byte(ocb_ctx *ctx, uint8_t byte) {
+    ctx->hashBlock[ctx->hashBlockPos++] = byte;
+    if (ctx->hashBlockPos == BLOCK_SIZE) {
+        ocb_hash_blocks(ctx, ctx->hashBlock, 1);
+        ctx->hashBlockPos = 0;
+    }
+}
+
+void ocb_process_aad_bytes(ocb_ctx *ctx, uint8_t *aad, size_t len) {
+    if (ctx->hashBlockPos > 0) {
+        size_t n = BLOCK_SIZE - ctx->hashBlockPos;
+        if (n > len) {
+            n = len;
+        }
+        memcpy(ctx->hashBlock + ctx->hashBlockPos, aad, n);
+        ctx->hashBlockPos += n;
+        aad += n;
+        len -= n;
+
+        if (ctx->hashBlockPos < BLOCK_SIZE) {
+            return;
+        }
+
+        ocb_hash_blocks(ctx, ctx->hashBlock, 1);
+        ctx->hashBlockPos = 0;
+    }
+
+    size_t blocks = len / BLOCK_SIZE;
+    if (blocks > 0) {
+        ocb_hash_blocks(ctx, aad, blocks);
+        aad += blocks * BLOCK_SIZE;
+        len -= blocks * BLOCK_SIZE;
+    }
+
+    if (len > 0) {
+        memcpy(ctx->hashBlock, aad, len);
+        ctx->hashBlockPos = len;
+    }
+}
+
+
+size_t ocb_get_update_output_size(ocb_ctx *ctx, size_t len) {
+    size_t totalData = len + ctx->mainBlockPos;
+    if (!ctx->encryption) {
+        if (totalData < ctx->macSize) {
+            return 0;
+        }
+        totalData -= ctx->macSize;
+    }
+    return totalData - totalData % BLOCK_SIZE;
+}
+
+size_t ocb_get_output_size(ocb_ctx *ctx, size_t len) {
+    size_t totalData = len + ctx->mainBlockPos;
+    if (ctx->encryption) {
+        return totalData + ctx->macSize;
+    }
+    return totalData < ctx->macSize ? 0 : totalData - ctx->macSize;
+}
+
+
+ocb_err *ocb_process_byte(ocb_ctx *ctx, uint8_t byte, uint8_t *output, size_t outputLen, size_t *written) {
+    return ocb_process_bytes(ctx, &byte, 1, output, outputLen, written);
+}
+
+ocb_err *ocb_process_bytes(ocb_ctx *ctx, uint8_t *input, size_t len, uint8_t *output, size_t outputLen,
+                           size_t *written) {
+    *written = 0;
+
+    if (ocb_get_update_output_size(ctx, len) > outputLen) {
+        return make_ocb_error("output buffer too short", OUTPUT_LENGTH);
+    }
+
+    //
+    // On decryption the last macSize bytes seen may be the tag so they are always held back.
+    //
+    const size_t holdBack = ctx->encryption ? 0 : ctx->macSize;
+    const size_t available = ctx->mainBlockPos + len;
+    size_t blocks = available < holdBack ? 0 : (available - holdBack) / BLOCK_SIZE;
+
+    //
+    // Blocks that start in the buffer.
+    //
+    while (blocks > 0 && ctx->mainBlockPos > 0) {
+        if (ctx->mainBlockPos < BLOCK_SIZE) {
+            size_t n = BLOCK_SIZE - ctx->mainBlockPos;
+            memcpy(ctx->mainBlock + ctx->mainBlockPos, input, n);
+            input += n;
+            len -= n;
+            ctx->mainBlockPos = BLOCK_SIZE;
+        }
+
+        ocb_main_blocks(ctx, ctx->mainBlock, output, 1);
+        output += BLOCK_SIZE;
+        *written += BLOCK_SIZE;
+
+        ctx->mainBlockPos -= BLOCK_SIZE;
+        memmove(ctx->mainBlock, ctx->mainBlock + BLOCK_SIZE, ctx->mainBlockPos);
+        blocks--;
+    }
+
+    //
+    // The buffer is empty, so the rest come straight from the input.
+    //
+    if (blocks > 0) {
+        const size_t n = blocks * BLOCK_SIZE;
+        ocb_main_blocks(ctx, input, output, blocks);
+        input += n;
+        len -= n;
+        *written += n;
+    }
+
+    if (len > 0) {
+        assert(ctx->mainBlockPos + len <= OCB_BUF_SIZE);
+        memcpy(ctx->mainBlock + ctx->mainBlockPos, input, len);
+        ctx->mainBlockPos += len;
+    }
+
+    return NULL;
+}
+
+
+ocb_err *ocb_doFinal(ocb_ctx *ctx, uint8_t *output, size_t outLen, size_t *written) {
+    uint8_t tag[OCB_MAC_BLOCK_LEN];
+    uint8_t block[BLOCK_SIZE];
+    size_t pos = ctx->mainBlockPos;
+
+    *written = 0;
+
+    //
+    // For decryption, get the tag from the end of the message
+    //
+    if (!ctx->encryption) {
+        if (pos < ctx->macSize) {
+            return make_ocb_error("data too short", ILLEGAL_CIPHER_TEXT);
+        }
+        pos -= ctx->macSize;
+        memcpy(tag, ctx->mainBlock + pos, ctx->macSize);
+    }
+
+    if ((ctx->encryption ? pos + ctx->macSize : pos) > outLen) {
+        return make_ocb_error("output buffer too short", OUTPUT_LENGTH);
+    }
+
+    //
+    // HASH: Process any final partial block
+    //
+    if (ctx->hashBlockPos > 0) {
+        ocb_extend(ctx->hashBlock, ctx->hashBlockPos);
+        ctx->offsetHash = veorq_u8(ctx->offsetHash, ctx->L_asterisk);
+        uint8x16_t b = veorq_u8(vld1q_u8(ctx->hashBlock), ctx->offsetHash);
+        ctx->sum = veorq_u8(ctx->sum, encrypt_block(ctx, b));
+    }
+
+    //
+    // Process any final partial block
+    //
+    if (pos > 0) {
+        if (ctx->encryption) {
+            ocb_extend(ctx->mainBlock, pos);
+            ctx->checksum = veorq_u8(ctx->checksum, vld1q_u8(ctx->mainBlock));
+        }
+
+        ctx->offsetMain = veorq_u8(ctx->offsetMain, ctx->L_asterisk);
+        uint8x16_t pad = encrypt_block(ctx, ctx->offsetMain);
+
+        vst1q_u8(block, veorq_u8(vld1q_u8(ctx->mainBlock), pad));
+        memcpy(output, block, pos);
+
+        if (!ctx->encryption) {
+            ocb_extend(block, pos);
+            ctx->checksum = veorq_u8(ctx->checksum, vld1q_u8(block));
+        }
+        memzero(block, BLOCK_SIZE);
+    }
+
+    //
+    // Compute the tag
+    //
+    uint8x16_t t = veorq_u8(veorq_u8(ctx->checksum, ctx->offsetMain), ctx->L_dollar);
+    t = veorq_u8(encrypt_block(ctx, t), ctx->sum);
+    vst1q_u8(ctx->macBlock, t);
+
+    if (ctx->encryption) {
+        memcpy(output + pos, ctx->macBlock, ctx->macSize);
+        *written = pos + ctx->macSize;
+    } else {
+        uint32_t nonEqual = 0;
+        for (size_t i = 0; i < ctx->macSize; i++) {
+            nonEqual |= (ctx->macBlock[i] ^ tag[i]);
+        }
+        memzero(tag, OCB_MAC_BLOCK_LEN);
+
+        if (nonEqual != 0) {
+            if (pos > 0) {
+                memzero(output, pos);
+            }
+            return make_ocb_error("mac check in OCB failed", ILLEGAL_CIPHER_TEXT);
+        }
+        *written = pos;
+    }
+
+    ocb_reset(ctx, true);
+
+    return NULL;
+}
+
+
+size_t ocb_getMac(ocb_ctx *ctx, uint8_t *destination) {
+    if (destination != NULL) {
+        memcpy(destination, ctx->macBlock, ctx->macSize);
+    }
+    return ctx->macSize;
+}
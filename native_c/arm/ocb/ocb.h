@@ -0,0 +1,133 @@
+//
+//
+
+#include <stdbool.h>
+#include <stdint.h>
+#include "arm_neon.h"
+#include <stdlib.h>
+#include <stdio.h>
+#include "../aes/aes_common_neon.h"
+
+#ifndef BC_LTS_C_OCB_H
+#define BC_LTS_C_OCB_H
+
+#define ILLEGAL_STATE 1
+#define ILLEGAL_ARGUMENT 2
+#define ILLEGAL_CIPHER_TEXT 3
+#define OUTPUT_LENGTH 4
+#define BLOCK_SIZE 16
+
+#define OCB_MAX_NONCE_LEN 15
+#define OCB_MAC_BLOCK_LEN 16
+
+// ntz() of a 64 bit block counter is at most 63.
+#define OCB_L_TABLE_SIZE 64
+
+// One block plus the tag held back during decryption.
+#define OCB_BUF_SIZE (BLOCK_SIZE + OCB_MAC_BLOCK_LEN)
+
+typedef struct {
+    const char *msg; // the message
+    int type; // relates to exception needed on jvm side
+} ocb_err;
+
+
+ocb_err *make_ocb_error(const char *msg, int type);
+
+void ocb_err_free(ocb_err *err);
+
+
+typedef struct {
+    // The hash and the encryption direction always use the forward schedule.
+    aes_key encKey;
+    aes_key decKey;
+    bool encryption;
+    size_t macSize;
+
+    uint8_t *initAD;
+    size_t initADLen;
+
+    //
+    // Key dependent
+    //
+    uint8x16_t L_asterisk;
+    uint8x16_t L_dollar;
+    uint8x16_t L[OCB_L_TABLE_SIZE];
+
+    //
+    // Nonce dependent
+    //
+    uint8_t ktopInput[BLOCK_SIZE];
+    bool ktopValid;
+    uint8_t stretch[24];
+    uint8x16_t offsetMain0;
+
+    //
+    // Per encryption / decryption
+    //
+    uint8x16_t offsetHash;
+    uint8x16_t sum;
+    uint8x16_t offsetMain;
+    uint8x16_t checksum;
+
+    uint8_t hashBlock[BLOCK_SIZE];
+    size_t hashBlockPos;
+    uint64_t hashBlockCount;
+
+    uint8_t mainBlock[OCB_BUF_SIZE];
+    size_t mainBlockPos;
+    uint64_t mainBlockCount;
+
+    uint8_t macBlock[OCB_MAC_BLOCK_LEN];
+} ocb_ctx;
+
+
+ocb_ctx *ocb_create_ctx();
+
+void ocb_free(ocb_ctx *);
+
+void ocb_reset(ocb_ctx *, bool keepMac);
+
+/**
+ *
+ * @param key may be NULL in which case the existing key schedule is reused.
+ * @return NULL if no error, other ptr to struct CALLER NEEDS TO FREE
+ */
+ocb_err *ocb_init(ocb_ctx *ctx, bool encryption, uint8_t *key, size_t keyLen, uint8_t *nonce, size_t nonceLen,
+                  uint8_t *initialText, size_t initialTextLen, uint32_t macSizeBytes);
+
+void ocb_process_aad_byte(ocb_ctx *ctx, uint8_t byte);
+
+void ocb_process_aad_bytes(ocb_ctx *ctx, uint8_t *aad, size_t len);
+
+/**
+ *
+ * @return NULL if no error, else ptr to struct CALLER NEEDS TO FREE
+ */
+ocb_err *ocb_process_byte(ocb_ctx *ctx, uint8_t byte, uint8_t *output, size_t outputLen, size_t *written);
+
+/**
+ *
+ * @return NULL if no error, else ptr to struct CALLER NEEDS TO FREE
+ */
+ocb_err *ocb_process_bytes(ocb_ctx *ctx, uint8_t *input, size_t len, uint8_t *output, size_t outputLen,
+                           size_t *written);
+
+/**
+ *
+ * @return NULL if no error, else ptr to struct CALLER NEEDS TO FREE
+ */
+ocb_err *ocb_doFinal(ocb_ctx *ctx, uint8_t *output, size_t outLen, size_t *written);
+
+/**
+ * Call with NULL destination to get len.
+ * @param destination destination to copy mac
+ * @return the length
+ */
+size_t ocb_getMac(ocb_ctx *ctx, uint8_t *destination);
+
+size_t ocb_get_output_size(ocb_ctx *ctx, size_t len);
+
+size_t ocb_get_update_output_size(ocb_ctx *ctx, size_t len);
+
+#endif //BC_LTS_C_OCB_H
@@ -0,0 +1,27 @@
+//
+//
+
+#ifndef BC_LTS_C_CHACHA20POLY1305_PC_H
+#define BC_LTS_C_CHACHA20POLY1305_PC_H
+
+#include <stdbool.h>
+#include <stdint.h>
+#include <stdlib.h>
+#include "../packet_utils.h"
+
+#define CHACHA_PC_MAC_SIZE 16
+
+/**
+ * Encrypt or decrypt a complete ChaCha20-Poly1305 (RFC 8439) message.
+ * On decryption the tag is verified before any output is written.
+ *
+ * @param key 32 byte key
+ * @param nonce 12 byte nonce
+ * @param p_out receives inLen bytes plus the tag on encryption, inLen less the tag on decryption
+ * @return NULL if no error, otherwise ptr to struct, CALLER NEEDS TO FREE
+ */
+packet_err *
+chacha20poly1305_pc_process_packet(bool encryption, uint8_t *key, uint8_t *nonce, uint8_t *aad, size_t aadLen,
+                                   uint8_t *p_in, size_t inLen, uint8_t *p_out, size_t *outputLen);
+
+#endif //BC_LTS_C_CHACHA20POLY1305_PC_H
@@ -0,0 +1,19 @@
+//
+//
+
+#include <stdbool.h>
+#include <stdint.h>
+#include "arm_neon.h"
+#include <stdlib.h>
+#include <stdio.h>
+#include "../packet_utils.h"
+#include "../../eax/eax.h"
+
+#ifndef BC_LTS_C_EAX_PC_H
+#define BC_LTS_C_EAX_PC_H
+
+packet_err *eax_pc_process_packet(bool encryption, uint8_t *key, size_t keysize, uint8_t *nonce, size_t nonceLen,
+                                  size_t macSize, uint8_t *aad, size_t aadLen, uint8_t *p_in, size_t inLen,
+                                  uint8_t *p_out, size_t *outputLen);
+
+#endif //BC_LTS_C_EAX_PC_H
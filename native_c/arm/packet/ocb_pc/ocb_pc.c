@@ -0,0 +1,43 @@
+#include "ocb_pc.h"
+#include <memory.h>
+
+//
+// The whole packet is available so it is handed to the streaming implementation in one call,
+// all the blocks take the interleaved path.
+//
+
+packet_err *
+ocb_pc_process_packet(bool encryption, uint8_t *key, size_t keysize, uint8_t *nonce, size_t nonceLen,
+                      size_t macSize, uint8_t *aad, size_t aadLen, uint8_t *p_in, size_t inLen,
+                      uint8_t *p_out, size_t *outputLen) {
+    ocb_ctx ctx;
+    packet_err *err = NULL;
+    size_t written = 0;
+    size_t finalWritten = 0;
+    const size_t outLen = encryption ? inLen + macSize : inLen - macSize;
+
+    memzero(&ctx, sizeof(ocb_ctx));
+
+    ocb_init(&ctx, encryption, key, keysize, nonce, nonceLen, NULL, 0, (uint32_t) macSize);
+
+    if (aad != NULL) {
+        ocb_process_aad_bytes(&ctx, aad, aadLen);
+    }
+
+    ocb_err *ocbErr = ocb_process_bytes(&ctx, p_in, inLen, p_out, outLen, &written);
+    if (ocbErr == NULL) {
+        ocbErr = ocb_doFinal(&ctx, p_out + written, outLen - written, &finalWritten);
+    }
+
+    if (ocbErr != NULL) {
+        err = make_packet_error(ocbErr->msg, ocbErr->type);
+        ocb_err_free(ocbErr);
+        memzero(p_out, outLen);
+        *outputLen = 0;
+    } else {
+        *outputLen = written + finalWritten;
+    }
+
+    memzero(&ctx, sizeof(ocb_ctx));
+    return err;
+}
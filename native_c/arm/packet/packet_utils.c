@@ -0,0 +1,43 @@
+#include "packet_utils.h"
+
+int get_aead_output_size(bool encryption, int len, int macSize) {
+    if (encryption) {
+        return len + macSize;
+    } else if (len < macSize) {
+        return -1;
+    } else {
+        return len - macSize;
+    }
+}
+
+int get_output_size(int len) {
+    if ((len % BLOCK_SIZE) != 0) {
+        return -1;
+    } else {
+        return len;
+    }
+}
+
+void packet_err_free(packet_err *err) {
+    if (err != NULL) {
+        free(err);
+    }
+}
+
+packet_err *make_packet_error(const char *msg, int type) {
+    packet_err *err = calloc(1, sizeof(packet_err));
+    assert(err != NULL);
+    err->msg = msg;
+    err->type = type;
+    return err;
+}
+
+bool tag_verification(const uint8_t *left, const uint8_t *right, size_t len) {
+    assert(left != NULL);
+    assert(right != NULL);
+    uint32_t nonEqual = 0;
+    for (size_t i = 0; i != len; i++) {
+        nonEqual |= (left[i] ^ right[i]);
+    }
+    return nonEqual == 0;
+}
@@ -90,22 +90,31 @@ ccm_err *ccm_init(
     ctx->macBlockLenInBytes = macBlockLenBytes;
     ctx->q = 15 - nonceLen;
 
-    memzero(ctx->roundKeys, sizeof(__m128i) * 15);
-    switch (keyLen) {
-        case 16:
-            ctx->num_rounds = ROUNDS_128;
-            init_128(ctx->roundKeys, key, true);
-            break;
-        case 24:
-            ctx->num_rounds = ROUNDS_192;
-            init_192(ctx->roundKeys, key, true);
-            break;
-        case 32:
-            ctx->num_rounds = ROUNDS_256;
-            init_256(ctx->roundKeys, key, true);
-            break;
-        default:
-            assert(0);
+    if (keyLen != 0) {
+
+        //
+        // This mode supports nonce only re-initialisation, jni layer must check for previous initialisation.
+        //
+
+        assert(key != NULL);
+
+        memzero(ctx->roundKeys, sizeof(__m128i) * 15);
+        switch (keyLen) {
+            case 16:
+                ctx->num_rounds = ROUNDS_128;
+                init_128(ctx->roundKeys, key, true);
+                break;
+            case 24:
+                ctx->num_rounds = ROUNDS_192;
+                init_192(ctx->roundKeys, key, true);
+                break;
+            case 32:
+                ctx->num_rounds = ROUNDS_256;
+                init_256(ctx->roundKeys, key, true);
+                break;
+            default:
+                assert(0);
+        }
     }
     ctx->initialChainblock = _mm_setzero_si128();//_mm_loadu_si128((__m128i *) ctx->macBlock);
     ctx->chainblock = ctx->initialChainblock;
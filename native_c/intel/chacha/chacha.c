@@ -0,0 +1,51 @@
+//
+//
+
+#include <memory.h>
+#include "chacha.h"
+#include "../util/util.h"
+
+// "expand 32-byte k"
+#define SIGMA0 0x61707865
+#define SIGMA1 0x3320646e
+#define SIGMA2 0x79622d32
+#define SIGMA3 0x6b206574
+
+static inline uint32_t le32(const uint8_t *p) {
+    return (uint32_t) p[0] | ((uint32_t) p[1] << 8) | ((uint32_t) p[2] << 16) | ((uint32_t) p[3] << 24);
+}
+
+void chacha20_init_state(uint32_t *state, const uint8_t *key, const uint8_t *nonce, uint32_t counter) {
+    state[0] = SIGMA0;
+    state[1] = SIGMA1;
+    state[2] = SIGMA2;
+    state[3] = SIGMA3;
+    for (int i = 0; i < 8; i++) {
+        state[4 + i] = le32(key + 4 * i);
+    }
+    state[CHACHA_COUNTER] = counter;
+    state[13] = le32(nonce);
+    state[14] = le32(nonce + 4);
+    state[15] = le32(nonce + 8);
+}
+
+void chacha20_key_stream4(const uint32_t *state, uint8_t *keyStream) {
+    __m128i x[16];
+    chacha_blocks128(state, x);
+    for (int i = 0; i < 16; i++) {
+        _mm_storeu_si128((__m128i *) (keyStream + 16 * i), x[i]);
+    }
+    memzero(x, sizeof(x));
+}
+
+void chacha20_process_partial(uint32_t *state, const uint8_t *in, uint8_t *out, size_t len) {
+    uint8_t keyStream[4 * CHACHA_BLOCK_SIZE];
+
+    chacha20_key_stream4(state, keyStream);
+    for (size_t i = 0; i < len; i++) {
+        out[i] = in[i] ^ keyStream[i];
+    }
+    state[CHACHA_COUNTER]++;
+
+    memzero(keyStream, sizeof(keyStream));
+}
@@ -0,0 +1,161 @@
+//
+//
+
+#ifndef BC_LTS_C_CHACHA_H
+#define BC_LTS_C_CHACHA_H
+
+#include <immintrin.h>
+#include <stdbool.h>
+#include <stdint.h>
+#include <stdlib.h>
+
+#define CHACHA_BLOCK_SIZE 64
+#define CHACHA_KEY_SIZE 32
+#define CHACHA_NONCE_SIZE 12
+
+// index of the block counter in the state.
+#define CHACHA_COUNTER 12
+
+/**
+ * Set up a ChaCha20 (RFC 8439) state.
+ * @param state receives the 16 word state
+ * @param key 32 byte key
+ * @param nonce 12 byte nonce
+ * @param counter initial block counter
+ */
+void chacha20_init_state(uint32_t *state, const uint8_t *key, const uint8_t *nonce, uint32_t counter);
+
+/**
+ * Generate four consecutive key stream blocks starting at the state's counter, the state is not updated.
+ * @param state the state
+ * @param keyStream receives 4 * CHACHA_BLOCK_SIZE bytes
+ */
+void chacha20_key_stream4(const uint32_t *state, uint8_t *keyStream);
+
+/**
+ * Process whole blocks, the counter in state is advanced by the number of blocks.
+ * Implemented once per variant, using the widest vectors the variant has.
+ *
+ * @param state the state
+ * @param in input, may be the same as out
+ * @param out output
+ * @param blocks the number of CHACHA_BLOCK_SIZE blocks to process
+ */
+void chacha20_process_blocks(uint32_t *state, const uint8_t *in, uint8_t *out, size_t blocks);
+
+/**
+ * Process a trailing partial block, the counter in state is advanced by one.
+ * @param state the state
+ * @param in input, may be the same as out
+ * @param out output
+ * @param len the number of bytes, less than CHACHA_BLOCK_SIZE
+ */
+void chacha20_process_partial(uint32_t *state, const uint8_t *in, uint8_t *out, size_t len);
+
+
+/*
+ * 4 way SSE round function, each vector holds the same word from 4 consecutive blocks.
+ */
+
+static const int8_t __attribute__ ((aligned(16))) _chacha_rot16[16] = {
+        2, 3, 0, 1, 6, 7, 4, 5, 10, 11, 8, 9, 14, 15, 12, 13
+};
+
+static const int8_t __attribute__ ((aligned(16))) _chacha_rot8[16] = {
+        3, 0, 1, 2, 7, 4, 5, 6, 11, 8, 9, 10, 15, 12, 13, 14
+};
+
+#define CHACHA_ROTL128(v, n) _mm_or_si128(_mm_slli_epi32(v, n), _mm_srli_epi32(v, 32 - (n)))
+
+#define CHACHA_QR128(a, b, c, d) \
+    a = _mm_add_epi32(a, b); d = _mm_shuffle_epi8(_mm_xor_si128(d, a), rot16); \
+    c = _mm_add_epi32(c, d); b = _mm_xor_si128(b, c); b = CHACHA_ROTL128(b, 12); \
+    a = _mm_add_epi32(a, b); d = _mm_shuffle_epi8(_mm_xor_si128(d, a), rot8); \
+    c = _mm_add_epi32(c, d); b = _mm_xor_si128(b, c); b = CHACHA_ROTL128(b, 7);
+
+/**
+ * Transpose the same 4 words of 4 blocks into 4 runs of 16 bytes, one for each block.
+ */
+static inline void chacha_transpose128(__m128i *a0, __m128i *a1, __m128i *a2, __m128i *a3) {
+    const __m128i t0 = _mm_unpacklo_epi32(*a0, *a1);
+    const __m128i t1 = _mm_unpacklo_epi32(*a2, *a3);
+    const __m128i t2 = _mm_unpackhi_epi32(*a0, *a1);
+    const __m128i t3 = _mm_unpackhi_epi32(*a2, *a3);
+    *a0 = _mm_unpacklo_epi64(t0, t1);
+    *a1 = _mm_unpackhi_epi64(t0, t1);
+    *a2 = _mm_unpacklo_epi64(t2, t3);
+    *a3 = _mm_unpackhi_epi64(t2, t3);
+}
+
+/**
+ * Generate 4 key stream blocks starting at the state's counter.
+ * On return x[4 * b + g] holds bytes 16 * g to 16 * g + 15 of block b.
+ */
+static inline void chacha_blocks128(const uint32_t *state, __m128i *x) {
+    const __m128i rot16 = _mm_load_si128((const __m128i *) _chacha_rot16);
+    const __m128i rot8 = _mm_load_si128((const __m128i *) _chacha_rot8);
+    __m128i s[16];
+    int i;
+
+    for (i = 0; i < 16; i++) {
+        s[i] = _mm_set1_epi32((int) state[i]);
+    }
+    s[CHACHA_COUNTER] = _mm_add_epi32(s[CHACHA_COUNTER], _mm_set_epi32(3, 2, 1, 0));
+
+    __m128i x0 = s[0], x1 = s[1], x2 = s[2], x3 = s[3];
+    __m128i x4 = s[4], x5 = s[5], x6 = s[6], x7 = s[7];
+    __m128i x8 = s[8], x9 = s[9], x10 = s[10], x11 = s[11];
+    __m128i x12 = s[12], x13 = s[13], x14 = s[14], x15 = s[15];
+
+    for (i = 0; i < 10; i++) {
+        CHACHA_QR128(x0, x4, x8, x12)
+        CHACHA_QR128(x1, x5, x9, x13)
+        CHACHA_QR128(x2, x6, x10, x14)
+        CHACHA_QR128(x3, x7, x11, x15)
+        CHACHA_QR128(x0, x5, x10, x15)
+        CHACHA_QR128(x1, x6, x11, x12)
+        CHACHA_QR128(x2, x7, x8, x13)
+        CHACHA_QR128(x3, x4, x9, x14)
+    }
+
+    x0 = _mm_add_epi32(x0, s[0]);
+    x1 = _mm_add_epi32(x1, s[1]);
+    x2 = _mm_add_epi32(x2, s[2]);
+    x3 = _mm_add_epi32(x3, s[3]);
+    x4 = _mm_add_epi32(x4, s[4]);
+    x5 = _mm_add_epi32(x5, s[5]);
+    x6 = _mm_add_epi32(x6, s[6]);
+    x7 = _mm_add_epi32(x7, s[7]);
+    x8 = _mm_add_epi32(x8, s[8]);
+    x9 = _mm_add_epi32(x9, s[9]);
+    x10 = _mm_add_epi32(x10, s[10]);
+    x11 = _mm_add_epi32(x11, s[11]);
+    x12 = _mm_add_epi32(x12, s[12]);
+    x13 = _mm_add_epi32(x13, s[13]);
+    x14 = _mm_add_epi32(x14, s[14]);
+    x15 = _mm_add_epi32(x15, s[15]);
+
+    chacha_transpose128(&x0, &x1, &x2, &x3);
+    chacha_transpose128(&x4, &x5, &x6, &x7);
+    chacha_transpose128(&x8, &x9, &x10, &x11);
+    chacha_transpose128(&x12, &x13, &x14, &x15);
+
+    x[0] = x0;
+    x[1] = x4;
+    x[2] = x8;
+    x[3] = x12;
+    x[4] = x1;
+    x[5] = x5;
+    x[6] = x9;
+    x[7] = x13;
+    x[8] = x2;
+    x[9] = x6;
+    x[10] = x10;
+    x[11] = x14;
+    x[12] = x3;
+    x[13] = x7;
+    x[14] = x11;
+    x[15] = x15;
+}
+
+#endif //BC_LTS_C_CHACHA_H
@@ -0,0 +1,33 @@
+//
+//
+
+#include "chacha.h"
+#include "../util/util.h"
+
+static inline void xor_blocks128(__m128i *x, const uint8_t *in, uint8_t *out, size_t blocks) {
+    for (size_t i = 0; i < 4 * blocks; i++) {
+        const __m128i d = _mm_loadu_si128((const __m128i *) (in + 16 * i));
+        _mm_storeu_si128((__m128i *) (out + 16 * i), _mm_xor_si128(d, x[i]));
+    }
+}
+
+void chacha20_process_blocks(uint32_t *state, const uint8_t *in, uint8_t *out, size_t blocks) {
+    __m128i x[16];
+
+    while (blocks >= 4) {
+        chacha_blocks128(state, x);
+        xor_blocks128(x, in, out, 4);
+        state[CHACHA_COUNTER] += 4;
+        in += 4 * CHACHA_BLOCK_SIZE;
+        out += 4 * CHACHA_BLOCK_SIZE;
+        blocks -= 4;
+    }
+
+    if (blocks > 0) {
+        chacha_blocks128(state, x);
+        xor_blocks128(x, in, out, blocks);
+        state[CHACHA_COUNTER] += (uint32_t) blocks;
+    }
+
+    memzero(x, sizeof(x));
+}
@@ -0,0 +1,101 @@
+//
+//
+
+#ifndef BC_LTS_C_CHACHA20POLY1305_H
+#define BC_LTS_C_CHACHA20POLY1305_H
+
+#include <stdbool.h>
+#include <stdint.h>
+#include <stdlib.h>
+#include "chacha.h"
+#include "poly1305.h"
+
+#define ILLEGAL_STATE 1
+#define ILLEGAL_ARGUMENT 2
+#define ILLEGAL_CIPHER_TEXT 3
+#define OUTPUT_LENGTH 4
+
+#define CHACHA_MAC_SIZE 16
+#define CHACHA_BUF_SIZE 64
+
+// (2^32 - 1) blocks of key stream after the block used for the Poly1305 key.
+#define CHACHA_DATA_LIMIT ((((uint64_t) 1 << 32) - 1) * CHACHA_BLOCK_SIZE)
+
+// Process bulk data in chunks of this size so it is still in cache for Poly1305.
+#define CHACHA_CHUNK_SIZE (64 * CHACHA_BLOCK_SIZE)
+
+// matches java one
+#define CHACHA_REUSE_ERROR_MSG "ChaCha20Poly1305 cannot be reused for encryption"
+
+typedef enum {
+    CHACHA_UNINITIALIZED = 0,
+    CHACHA_ENC_INIT,
+    CHACHA_ENC_AAD,
+    CHACHA_ENC_DATA,
+    CHACHA_ENC_FINAL,
+    CHACHA_DEC_INIT,
+    CHACHA_DEC_AAD,
+    CHACHA_DEC_DATA,
+    CHACHA_DEC_FINAL
+} chacha_state;
+
+typedef struct {
+    const char *msg; // the message
+    int type; // relates to exception needed on jvm side
+} chacha_err;
+
+chacha_err *make_chacha_error(const char *msg, int type);
+
+void chacha_err_free(chacha_err *err);
+
+typedef struct {
+    uint32_t state[16];
+    poly1305_ctx poly;
+    chacha_state st;
+    uint8_t buf[CHACHA_BUF_SIZE + CHACHA_MAC_SIZE]; // room to hold back the tag on decryption
+    size_t bufPos;
+    uint8_t mac[CHACHA_MAC_SIZE];
+    uint8_t *initAD;
+    size_t initADLen;
+    uint64_t aadCount;
+    uint64_t dataCount;
+} chacha20poly1305_ctx;
+
+
+chacha20poly1305_ctx *chacha20poly1305_create_ctx(void);
+
+void chacha20poly1305_free_ctx(chacha20poly1305_ctx *ctx);
+
+/**
+ * Reset for another message with the same key and nonce, as the Java implementation a reset after encryption
+ * leaves the context unusable until it is initialised again.
+ */
+void chacha20poly1305_reset(chacha20poly1305_ctx *ctx);
+
+/**
+ * @return NULL if no error, otherwise ptr to struct, CALLER NEEDS TO FREE
+ */
+chacha_err *chacha20poly1305_init(chacha20poly1305_ctx *ctx, bool encryption, const uint8_t *key, const uint8_t *nonce,
+                                  const uint8_t *ad, size_t adLen);
+
+chacha_err *chacha20poly1305_process_aad_bytes(chacha20poly1305_ctx *ctx, const uint8_t *aad, size_t len);
+
+/**
+ * @param output may be NULL if outputLen is 0 and no output is expected.
+ */
+chacha_err *chacha20poly1305_process_bytes(chacha20poly1305_ctx *ctx, const uint8_t *input, size_t len,
+                                           uint8_t *output, size_t outputLen, size_t *written);
+
+chacha_err *chacha20poly1305_doFinal(chacha20poly1305_ctx *ctx, uint8_t *output, size_t outputLen, size_t *written);
+
+/**
+ * @return the update output size, -1 if the context is not in a state to process data.
+ */
+int64_t chacha20poly1305_get_update_output_size(chacha20poly1305_ctx *ctx, size_t len);
+
+/**
+ * @return the final output size, -1 if the context is not in a state to process data.
+ */
+int64_t chacha20poly1305_get_output_size(chacha20poly1305_ctx *ctx, size_t len);
+
+#endif //BC_LTS_C_CHACHA20POLY1305_H
@@ -0,0 +1,129 @@
+//
+//
+
+#include "chacha.h"
+#include "../util/util.h"
+
+#define CHACHA_ROTL256(v, n) _mm256_or_si256(_mm256_slli_epi32(v, n), _mm256_srli_epi32(v, 32 - (n)))
+
+#define CHACHA_QR256(a, b, c, d) \
+    a = _mm256_add_epi32(a, b); d = _mm256_shuffle_epi8(_mm256_xor_si256(d, a), rot16); \
+    c = _mm256_add_epi32(c, d); b = _mm256_xor_si256(b, c); b = CHACHA_ROTL256(b, 12); \
+    a = _mm256_add_epi32(a, b); d = _mm256_shuffle_epi8(_mm256_xor_si256(d, a), rot8); \
+    c = _mm256_add_epi32(c, d); b = _mm256_xor_si256(b, c); b = CHACHA_ROTL256(b, 7);
+
+static inline void transpose256(__m256i *a0, __m256i *a1, __m256i *a2, __m256i *a3) {
+    const __m256i t0 = _mm256_unpacklo_epi32(*a0, *a1);
+    const __m256i t1 = _mm256_unpacklo_epi32(*a2, *a3);
+    const __m256i t2 = _mm256_unpackhi_epi32(*a0, *a1);
+    const __m256i t3 = _mm256_unpackhi_epi32(*a2, *a3);
+    *a0 = _mm256_unpacklo_epi64(t0, t1);
+    *a1 = _mm256_unpackhi_epi64(t0, t1);
+    *a2 = _mm256_unpacklo_epi64(t2, t3);
+    *a3 = _mm256_unpackhi_epi64(t2, t3);
+}
+
+static inline void xor_block256(const __m256i lo, const __m256i hi, const uint8_t *in, uint8_t *out) {
+    _mm256_storeu_si256((__m256i *) out, _mm256_xor_si256(_mm256_loadu_si256((const __m256i *) in), lo));
+    _mm256_storeu_si256((__m256i *) (out + 32), _mm256_xor_si256(_mm256_loadu_si256((const __m256i *) (in + 32)), hi));
+}
+
+/**
+ * 8 blocks at once, block i is in lane i of each word vector.
+ */
+static inline void chacha_blocks256(const uint32_t *state, const uint8_t *in, uint8_t *out) {
+    const __m256i rot16 = _mm256_broadcastsi128_si256(_mm_load_si128((const __m128i *) _chacha_rot16));
+    const __m256i rot8 = _mm256_broadcastsi128_si256(_mm_load_si128((const __m128i *) _chacha_rot8));
+    __m256i s[16];
+    int i;
+
+    for (i = 0; i < 16; i++) {
+        s[i] = _mm256_set1_epi32((int) state[i]);
+    }
+    // lanes 0-3 in the low half, 4-7 in the high half, matching the transposition below.
+    s[CHACHA_COUNTER] = _mm256_add_epi32(s[CHACHA_COUNTER], _mm256_set_epi32(7, 6, 5, 4, 3, 2, 1, 0));
+
+    __m256i x0 = s[0], x1 = s[1], x2 = s[2], x3 = s[3];
+    __m256i x4 = s[4], x5 = s[5], x6 = s[6], x7 = s[7];
+    __m256i x8 = s[8], x9 = s[9], x10 = s[10], x11 = s[11];
+    __m256i x12 = s[12], x13 = s[13], x14 = s[14], x15 = s[15];
+
+    for (i = 0; i < 10; i++) {
+        CHACHA_QR256(x0, x4, x8, x12)
+        CHACHA_QR256(x1, x5, x9, x13)
+        CHACHA_QR256(x2, x6, x10, x14)
+        CHACHA_QR256(x3, x7, x11, x15)
+        CHACHA_QR256(x0, x5, x10, x15)
+        CHACHA_QR256(x1, x6, x11, x12)
+        CHACHA_QR256(x2, x7, x8, x13)
+        CHACHA_QR256(x3, x4, x9, x14)
+    }
+
+    x0 = _mm256_add_epi32(x0, s[0]);
+    x1 = _mm256_add_epi32(x1, s[1]);
+    x2 = _mm256_add_epi32(x2, s[2]);
+    x3 = _mm256_add_epi32(x3, s[3]);
+    x4 = _mm256_add_epi32(x4, s[4]);
+    x5 = _mm256_add_epi32(x5, s[5]);
+    x6 = _mm256_add_epi32(x6, s[6]);
+    x7 = _mm256_add_epi32(x7, s[7]);
+    x8 = _mm256_add_epi32(x8, s[8]);
+    x9 = _mm256_add_epi32(x9, s[9]);
+    x10 = _mm256_add_epi32(x10, s[10]);
+    x11 = _mm256_add_epi32(x11, s[11]);
+    x12 = _mm256_add_epi32(x12, s[12]);
+    x13 = _mm256_add_epi32(x13, s[13]);
+    x14 = _mm256_add_epi32(x14, s[14]);
+    x15 = _mm256_add_epi32(x15, s[15]);
+
+    // After this xN holds 16 bytes of block r in the low lane and of block r + 4 in the high lane.
+    transpose256(&x0, &x1, &x2, &x3);
+    transpose256(&x4, &x5, &x6, &x7);
+    transpose256(&x8, &x9, &x10, &x11);
+    transpose256(&x12, &x13, &x14, &x15);
+
+    xor_block256(_mm256_permute2x128_si256(x0, x4, 0x20), _mm256_permute2x128_si256(x8, x12, 0x20), in, out);
+    xor_block256(_mm256_permute2x128_si256(x1, x5, 0x20), _mm256_permute2x128_si256(x9, x13, 0x20), in + 64,
+                 out + 64);
+    xor_block256(_mm256_permute2x128_si256(x2, x6, 0x20), _mm256_permute2x128_si256(x10, x14, 0x20), in + 128,
+                 out + 128);
+    xor_block256(_mm256_permute2x128_si256(x3, x7, 0x20), _mm256_permute2x128_si256(x11, x15, 0x20), in + 192,
+                 out + 192);
+    xor_block256(_mm256_permute2x128_si256(x0, x4, 0x31), _mm256_permute2x128_si256(x8, x12, 0x31), in + 256,
+                 out + 256);
+    xor_block256(_mm256_permute2x128_si256(x1, x5, 0x31), _mm256_permute2x128_si256(x9, x13, 0x31), in + 320,
+                 out + 320);
+    xor_block256(_mm256_permute2x128_si256(x2, x6, 0x31), _mm256_permute2x128_si256(x10, x14, 0x31), in + 384,
+                 out + 384);
+    xor_block256(_mm256_permute2x128_si256(x3, x7, 0x31), _mm256_permute2x128_si256(x11, x15, 0x31), in + 448,
+                 out + 448);
+}
+
+void chacha20_process_blocks(uint32_t *state, const uint8_t *in, uint8_t *out, size_t blocks) {
+    while (blocks >= 8) {
+        chacha_blocks256(state, in, out);
+        state[CHACHA_COUNTER] += 8;
+        in += 8 * CHACHA_BLOCK_SIZE;
+        out += 8 * CHACHA_BLOCK_SIZE;
+        blocks -= 8;
+    }
+
+    if (blocks > 0) {
+        __m128i x[16];
+
+        while (blocks > 0) {
+            const size_t n = blocks < 4 ? blocks : 4;
+            chacha_blocks128(state, x);
+            for (size_t i = 0; i < 4 * n; i++) {
+                const __m128i d = _mm_loadu_si128((const __m128i *) (in + 16 * i));
+                _mm_storeu_si128((__m128i *) (out + 16 * i), _mm_xor_si128(d, x[i]));
+            }
+            state[CHACHA_COUNTER] += (uint32_t) n;
+            in += n * CHACHA_BLOCK_SIZE;
+            out += n * CHACHA_BLOCK_SIZE;
+            blocks -= n;
+        }
+
+        memzero(x, sizeof(x));
+    }
+}
@@ -0,0 +1,134 @@
+//
+//
+
+#include "chacha.h"
+#include "../util/util.h"
+
+#define CHACHA_QR512(a, b, c, d) \
+    a = _mm512_add_epi32(a, b); d = _mm512_rol_epi32(_mm512_xor_si512(d, a), 16); \
+    c = _mm512_add_epi32(c, d); b = _mm512_rol_epi32(_mm512_xor_si512(b, c), 12); \
+    a = _mm512_add_epi32(a, b); d = _mm512_rol_epi32(_mm512_xor_si512(d, a), 8); \
+    c = _mm512_add_epi32(c, d); b = _mm512_rol_epi32(_mm512_xor_si512(b, c), 7);
+
+static inline void transpose512(__m512i *a0, __m512i *a1, __m512i *a2, __m512i *a3) {
+    const __m512i t0 = _mm512_unpacklo_epi32(*a0, *a1);
+    const __m512i t1 = _mm512_unpacklo_epi32(*a2, *a3);
+    const __m512i t2 = _mm512_unpackhi_epi32(*a0, *a1);
+    const __m512i t3 = _mm512_unpackhi_epi32(*a2, *a3);
+    *a0 = _mm512_unpacklo_epi64(t0, t1);
+    *a1 = _mm512_unpackhi_epi64(t0, t1);
+    *a2 = _mm512_unpacklo_epi64(t2, t3);
+    *a3 = _mm512_unpackhi_epi64(t2, t3);
+}
+
+/**
+ * a, b, c and d hold words 0-3, 4-7, 8-11 and 12-15 for blocks r, r + 4, r + 8 and r + 12,
+ * one block per 128 bit lane. Regroup the lanes so each vector is one complete block and xor it in.
+ */
+static inline void xor_blocks512(const __m512i a, const __m512i b, const __m512i c, const __m512i d,
+                                 const uint8_t *in, uint8_t *out) {
+    const __m512i t0 = _mm512_shuffle_i32x4(a, b, _MM_SHUFFLE(1, 0, 1, 0));
+    const __m512i t1 = _mm512_shuffle_i32x4(a, b, _MM_SHUFFLE(3, 2, 3, 2));
+    const __m512i t2 = _mm512_shuffle_i32x4(c, d, _MM_SHUFFLE(1, 0, 1, 0));
+    const __m512i t3 = _mm512_shuffle_i32x4(c, d, _MM_SHUFFLE(3, 2, 3, 2));
+
+    const __m512i b0 = _mm512_shuffle_i32x4(t0, t2, _MM_SHUFFLE(2, 0, 2, 0));
+    const __m512i b1 = _mm512_shuffle_i32x4(t0, t2, _MM_SHUFFLE(3, 1, 3, 1));
+    const __m512i b2 = _mm512_shuffle_i32x4(t1, t3, _MM_SHUFFLE(2, 0, 2, 0));
+    const __m512i b3 = _mm512_shuffle_i32x4(t1, t3, _MM_SHUFFLE(3, 1, 3, 1));
+
+    _mm512_storeu_si512((__m512i *) out, _mm512_xor_si512(_mm512_loadu_si512((const __m512i *) in), b0));
+    _mm512_storeu_si512((__m512i *) (out + 256),
+                        _mm512_xor_si512(_mm512_loadu_si512((const __m512i *) (in + 256)), b1));
+    _mm512_storeu_si512((__m512i *) (out + 512),
+                        _mm512_xor_si512(_mm512_loadu_si512((const __m512i *) (in + 512)), b2));
+    _mm512_storeu_si512((__m512i *) (out + 768),
+                        _mm512_xor_si512(_mm512_loadu_si512((const __m512i *) (in + 768)), b3));
+}
+
+/**
+ * 16 blocks at once, block i is in lane i of each word vector.
+ */
+static inline void chacha_blocks512(const uint32_t *state, const uint8_t *in, uint8_t *out) {
+    __m512i s[16];
+    int i;
+
+    for (i = 0; i < 16; i++) {
+        s[i] = _mm512_set1_epi32((int) state[i]);
+    }
+    s[CHACHA_COUNTER] = _mm512_add_epi32(s[CHACHA_COUNTER],
+                                         _mm512_set_epi32(15, 14, 13, 12, 11, 10, 9, 8, 7, 6, 5, 4, 3, 2, 1, 0));
+
+    __m512i x0 = s[0], x1 = s[1], x2 = s[2], x3 = s[3];
+    __m512i x4 = s[4], x5 = s[5], x6 = s[6], x7 = s[7];
+    __m512i x8 = s[8], x9 = s[9], x10 = s[10], x11 = s[11];
+    __m512i x12 = s[12], x13 = s[13], x14 = s[14], x15 = s[15];
+
+    for (i = 0; i < 10; i++) {
+        CHACHA_QR512(x0, x4, x8, x12)
+        CHACHA_QR512(x1, x5, x9, x13)
+        CHACHA_QR512(x2, x6, x10, x14)
+        CHACHA_QR512(x3, x7, x11, x15)
+        CHACHA_QR512(x0, x5, x10, x15)
+        CHACHA_QR512(x1, x6, x11, x12)
+        CHACHA_QR512(x2, x7, x8, x13)
+        CHACHA_QR512(x3, x4, x9, x14)
+    }
+
+    x0 = _mm512_add_epi32(x0, s[0]);
+    x1 = _mm512_add_epi32(x1, s[1]);
+    x2 = _mm512_add_epi32(x2, s[2]);
+    x3 = _mm512_add_epi32(x3, s[3]);
+    x4 = _mm512_add_epi32(x4, s[4]);
+    x5 = _mm512_add_epi32(x5, s[5]);
+    x6 = _mm512_add_epi32(x6, s[6]);
+    x7 = _mm512_add_epi32(x7, s[7]);
+    x8 = _mm512_add_epi32(x8, s[8]);
+    x9 = _mm512_add_epi32(x9, s[9]);
+    x10 = _mm512_add_epi32(x10, s[10]);
+    x11 = _mm512_add_epi32(x11, s[11]);
+    x12 = _mm512_add_epi32(x12, s[12]);
+    x13 = _mm512_add_epi32(x13, s[13]);
+    x14 = _mm512_add_epi32(x14, s[14]);
+    x15 = _mm512_add_epi32(x15, s[15]);
+
+    // After this xN holds, in 128 bit lane L, 16 bytes of block 4 * L + r.
+    transpose512(&x0, &x1, &x2, &x3);
+    transpose512(&x4, &x5, &x6, &x7);
+    transpose512(&x8, &x9, &x10, &x11);
+    transpose512(&x12, &x13, &x14, &x15);
+
+    xor_blocks512(x0, x4, x8, x12, in, out);
+    xor_blocks512(x1, x5, x9, x13, in + 64, out + 64);
+    xor_blocks512(x2, x6, x10, x14, in + 128, out + 128);
+    xor_blocks512(x3, x7, x11, x15, in + 192, out + 192);
+}
+
+void chacha20_process_blocks(uint32_t *state, const uint8_t *in, uint8_t *out, size_t blocks) {
+    while (blocks >= 16) {
+        chacha_blocks512(state, in, out);
+        state[CHACHA_COUNTER] += 16;
+        in += 16 * CHACHA_BLOCK_SIZE;
+        out += 16 * CHACHA_BLOCK_SIZE;
+        blocks -= 16;
+    }
+
+    if (blocks > 0) {
+        __m128i x[16];
+
+        while (blocks > 0) {
+            const size_t n = blocks < 4 ? blocks : 4;
+            chacha_blocks128(state, x);
+            for (size_t i = 0; i < 4 * n; i++) {
+                const __m128i d = _mm_loadu_si128((const __m128i *) (in + 16 * i));
+                _mm_storeu_si128((__m128i *) (out + 16 * i), _mm_xor_si128(d, x[i]));
+            }
+            state[CHACHA_COUNTER] += (uint32_t) n;
+            in += n * CHACHA_BLOCK_SIZE;
+            out += n * CHACHA_BLOCK_SIZE;
+            blocks -= n;
+        }
+
+        memzero(x, sizeof(x));
+    }
+}
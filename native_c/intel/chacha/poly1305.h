@@ -0,0 +1,40 @@
+//
+//
+
+#ifndef BC_LTS_C_POLY1305_H
+#define BC_LTS_C_POLY1305_H
+
+#include <stdbool.h>
+#include <stdint.h>
+#include <stdlib.h>
+
+#define POLY1305_BLOCK_SIZE 16
+#define POLY1305_KEY_SIZE 32
+#define POLY1305_MAC_SIZE 16
+
+/**
+ * Poly1305 with 26 bit limbs, so only 32 x 32 -> 64 bit multiplies are needed.
+ */
+typedef struct {
+    uint32_t r[5];
+    uint32_t h[5];
+    uint32_t pad[4];
+    uint8_t buf[POLY1305_BLOCK_SIZE];
+    size_t bufPos;
+} poly1305_ctx;
+
+void poly1305_init(poly1305_ctx *ctx, const uint8_t *key);
+
+void poly1305_update(poly1305_ctx *ctx, const uint8_t *in, size_t len);
+
+/**
+ * Zero pad the input processed so far to a multiple of the block size.
+ */
+void poly1305_pad(poly1305_ctx *ctx);
+
+/**
+ * Write the tag and clear the context.
+ */
+void poly1305_final(poly1305_ctx *ctx, uint8_t *mac);
+
+#endif //BC_LTS_C_POLY1305_H
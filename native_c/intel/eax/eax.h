@@ -0,0 +1,133 @@
+//
+//
+
+#include <stdbool.h>
+#include <stdint.h>
+#include <immintrin.h>
+#include <stdlib.h>
+#include <stdio.h>
+
+#ifndef BC_LTS_C_EAX_H
+#define BC_LTS_C_EAX_H
+
+#define ILLEGAL_STATE 1
+#define ILLEGAL_ARGUMENT 2
+#define ILLEGAL_CIPHER_TEXT 3
+#define OUTPUT_LENGTH 4
+#define BLOCK_SIZE 16
+
+#define EAX_MAC_BLOCK_LEN 16
+
+// One block plus the tag held back during decryption.
+#define EAX_BUF_SIZE (BLOCK_SIZE + EAX_MAC_BLOCK_LEN)
+
+typedef struct {
+    const char *msg; // the message
+    int type; // relates to exception needed on jvm side
+} eax_err;
+
+
+eax_err *make_eax_error(const char *msg, int type);
+
+void eax_err_free(eax_err *err);
+
+
+/**
+ * OMAC (CMAC) state, the last block is only processed once it is known not to be the final one.
+ */
+typedef struct {
+    __m128i X;
+    uint8_t buf[BLOCK_SIZE];
+    size_t bufPos;
+} eax_omac;
+
+
+typedef struct {
+    __m128i roundKeys[15];
+    uint32_t num_rounds;
+    bool encryption;
+    size_t macSize;
+
+    uint8_t *initAD;
+    size_t initADLen;
+
+    // OMAC sub keys
+    __m128i K1;
+    __m128i K2;
+
+    // OMAC^0(N), also the initial counter
+    __m128i nonceMac;
+    __m128i associatedTextMac;
+
+    eax_omac aadMac;
+    eax_omac cipherMac;
+    bool cipherInitialized;
+
+    // counter, most significant half first
+    uint64_t initialCtr[2];
+    uint64_t ctr[2];
+
+    uint8_t bufBlock[EAX_BUF_SIZE];
+    size_t bufPos;
+
+    uint8_t macBlock[EAX_MAC_BLOCK_LEN];
+} eax_ctx;
+
+
+eax_ctx *eax_create_ctx();
+
+void eax_free(eax_ctx *);
+
+void eax_reset(eax_ctx *, bool keepMac);
+
+/**
+ *
+ * @param key may be NULL in which case the existing key schedule is reused.
+ * @return NULL if no error, other ptr to struct CALLER NEEDS TO FREE
+ */
+eax_err *eax_init(eax_ctx *ctx, bool encryption, uint8_t *key, size_t keyLen, uint8_t *nonce, size_t nonceLen,
+                  uint8_t *initialText, size_t initialTextLen, uint32_t macSizeBytes);
+
+/**
+ *
+ * @return NULL if no error, else ptr to struct CALLER NEEDS TO FREE
+ */
+eax_err *eax_process_aad_byte(eax_ctx *ctx, uint8_t byte);
+
+/**
+ *
+ * @return NULL if no error, else ptr to struct CALLER NEEDS TO FREE
+ */
+eax_err *eax_process_aad_bytes(eax_ctx *ctx, uint8_t *aad, size_t len);
+
+/**
+ *
+ * @return NULL if no error, else ptr to struct CALLER NEEDS TO FREE
+ */
+eax_err *eax_process_byte(eax_ctx *ctx, uint8_t byte, uint8_t *output, size_t outputLen, size_t *written);
+
+/**
+ *
+ * @return NULL if no error, else ptr to struct CALLER NEEDS TO FREE
+ */
+eax_err *eax_process_bytes(eax_ctx *ctx, uint8_t *input, size_t len, uint8_t *output, size_t outputLen,
+                           size_t *written);
+
+/**
+ *
+ * @return NULL if no error, else ptr to struct CALLER NEEDS TO FREE
+ */
+eax_err *eax_doFinal(eax_ctx *ctx, uint8_t *output, size_t outLen, size_t *written);
+
+/**
+ * Call with NULL destination to get len.
+ * @param destination destination to copy mac
+ * @return the length
+ */
+size_t eax_getMac(eax_ctx *ctx, uint8_t *destination);
+
+size_t eax_get_output_size(eax_ctx *ctx, size_t len);
+
+size_t eax_get_update_output_size(eax_ctx *ctx, size_t len);
+
+#endif //BC_LTS_C_EAX_H
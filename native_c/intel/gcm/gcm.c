@@ -219,38 +219,64 @@ gcm_err *gcm_init(
     ctx->bufBlockLen = encryption ? FOUR_BLOCKS : (FOUR_BLOCKS + ctx->macBlockLen);
 #endif
 
-    memzero(ctx->roundKeys, 15 * sizeof(__m128i));
-    switch (keyLen) {
-        case 16:
-            ctx->num_rounds = 10;
-            init_128(ctx->roundKeys, key, true);
-            break;
-
-        case 24:
-            ctx->num_rounds = 12;
-            init_192(ctx->roundKeys, key, true);
-            break;
-
-        case 32:
-            ctx->num_rounds = 14;
-            init_256(ctx->roundKeys, key, true);
-            break;
-
-        default:
-            return make_gcm_error("invalid key len", ILLEGAL_ARGUMENT);
-    }
-
-
     ctx->S_at = _mm_setzero_si128();
     ctx->S_atPre = _mm_setzero_si128();
 
     ctx->X = _mm_setzero_si128();
     ctx->Y = _mm_setzero_si128();
     ctx->T = _mm_setzero_si128();
-    ctx->H = _mm_setzero_si128();
 
     __m128i tmp1, tmp2;
 
+    if (keyLen != 0) {
+
+        //
+        // This mode supports nonce only re-initialisation, the round keys, H and the
+        // hash key powers only depend on the key so are only derived when a key is supplied,
+        // jni layer must check for previous initialisation.
+        //
+
+        assert(key != NULL);
+
+        memzero(ctx->roundKeys, 15 * sizeof(__m128i));
+        switch (keyLen) {
+            case 16:
+                ctx->num_rounds = 10;
+                init_128(ctx->roundKeys, key, true);
+                break;
+
+            case 24:
+                ctx->num_rounds = 12;
+                init_192(ctx->roundKeys, key, true);
+                break;
+
+            case 32:
+                ctx->num_rounds = 14;
+                init_256(ctx->roundKeys, key, true);
+                break;
+
+            default:
+                return make_gcm_error("invalid key len", ILLEGAL_ARGUMENT);
+        }
+
+        // H = E(K, 0^128)
+        tmp1 = _mm_xor_si128(ctx->X, ctx->roundKeys[0]);
+        for (int j = 1; j < ctx->num_rounds; j++) {
+            tmp1 = _mm_aesenc_si128(tmp1, ctx->roundKeys[j]);
+        }
+        ctx->H = _mm_aesenclast_si128(tmp1, ctx->roundKeys[ctx->num_rounds]);
+        ctx->H = _mm_shuffle_epi8(ctx->H, *BSWAP_MASK);
+
+        // Expand hash keys, key number varies with variant see gcm.h
+        ctx->hashKeys[HASHKEY_0] = ctx->H;
+        for (int t = HASHKEY_1; t >= 0; t--) {
+            gfmul(ctx->hashKeys[t + 1], ctx->H, &tmp1);
+            ctx->hashKeys[t] = tmp1;
+        }
+    } else if (ctx->num_rounds == 0) {
+        return make_gcm_error("cannot replace nonce unless key was previously supplied", ILLEGAL_STATE);
+    }
+
     if (nonceLen == 12) {
         //
         // Copy supplied nonce into 16 byte buffer to avoid potential for overrun
@@ -265,29 +291,14 @@ gcm_err *gcm_init(
 
         ctx->Y = _mm_insert_epi32(ctx->Y, 0x1000000, 3);
 
-        tmp1 = _mm_xor_si128(ctx->X, ctx->roundKeys[0]);
+        // E(K,Y0)
         tmp2 = _mm_xor_si128(ctx->Y, ctx->roundKeys[0]);
-        for (int j = 1; j < ctx->num_rounds - 1; j += 2) {
-            tmp1 = _mm_aesenc_si128(tmp1, ctx->roundKeys[j]);
+        for (int j = 1; j < ctx->num_rounds; j++) {
             tmp2 = _mm_aesenc_si128(tmp2, ctx->roundKeys[j]);
-            tmp1 = _mm_aesenc_si128(tmp1, ctx->roundKeys[j + 1]);
-            tmp2 = _mm_aesenc_si128(tmp2, ctx->roundKeys[j + 1]);
         }
-
-        tmp1 = _mm_aesenc_si128(tmp1, ctx->roundKeys[ctx->num_rounds - 1]);
-        tmp2 = _mm_aesenc_si128(tmp2, ctx->roundKeys[ctx->num_rounds - 1]);
-
-        ctx->H = _mm_aesenclast_si128(tmp1, ctx->roundKeys[ctx->num_rounds]);
         ctx->T = _mm_aesenclast_si128(tmp2, ctx->roundKeys[ctx->num_rounds]);
-        ctx->H = _mm_shuffle_epi8(ctx->H, *BSWAP_MASK);
     } else {
-        tmp1 = _mm_xor_si128(ctx->X, ctx->roundKeys[0]);
         int j;
-        for (j = 1; j < ctx->num_rounds; j++) {
-            tmp1 = _mm_aesenc_si128(tmp1, ctx->roundKeys[j]);
-        }
-        ctx->H = _mm_aesenclast_si128(tmp1, ctx->roundKeys[ctx->num_rounds]);
-        ctx->H = _mm_shuffle_epi8(ctx->H, *BSWAP_MASK);
         ctx->Y = _mm_xor_si128(ctx->Y, ctx->Y); // ?
         int i;
         for (i = 0; i < nonceLen / 16; i++) {
@@ -345,15 +356,6 @@ gcm_err *gcm_init(
 
     ctx->blocksRemaining = BLOCKS_REMAINING_INIT;
 
-
-
-    // Expand hash keys, key number varies with variant see gcm.h
-    ctx->hashKeys[HASHKEY_0] = ctx->H;
-    for (int t = HASHKEY_1; t >= 0; t--) {
-        gfmul(ctx->hashKeys[t + 1], ctx->H, &tmp1);
-        ctx->hashKeys[t] = tmp1;
-    }
-
     gcm_variant_init(ctx);
 
     return NULL;// All good
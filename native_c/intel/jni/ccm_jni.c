@@ -85,7 +85,7 @@ JNIEXPORT void JNICALL Java_org_bouncycastle_crypto_engines_AESNativeCCM_initNat
         goto exit;
     }
 
-    if (!aes_keysize_is_valid_and_not_null(env, &key)) {
+    if (!aes_keysize_is_valid_or_null(env, &key)) {
         goto exit;
     }
 
@@ -93,6 +93,14 @@ JNIEXPORT void JNICALL Java_org_bouncycastle_crypto_engines_AESNativeCCM_initNat
         goto exit;
     }
 
+    // A null key is a nonce only re-initialisation, the existing key schedule is reused.
+    if (key.bytearray == NULL) {
+        if (ctx->num_rounds == 0) {
+            throw_java_illegal_argument(env, "cannot replace iv unless key was previously supplied");
+            goto exit;
+        }
+    }
+
     if (iv.size < 7 || iv.size > 13) {
         throw_java_illegal_argument(env, "nonce must have length from 7 to 13 octets");
         goto exit;
@@ -348,4 +356,115 @@ JNIEXPORT int JNICALL Java_org_bouncycastle_crypto_engines_AESNativeCCM_processP
 
     handle_ccm_result(env, err);
     return (jint) written;
-}
\ No newline at end of file
+}
+/*
+ * Class:     org_bouncycastle_crypto_engines_AESNativeCCM
+ * Method:    processPacketDirect
+ * Signature: (J[BII[BIILjava/nio/ByteBuffer;II)I
+ */
+JNIEXPORT jint JNICALL Java_org_bouncycastle_crypto_engines_AESNativeCCM_processPacketDirect
+        (JNIEnv *env, jclass cl, jlong ref, jbyteArray in, jint inOff, jint inLen, jbyteArray aad_,
+         jint aad_off, jint aad_len, jobject out, jint outOff, jint outLen) {
+
+    ccm_err *err = NULL;
+    size_t written = 0;
+    ccm_ctx *ctx = (ccm_ctx *) ((void *) ref);
+
+    critical_bytearray_ctx input, aad;
+    direct_buffer_ctx output;
+    uint8_t *p_out;
+
+    init_critical_ctx(&input, env, in);
+    init_critical_ctx(&aad, env, aad_);
+
+
+    if (in == NULL) {
+        throw_java_illegal_argument(env, "input was null");
+        goto exit;
+    }
+
+    if (inOff < 0) {
+        throw_java_illegal_argument(env, "input offset was negative");
+        goto exit;
+    }
+
+    if (inLen < 0) {
+        throw_java_illegal_argument(env, "input len was negative");
+        goto exit;
+    }
+
+    if (!check_range(input.size, (size_t) inOff, (size_t) inLen)) {
+        throw_bc_data_length_exception(env, "input buffer too short");
+        goto exit;
+    }
+
+    if (aad_off < 0) {
+        throw_java_illegal_argument(env, "aad offset was negative");
+        goto exit;
+    }
+
+    if (aad_len < 0) {
+        throw_java_illegal_argument(env, "aad length was negative");
+        goto exit;
+    }
+
+    if (aad.array != NULL) {
+
+        if (!check_range(aad.size, (size_t) aad_off, (size_t) aad_len)) {
+            throw_java_illegal_argument(env, "aad length past end of array");
+            goto exit;
+        }
+
+    } else {
+        if (aad_len != 0) {
+            throw_java_illegal_argument(env, "aad null but length not zero");
+            goto exit;
+        }
+
+        if (aad_off != 0) {
+            throw_java_illegal_argument(env, "aad null but offset not zero");
+            goto exit;
+        }
+    }
+
+    if (!direct_output_init(env, &output, out, outOff, outLen, &p_out)) {
+        goto exit;
+    }
+
+    //
+    // The output size is exact in CCM.
+    //
+    if (ccm_get_output_size(ctx, (size_t) inLen) > (size_t) outLen) {
+        throw_bc_output_length_exception(env, "output buffer too short");
+        goto exit;
+    }
+
+
+    if (!load_critical_ctx(&input)) {
+        throw_java_invalid_state(env, "unable to obtain ptr to valid input array");
+        goto exit;
+    }
+
+    if (!load_critical_ctx(&aad)) {
+        release_critical_ctx(&input);
+        throw_java_invalid_state(env, "unable to obtain ptr to valid aad array");
+        goto exit;
+    }
+
+    uint8_t *p_in = input.critical + inOff;
+
+    err = ccm_process_packet(
+            ctx,
+            p_in,
+            (size_t) inLen,
+            p_out,
+            &written,
+            aad.critical == NULL ? NULL : aad.critical + aad_off, (size_t) aad_len);
+
+    exit:
+    release_critical_ctx(&aad);
+    release_critical_ctx(&input);
+
+    handle_ccm_result(env, err);
+    return (jint) written;
+}
@@ -5,6 +5,7 @@
 #include "../../jniutil/bytearrays.h"
 #include "../../jniutil/jni_asserts.h"
 #include <stdlib.h>
+#include <assert.h>
 
 void handle_ccm_pc_result(JNIEnv *env, packet_err *err) {
     if (err == NULL) {
@@ -30,13 +31,7 @@ void handle_ccm_pc_result(JNIEnv *env, packet_err *err) {
     packet_err_free(err);
 }
 
-/*
- * Class:     org_bouncycastle_crypto_engines_AESNativeCCMPacketCipher
- * Method:    processPacket
- * Signature: (Z[BI[BI[BII[BII[BII)I
- */
-JNIEXPORT jint JNICALL Java_org_bouncycastle_crypto_engines_AESNativeCCMPacketCipher_processPacket
-        (JNIEnv *env, jclass,
+static jint ccm_pc_process_one(JNIEnv *env, ccm_pc_key *keyed,
          jboolean encryption,
          jbyteArray key_,
          jbyteArray nonce_,
@@ -64,15 +59,17 @@ JNIEXPORT jint JNICALL Java_org_bouncycastle_crypto_engines_AESNativeCCMPacketCi
 
 
     //
-    // Load and check key
+    // Load and check key, unless the key was set up when the keyed context was made.
     //
-    if (!load_bytearray_ctx(&key, env, key_)) {
-        throw_java_invalid_state(env, "unable to obtain ptr to valid key array");
-        goto exit;
-    }
-
-    if (!aes_keysize_is_valid_and_not_null(env, &key)) {
-        goto exit;
+    if (keyed == NULL) {
+        if (!load_bytearray_ctx(&key, env, key_)) {
+            throw_java_invalid_state(env, "unable to obtain ptr to valid key array");
+            goto exit;
+        }
+
+        if (!aes_keysize_is_valid_and_not_null(env, &key)) {
+            goto exit;
+        }
     }
 
 
@@ -168,19 +165,34 @@ JNIEXPORT jint JNICALL Java_org_bouncycastle_crypto_engines_AESNativeCCMPacketCi
     uint8_t *p_in = input.critical + inOff;
     uint8_t *p_out = output.critical + outOff;
     size_t outputLen = 0;
-    err = ccm_pc_process_packet(
-            encryption == JNI_TRUE,
-            key.bytearray,
-            (size_t) key.size,
-            iv.bytearray,
-            (size_t) iv.size,
-            (size_t) macSize,
-            ad.bytearray,
-            (size_t) ad.size,
-            p_in,
-            (size_t) inLen,
-            p_out,
-            &outputLen);
+    if (keyed != NULL) {
+        err = ccm_pc_process_packet_with_key(
+                keyed,
+                encryption == JNI_TRUE,
+                iv.bytearray,
+                (size_t) iv.size,
+                (size_t) macSize,
+                ad.bytearray,
+                (size_t) ad.size,
+                p_in,
+                (size_t) inLen,
+                p_out,
+                &outputLen);
+    } else {
+        err = ccm_pc_process_packet(
+                encryption == JNI_TRUE,
+                key.bytearray,
+                (size_t) key.size,
+                iv.bytearray,
+                (size_t) iv.size,
+                (size_t) macSize,
+                ad.bytearray,
+                (size_t) ad.size,
+                p_in,
+                (size_t) inLen,
+                p_out,
+                &outputLen);
+    }
     exit:
     release_bytearray_ctx(&key);
     release_bytearray_ctx(&iv);
@@ -192,6 +204,73 @@ JNIEXPORT jint JNICALL Java_org_bouncycastle_crypto_engines_AESNativeCCMPacketCi
 }
 
 
+/*
+ * Class:     org_bouncycastle_crypto_engines_AESNativeCCMPacketCipher
+ * Method:    processPacket
+ * Signature: (Z[B[B[BI[BII[BII)I
+ */
+JNIEXPORT jint JNICALL Java_org_bouncycastle_crypto_engines_AESNativeCCMPacketCipher_processPacket
+        (JNIEnv *env, jclass, jboolean encryption, jbyteArray key_, jbyteArray nonce_, jbyteArray aad_, jint macSize,
+         jbyteArray in, jint inOff, jint inLen, jbyteArray out, jint outOff, jint outLen) {
+    return ccm_pc_process_one(env, NULL, encryption, key_, nonce_, aad_, macSize, in, inOff, inLen, out, outOff,
+                              outLen);
+}
+
+/*
+ * Class:     org_bouncycastle_crypto_engines_AESNativeCCMPacketCipher
+ * Method:    makeKeyed
+ * Signature: ([B)J
+ */
+JNIEXPORT jlong JNICALL Java_org_bouncycastle_crypto_engines_AESNativeCCMPacketCipher_makeKeyed
+        (JNIEnv *env, jclass, jbyteArray key_) {
+    java_bytearray_ctx key;
+    jlong ref = 0;
+
+    init_bytearray_ctx(&key);
+
+    if (!load_bytearray_ctx(&key, env, key_)) {
+        throw_java_invalid_state(env, "unable to obtain ptr to valid key array");
+        goto exit;
+    }
+
+    if (!aes_keysize_is_valid_and_not_null(env, &key)) {
+        goto exit;
+    }
+
+    ccm_pc_key *k = calloc(1, sizeof(ccm_pc_key));
+    assert(k != NULL);
+    ccm_pc_init_key(k, key.bytearray, (size_t) key.size);
+    ref = (jlong) k;
+
+    exit:
+    release_bytearray_ctx(&key);
+    return ref;
+}
+
+/*
+ * Class:     org_bouncycastle_crypto_engines_AESNativeCCMPacketCipher
+ * Method:    disposeKeyed
+ * Signature: (J)V
+ */
+JNIEXPORT void JNICALL Java_org_bouncycastle_crypto_engines_AESNativeCCMPacketCipher_disposeKeyed
+        (JNIEnv *env, jclass, jlong ref) {
+    ccm_pc_key *k = (ccm_pc_key *) ref;
+    memzero(k, sizeof(ccm_pc_key));
+    free(k);
+}
+
+/*
+ * Class:     org_bouncycastle_crypto_engines_AESNativeCCMPacketCipher
+ * Method:    processPacketKeyed
+ * Signature: (JZ[B[BI[BII[BII)I
+ */
+JNIEXPORT jint JNICALL Java_org_bouncycastle_crypto_engines_AESNativeCCMPacketCipher_processPacketKeyed
+        (JNIEnv *env, jclass, jlong ref, jboolean encryption, jbyteArray nonce_, jbyteArray aad_, jint macSize,
+         jbyteArray in, jint inOff, jint inLen, jbyteArray out, jint outOff, jint outLen) {
+    return ccm_pc_process_one(env, (ccm_pc_key *) ref, encryption, NULL, nonce_, aad_, macSize, in, inOff, inLen, out, outOff,
+                              outLen);
+}
+
 /*
  * Class:     org_bouncycastle_crypto_engines_AESNativeCCMPacketCipher
  * Method:    getOutputSize
@@ -0,0 +1,321 @@
+#include "org_bouncycastle_crypto_engines_ChaCha20Poly1305Native.h"
+#include "../chacha/chacha20poly1305.h"
+#include "../../jniutil/exceptions.h"
+#include "../../jniutil/bytearrays.h"
+#include "../../jniutil/jni_asserts.h"
+#include "../../jniutil/bytearraycritical.h"
+
+
+void handle_chacha_result(JNIEnv *env, chacha_err *err) {
+    if (err == NULL) {
+        return;
+    }
+    switch (err->type) {
+        case ILLEGAL_STATE:
+            throw_java_invalid_state(env, err->msg);
+            break;
+        case ILLEGAL_ARGUMENT:
+            throw_java_illegal_argument(env, err->msg);
+            break;
+        case ILLEGAL_CIPHER_TEXT:
+            throw_bc_invalid_ciphertext_exception(env, err->msg);
+            break;
+        case OUTPUT_LENGTH:
+            throw_bc_output_length_exception(env, err->msg);
+            break;
+        default:
+            throw_java_invalid_state(env, "unknown error from ChaCha20Poly1305");
+            break;
+    }
+
+    chacha_err_free(err);
+}
+
+/*
+ * Class:     org_bouncycastle_crypto_engines_ChaCha20Poly1305Native
+ * Method:    makeInstance
+ * Signature: ()J
+ */
+JNIEXPORT jlong JNICALL Java_org_bouncycastle_crypto_engines_ChaCha20Poly1305Native_makeInstance
+        (JNIEnv *env, jclass cl) {
+    return (jlong) chacha20poly1305_create_ctx();
+}
+
+/*
+ * Class:     org_bouncycastle_crypto_engines_ChaCha20Poly1305Native
+ * Method:    dispose
+ * Signature: (J)V
+ */
+JNIEXPORT void JNICALL Java_org_bouncycastle_crypto_engines_ChaCha20Poly1305Native_dispose
+        (JNIEnv *env, jclass cl, jlong ref) {
+    chacha20poly1305_free_ctx((chacha20poly1305_ctx *) ref);
+}
+
+/*
+ * Class:     org_bouncycastle_crypto_engines_ChaCha20Poly1305Native
+ * Method:    initNative
+ * Signature: (JZ[B[B[B)V
+ */
+JNIEXPORT void JNICALL Java_org_bouncycastle_crypto_engines_ChaCha20Poly1305Native_initNative
+        (JNIEnv *env, jclass cl, jlong ref, jboolean encryption, jbyteArray key_, jbyteArray nonce_, jbyteArray ad_) {
+
+    chacha_err *err = NULL;
+    chacha20poly1305_ctx *ctx = (chacha20poly1305_ctx *) ref;
+    java_bytearray_ctx key, nonce, ad;
+
+    init_bytearray_ctx(&key);
+    init_bytearray_ctx(&nonce);
+    init_bytearray_ctx(&ad);
+
+    if (!load_bytearray_ctx(&key, env, key_)) {
+        throw_java_invalid_state(env, "unable to obtain ptr to valid key array");
+        goto exit;
+    }
+
+    if (!load_bytearray_ctx(&nonce, env, nonce_)) {
+        throw_java_invalid_state(env, "unable to obtain ptr to valid nonce array");
+        goto exit;
+    }
+
+    if (!load_bytearray_ctx(&ad, env, ad_)) {
+        throw_java_invalid_state(env, "unable to obtain ptr to valid ad array");
+        goto exit;
+    }
+
+    if (!bytearray_not_null(&key, "key was null", env)) {
+        goto exit;
+    }
+
+    if (key.size != CHACHA_KEY_SIZE) {
+        throw_java_illegal_argument(env, "Key must be 256 bits");
+        goto exit;
+    }
+
+    if (!bytearray_not_null(&nonce, "nonce was null", env)) {
+        goto exit;
+    }
+
+    if (nonce.size != CHACHA_NONCE_SIZE) {
+        throw_java_illegal_argument(env, "Nonce must be 96 bits");
+        goto exit;
+    }
+
+    err = chacha20poly1305_init(ctx, encryption == JNI_TRUE, key.bytearray, nonce.bytearray, ad.bytearray, ad.size);
+
+    exit:
+    release_bytearray_ctx(&key);
+    release_bytearray_ctx(&nonce);
+    release_bytearray_ctx(&ad);
+
+    handle_chacha_result(env, err);
+}
+
+/*
+ * Class:     org_bouncycastle_crypto_engines_ChaCha20Poly1305Native
+ * Method:    reset
+ * Signature: (J)V
+ */
+JNIEXPORT void JNICALL Java_org_bouncycastle_crypto_engines_ChaCha20Poly1305Native_reset
+        (JNIEnv *env, jclass cl, jlong ref) {
+    chacha20poly1305_reset((chacha20poly1305_ctx *) ref);
+}
+
+/*
+ * Class:     org_bouncycastle_crypto_engines_ChaCha20Poly1305Native
+ * Method:    processAADBytes
+ * Signature: (J[BII)V
+ */
+JNIEXPORT void JNICALL Java_org_bouncycastle_crypto_engines_ChaCha20Poly1305Native_processAADBytes
+        (JNIEnv *env, jclass cl, jlong ref, jbyteArray aad_, jint offset, jint len) {
+
+    chacha_err *err = NULL;
+    chacha20poly1305_ctx *ctx = (chacha20poly1305_ctx *) ref;
+    java_bytearray_ctx aad;
+    init_bytearray_ctx(&aad);
+
+    if (!load_bytearray_ctx(&aad, env, aad_)) {
+        throw_java_invalid_state(env, "unable to obtain ptr to valid aad array");
+        goto exit;
+    }
+
+    if (!bytearray_not_null(&aad, "aad was null", env)) {
+        goto exit;
+    }
+
+    if (!bytearray_offset_and_len_are_in_range(&aad, offset, len, env)) {
+        goto exit;
+    }
+
+    err = chacha20poly1305_process_aad_bytes(ctx, aad.bytearray + offset, (size_t) len);
+
+    exit:
+    release_bytearray_ctx(&aad);
+
+    handle_chacha_result(env, err);
+}
+
+/*
+ * Class:     org_bouncycastle_crypto_engines_ChaCha20Poly1305Native
+ * Method:    processBytes
+ * Signature: (J[BII[BI)I
+ */
+JNIEXPORT jint JNICALL Java_org_bouncycastle_crypto_engines_ChaCha20Poly1305Native_processBytes
+        (JNIEnv *env, jclass cl, jlong ref, jbyteArray in, jint inOff, jint len, jbyteArray out, jint outOff) {
+
+    chacha_err *err = NULL;
+    chacha20poly1305_ctx *ctx = (chacha20poly1305_ctx *) ref;
+    size_t written = 0;
+
+    critical_bytearray_ctx input, output;
+    init_critical_ctx(&output, env, out);
+    init_critical_ctx(&input, env, in);
+
+    if (!critical_not_null(&input, "input was null", env)) {
+        goto exit;
+    }
+
+    if (outOff < 0) {
+        throw_java_illegal_argument(env, "output offset is negative");
+        goto exit;
+    }
+
+    if (output.array != NULL) {
+        if (!critical_offset_is_in_range(&output, outOff, env)) {
+            goto exit;
+        }
+    }
+
+    if (!critical_offset_and_len_are_in_range(&input, inOff, len, env)) {
+        goto exit;
+    }
+
+    if (!load_critical_ctx(&output)) {
+        throw_java_invalid_state(env, "unable to obtain ptr to valid output array");
+        goto exit;
+    }
+
+    if (!load_critical_ctx(&input)) {
+        release_critical_ctx(&output);
+        throw_java_invalid_state(env, "unable to obtain ptr to valid input array");
+        goto exit;
+    }
+
+    // NULL is a valid destination if the caller is not expecting any output,
+    // an error is returned if output is generated.
+
+    uint8_t *dest = output.critical == NULL ? NULL : output.critical + outOff;
+    size_t outLen = output.array == NULL ? 0 : output.size - (size_t) outOff;
+
+    err = chacha20poly1305_process_bytes(ctx, input.critical + inOff, (size_t) len, dest, outLen, &written);
+
+    exit:
+    release_critical_ctx(&input);
+    release_critical_ctx(&output);
+
+    handle_chacha_result(env, err);
+
+    return (jint) written;
+}
+
+/*
+ * Class:     org_bouncycastle_crypto_engines_ChaCha20Poly1305Native
+ * Method:    doFinal
+ * Signature: (J[BI)I
+ */
+JNIEXPORT jint JNICALL Java_org_bouncycastle_crypto_engines_ChaCha20Poly1305Native_doFinal
+        (JNIEnv *env, jclass cl, jlong ref, jbyteArray out, jint offset) {
+
+    chacha_err *err = NULL;
+    chacha20poly1305_ctx *ctx = (chacha20poly1305_ctx *) ref;
+    size_t written = 0;
+    critical_bytearray_ctx output;
+
+    init_critical_ctx(&output, env, out);
+
+    if (!critical_not_null(&output, "output was null", env)) {
+        goto exit;
+    }
+
+    if (!critical_offset_is_in_range(&output, offset, env)) {
+        goto exit;
+    }
+
+    if (!load_critical_ctx(&output)) {
+        throw_java_invalid_state(env, "unable to obtain ptr to valid output array");
+        goto exit;
+    }
+
+    err = chacha20poly1305_doFinal(ctx, output.critical + offset, output.size - (size_t) offset, &written);
+
+    exit:
+    release_critical_ctx(&output);
+
+    handle_chacha_result(env, err);
+
+    return (jint) written;
+}
+
+/*
+ * Class:     org_bouncycastle_crypto_engines_ChaCha20Poly1305Native
+ * Method:    getMac
+ * Signature: (J)[B
+ */
+JNIEXPORT jbyteArray JNICALL Java_org_bouncycastle_crypto_engines_ChaCha20Poly1305Native_getMac
+        (JNIEnv *env, jclass cl, jlong ref) {
+
+    chacha20poly1305_ctx *ctx = (chacha20poly1305_ctx *) ref;
+
+    jbyteArray out = (*env)->NewByteArray(env, CHACHA_MAC_SIZE);
+    if (out == NULL) {
+        throw_java_invalid_state(env, "unable to create output array");
+        return NULL;
+    }
+
+    (*env)->SetByteArrayRegion(env, out, 0, CHACHA_MAC_SIZE, (const jbyte *) ctx->mac);
+
+    return out;
+}
+
+/*
+ * Class:     org_bouncycastle_crypto_engines_ChaCha20Poly1305Native
+ * Method:    getUpdateOutputSize
+ * Signature: (JI)I
+ */
+JNIEXPORT jint JNICALL Java_org_bouncycastle_crypto_engines_ChaCha20Poly1305Native_getUpdateOutputSize
+        (JNIEnv *env, jclass cl, jlong ref, jint len) {
+
+    if (len < 0) {
+        throw_java_illegal_argument(env, "len is negative");
+        return 0;
+    }
+
+    int64_t size = chacha20poly1305_get_update_output_size((chacha20poly1305_ctx *) ref, (size_t) len);
+    if (size < 0) {
+        throw_java_invalid_state(env, "ChaCha20Poly1305 not in a state to process data");
+        return 0;
+    }
+
+    return (jint) size;
+}
+
+/*
+ * Class:     org_bouncycastle_crypto_engines_ChaCha20Poly1305Native
+ * Method:    getOutputSize
+ * Signature: (JI)I
+ */
+JNIEXPORT jint JNICALL Java_org_bouncycastle_crypto_engines_ChaCha20Poly1305Native_getOutputSize
+        (JNIEnv *env, jclass cl, jlong ref, jint len) {
+
+    if (len < 0) {
+        throw_java_illegal_argument(env, "len is negative");
+        return 0;
+    }
+
+    int64_t size = chacha20poly1305_get_output_size((chacha20poly1305_ctx *) ref, (size_t) len);
+    if (size < 0) {
+        throw_java_invalid_state(env, "ChaCha20Poly1305 not in a state to process data");
+        return 0;
+    }
+
+    return (jint) size;
+}
@@ -214,3 +214,31 @@ JNIEXPORT void JNICALL Java_org_bouncycastle_crypto_engines_AESNativeCTR_dispose
     ctr_ctx *ctx = (ctr_ctx *) ((void *) ref);
     ctr_free_ctx(ctx);
 }
+
+/*
+ * Class:     org_bouncycastle_crypto_engines_AESNativeCTR
+ * Method:    processBytesDirect
+ * Signature: (JLjava/nio/ByteBuffer;IILjava/nio/ByteBuffer;I)I
+ */
+JNIEXPORT jint JNICALL Java_org_bouncycastle_crypto_engines_AESNativeCTR_processBytesDirect
+        (JNIEnv *env, jclass cl, jlong ref, jobject in, jint inOff, jint len, jobject out, jint outOff) {
+
+    direct_buffer_ctx input;
+    direct_buffer_ctx output;
+
+    uint8_t *inStart;
+    uint8_t *outStart;
+
+    size_t written = 0;
+
+    if (!direct_processing_init(env, &input, &output, in, inOff, len, out, outOff, len, &inStart, &outStart)) {
+        return 0;
+    }
+
+    ctr_ctx *ctx = (ctr_ctx *) ((void *) ref);
+    if (!ctr_process_bytes(ctx, inStart, (size_t) len, outStart, &written)) {
+        throw_java_invalid_state(env, CTR_ERROR_MSG);
+    }
+
+    return (jint) written;
+}
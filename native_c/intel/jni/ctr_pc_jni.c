@@ -30,18 +30,23 @@ void handle_ctr_pc_result(JNIEnv *env, packet_err *err) {
     packet_err_free(err);
 }
 
-/*
- * Class:     org_bouncycastle_crypto_engines_AESNativeCTRPacketCipher
- * Method:    processPacket
- * Signature: (Z[BI[BI[BII[BII[BII)I
+/**
+ * The key schedule of the last packet in a batch, reused while the packets that follow carry the same key.
  */
-JNIEXPORT jint JNICALL Java_org_bouncycastle_crypto_engines_AESNativeCTRPacketCipher_processPacket
-        (JNIEnv *env, jclass cl,
-         jboolean encryption,
-         jbyteArray key_,
-         jbyteArray nonce_,
-         jbyteArray in, jint inOff, jint inLen,
-         jbyteArray out, jint outOff, jint outLen) {
+typedef struct {
+    __m128i roundKeys[15];
+    int num_rounds;
+    uint8_t key[32];
+    size_t keyLen; // 0 when empty
+} ctr_pc_key_cache;
+
+static jint ctr_pc_process_one(JNIEnv *env,
+                               ctr_pc_key_cache *cache,
+                               jboolean encryption,
+                               jbyteArray key_,
+                               jbyteArray nonce_,
+                               jbyteArray in, jint inOff, jint inLen,
+                               jbyteArray out, jint outOff, jint outLen) {
 
     java_bytearray_ctx key, iv, ad;
     critical_bytearray_ctx input, output;
@@ -144,16 +149,33 @@ JNIEXPORT jint JNICALL Java_org_bouncycastle_crypto_engines_AESNativeCTRPacketCi
     uint8_t *p_in = input.critical + inOff;
     uint8_t *p_out = output.critical + outOff;
     size_t outputLen = 0;
-    err = ctr_pc_process_packet(
-            encryption == JNI_TRUE,
-            key.bytearray,
-            (size_t) key.size,
-            iv.bytearray,
-            (size_t) iv.size,
-            p_in,
-            (size_t) inLen,
-            p_out,
-            &outputLen);
+    if (cache == NULL) {
+        err = ctr_pc_process_packet(
+                encryption == JNI_TRUE,
+                key.bytearray,
+                (size_t) key.size,
+                iv.bytearray,
+                (size_t) iv.size,
+                p_in,
+                (size_t) inLen,
+                p_out,
+                &outputLen);
+    } else {
+        if (cache->keyLen != key.size || !tag_verification(cache->key, key.bytearray, key.size)) {
+            cache->num_rounds = generate_key(true, key.bytearray, cache->roundKeys, (size_t) key.size);
+            memcpy(cache->key, key.bytearray, key.size);
+            cache->keyLen = key.size;
+        }
+        err = ctr_pc_process_packet_with_key(
+                cache->roundKeys,
+                cache->num_rounds,
+                iv.bytearray,
+                (size_t) iv.size,
+                p_in,
+                (size_t) inLen,
+                p_out,
+                &outputLen);
+    }
     exit:
     release_bytearray_ctx(&key);
     release_bytearray_ctx(&iv);
@@ -165,6 +187,83 @@ JNIEXPORT jint JNICALL Java_org_bouncycastle_crypto_engines_AESNativeCTRPacketCi
 }
 
 
+/*
+ * Class:     org_bouncycastle_crypto_engines_AESNativeCTRPacketCipher
+ * Method:    processPacket
+ * Signature: (Z[BI[BI[BII[BII[BII)I
+ */
+JNIEXPORT jint JNICALL Java_org_bouncycastle_crypto_engines_AESNativeCTRPacketCipher_processPacket
+        (JNIEnv *env, jclass cl,
+         jboolean encryption,
+         jbyteArray key_,
+         jbyteArray nonce_,
+         jbyteArray in, jint inOff, jint inLen,
+         jbyteArray out, jint outOff, jint outLen) {
+    return ctr_pc_process_one(env, NULL, encryption, key_, nonce_, in, inOff, inLen, out, outOff, outLen);
+}
+
+/*
+ * Class:     org_bouncycastle_crypto_engines_AESNativeCTRPacketCipher
+ * Method:    processPackets
+ * Signature: (Z[[B[[B[[B[I[I[[B[I[I[I)I
+ */
+JNIEXPORT jint JNICALL Java_org_bouncycastle_crypto_engines_AESNativeCTRPacketCipher_processPackets
+        (JNIEnv *env, jclass cl,
+         jboolean encryption,
+         jobjectArray keys_,
+         jobjectArray nonces_,
+         jobjectArray in_, jintArray inOff_, jintArray inLen_,
+         jobjectArray out_, jintArray outOff_, jintArray written_, jintArray failed_) {
+
+    //
+    // Lengths have been checked by the caller, all arrays have the same number of entries.
+    //
+    // Packets go through the single packet kernel one after another, only the key setup is shared
+    // between consecutive packets with the same key. Blocks of different packets are not interleaved.
+    //
+    const jsize count = (*env)->GetArrayLength(env, keys_);
+    jint total = 0;
+    ctr_pc_key_cache cache;
+    cache.keyLen = 0;
+
+    for (jsize i = 0; i < count; i++) {
+        jint inOff, inLen, outOff;
+        (*env)->GetIntArrayRegion(env, inOff_, i, 1, &inOff);
+        (*env)->GetIntArrayRegion(env, inLen_, i, 1, &inLen);
+        (*env)->GetIntArrayRegion(env, outOff_, i, 1, &outOff);
+
+        jbyteArray key = (jbyteArray) (*env)->GetObjectArrayElement(env, keys_, i);
+        jbyteArray nonce = (jbyteArray) (*env)->GetObjectArrayElement(env, nonces_, i);
+        jbyteArray in = (jbyteArray) (*env)->GetObjectArrayElement(env, in_, i);
+        jbyteArray out = (jbyteArray) (*env)->GetObjectArrayElement(env, out_, i);
+
+        jint outLen = out != NULL ? (*env)->GetArrayLength(env, out) - outOff : 0;
+        jint written = ctr_pc_process_one(env, &cache, encryption, key, nonce, in, inOff, inLen, out, outOff, outLen);
+
+        (*env)->DeleteLocalRef(env, key);
+        (*env)->DeleteLocalRef(env, nonce);
+        (*env)->DeleteLocalRef(env, in);
+        (*env)->DeleteLocalRef(env, out);
+
+        if ((*env)->ExceptionCheck(env)) {
+            // packet failed, record which one before rethrowing the pending exception.
+            jthrowable ex = (*env)->ExceptionOccurred(env);
+            (*env)->ExceptionClear(env);
+            (*env)->SetIntArrayRegion(env, failed_, 0, 1, &i);
+            (*env)->Throw(env, ex);
+            (*env)->DeleteLocalRef(env, ex);
+            break;
+        }
+
+        (*env)->SetIntArrayRegion(env, written_, i, 1, &written);
+        total += written;
+    }
+
+    memzero(&cache, sizeof(cache));
+    return total;
+}
+
+
 /*
  * Class:     org_bouncycastle_crypto_engines_AESNativeCTRPacketCipher
  * Method:    getOutputSize
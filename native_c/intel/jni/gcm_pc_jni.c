@@ -5,6 +5,7 @@
 #include "../../jniutil/bytearrays.h"
 #include "../../jniutil/jni_asserts.h"
 #include <stdlib.h>
+#include <assert.h>
 
 void handle_gcm_pc_result(JNIEnv *env, packet_err *err) {
     if (err == NULL) {
@@ -31,15 +32,19 @@ void handle_gcm_pc_result(JNIEnv *env, packet_err *err) {
     packet_err_free(err);
 }
 
-/*
- * Class:     org_bouncycastle_crypto_engines_AESNativeGCMPacketCipher
- * Method:    processPacket
- * Signature: (Z[BI[BI[BII[BII[BII)I
+/**
+ * The expanded key of the last packet in a batch, reused while the packets that follow carry the same key.
  */
-JNIEXPORT jint JNICALL Java_org_bouncycastle_crypto_engines_AESNativeGCMPacketCipher_processPacket
-        (JNIEnv *env, jclass, jboolean encryption, jbyteArray key_, jbyteArray nonce_,
-         jbyteArray aad_, jint macSize, jbyteArray in, jint inOff, jint inLen, jbyteArray out, jint outOff,
-         jint outLen) {
+typedef struct {
+    gcm_pc_key k;
+    uint8_t key[32];
+    size_t keyLen; // 0 when empty
+} gcm_pc_key_cache;
+
+static jint gcm_pc_process_one(JNIEnv *env, gcm_pc_key_cache *cache, gcm_pc_key *keyed, jboolean encryption,
+                               jbyteArray key_,
+                               jbyteArray nonce_, jbyteArray aad_, jint macSize, jbyteArray in, jint inOff, jint inLen,
+                               jbyteArray out, jint outOff, jint outLen) {
     java_bytearray_ctx key, iv, ad;
     critical_bytearray_ctx input, output;
     packet_err *err = NULL;
@@ -55,15 +60,17 @@ JNIEXPORT jint JNICALL Java_org_bouncycastle_crypto_engines_AESNativeGCMPacketCi
 
 
     //
-    // Load and check key
+    // Load and check key, unless the key was set up when the keyed context was made.
     //
-    if (!load_bytearray_ctx(&key, env, key_)) {
-        throw_java_invalid_state(env, "unable to obtain ptr to valid key array");
-        goto exit;
-    }
-
-    if (!aes_keysize_is_valid_and_not_null(env, &key)) {
-        goto exit;
+    if (keyed == NULL) {
+        if (!load_bytearray_ctx(&key, env, key_)) {
+            throw_java_invalid_state(env, "unable to obtain ptr to valid key array");
+            goto exit;
+        }
+
+        if (!aes_keysize_is_valid_and_not_null(env, &key)) {
+            goto exit;
+        }
     }
 
 
@@ -164,19 +171,52 @@ JNIEXPORT jint JNICALL Java_org_bouncycastle_crypto_engines_AESNativeGCMPacketCi
     uint8_t *p_in = input.critical + inOff;
     uint8_t *p_out = output.critical + outOff;
 
-    err = gcm_pc_process_packet(
-            encryption == JNI_TRUE,
-            key.bytearray,
-            (size_t) key.size,
-            iv.bytearray,
-            (size_t) iv.size,
-            (size_t) macSize,
-            ad.bytearray,
-            (size_t) ad.size,
-            p_in,
-            (size_t) inLen,
-            p_out,
-            &outputLen);
+    if (keyed != NULL) {
+        err = gcm_pc_process_packet_with_key(
+                keyed,
+                encryption == JNI_TRUE,
+                iv.bytearray,
+                (size_t) iv.size,
+                (size_t) macSize,
+                ad.bytearray,
+                (size_t) ad.size,
+                p_in,
+                (size_t) inLen,
+                p_out,
+                &outputLen);
+    } else if (cache == NULL) {
+        err = gcm_pc_process_packet(
+                encryption == JNI_TRUE,
+                key.bytearray,
+                (size_t) key.size,
+                iv.bytearray,
+                (size_t) iv.size,
+                (size_t) macSize,
+                ad.bytearray,
+                (size_t) ad.size,
+                p_in,
+                (size_t) inLen,
+                p_out,
+                &outputLen);
+    } else {
+        if (cache->keyLen != key.size || !tag_verification(cache->key, key.bytearray, key.size)) {
+            gcm_pc_init_key(&cache->k, key.bytearray, (size_t) key.size);
+            memcpy(cache->key, key.bytearray, key.size);
+            cache->keyLen = key.size;
+        }
+        err = gcm_pc_process_packet_with_key(
+                &cache->k,
+                encryption == JNI_TRUE,
+                iv.bytearray,
+                (size_t) iv.size,
+                (size_t) macSize,
+                ad.bytearray,
+                (size_t) ad.size,
+                p_in,
+                (size_t) inLen,
+                p_out,
+                &outputLen);
+    }
 
     exit:
     release_bytearray_ctx(&key);
@@ -189,6 +229,136 @@ JNIEXPORT jint JNICALL Java_org_bouncycastle_crypto_engines_AESNativeGCMPacketCi
 }
 
 
+/*
+ * Class:     org_bouncycastle_crypto_engines_AESNativeGCMPacketCipher
+ * Method:    processPacket
+ * Signature: (Z[BI[BI[BII[BII[BII)I
+ */
+JNIEXPORT jint JNICALL Java_org_bouncycastle_crypto_engines_AESNativeGCMPacketCipher_processPacket
+        (JNIEnv *env, jclass, jboolean encryption, jbyteArray key_, jbyteArray nonce_,
+         jbyteArray aad_, jint macSize, jbyteArray in, jint inOff, jint inLen, jbyteArray out, jint outOff,
+         jint outLen) {
+    return gcm_pc_process_one(env, NULL, NULL, encryption, key_, nonce_, aad_, macSize, in, inOff, inLen, out, outOff, outLen);
+}
+
+/*
+ * Class:     org_bouncycastle_crypto_engines_AESNativeGCMPacketCipher
+ * Method:    processPackets
+ * Signature: (Z[[B[[B[[B[I[[B[I[I[[B[I[I[I)I
+ */
+JNIEXPORT jint JNICALL Java_org_bouncycastle_crypto_engines_AESNativeGCMPacketCipher_processPackets
+        (JNIEnv *env, jclass, jboolean encryption, jobjectArray keys_, jobjectArray nonces_,
+         jobjectArray aads_, jintArray macSizes_, jobjectArray in_, jintArray inOff_, jintArray inLen_,
+         jobjectArray out_, jintArray outOff_, jintArray written_, jintArray failed_) {
+
+    //
+    // Lengths have been checked by the caller, all arrays have the same number of entries.
+    //
+    // Packets go through the single packet kernel one after another, only the key setup is shared
+    // between consecutive packets with the same key. Blocks of different packets are not interleaved.
+    //
+    const jsize count = (*env)->GetArrayLength(env, keys_);
+    jint total = 0;
+    gcm_pc_key_cache cache;
+    cache.keyLen = 0;
+
+    for (jsize i = 0; i < count; i++) {
+        jint macSize, inOff, inLen, outOff;
+        (*env)->GetIntArrayRegion(env, macSizes_, i, 1, &macSize);
+        (*env)->GetIntArrayRegion(env, inOff_, i, 1, &inOff);
+        (*env)->GetIntArrayRegion(env, inLen_, i, 1, &inLen);
+        (*env)->GetIntArrayRegion(env, outOff_, i, 1, &outOff);
+
+        jbyteArray key = (jbyteArray) (*env)->GetObjectArrayElement(env, keys_, i);
+        jbyteArray nonce = (jbyteArray) (*env)->GetObjectArrayElement(env, nonces_, i);
+        jbyteArray aad = (jbyteArray) (*env)->GetObjectArrayElement(env, aads_, i);
+        jbyteArray in = (jbyteArray) (*env)->GetObjectArrayElement(env, in_, i);
+        jbyteArray out = (jbyteArray) (*env)->GetObjectArrayElement(env, out_, i);
+
+        jint outLen = out != NULL ? (*env)->GetArrayLength(env, out) - outOff : 0;
+        jint written = gcm_pc_process_one(env, &cache, NULL, encryption, key, nonce, aad, macSize, in, inOff, inLen, out, outOff,
+                                          outLen);
+
+        (*env)->DeleteLocalRef(env, key);
+        (*env)->DeleteLocalRef(env, nonce);
+        (*env)->DeleteLocalRef(env, aad);
+        (*env)->DeleteLocalRef(env, in);
+        (*env)->DeleteLocalRef(env, out);
+
+        if ((*env)->ExceptionCheck(env)) {
+            // packet failed, record which one before rethrowing the pending exception.
+            jthrowable ex = (*env)->ExceptionOccurred(env);
+            (*env)->ExceptionClear(env);
+            (*env)->SetIntArrayRegion(env, failed_, 0, 1, &i);
+            (*env)->Throw(env, ex);
+            (*env)->DeleteLocalRef(env, ex);
+            break;
+        }
+
+        (*env)->SetIntArrayRegion(env, written_, i, 1, &written);
+        total += written;
+    }
+
+    memzero(&cache, sizeof(cache));
+    return total;
+}
+
+
+/*
+ * Class:     org_bouncycastle_crypto_engines_AESNativeGCMPacketCipher
+ * Method:    makeKeyed
+ * Signature: ([B)J
+ */
+JNIEXPORT jlong JNICALL Java_org_bouncycastle_crypto_engines_AESNativeGCMPacketCipher_makeKeyed
+        (JNIEnv *env, jclass, jbyteArray key_) {
+    java_bytearray_ctx key;
+    jlong ref = 0;
+
+    init_bytearray_ctx(&key);
+
+    if (!load_bytearray_ctx(&key, env, key_)) {
+        throw_java_invalid_state(env, "unable to obtain ptr to valid key array");
+        goto exit;
+    }
+
+    if (!aes_keysize_is_valid_and_not_null(env, &key)) {
+        goto exit;
+    }
+
+    gcm_pc_key *k = calloc(1, sizeof(gcm_pc_key));
+    assert(k != NULL);
+    gcm_pc_init_key(k, key.bytearray, (size_t) key.size);
+    ref = (jlong) k;
+
+    exit:
+    release_bytearray_ctx(&key);
+    return ref;
+}
+
+/*
+ * Class:     org_bouncycastle_crypto_engines_AESNativeGCMPacketCipher
+ * Method:    disposeKeyed
+ * Signature: (J)V
+ */
+JNIEXPORT void JNICALL Java_org_bouncycastle_crypto_engines_AESNativeGCMPacketCipher_disposeKeyed
+        (JNIEnv *env, jclass, jlong ref) {
+    gcm_pc_key *k = (gcm_pc_key *) ref;
+    memzero(k, sizeof(gcm_pc_key));
+    free(k);
+}
+
+/*
+ * Class:     org_bouncycastle_crypto_engines_AESNativeGCMPacketCipher
+ * Method:    processPacketKeyed
+ * Signature: (JZ[B[BI[BII[BII)I
+ */
+JNIEXPORT jint JNICALL Java_org_bouncycastle_crypto_engines_AESNativeGCMPacketCipher_processPacketKeyed
+        (JNIEnv *env, jclass, jlong ref, jboolean encryption, jbyteArray nonce_, jbyteArray aad_, jint macSize,
+         jbyteArray in, jint inOff, jint inLen, jbyteArray out, jint outOff, jint outLen) {
+    return gcm_pc_process_one(env, NULL, (gcm_pc_key *) ref, encryption, NULL, nonce_, aad_, macSize, in, inOff, inLen, out,
+                              outOff, outLen);
+}
+
 /*
  * Class:     org_bouncycastle_crypto_engines_AESNativeGCMPacketCipher
  * Method:    getOutputSize
@@ -405,3 +405,77 @@ JNIEXPORT void JNICALL Java_org_bouncycastle_crypto_engines_AESNativeGCMSIV_test
 
 }
 
+
+/*
+ * Class:     org_bouncycastle_crypto_engines_AESNativeGCMSIV
+ * Method:    doFinalDirect
+ * Signature: (J[BILjava/nio/ByteBuffer;II)I
+ */
+JNIEXPORT jint JNICALL Java_org_bouncycastle_crypto_engines_AESNativeGCMSIV_doFinalDirect
+        (JNIEnv *env, jclass cl, jlong ref, jbyteArray in, jint inLen, jobject out, jint outOff, jint outLen) {
+
+    gcm_siv_err *err = NULL;
+    size_t written = 0;
+    gcm_siv_ctx *ctx = (gcm_siv_ctx *) ref;
+    critical_bytearray_ctx input;
+    direct_buffer_ctx output;
+    uint8_t *dest;
+
+    init_critical_ctx(&input, env, in);
+
+    if (!critical_offset_and_len_are_in_range_with_messages(
+            &input,
+            0, inLen,
+            env,
+            "input was null",
+            "negative input offset",
+            "input len is negative",
+            "input too short for length")) {
+        goto exit;
+    }
+
+    //
+    // check input can be processed even
+    //
+    if (!checkStatus(env, ctx, (size_t) inLen, (size_t) 0)) {
+        goto exit;
+    }
+
+    //
+    // Validate output
+    //
+    if (!direct_output_init(env, &output, out, outOff, outLen, &dest)) {
+        goto exit;
+    }
+
+    int64_t outputSize = gcm_siv_get_output_size(ctx->encryption, (size_t) inLen);
+
+    //
+    // < 0 if the input size is impossibly small,
+    // for example, in decryption and input len < tag len
+    //
+    if (outputSize < 0) {
+        throw_java_illegal_argument(env, "input less than tag len");
+        goto exit;
+    }
+
+    // Assert space in buffer can contain the output len.
+    if ((int64_t) outLen < outputSize) {
+        throw_java_illegal_argument(env, "output at offset too short");
+        goto exit;
+    }
+
+    if (!load_critical_ctx(&input)) {
+        throw_java_invalid_state(env, "unable to obtain ptr to valid input array");
+        goto exit;
+    }
+
+    err = gcm_siv_doFinal(ctx, input.critical, (size_t) inLen, dest, &written);
+
+    exit:
+    release_critical_ctx(&input);
+
+    handle_gcm_siv_result(env, err);
+
+    return (jint) written;
+}
@@ -0,0 +1,502 @@
+
+
+#include <assert.h>
+#include "org_bouncycastle_crypto_engines_AESNativeOCB.h"
+#include "../ocb/ocb.h"
+#include "../../jniutil/exceptions.h"
+#include "../../jniutil/bytearrays.h"
+#include "../../jniutil/jni_asserts.h"
+#include "../../jniutil/bytearraycritical.h"
+
+
+void handle_ocb_result(JNIEnv *env, ocb_err *err) {
+    if (err == NULL) {
+        return;
+    }
+    switch (err->type) {
+        case ILLEGAL_STATE:
+            throw_java_invalid_state(env, err->msg);
+            break;
+        case ILLEGAL_ARGUMENT:
+            throw_java_illegal_argument(env, err->msg);
+            break;
+        case ILLEGAL_CIPHER_TEXT:
+            throw_bc_invalid_ciphertext_exception(env, err->msg);
+            break;
+        case OUTPUT_LENGTH:
+            throw_bc_output_length_exception(env, err->msg);
+            break;
+        default:
+            throw_java_invalid_state(env, "unknown error from OCB");
+            break;
+    }
+
+    ocb_err_free(err);
+
+}
+
+
+/*
+ * Class:     org_bouncycastle_crypto_engines_AESNativeOCB
+ * Method:    reset
+ * Signature: (J)V
+ */
+JNIEXPORT void JNICALL Java_org_bouncycastle_crypto_engines_AESNativeOCB_reset
+        (JNIEnv *env, jclass cl, jlong ref) {
+
+    ocb_ctx *ctx = (ocb_ctx *) ref;
+    ocb_reset(ctx, false);
+
+}
+
+/*
+ * Class:     org_bouncycastle_crypto_engines_AESNativeOCB
+ * Method:    initNative
+ * Signature: (JZ[B[B[BI)V
+ */
+JNIEXPORT void JNICALL Java_org_bouncycastle_crypto_engines_AESNativeOCB_initNative
+        (JNIEnv *env, jclass cl, jlong ref, jboolean encryption, jbyteArray key_, jbyteArray iv_, jbyteArray ad_,
+         jint macSizeInBits) {
+
+    ocb_err *err = NULL;
+    ocb_ctx *ctx = (ocb_ctx *) ref;
+    java_bytearray_ctx key, iv, ad;
+
+    init_bytearray_ctx(&key);
+    init_bytearray_ctx(&iv);
+    init_bytearray_ctx(&ad);
+
+    if (macSizeInBits < 64 || macSizeInBits > 128 || macSizeInBits % 8 != 0) {
+        throw_java_illegal_argument(env, "Invalid value for MAC size");
+        goto exit;
+    }
+
+
+    if (!load_bytearray_ctx(&key, env, key_)) {
+        throw_java_invalid_state(env, "unable to obtain ptr to valid key array");
+        goto exit;
+    }
+
+    if (!load_bytearray_ctx(&iv, env, iv_)) {
+        throw_java_invalid_state(env, "unable to obtain ptr to valid iv array");
+        goto exit;
+    }
+
+    if (!load_bytearray_ctx(&ad, env, ad_)) {
+        throw_java_invalid_state(env, "unable to obtain ptr to valid ad array");
+        goto exit;
+    }
+
+
+    if (!aes_keysize_is_valid_or_null(env, &key)) {
+        goto exit;
+    }
+
+    if (!bytearray_not_null(&iv, "iv was null", env)) {
+        goto exit;
+    }
+
+    if (iv.size > OCB_MAX_NONCE_LEN) {
+        throw_java_illegal_argument(env, "IV must be no more than 15 bytes");
+        goto exit;
+    }
+
+    // A null key is a nonce only re-initialisation, the existing key schedule is reused.
+    if (key.bytearray == NULL) {
+        if (ctx->num_rounds == 0) {
+            throw_java_illegal_argument(env, "cannot replace iv unless key was previously supplied");
+            goto exit;
+        }
+    }
+
+
+    err = ocb_init(
+            ctx,
+            encryption == JNI_TRUE,
+            key.bytearray,
+            key.size,
+            iv.bytearray,
+            iv.size,
+            ad.bytearray,
+            ad.size,
+            (uint32_t) macSizeInBits / 8);
+
+
+    exit:
+    release_bytearray_ctx(&key);
+    release_bytearray_ctx(&iv);
+    release_bytearray_ctx(&ad);
+
+    handle_ocb_result(env, err);
+}
+
+/*
+ * Class:     org_bouncycastle_crypto_engines_AESNativeOCB
+ * Method:    makeInstance
+ * Signature: ()J
+ */
+JNIEXPORT jlong JNICALL Java_org_bouncycastle_crypto_engines_AESNativeOCB_makeInstance
+        (JNIEnv *env, jclass cl) {
+    ocb_ctx *ctx = ocb_create_ctx();
+    return (jlong) ctx;
+}
+
+/*
+ * Class:     org_bouncycastle_crypto_engines_AESNativeOCB
+ * Method:    dispose
+ * Signature: (J)V
+ */
+JNIEXPORT void JNICALL Java_org_bouncycastle_crypto_engines_AESNativeOCB_dispose
+        (JNIEnv *env, jclass jc, jlong ref) {
+    ocb_ctx *ctx = (ocb_ctx *) ref;
+    ocb_free(ctx);
+}
+
+/*
+ * Class:     org_bouncycastle_crypto_engines_AESNativeOCB
+ * Method:    processAADByte
+ * Signature: (JB)V
+ */
+JNIEXPORT void JNICALL Java_org_bouncycastle_crypto_engines_AESNativeOCB_processAADByte
+        (JNIEnv *env, jclass cl, jlong ref, jbyte aadByte) {
+
+    ocb_ctx *ctx = (ocb_ctx *) ref;
+    ocb_process_aad_byte(ctx, (uint8_t) aadByte);
+
+}
+
+/*
+ * Class:     org_bouncycastle_crypto_engines_AESNativeOCB
+ * Method:    processAADBytes
+ * Signature: (J[BII)V
+ */
+JNIEXPORT void JNICALL Java_org_bouncycastle_crypto_engines_AESNativeOCB_processAADBytes
+        (JNIEnv *env, jclass cl, jlong ref, jbyteArray aad_, jint offset, jint len) {
+
+    ocb_ctx *ctx = (ocb_ctx *) ref;
+    java_bytearray_ctx aad;
+    init_bytearray_ctx(&aad);
+
+    if (!load_bytearray_ctx(&aad, env, aad_)) {
+        throw_java_invalid_state(env, "unable to obtain ptr to valid aad array");
+        goto exit;
+    }
+
+
+    if (!bytearray_not_null(&aad, "aad was null", env)) {
+        goto exit;
+    }
+    if (!bytearray_offset_and_len_are_in_range(&aad, offset, len, env)) {
+        goto exit;
+    }
+
+    ocb_process_aad_bytes(ctx, aad.bytearray + offset, (size_t) len);
+
+    exit:
+    release_bytearray_ctx(&aad);
+
+}
+
+/*
+ * Class:     org_bouncycastle_crypto_engines_AESNativeOCB
+ * Method:    processByte
+ * Signature: (JB[BI)I
+ */
+JNIEXPORT jint JNICALL Java_org_bouncycastle_crypto_engines_AESNativeOCB_processByte
+        (JNIEnv *env, jclass cl, jlong ref, jbyte byte, jbyteArray out, jint offset) {
+
+    ocb_err *err = NULL;
+    critical_bytearray_ctx output;
+    init_critical_ctx(&output, env, out);
+
+    size_t written = 0;
+    ocb_ctx *ctx = (ocb_ctx *) ref;
+
+
+
+    if (offset < 0) {
+        throw_java_illegal_argument(env, "offset is negative");
+        goto exit;
+    }
+
+    if (output.array != NULL) {
+        if (!critical_offset_is_in_range(&output, offset, env)) {
+            goto exit;
+        }
+    }
+
+    if (!load_critical_ctx(&output)) {
+        throw_java_invalid_state(env, "unable to obtain ptr to valid output array");
+        goto exit;
+    }
+
+
+    // NULL is a valid destination if the caller is not expecting any output
+    // an error is returned if output is generated.
+
+    uint8_t *dest = output.critical == NULL ? NULL : output.critical + offset;
+    size_t outputLen = output.array == NULL ? 0 : output.size - (size_t) offset;
+
+    err = ocb_process_byte(
+            ctx,
+            (uint8_t) byte,
+            dest,
+            outputLen, &written);
+
+    exit:
+    release_critical_ctx(&output);
+
+    handle_ocb_result(env, err);
+
+    return (jint) written;
+}
+
+/*
+ * Class:     org_bouncycastle_crypto_engines_AESNativeOCB
+ * Method:    processBytes
+ * Signature: (J[BII[BI)I
+ */
+JNIEXPORT jint JNICALL Java_org_bouncycastle_crypto_engines_AESNativeOCB_processBytes
+        (JNIEnv *env, jclass cl, jlong ref, jbyteArray in, jint inOff, jint len, jbyteArray out, jint outoff) {
+
+    ocb_err *err = NULL;
+    ocb_ctx *ctx = (ocb_ctx *) ref;
+    size_t written = 0;
+
+    critical_bytearray_ctx input, output;
+    init_critical_ctx(&output, env, out);
+    init_critical_ctx(&input, env, in);
+
+
+    if (!critical_not_null(&input, "input was null", env)) {
+        goto exit;
+    }
+
+    if (outoff < 0) {
+        throw_java_illegal_argument(env, "output offset is negative");
+        goto exit;
+    }
+
+
+    if (output.array != NULL) {
+        if (!critical_offset_is_in_range(&output, outoff, env)) {
+            goto exit;
+        }
+    }
+
+    if (!critical_offset_and_len_are_in_range(&input, inOff, len, env)) {
+        goto exit;
+    }
+
+
+    if (!load_critical_ctx(&output)) {
+        throw_java_invalid_state(env, "unable to obtain ptr to valid output array");
+        goto exit;
+    }
+
+    if (!load_critical_ctx(&input)) {
+        release_critical_ctx(&output);
+        throw_java_invalid_state(env, "unable to obtain ptr to valid input array");
+        goto exit;
+    }
+
+
+    // NULL is a valid destination if the caller is not expecting any output
+    // an error is returned if output is generated.
+
+    uint8_t *dest = output.critical == NULL ? NULL : output.critical + outoff;
+    size_t outLen = output.array == NULL ? 0 : output.size - (size_t) outoff;
+
+    uint8_t *src = input.critical + inOff;
+
+
+    err = ocb_process_bytes(ctx,
+                            src,
+                            (size_t) len,
+                            dest,
+                            outLen,
+                            &written);
+
+
+    exit:
+    release_critical_ctx(&input);
+    release_critical_ctx(&output);
+
+
+    handle_ocb_result(env, err);
+
+    return (jint) written;
+}
+
+/*
+ * Class:     org_bouncycastle_crypto_engines_AESNativeOCB
+ * Method:    doFinal
+ * Signature: (J[BI)I
+ */
+JNIEXPORT jint JNICALL Java_org_bouncycastle_crypto_engines_AESNativeOCB_doFinal
+        (JNIEnv *env, jclass cl, jlong ref, jbyteArray out, jint offset) {
+
+    ocb_err *err = NULL;
+    size_t written = 0;
+    ocb_ctx *ctx = (ocb_ctx *) ref;
+    critical_bytearray_ctx output;
+
+    init_critical_ctx(&output, env, out);
+
+
+
+    if (!critical_not_null(&output, "output was null", env)) {
+        goto exit;
+    }
+
+
+    if (!critical_offset_is_in_range(&output, offset, env)) {
+        goto exit;
+    }
+
+    if (!load_critical_ctx(&output)) {
+        throw_java_invalid_state(env, "unable to obtain ptr to valid output array");
+        goto exit;
+    }
+
+    uint8_t *dest = output.critical + offset;
+    size_t len = output.size - (size_t) offset;
+
+    err = ocb_doFinal(ctx, dest, len, &written);
+
+    exit:
+    release_critical_ctx(&output);
+
+    handle_ocb_result(env, err);
+
+    return (jint) written;
+
+}
+
+/*
+ * Class:     org_bouncycastle_crypto_engines_AESNativeOCB
+ * Method:    getUpdateOutputSize
+ * Signature: (JI)I
+ */
+JNIEXPORT jint JNICALL Java_org_bouncycastle_crypto_engines_AESNativeOCB_getUpdateOutputSize
+        (JNIEnv *env, jclass cl, jlong ref, jint len) {
+    ocb_ctx *ctx = (ocb_ctx *) ref;
+
+    if (len < 0) {
+        throw_java_illegal_argument(env, "len is negative");
+        return 0;
+    }
+
+    return (jint) ocb_get_update_output_size(ctx, (size_t) len);
+}
+
+/*
+ * Class:     org_bouncycastle_crypto_engines_AESNativeOCB
+ * Method:    getOutputSize
+ * Signature: (JI)I
+ */
+JNIEXPORT jint JNICALL Java_org_bouncycastle_crypto_engines_AESNativeOCB_getOutputSize
+        (JNIEnv *env, jclass jo, jlong ref, jint len) {
+
+    ocb_ctx *ctx = (ocb_ctx *) ref;
+
+    if (len < 0) {
+        throw_java_illegal_argument(env, "len is negative");
+        return 0;
+    }
+
+    return (jint) ocb_get_output_size(ctx, (size_t) len);
+}
+
+/*
+ * Class:     org_bouncycastle_crypto_engines_AESNativeOCB
+ * Method:    getMac
+ * Signature: (J)[B
+ */
+JNIEXPORT jbyteArray JNICALL Java_org_bouncycastle_crypto_engines_AESNativeOCB_getMac
+        (JNIEnv *env, jclass cl, jlong ref) {
+
+
+    ocb_ctx *ctx = (ocb_ctx *) ref;
+    size_t macBlockLen = ocb_getMac(ctx, NULL);
+
+    jbyteArray out = (*env)->NewByteArray(env, (jint) macBlockLen);
+    if (out == NULL) {
+        throw_java_invalid_state(env, "unable to create output array");
+        return NULL;
+    }
+
+    java_bytearray_ctx out_ctx;
+    init_bytearray_ctx(&out_ctx);
+
+
+    if (!load_bytearray_ctx(&out_ctx, env, out)) {
+        throw_java_invalid_state(env, "unable to obtain ptr to output array");
+        goto exit;
+    }
+
+    ocb_getMac(ctx, out_ctx.bytearray);
+
+    exit:
+    release_bytearray_ctx(&out_ctx);
+
+    return out;
+}
+
+/*
+ * Class:     org_bouncycastle_crypto_engines_AESNativeOCB
+ * Method:    processBytesDirect
+ * Signature: (JLjava/nio/ByteBuffer;IILjava/nio/ByteBuffer;II)I
+ */
+JNIEXPORT jint JNICALL Java_org_bouncycastle_crypto_engines_AESNativeOCB_processBytesDirect
+        (JNIEnv *env, jclass cl, jlong ref, jobject in, jint inOff, jint len, jobject out, jint outOff, jint outLen) {
+
+    ocb_err *err = NULL;
+    ocb_ctx *ctx = (ocb_ctx *) ref;
+    size_t written = 0;
+
+    direct_buffer_ctx input, output;
+    uint8_t *src;
+    uint8_t *dest;
+
+    if (!direct_processing_init(env, &input, &output, in, inOff, len, out, outOff, outLen, &src, &dest)) {
+        return 0;
+    }
+
+    err = ocb_process_bytes(ctx,
+                            src,
+                            (size_t) len,
+                            dest,
+                            (size_t) outLen,
+                            &written);
+
+    handle_ocb_result(env, err);
+
+    return (jint) written;
+}
+
+/*
+ * Class:     org_bouncycastle_crypto_engines_AESNativeOCB
+ * Method:    doFinalDirect
+ * Signature: (JLjava/nio/ByteBuffer;II)I
+ */
+JNIEXPORT jint JNICALL Java_org_bouncycastle_crypto_engines_AESNativeOCB_doFinalDirect
+        (JNIEnv *env, jclass cl, jlong ref, jobject out, jint outOff, jint outLen) {
+
+    ocb_err *err = NULL;
+    size_t written = 0;
+    ocb_ctx *ctx = (ocb_ctx *) ref;
+
+    direct_buffer_ctx output;
+    uint8_t *dest;
+
+    if (!direct_output_init(env, &output, out, outOff, outLen, &dest)) {
+        return 0;
+    }
+
+    err = ocb_doFinal(ctx, dest, (size_t) outLen, &written);
+
+    handle_ocb_result(env, err);
+
+    return (jint) written;
+}
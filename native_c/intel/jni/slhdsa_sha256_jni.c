@@ -1,5 +1,6 @@
 #include "org_bouncycastle_pqc_crypto_slhdsa_SLHDSASha2NativeEngine.h"
 #include "../../jniutil/bytearraycritical.h"
+#include "../../jniutil/bytearrays.h"
 #include "../../jniutil/jni_asserts.h"
 #include "jni.h"
 #include "jni_md.h"
@@ -532,6 +533,232 @@ JNIEXPORT void JNICALL Java_org_bouncycastle_pqc_crypto_slhdsa_SLHDSASha2NativeE
 
 
 
+//
+// The tree level operations below hash for a long time relative to the other calls so the
+// arrays, which are all small, are copied rather than held as critical.
+//
+
+/*
+ * Class:     org_bouncycastle_pqc_crypto_slhdsa_SLHDSASha2NativeEngine
+ * Method:    wotsChains
+ * Signature: (J[B[B[B[B[B)V
+ */
+JNIEXPORT void JNICALL Java_org_bouncycastle_pqc_crypto_slhdsa_SLHDSASha2NativeEngine_wotsChains
+        (
+                JNIEnv *env,
+                jclass cl,
+                jlong ref,
+                jbyteArray _chains,
+                jbyteArray _skSeed,
+                jbyteArray _adrs,
+                jbyteArray _start,
+                jbyteArray _steps) {
+
+    slhdsa_sha256 *ctx = (slhdsa_sha256 *) ((void *) ref);
+
+    java_bytearray_ctx chains, skSeed, adrs, start, steps;
+
+    init_bytearray_ctx(&chains);
+    init_bytearray_ctx(&skSeed);
+    init_bytearray_ctx(&adrs);
+    init_bytearray_ctx(&start);
+    init_bytearray_ctx(&steps);
+
+    if (!load_bytearray_ctx(&chains, env, _chains)) {
+        throw_java_invalid_state(env, "unable to obtain ptr to valid chains array");
+        goto exit;
+    }
+
+    if (!load_bytearray_ctx(&skSeed, env, _skSeed)) {
+        throw_java_invalid_state(env, "unable to obtain ptr to valid skSeed array");
+        goto exit;
+    }
+
+    if (!load_bytearray_ctx(&adrs, env, _adrs)) {
+        throw_java_invalid_state(env, "unable to obtain ptr to valid adrs array");
+        goto exit;
+    }
+
+    if (!load_bytearray_ctx(&start, env, _start)) {
+        throw_java_invalid_state(env, "unable to obtain ptr to valid start array");
+        goto exit;
+    }
+
+    if (!load_bytearray_ctx(&steps, env, _steps)) {
+        throw_java_invalid_state(env, "unable to obtain ptr to valid steps array");
+        goto exit;
+    }
+
+    if (!bytearray_not_null(&chains, "chains was null", env)) {
+        goto exit;
+    }
+
+    if (!bytearray_not_null(&adrs, "adrs was null", env)) {
+        goto exit;
+    }
+
+    if (!bytearray_not_null(&start, "start was null", env)) {
+        goto exit;
+    }
+
+    if (!bytearray_not_null(&steps, "steps was null", env)) {
+        goto exit;
+    }
+
+    if (chains.size != SLHDSA_WOTS_LEN * SLHDSA_N) {
+        throw_java_illegal_argument(env, "chains must be WOTS_LEN * N bytes");
+        goto exit;
+    }
+
+    if (skSeed.array != NULL && skSeed.size != SLHDSA_N) {
+        throw_java_illegal_argument(env, "skSeed must be N bytes");
+        goto exit;
+    }
+
+    if (adrs.size != SLHDSA_ADRS_LEN) {
+        throw_java_illegal_argument(env, "adrs must be 32 bytes");
+        goto exit;
+    }
+
+    if (start.size != SLHDSA_WOTS_LEN || steps.size != SLHDSA_WOTS_LEN) {
+        throw_java_illegal_argument(env, "start and steps must be WOTS_LEN long");
+        goto exit;
+    }
+
+    for (int i = 0; i < SLHDSA_WOTS_LEN; i++) {
+        if (start.bytearray[i] + steps.bytearray[i] > SLHDSA_WOTS_W - 1) {
+            throw_java_illegal_argument(env, "chain would exceed w - 1 steps");
+            goto exit;
+        }
+    }
+
+    slhdsa_sha256_wots_chains(
+            ctx,
+            chains.bytearray,
+            skSeed.bytearray,
+            adrs.bytearray,
+            start.bytearray,
+            steps.bytearray);
+
+    exit:
+    release_bytearray_ctx(&chains);
+    release_bytearray_ctx(&skSeed);
+    release_bytearray_ctx(&adrs);
+    release_bytearray_ctx(&start);
+    release_bytearray_ctx(&steps);
+}
+
+/**
+ * Common argument handling for xmssTreehash and forsTreehash.
+ */
+static void treehash(
+        JNIEnv *env,
+        slhdsa_sha256 *ctx,
+        bool fors,
+        jbyteArray _root,
+        jbyteArray _skSeed,
+        jint s,
+        jint z,
+        jbyteArray _adrs) {
+
+    java_bytearray_ctx root, skSeed, adrs;
+
+    init_bytearray_ctx(&root);
+    init_bytearray_ctx(&skSeed);
+    init_bytearray_ctx(&adrs);
+
+    if (z < 0 || z > SLHDSA_MAX_TREE_HEIGHT) {
+        throw_java_illegal_argument(env, "invalid tree height");
+        goto exit;
+    }
+
+    if (s < 0 || (((uint32_t) s >> z) << z) != (uint32_t) s) {
+        throw_java_illegal_argument(env, "leaf index must be a non negative multiple of 2^z");
+        goto exit;
+    }
+
+    if (!load_bytearray_ctx(&root, env, _root)) {
+        throw_java_invalid_state(env, "unable to obtain ptr to valid root array");
+        goto exit;
+    }
+
+    if (!load_bytearray_ctx(&skSeed, env, _skSeed)) {
+        throw_java_invalid_state(env, "unable to obtain ptr to valid skSeed array");
+        goto exit;
+    }
+
+    if (!load_bytearray_ctx(&adrs, env, _adrs)) {
+        throw_java_invalid_state(env, "unable to obtain ptr to valid adrs array");
+        goto exit;
+    }
+
+    if (!bytearray_not_null(&root, "root was null", env)) {
+        goto exit;
+    }
+
+    if (!bytearray_not_null(&skSeed, "skSeed was null", env)) {
+        goto exit;
+    }
+
+    if (!bytearray_not_null(&adrs, "adrs was null", env)) {
+        goto exit;
+    }
+
+    if (root.size < SLHDSA_N) {
+        throw_java_illegal_argument(env, "root array too short");
+        goto exit;
+    }
+
+    if (skSeed.size != SLHDSA_N) {
+        throw_java_illegal_argument(env, "skSeed must be N bytes");
+        goto exit;
+    }
+
+    if (adrs.size != SLHDSA_ADRS_LEN) {
+        throw_java_illegal_argument(env, "adrs must be 32 bytes");
+        goto exit;
+    }
+
+    bool ok;
+    if (fors) {
+        ok = slhdsa_sha256_fors_treehash(ctx, root.bytearray, skSeed.bytearray, (uint32_t) s, (uint32_t) z,
+                                         adrs.bytearray);
+    } else {
+        ok = slhdsa_sha256_xmss_treehash(ctx, root.bytearray, skSeed.bytearray, (uint32_t) s, (uint32_t) z,
+                                         adrs.bytearray);
+    }
+
+    if (!ok) {
+        throw_java_invalid_state(env, "unable to allocate tree buffer");
+    }
+
+    exit:
+    release_bytearray_ctx(&root);
+    release_bytearray_ctx(&skSeed);
+    release_bytearray_ctx(&adrs);
+}
+
+/*
+ * Class:     org_bouncycastle_pqc_crypto_slhdsa_SLHDSASha2NativeEngine
+ * Method:    xmssTreehash
+ * Signature: (J[B[BII[B)V
+ */
+JNIEXPORT void JNICALL Java_org_bouncycastle_pqc_crypto_slhdsa_SLHDSASha2NativeEngine_xmssTreehash
+        (JNIEnv *env, jclass cl, jlong ref, jbyteArray _root, jbyteArray _skSeed, jint s, jint z, jbyteArray _adrs) {
+    treehash(env, (slhdsa_sha256 *) ((void *) ref), false, _root, _skSeed, s, z, _adrs);
+}
+
+/*
+ * Class:     org_bouncycastle_pqc_crypto_slhdsa_SLHDSASha2NativeEngine
+ * Method:    forsTreehash
+ * Signature: (J[B[BII[B)V
+ */
+JNIEXPORT void JNICALL Java_org_bouncycastle_pqc_crypto_slhdsa_SLHDSASha2NativeEngine_forsTreehash
+        (JNIEnv *env, jclass cl, jlong ref, jbyteArray _root, jbyteArray _skSeed, jint s, jint z, jbyteArray _adrs) {
+    treehash(env, (slhdsa_sha256 *) ((void *) ref), true, _root, _skSeed, s, z, _adrs);
+}
+
+
 /*
  * Class:     org_bouncycastle_pqc_crypto_slhdsa_SLHDSASha2NativeEngine
  * Method:    makeInstance
@@ -0,0 +1,555 @@
+//
+// OCB (RFC 7253) using AES-NI.
+//
+// The offset for block i is Offset_{i-1} xor L[ntz(i)]. With every L[j] precomputed at key time the
+// offsets for a run of blocks are a chain of xors, and the block cipher calls themselves are
+// independent, so full blocks are processed eight at a time with interleaved AES rounds.
+//
+
+#include <assert.h>
+#include <memory.h>
+#include "ocb.h"
+#include "../common.h"
+#include "../aes/aes_common_128b.h"
+
+
+ocb_err *make_ocb_error(const char *msg, int type) {
+    ocb_err *err = calloc(1, sizeof(ocb_err));
+    assert(err != NULL);
+    err->msg = msg;
+    err->type = type;
+    return err;
+}
+
+void ocb_err_free(ocb_err *err) {
+    if (err != NULL) {
+        free(err);
+    }
+}
+
+ocb_ctx *ocb_create_ctx() {
+    ocb_ctx *ctx = calloc(1, sizeof(ocb_ctx));
+    assert(ctx != NULL);
+    return ctx;
+}
+
+void ocb_free(ocb_ctx *ctx) {
+    if (ctx == NULL) {
+        return;
+    }
+
+    if (ctx->initAD != NULL) {
+        memzero(ctx->initAD, ctx->initADLen);
+        free(ctx->initAD);
+    }
+
+    memzero(ctx, sizeof(ocb_ctx));
+    free(ctx);
+}
+
+
+static inline __m128i encrypt_block(ocb_ctx *ctx, __m128i in) {
+    __m128i b2, b3, b4, b5, b6, b7, b8;
+    aesenc_8_blocks_128b(&in, &b2, &b3, &b4, &b5, &b6, &b7, &b8, ctx->roundKeys, (int) ctx->num_rounds, 1);
+    return in;
+}
+
+/**
+ * Multiply by x in GF(2^128), the block is a big endian bit string.
+ */
+static void ocb_double(const uint8_t *in, uint8_t *out) {
+    uint8_t carry = 0;
+    for (int i = BLOCK_SIZE - 1; i >= 0; i--) {
+        uint8_t b = in[i];
+        out[i] = (uint8_t) ((b << 1) | carry);
+        carry = (uint8_t) (b >> 7);
+    }
+    // constant time reduction
+    out[BLOCK_SIZE - 1] ^= (uint8_t) (0x87 & -carry);
+}
+
+static inline void ocb_extend(uint8_t *block, size_t pos) {
+    block[pos] = 0x80;
+    while (++pos < BLOCK_SIZE) {
+        block[pos] = 0;
+    }
+}
+
+
+/**
+ * Process whole blocks of the hash, the associated data.
+ */
+static void ocb_hash_blocks(ocb_ctx *ctx, const uint8_t *src, size_t blocks) {
+    __m128i offset = ctx->offsetHash;
+    __m128i sum = ctx->sum;
+    uint64_t count = ctx->hashBlockCount;
+    const int rounds = (int) ctx->num_rounds;
+
+    while (blocks >= 8) {
+        __m128i b1, b2, b3, b4, b5, b6, b7, b8;
+
+        offset = _mm_xor_si128(offset, ctx->L[__builtin_ctzll(++count)]);
+        b1 = _mm_xor_si128(_mm_loadu_si128((__m128i *) &src[0 * 16]), offset);
+        offset = _mm_xor_si128(offset, ctx->L[__builtin_ctzll(++count)]);
+        b2 = _mm_xor_si128(_mm_loadu_si128((__m128i *) &src[1 * 16]), offset);
+        offset = _mm_xor_si128(offset, ctx->L[__builtin_ctzll(++count)]);
+        b3 = _mm_xor_si128(_mm_loadu_si128((__m128i *) &src[2 * 16]), offset);
+        offset = _mm_xor_si128(offset, ctx->L[__builtin_ctzll(++count)]);
+        b4 = _mm_xor_si128(_mm_loadu_si128((__m128i *) &src[3 * 16]), offset);
+        offset = _mm_xor_si128(offset, ctx->L[__builtin_ctzll(++count)]);
+        b5 = _mm_xor_si128(_mm_loadu_si128((__m128i *) &src[4 * 16]), offset);
+        offset = _mm_xor_si128(offset, ctx->L[__builtin_ctzll(++count)]);
+        b6 = _mm_xor_si128(_mm_loadu_si128((__m128i *) &src[5 * 16]), offset);
+        offset = _mm_xor_si128(offset, ctx->L[__builtin_ctzll(++count)]);
+        b7 = _mm_xor_si128(_mm_loadu_si128((__m128i *) &src[6 * 16]), offset);
+        offset = _mm_xor_si128(offset, ctx->L[__builtin_ctzll(++count)]);
+        b8 = _mm_xor_si128(_mm_loadu_si128((__m128i *) &src[7 * 16]), offset);
+
+        aesenc_8_blocks_128b(&b1, &b2, &b3, &b4, &b5, &b6, &b7, &b8, ctx->roundKeys, rounds, 8);
+
+        sum = _mm_xor_si128(sum, _mm_xor_si128(_mm_xor_si128(b1, b2), _mm_xor_si128(b3, b4)));
+        sum = _mm_xor_si128(sum, _mm_xor_si128(_mm_xor_si128(b5, b6), _mm_xor_si128(b7, b8)));
+
+        src += 8 * BLOCK_SIZE;
+        blocks -= 8;
+    }
+
+    while (blocks > 0) {
+        offset = _mm_xor_si128(offset, ctx->L[__builtin_ctzll(++count)]);
+        __m128i b = _mm_xor_si128(_mm_loadu_si128((__m128i *) src), offset);
+        sum = _mm_xor_si128(sum, encrypt_block(ctx, b));
+        src += BLOCK_SIZE;
+        blocks--;
+    }
+
+    ctx->offsetHash = offset;
+    ctx->sum = sum;
+    ctx->hashBlockCount = count;
+}
+
+
+/**
+ * Encrypt or decrypt whole blocks, src and dest may be the same.
+ */
+static void ocb_main_blocks(ocb_ctx *ctx, const uint8_t *src, uint8_t *dest, size_t blocks) {
+    __m128i offset = ctx->offsetMain;
+    __m128i checksum = ctx->checksum;
+    uint64_t count = ctx->mainBlockCount;
+    const int rounds = (int) ctx->num_rounds;
+    const bool encryption = ctx->encryption;
+
+    while (blocks > 0) {
+        const int n = blocks >= 8 ? 8 : (int) blocks;
+        __m128i o[8];
+        __m128i b[8];
+
+        for (int i = 0; i < n; i++) {
+            offset = _mm_xor_si128(offset, ctx->L[__builtin_ctzll(++count)]);
+            o[i] = offset;
+            b[i] = _mm_loadu_si128((__m128i *) &src[i * BLOCK_SIZE]);
+            if (encryption) {
+                checksum = _mm_xor_si128(checksum, b[i]);
+            }
+            b[i] = _mm_xor_si128(b[i], o[i]);
+        }
+
+        if (encryption) {
+            if (n == 8) {
+                aesenc_8_blocks_128b(&b[0], &b[1], &b[2], &b[3], &b[4], &b[5], &b[6], &b[7], ctx->roundKeys,
+                                     rounds, 8);
+            } else {
+                aesenc_8_blocks_128b(&b[0], &b[1], &b[2], &b[3], &b[4], &b[5], &b[6], &b[7], ctx->roundKeys,
+                                     rounds, n);
+            }
+        } else {
+            if (n == 8) {
+                aesdec_8_blocks_128b(&b[0], &b[1], &b[2], &b[3], &b[4], &b[5], &b[6], &b[7], ctx->decKeys,
+                                     rounds, 8);
+            } else {
+                aesdec_8_blocks_128b(&b[0], &b[1], &b[2], &b[3], &b[4], &b[5], &b[6], &b[7], ctx->decKeys,
+                                     rounds, n);
+            }
+        }
+
+        for (int i = 0; i < n; i++) {
+            b[i] = _mm_xor_si128(b[i], o[i]);
+            if (!encryption) {
+                checksum = _mm_xor_si128(checksum, b[i]);
+            }
+            _mm_storeu_si128((__m128i *) &dest[i * BLOCK_SIZE], b[i]);
+        }
+
+        src += n * BLOCK_SIZE;
+        dest += n * BLOCK_SIZE;
+        blocks -= (size_t) n;
+    }
+
+    ctx->offsetMain = offset;
+    ctx->checksum = checksum;
+    ctx->mainBlockCount = count;
+}
+
+
+void ocb_reset(ocb_ctx *ctx, bool keepMac) {
+    memzero(ctx->hashBlock, BLOCK_SIZE);
+    memzero(ctx->mainBlock, OCB_BUF_SIZE);
+
+    ctx->hashBlockPos = 0;
+    ctx->mainBlockPos = 0;
+    ctx->hashBlockCount = 0;
+    ctx->mainBlockCount = 0;
+
+    ctx->offsetHash = _mm_setzero_si128();
+    ctx->sum = _mm_setzero_si128();
+    ctx->offsetMain = ctx->offsetMain0;
+    ctx->checksum = _mm_setzero_si128();
+
+    if (!keepMac) {
+        memzero(ctx->macBlock, OCB_MAC_BLOCK_LEN);
+    }
+
+    if (ctx->initAD != NULL) {
+        ocb_process_aad_bytes(ctx, ctx->initAD, ctx->initADLen);
+    }
+}
+
+
+ocb_err *ocb_init(ocb_ctx *ctx, bool encryption, uint8_t *key, size_t keyLen, uint8_t *nonce, size_t nonceLen,
+                  uint8_t *initialText, size_t initialTextLen, uint32_t macSizeBytes) {
+
+    //
+    // All assertions of correctness need to be done by the caller.
+    //
+    assert(nonceLen <= OCB_MAX_NONCE_LEN);
+    assert(macSizeBytes <= OCB_MAC_BLOCK_LEN);
+
+    ctx->encryption = encryption;
+    ctx->macSize = macSizeBytes;
+
+    if (key != NULL) {
+        memzero(ctx->roundKeys, sizeof(__m128i) * 15);
+        memzero(ctx->decKeys, sizeof(__m128i) * 15);
+        switch (keyLen) {
+            case 16:
+                ctx->num_rounds = ROUNDS_128;
+                init_128(ctx->roundKeys, key, true);
+                init_128(ctx->decKeys, key, false);
+                break;
+            case 24:
+                ctx->num_rounds = ROUNDS_192;
+                init_192(ctx->roundKeys, key, true);
+                init_192(ctx->decKeys, key, false);
+                break;
+            case 32:
+                ctx->num_rounds = ROUNDS_256;
+                init_256(ctx->roundKeys, key, true);
+                init_256(ctx->decKeys, key, false);
+                break;
+            default:
+                assert(0);
+        }
+
+        //
+        // L_* = E(0), L_$ = double(L_*), L[0] = double(L_$), L[i] = double(L[i-1])
+        //
+        uint8_t tmp[BLOCK_SIZE];
+        uint8_t next[BLOCK_SIZE];
+
+        ctx->L_asterisk = encrypt_block(ctx, _mm_setzero_si128());
+        _mm_storeu_si128((__m128i *) tmp, ctx->L_asterisk);
+        ocb_double(tmp, next);
+        ctx->L_dollar = _mm_loadu_si128((__m128i *) next);
+
+        for (int i = 0; i < OCB_L_TABLE_SIZE; i++) {
+            memcpy(tmp, next, BLOCK_SIZE);
+            ocb_double(tmp, next);
+            ctx->L[i] = _mm_loadu_si128((__m128i *) next);
+        }
+
+        memzero(tmp, BLOCK_SIZE);
+        memzero(next, BLOCK_SIZE);
+
+        ctx->ktopValid = false;
+    }
+
+    //
+    // Nonce dependent
+    //
+    uint8_t n[BLOCK_SIZE];
+    memzero(n, BLOCK_SIZE);
+    if (nonceLen > 0) {
+        memcpy(n + BLOCK_SIZE - nonceLen, nonce, nonceLen);
+    }
+    n[0] = (uint8_t) (macSizeBytes << 4);
+    n[15 - nonceLen] |= 1;
+
+    const int bottom = n[15] & 0x3F;
+    n[15] &= 0xC0;
+
+    //
+    // When used with incrementing nonces, the cipher is only applied once every 64 inits.
+    //
+    if (!ctx->ktopValid || memcmp(n, ctx->ktopInput, BLOCK_SIZE) != 0) {
+        uint8_t ktop[BLOCK_SIZE];
+        memcpy(ctx->ktopInput, n, BLOCK_SIZE);
+        _mm_storeu_si128((__m128i *) ktop, encrypt_block(ctx, _mm_loadu_si128((__m128i *) n)));
+        memcpy(ctx->stretch, ktop, BLOCK_SIZE);
+        for (int i = 0; i < 8; i++) {
+            ctx->stretch[16 + i] = (uint8_t) (ktop[i] ^ ktop[i + 1]);
+        }
+        memzero(ktop, BLOCK_SIZE);
+        ctx->ktopValid = true;
+    }
+
+    uint8_t offset0[BLOCK_SIZE];
+    const int bits = bottom % 8;
+    int bytes = bottom / 8;
+    if (bits == 0) {
+        memcpy(offset0, &ctx->stretch[bytes], BLOCK_SIZE);
+    } else {
+        for (int i = 0; i < BLOCK_SIZE; i++) {
+            uint32_t b1 = ctx->stretch[bytes];
+            uint32_t b2 = ctx->stretch[++bytes];
+            offset0[i] = (uint8_t) ((b1 << bits) | (b2 >> (8 - bits)));
+        }
+    }
+    ctx->offsetMain0 = _mm_loadu_si128((__m128i *) offset0);
+    memzero(offset0, BLOCK_SIZE);
+
+    //
+    // Initial associated text
+    //
+    if (ctx->initAD != NULL) {
+        memzero(ctx->initAD, ctx->initADLen);
+        free(ctx->initAD);
+        ctx->initAD = NULL;
+        ctx->initADLen = 0;
+    }
+
+    if (initialText != NULL) {
+        ctx->initAD = malloc(initialTextLen);
+        assert(ctx->initAD != NULL);
+        ctx->initADLen = initialTextLen;
+        memcpy(ctx->initAD, initialText, initialTextLen);
+    }
+
+    ocb_reset(ctx, false);
+
+    return NULL;
+}
+
+
+void ocb_process_aad_byte(ocb_ctx *ctx, uint8_t byte) {
+    ctx->hashBlock[ctx->hashBlockPos++] = byte;
+    if (ctx->hashBlockPos == BLOCK_SIZE) {
+        ocb_hash_blocks(ctx, ctx->hashBlock, 1);
+        ctx->hashBlockPos = 0;
+    }
+}
+
+void ocb_process_aad_bytes(ocb_ctx *ctx, uint8_t *aad, size_t len) {
+    if (ctx->hashBlockPos > 0) {
+        size_t n = BLOCK_SIZE - ctx->hashBlockPos;
+        if (n > len) {
+            n = len;
+        }
+        memcpy(ctx->hashBlock + ctx->hashBlockPos, aad, n);
+        ctx->hashBlockPos += n;
+        aad += n;
+        len -= n;
+
+        if (ctx->hashBlockPos < BLOCK_SIZE) {
+            return;
+        }
+
+        ocb_hash_blocks(ctx, ctx->hashBlock, 1);
+        ctx->hashBlockPos = 0;
+    }
+
+    size_t blocks = len / BLOCK_SIZE;
+    if (blocks > 0) {
+        ocb_hash_blocks(ctx, aad, blocks);
+        aad += blocks * BLOCK_SIZE;
+        len -= blocks * BLOCK_SIZE;
+    }
+
+    if (len > 0) {
+        memcpy(ctx->hashBlock, aad, len);
+        ctx->hashBlockPos = len;
+    }
+}
+
+
+size_t ocb_get_update_output_size(ocb_ctx *ctx, size_t len) {
+    size_t totalData = len + ctx->mainBlockPos;
+    if (!ctx->encryption) {
+        if (totalData < ctx->macSize) {
+            return 0;
+        }
+        totalData -= ctx->macSize;
+    }
+    return totalData - totalData % BLOCK_SIZE;
+}
+
+size_t ocb_get_output_size(ocb_ctx *ctx, size_t len) {
+    size_t totalData = len + ctx->mainBlockPos;
+    if (ctx->encryption) {
+        return totalData + ctx->macSize;
+    }
+    return totalData < ctx->macSize ? 0 : totalData - ctx->macSize;
+}
+
+
+ocb_err *ocb_process_byte(ocb_ctx *ctx, uint8_t byte, uint8_t *output, size_t outputLen, size_t *written) {
+    return ocb_process_bytes(ctx, &byte, 1, output, outputLen, written);
+}
+
+ocb_err *ocb_process_bytes(ocb_ctx *ctx, uint8_t *input, size_t len, uint8_t *output, size_t outputLen,
+                           size_t *written) {
+    *written = 0;
+
+    if (ocb_get_update_output_size(ctx, len) > outputLen) {
+        return make_ocb_error("output buffer too short", OUTPUT_LENGTH);
+    }
+
+    //
+    // On decryption the last macSize bytes seen may be the tag so they are always held back.
+    //
+    const size_t holdBack = ctx->encryption ? 0 : ctx->macSize;
+    const size_t available = ctx->mainBlockPos + len;
+    size_t blocks = available < holdBack ? 0 : (available - holdBack) / BLOCK_SIZE;
+
+    //
+    // Blocks that start in the buffer.
+    //
+    while (blocks > 0 && ctx->mainBlockPos > 0) {
+        if (ctx->mainBlockPos < BLOCK_SIZE) {
+            size_t n = BLOCK_SIZE - ctx->mainBlockPos;
+            memcpy(ctx->mainBlock + ctx->mainBlockPos, input, n);
+            input += n;
+            len -= n;
+            ctx->mainBlockPos = BLOCK_SIZE;
+        }
+
+        ocb_main_blocks(ctx, ctx->mainBlock, output, 1);
+        output += BLOCK_SIZE;
+        *written += BLOCK_SIZE;
+
+        ctx->mainBlockPos -= BLOCK_SIZE;
+        memmove(ctx->mainBlock, ctx->mainBlock + BLOCK_SIZE, ctx->mainBlockPos);
+        blocks--;
+    }
+
+    //
+    // The buffer is empty, so the rest come straight from the input.
+    //
+    if (blocks > 0) {
+        const size_t n = blocks * BLOCK_SIZE;
+        ocb_main_blocks(ctx, input, output, blocks);
+        input += n;
+        len -= n;
+        *written += n;
+    }
+
+    if (len > 0) {
+        assert(ctx->mainBlockPos + len <= OCB_BUF_SIZE);
+        memcpy(ctx->mainBlock + ctx->mainBlockPos, input, len);
+        ctx->mainBlockPos += len;
+    }
+
+    return NULL;
+}
+
+
+ocb_err *ocb_doFinal(ocb_ctx *ctx, uint8_t *output, size_t outLen, size_t *written) {
+    uint8_t tag[OCB_MAC_BLOCK_LEN];
+    uint8_t block[BLOCK_SIZE];
+    size_t pos = ctx->mainBlockPos;
+
+    *written = 0;
+
+    //
+    // For decryption, get the tag from the end of the message
+    //
+    if (!ctx->encryption) {
+        if (pos < ctx->macSize) {
+            return make_ocb_error("data too short", ILLEGAL_CIPHER_TEXT);
+        }
+        pos -= ctx->macSize;
+        memcpy(tag, ctx->mainBlock + pos, ctx->macSize);
+    }
+
+    if ((ctx->encryption ? pos + ctx->macSize : pos) > outLen) {
+        return make_ocb_error("output buffer too short", OUTPUT_LENGTH);
+    }
+
+    //
+    // HASH: Process any final partial block
+    //
+    if (ctx->hashBlockPos > 0) {
+        ocb_extend(ctx->hashBlock, ctx->hashBlockPos);
+        ctx->offsetHash = _mm_xor_si128(ctx->offsetHash, ctx->L_asterisk);
+        __m128i b = _mm_xor_si128(_mm_loadu_si128((__m128i *) ctx->hashBlock), ctx->offsetHash);
+        ctx->sum = _mm_xor_si128(ctx->sum, encrypt_block(ctx, b));
+    }
+
+    //
+    // Process any final partial block
+    //
+    if (pos > 0) {
+        if (ctx->encryption) {
+            ocb_extend(ctx->mainBlock, pos);
+            ctx->checksum = _mm_xor_si128(ctx->checksum, _mm_loadu_si128((__m128i *) ctx->mainBlock));
+        }
+
+        ctx->offsetMain = _mm_xor_si128(ctx->offsetMain, ctx->L_asterisk);
+        __m128i pad = encrypt_block(ctx, ctx->offsetMain);
+
+        _mm_storeu_si128((__m128i *) block, _mm_xor_si128(_mm_loadu_si128((__m128i *) ctx->mainBlock), pad));
+        memcpy(output, block, pos);
+
+        if (!ctx->encryption) {
+            ocb_extend(block, pos);
+            ctx->checksum = _mm_xor_si128(ctx->checksum, _mm_loadu_si128((__m128i *) block));
+        }
+        memzero(block, BLOCK_SIZE);
+    }
+
+    //
+    // Compute the tag
+    //
+    __m128i t = _mm_xor_si128(_mm_xor_si128(ctx->checksum, ctx->offsetMain), ctx->L_dollar);
+    t = _mm_xor_si128(encrypt_block(ctx, t), ctx->sum);
+    _mm_storeu_si128((__m128i *) ctx->macBlock, t);
+
+    if (ctx->encryption) {
+        memcpy(output + pos, ctx->macBlock, ctx->macSize);
+        *written = pos + ctx->macSize;
+    } else {
+        uint32_t nonEqual = 0;
+        for (size_t i = 0; i < ctx->macSize; i++) {
+            nonEqual |= (ctx->macBlock[i] ^ tag[i]);
+        }
+        memzero(tag, OCB_MAC_BLOCK_LEN);
+
+        if (nonEqual != 0) {
+            if (pos > 0) {
+                memzero(output, pos);
+            }
+            return make_ocb_error("mac check in OCB failed", ILLEGAL_CIPHER_TEXT);
+        }
+        *written = pos;
+    }
+
+    ocb_reset(ctx, true);
+
+    return NULL;
+}
+
+
+size_t ocb_getMac(ocb_ctx *ctx, uint8_t *destination) {
+    if (destination != NULL) {
+        memcpy(destination, ctx->macBlock, ctx->macSize);
+    }
+    return ctx->macSize;
+}
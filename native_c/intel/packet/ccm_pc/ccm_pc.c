@@ -4,8 +4,26 @@ packet_err *
 ccm_pc_process_packet(bool encryption, uint8_t *key, size_t keysize, uint8_t *nonce, size_t nonceLen, size_t mac_size,
                       uint8_t *initAD, size_t initADLen, uint8_t *p_in, size_t inLen, uint8_t *p_out,
                       size_t *outputLen) {
+    ccm_pc_key k;
+    ccm_pc_init_key(&k, key, keysize);
+
+    packet_err *result = ccm_pc_process_packet_with_key(&k, encryption, nonce, nonceLen, mac_size, initAD, initADLen,
+                                                        p_in, inLen, p_out, outputLen);
+
+    memzero(&k, sizeof(ccm_pc_key));
+    return result;
+}
+
+void ccm_pc_init_key(ccm_pc_key *k, uint8_t *key, size_t keysize) {
+    k->num_rounds = generate_key(true, key, k->roundKeys, keysize);
+}
+
+packet_err *
+ccm_pc_process_packet_with_key(ccm_pc_key *k, bool encryption, uint8_t *nonce, size_t nonceLen, size_t mac_size,
+                               uint8_t *initAD, size_t initADLen, uint8_t *p_in, size_t inLen, uint8_t *p_out,
+                               size_t *outputLen) {
     size_t q = 15 - nonceLen;
-    __m128i roundKeys[15];
+    __m128i *roundKeys = k->roundKeys;
     uint8_t buf[BLOCK_SIZE];
     // mac block
     uint8_t macBlock[BLOCK_SIZE];
@@ -18,7 +36,7 @@ ccm_pc_process_packet(bool encryption, uint8_t *key, size_t keysize, uint8_t *no
     __m128i partialBlock = _mm_setzero_si128();
     uint64_t ctrMask = 0xFFFFFFFFFFFFFFFF;
     bool ctrAtEnd = false;
-    int num_rounds = generate_key(true, key, roundKeys, keysize);
+    int num_rounds = k->num_rounds;
     memzero(buf, BLOCK_SIZE);
 
     buf_ptr = 0;
@@ -16,6 +16,24 @@ packet_err *
 ccm_pc_process_packet(bool encryption, uint8_t *key, size_t keysize, uint8_t *iv, size_t ivsize, size_t macSize,
                       uint8_t *aad, size_t aadLen, uint8_t *p_in, size_t inLen, uint8_t *p_out, size_t *outputLen);
 
+/**
+ * The AES key schedule, everything about a packet that only depends on the key.
+ */
+typedef struct {
+    __m128i roundKeys[15];
+    int num_rounds;
+} ccm_pc_key;
+
+void ccm_pc_init_key(ccm_pc_key *k, uint8_t *key, size_t keysize);
+
+/**
+ * As ccm_pc_process_packet but with a key already set up by ccm_pc_init_key.
+ */
+packet_err *
+ccm_pc_process_packet_with_key(ccm_pc_key *k, bool encryption, uint8_t *iv, size_t ivsize, size_t macSize,
+                               uint8_t *aad, size_t aadLen, uint8_t *p_in, size_t inLen, uint8_t *p_out,
+                               size_t *outputLen);
+
 void cbc_pc_mac_update(uint8_t *src, size_t len, uint8_t *buf, size_t *buf_index_ptr, uint8_t *macBlock, __m128i *chainblock,
                        __m128i *roundKeys, int num_rounds);
 
@@ -0,0 +1,85 @@
+//
+//
+
+#include <memory.h>
+#include "chacha20poly1305_pc.h"
+#include "../../chacha/chacha.h"
+#include "../../chacha/poly1305.h"
+
+// Process in chunks of this size so the data is still in cache for Poly1305.
+#define CHUNK_SIZE (64 * CHACHA_BLOCK_SIZE)
+
+static inline void store_le64(uint8_t *p, uint64_t v) {
+    for (int i = 0; i < 8; i++) {
+        p[i] = (uint8_t) (v >> (8 * i));
+    }
+}
+
+static void crypt(uint32_t *state, const uint8_t *in, uint8_t *out, size_t len) {
+    const size_t whole = len - (len % CHACHA_BLOCK_SIZE);
+    chacha20_process_blocks(state, in, out, whole / CHACHA_BLOCK_SIZE);
+    if (len > whole) {
+        chacha20_process_partial(state, in + whole, out + whole, len - whole);
+    }
+}
+
+static void mac_lengths(poly1305_ctx *poly, size_t aadLen, size_t dataLen, uint8_t *mac) {
+    uint8_t lengths[16];
+    poly1305_pad(poly);
+    store_le64(lengths, aadLen);
+    store_le64(lengths + 8, dataLen);
+    poly1305_update(poly, lengths, sizeof(lengths));
+    poly1305_final(poly, mac);
+}
+
+packet_err *
+chacha20poly1305_pc_process_packet(bool encryption, uint8_t *key, uint8_t *nonce, uint8_t *aad, size_t aadLen,
+                                   uint8_t *p_in, size_t inLen, uint8_t *p_out, size_t *outputLen) {
+    static const uint8_t zeroes[POLY1305_KEY_SIZE] = {0};
+    uint32_t state[16];
+    poly1305_ctx poly;
+    uint8_t polyKey[POLY1305_KEY_SIZE];
+    uint8_t mac[CHACHA_PC_MAC_SIZE];
+    packet_err *err = NULL;
+
+    chacha20_init_state(state, key, nonce, 0);
+    chacha20_process_partial(state, zeroes, polyKey, POLY1305_KEY_SIZE);
+    poly1305_init(&poly, polyKey);
+
+    if (aad != NULL) {
+        poly1305_update(&poly, aad, aadLen);
+    }
+    poly1305_pad(&poly);
+
+    if (encryption) {
+        size_t remaining = inLen;
+        uint8_t *in = p_in, *out = p_out;
+        while (remaining > 0) {
+            const size_t chunk = remaining < CHUNK_SIZE ? remaining : CHUNK_SIZE;
+            crypt(state, in, out, chunk);
+            poly1305_update(&poly, out, chunk);
+            in += chunk;
+            out += chunk;
+            remaining -= chunk;
+        }
+        mac_lengths(&poly, aadLen, inLen, mac);
+        memcpy(p_out + inLen, mac, CHACHA_PC_MAC_SIZE);
+        *outputLen = inLen + CHACHA_PC_MAC_SIZE;
+    } else {
+        const size_t dataLen = inLen - CHACHA_PC_MAC_SIZE;
+        poly1305_update(&poly, p_in, dataLen);
+        mac_lengths(&poly, aadLen, dataLen, mac);
+        if (!tag_verification(mac, p_in + dataLen, CHACHA_PC_MAC_SIZE)) {
+            err = make_packet_error("mac check in ChaCha20Poly1305 failed", ILLEGAL_CIPHER_TEXT);
+            goto exit;
+        }
+        crypt(state, p_in, p_out, dataLen);
+        *outputLen = dataLen;
+    }
+
+    exit:
+    memzero(state, sizeof(state));
+    memzero(polyKey, sizeof(polyKey));
+    memzero(mac, sizeof(mac));
+    return err;
+}
@@ -5,12 +5,20 @@ packet_err *
 ctr_pc_process_packet(bool encryption, uint8_t *key, size_t keysize, uint8_t *iv, size_t ivLen, uint8_t *p_in,
                       size_t inLen, uint8_t *p_out, size_t *outputLen) {
     __m128i roundKeys[15];
+    int num_rounds = generate_key(true, key, roundKeys, keysize);
+    packet_err *err = ctr_pc_process_packet_with_key(roundKeys, num_rounds, iv, ivLen, p_in, inLen, p_out, outputLen);
+    memzero(roundKeys, sizeof(roundKeys));
+    return err;
+}
+
+packet_err *
+ctr_pc_process_packet_with_key(__m128i *roundKeys, int num_rounds, uint8_t *iv, size_t ivLen, uint8_t *p_in,
+                               size_t inLen, uint8_t *p_out, size_t *outputLen) {
     uint64_t ctr;
     uint64_t initialCTR;
     __m128i IV_le;
     uint32_t buf_pos = 0;
     __m128i partialBlock = _mm_setzero_si128();
-    int num_rounds = generate_key(true, key, roundKeys, keysize);
     uint64_t ctrMask;
     bool ctrAtEnd = false;
     switch (ivLen) {
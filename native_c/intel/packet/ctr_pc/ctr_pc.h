@@ -13,6 +13,14 @@ packet_err *
 ctr_pc_process_packet(bool encryption, uint8_t *key, size_t keysize, uint8_t *iv, size_t ivLen, uint8_t *p_in,
                       size_t inLen, uint8_t *p_out, size_t *outputLen);
 
+/**
+ * As ctr_pc_process_packet but with a key schedule already produced by generate_key, so a batch of packets
+ * under the same key only expands the key once.
+ */
+packet_err *
+ctr_pc_process_packet_with_key(__m128i *roundKeys, int num_rounds, uint8_t *iv, size_t ivLen, uint8_t *p_in,
+                               size_t inLen, uint8_t *p_out, size_t *outputLen);
+
 #endif //BC_FIPS_C_CFB_H
 
 
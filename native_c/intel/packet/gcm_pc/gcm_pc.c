@@ -7,15 +7,50 @@
 #include <string.h>
 
 
+void gcm_pc_init_key(gcm_pc_key *k, uint8_t *key, size_t keyLen) {
+    __m128i *roundKeys = k->roundKeys;
+    __m128i tmp1;
+    int num_rounds = generate_key(true, key, roundKeys, keyLen);
+    k->num_rounds = num_rounds;
+
+    // H = E(K, 0)
+    tmp1 = roundKeys[0];
+    for (int j = 1; j < num_rounds; j++) {
+        tmp1 = _mm_aesenc_si128(tmp1, roundKeys[j]);
+    }
+    __m128i H = _mm_aesenclast_si128(tmp1, roundKeys[num_rounds]);
+    H = _mm_shuffle_epi8(H, *BSWAP_MASK);
+
+    // Expand hash keys, key number varies with variant see gcm.h
+    k->hashKeys[HASHKEY_0] = H;
+    for (int t = HASHKEY_1; t >= 0; t--) {
+        gfmul(k->hashKeys[t + 1], H, &tmp1);
+        k->hashKeys[t] = tmp1;
+    }
+}
+
 packet_err *
 gcm_pc_process_packet(bool encryption, uint8_t *key, size_t keyLen, uint8_t *nonce, size_t nonceLen, size_t macBlockLen,
                       uint8_t *initAD, size_t initADLen, uint8_t *input, size_t inLen, uint8_t *output,
                       size_t *outputLen) {
-    __m128i roundKeys[15];
+    gcm_pc_key k;
+    gcm_pc_init_key(&k, key, keyLen);
+    packet_err *err = gcm_pc_process_packet_with_key(&k, encryption, nonce, nonceLen, macBlockLen, initAD, initADLen,
+                                                     input, inLen, output, outputLen);
+    memzero(&k, sizeof(gcm_pc_key));
+    return err;
+}
+
+packet_err *
+gcm_pc_process_packet_with_key(gcm_pc_key *k, bool encryption, uint8_t *nonce, size_t nonceLen, size_t macBlockLen,
+                               uint8_t *initAD, size_t initADLen, uint8_t *input, size_t inLen, uint8_t *output,
+                               size_t *outputLen) {
+    __m128i *roundKeys = k->roundKeys;
+    __m128i *hashKeys = k->hashKeys;
+    const int num_rounds = k->num_rounds;
     int64_t blocksRemaining;
     __m128i X;
     __m128i ctr1;
-    int num_rounds;
     // mac block
     uint8_t macBlock[MAC_BLOCK_LEN];
     uint32_t atBlockPos = 0;
@@ -28,7 +63,6 @@ gcm_pc_process_packet(bool encryption, uint8_t *key, size_t keyLen, uint8_t *non
     __m128i last_block;
     size_t totalBytes;
     size_t atLength;
-    __m128i hashKeys[HASHKEY_LEN];
     atLength = 0;
     totalBytes = 0;
     atLengthPre = 0;
@@ -48,15 +82,13 @@ gcm_pc_process_packet(bool encryption, uint8_t *key, size_t keyLen, uint8_t *non
 #else
     bufBlockLen = encryption ? FOUR_BLOCKS : (FOUR_BLOCKS + macBlockLen);
 #endif
-    num_rounds = generate_key(true, key, roundKeys, keyLen);
-
     S_at = _mm_setzero_si128();
     S_atPre = _mm_setzero_si128();
 
     X = _mm_setzero_si128();
     Y = _mm_setzero_si128();
     T = _mm_setzero_si128();
-    H = _mm_setzero_si128();
+    H = hashKeys[HASHKEY_0];
 
     __m128i tmp1, tmp2;
 
@@ -74,29 +106,13 @@ gcm_pc_process_packet(bool encryption, uint8_t *key, size_t keyLen, uint8_t *non
 
         Y = _mm_insert_epi32(Y, 0x1000000, 3);
 
-        tmp1 = _mm_xor_si128(X, roundKeys[0]);
         tmp2 = _mm_xor_si128(Y, roundKeys[0]);
-        for (int j = 1; j < num_rounds - 1; j += 2) {
-            tmp1 = _mm_aesenc_si128(tmp1, roundKeys[j]);
+        for (int j = 1; j < num_rounds; j++) {
             tmp2 = _mm_aesenc_si128(tmp2, roundKeys[j]);
-            tmp1 = _mm_aesenc_si128(tmp1, roundKeys[j + 1]);
-            tmp2 = _mm_aesenc_si128(tmp2, roundKeys[j + 1]);
         }
-
-        tmp1 = _mm_aesenc_si128(tmp1, roundKeys[num_rounds - 1]);
-        tmp2 = _mm_aesenc_si128(tmp2, roundKeys[num_rounds - 1]);
-
-        H = _mm_aesenclast_si128(tmp1, roundKeys[num_rounds]);
         T = _mm_aesenclast_si128(tmp2, roundKeys[num_rounds]);
-        H = _mm_shuffle_epi8(H, *BSWAP_MASK);
     } else {
-        tmp1 = _mm_xor_si128(X, roundKeys[0]);
         int j;
-        for (j = 1; j < num_rounds; j++) {
-            tmp1 = _mm_aesenc_si128(tmp1, roundKeys[j]);
-        }
-        H = _mm_aesenclast_si128(tmp1, roundKeys[num_rounds]);
-        H = _mm_shuffle_epi8(H, *BSWAP_MASK);
         Y = _mm_xor_si128(Y, Y); // ?
         int i;
         for (i = 0; i < nonceLen / 16; i++) {
@@ -172,14 +188,6 @@ gcm_pc_process_packet(bool encryption, uint8_t *key, size_t keyLen, uint8_t *non
 
     blocksRemaining = BLOCKS_REMAINING_INIT;
 
-    // Expand hash keys, key number varies with variant see gcm.h
-    hashKeys[HASHKEY_0] = H;
-    for (int t = HASHKEY_1; t >= 0; t--) {
-        gfmul(hashKeys[t + 1], H, &tmp1);
-        hashKeys[t] = tmp1;
-    }
-
-
     size_t rd = 0;
     size_t wr = 0;
 
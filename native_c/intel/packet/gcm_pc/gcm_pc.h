@@ -43,10 +43,30 @@
 #define HASHKEY_LEN 16
 //#endif
 
+/**
+ * Everything about a packet that only depends on the key, the AES key schedule and the powers of the hash key.
+ */
+typedef struct {
+    __m128i roundKeys[15];
+    __m128i hashKeys[HASHKEY_LEN];
+    int num_rounds;
+} gcm_pc_key;
+
+void gcm_pc_init_key(gcm_pc_key *k, uint8_t *key, size_t keysize);
+
 packet_err *
 gcm_pc_process_packet(bool encryption, uint8_t *key, size_t keysize, uint8_t *iv, size_t ivsize, size_t macSize,
                       uint8_t *aad, size_t aadLen, uint8_t *p_in, size_t inLen, uint8_t *p_out, size_t *outputLen);
 
+/**
+ * As gcm_pc_process_packet but with a key already set up by gcm_pc_init_key, so a batch of packets
+ * under the same key only pays for the key setup once.
+ */
+packet_err *
+gcm_pc_process_packet_with_key(gcm_pc_key *k, bool encryption, uint8_t *iv, size_t ivsize, size_t macSize,
+                               uint8_t *aad, size_t aadLen, uint8_t *p_in, size_t inLen, uint8_t *p_out,
+                               size_t *outputLen);
+
 typedef struct {
     const char *msg; // the message
     int type; // relates to exception needed on jvm side
@@ -336,7 +336,7 @@ packet_err *gcm_pc_process_buffer_dec(uint8_t *in, size_t inlen, uint8_t *out, s
             //
 
             size_t toCopy = *bufBlockIndex - FOUR_BLOCKS;
-            memcpy(bufBlock, bufBlock + *bufBlockIndex, toCopy);
+            memcpy(bufBlock, bufBlock + FOUR_BLOCKS, toCopy);
             *bufBlockIndex = toCopy;
         }
 
@@ -363,6 +363,7 @@ packet_err *gcm_pc_process_buffer_dec(uint8_t *in, size_t inlen, uint8_t *out, s
             *read += toCopy;
             *totalBytes += toCopy;
             outputLen -= FOUR_BLOCKS;
+            inlen -= toCopy;
             in += toCopy;
             out += FOUR_BLOCKS;
         }
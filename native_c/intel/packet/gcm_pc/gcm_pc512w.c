@@ -203,7 +203,7 @@ packet_err *gcm_pc_process_buffer_dec(uint8_t *in, size_t inlen, uint8_t *out, s
             //
 
             size_t toCopy = *bufBlockIndex - SIXTEEN_BLOCKS;
-            memcpy(bufBlock, bufBlock + *bufBlockIndex, toCopy);
+            memcpy(bufBlock, bufBlock + SIXTEEN_BLOCKS, toCopy);
             *bufBlockIndex = toCopy;
         }
 
@@ -230,6 +230,7 @@ packet_err *gcm_pc_process_buffer_dec(uint8_t *in, size_t inlen, uint8_t *out, s
             *read += toCopy;
             *totalBytes += toCopy;
             outputLen -= SIXTEEN_BLOCKS;
+            inlen -= toCopy;
             in += toCopy;
             out += SIXTEEN_BLOCKS;
         }
@@ -0,0 +1,26 @@
+//
+// Eight way multi-buffer SHA-256 compression using AVX2, each 32 bit lane of a __m256i
+// carries the corresponding word of a different message.
+//
+
+#ifndef BC_LTS_C_SHA256_X8_H
+#define BC_LTS_C_SHA256_X8_H
+
+#if defined(BC_VAES) || defined(BC_VAESF)
+
+#include <immintrin.h>
+#include <stdint.h>
+
+#define SHA256_X8_LANES 8
+
+/**
+ * Process one 64 byte block for each of eight messages.
+ *
+ * @param state  the eight chaining values, state[i] holds word i of each lane, updated in place.
+ * @param blocks the eight blocks, blocks[lane] points to 64 bytes of message.
+ */
+void sha256_x8_block(__m256i state[8], const uint8_t *blocks[SHA256_X8_LANES]);
+
+#endif
+
+#endif //BC_LTS_C_SHA256_X8_H
@@ -3,6 +3,37 @@
 #include <assert.h>
 #include <memory.h>
 #include "slhdsa_sha256.h"
+#include "sha256_x8.h"
+
+#define ADRS_COMPRESSED_LEN 22
+#define LANES 8
+
+#define OFFSET_TYPE 16
+#define OFFSET_KP_ADDR 20
+#define OFFSET_CHAIN_ADDR 24
+#define OFFSET_HASH_ADDR 28
+#define OFFSET_TREE_HGT 24
+#define OFFSET_TREE_INDEX 28
+
+#define WOTS_HASH 0
+#define WOTS_PK 1
+#define TREE 2
+#define FORS_TREE 3
+#define WOTS_PRF 5
+#define FORS_PRF 6
+
+/**
+ * Extract the chaining value of a memo, the sha256 ctx holds it in the SHA-NI (ABEF, CDGH) layout.
+ */
+static void memo_state(const sha256_ctx *memo, uint32_t *state) {
+    __m128i tmp = _mm_shuffle_epi32(memo->s0, 0x1B);       /* FEBA */
+    __m128i s1 = _mm_shuffle_epi32(memo->s1, 0xB1);    /* DCHG */
+    __m128i s0 = _mm_blend_epi16(tmp, s1, 0xF0); /* DCBA */
+    s1 = _mm_alignr_epi8(s1, tmp, 8);    /* ABEF */
+
+    _mm_storeu_si128((__m128i *) &state[0], s0);
+    _mm_storeu_si128((__m128i *) &state[4], s1);
+}
 
 
 
@@ -40,6 +71,9 @@ void slhdsa_sha256_init_memos(
     ctx->msgMemo = ctx->msgDigest;
     ctx->sha256Memo = ctx->sha256Digest;
 
+    memo_state(&ctx->msgMemo, ctx->msgMemoState);
+    memo_state(&ctx->sha256Memo, ctx->sha256MemoState);
+
     sha256_reset(&ctx->msgDigest);
     sha256_reset(&ctx->sha256Digest);
 }
@@ -142,3 +176,355 @@ void slhdsa_sha256_mgf256_mask(slhdsa_sha256 *ctx,
 
 }
 
+
+
+//
+// Tree level operations, these keep the whole WOTS+ chain, FORS and XMSS tree computations on
+// this side of the JNI boundary. Every F, H and PRF call used here is a single SHA-256 block
+// after the memo so up to LANES independent calls are hashed together.
+//
+
+static inline void set_u32(uint8_t *adrs, size_t offset, uint32_t value) {
+    adrs[offset + 0] = (uint8_t) (value >> 24);
+    adrs[offset + 1] = (uint8_t) (value >> 16);
+    adrs[offset + 2] = (uint8_t) (value >> 8);
+    adrs[offset + 3] = (uint8_t) value;
+}
+
+static inline void set_type_and_clear(uint8_t *adrs, uint32_t type) {
+    set_u32(adrs, OFFSET_TYPE, type);
+    memzero(adrs + OFFSET_KP_ADDR, SLHDSA_ADRS_LEN - OFFSET_KP_ADDR);
+}
+
+/**
+ * Same as SLHDSASha2NativeEngine.compressedADRS
+ */
+static inline void compress_adrs(uint8_t *out, const uint8_t *adrs) {
+    out[0] = adrs[3]; // LSB layer address
+    memcpy(out + 1, adrs + 8, 8); // LS 8 bytes Tree address
+    out[9] = adrs[OFFSET_TYPE + 3]; // LSB type
+    memcpy(out + 10, adrs + OFFSET_KP_ADDR, 12);
+}
+
+/**
+ * Hash count single block messages, each msg_len bytes long and prefixed by the 64 byte memo,
+ * writing the first SLHDSA_N bytes of digest i to out[i].
+ *
+ * msgs[i] must be a 64 byte buffer, the area after msg_len is used for padding.
+ */
+static void memo_hash(
+        const sha256_ctx *memo,
+        const uint32_t *memo_state,
+        uint8_t msgs[LANES][64],
+        size_t msg_len,
+        uint8_t *out[LANES],
+        size_t count) {
+
+    assert(count <= LANES);
+    assert(msg_len <= 64 - 9);
+
+#if defined(BC_VAES) || defined(BC_VAESF)
+    (void) memo;
+
+    const uint64_t bit_len = (uint64_t) (BUF_SIZE_SHA256 + msg_len) << 3;
+    const uint8_t *blocks[SHA256_X8_LANES];
+    __m256i state[8];
+
+    for (size_t i = 0; i < LANES; i++) {
+        // Unused lanes just repeat the first message
+        blocks[i] = msgs[i < count ? i : 0];
+    }
+
+    for (size_t i = 0; i < count; i++) {
+        uint8_t *m = msgs[i];
+        m[msg_len] = 0x80;
+        memset(m + msg_len + 1, 0, 64 - 8 - msg_len - 1);
+        for (int j = 0; j < 8; j++) {
+            m[63 - j] = (uint8_t) (bit_len >> (8 * j));
+        }
+    }
+
+    for (int i = 0; i < 8; i++) {
+        state[i] = _mm256_set1_epi32((int) memo_state[i]);
+    }
+
+    sha256_x8_block(state, blocks);
+
+    uint32_t words[4][SHA256_X8_LANES];
+    for (int i = 0; i < 4; i++) {
+        _mm256_storeu_si256((__m256i *) words[i], state[i]);
+    }
+
+    for (size_t i = 0; i < count; i++) {
+        for (int j = 0; j < 4; j++) {
+            uint32_t v = words[j][i];
+            out[i][4 * j + 0] = (uint8_t) (v >> 24);
+            out[i][4 * j + 1] = (uint8_t) (v >> 16);
+            out[i][4 * j + 2] = (uint8_t) (v >> 8);
+            out[i][4 * j + 3] = (uint8_t) v;
+        }
+    }
+
+    memzero(words, sizeof(words));
+    memzero(state, sizeof(state));
+#else
+    (void) memo_state;
+
+    //
+    // SHA-NI is used one message at a time.
+    //
+    sha256_ctx sha256Ctx;
+    uint8_t dig[SHA256_SIZE];
+
+    for (size_t i = 0; i < count; i++) {
+        memcpy(&sha256Ctx, memo, sizeof(sha256_ctx));
+        sha256_update(&sha256Ctx, msgs[i], msg_len);
+        sha256_digest(&sha256Ctx, dig);
+        memcpy(out[i], dig, SLHDSA_N);
+    }
+
+    memzero(dig, SHA256_SIZE);
+    memzero(&sha256Ctx, sizeof(sha256_ctx));
+#endif
+}
+
+/**
+ * WOTS+ private key, PRF with the address set for each chain.
+ */
+static void wots_sk_gen(slhdsa_sha256 *ctx, uint8_t *chains, uint8_t *skSeed, const uint8_t *adrsParam) {
+    uint8_t adrs[SLHDSA_ADRS_LEN];
+    uint8_t msgs[LANES][64];
+    uint8_t *out[LANES];
+
+    memcpy(adrs, adrsParam, SLHDSA_ADRS_LEN);
+    set_type_and_clear(adrs, WOTS_PRF);
+    memcpy(adrs + OFFSET_KP_ADDR, adrsParam + OFFSET_KP_ADDR, 4);
+
+    for (uint32_t i = 0; i < SLHDSA_WOTS_LEN; i += LANES) {
+        size_t count = SLHDSA_WOTS_LEN - i < LANES ? SLHDSA_WOTS_LEN - i : LANES;
+        for (size_t l = 0; l < count; l++) {
+            set_u32(adrs, OFFSET_CHAIN_ADDR, i + (uint32_t) l);
+            compress_adrs(msgs[l], adrs);
+            memcpy(msgs[l] + ADRS_COMPRESSED_LEN, skSeed, SLHDSA_N);
+            out[l] = chains + (i + l) * SLHDSA_N;
+        }
+        memo_hash(&ctx->sha256Memo, ctx->sha256MemoState, msgs, ADRS_COMPRESSED_LEN + SLHDSA_N, out, count);
+    }
+
+    memzero(msgs, sizeof(msgs));
+}
+
+void slhdsa_sha256_wots_chains(
+        slhdsa_sha256 *ctx,
+        uint8_t *chains,
+        uint8_t *skSeed,
+        uint8_t *adrsParam,
+        uint8_t *start,
+        uint8_t *steps) {
+
+    uint8_t adrs[SLHDSA_ADRS_LEN];
+    uint8_t msgs[LANES][64];
+    uint8_t *out[LANES];
+
+    if (skSeed != NULL) {
+        wots_sk_gen(ctx, chains, skSeed, adrsParam);
+    }
+
+    memcpy(adrs, adrsParam, SLHDSA_ADRS_LEN);
+    set_type_and_clear(adrs, WOTS_HASH);
+    memcpy(adrs + OFFSET_KP_ADDR, adrsParam + OFFSET_KP_ADDR, 4);
+
+    uint32_t rounds = 0;
+    for (int i = 0; i < SLHDSA_WOTS_LEN; i++) {
+        if (steps[i] > rounds) {
+            rounds = steps[i];
+        }
+    }
+
+    //
+    // Each round advances every chain that still has steps to go, so
+    // chains of different lengths are packed together into the lanes.
+    //
+    for (uint32_t r = 0; r < rounds; r++) {
+        size_t count = 0;
+        for (uint32_t i = 0; i < SLHDSA_WOTS_LEN; i++) {
+            if (steps[i] <= r) {
+                continue;
+            }
+
+            set_u32(adrs, OFFSET_CHAIN_ADDR, i);
+            set_u32(adrs, OFFSET_HASH_ADDR, start[i] + r);
+            compress_adrs(msgs[count], adrs);
+            memcpy(msgs[count] + ADRS_COMPRESSED_LEN, chains + i * SLHDSA_N, SLHDSA_N);
+            out[count] = chains + i * SLHDSA_N;
+
+            if (++count == LANES) {
+                memo_hash(&ctx->sha256Memo, ctx->sha256MemoState, msgs, ADRS_COMPRESSED_LEN + SLHDSA_N, out, count);
+                count = 0;
+            }
+        }
+
+        if (count > 0) {
+            memo_hash(&ctx->sha256Memo, ctx->sha256MemoState, msgs, ADRS_COMPRESSED_LEN + SLHDSA_N, out, count);
+        }
+    }
+
+    memzero(msgs, sizeof(msgs));
+}
+
+/**
+ * WOTS+ public key for the key pair address in adrsParam, as WotsPlus.pkGen
+ */
+static void wots_pk_gen(slhdsa_sha256 *ctx, uint8_t *out, uint8_t *skSeed, uint8_t *adrsParam) {
+    uint8_t chains[SLHDSA_WOTS_LEN * SLHDSA_N];
+    uint8_t start[SLHDSA_WOTS_LEN];
+    uint8_t steps[SLHDSA_WOTS_LEN];
+    uint8_t adrs[SLHDSA_ADRS_LEN];
+    uint8_t compressed[ADRS_COMPRESSED_LEN];
+    uint8_t dig[SHA256_SIZE];
+    sha256_ctx sha256Ctx;
+
+    memset(start, 0, SLHDSA_WOTS_LEN);
+    memset(steps, SLHDSA_WOTS_W - 1, SLHDSA_WOTS_LEN);
+
+    slhdsa_sha256_wots_chains(ctx, chains, skSeed, adrsParam, start, steps);
+
+    memcpy(adrs, adrsParam, SLHDSA_ADRS_LEN);
+    set_type_and_clear(adrs, WOTS_PK);
+    memcpy(adrs + OFFSET_KP_ADDR, adrsParam + OFFSET_KP_ADDR, 4);
+    compress_adrs(compressed, adrs);
+
+    // T_l
+    memcpy(&sha256Ctx, &ctx->msgMemo, sizeof(sha256_ctx));
+    sha256_update(&sha256Ctx, compressed, ADRS_COMPRESSED_LEN);
+    sha256_update(&sha256Ctx, chains, SLHDSA_WOTS_LEN * SLHDSA_N);
+    sha256_digest(&sha256Ctx, dig);
+    memcpy(out, dig, SLHDSA_N);
+
+    memzero(chains, sizeof(chains));
+    memzero(dig, sizeof(dig));
+    memzero(&sha256Ctx, sizeof(sha256_ctx));
+}
+
+/**
+ * Reduce the (1 << z) nodes to the root of their subtree, nodes[0] holds the root on return.
+ * The type and key pair address must already be set in adrs.
+ */
+static void tree_hash_levels(slhdsa_sha256 *ctx, uint8_t *nodes, uint32_t s, uint32_t z, uint8_t *adrs) {
+    uint8_t msgs[LANES][64];
+    uint8_t *out[LANES];
+
+    for (uint32_t h = 1; h <= z; h++) {
+        uint32_t count = 1u << (z - h);
+        set_u32(adrs, OFFSET_TREE_HGT, h);
+
+        //
+        // Outputs of a batch are only written to nodes that have already been read,
+        // so the level can be reduced in place.
+        //
+        for (uint32_t i = 0; i < count; i += LANES) {
+            size_t batch = count - i < LANES ? count - i : LANES;
+            for (size_t l = 0; l < batch; l++) {
+                uint32_t idx = i + (uint32_t) l;
+                set_u32(adrs, OFFSET_TREE_INDEX, (s >> h) + idx);
+                compress_adrs(msgs[l], adrs);
+                memcpy(msgs[l] + ADRS_COMPRESSED_LEN, nodes + (2 * idx) * SLHDSA_N, 2 * SLHDSA_N);
+                out[l] = nodes + idx * SLHDSA_N;
+            }
+            memo_hash(&ctx->msgMemo, ctx->msgMemoState, msgs, ADRS_COMPRESSED_LEN + 2 * SLHDSA_N, out, batch);
+        }
+    }
+}
+
+bool slhdsa_sha256_xmss_treehash(
+        slhdsa_sha256 *ctx,
+        uint8_t *out,
+        uint8_t *skSeed,
+        uint32_t s,
+        uint32_t z,
+        uint8_t *adrsParam) {
+
+    assert(z <= SLHDSA_MAX_TREE_HEIGHT);
+
+    uint32_t leaves = 1u << z;
+    uint8_t *nodes = malloc(leaves * SLHDSA_N);
+    if (nodes == NULL) {
+        return false;
+    }
+
+    uint8_t adrs[SLHDSA_ADRS_LEN];
+    memcpy(adrs, adrsParam, SLHDSA_ADRS_LEN);
+
+    for (uint32_t idx = 0; idx < leaves; idx++) {
+        set_type_and_clear(adrs, WOTS_HASH);
+        set_u32(adrs, OFFSET_KP_ADDR, s + idx);
+        wots_pk_gen(ctx, nodes + idx * SLHDSA_N, skSeed, adrs);
+    }
+
+    set_type_and_clear(adrs, TREE);
+    tree_hash_levels(ctx, nodes, s, z, adrs);
+
+    memcpy(out, nodes, SLHDSA_N);
+
+    free(nodes);
+    return true;
+}
+
+bool slhdsa_sha256_fors_treehash(
+        slhdsa_sha256 *ctx,
+        uint8_t *out,
+        uint8_t *skSeed,
+        uint32_t s,
+        uint32_t z,
+        uint8_t *adrsParam) {
+
+    assert(z <= SLHDSA_MAX_TREE_HEIGHT);
+
+    uint32_t leaves = 1u << z;
+    uint8_t *nodes = malloc(leaves * SLHDSA_N);
+    if (nodes == NULL) {
+        return false;
+    }
+
+    uint8_t prfAdrs[SLHDSA_ADRS_LEN];
+    uint8_t treeAdrs[SLHDSA_ADRS_LEN];
+    uint8_t msgs[LANES][64];
+    uint8_t *nodeOut[LANES];
+
+    memcpy(prfAdrs, adrsParam, SLHDSA_ADRS_LEN);
+    set_type_and_clear(prfAdrs, FORS_PRF);
+    memcpy(prfAdrs + OFFSET_KP_ADDR, adrsParam + OFFSET_KP_ADDR, 4);
+
+    memcpy(treeAdrs, prfAdrs, SLHDSA_ADRS_LEN);
+    set_u32(treeAdrs, OFFSET_TYPE, FORS_TREE);
+
+    //
+    // Leaves, private key element by PRF then F.
+    //
+    for (uint32_t i = 0; i < leaves; i += LANES) {
+        size_t batch = leaves - i < LANES ? leaves - i : LANES;
+        for (size_t l = 0; l < batch; l++) {
+            set_u32(prfAdrs, OFFSET_TREE_INDEX, s + i + (uint32_t) l);
+            compress_adrs(msgs[l], prfAdrs);
+            memcpy(msgs[l] + ADRS_COMPRESSED_LEN, skSeed, SLHDSA_N);
+            nodeOut[l] = nodes + (i + l) * SLHDSA_N;
+        }
+        memo_hash(&ctx->sha256Memo, ctx->sha256MemoState, msgs, ADRS_COMPRESSED_LEN + SLHDSA_N, nodeOut, batch);
+
+        for (size_t l = 0; l < batch; l++) {
+            set_u32(treeAdrs, OFFSET_TREE_INDEX, s + i + (uint32_t) l);
+            compress_adrs(msgs[l], treeAdrs);
+            memcpy(msgs[l] + ADRS_COMPRESSED_LEN, nodeOut[l], SLHDSA_N);
+        }
+        memo_hash(&ctx->sha256Memo, ctx->sha256MemoState, msgs, ADRS_COMPRESSED_LEN + SLHDSA_N, nodeOut, batch);
+    }
+
+    tree_hash_levels(ctx, nodes, s, z, treeAdrs);
+
+    memcpy(out, nodes, SLHDSA_N);
+
+    memzero(msgs, sizeof(msgs));
+    memzero(nodes, leaves * SLHDSA_N);
+    free(nodes);
+    return true;
+}
@@ -7,8 +7,18 @@
 
 #include "../sha/sha256.h"
 #include "../util/xor.h"
+#include <stdbool.h>
 
 
+//
+// Tree level operations are for the n = 16, w = 16 parameter sets only.
+//
+#define SLHDSA_N 16
+#define SLHDSA_WOTS_W 16
+#define SLHDSA_WOTS_LEN 35
+#define SLHDSA_ADRS_LEN 32
+#define SLHDSA_MAX_TREE_HEIGHT 20
+
 typedef struct slhdsa_sha256 {
     sha256_ctx msgMemo;
     sha256_ctx sha256Memo;
@@ -16,6 +26,10 @@ typedef struct slhdsa_sha256 {
     sha256_ctx msgDigest;
     sha256_ctx sha256Digest;
 
+    // Chaining values of the memos, A to H, for use by the multi-buffer hash.
+    uint32_t msgMemoState[8];
+    uint32_t sha256MemoState[8];
+
 } slhdsa_sha256;
 
 slhdsa_sha256 *slhdsa_sha256_create_ctx();
@@ -61,5 +75,51 @@ void slhdsa_sha256_mgf256_mask(slhdsa_sha256 *ctx,
                                uint8_t *in3, size_t in3_len
 );
 
+/**
+ * Advance WOTS+ chains, chain i is advanced steps[i] times starting at hash address start[i].
+ * If skSeed is not NULL the chain inputs are first derived from it (the WOTS+ private key),
+ * otherwise they are taken from chains.
+ *
+ * @param chains SLHDSA_WOTS_LEN * SLHDSA_N bytes, chain values in and out.
+ * @param skSeed secret seed or NULL.
+ * @param adrs the 32 byte address with layer, tree and key pair address set.
+ */
+void slhdsa_sha256_wots_chains(
+        slhdsa_sha256 *ctx,
+        uint8_t *chains,
+        uint8_t *skSeed,
+        uint8_t *adrs,
+        uint8_t *start,
+        uint8_t *steps);
+
+/**
+ * Compute the root of the XMSS subtree of height z whose leftmost leaf is s, as HT.treehash.
+ *
+ * @param out SLHDSA_N bytes.
+ * @param adrs the 32 byte address with layer and tree address set.
+ * @return false if a work buffer could not be allocated.
+ */
+bool slhdsa_sha256_xmss_treehash(
+        slhdsa_sha256 *ctx,
+        uint8_t *out,
+        uint8_t *skSeed,
+        uint32_t s,
+        uint32_t z,
+        uint8_t *adrs);
+
+/**
+ * Compute the root of the FORS subtree of height z whose leftmost leaf is s, as Fors.treehash.
+ *
+ * @param out SLHDSA_N bytes.
+ * @param adrs the 32 byte address with layer, tree and key pair address set.
+ * @return false if a work buffer could not be allocated.
+ */
+bool slhdsa_sha256_fors_treehash(
+        slhdsa_sha256 *ctx,
+        uint8_t *out,
+        uint8_t *skSeed,
+        uint32_t s,
+        uint32_t z,
+        uint8_t *adrs);
 
 #endif //BC_LTS_C_SLHDSA_SHA256_H
@@ -0,0 +1,32 @@
+//
+//
+
+#ifndef BC_LTS_DIRECTBUFFER_H
+#define BC_LTS_DIRECTBUFFER_H
+
+#include <stddef.h>
+#include <jni.h>
+#include <stdbool.h>
+#include <stdint.h>
+
+/*
+ * Direct ByteBuffers are allocated outside the java heap and are never moved by the GC,
+ * so unlike critical arrays there is nothing to claim from the jvm and nothing to release.
+ */
+typedef struct {
+    uint8_t *address;
+    size_t size;
+    jobject buffer;
+} direct_buffer_ctx;
+
+
+/**
+ * Resolve the address and capacity of a direct ByteBuffer.
+ * @param ctx pointer to the direct_buffer_ctx
+ * @param env the java env
+ * @param buffer the ByteBuffer, may be NULL
+ * @return true if the buffer is NULL or is a direct buffer, false if the jvm did not supply an address.
+ */
+bool load_direct_ctx(direct_buffer_ctx *ctx, JNIEnv *env, jobject buffer);
+
+#endif //BC_LTS_DIRECTBUFFER_H
@@ -8,6 +8,7 @@
 #include "bytearraycritical.h"
 #include "longarraycritical.h"
 #include "bytearrays.h"
+#include "directbuffer.h"
 #include "exceptions.h"
 
 
@@ -785,4 +786,122 @@ static inline bool byte_processing_init(
 }
 
 
+/**
+ * Performs the validation of a single direct output buffer.
+ * Returns false if there is an issue while throwing an exception.
+ * @param env the java env
+ * @param output the output direct buffer context
+ * @param outBuffer the java ByteBuffer
+ * @param output_offset offset into the buffer
+ * @param output_length space available from the offset, this will be the remaining bytes of the java buffer
+ * @param outStart pass by reference
+ * @return true if ok
+ */
+static inline bool direct_output_init(
+        JNIEnv *env,
+        direct_buffer_ctx *output,
+        jobject outBuffer,
+        jint output_offset,
+        jint output_length,
+        uint8_t **outStart) {
+
+    if (outBuffer == NULL) {
+        throw_java_NPE(env, "output was null");
+        return false;
+    }
+
+    if (!load_direct_ctx(output, env, outBuffer)) {
+        throw_java_illegal_argument(env, "output was not a direct buffer");
+        return false;
+    }
+
+    if (output_offset < 0) {
+        throw_bc_output_length_exception(env, "output offset was negative");
+        return false;
+    }
+
+    if (output_length < 0) {
+        throw_bc_output_length_exception(env, "output len was negative");
+        return false;
+    }
+
+    if (!check_range(output->size, (size_t) output_offset, (size_t) output_length)) {
+        throw_bc_output_length_exception(env, "output buffer too short");
+        return false;
+    }
+
+    *outStart = output->address + output_offset;
+
+    return true;
+}
+
+
+/**
+ * Performs the validation for processing from one direct buffer into another.
+ * Returns false if there is an issue while throwing an exception.
+ *
+ * Unlike byte_processing_init there is nothing to release afterwards, the memory
+ * behind a direct buffer is not managed by the java heap.
+ *
+ * @param env the java env
+ * @param input the input direct buffer context
+ * @param output the output direct buffer context
+ * @param inBuffer the java input ByteBuffer
+ * @param input_offset offset into the input buffer
+ * @param length number of bytes to be processed
+ * @param outBuffer the java output ByteBuffer
+ * @param output_offset offset into the output buffer
+ * @param output_length space available in the output from the offset
+ * @param inStart pass by reference
+ * @param outStart pass by reference
+ * @return true if ok
+ */
+static inline bool direct_processing_init(
+        JNIEnv *env,
+        direct_buffer_ctx *input,
+        direct_buffer_ctx *output,
+        jobject inBuffer,
+        jint input_offset,
+        jint length,
+        jobject outBuffer,
+        jint output_offset,
+        jint output_length,
+        uint8_t **inStart,
+        uint8_t **outStart) {
+
+    if (inBuffer == NULL) {
+        throw_java_NPE(env, "input was null");
+        return false;
+    }
+
+    if (!load_direct_ctx(input, env, inBuffer)) {
+        throw_java_illegal_argument(env, "input was not a direct buffer");
+        return false;
+    }
+
+    if (input_offset < 0) {
+        throw_bc_data_length_exception(env, "input offset was negative");
+        return false;
+    }
+
+    if (length < 0) {
+        throw_bc_data_length_exception(env, "len was negative");
+        return false;
+    }
+
+    if (!check_range(input->size, (size_t) input_offset, (size_t) length)) {
+        throw_bc_data_length_exception(env, "input buffer too short");
+        return false;
+    }
+
+    if (!direct_output_init(env, output, outBuffer, output_offset, output_length, outStart)) {
+        return false;
+    }
+
+    *inStart = input->address + input_offset;
+
+    return true;
+}
+
+
 #endif //BC_FIPS_JNI_ASSERTS_H
@@ -2,7 +2,14 @@ package org.bouncycastle.openpgp.operator.bc;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
 
 import org.bouncycastle.bcpg.AEADAlgorithmTags;
 import org.bouncycastle.bcpg.AEADEncDataPacket;
@@ -29,6 +36,7 @@ import org.bouncycastle.openpgp.operator.PGPDataDecryptor;
 import org.bouncycastle.openpgp.operator.PGPDigestCalculator;
 import org.bouncycastle.util.Arrays;
 import org.bouncycastle.util.Exceptions;
+import org.bouncycastle.util.Integers;
 import org.bouncycastle.util.Pack;
 import org.bouncycastle.util.io.Streams;
 
@@ -145,6 +153,23 @@ public class BcAEADUtil
         throw new PGPException("AEAD only supported for AES and Camellia based algorithms");
     }
 
+    /**
+     * Create a cipher for each chunk that may be in flight at once, the first is the passed in cipher.
+     */
+    static AEADBlockCipher[] createAEADCiphers(int encAlgorithm, int aeadAlgorithm, AEADBlockCipher c, int count)
+        throws PGPException
+    {
+        AEADBlockCipher[] ciphers = new AEADBlockCipher[Math.max(1, count)];
+
+        ciphers[0] = c;
+        for (int i = 1; i != ciphers.length; i++)
+        {
+            ciphers[i] = createAEADCipher(encAlgorithm, aeadAlgorithm);
+        }
+
+        return ciphers;
+    }
+
     private interface Engine
     {
         BlockCipher newInstance();
@@ -156,9 +181,9 @@ public class BcAEADUtil
         switch (aeadAlgorithm)
         {
         case AEADAlgorithmTags.EAX:
-            return new EAXBlockCipher(engine.newInstance());
+            return EAXBlockCipher.newInstance(engine.newInstance());
         case AEADAlgorithmTags.OCB:
-            return new OCBBlockCipher(engine.newInstance(), engine.newInstance());
+            return OCBBlockCipher.newInstance(engine.newInstance(), engine.newInstance());
         case AEADAlgorithmTags.GCM:
             return GCMBlockCipher.newInstance(engine.newInstance());
         default:
@@ -180,6 +205,24 @@ public class BcAEADUtil
      */
     static PGPDataDecryptor createOpenPgpV5DataDecryptor(AEADEncDataPacket aeadEncDataPacket, PGPSessionKey sessionKey)
         throws PGPException
+    {
+        return createOpenPgpV5DataDecryptor(aeadEncDataPacket, sessionKey, null, 1);
+    }
+
+    /**
+     * Create a decryptor for OpenPGP v5 AED packets which decrypts up to chunksInFlight chunks at once.
+     *
+     * @param aeadEncDataPacket AEAD encrypted data packet
+     * @param sessionKey        session key retrieved from a version 5 symmetric-key encrypted session key packet
+     *                          or version 3 public-key encrypted session key packet.
+     * @param executor          executor to decrypt chunks on, null to decrypt on the reading thread.
+     * @param chunksInFlight    the maximum number of chunks being decrypted at once.
+     * @return decryptor for AEAD encrypted data packets
+     * @throws PGPException
+     */
+    static PGPDataDecryptor createOpenPgpV5DataDecryptor(AEADEncDataPacket aeadEncDataPacket, PGPSessionKey sessionKey,
+                                                         final Executor executor, int chunksInFlight)
+        throws PGPException
     {
         final int aeadAlgorithm = aeadEncDataPacket.getAEADAlgorithm();
         final byte[] iv = aeadEncDataPacket.getIV();
@@ -191,6 +234,8 @@ public class BcAEADUtil
         final KeyParameter secretKey = new KeyParameter(key);
 
         final AEADBlockCipher c = createAEADCipher(encAlgorithm, aeadAlgorithm);
+        final AEADBlockCipher[] ciphers = executor == null ? new AEADBlockCipher[]{ c }
+            : createAEADCiphers(encAlgorithm, aeadAlgorithm, c, chunksInFlight);
 
         return new PGPDataDecryptor()
         {
@@ -198,7 +243,7 @@ public class BcAEADUtil
             {
                 try
                 {
-                    return new PGPAeadInputStream(true, in, c, secretKey, iv, encAlgorithm, aeadAlgorithm, chunkSize, aaData);
+                    return new PGPAeadInputStream(true, in, ciphers, executor, secretKey, iv, encAlgorithm, aeadAlgorithm, chunkSize, aaData);
                 }
                 catch (IOException e)
                 {
@@ -229,6 +274,23 @@ public class BcAEADUtil
      */
     static PGPDataDecryptor createOpenPgpV6DataDecryptor(SymmetricEncIntegrityPacket seipd, PGPSessionKey sessionKey)
         throws PGPException
+    {
+        return createOpenPgpV6DataDecryptor(seipd, sessionKey, null, 1);
+    }
+
+    /**
+     * Create a data decryptor for SEIPD v2 packets which decrypts up to chunksInFlight chunks at once.
+     *
+     * @param seipd          version 2 symmetrically encrypted integrity-protected data packet
+     * @param sessionKey     session key as retrieved from a version 6 symmetric- or public-key-encrypted session key packet.
+     * @param executor       executor to decrypt chunks on, null to decrypt on the reading thread.
+     * @param chunksInFlight the maximum number of chunks being decrypted at once.
+     * @return decryptor
+     * @throws PGPException
+     */
+    static PGPDataDecryptor createOpenPgpV6DataDecryptor(SymmetricEncIntegrityPacket seipd, PGPSessionKey sessionKey,
+                                                         final Executor executor, int chunksInFlight)
+        throws PGPException
     {
         // We cannot handle v1 SEIPD packets in this method (OpenPGP v4)
         if (seipd.getVersion() == SymmetricEncIntegrityPacket.VERSION_1)
@@ -248,6 +310,8 @@ public class BcAEADUtil
 
         final KeyParameter secretKey = new KeyParameter(messageKey);
         final AEADBlockCipher c = createAEADCipher(cipherAlgo, aeadAlgo);
+        final AEADBlockCipher[] ciphers = executor == null ? new AEADBlockCipher[]{ c }
+            : createAEADCiphers(cipherAlgo, aeadAlgo, c, chunksInFlight);
 
         return new PGPDataDecryptor()
         {
@@ -255,7 +319,7 @@ public class BcAEADUtil
             {
                 try
                 {
-                    return new PGPAeadInputStream(false, in, c, secretKey, iv, cipherAlgo, aeadAlgo, chunkSize, aaData);
+                    return new PGPAeadInputStream(false, in, ciphers, executor, secretKey, iv, cipherAlgo, aeadAlgo, chunkSize, aaData);
                 }
                 catch (IOException e)
                 {
@@ -275,6 +339,56 @@ public class BcAEADUtil
         };
     }
 
+    /**
+     * Hand a chunk to the executor, processing it on the calling thread if the executor will not take it
+     * (for example because it has been shut down).
+     */
+    private static void submit(Executor executor, FutureTask<?> task)
+    {
+        try
+        {
+            executor.execute(task);
+        }
+        catch (RejectedExecutionException e)
+        {
+            task.run();
+        }
+    }
+
+    /**
+     * Wait for a chunk submitted to an executor, unwrapping any exception it failed with.
+     */
+    private static <T> T await(FutureTask<T> task)
+        throws IOException
+    {
+        try
+        {
+            return task.get();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted waiting for chunk");
+        }
+        catch (ExecutionException e)
+        {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException)
+            {
+                throw (IOException)cause;
+            }
+            if (cause instanceof RuntimeException)
+            {
+                throw (RuntimeException)cause;
+            }
+            if (cause instanceof Error)
+            {
+                throw (Error)cause;
+            }
+            throw Exceptions.ioException("exception processing chunk: " + cause.getMessage(), cause);
+        }
+    }
+
     protected static class PGPAeadInputStream
         extends InputStream
     {
@@ -293,6 +407,12 @@ public class BcAEADUtil
         private long totalBytes = 0;
         private final boolean isV5StyleAEAD;
 
+        // pipelined mode only, chunk i is opened with ciphers[i % ciphers.length].
+        private final AEADBlockCipher[] ciphers;
+        private final Executor executor;
+        private final ArrayDeque<FutureTask<byte[]>> pending = new ArrayDeque<FutureTask<byte[]>>();
+        private boolean inputDone;
+
         /**
          * InputStream for decrypting AEAD encrypted data.
          *
@@ -316,6 +436,38 @@ public class BcAEADUtil
                                   int chunkSize,
                                   byte[] aaData)
             throws IOException
+        {
+            this(isV5StyleAEAD, in, new AEADBlockCipher[]{ c }, null, secretKey, iv, encAlgorithm, aeadAlgorithm,
+                chunkSize, aaData);
+        }
+
+        /**
+         * InputStream for decrypting AEAD encrypted data which opens up to ciphers.length chunks at once
+         * on the passed in executor. Data is still returned in chunk order, and a chunk's data is only
+         * returned once its tag, and for the last chunk the final tag, has been verified.
+         *
+         * @param isV5StyleAEAD flavour of AEAD (OpenPGP v5 or v6)
+         * @param in            underlying InputStream
+         * @param ciphers       decryption ciphers, one for each chunk that may be in flight
+         * @param executor      executor to decrypt chunks on, null to decrypt on the reading thread
+         * @param secretKey     decryption key
+         * @param iv            initialization vector
+         * @param encAlgorithm  symmetric cipher algorithm
+         * @param aeadAlgorithm AEAD algorithm
+         * @param chunkSize     chunk size of the AEAD encryption
+         * @param aaData        associated data
+         * @throws IOException
+         */
+        public PGPAeadInputStream(boolean isV5StyleAEAD, InputStream in,
+                                  AEADBlockCipher[] ciphers,
+                                  Executor executor,
+                                  KeyParameter secretKey,
+                                  byte[] iv,
+                                  int encAlgorithm,
+                                  int aeadAlgorithm,
+                                  int chunkSize,
+                                  byte[] aaData)
+            throws IOException
         {
             this.isV5StyleAEAD = isV5StyleAEAD;
             this.in = in;
@@ -323,7 +475,9 @@ public class BcAEADUtil
             this.chunkLength = (int)getChunkLength(chunkSize);
             this.tagLen = AEADUtils.getAuthTagLength(aeadAlgorithm);
             this.buf = new byte[chunkLength + tagLen + tagLen]; // allow room for chunk tag and message tag
-            this.c = c;
+            this.c = ciphers[0];
+            this.ciphers = ciphers;
+            this.executor = ciphers.length > 1 ? executor : null;
             this.secretKey = secretKey;
             this.aaData = aaData;
 
@@ -403,9 +557,25 @@ public class BcAEADUtil
             return data.length - dataOff;
         }
 
+        public void close()
+            throws IOException
+        {
+            // abandon any chunks still being opened, the underlying stream is left as is.
+            inputDone = true;
+            while (!pending.isEmpty())
+            {
+                pending.removeFirst().cancel(false);
+            }
+        }
+
         private byte[] readBlock()
             throws IOException
         {
+            if (executor != null)
+            {
+                return readPipelinedBlock();
+            }
+
             // we initialise with the first 16 bytes as there is an additional 16 bytes following
             // the last chunk (which may not be the exact chunklength).
             int dataLen = Streams.readFully(in, buf, tagLen + tagLen, chunkLength);
@@ -414,64 +584,164 @@ public class BcAEADUtil
                 return null;
             }
 
+            byte[] decData = new byte[dataLen];
+            openChunk(c, chunkIndex, buf, dataLen, decData);
+
+            totalBytes += decData.length;
+            chunkIndex++;
+
+            System.arraycopy(buf, dataLen + tagLen, buf, 0, tagLen); // copy back the "tag"
+
+            if (dataLen != chunkLength)     // it's our last block
+            {
+                checkFinalTag(c, chunkIndex, totalBytes, buf);
+            }
+            else
+            {
+                Streams.readFully(in, buf, tagLen, tagLen);   // read the next tag bytes
+            }
+
+            return decData;
+        }
+
+        private byte[] readPipelinedBlock()
+            throws IOException
+        {
+            fill();
+
+            FutureTask<byte[]> next = pending.pollFirst();
+            if (next == null)
+            {
+                return null;
+            }
+
+            boolean opened = false;
+            try
+            {
+                byte[] decData = await(next);
+                opened = true;
+                return decData;
+            }
+            finally
+            {
+                if (!opened)
+                {
+                    next.cancel(false);
+                    close();
+                }
+            }
+        }
+
+        /**
+         * Read ahead and submit chunks until ciphers.length are in flight. The reading stays on the calling
+         * thread so the chunk boundaries and the final tag are found exactly as they are in sequential mode.
+         */
+        private void fill()
+            throws IOException
+        {
+            while (!inputDone && pending.size() < ciphers.length)
+            {
+                int dataLen = Streams.readFully(in, buf, tagLen + tagLen, chunkLength);
+                if (dataLen == 0)
+                {
+                    inputDone = true;
+                    break;
+                }
+
+                // chunks leave the queue in order, so the previous user of this cipher has completed.
+                final AEADBlockCipher cipher = ciphers[(int)(chunkIndex % ciphers.length)];
+                final long index = chunkIndex;
+                final byte[] ct = Arrays.copyOfRange(buf, 0, dataLen + tagLen);
+
+                totalBytes += dataLen;
+                chunkIndex++;
+
+                System.arraycopy(buf, dataLen + tagLen, buf, 0, tagLen); // copy back the "tag"
+
+                final long finalIndex = chunkIndex;
+                final long finalTotalBytes = totalBytes;
+                final byte[] finalTag;
+                if (dataLen != chunkLength)     // it's our last block
+                {
+                    finalTag = Arrays.copyOfRange(buf, 0, tagLen);
+                    inputDone = true;
+                }
+                else
+                {
+                    finalTag = null;
+                    Streams.readFully(in, buf, tagLen, tagLen);   // read the next tag bytes
+                }
+
+                FutureTask<byte[]> task = new FutureTask<byte[]>(new Callable<byte[]>()
+                {
+                    public byte[] call()
+                        throws IOException
+                    {
+                        byte[] decData = new byte[ct.length - tagLen];
+                        openChunk(cipher, index, ct, decData.length, decData);
+                        if (finalTag != null)
+                        {
+                            checkFinalTag(cipher, finalIndex, finalTotalBytes, finalTag);
+                        }
+                        return decData;
+                    }
+                });
+
+                submit(executor, task);
+                pending.addLast(task);
+            }
+        }
+
+        private void openChunk(AEADBlockCipher cipher, long index, byte[] ct, int dataLen, byte[] decData)
+            throws IOException
+        {
             byte[] adata = new byte[isV5StyleAEAD ? 13 : aaData.length];
             System.arraycopy(aaData, 0, adata, 0, aaData.length);
 
             if (isV5StyleAEAD)
             {
-                xorChunkId(adata, chunkIndex);
+                xorChunkId(adata, index);
             }
 
-            byte[] decData = new byte[dataLen];
             try
             {
-                c.init(false, new AEADParameters(secretKey, 128, getNonce(iv, chunkIndex)));  // always full tag.
+                cipher.init(false, new AEADParameters(secretKey, 128, getNonce(iv, index)));  // always full tag.
 
-                c.processAADBytes(adata, 0, adata.length);
+                cipher.processAADBytes(adata, 0, adata.length);
 
-                int len = c.processBytes(buf, 0, dataLen + tagLen, decData, 0);
+                int len = cipher.processBytes(ct, 0, dataLen + tagLen, decData, 0);
 
-                c.doFinal(decData, len);
+                cipher.doFinal(decData, len);
             }
             catch (InvalidCipherTextException e)
             {
-                throw new IOException("exception processing chunk " + chunkIndex + ": " + e.getMessage());
+                throw new IOException("exception processing chunk " + index + ": " + e.getMessage());
             }
+        }
 
-            totalBytes += decData.length;
-            chunkIndex++;
-
-            System.arraycopy(buf, dataLen + tagLen, buf, 0, tagLen); // copy back the "tag"
+        private void checkFinalTag(AEADBlockCipher cipher, long index, long total, byte[] tag)
+            throws IOException
+        {
+            byte[] adata = getAdata(isV5StyleAEAD, aaData, index, total);
 
-            if (dataLen != chunkLength)     // it's our last block
+            try
             {
-                adata = getAdata(isV5StyleAEAD, aaData, chunkIndex, totalBytes);
+                cipher.init(false, new AEADParameters(secretKey, 128, getNonce(iv, index)));  // always full tag.
 
-                try
+                cipher.processAADBytes(adata, 0, adata.length);
+                if (isV5StyleAEAD)
                 {
-                    c.init(false, new AEADParameters(secretKey, 128, getNonce(iv, chunkIndex)));  // always full tag.
-
-                    c.processAADBytes(adata, 0, adata.length);
-                    if (isV5StyleAEAD)
-                    {
-                        c.processAADBytes(Pack.longToBigEndian(totalBytes), 0, 8);
-                    }
+                    cipher.processAADBytes(Pack.longToBigEndian(total), 0, 8);
+                }
 
-                    c.processBytes(buf, 0, tagLen, buf, 0);
+                cipher.processBytes(tag, 0, tagLen, tag, 0);
 
-                    c.doFinal(buf, 0); // check final tag
-                }
-                catch (InvalidCipherTextException e)
-                {
-                    throw new IOException("exception processing final tag: " + e.getMessage());
-                }
+                cipher.doFinal(tag, 0); // check final tag
             }
-            else
+            catch (InvalidCipherTextException e)
             {
-                Streams.readFully(in, buf, tagLen, tagLen);   // read the next tag bytes
+                throw new IOException("exception processing final tag: " + e.getMessage());
             }
-
-            return decData;
         }
 
         private static byte[] getAdata(boolean isV5StyleAEAD, byte[] aaData, long chunkIndex, long totalBytes)
@@ -498,7 +768,6 @@ public class BcAEADUtil
     {
         private final boolean isV5StyleAEAD;
         private final OutputStream out;
-        private final byte[] data;
         private final AEADBlockCipher c;
         private final KeyParameter secretKey;
         private final byte[] aaData;
@@ -506,10 +775,17 @@ public class BcAEADUtil
         private final int chunkLength;
         private final int tagLen;
 
+        private byte[] data;
         private int dataOff;
         private long chunkIndex = 0;
         private long totalBytes = 0;
 
+        // pipelined mode only, chunk i is sealed with ciphers[i % ciphers.length].
+        private final AEADBlockCipher[] ciphers;
+        private final Executor executor;
+        private final ArrayDeque<SealedChunk> pending = new ArrayDeque<SealedChunk>();
+        private final ArrayDeque<byte[]> freeBuffers = new ArrayDeque<byte[]>();
+
         /**
          * OutputStream for AEAD encryption.
          *
@@ -529,14 +805,43 @@ public class BcAEADUtil
                                    byte[] iv, int encAlgorithm,
                                    int aeadAlgorithm,
                                    int chunkSize)
+        {
+            this(isV5StyleAEAD, out, new AEADBlockCipher[]{ c }, null, secretKey, iv, encAlgorithm, aeadAlgorithm,
+                chunkSize);
+        }
+
+        /**
+         * OutputStream for AEAD encryption which seals up to ciphers.length chunks at once on the passed
+         * in executor. Chunks are still written to the underlying stream in order, followed by the final tag.
+         *
+         * @param isV5StyleAEAD flavour of AEAD (OpenPGP v5 or v6)
+         * @param out           underlying OutputStream
+         * @param ciphers       AEAD ciphers, one for each chunk that may be in flight
+         * @param executor      executor to encrypt chunks on, null to encrypt on the writing thread
+         * @param secretKey     secret key
+         * @param iv            initialization vector
+         * @param encAlgorithm  encryption algorithm
+         * @param aeadAlgorithm aead algorithm
+         * @param chunkSize     chunk size of the AEAD encryption
+         */
+        public PGPAeadOutputStream(boolean isV5StyleAEAD,
+                                   OutputStream out,
+                                   AEADBlockCipher[] ciphers,
+                                   Executor executor,
+                                   KeyParameter secretKey,
+                                   byte[] iv, int encAlgorithm,
+                                   int aeadAlgorithm,
+                                   int chunkSize)
         {
             this.isV5StyleAEAD = isV5StyleAEAD;
             this.out = out;
             this.iv = iv;
             this.chunkLength = (int)getChunkLength(chunkSize);
             this.tagLen = AEADUtils.getAuthTagLength(aeadAlgorithm);
-            this.data = new byte[chunkLength];
-            this.c = c;
+            this.data = new byte[chunkLength + tagLen]; // sealed in place, so allow room for the tag
+            this.c = ciphers[0];
+            this.ciphers = ciphers;
+            this.executor = ciphers.length > 1 ? executor : null;
             this.secretKey = secretKey;
 
             aaData = createAAD(isV5StyleAEAD, encAlgorithm, aeadAlgorithm, chunkSize);
@@ -557,7 +862,7 @@ public class BcAEADUtil
         public void write(int b)
             throws IOException
         {
-            if (dataOff == data.length)
+            if (dataOff == chunkLength)
             {
                 writeBlock();
             }
@@ -567,19 +872,19 @@ public class BcAEADUtil
         public void write(byte[] b, int off, int len)
             throws IOException
         {
-            if (dataOff == data.length)
+            if (dataOff == chunkLength)
             {
                 writeBlock();
             }
 
-            if (len < data.length - dataOff)
+            if (len < chunkLength - dataOff)
             {
                 System.arraycopy(b, off, data, dataOff, len);
                 dataOff += len;
             }
             else
             {
-                int gap = data.length - dataOff;
+                int gap = chunkLength - dataOff;
                 System.arraycopy(b, off, data, dataOff, gap);
                 dataOff += gap;
                 writeBlock();
@@ -587,13 +892,13 @@ public class BcAEADUtil
                 len -= gap;
                 off += gap;
 
-                while (len >= data.length)
+                while (len >= chunkLength)
                 {
-                    System.arraycopy(b, off, data, 0, data.length);
-                    dataOff = data.length;
+                    System.arraycopy(b, off, data, 0, chunkLength);
+                    dataOff = chunkLength;
                     writeBlock();
-                    len -= data.length;
-                    off += data.length;
+                    len -= chunkLength;
+                    off += chunkLength;
                 }
 
                 if (len > 0)
@@ -613,35 +918,97 @@ public class BcAEADUtil
         private void writeBlock()
             throws IOException
         {
-            boolean v5StyleAEAD = isV5StyleAEAD;
+            if (executor == null)
+            {
+                out.write(data, 0, sealChunk(c, chunkIndex, data, dataOff));
+            }
+            else
+            {
+                // the chunk that last used this cipher has to be out of the way first.
+                if (pending.size() == ciphers.length)
+                {
+                    writePending();
+                }
+
+                final AEADBlockCipher cipher = ciphers[(int)(chunkIndex % ciphers.length)];
+                final long index = chunkIndex;
+                final byte[] chunk = data;
+                final int len = dataOff;
+
+                FutureTask<Integer> task = new FutureTask<Integer>(new Callable<Integer>()
+                {
+                    public Integer call()
+                        throws IOException
+                    {
+                        return Integers.valueOf(sealChunk(cipher, index, chunk, len));
+                    }
+                });
+
+                submit(executor, task);
+                pending.addLast(new SealedChunk(chunk, task));
+
+                data = freeBuffers.isEmpty() ? new byte[chunkLength + tagLen] : freeBuffers.removeFirst();
+            }
+
+            totalBytes += dataOff;
+            chunkIndex++;
+            dataOff = 0;
+        }
+
+        /**
+         * Write out the oldest chunk in flight, waiting for it if need be.
+         */
+        private void writePending()
+            throws IOException
+        {
+            SealedChunk chunk = pending.removeFirst();
 
-            byte[] adata = v5StyleAEAD ? new byte[13] : new byte[aaData.length];
+            boolean written = false;
+            try
+            {
+                int len = await(chunk.task).intValue();
+                out.write(chunk.buf, 0, len);
+                written = true;
+            }
+            finally
+            {
+                if (!written)
+                {
+                    chunk.task.cancel(false);
+                    while (!pending.isEmpty())
+                    {
+                        pending.removeFirst().task.cancel(false);
+                    }
+                }
+            }
+
+            freeBuffers.addLast(chunk.buf);
+        }
+
+        private int sealChunk(AEADBlockCipher cipher, long index, byte[] chunk, int len)
+            throws IOException
+        {
+            byte[] adata = isV5StyleAEAD ? new byte[13] : new byte[aaData.length];
             System.arraycopy(aaData, 0, adata, 0, aaData.length);
 
-            if (v5StyleAEAD)
+            if (isV5StyleAEAD)
             {
-                xorChunkId(adata, chunkIndex);
+                xorChunkId(adata, index);
             }
 
             try
             {
-                c.init(true, new AEADParameters(secretKey, 128, getNonce(iv, chunkIndex)));  // always full tag.
-                c.processAADBytes(adata, 0, adata.length);
+                cipher.init(true, new AEADParameters(secretKey, 128, getNonce(iv, index)));  // always full tag.
+                cipher.processAADBytes(adata, 0, adata.length);
 
-                int len = c.processBytes(data, 0, dataOff, data, 0);
-                out.write(data, 0, len);
+                int outLen = cipher.processBytes(chunk, 0, len, chunk, 0);
 
-                len = c.doFinal(data, 0);
-                out.write(data, 0, len);
+                return outLen + cipher.doFinal(chunk, outLen);
             }
             catch (InvalidCipherTextException e)
             {
-                throw new IOException("exception processing chunk " + chunkIndex + ": " + e.getMessage());
+                throw new IOException("exception processing chunk " + index + ": " + e.getMessage());
             }
-
-            totalBytes += dataOff;
-            chunkIndex++;
-            dataOff = 0;
         }
 
         private void finish()
@@ -651,6 +1018,11 @@ public class BcAEADUtil
             {
                 writeBlock();
             }
+            while (!pending.isEmpty())
+            {
+                writePending();
+            }
+
             boolean v5StyleAEAD = isV5StyleAEAD;
             byte[] adata = PGPAeadInputStream.getAdata(v5StyleAEAD, aaData, chunkIndex, totalBytes);
             try
@@ -671,5 +1043,17 @@ public class BcAEADUtil
             }
             out.close();
         }
+
+        private static class SealedChunk
+        {
+            final byte[] buf;
+            final FutureTask<Integer> task;
+
+            SealedChunk(byte[] buf, FutureTask<Integer> task)
+            {
+                this.buf = buf;
+                this.task = task;
+            }
+        }
     }
 }
@@ -1,5 +1,7 @@
 package org.bouncycastle.openpgp.operator.bc;
 
+import java.util.concurrent.Executor;
+
 import org.bouncycastle.bcpg.AEADEncDataPacket;
 import org.bouncycastle.bcpg.SymmetricEncIntegrityPacket;
 import org.bouncycastle.bcpg.SymmetricKeyAlgorithmTags;
@@ -24,6 +26,9 @@ import org.bouncycastle.openpgp.operator.PGPDataDecryptor;
 public class BcPBEDataDecryptorFactory
     extends PBEDataDecryptorFactory
 {
+    private Executor chunkExecutor;
+    private int chunksInFlight = 1;
+
     /**
      * Base constructor.
      *
@@ -35,6 +40,30 @@ public class BcPBEDataDecryptorFactory
         super(pass, calculatorProvider);
     }
 
+    /**
+     * Decrypt the chunks of AEAD encrypted data (OpenPGP v5 AED and v6 SEIPD packets) concurrently.
+     * <p>
+     * Up to chunksInFlight chunks are decrypted at once on the passed in executor. Plain text is still
+     * returned in order, and only once the tag for its chunk has been verified.
+     * </p>
+     *
+     * @param executor       executor to decrypt chunks on, null to decrypt on the reading thread.
+     * @param chunksInFlight the maximum number of chunks being decrypted at once.
+     * @return the current factory.
+     */
+    public BcPBEDataDecryptorFactory setChunkExecutor(Executor executor, int chunksInFlight)
+    {
+        if (chunksInFlight < 1)
+        {
+            throw new IllegalArgumentException("chunksInFlight must be at least 1");
+        }
+
+        this.chunkExecutor = executor;
+        this.chunksInFlight = chunksInFlight;
+
+        return this;
+    }
+
     /**
      * Recover the session key from a version 4 SKESK packet used in OpenPGP v4.
      *
@@ -152,7 +181,7 @@ public class BcPBEDataDecryptorFactory
     public PGPDataDecryptor createDataDecryptor(AEADEncDataPacket aeadEncDataPacket, PGPSessionKey sessionKey)
         throws PGPException
     {
-        return BcAEADUtil.createOpenPgpV5DataDecryptor(aeadEncDataPacket, sessionKey);
+        return BcAEADUtil.createOpenPgpV5DataDecryptor(aeadEncDataPacket, sessionKey, chunkExecutor, chunksInFlight);
     }
 
     // OpenPGP v6
@@ -160,6 +189,6 @@ public class BcPBEDataDecryptorFactory
     public PGPDataDecryptor createDataDecryptor(SymmetricEncIntegrityPacket seipd, PGPSessionKey sessionKey)
         throws PGPException
     {
-        return BcAEADUtil.createOpenPgpV6DataDecryptor(seipd, sessionKey);
+        return BcAEADUtil.createOpenPgpV6DataDecryptor(seipd, sessionKey, chunkExecutor, chunksInFlight);
     }
 }
\ No newline at end of file
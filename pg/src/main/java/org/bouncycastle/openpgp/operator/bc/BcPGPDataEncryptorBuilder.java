@@ -2,6 +2,7 @@ package org.bouncycastle.openpgp.operator.bc;
 
 import java.io.OutputStream;
 import java.security.SecureRandom;
+import java.util.concurrent.Executor;
 
 import org.bouncycastle.bcpg.AEADUtils;
 import org.bouncycastle.bcpg.SymmetricKeyAlgorithmTags;
@@ -31,6 +32,8 @@ public class BcPGPDataEncryptorBuilder
     private boolean isV5StyleAEAD = true; // TODO: change to false in 1.75
     private int aeadAlgorithm = -1;
     private int chunkSize;
+    private Executor chunkExecutor;
+    private int chunksInFlight = 1;
 
     /**
      * Constructs a new data encryptor builder for a specified cipher type.
@@ -110,6 +113,31 @@ public class BcPGPDataEncryptorBuilder
         return this;
     }
 
+    /**
+     * Encrypt the chunks of AEAD protected data concurrently.
+     * <p>
+     * Up to chunksInFlight chunks are encrypted at once on the passed in executor. The chunks, and the final
+     * authentication tag, are still written in order. This has no effect unless AEAD has been configured
+     * with {@link #setWithAEAD(int, int)}.
+     * </p>
+     *
+     * @param executor       executor to encrypt chunks on, null to encrypt on the writing thread.
+     * @param chunksInFlight the maximum number of chunks being encrypted at once.
+     * @return the current builder.
+     */
+    public BcPGPDataEncryptorBuilder setChunkExecutor(Executor executor, int chunksInFlight)
+    {
+        if (chunksInFlight < 1)
+        {
+            throw new IllegalArgumentException("chunksInFlight must be at least 1");
+        }
+
+        this.chunkExecutor = executor;
+        this.chunksInFlight = chunksInFlight;
+
+        return this;
+    }
+
     /**
      * Provide a user defined source of randomness.
      * <p>
@@ -219,6 +247,8 @@ public class BcPGPDataEncryptorBuilder
     {
         private final boolean isV5StyleAEAD;
         private final AEADBlockCipher c;
+        private final AEADBlockCipher[] ciphers;
+        private final Executor executor;
         private final byte[] keyBytes;
         private final byte[] iv;
 
@@ -252,13 +282,16 @@ public class BcPGPDataEncryptorBuilder
             }
 
             this.c = BcAEADUtil.createAEADCipher(encAlgorithm, aeadAlgorithm);
+            this.executor = chunkExecutor;
+            this.ciphers = executor == null ? new AEADBlockCipher[]{ c }
+                : BcAEADUtil.createAEADCiphers(encAlgorithm, aeadAlgorithm, c, chunksInFlight);
         }
 
         public OutputStream getOutputStream(OutputStream out)
         {
             try
             {
-                return new BcAEADUtil.PGPAeadOutputStream(isV5StyleAEAD, out, c, new KeyParameter(keyBytes), iv, encAlgorithm, aeadAlgorithm, chunkSize);
+                return new BcAEADUtil.PGPAeadOutputStream(isV5StyleAEAD, out, ciphers, executor, new KeyParameter(keyBytes), iv, encAlgorithm, aeadAlgorithm, chunkSize);
             }
             catch (Exception e)
             {
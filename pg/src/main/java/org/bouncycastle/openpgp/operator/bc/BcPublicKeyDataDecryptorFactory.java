@@ -2,6 +2,7 @@ package org.bouncycastle.openpgp.operator.bc;
 
 import java.io.IOException;
 import java.math.BigInteger;
+import java.util.concurrent.Executor;
 
 import org.bouncycastle.asn1.cryptlib.CryptlibObjectIdentifiers;
 import org.bouncycastle.asn1.edec.EdECObjectIdentifiers;
@@ -49,11 +50,38 @@ public class BcPublicKeyDataDecryptorFactory
 
     private final PGPPrivateKey pgpPrivKey;
 
+    private Executor chunkExecutor;
+    private int chunksInFlight = 1;
+
     public BcPublicKeyDataDecryptorFactory(PGPPrivateKey pgpPrivKey)
     {
         this.pgpPrivKey = pgpPrivKey;
     }
 
+    /**
+     * Decrypt the chunks of AEAD encrypted data (OpenPGP v5 AED and v6 SEIPD packets) concurrently.
+     * <p>
+     * Up to chunksInFlight chunks are decrypted at once on the passed in executor. Plain text is still
+     * returned in order, and only once the tag for its chunk has been verified.
+     * </p>
+     *
+     * @param executor       executor to decrypt chunks on, null to decrypt on the reading thread.
+     * @param chunksInFlight the maximum number of chunks being decrypted at once.
+     * @return the current factory.
+     */
+    public BcPublicKeyDataDecryptorFactory setChunkExecutor(Executor executor, int chunksInFlight)
+    {
+        if (chunksInFlight < 1)
+        {
+            throw new IllegalArgumentException("chunksInFlight must be at least 1");
+        }
+
+        this.chunkExecutor = executor;
+        this.chunksInFlight = chunksInFlight;
+
+        return this;
+    }
+
     @Override
     public byte[] recoverSessionData(int keyAlgorithm, byte[][] secKeyData, int pkeskVersion)
         throws PGPException
@@ -244,7 +272,7 @@ public class BcPublicKeyDataDecryptorFactory
     public PGPDataDecryptor createDataDecryptor(AEADEncDataPacket aeadEncDataPacket, PGPSessionKey sessionKey)
         throws PGPException
     {
-        return BcAEADUtil.createOpenPgpV5DataDecryptor(aeadEncDataPacket, sessionKey);
+        return BcAEADUtil.createOpenPgpV5DataDecryptor(aeadEncDataPacket, sessionKey, chunkExecutor, chunksInFlight);
     }
 
     // OpenPGP v6
@@ -252,7 +280,7 @@ public class BcPublicKeyDataDecryptorFactory
     public PGPDataDecryptor createDataDecryptor(SymmetricEncIntegrityPacket seipd, PGPSessionKey sessionKey)
         throws PGPException
     {
-        return BcAEADUtil.createOpenPgpV6DataDecryptor(seipd, sessionKey);
+        return BcAEADUtil.createOpenPgpV6DataDecryptor(seipd, sessionKey, chunkExecutor, chunksInFlight);
     }
 
     @FunctionalInterface
@@ -1,5 +1,7 @@
 package org.bouncycastle.openpgp.operator.bc;
 
+import java.util.concurrent.Executor;
+
 import org.bouncycastle.bcpg.AEADEncDataPacket;
 import org.bouncycastle.bcpg.SymmetricEncIntegrityPacket;
 import org.bouncycastle.crypto.BlockCipher;
@@ -16,11 +18,38 @@ public class BcSessionKeyDataDecryptorFactory
 {
     private final PGPSessionKey sessionKey;
 
+    private Executor chunkExecutor;
+    private int chunksInFlight = 1;
+
     public BcSessionKeyDataDecryptorFactory(PGPSessionKey sessionKey)
     {
         this.sessionKey = sessionKey;
     }
 
+    /**
+     * Decrypt the chunks of AEAD encrypted data (OpenPGP v5 AED and v6 SEIPD packets) concurrently.
+     * <p>
+     * Up to chunksInFlight chunks are decrypted at once on the passed in executor. Plain text is still
+     * returned in order, and only once the tag for its chunk has been verified.
+     * </p>
+     *
+     * @param executor       executor to decrypt chunks on, null to decrypt on the reading thread.
+     * @param chunksInFlight the maximum number of chunks being decrypted at once.
+     * @return the current factory.
+     */
+    public BcSessionKeyDataDecryptorFactory setChunkExecutor(Executor executor, int chunksInFlight)
+    {
+        if (chunksInFlight < 1)
+        {
+            throw new IllegalArgumentException("chunksInFlight must be at least 1");
+        }
+
+        this.chunkExecutor = executor;
+        this.chunksInFlight = chunksInFlight;
+
+        return this;
+    }
+
     @Override
     public PGPSessionKey getSessionKey()
     {
@@ -42,7 +71,7 @@ public class BcSessionKeyDataDecryptorFactory
     public PGPDataDecryptor createDataDecryptor(AEADEncDataPacket aeadEncDataPacket, PGPSessionKey sessionKey)
         throws PGPException
     {
-        return BcAEADUtil.createOpenPgpV5DataDecryptor(aeadEncDataPacket, sessionKey);
+        return BcAEADUtil.createOpenPgpV5DataDecryptor(aeadEncDataPacket, sessionKey, chunkExecutor, chunksInFlight);
     }
 
     // OpenPGP v6
@@ -50,7 +79,7 @@ public class BcSessionKeyDataDecryptorFactory
     public PGPDataDecryptor createDataDecryptor(SymmetricEncIntegrityPacket seipd, PGPSessionKey sessionKey)
             throws PGPException
     {
-        return BcAEADUtil.createOpenPgpV6DataDecryptor(seipd, sessionKey);
+        return BcAEADUtil.createOpenPgpV6DataDecryptor(seipd, sessionKey, chunkExecutor, chunksInFlight);
     }
 
 }
@@ -8,6 +8,9 @@ import java.io.OutputStream;
 import java.security.SecureRandom;
 import java.security.Security;
 import java.util.Date;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.bouncycastle.bcpg.AEADAlgorithmTags;
 import org.bouncycastle.bcpg.ArmoredInputStream;
@@ -128,6 +131,8 @@ public class PGPAeadTest
 
         roundTripEncryptionDecryptionTests();
 
+        pipelinedChunkTests();
+
         paddingPacketTests();
 
         preferredAEADAlgorithmsTests();
@@ -171,6 +176,144 @@ public class PGPAeadTest
         }
     }
 
+    private void pipelinedChunkTests()
+        throws Exception
+    {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try
+        {
+            SecureRandom random = new SecureRandom();
+            int[] aeadAlgs = new int[]{
+                AEADAlgorithmTags.EAX,
+                AEADAlgorithmTags.OCB,
+                AEADAlgorithmTags.GCM
+            };
+
+            for (int i = 0; i != aeadAlgs.length; i++)
+            {
+                for (int t = 0; t != 20; t++)
+                {
+                    boolean v5AEAD = (t & 1) != 0;
+                    byte[] plaintext = new byte[random.nextInt(64 * 40)];
+                    random.nextBytes(plaintext);
+                    int chunksInFlight = 1 + random.nextInt(6);
+
+                    // pipelined encryption, sequential and pipelined decryption
+                    byte[] pipelined = encryptChunked(v5AEAD, aeadAlgs[i], plaintext, executor, chunksInFlight);
+                    isTrue(Arrays.areEqual(plaintext, decryptChunked(pipelined, null, 1)));
+                    isTrue(Arrays.areEqual(plaintext, decryptChunked(pipelined, executor, chunksInFlight)));
+
+                    // sequential encryption, pipelined decryption
+                    byte[] sequential = encryptChunked(v5AEAD, aeadAlgs[i], plaintext, null, 1);
+                    isTrue(Arrays.areEqual(plaintext, decryptChunked(sequential, executor, chunksInFlight)));
+
+                    // a damaged chunk must fail the same way in both modes
+                    int pos = pipelined.length / 2 + random.nextInt(pipelined.length / 2);
+                    pipelined[pos] ^= 1;
+                    isEquals(decryptFailure(pipelined, null, 1), decryptFailure(pipelined, executor, chunksInFlight));
+                }
+            }
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+
+        rejectedChunkTests();
+    }
+
+    private void rejectedChunkTests()
+        throws Exception
+    {
+        // chunks the executor refuses are processed on the calling thread rather than left waiting
+        ExecutorService executor = Executors.newFixedThreadPool(1);
+        executor.shutdown();
+
+        SecureRandom random = new SecureRandom();
+        byte[] plaintext = new byte[64 * 20 + random.nextInt(64)];
+        random.nextBytes(plaintext);
+
+        for (int t = 0; t != 2; t++)
+        {
+            boolean v5AEAD = t != 0;
+            byte[] ciphertext = encryptChunked(v5AEAD, AEADAlgorithmTags.OCB, plaintext, executor, 4);
+            isTrue(Arrays.areEqual(plaintext, decryptChunked(ciphertext, executor, 4)));
+            isTrue(Arrays.areEqual(plaintext, decryptChunked(ciphertext, null, 1)));
+
+            ciphertext[ciphertext.length / 2 + random.nextInt(ciphertext.length / 2)] ^= 1;
+            isEquals(decryptFailure(ciphertext, null, 1), decryptFailure(ciphertext, executor, 4));
+        }
+    }
+
+    private byte[] encryptChunked(boolean v5AEAD, int aeadAlg, byte[] plaintext, Executor executor, int chunksInFlight)
+        throws PGPException, IOException
+    {
+        ByteArrayOutputStream ciphertextOut = new ByteArrayOutputStream();
+        BcPGPDataEncryptorBuilder encBuilder = new BcPGPDataEncryptorBuilder(SymmetricKeyAlgorithmTags.AES_128);
+        if (v5AEAD)
+        {
+            encBuilder.setUseV5AEAD();
+        }
+        else
+        {
+            encBuilder.setUseV6AEAD();
+        }
+        encBuilder.setWithAEAD(aeadAlg, 6);
+        encBuilder.setChunkExecutor(executor, chunksInFlight);
+
+        PGPEncryptedDataGenerator encGen = new PGPEncryptedDataGenerator(encBuilder, false);
+        encGen.setForceSessionKey(true);
+        encGen.addMethod(new BcPBEKeyEncryptionMethodGenerator(PASSWORD,
+            new BcPGPDigestCalculatorProvider().get(HashAlgorithmTags.SHA256)));
+        OutputStream encOut = encGen.open(ciphertextOut, new byte[1 << 9]);
+        PGPLiteralDataGenerator litGen = new PGPLiteralDataGenerator();
+        OutputStream litOut = litGen.open(encOut, PGPLiteralData.BINARY, "", new Date(), new byte[1 << 9]);
+
+        litOut.write(plaintext);
+        litOut.close();
+        encOut.close();
+
+        return ciphertextOut.toByteArray();
+    }
+
+    private byte[] decryptChunked(byte[] ciphertext, Executor executor, int chunksInFlight)
+        throws PGPException, IOException
+    {
+        PGPObjectFactory objectFactory = new BcPGPObjectFactory(ciphertext);
+        PGPEncryptedDataList encryptedDataList = (PGPEncryptedDataList)objectFactory.nextObject();
+        PGPPBEEncryptedData encryptedData = (PGPPBEEncryptedData)encryptedDataList.get(0);
+
+        BcPBEDataDecryptorFactory decryptorFactory = new BcPBEDataDecryptorFactory(PASSWORD,
+            new BcPGPDigestCalculatorProvider());
+        decryptorFactory.setChunkExecutor(executor, chunksInFlight);
+
+        InputStream decryptedIn = encryptedData.getDataStream(decryptorFactory);
+        objectFactory = new BcPGPObjectFactory(decryptedIn);
+        PGPLiteralData literalData = (PGPLiteralData)objectFactory.nextObject();
+
+        return Streams.readAll(literalData.getDataStream());
+    }
+
+    private String decryptFailure(byte[] ciphertext, Executor executor, int chunksInFlight)
+    {
+        try
+        {
+            decryptChunked(ciphertext, executor, chunksInFlight);
+        }
+        catch (Exception e)
+        {
+            // a damaged first chunk is found when the stream is opened.
+            Throwable cause = e;
+            while (cause.getCause() != null)
+            {
+                cause = cause.getCause();
+            }
+            return cause.getMessage();
+        }
+        fail("damaged chunk accepted");
+        return null;
+    }
+
     private void knownV5TestVectorDecryptionTests()
         throws IOException, PGPException
     {
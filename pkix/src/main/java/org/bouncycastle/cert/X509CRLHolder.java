@@ -27,6 +27,7 @@ import org.bouncycastle.asn1.x500.X500Name;
 import org.bouncycastle.asn1.x509.AlgorithmIdentifier;
 import org.bouncycastle.asn1.x509.AltSignatureAlgorithm;
 import org.bouncycastle.asn1.x509.AltSignatureValue;
+import org.bouncycastle.asn1.x509.CRLEntryIndex;
 import org.bouncycastle.asn1.x509.CertificateList;
 import org.bouncycastle.asn1.x509.Extension;
 import org.bouncycastle.asn1.x509.Extensions;
@@ -51,6 +52,7 @@ public class X509CRLHolder
     private transient boolean isIndirect;
     private transient Extensions extensions;
     private transient GeneralNames issuerName;
+    private transient volatile CRLEntryIndex entryIndex;
 
     private static CertificateList parseStream(InputStream stream)
         throws IOException
@@ -169,28 +171,31 @@ public class X509CRLHolder
 
     public X509CRLEntryHolder getRevokedCertificate(BigInteger serialNumber)
     {
-        GeneralNames currentCA = issuerName;
-        for (Enumeration en = x509CRL.getRevokedCertificateEnumeration(); en.hasMoreElements(); )
+        CRLEntryIndex index = entryIndex;
+        if (index == null)
         {
-            TBSCertList.CRLEntry entry = (TBSCertList.CRLEntry)en.nextElement();
+            // NOTE: the index is immutable, so a race just builds it more than once.
+            index = new CRLEntryIndex(x509CRL.getTBSCertList(), isIndirect);
+            entryIndex = index;
+        }
 
-            if (entry.getUserCertificate().hasValue(serialNumber))
-            {
-                return new X509CRLEntryHolder(entry, isIndirect, currentCA);
-            }
+        int pos = index.indexOf(serialNumber);
+        if (pos < 0)
+        {
+            return null;
+        }
 
-            if (isIndirect && entry.hasExtensions())
+        GeneralNames currentCA = issuerName;
+        if (isIndirect)
+        {
+            GeneralNames certificateIssuer = index.getPrecedingCertificateIssuer(pos);
+            if (certificateIssuer != null)
             {
-                Extension currentCaName = entry.getExtensions().getExtension(Extension.certificateIssuer);
-
-                if (currentCaName != null)
-                {
-                    currentCA = GeneralNames.getInstance(currentCaName.getParsedValue());
-                }
+                currentCA = certificateIssuer;
             }
         }
 
-        return null;
+        return new X509CRLEntryHolder(index.getEntry(pos), isIndirect, currentCA);
     }
 
     /**
@@ -3,22 +3,31 @@ package org.bouncycastle.pkix.jcajce;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.lang.ref.WeakReference;
-import java.net.HttpURLConnection;
+import java.io.InterruptedIOException;
 import java.net.URI;
+import java.net.URLConnection;
 import java.security.cert.CRL;
 import java.security.cert.CRLException;
 import java.security.cert.CertificateFactory;
 import java.security.cert.X509CRL;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.Date;
 import java.util.Hashtable;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.WeakHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import javax.naming.Context;
 import javax.naming.NamingException;
@@ -30,65 +39,233 @@ import javax.naming.directory.InitialDirContext;
 import org.bouncycastle.jcajce.PKIXCRLStore;
 import org.bouncycastle.util.CollectionStore;
 import org.bouncycastle.util.Iterable;
+import org.bouncycastle.util.Properties;
 import org.bouncycastle.util.Selector;
 import org.bouncycastle.util.Store;
 
+/**
+ * Cache of CRLs downloaded from distribution points.
+ * <p>
+ * Concurrent requests for the same distribution point share a single download while other distribution
+ * points are fetched in parallel. A CRL approaching its nextUpdate is refreshed in the background, with
+ * the current copy being served until the new one arrives. The cache is bounded by the system properties
+ * "org.bouncycastle.x509.crl_cache_size" (number of distribution points, default 256) and
+ * "org.bouncycastle.x509.crl_cache_max_age" (seconds a download is kept for, default 3600).
+ * </p>
+ */
 class CrlCache
 {
     private static final int DEFAULT_TIMEOUT = 15000;
 
-    private static Map<URI, WeakReference<PKIXCRLStore>> cache =
-        Collections.synchronizedMap(new WeakHashMap<URI, WeakReference<PKIXCRLStore>>());
+    private static final int MAX_ENTRIES = Properties.asInteger("org.bouncycastle.x509.crl_cache_size", 256);
+    private static final long MAX_AGE = 1000L * Properties.asInteger("org.bouncycastle.x509.crl_cache_max_age", 3600);
+    private static final long MAX_REFRESH_AHEAD = 5 * 60 * 1000L;
 
-    static synchronized PKIXCRLStore getCrl(CertificateFactory certFact, Date validDate, URI distributionPoint)
+    private static final ConcurrentMap<URI, CacheEntry> cache = new ConcurrentHashMap<URI, CacheEntry>();
+    private static final ConcurrentMap<URI, FutureTask<CacheEntry>> loading = new ConcurrentHashMap<URI, FutureTask<CacheEntry>>();
+
+    private static volatile Executor refreshExecutor;
+
+    static PKIXCRLStore getCrl(CertificateFactory certFact, Date validDate, URI distributionPoint)
         throws IOException, CRLException
     {
-        PKIXCRLStore crlStore = null;
+        long now = System.currentTimeMillis();
 
-        WeakReference<PKIXCRLStore> markerRef = (WeakReference)cache.get(distributionPoint);
-        if (markerRef != null)
+        CacheEntry entry = cache.get(distributionPoint);
+        if (entry != null && entry.isUsable(validDate, now))
         {
-            crlStore = (PKIXCRLStore)markerRef.get();
+            entry.lastUsed = now;
+
+            if (entry.isRefreshDue(validDate, now))
+            {
+                refreshInBackground(certFact, distributionPoint);
+            }
+
+            return entry.crlStore;
         }
 
-        if (crlStore != null)
+        return load(certFact, distributionPoint).crlStore;
+    }
+
+    /**
+     * Fetch the CRLs for a distribution point, or wait for a fetch already in progress.
+     */
+    private static CacheEntry load(CertificateFactory certFact, URI distributionPoint)
+        throws IOException, CRLException
+    {
+        FutureTask<CacheEntry> task = newLoadTask(certFact, distributionPoint);
+
+        FutureTask<CacheEntry> existing = loading.putIfAbsent(distributionPoint, task);
+        if (existing != null)
         {
-            boolean isExpired = false;
-            for (Iterator it = crlStore.getMatches(null).iterator(); it.hasNext();)
+            task = existing;
+        }
+        else
+        {
+            task.run();
+        }
+
+        try
+        {
+            return task.get();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted waiting for CRL from: " + distributionPoint);
+        }
+        catch (ExecutionException e)
+        {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException)
+            {
+                throw (IOException)cause;
+            }
+            if (cause instanceof CRLException)
+            {
+                throw (CRLException)cause;
+            }
+            if (cause instanceof RuntimeException)
+            {
+                throw (RuntimeException)cause;
+            }
+            if (cause instanceof Error)
+            {
+                throw (Error)cause;
+            }
+            throw new CRLException("unable to load CRL from: " + distributionPoint, cause);
+        }
+    }
+
+    private static void refreshInBackground(CertificateFactory certFact, URI distributionPoint)
+    {
+        if (loading.containsKey(distributionPoint))
+        {
+            return;
+        }
+
+        final CertificateFactory refreshFact;
+        try
+        {
+            // the caller's factory may be in use by the caller's thread, so create our own
+            refreshFact = CertificateFactory.getInstance(certFact.getType(), certFact.getProvider());
+        }
+        catch (Exception e)
+        {
+            return;
+        }
+
+        final FutureTask<CacheEntry> task = newLoadTask(refreshFact, distributionPoint);
+        if (loading.putIfAbsent(distributionPoint, task) != null)
+        {
+            return;
+        }
+
+        try
+        {
+            getRefreshExecutor().execute(task);
+        }
+        catch (RejectedExecutionException e)
+        {
+            loading.remove(distributionPoint, task);
+        }
+    }
+
+    private static FutureTask<CacheEntry> newLoadTask(CertificateFactory certFact, URI distributionPoint)
+    {
+        Loader loader = new Loader(certFact, distributionPoint);
+        loader.task = new FutureTask<CacheEntry>(loader);
+        return loader.task;
+    }
+
+    private static Executor getRefreshExecutor()
+    {
+        Executor executor = refreshExecutor;
+        if (executor == null)
+        {
+            synchronized (CrlCache.class)
+            {
+                executor = refreshExecutor;
+                if (executor == null)
+                {
+                    executor = new ThreadPoolExecutor(0, 4, 60, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(),
+                        new ThreadFactory()
+                        {
+                            public Thread newThread(Runnable r)
+                            {
+                                Thread t = new Thread(r, "BC CRL refresh");
+                                t.setDaemon(true);
+                                return t;
+                            }
+                        });
+                    refreshExecutor = executor;
+                }
+            }
+        }
+        return executor;
+    }
+
+    private static void add(URI distributionPoint, CacheEntry entry)
+    {
+        cache.put(distributionPoint, entry);
+
+        if (cache.size() > MAX_ENTRIES)
+        {
+            evict(entry.fetchedAt);
+        }
+    }
+
+    private static void evict(long now)
+    {
+        for (Iterator<CacheEntry> it = cache.values().iterator(); it.hasNext();)
+        {
+            if (now - it.next().fetchedAt > MAX_AGE)
             {
-                X509CRL crl = (X509CRL)it.next();
+                it.remove();
+            }
+        }
+
+        while (cache.size() > MAX_ENTRIES)
+        {
+            URI leastRecentlyUsed = null;
+            long oldestUse = Long.MAX_VALUE;
 
-                Date nextUpdate = crl.getNextUpdate();
-                if (nextUpdate != null && nextUpdate.before(validDate))
+            for (Iterator<Map.Entry<URI, CacheEntry>> it = cache.entrySet().iterator(); it.hasNext();)
+            {
+                Map.Entry<URI, CacheEntry> mapEntry = it.next();
+                if (mapEntry.getValue().lastUsed < oldestUse)
                 {
-                    isExpired = true;
-                    break;
+                    oldestUse = mapEntry.getValue().lastUsed;
+                    leastRecentlyUsed = mapEntry.getKey();
                 }
             }
 
-            if (!isExpired)
+            if (leastRecentlyUsed == null)
             {
-                return crlStore;
+                break;
             }
+            cache.remove(leastRecentlyUsed);
         }
+    }
 
-        Collection crls;
+    private static Collection fetchCrls(CertificateFactory certFact, URI distributionPoint)
+        throws IOException, CRLException
+    {
+        String scheme = distributionPoint.getScheme();
 
-        if (distributionPoint.getScheme().equals("ldap"))
+        if ("ldap".equalsIgnoreCase(scheme))
         {
-            crls = getCrlsFromLDAP(certFact, distributionPoint);
+            return getCrlsFromLDAP(certFact, distributionPoint);
+        }
+        else if ("http".equalsIgnoreCase(scheme) || "https".equalsIgnoreCase(scheme))
+        {
+            return getCrls(certFact, distributionPoint);
         }
         else
         {
-            // http, https, ftp
-            crls = getCrls(certFact, distributionPoint);
+            // the distribution point comes from the certificate, so never open file:, jar:, ftp: etc.
+            throw new CRLException("unsupported CRL distribution point scheme: " + distributionPoint);
         }
-
-        LocalCRLStore localCRLStore = new LocalCRLStore(new CollectionStore<CRL>(crls));
-
-        cache.put(distributionPoint, new WeakReference<PKIXCRLStore>(localCRLStore));
-
-        return localCRLStore;
     }
 
     private static Collection getCrlsFromLDAP(CertificateFactory certFact, URI distributionPoint)
@@ -125,17 +302,102 @@ class CrlCache
     private static Collection getCrls(CertificateFactory certFact, URI distributionPoint)
         throws IOException, CRLException
     {
-        HttpURLConnection crlCon = (HttpURLConnection)distributionPoint.toURL().openConnection();
+        URLConnection crlCon = distributionPoint.toURL().openConnection();
         crlCon.setConnectTimeout(DEFAULT_TIMEOUT);
         crlCon.setReadTimeout(DEFAULT_TIMEOUT);
 
         InputStream crlIn = crlCon.getInputStream();
+        try
+        {
+            return certFact.generateCRLs(crlIn);
+        }
+        finally
+        {
+            crlIn.close();
+        }
+    }
+
+    private static class Loader
+        implements Callable<CacheEntry>
+    {
+        private final CertificateFactory certFact;
+        private final URI distributionPoint;
 
-        Collection crls = certFact.generateCRLs(crlIn);
+        // set before the task is published, so visible to whichever thread runs it
+        FutureTask<CacheEntry> task;
 
-        crlIn.close();
+        Loader(CertificateFactory certFact, URI distributionPoint)
+        {
+            this.certFact = certFact;
+            this.distributionPoint = distributionPoint;
+        }
 
-        return crls;
+        public CacheEntry call()
+            throws Exception
+        {
+            try
+            {
+                Collection crls = fetchCrls(certFact, distributionPoint);
+
+                CacheEntry entry = new CacheEntry(new LocalCRLStore(new CollectionStore<CRL>(crls)),
+                    System.currentTimeMillis());
+
+                add(distributionPoint, entry);
+
+                return entry;
+            }
+            finally
+            {
+                // waiters already hold the task, so later callers will see the cache entry (or retry on failure)
+                loading.remove(distributionPoint, task);
+            }
+        }
+    }
+
+    private static class CacheEntry
+    {
+        final PKIXCRLStore crlStore;
+        final long fetchedAt;
+        final long nextUpdate;
+
+        volatile long lastUsed;
+
+        CacheEntry(PKIXCRLStore crlStore, long fetchedAt)
+        {
+            this.crlStore = crlStore;
+            this.fetchedAt = fetchedAt;
+            this.lastUsed = fetchedAt;
+
+            long earliest = Long.MAX_VALUE;
+            for (Iterator it = crlStore.getMatches(null).iterator(); it.hasNext();)
+            {
+                Date crlNextUpdate = ((X509CRL)it.next()).getNextUpdate();
+                if (crlNextUpdate != null && crlNextUpdate.getTime() < earliest)
+                {
+                    earliest = crlNextUpdate.getTime();
+                }
+            }
+            this.nextUpdate = earliest;
+        }
+
+        boolean isUsable(Date validDate, long now)
+        {
+            return !(nextUpdate < validDate.getTime()) && now - fetchedAt <= MAX_AGE;
+        }
+
+        boolean isRefreshDue(Date validDate, long now)
+        {
+            if (nextUpdate != Long.MAX_VALUE)
+            {
+                long refreshAhead = Math.min(MAX_REFRESH_AHEAD, (nextUpdate - fetchedAt) / 4);
+                if (validDate.getTime() >= nextUpdate - refreshAhead)
+                {
+                    return true;
+                }
+            }
+
+            return now - fetchedAt >= MAX_AGE - Math.min(MAX_REFRESH_AHEAD, MAX_AGE / 4);
+        }
     }
 
     private static class LocalCRLStore<T extends CRL>
@@ -0,0 +1,209 @@
+package org.bouncycastle.pkix.jcajce;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Security;
+import java.security.cert.CRLException;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.util.Date;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import junit.framework.TestCase;
+import org.bouncycastle.jcajce.PKIXCRLStore;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.bouncycastle.pkix.test.TestUtil;
+
+/**
+ * Check CRL downloads are shared between concurrent callers and that a slow distribution point
+ * does not hold up requests to other distribution points.
+ */
+public class CrlCacheTest
+    extends TestCase
+{
+    private static final int THREADS = 8;
+
+    private HttpServer server;
+    private byte[] crlEncoding;
+    private final ConcurrentMap<String, AtomicInteger> hits = new ConcurrentHashMap<String, AtomicInteger>();
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    protected void setUp()
+        throws Exception
+    {
+        if (Security.getProvider("BC") == null)
+        {
+            Security.addProvider(new BouncyCastleProvider());
+        }
+
+        KeyPairGenerator kpGen = KeyPairGenerator.getInstance("RSA", "BC");
+        kpGen.initialize(2048);
+        KeyPair caKp = kpGen.generateKeyPair();
+        X509Certificate caCert = TestUtil.makeTrustAnchor(caKp, "CN=CRL Cache Test CA");
+
+        crlEncoding = TestUtil.makeCrl(caCert, caKp.getPrivate(), BigInteger.valueOf(2)).getEncoded();
+
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", new HttpHandler()
+        {
+            public void handle(HttpExchange exchange)
+                throws IOException
+            {
+                String path = exchange.getRequestURI().getPath();
+                hitCounter(path).incrementAndGet();
+
+                if (path.startsWith("/slow"))
+                {
+                    try
+                    {
+                        release.await(30, TimeUnit.SECONDS);
+                    }
+                    catch (InterruptedException e)
+                    {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+
+                exchange.sendResponseHeaders(200, crlEncoding.length);
+                OutputStream out = exchange.getResponseBody();
+                out.write(crlEncoding);
+                out.close();
+            }
+        });
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+    }
+
+    protected void tearDown()
+    {
+        release.countDown();
+        server.stop(0);
+    }
+
+    public void testCached()
+        throws Exception
+    {
+        URI uri = uri("/cached");
+        CertificateFactory certFact = CertificateFactory.getInstance("X.509", "BC");
+
+        PKIXCRLStore first = CrlCache.getCrl(certFact, new Date(), uri);
+        PKIXCRLStore second = CrlCache.getCrl(certFact, new Date(), uri);
+
+        assertSame(first, second);
+        assertEquals(1, first.getMatches(null).size());
+        assertEquals(1, hitCounter("/cached").get());
+    }
+
+    public void testSingleFlight()
+        throws Exception
+    {
+        final URI slow = uri("/slow");
+        final PKIXCRLStore[] results = new PKIXCRLStore[THREADS];
+        final Exception[] failures = new Exception[THREADS];
+
+        Thread[] threads = new Thread[THREADS];
+        for (int i = 0; i != THREADS; i++)
+        {
+            final int index = i;
+            threads[i] = new Thread()
+            {
+                public void run()
+                {
+                    try
+                    {
+                        CertificateFactory certFact = CertificateFactory.getInstance("X.509", "BC");
+                        results[index] = CrlCache.getCrl(certFact, new Date(), slow);
+                    }
+                    catch (Exception e)
+                    {
+                        failures[index] = e;
+                    }
+                }
+            };
+            threads[i].start();
+        }
+
+        // wait for the download to start, the other threads should then queue behind it
+        for (int i = 0; hitCounter("/slow").get() == 0; i++)
+        {
+            assertTrue("slow download never started", i < 1000);
+            Thread.sleep(10);
+        }
+
+        // another distribution point must not be held up by the slow one
+        CertificateFactory certFact = CertificateFactory.getInstance("X.509", "BC");
+        assertNotNull(CrlCache.getCrl(certFact, new Date(), uri("/fast")));
+        assertEquals(1, hitCounter("/fast").get());
+
+        release.countDown();
+        for (int i = 0; i != THREADS; i++)
+        {
+            threads[i].join(30000);
+            assertNull(failures[i]);
+            assertSame(results[0], results[i]);
+        }
+
+        assertNotNull(results[0]);
+        assertEquals(1, hitCounter("/slow").get());
+    }
+
+    public void testUnsupportedScheme()
+        throws Exception
+    {
+        // a readable local file holding a valid CRL must still not be fetched
+        File crlFile = File.createTempFile("crlcache", ".crl");
+        try
+        {
+            OutputStream out = new FileOutputStream(crlFile);
+            out.write(crlEncoding);
+            out.close();
+
+            CertificateFactory certFact = CertificateFactory.getInstance("X.509", "BC");
+            try
+            {
+                CrlCache.getCrl(certFact, new Date(), crlFile.toURI());
+                fail("file: distribution point fetched");
+            }
+            catch (CRLException e)
+            {
+                assertTrue(e.getMessage().startsWith("unsupported CRL distribution point scheme"));
+            }
+        }
+        finally
+        {
+            crlFile.delete();
+        }
+    }
+
+    private AtomicInteger hitCounter(String path)
+    {
+        AtomicInteger counter = hits.get(path);
+        if (counter == null)
+        {
+            hits.putIfAbsent(path, new AtomicInteger());
+            counter = hits.get(path);
+        }
+        return counter;
+    }
+
+    private URI uri(String path)
+    {
+        // unique per test instance as the cache is shared across the JVM
+        return URI.create("http://127.0.0.1:" + server.getAddress().getPort() + path);
+    }
+}
@@ -41,6 +41,7 @@ import org.bouncycastle.asn1.util.ASN1Dump;
 import org.bouncycastle.asn1.x500.X500Name;
 import org.bouncycastle.asn1.x509.AlgorithmIdentifier;
 import org.bouncycastle.asn1.x509.CRLDistPoint;
+import org.bouncycastle.asn1.x509.CRLEntryIndex;
 import org.bouncycastle.asn1.x509.CRLNumber;
 import org.bouncycastle.asn1.x509.CertificateList;
 import org.bouncycastle.asn1.x509.Extension;
@@ -74,6 +75,8 @@ abstract class X509CRLImpl
     protected byte[] sigAlgParams;
     protected boolean isIndirect;
 
+    private volatile CRLEntryIndex entryIndex;
+
     X509CRLImpl(JcaJceHelper bcHelper, CertificateList c, String sigAlgName, byte[] sigAlgParams, boolean isIndirect)
     {
         this.bcHelper = bcHelper;
@@ -453,30 +456,37 @@ abstract class X509CRLImpl
 
     public X509CRLEntry getRevokedCertificate(BigInteger serialNumber)
     {
-        Enumeration certs = c.getRevokedCertificateEnumeration();
+        CRLEntryIndex entryIndex = getEntryIndex();
 
-        X500Name previousCertificateIssuer = null; // the issuer
-        while (certs.hasMoreElements())
+        int index = entryIndex.indexOf(serialNumber);
+        if (index < 0)
         {
-            TBSCertList.CRLEntry entry = (TBSCertList.CRLEntry)certs.nextElement();
+            return null;
+        }
 
-            if (entry.getUserCertificate().hasValue(serialNumber))
+        X500Name previousCertificateIssuer = null; // the issuer
+        if (isIndirect)
+        {
+            GeneralNames certificateIssuer = entryIndex.getPrecedingCertificateIssuer(index);
+            if (certificateIssuer != null)
             {
-                return new X509CRLEntryObject(entry, isIndirect, previousCertificateIssuer);
+                previousCertificateIssuer = X500Name.getInstance(certificateIssuer.getNames()[0].getName());
             }
+        }
 
-            if (isIndirect && entry.hasExtensions())
-            {
-                Extension currentCaName = entry.getExtensions().getExtension(Extension.certificateIssuer);
+        return new X509CRLEntryObject(entryIndex.getEntry(index), isIndirect, previousCertificateIssuer);
+    }
 
-                if (currentCaName != null)
-                {
-                    previousCertificateIssuer = X500Name.getInstance(GeneralNames.getInstance(currentCaName.getParsedValue()).getNames()[0].getName());
-                }
-            }
+    private CRLEntryIndex getEntryIndex()
+    {
+        // NOTE: the index is immutable, so a race just builds it more than once.
+        CRLEntryIndex index = entryIndex;
+        if (index == null)
+        {
+            index = new CRLEntryIndex(c.getTBSCertList(), isIndirect);
+            entryIndex = index;
         }
-
-        return null;
+        return index;
     }
 
     public Set getRevokedCertificates()
@@ -650,59 +660,57 @@ abstract class X509CRLImpl
             throw new IllegalArgumentException("X.509 CRL used with non X.509 Cert");
         }
 
-        Enumeration certs = c.getRevokedCertificateEnumeration();
-
-        X500Name caName = c.getIssuer();
+        CRLEntryIndex entryIndex = getEntryIndex();
+        if (entryIndex.size() == 0)
+        {
+            return false;
+        }
 
-        if (certs.hasMoreElements())
+        int index = entryIndex.indexOf(((X509Certificate)cert).getSerialNumber());
+        if (index < 0)
         {
-            BigInteger serial = ((X509Certificate)cert).getSerialNumber();
+            return false;
+        }
 
-            while (certs.hasMoreElements())
-            {
-                TBSCertList.CRLEntry entry = TBSCertList.CRLEntry.getInstance(certs.nextElement());
+        X500Name caName = c.getIssuer();
 
-                if (isIndirect && entry.hasExtensions())
-                {
-                    Extension currentCaName = entry.getExtensions().getExtension(Extension.certificateIssuer);
+        if (isIndirect)
+        {
+            TBSCertList.CRLEntry entry = entryIndex.getEntry(index);
 
-                    if (currentCaName != null)
-                    {
-                        caName = X500Name.getInstance(GeneralNames.getInstance(currentCaName.getParsedValue()).getNames()[0].getName());
-                    }
-                }
+            Extension currentCaName = entry.hasExtensions()
+                ? entry.getExtensions().getExtension(Extension.certificateIssuer)
+                : null;
 
-                if (entry.getUserCertificate().hasValue(serial))
-                {
-                    X500Name issuer;
+            GeneralNames certificateIssuer = currentCaName != null
+                ? GeneralNames.getInstance(currentCaName.getParsedValue())
+                : entryIndex.getPrecedingCertificateIssuer(index);
 
-                    if (cert instanceof X509Certificate)
-                    {
-                        issuer = X500Name.getInstance(((X509Certificate)cert).getIssuerX500Principal().getEncoded());
-                    }
-                    else
-                    {
-                        try
-                        {
-                            issuer = org.bouncycastle.asn1.x509.Certificate.getInstance(cert.getEncoded()).getIssuer();
-                        }
-                        catch (CertificateEncodingException e)
-                        {
-                            throw new IllegalArgumentException("Cannot process certificate: " + e.getMessage());
-                        }
-                    }
+            if (certificateIssuer != null)
+            {
+                caName = X500Name.getInstance(certificateIssuer.getNames()[0].getName());
+            }
+        }
 
-                    if (!caName.equals(issuer))
-                    {
-                        return false;
-                    }
+        X500Name issuer;
 
-                    return true;
-                }
+        if (cert instanceof X509Certificate)
+        {
+            issuer = X500Name.getInstance(((X509Certificate)cert).getIssuerX500Principal().getEncoded());
+        }
+        else
+        {
+            try
+            {
+                issuer = org.bouncycastle.asn1.x509.Certificate.getInstance(cert.getEncoded()).getIssuer();
+            }
+            catch (CertificateEncodingException e)
+            {
+                throw new IllegalArgumentException("Cannot process certificate: " + e.getMessage());
             }
         }
 
-        return false;
+        return caName.equals(issuer);
     }
 
     static byte[] getExtensionOctets(CertificateList c, ASN1ObjectIdentifier oid)
@@ -12,6 +12,7 @@ import java.security.Security;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import org.bouncycastle.crypto.digests.SHA512Digest;
 import org.bouncycastle.crypto.macs.HMac;
@@ -48,11 +49,19 @@ import org.bouncycastle.util.Strings;
  * org.bouncycastle.drbg.entropy_thread - if true the provider will start a single daemon thread for handling entropy requests,
  * rather than starting a thread periodically when samples are required.
  * </p>
+ * <p>
+ * org.bouncycastle.drbg.stripes - if set to a value greater than 1 the DEFAULT and NONCEANDIV SecureRandoms are each
+ * backed by that many independent DRBGs rather than a single shared one. Threads are spread across the DRBGs by
+ * thread ID, so heavily multi-threaded applications do not all contend for the one lock. Each DRBG is created on
+ * first use, is seeded from its own entropy source, and reseeds independently of the others.
+ * </p>
  */
 public class DRBG
 {
     private static final String PREFIX = DRBG.class.getName();
 
+    private static final String STRIPES_PROPERTY = "org.bouncycastle.drbg.stripes";
+
     // {"Provider class name","SecureRandomSpi class name"}
     private static final String[][] initialEntropySourceNames = new String[][]
         {
@@ -111,7 +120,7 @@ public class DRBG
     public static class Default
         extends SecureRandomSpi
     {
-        private static final SecureRandom random = createBaseRandom(true);
+        private static final SecureRandom random = createRandom(true);
 
         public Default()
         {
@@ -136,7 +145,7 @@ public class DRBG
     public static class NonceAndIV
         extends SecureRandomSpi
     {
-        private static final SecureRandom random = createBaseRandom(false);
+        private static final SecureRandom random = createRandom(false);
 
         public NonceAndIV()
         {
@@ -158,7 +167,25 @@ public class DRBG
         }
     }
 
-    private static SecureRandom createBaseRandom(boolean isPredictionResistant)
+    private static SecureRandom createRandom(boolean isPredictionResistant)
+    {
+        int stripes = Properties.asInteger(STRIPES_PROPERTY, 1);
+
+        if (stripes > 1)
+        {
+            return createStripedRandom(isPredictionResistant, stripes);
+        }
+
+        return createBaseRandom(isPredictionResistant, -1);
+    }
+
+    // package level for testing, the provider only creates these when STRIPES_PROPERTY is set.
+    static SecureRandom createStripedRandom(boolean isPredictionResistant, int stripes)
+    {
+        return new StripedSecureRandom(isPredictionResistant, stripes);
+    }
+
+    private static SecureRandom createBaseRandom(boolean isPredictionResistant, int stripe)
     {
         if (Properties.getPropertyValue("org.bouncycastle.drbg.entropysource") != null)
         {
@@ -166,9 +193,7 @@ public class DRBG
 
             EntropySource initSource = entropyProvider.get(16 * 8);
 
-            byte[] personalisationString = isPredictionResistant
-                ? generateDefaultPersonalizationString(initSource.getEntropy())
-                : generateNonceIVPersonalizationString(initSource.getEntropy());
+            byte[] personalisationString = generatePersonalizationString(isPredictionResistant, stripe, initSource.getEntropy());
 
             return new SP800SecureRandomBuilder(entropyProvider)
                 .setPersonalizationString(personalisationString)
@@ -187,9 +212,7 @@ public class DRBG
             }
             EntropySource source = new HybridEntropySource(entropyDaemon, 256);
 
-            byte[] personalisationString = isPredictionResistant
-                ? generateDefaultPersonalizationString(source.getEntropy())
-                : generateNonceIVPersonalizationString(source.getEntropy());
+            byte[] personalisationString = generatePersonalizationString(isPredictionResistant, stripe, source.getEntropy());
 
             return new SP800SecureRandomBuilder(new EntropySourceProvider()
             {
@@ -205,9 +228,7 @@ public class DRBG
         {
             EntropySource initSource = new OneShotHybridEntropySource(256);
 
-            byte[] personalisationString = isPredictionResistant
-                ? generateDefaultPersonalizationString(initSource.getEntropy())
-                : generateNonceIVPersonalizationString(initSource.getEntropy());
+            byte[] personalisationString = generatePersonalizationString(isPredictionResistant, stripe, initSource.getEntropy());
 
             return new SP800SecureRandomBuilder(new EntropySourceProvider()
             {
@@ -322,6 +343,20 @@ public class DRBG
         });
     }
 
+    private static byte[] generatePersonalizationString(boolean isPredictionResistant, int stripe, byte[] seed)
+    {
+        byte[] personalisationString = isPredictionResistant
+            ? generateDefaultPersonalizationString(seed)
+            : generateNonceIVPersonalizationString(seed);
+
+        if (stripe < 0)
+        {
+            return personalisationString;
+        }
+
+        return Arrays.concatenate(personalisationString, Strings.toByteArray("Stripe"), Pack.intToBigEndian(stripe));
+    }
+
     private static byte[] generateDefaultPersonalizationString(byte[] seed)
     {
         return Arrays.concatenate(Strings.toByteArray("Default"), seed,
@@ -343,6 +378,81 @@ public class DRBG
         }
     }
 
+    /**
+     * A SecureRandom spreading requests over a set of independent DRBGs, chosen by the calling thread's ID.
+     */
+    static class StripedSecureRandom
+        extends SecureRandom
+    {
+        private final boolean isPredictionResistant;
+        private final AtomicReferenceArray<SecureRandom> stripes;
+        private final Object[] stripeLocks;
+
+        StripedSecureRandom(boolean isPredictionResistant, int stripeCount)
+        {
+            super(null, null);       // prevent older JVMs from instance the Default PRNG.
+
+            this.isPredictionResistant = isPredictionResistant;
+            this.stripes = new AtomicReferenceArray<SecureRandom>(stripeCount);
+            this.stripeLocks = new Object[stripeCount];
+            for (int i = 0; i != stripeCount; i++)
+            {
+                stripeLocks[i] = new Object();
+            }
+        }
+
+        SecureRandom getStripe()
+        {
+            int index = (int)((Thread.currentThread().getId() & Long.MAX_VALUE) % stripes.length());
+
+            SecureRandom stripe = stripes.get(index);
+            if (stripe == null)
+            {
+                // seeding may block waiting for entropy, so only hold up threads wanting the same stripe
+                synchronized (stripeLocks[index])
+                {
+                    stripe = stripes.get(index);
+                    if (stripe == null)
+                    {
+                        stripe = createBaseRandom(isPredictionResistant, index);
+                        stripes.set(index, stripe);
+                    }
+                }
+            }
+
+            return stripe;
+        }
+
+        public String getAlgorithm()
+        {
+            return getStripe().getAlgorithm();
+        }
+
+        public void setSeed(byte[] seed)
+        {
+            getStripe().setSeed(seed);
+        }
+
+        public void setSeed(long seed)
+        {
+            // this will happen when SecureRandom() is created
+            if (stripes != null)
+            {
+                getStripe().setSeed(seed);
+            }
+        }
+
+        public void nextBytes(byte[] bytes)
+        {
+            getStripe().nextBytes(bytes);
+        }
+
+        public byte[] generateSeed(int numBytes)
+        {
+            return getStripe().generateSeed(numBytes);
+        }
+    }
+
     private static void sleep(long ms)
         throws InterruptedException
     {
@@ -50,7 +50,7 @@ public final class ChaCha
     {
         public BaseCC20P1305()
         {
-            super(new ChaCha20Poly1305(), true, 12);
+            super(ChaCha20Poly1305.newInstance(), true, 12);
         }
     }
 
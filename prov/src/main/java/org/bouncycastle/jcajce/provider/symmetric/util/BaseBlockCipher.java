@@ -67,6 +67,7 @@ public class BaseBlockCipher
         implements PBE
 {
     private static final int BUF_SIZE = 512;
+    private static final int STAGING_SIZE = 8192;
 
     //
     // specs we can handle.
@@ -492,7 +493,7 @@ public class BaseBlockCipher
                  * RFC 7253 4.2. Nonce is a string of no more than 120 bits
                  */
                 ivLength = 15;
-                cipher = new AEADGenericBlockCipher(new OCBBlockCipher(baseEngine, engineProvider.get()));
+                cipher = new AEADGenericBlockCipher(OCBBlockCipher.newInstance(baseEngine, engineProvider.get()));
             }
             else
             {
@@ -502,7 +503,7 @@ public class BaseBlockCipher
         else if (modeName.equals("EAX"))
         {
             ivLength = baseEngine.getBlockSize();
-            cipher = new AEADGenericBlockCipher(new EAXBlockCipher(baseEngine));
+            cipher = new AEADGenericBlockCipher(EAXBlockCipher.newInstance(baseEngine));
         }
         else if (modeName.equals("GCM-SIV"))
         {
@@ -1179,6 +1180,16 @@ public class BaseBlockCipher
                 packetCipherInstance = packetCipherInstance == null ? AESCCMPacketCipher.newInstance() :
                         packetCipherInstance;
             }
+            else if (modeName.equals("OCB"))
+            {
+                packetCipherInstance = packetCipherInstance == null ? AESOCBPacketCipher.newInstance() :
+                        packetCipherInstance;
+            }
+            else if (modeName.equals("EAX"))
+            {
+                packetCipherInstance = packetCipherInstance == null ? AESEAXPacketCipher.newInstance() :
+                        packetCipherInstance;
+            }
             else
             {
                 if (packetCipherInstance != null)
@@ -1362,6 +1373,28 @@ public class BaseBlockCipher
         }
     }
 
+    protected int engineUpdate(
+            ByteBuffer input,
+            ByteBuffer output)
+            throws ShortBufferException
+    {
+        updateCalled = true;
+        if (output.remaining() < cipher.getUpdateOutputSize(input.remaining()))
+        {
+            throw new ShortBufferException("output buffer too short for input.");
+        }
+
+        try
+        {
+            return cipher.processBytes(input, output);
+        }
+        catch (DataLengthException e)
+        {
+            // should never occur
+            throw new IllegalStateException(e.toString());
+        }
+    }
+
     protected byte[] engineDoFinal(
             byte[] input,
             int inputOffset,
@@ -1462,6 +1495,121 @@ public class BaseBlockCipher
 
     }
 
+    protected int engineDoFinal(
+            ByteBuffer input,
+            ByteBuffer output)
+            throws IllegalBlockSizeException, BadPaddingException, ShortBufferException
+    {
+        int inputLen = input.remaining();
+
+        if (output.remaining() < engineGetOutputSize(inputLen))
+        {
+            throw new ShortBufferException("output buffer too short for input.");
+        }
+
+        if (input.hasArray() && output.hasArray())
+        {
+            int len = engineDoFinal(input.array(), input.arrayOffset() + input.position(), inputLen,
+                    output.array(), output.arrayOffset() + output.position());
+            input.position(input.limit());
+            output.position(output.position() + len);
+
+            return len;
+        }
+
+        try
+        {
+            // No packet cipher here: it only takes arrays, so it would mean copying the whole message in and out.
+            int len = 0;
+            if (inputLen != 0)
+            {
+                len = cipher.processBytes(input, output);
+            }
+            return (len + cipher.doFinal(output));
+        }
+        catch (OutputLengthException e)
+        {
+            throw new IllegalBlockSizeException(e.getMessage());
+        }
+        catch (DataLengthException e)
+        {
+            throw new IllegalBlockSizeException(e.getMessage());
+        }
+    }
+
+    /**
+     * Process the remaining bytes of in using the byte[] methods of cipher. Buffers with an accessible backing
+     * array are used directly, anything else is staged through temporary arrays of at most STAGING_SIZE bytes.
+     */
+    private static int stageBytes(GenericBlockCipher cipher, ByteBuffer in, ByteBuffer out)
+            throws DataLengthException
+    {
+        int len = in.remaining();
+
+        if (in.hasArray() && out.hasArray())
+        {
+            int written = cipher.processBytes(in.array(), in.arrayOffset() + in.position(), len,
+                    out.array(), out.arrayOffset() + out.position());
+            in.position(in.limit());
+            out.position(out.position() + written);
+
+            return written;
+        }
+
+        byte[] inBuf = new byte[Math.min(len, STAGING_SIZE)];
+        // a mode holding back data (CTS keeps two blocks) can report a negative update size
+        byte[] outBuf = new byte[Math.max(0, cipher.getUpdateOutputSize(inBuf.length))];
+        int written = 0;
+
+        while (len > 0)
+        {
+            int chunk = Math.min(len, inBuf.length);
+            int required = cipher.getUpdateOutputSize(chunk);
+            if (required > outBuf.length)
+            {
+                Arrays.fill(outBuf, (byte) 0);
+                outBuf = new byte[required];
+            }
+
+            in.get(inBuf, 0, chunk);
+            int count = cipher.processBytes(inBuf, 0, chunk, outBuf, 0);
+            out.put(outBuf, 0, count);
+
+            written += count;
+            len -= chunk;
+        }
+
+        Arrays.fill(inBuf, (byte) 0);
+        Arrays.fill(outBuf, (byte) 0);
+
+        return written;
+    }
+
+    private static int stageDoFinal(GenericBlockCipher cipher, ByteBuffer out)
+            throws IllegalStateException, BadPaddingException
+    {
+        if (out.hasArray())
+        {
+            int written = cipher.doFinal(out.array(), out.arrayOffset() + out.position());
+            out.position(out.position() + written);
+
+            return written;
+        }
+
+        byte[] outBuf = new byte[cipher.getOutputSize(0)];
+        try
+        {
+            int written = cipher.doFinal(outBuf, 0);
+            out.put(outBuf, 0, written);
+
+            return written;
+        }
+        finally
+        {
+            Arrays.fill(outBuf, (byte) 0);
+        }
+    }
+
 
     private boolean isAEADModeName(
             String modeName)
@@ -1499,6 +1647,13 @@ public class BaseBlockCipher
         public int doFinal(byte[] out, int outOff)
                 throws IllegalStateException,
                 BadPaddingException;
+
+        public int processBytes(ByteBuffer in, ByteBuffer out)
+                throws DataLengthException;
+
+        public int doFinal(ByteBuffer out)
+                throws IllegalStateException,
+                BadPaddingException;
     }
 
     private static class BufferedGenericBlockCipher
@@ -1589,6 +1744,52 @@ public class BaseBlockCipher
             }
         }
 
+        public int processBytes(ByteBuffer in, ByteBuffer out)
+                throws DataLengthException
+        {
+            if (!(in.hasArray() && out.hasArray()) && isPassThrough(in.remaining()))
+            {
+                org.bouncycastle.crypto.BlockCipher mode = cipher.getUnderlyingCipher();
+
+                if (mode instanceof CTRModeCipher)
+                {
+                    return ((CTRModeCipher) mode).processBytes(in, out);
+                }
+                if (mode instanceof CFBModeCipher)
+                {
+                    return ((CFBModeCipher) mode).processBytes(in, out);
+                }
+                if (mode instanceof CBCModeCipher && in.remaining() % mode.getBlockSize() == 0)
+                {
+                    return ((CBCModeCipher) mode).processBlocks(in, out);
+                }
+            }
+
+            return stageBytes(this, in, out);
+        }
+
+        public int doFinal(ByteBuffer out)
+                throws IllegalStateException, BadPaddingException
+        {
+            return stageDoFinal(this, out);
+        }
+
+        /**
+         * The mode cipher can be handed the buffers directly if there is no padding or other special handling,
+         * nothing is currently buffered, and all of the input would be processed by this update anyway.
+         */
+        private boolean isPassThrough(int len)
+        {
+            if (!(cipher instanceof DefaultBufferedBlockCipher || cipher instanceof DefaultBufferedMultiBlockCipher)
+                    || cipher instanceof PaddedBufferedBlockCipher || cipher instanceof PaddedBufferedMultiBlockCipher
+                    || cipher instanceof CTSBlockCipher)
+            {
+                return false;
+            }
+
+            return cipher.getOutputSize(0) == 0 && cipher.getUpdateOutputSize(len) == len;
+        }
+
         @Override
         public String toString()
         {
@@ -1671,6 +1872,18 @@ public class BaseBlockCipher
                 eOut.erase();
             }
         }
+
+        public int processBytes(ByteBuffer in, ByteBuffer out)
+                throws DataLengthException
+        {
+            return stageBytes(this, in, out);
+        }
+
+        public int doFinal(ByteBuffer out)
+                throws IllegalStateException, BadPaddingException
+        {
+            return stageDoFinal(this, out);
+        }
     }
 
     private static class AEADGenericBlockCipher
@@ -1777,25 +1990,49 @@ public class BaseBlockCipher
             }
             catch (InvalidCipherTextException e)
             {
-                if (aeadBadTagConstructor != null)
+                throw createBadTag(e);
+            }
+        }
+
+        public int processBytes(ByteBuffer in, ByteBuffer out)
+                throws DataLengthException
+        {
+            return cipher.processBytes(in, out);
+        }
+
+        public int doFinal(ByteBuffer out)
+                throws IllegalStateException, BadPaddingException
+        {
+            try
+            {
+                return cipher.doFinal(out);
+            }
+            catch (InvalidCipherTextException e)
+            {
+                throw createBadTag(e);
+            }
+        }
+
+        private static BadPaddingException createBadTag(InvalidCipherTextException e)
+        {
+            if (aeadBadTagConstructor != null)
+            {
+                BadPaddingException aeadBadTag = null;
+                try
                 {
-                    BadPaddingException aeadBadTag = null;
-                    try
-                    {
-                        aeadBadTag = (BadPaddingException) aeadBadTagConstructor
-                                .newInstance(new Object[]{e.getMessage()});
-                    }
-                    catch (Exception i)
-                    {
-                        // Shouldn't happen, but fall through to BadPaddingException
-                    }
-                    if (aeadBadTag != null)
-                    {
-                        throw aeadBadTag;
-                    }
+                    aeadBadTag = (BadPaddingException) aeadBadTagConstructor
+                            .newInstance(new Object[]{e.getMessage()});
+                }
+                catch (Exception i)
+                {
+                    // Shouldn't happen, but fall through to BadPaddingException
+                }
+                if (aeadBadTag != null)
+                {
+                    return aeadBadTag;
                 }
-                throw new BadPaddingException(e.getMessage());
             }
+            return new BadPaddingException(e.getMessage());
         }
     }
 
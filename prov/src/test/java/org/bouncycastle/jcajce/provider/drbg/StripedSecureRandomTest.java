@@ -0,0 +1,114 @@
+package org.bouncycastle.jcajce.provider.drbg;
+
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import junit.framework.TestCase;
+import org.bouncycastle.util.encoders.Hex;
+
+/**
+ * Check the striped DRBG hands each thread the stripe for its ID, that the stripes are independent DRBGs, and
+ * that output does not repeat across threads.
+ */
+public class StripedSecureRandomTest
+    extends TestCase
+{
+    private static final int STRIPES = 4;
+    private static final int THREADS = 16;
+
+    public void testStripes()
+        throws Exception
+    {
+        implTestStripes(false);
+        implTestStripes(true);
+    }
+
+    private void implTestStripes(boolean isPredictionResistant)
+        throws Exception
+    {
+        final DRBG.StripedSecureRandom random =
+            (DRBG.StripedSecureRandom)DRBG.createStripedRandom(isPredictionResistant, STRIPES);
+
+        final SecureRandom[] seen = new SecureRandom[THREADS];
+        final long[] threadIds = new long[THREADS];
+        final List<byte[]> outputs = new ArrayList<byte[]>();
+        final List<Exception> failures = new ArrayList<Exception>();
+
+        Thread[] threads = new Thread[THREADS];
+        for (int t = 0; t != THREADS; t++)
+        {
+            final int index = t;
+            threads[t] = new Thread()
+            {
+                public void run()
+                {
+                    try
+                    {
+                        threadIds[index] = Thread.currentThread().getId();
+                        seen[index] = random.getStripe();
+
+                        for (int i = 0; i != 100; i++)
+                        {
+                            byte[] bytes = new byte[32];
+                            random.nextBytes(bytes);
+                            synchronized (outputs)
+                            {
+                                outputs.add(bytes);
+                            }
+                        }
+                    }
+                    catch (Exception e)
+                    {
+                        synchronized (failures)
+                        {
+                            failures.add(e);
+                        }
+                    }
+                }
+            };
+            threads[t].start();
+        }
+
+        for (int t = 0; t != THREADS; t++)
+        {
+            threads[t].join();
+        }
+
+        if (!failures.isEmpty())
+        {
+            throw failures.get(0);
+        }
+
+        // each stripe index is backed by one DRBG, and different indexes by different DRBGs
+        Map<Integer, SecureRandom> byIndex = new HashMap<Integer, SecureRandom>();
+        for (int t = 0; t != THREADS; t++)
+        {
+            assertNotNull(seen[t]);
+            assertFalse(seen[t] instanceof DRBG.StripedSecureRandom);
+
+            Integer stripe = Integer.valueOf((int)((threadIds[t] & Long.MAX_VALUE) % STRIPES));
+            SecureRandom previous = byIndex.get(stripe);
+            if (previous == null)
+            {
+                byIndex.put(stripe, seen[t]);
+            }
+            else
+            {
+                assertSame(previous, seen[t]);
+            }
+        }
+        assertTrue("threads all mapped to one stripe", byIndex.size() > 1);
+        assertEquals(byIndex.size(), new HashSet<SecureRandom>(byIndex.values()).size());
+
+        Set<String> unique = new HashSet<String>();
+        for (int i = 0; i != outputs.size(); i++)
+        {
+            assertTrue("repeated output", unique.add(Hex.toHexString((byte[])outputs.get(i))));
+        }
+    }
+}
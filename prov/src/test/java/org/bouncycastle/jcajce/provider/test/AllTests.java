@@ -27,6 +27,7 @@ public class AllTests
         suite.addTestSuite(HybridRandomProviderTest.class);
         suite.addTestSuite(PrivateConstructorTest.class);
         suite.addTestSuite(RandomTest.class);
+        suite.addTestSuite(org.bouncycastle.jcajce.provider.drbg.StripedSecureRandomTest.class);
         suite.addTestSuite(RFC3211WrapTest.class);
         suite.addTestSuite(SP80038GTest.class);
         suite.addTestSuite(CompositeKeyTest.class);
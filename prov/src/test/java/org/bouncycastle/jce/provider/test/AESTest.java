@@ -5,15 +5,18 @@ import java.io.ByteArrayOutputStream;
 import java.io.DataInputStream;
 import java.io.IOException;
 import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
 import java.security.InvalidAlgorithmParameterException;
 import java.security.Key;
 import java.security.SecureRandom;
 import java.security.Security;
 
+import javax.crypto.AEADBadTagException;
 import javax.crypto.Cipher;
 import javax.crypto.CipherInputStream;
 import javax.crypto.CipherOutputStream;
 import javax.crypto.NoSuchPaddingException;
+import javax.crypto.ShortBufferException;
 import javax.crypto.spec.IvParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
 
@@ -616,6 +619,221 @@ public class AESTest
         gcmTest();
         gcmTestWithRandom();
         ocbTest();
+        boolean nativeEnabled = CryptoServicesRegistrar.isNativeEnabled();
+        boolean packetCipherEnabled = CryptoServicesRegistrar.isPacketCipherEnabled();
+        try
+        {
+            for (int i = 0; i != 4; i++)
+            {
+                CryptoServicesRegistrar.setNativeEnabled((i & 1) == 0);
+                CryptoServicesRegistrar.setPacketCipherEnabled((i & 2) == 0);
+                byteBufferTest();
+            }
+        }
+        finally
+        {
+            CryptoServicesRegistrar.setNativeEnabled(nativeEnabled);
+            CryptoServicesRegistrar.setPacketCipherEnabled(packetCipherEnabled);
+        }
+    }
+
+    private void byteBufferTest()
+            throws Exception
+    {
+        String[] transforms = {
+                "AES/ECB/PKCS7Padding",
+                "AES/ECB/NoPadding",
+                "AES/CBC/PKCS7Padding",
+                "AES/CBC/NoPadding",
+                "AES/CTS/NoPadding",
+                "AES/CTR/NoPadding",
+                "AES/CFB/NoPadding",
+                "AES/OFB/NoPadding",
+                "AES/GCM/NoPadding",
+                "AES/CCM/NoPadding",
+                "AES/EAX/NoPadding",
+                "AES/OCB/NoPadding",
+        };
+
+        SecureRandom rand = new SecureRandom();
+
+        for (int t = 0; t != transforms.length; t++)
+        {
+            String transform = transforms[t];
+            boolean blockAligned = transform.startsWith("AES/ECB/NoPadding") || transform.startsWith("AES/CBC/NoPadding");
+
+            for (int i = 0; i != 50; i++)
+            {
+                byte[] key = new byte[16];
+                rand.nextBytes(key);
+                byte[] msg = new byte[16 + rand.nextInt(blockAligned ? 200 : 3000)];
+                if (blockAligned)
+                {
+                    msg = new byte[msg.length - msg.length % 16];
+                }
+                rand.nextBytes(msg);
+
+                Cipher c = Cipher.getInstance(transform, "BC");
+                SecretKeySpec keySpec = new SecretKeySpec(key, "AES");
+                if (transform.startsWith("AES/ECB"))
+                {
+                    c.init(Cipher.ENCRYPT_MODE, keySpec);
+                }
+                else
+                {
+                    byte[] iv = new byte[transform.startsWith("AES/CCM") || transform.startsWith("AES/GCM") ? 12 : transform.startsWith("AES/OCB") ? 15 : 16];
+                    rand.nextBytes(iv);
+                    c.init(Cipher.ENCRYPT_MODE, keySpec, new IvParameterSpec(iv));
+                }
+                byte[] expected = c.doFinal(msg);
+
+                Cipher enc = Cipher.getInstance(transform, "BC");
+                enc.init(Cipher.ENCRYPT_MODE, keySpec, c.getParameters());
+                byte[] ct = bufferCrypt(enc, msg, rand);
+                if (!areEqual(expected, ct))
+                {
+                    fail(transform + " ByteBuffer encryption failed");
+                }
+
+                Cipher dec = Cipher.getInstance(transform, "BC");
+                dec.init(Cipher.DECRYPT_MODE, keySpec, c.getParameters());
+                if (!areEqual(msg, bufferCrypt(dec, ct, rand)))
+                {
+                    fail(transform + " ByteBuffer decryption failed");
+                }
+
+                // one-shot doFinal(), no update() first
+                enc = Cipher.getInstance(transform, "BC");
+                enc.init(Cipher.ENCRYPT_MODE, keySpec, c.getParameters());
+                if (!areEqual(expected, oneShotCrypt(enc, msg, rand.nextBoolean())))
+                {
+                    fail(transform + " one-shot ByteBuffer encryption failed");
+                }
+
+                dec = Cipher.getInstance(transform, "BC");
+                dec.init(Cipher.DECRYPT_MODE, keySpec, c.getParameters());
+                if (!areEqual(msg, oneShotCrypt(dec, ct, rand.nextBoolean())))
+                {
+                    fail(transform + " one-shot ByteBuffer decryption failed");
+                }
+
+                if (isAEAD(transform))
+                {
+                    byte[] badCt = Arrays.clone(ct);
+                    badCt[rand.nextInt(badCt.length)] ^= 1;
+
+                    dec = Cipher.getInstance(transform, "BC");
+                    dec.init(Cipher.DECRYPT_MODE, keySpec, c.getParameters());
+                    try
+                    {
+                        oneShotCrypt(dec, badCt, true);
+                        fail(transform + " damaged ciphertext accepted");
+                    }
+                    catch (AEADBadTagException e)
+                    {
+                        // expected
+                    }
+                }
+            }
+        }
+
+        Cipher c = Cipher.getInstance("AES/CTR/NoPadding", "BC");
+        c.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(new byte[16], "AES"), new IvParameterSpec(new byte[16]));
+        try
+        {
+            c.update(ByteBuffer.allocateDirect(32), ByteBuffer.allocateDirect(31));
+            fail("no exception on short output buffer");
+        }
+        catch (ShortBufferException e)
+        {
+            isEquals("output buffer too short for input.", e.getMessage());
+        }
+    }
+
+    /**
+     * Run the data through update() in random sized pieces and then doFinal(), using a random mix of heap, direct
+     * and read-only buffers.
+     */
+    private byte[] bufferCrypt(Cipher c, byte[] data, SecureRandom rand)
+            throws Exception
+    {
+        ByteBuffer out = rand.nextBoolean()
+                ? ByteBuffer.allocateDirect(c.getOutputSize(data.length) + 7)
+                : ByteBuffer.allocate(c.getOutputSize(data.length) + 7);
+        out.position(rand.nextInt(8));
+        int start = out.position();
+
+        int off = 0;
+        while (off < data.length)
+        {
+            int len = Math.min(data.length - off, rand.nextInt(600));
+            ByteBuffer in = makeBuffer(data, off, len, rand);
+            c.update(in, out);
+            isTrue("update() left input", !in.hasRemaining());
+            off += len;
+        }
+
+        c.doFinal(makeBuffer(data, off, 0, rand), out);
+
+        byte[] result = new byte[out.position() - start];
+        out.flip();
+        out.position(start);
+        out.get(result);
+
+        return result;
+    }
+
+    /**
+     * Process the data with a single doFinal(), using direct buffers for both input and output or heap buffers
+     * for both.
+     */
+    private byte[] oneShotCrypt(Cipher c, byte[] data, boolean direct)
+            throws Exception
+    {
+        ByteBuffer in = direct ? ByteBuffer.allocateDirect(data.length) : ByteBuffer.allocate(data.length);
+        in.put(data);
+        in.flip();
+
+        int outLen = c.getOutputSize(data.length);
+        ByteBuffer out = direct ? ByteBuffer.allocateDirect(outLen) : ByteBuffer.allocate(outLen);
+
+        int len = c.doFinal(in, out);
+        isTrue("doFinal() left input", !in.hasRemaining());
+        isEquals(len, out.position());
+
+        byte[] result = new byte[len];
+        out.flip();
+        out.get(result);
+
+        return result;
+    }
+
+    private static boolean isAEAD(String transform)
+    {
+        return transform.startsWith("AES/GCM") || transform.startsWith("AES/CCM")
+                || transform.startsWith("AES/EAX") || transform.startsWith("AES/OCB");
+    }
+
+    private ByteBuffer makeBuffer(byte[] data, int off, int len, SecureRandom rand)
+    {
+        ByteBuffer buf;
+        switch (rand.nextInt(3))
+        {
+        case 0:
+            buf = ByteBuffer.allocateDirect(len);
+            buf.put(data, off, len);
+            buf.flip();
+            return buf;
+        case 1:
+            return ByteBuffer.wrap(data, off, len).asReadOnlyBuffer();
+        default:
+            buf = ByteBuffer.allocate(len + 5);
+            buf.position(5);
+            buf = buf.slice();
+            buf.put(data, off, len);
+            buf.flip();
+            return buf;
+        }
     }
 
     public static void main(
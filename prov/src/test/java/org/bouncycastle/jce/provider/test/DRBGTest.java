@@ -2,8 +2,13 @@ package org.bouncycastle.jce.provider.test;
 
 import java.security.SecureRandom;
 import java.security.Security;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.bouncycastle.util.encoders.Hex;
 import org.bouncycastle.util.test.SimpleTest;
 
 /**
@@ -27,6 +32,64 @@ public class DRBGTest
         Security.addProvider(new BouncyCastleProvider());
 
         SecureRandom.getInstance("DEFAULT", "BC");
+
+        concurrentTest("DEFAULT");
+        concurrentTest("NONCEANDIV");
+    }
+
+    private void concurrentTest(String algorithm)
+        throws Exception
+    {
+        final SecureRandom random = SecureRandom.getInstance(algorithm, "BC");
+        final List<byte[]> outputs = new ArrayList<byte[]>();
+        final List<Exception> failures = new ArrayList<Exception>();
+
+        Thread[] threads = new Thread[8];
+        for (int t = 0; t != threads.length; t++)
+        {
+            threads[t] = new Thread()
+            {
+                public void run()
+                {
+                    try
+                    {
+                        for (int i = 0; i != 200; i++)
+                        {
+                            byte[] bytes = new byte[32];
+                            random.nextBytes(bytes);
+                            synchronized (outputs)
+                            {
+                                outputs.add(bytes);
+                            }
+                        }
+                    }
+                    catch (Exception e)
+                    {
+                        synchronized (failures)
+                        {
+                            failures.add(e);
+                        }
+                    }
+                }
+            };
+            threads[t].start();
+        }
+
+        for (int t = 0; t != threads.length; t++)
+        {
+            threads[t].join();
+        }
+
+        if (!failures.isEmpty())
+        {
+            fail(algorithm + " generation failed: " + failures.get(0).getMessage(), failures.get(0));
+        }
+
+        Set<String> seen = new HashSet<String>();
+        for (int i = 0; i != outputs.size(); i++)
+        {
+            isTrue(algorithm + " repeated output", seen.add(Hex.toHexString((byte[])outputs.get(i))));
+        }
     }
 
     public static void main(
@@ -38,4 +38,12 @@ public interface BCSSLConnection
      * @return The {@link BCExtendedSSLSession}.
      */
     BCExtendedSSLSession getSession();
+
+    /**
+     * Returns whether TLS 1.3 early (0-RTT) data was accepted for this connection. See
+     * <a href="https://tools.ietf.org/html/rfc8446#section-4.2.10">RFC 8446 4.2.10</a> for details.
+     * 
+     * @return true if early data was accepted, otherwise false.
+     */
+    boolean isEarlyDataAccepted();
 }
@@ -5,8 +5,11 @@ import java.util.Vector;
 
 import org.bouncycastle.jsse.BCX509ExtendedKeyManager;
 import org.bouncycastle.jsse.BCX509ExtendedTrustManager;
+import org.bouncycastle.tls.CachingCertificateCompressor;
 import org.bouncycastle.tls.ProtocolVersion;
 import org.bouncycastle.tls.SignatureAndHashAlgorithm;
+import org.bouncycastle.tls.TlsCertificateCompressor;
+import org.bouncycastle.tls.ZlibCertificateCompressor;
 import org.bouncycastle.tls.crypto.impl.jcajce.JcaTlsCrypto;
 
 final class ContextData
@@ -19,6 +22,7 @@ final class ContextData
     private final ProvSSLSessionContext serverSessionContext;
     private final NamedGroupInfo.PerContext namedGroups;
     private final SignatureSchemeInfo.PerContext signatureSchemes;
+    private final TlsCertificateCompressor certificateCompressor;
 
     ContextData(ProvSSLContextSpi context, JcaTlsCrypto crypto, BCX509ExtendedKeyManager x509KeyManager,
         BCX509ExtendedTrustManager x509TrustManager)
@@ -31,6 +35,16 @@ final class ContextData
         this.serverSessionContext = new ProvSSLSessionContext(this);
         this.namedGroups = NamedGroupInfo.createPerContext(context.isFips(), crypto);
         this.signatureSchemes = SignatureSchemeInfo.createPerContext(context.isFips(), crypto, namedGroups);
+
+        // NOTE: Shared by the context's connections, so a server's chain is compressed once, not per handshake
+        this.certificateCompressor = new CachingCertificateCompressor(new ZlibCertificateCompressor());
+    }
+
+    Vector<TlsCertificateCompressor> getCertificateCompressors()
+    {
+        Vector<TlsCertificateCompressor> result = new Vector<TlsCertificateCompressor>(1);
+        result.add(certificateCompressor);
+        return result;
     }
 
     NamedGroupInfo.PerConnection getNamedGroupsClient(ProvSSLParameters sslParameters,
@@ -63,6 +63,11 @@ class ProvSSLConnection
         return tlsPeer.getSession();
     }
 
+    public boolean isEarlyDataAccepted()
+    {
+        return getTlsContext().getSecurityParametersConnection().isEarlyDataAccepted();
+    }
+
     protected TlsContext getTlsContext()
     {
         return tlsPeer.getTlsContext();
@@ -466,7 +466,7 @@ class ProvSSLEngine
             return new SSLEngineResult(Status.OK, initialHandshakeStatus, 0, 0);
         }
 
-        int bytesConsumed = 0;
+        int bytesConsumed = 0, bytesProduced = 0;
         try
         {
             RecordPreview preview = getRecordPreview(src);
@@ -480,10 +480,21 @@ class ProvSSLEngine
             }
 
             bytesConsumed = preview.getRecordSize();
-            byte[] record = new byte[bytesConsumed];
-            src.get(record);
 
-            protocol.offerInput(record, 0, record.length);
+            /*
+             * Offer exactly one record; application data is decrypted straight into the first destination
+             * with space when it can hold the whole record, and is otherwise queued as usual.
+             */
+            int srcLimit = src.limit();
+            ((java.nio.Buffer)src).limit(src.position() + bytesConsumed);
+            try
+            {
+                bytesProduced = protocol.offerInput(src, getFirstWritable(dsts, offset, length));
+            }
+            finally
+            {
+                ((java.nio.Buffer)src).limit(srcLimit);
+            }
         }
         catch (IOException e)
         {
@@ -507,7 +518,7 @@ class ProvSSLEngine
             return new SSLEngineResult(Status.OK, HandshakeStatus.NEED_WRAP, bytesConsumed, 0);
         }
 
-        int appDataAvailable = protocol.getAvailableInputBytes(), bytesProduced = 0;
+        int appDataAvailable = protocol.getAvailableInputBytes();
         for (int dstIndex = 0; appDataAvailable > 0; ++dstIndex)
         {
             ByteBuffer dst = dsts[offset + dstIndex];
@@ -614,28 +625,19 @@ class ProvSSLEngine
                         return new SSLEngineResult(Status.BUFFER_OVERFLOW, HandshakeStatus.NOT_HANDSHAKING, 0, 0);
                     }
 
-                    // TODO Support writing application data using ByteBuffer array directly
-
-                    byte[] buffer = new byte[srcLimit];
-
-                    for (int srcIndex = 0; srcIndex < length && bytesConsumed < srcLimit; ++srcIndex)
-                    {
-                        ByteBuffer src = srcs[offset + srcIndex];
-                        int count = Math.min(src.remaining(), srcLimit - bytesConsumed);
-                        if (count > 0)
-                        {
-                            src.get(buffer, bytesConsumed, count);
-                            bytesConsumed += count;
-                        }
-                    }
+                    int dstStart = dst.position();
 
-                    protocol.writeApplicationData(buffer, 0, bytesConsumed);
+                    bytesConsumed = protocol.writeApplicationData(srcs, offset, length, dst);
+                    assert bytesConsumed == srcLimit;
 
+                    // Any output the protocol could not encode directly into dst is still queued
                     bytesProduced = protocol.getAvailableOutputBytes();
-                    assert bytesProduced <= dstLimit;
+                    assert bytesProduced + (dst.position() - dstStart) <= dstLimit;
 
                     int numRead = protocol.readOutput(dst, bytesProduced);
                     assert numRead == bytesProduced;
+
+                    bytesProduced = dst.position() - dstStart;
                 }
 
                 return new SSLEngineResult(getStatus(), HandshakeStatus.NOT_HANDSHAKING, bytesConsumed, bytesProduced);
@@ -744,6 +746,19 @@ class ProvSSLEngine
         return protocol.isClosed() ? Status.CLOSED : Status.OK;
     }
 
+    private ByteBuffer getFirstWritable(ByteBuffer[] bufs, int off, int len)
+    {
+        for (int i = 0; i < len; ++i)
+        {
+            ByteBuffer buf = bufs[off + i];
+            if (buf.hasRemaining())
+            {
+                return buf;
+            }
+        }
+        return null;
+    }
+
     private int getTotalRemaining(ByteBuffer[] bufs, int off, int len, int limit)
     {
         int result = 0;
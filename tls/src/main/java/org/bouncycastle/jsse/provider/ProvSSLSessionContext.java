@@ -5,17 +5,23 @@ import java.lang.ref.SoftReference;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Enumeration;
-import java.util.HashMap;
 import java.util.Iterator;
-import java.util.LinkedHashMap;
 import java.util.Locale;
-import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.logging.Logger;
 
 import javax.net.ssl.SSLSession;
 import javax.net.ssl.SSLSessionContext;
 
+import org.bouncycastle.tls.DefaultTlsAntiReplayFilter;
+import org.bouncycastle.tls.DefaultTlsTicketKeyManager;
 import org.bouncycastle.tls.SessionID;
+import org.bouncycastle.tls.TlsAntiReplayFilter;
+import org.bouncycastle.tls.TlsTicketKeyManager;
 import org.bouncycastle.tls.TlsSession;
 import org.bouncycastle.tls.TlsUtils;
 import org.bouncycastle.tls.crypto.impl.jcajce.JcaTlsCrypto;
@@ -28,27 +34,28 @@ class ProvSSLSessionContext
     private static final int provSessionCacheSize = PropertyUtils
         .getIntegerSystemProperty("javax.net.ssl.sessionCacheSize", 20480, 0, Integer.MAX_VALUE);
 
-    // NOTE: This is configured as a simple LRU cache using the "access order" constructor
-    @SuppressWarnings("serial")
-    protected final Map<SessionID, SessionEntry> sessionsByID = new LinkedHashMap<SessionID, SessionEntry>(16, 0.75f, true)
-    {
-        protected boolean removeEldestEntry(Map.Entry<SessionID, SessionEntry> eldest)
-        {
-            boolean shouldRemove = sessionCacheSize > 0 && size() > sessionCacheSize;
-            if (shouldRemove)
-            {
-                removeSessionByPeer(eldest.getValue());
-            }
-            return shouldRemove;
-        }
-    };
-    protected final Map<String, SessionEntry> sessionsByPeer = new HashMap<String, SessionEntry>();
+    /*
+     * NOTE: Lookups never lock. Eviction is an approximate LRU using the CLOCK ("second chance")
+     * algorithm: entries are queued in insertion order, a lookup just marks its entry as accessed, and
+     * an accessed entry reaching the head of the queue is given another pass instead of being evicted.
+     * Only threads adding sessions to a full cache (or changing the limits) contend, on evictionLock.
+     */
+    protected final ConcurrentMap<SessionID, SessionEntry> sessionsByID = new ConcurrentHashMap<SessionID, SessionEntry>();
+    protected final ConcurrentMap<String, SessionEntry> sessionsByPeer = new ConcurrentHashMap<String, SessionEntry>();
     protected final ReferenceQueue<ProvSSLSession> sessionsQueue = new ReferenceQueue<ProvSSLSession>();
 
+    private final ConcurrentLinkedQueue<SessionEntry> evictionQueue = new ConcurrentLinkedQueue<SessionEntry>();
+    private final AtomicInteger evictionQueueLength = new AtomicInteger(0);
+    private final ReentrantLock evictionLock = new ReentrantLock();
+
     protected final ContextData contextData;
 
-    protected int sessionCacheSize = provSessionCacheSize;
-    protected int sessionTimeoutSeconds = 86400; // 24hrs (in seconds)
+    protected volatile int sessionCacheSize = provSessionCacheSize;
+    protected volatile int sessionTimeoutSeconds = 86400; // 24hrs (in seconds)
+
+    // Only used by a server session context, for TLS 1.3 session tickets
+    private TlsTicketKeyManager ticketKeyManager = null;
+    private TlsAntiReplayFilter antiReplayFilter = null;
 
     ProvSSLSessionContext(ContextData contextData)
     {
@@ -65,28 +72,21 @@ class ProvSSLSessionContext
         return contextData.getCrypto();
     }
 
-    synchronized ProvSSLSession getSessionImpl(byte[] sessionID)
+    ProvSSLSession getSessionImpl(byte[] sessionID)
     {
         processQueue();
 
         return accessSession(mapGet(sessionsByID, makeSessionID(sessionID)));
     }
 
-    synchronized ProvSSLSession getSessionImpl(String hostName, int port)
+    ProvSSLSession getSessionImpl(String hostName, int port)
     {
         processQueue();
 
-        SessionEntry sessionEntry = mapGet(sessionsByPeer, makePeerKey(hostName, port));
-        ProvSSLSession session = accessSession(sessionEntry);
-        if (session != null)
-        {
-            // NOTE: For the current simple cache implementation, need to 'access' the sessionByIDs entry
-            sessionsByID.get(sessionEntry.getSessionID());
-        }
-        return session;
+        return accessSession(mapGet(sessionsByPeer, makePeerKey(hostName, port)));
     }
 
-    synchronized void removeSession(byte[] sessionID)
+    void removeSession(byte[] sessionID)
     {
         SessionEntry sessionEntry = mapRemove(sessionsByID, makeSessionID(sessionID));
         if (null != sessionEntry)
@@ -95,7 +95,7 @@ class ProvSSLSessionContext
         }
     }
 
-    synchronized ProvSSLSession reportSession(String peerHost, int peerPort, TlsSession tlsSession,
+    ProvSSLSession reportSession(String peerHost, int peerPort, TlsSession tlsSession,
         JsseSessionParameters jsseSessionParameters, boolean addToCache)
     {
         processQueue();
@@ -116,7 +116,20 @@ class ProvSSLSessionContext
             if (null != sessionID)
             {
                 sessionEntry = new SessionEntry(sessionID, session, sessionsQueue);
-                sessionsByID.put(sessionID, sessionEntry);
+
+                SessionEntry previous = sessionsByID.put(sessionID, sessionEntry);
+                if (null != previous)
+                {
+                    removeSessionByPeer(previous);
+                }
+
+                evictionQueue.offer(sessionEntry);
+                evictionQueueLength.incrementAndGet();
+
+                if (needsEviction())
+                {
+                    evictSessions(sessionEntry, false);
+                }
             }
         }
 
@@ -128,7 +141,7 @@ class ProvSSLSessionContext
         return session;
     }
 
-    public synchronized Enumeration<byte[]> getIds()
+    public Enumeration<byte[]> getIds()
     {
         removeAllExpiredSessions();
 
@@ -150,17 +163,40 @@ class ProvSSLSessionContext
         return getSessionImpl(sessionID);
     }
 
-    public synchronized int getSessionCacheSize()
+    synchronized TlsTicketKeyManager getTicketKeyManager()
+    {
+        if (null == ticketKeyManager)
+        {
+            // NOTE: Ticket lifetime follows the session timeout at the time of first use (capped at 7 days)
+            int timeout = sessionTimeoutSeconds;
+            long ticketLifetime = (timeout < 1) ? 604800L : Math.min(timeout, 604800L);
+
+            this.ticketKeyManager = new DefaultTlsTicketKeyManager(getCrypto(),
+                DefaultTlsTicketKeyManager.DEFAULT_ROTATION_PERIOD_MILLIS, ticketLifetime);
+        }
+        return ticketKeyManager;
+    }
+
+    synchronized TlsAntiReplayFilter getAntiReplayFilter()
+    {
+        if (null == antiReplayFilter)
+        {
+            this.antiReplayFilter = new DefaultTlsAntiReplayFilter();
+        }
+        return antiReplayFilter;
+    }
+
+    public int getSessionCacheSize()
     {
         return sessionCacheSize;
     }
 
-    public synchronized int getSessionTimeout()
+    public int getSessionTimeout()
     {
         return sessionTimeoutSeconds;
     }
 
-    public synchronized void setSessionCacheSize(int size) throws IllegalArgumentException
+    public void setSessionCacheSize(int size) throws IllegalArgumentException
     {
         if (sessionCacheSize == size)
         {
@@ -177,24 +213,10 @@ class ProvSSLSessionContext
         removeAllExpiredSessions();
 
         // Immediately remove LRU sessions in excess of the new limit
-        if (sessionCacheSize > 0)
-        {
-            int currentSize = sessionsByID.size();
-            if (currentSize > sessionCacheSize)
-            {
-                Iterator<SessionEntry> iter = sessionsByID.values().iterator();
-                while (iter.hasNext() && currentSize > sessionCacheSize)
-                {
-                    SessionEntry sessionEntry = iter.next();
-                    iter.remove();
-                    removeSessionByPeer(sessionEntry);
-                    --currentSize;
-                }
-            }
-        }
+        evictSessions(null, true);
     }
 
-    public synchronized void setSessionTimeout(int seconds) throws IllegalArgumentException
+    public void setSessionTimeout(int seconds) throws IllegalArgumentException
     {
         if (sessionTimeoutSeconds == seconds)
         {
@@ -221,6 +243,7 @@ class ProvSSLSessionContext
                 long currentTimeMillis = System.currentTimeMillis();
                 if (!invalidateIfCreatedBefore(sessionEntry, getCreationTimeLimit(currentTimeMillis)))
                 {
+                    sessionEntry.markAccessed();
                     session.accessedAt(currentTimeMillis);
                     return session;
                 }
@@ -278,9 +301,100 @@ class ProvSSLSessionContext
         {
             SessionEntry sessionEntry = iter.next();
             if (invalidateIfCreatedBefore(sessionEntry, creationTimeLimit))
+            {
+                removeSession(sessionEntry);
+            }
+        }
+    }
+
+    private boolean needsEviction()
+    {
+        int limit = sessionCacheSize;
+        if (limit > 0 && sessionsByID.size() > limit)
+        {
+            return true;
+        }
+
+        // Entries removed other than by eviction linger in the queue; purge them once they dominate it
+        return evictionQueueLength.get() > 2 * sessionsByID.size() + 64;
+    }
+
+    private void evictSessions(SessionEntry added, boolean wait)
+    {
+        if (wait)
+        {
+            evictionLock.lock();
+        }
+        else if (!evictionLock.tryLock())
+        {
+            // Another thread is already evicting; the cache may briefly exceed its limit
+            return;
+        }
+
+        try
+        {
+            purgeEvictionQueue();
+
+            int limit = sessionCacheSize;
+            if (limit < 1)
+            {
+                return;
+            }
+
+            // Bound the second chances so that concurrent lookups can't keep the clock turning forever
+            int secondChances = evictionQueueLength.get();
+
+            SessionEntry sessionEntry;
+            while (sessionsByID.size() > limit && (sessionEntry = evictionQueue.poll()) != null)
+            {
+                evictionQueueLength.decrementAndGet();
+
+                if (sessionsByID.get(sessionEntry.getSessionID()) != sessionEntry)
+                {
+                    continue;
+                }
+
+                // The session just added hasn't had a chance to be used yet; don't evict it ahead of older ones
+                if (sessionEntry == added)
+                {
+                    added = null;
+                    evictionQueue.offer(sessionEntry);
+                    evictionQueueLength.incrementAndGet();
+                    continue;
+                }
+
+                if (secondChances > 0 && sessionEntry.clearAccessed() && sessionEntry.get() != null)
+                {
+                    --secondChances;
+                    evictionQueue.offer(sessionEntry);
+                    evictionQueueLength.incrementAndGet();
+                    continue;
+                }
+
+                removeSession(sessionEntry);
+            }
+        }
+        finally
+        {
+            evictionLock.unlock();
+        }
+    }
+
+    private void purgeEvictionQueue()
+    {
+        if (evictionQueueLength.get() <= 2 * sessionsByID.size() + 64)
+        {
+            return;
+        }
+
+        Iterator<SessionEntry> iter = evictionQueue.iterator();
+        while (iter.hasNext())
+        {
+            SessionEntry sessionEntry = iter.next();
+            if (sessionsByID.get(sessionEntry.getSessionID()) != sessionEntry)
             {
                 iter.remove();
-                removeSessionByPeer(sessionEntry);
+                evictionQueueLength.decrementAndGet();
             }
         }
     }
@@ -312,7 +426,7 @@ class ProvSSLSessionContext
         return TlsUtils.isNullOrEmpty(sessionID) ? null : new SessionID(sessionID);
     }
 
-    private static <K, V> void mapAdd(Map<K, V> map, K key, V value)
+    private static <K, V> void mapAdd(ConcurrentMap<K, V> map, K key, V value)
     {
         if (map == null || value == null)
         {
@@ -324,7 +438,7 @@ class ProvSSLSessionContext
         }
     }
 
-    private static <K, V> V mapGet(Map<K, V> map, K key)
+    private static <K, V> V mapGet(ConcurrentMap<K, V> map, K key)
     {
         if (map == null)
         {
@@ -333,7 +447,7 @@ class ProvSSLSessionContext
         return key == null ? null : map.get(key);
     }
 
-    private static <K, V> V mapRemove(Map<K, V> map, K key)
+    private static <K, V> V mapRemove(ConcurrentMap<K, V> map, K key)
     {
         if (map == null)
         {
@@ -342,26 +456,13 @@ class ProvSSLSessionContext
         return key == null ? null : map.remove(key);
     }
 
-    private static <K, V> boolean mapRemove(Map<K, V> map, K key, V value)
+    private static <K, V> boolean mapRemove(ConcurrentMap<K, V> map, K key, V value)
     {
         if (map == null || value == null)
         {
             throw new NullPointerException();
         }
-        if (key != null)
-        {
-            // TODO[jsse] From 1.8 there is a 2-argument remove method to accomplish this 
-            V removed = map.remove(key);
-            if (removed == value)
-            {
-                return true;
-            }
-            if (removed != null)
-            {
-                map.put(key, removed);
-            }
-        }
-        return false;
+        return key != null && map.remove(key, value);
     }
 
     private static final class SessionEntry
@@ -370,6 +471,8 @@ class ProvSSLSessionContext
         private final SessionID sessionID;
         private final String peerKey;
 
+        private volatile boolean accessed = false;
+
         SessionEntry(SessionID sessionID, ProvSSLSession session, ReferenceQueue<ProvSSLSession> queue)
         {
             super(session, queue);
@@ -392,5 +495,24 @@ class ProvSSLSessionContext
         {
             return sessionID;
         }
+
+        void markAccessed()
+        {
+            // NOTE: Avoid the write (and cache line traffic) when the flag is already set
+            if (!accessed)
+            {
+                accessed = true;
+            }
+        }
+
+        boolean clearAccessed()
+        {
+            boolean wasAccessed = accessed;
+            if (wasAccessed)
+            {
+                accessed = false;
+            }
+            return wasAccessed;
+        }
     }
 }
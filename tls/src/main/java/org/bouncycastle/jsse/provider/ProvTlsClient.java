@@ -34,6 +34,7 @@ import org.bouncycastle.tls.SessionParameters;
 import org.bouncycastle.tls.SignatureAlgorithm;
 import org.bouncycastle.tls.SignatureAndHashAlgorithm;
 import org.bouncycastle.tls.TlsAuthentication;
+import org.bouncycastle.tls.TlsCertificateCompressor;
 import org.bouncycastle.tls.TlsContext;
 import org.bouncycastle.tls.TlsCredentials;
 import org.bouncycastle.tls.TlsDHGroupVerifier;
@@ -57,6 +58,10 @@ class ProvTlsClient
     private static final boolean provClientEnableCA = PropertyUtils
         .getBooleanSystemProperty("jdk.tls.client.enableCAExtension", false);
 
+    // NOTE: RFC 8879 certificate compression is opt-in
+    private static final boolean provClientEnableCertificateCompression = PropertyUtils
+        .getBooleanSystemProperty("org.bouncycastle.jsse.client.enableCertificateCompression", false);
+
     private static final boolean provClientEnableSessionResumption = PropertyUtils
         .getBooleanSystemProperty("org.bouncycastle.jsse.client.enableSessionResumption", true);
 
@@ -390,6 +395,17 @@ class ProvTlsClient
         return manager.getContextData().getCrypto();
     }
 
+    @Override
+    public Vector<TlsCertificateCompressor> getCertificateCompressors()
+    {
+        if (!provClientEnableCertificateCompression)
+        {
+            return null;
+        }
+
+        return manager.getContextData().getCertificateCompressors();
+    }
+
     @Override
     public int getMaxCertificateChainLength()
     {
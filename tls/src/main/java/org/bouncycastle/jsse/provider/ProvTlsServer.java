@@ -38,12 +38,15 @@ import org.bouncycastle.tls.SecurityParameters;
 import org.bouncycastle.tls.ServerName;
 import org.bouncycastle.tls.SessionParameters;
 import org.bouncycastle.tls.SignatureAndHashAlgorithm;
+import org.bouncycastle.tls.TlsCertificateCompressor;
 import org.bouncycastle.tls.TlsContext;
 import org.bouncycastle.tls.TlsCredentials;
 import org.bouncycastle.tls.TlsDHUtils;
 import org.bouncycastle.tls.TlsExtensionsUtils;
 import org.bouncycastle.tls.TlsFatalAlert;
 import org.bouncycastle.tls.TlsSession;
+import org.bouncycastle.tls.TlsAntiReplayFilter;
+import org.bouncycastle.tls.TlsTicketKeyManager;
 import org.bouncycastle.tls.TlsUtils;
 import org.bouncycastle.tls.TrustedAuthority;
 import org.bouncycastle.tls.crypto.DHGroup;
@@ -68,9 +71,20 @@ class ProvTlsServer
     private static final boolean provServerEnableCA = PropertyUtils
         .getBooleanSystemProperty("jdk.tls.server.enableCAExtension", true);
 
+    // NOTE: RFC 8879 certificate compression is opt-in
+    private static final boolean provServerEnableCertificateCompression = PropertyUtils
+        .getBooleanSystemProperty("org.bouncycastle.jsse.server.enableCertificateCompression", false);
+
     private static final boolean provServerEnableSessionResumption = PropertyUtils
         .getBooleanSystemProperty("org.bouncycastle.jsse.server.enableSessionResumption", true);
 
+    // NOTE: TLS 1.3 session tickets are opt-in
+    private static final boolean provServerEnableSessionTickets = PropertyUtils
+        .getBooleanSystemProperty("org.bouncycastle.jsse.server.enableSessionTickets", false);
+
+    private static final int provServerMaxEarlyDataSize = PropertyUtils
+        .getIntegerSystemProperty("org.bouncycastle.jsse.server.maxEarlyDataSize", 0, 0, Integer.MAX_VALUE);
+
     // TODO[jsse] Support status_request and status_request_v2 extensions
 //    private static final boolean provServerEnableStatusRequest = PropertyUtils.getBooleanSystemProperty(
 //        "jdk.tls.server.enableStatusRequestExtension", false);
@@ -443,6 +457,17 @@ class ProvTlsServer
         return JsseUtils.allowLegacyResumption();
     }
 
+    @Override
+    public Vector<TlsCertificateCompressor> getCertificateCompressors()
+    {
+        if (!provServerEnableCertificateCompression)
+        {
+            return null;
+        }
+
+        return manager.getContextData().getCertificateCompressors();
+    }
+
     @Override
     public int getMaxCertificateChainLength()
     {
@@ -727,6 +752,34 @@ class ProvTlsServer
         return null;
     }
 
+    @Override
+    public TlsTicketKeyManager getTicketKeyManager()
+    {
+        if (!provServerEnableSessionResumption || !provServerEnableSessionTickets)
+        {
+            return null;
+        }
+
+        return manager.getContextData().getServerSessionContext().getTicketKeyManager();
+    }
+
+    @Override
+    public long getMaxEarlyDataSize()
+    {
+        return provServerEnableSessionResumption && provServerEnableSessionTickets ? provServerMaxEarlyDataSize : 0L;
+    }
+
+    @Override
+    public TlsAntiReplayFilter getAntiReplayFilter()
+    {
+        if (getMaxEarlyDataSize() <= 0L)
+        {
+            return null;
+        }
+
+        return manager.getContextData().getServerSessionContext().getAntiReplayFilter();
+    }
+
     @Override
     public byte[] getNewSessionID()
     {
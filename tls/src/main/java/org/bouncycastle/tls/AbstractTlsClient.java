@@ -135,6 +135,17 @@ public abstract class AbstractTlsClient
         return null;
     }
 
+    /**
+     * RFC 8449 record size limit.
+     *
+     * @return the "record_size_limit" to offer (at least 64; TLS 1.3 counts the content type byte, so a
+     *         value of 2^14 + 1 means no restriction), or -1 to not offer the extension.
+     */
+    protected int getRecordSizeLimit()
+    {
+        return -1;
+    }
+
     protected Vector getSNIServerNames()
     {
         return null;
@@ -239,6 +250,17 @@ public abstract class AbstractTlsClient
         return null;
     }
 
+    public Vector getResumptionPSKs()
+    {
+        return null;
+    }
+
+    public byte[] getEarlyData(TlsPSKResumption resumptionPSK)
+        throws IOException
+    {
+        return null;
+    }
+
     public boolean isFallback()
     {
         /*
@@ -293,6 +315,12 @@ public abstract class AbstractTlsClient
             TlsExtensionsUtils.addStatusRequestExtension(clientExtensions, statusRequest);
         }
 
+        int recordSizeLimit = getRecordSizeLimit();
+        if (recordSizeLimit >= 0)
+        {
+            TlsExtensionsUtils.addRecordSizeLimitExtension(clientExtensions, recordSizeLimit);
+        }
+
         if (offeringTLSv13Plus)
         {
             Vector certificateAuthorities = getCertificateAuthorities();
@@ -300,6 +328,14 @@ public abstract class AbstractTlsClient
             {
                 TlsExtensionsUtils.addCertificateAuthoritiesExtension(clientExtensions, certificateAuthorities);
             }
+
+            int[] certificateCompressionAlgorithms = TlsUtils.getCertificateCompressionAlgorithms(
+                getCertificateCompressors());
+            if (certificateCompressionAlgorithms != null)
+            {
+                TlsExtensionsUtils.addCompressCertificateExtension(clientExtensions,
+                    certificateCompressionAlgorithms);
+            }
         }
 
         if (offeringPreTLSv13)
@@ -521,4 +557,9 @@ public abstract class AbstractTlsClient
         throws IOException
     {
     }
+
+    public void notifyResumptionPSK(TlsPSKResumption resumptionPSK)
+        throws IOException
+    {
+    }
 }
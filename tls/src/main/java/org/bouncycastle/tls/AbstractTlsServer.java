@@ -25,6 +25,7 @@ public abstract class AbstractTlsServer
 
     protected boolean encryptThenMACOffered;
     protected short maxFragmentLengthOffered;
+    protected int recordSizeLimitOffered;
     protected boolean truncatedHMacOffered;
     protected boolean clientSentECPointFormats;
     protected CertificateStatusRequest certificateStatusRequest;
@@ -296,6 +297,21 @@ public abstract class AbstractTlsServer
         return null;
     }
 
+    /**
+     * RFC 8449 record size limit.
+     * <p/>
+     * This method will be called if a record_size_limit extension was sent by the client. The default is to
+     * accept the extension (so the client's limit is respected) without restricting the client beyond the
+     * protocol's own limit.
+     *
+     * @return the "record_size_limit" to send (at least 64; reduced to the maximum for the negotiated
+     *         version if necessary), or -1 to ignore the extension.
+     */
+    protected int getRecordSizeLimit()
+    {
+        return (1 << 14) + 1;
+    }
+
     public void init(TlsServerContext context)
     {
         this.context = context;
@@ -322,6 +338,7 @@ public abstract class AbstractTlsServer
         this.clientExtensions = null;
         this.encryptThenMACOffered = false;
         this.maxFragmentLengthOffered = 0;
+        this.recordSizeLimitOffered = -1;
         this.truncatedHMacOffered = false;
         this.clientSentECPointFormats = false;
         this.certificateStatusRequest = null;
@@ -429,6 +446,8 @@ public abstract class AbstractTlsServer
             {
                 throw new TlsFatalAlert(AlertDescription.illegal_parameter);
             }
+
+            this.recordSizeLimitOffered = TlsExtensionsUtils.getRecordSizeLimitExtension(clientExtensions);
         }
     }
 
@@ -585,7 +604,22 @@ public abstract class AbstractTlsServer
             }
         }
 
-        if (this.maxFragmentLengthOffered >= 0 && MaxFragmentLength.isValid(maxFragmentLengthOffered))
+        int recordSizeLimit = this.recordSizeLimitOffered < 0 ? -1 : getRecordSizeLimit();
+        if (recordSizeLimit >= 0)
+        {
+            /*
+             * RFC 8449 4. For TLS 1.2 and earlier, that limit is 2^14 octets. TLS 1.3 uses a limit of 2^14+1
+             * octets.
+             */
+            int protocolLimit = isTLSv13 ? (1 << 14) + 1 : (1 << 14);
+
+            TlsExtensionsUtils.addRecordSizeLimitExtension(serverExtensions, Math.min(recordSizeLimit, protocolLimit));
+        }
+        /*
+         * RFC 8449 5. A server that supports the "record_size_limit" extension MUST ignore a
+         * "max_fragment_length" that appears in a ClientHello if both extensions appear.
+         */
+        else if (this.maxFragmentLengthOffered >= 0 && MaxFragmentLength.isValid(maxFragmentLengthOffered))
         {
             TlsExtensionsUtils.addMaxFragmentLengthExtension(serverExtensions, this.maxFragmentLengthOffered);
         }
@@ -777,4 +811,21 @@ public abstract class AbstractTlsServer
          */
         return new NewSessionTicket(0L, TlsUtils.EMPTY_BYTES);
     }
+
+    public TlsTicketKeyManager getTicketKeyManager()
+        throws IOException
+    {
+        return null;
+    }
+
+    public long getMaxEarlyDataSize()
+    {
+        return 0L;
+    }
+
+    public TlsAntiReplayFilter getAntiReplayFilter()
+        throws IOException
+    {
+        return null;
+    }
 }
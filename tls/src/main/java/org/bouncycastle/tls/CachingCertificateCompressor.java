@@ -0,0 +1,92 @@
+package org.bouncycastle.tls;
+
+import java.io.IOException;
+import java.util.Vector;
+
+import org.bouncycastle.util.Arrays;
+
+/**
+ * A {@link TlsCertificateCompressor} that keeps the compressed form of the Certificate messages it has
+ * compressed, so that a server sending the same certificate chain in many handshakes only compresses it once,
+ * even when each handshake builds a new {@link Certificate} for it (as BCJSSE does).
+ * <p>
+ * Entries are keyed on the uncompressed Certificate message, i.e. on the chain together with any
+ * per-certificate extensions. Only the most recently used <code>maxEntries</code> messages are kept.
+ * </p>
+ */
+public class CachingCertificateCompressor
+    implements TlsCertificateCompressor
+{
+    public static final int DEFAULT_MAX_ENTRIES = 8;
+
+    protected final TlsCertificateCompressor compressor;
+    protected final int maxEntries;
+
+    // Most recently used first, each element is { certificateMessage, compressedCertificateMessage }
+    private final Vector entries = new Vector();
+
+    public CachingCertificateCompressor(TlsCertificateCompressor compressor)
+    {
+        this(compressor, DEFAULT_MAX_ENTRIES);
+    }
+
+    public CachingCertificateCompressor(TlsCertificateCompressor compressor, int maxEntries)
+    {
+        if (null == compressor)
+        {
+            throw new NullPointerException("'compressor' cannot be null");
+        }
+        if (maxEntries < 1)
+        {
+            throw new IllegalArgumentException("'maxEntries' must be > 0");
+        }
+
+        this.compressor = compressor;
+        this.maxEntries = maxEntries;
+    }
+
+    public int getAlgorithm()
+    {
+        return compressor.getAlgorithm();
+    }
+
+    public byte[] compress(byte[] certificateMessage) throws IOException
+    {
+        synchronized (entries)
+        {
+            for (int i = 0; i < entries.size(); ++i)
+            {
+                byte[][] entry = (byte[][])entries.elementAt(i);
+                if (Arrays.areEqual(entry[0], certificateMessage))
+                {
+                    if (i > 0)
+                    {
+                        entries.removeElementAt(i);
+                        entries.insertElementAt(entry, 0);
+                    }
+                    return Arrays.clone(entry[1]);
+                }
+            }
+        }
+
+        // NOTE: Compress outside the lock; concurrent misses for the same message just compress it twice
+        byte[] compressedCertificateMessage = compressor.compress(certificateMessage);
+
+        synchronized (entries)
+        {
+            entries.insertElementAt(
+                new byte[][]{ Arrays.clone(certificateMessage), Arrays.clone(compressedCertificateMessage) }, 0);
+            if (entries.size() > maxEntries)
+            {
+                entries.setSize(maxEntries);
+            }
+        }
+
+        return compressedCertificateMessage;
+    }
+
+    public byte[] decompress(byte[] compressedCertificateMessage, int uncompressedLength) throws IOException
+    {
+        return compressor.decompress(compressedCertificateMessage, uncompressedLength);
+    }
+}
@@ -1,6 +1,7 @@
 package org.bouncycastle.tls;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -9,6 +10,7 @@ import java.util.Vector;
 
 import org.bouncycastle.tls.crypto.TlsCertificate;
 import org.bouncycastle.tls.crypto.TlsCrypto;
+import org.bouncycastle.util.Integers;
 
 /**
  * Parsing and encoding of a <i>Certificate</i> struct from RFC 4346.
@@ -81,6 +83,9 @@ public class Certificate
     protected final CertificateEntry[] certificateEntryList;
     protected final short certificateType;
 
+    // Compressed (TLS 1.3) encodings, keyed by CertificateCompressionAlgorithm
+    private final Hashtable compressedCertificates = new Hashtable();
+
     public Certificate(TlsCertificate[] certificateList)
     {
         this(null, convert(certificateList));
@@ -233,6 +238,30 @@ public class Certificate
         }
     }
     
+    /**
+     * Encode this (TLS 1.3) {@link Certificate} as a {@link CompressedCertificate} (RFC 8879). The result is
+     * cached on this object per compression algorithm, which only helps a server that hands out the same
+     * {@link Certificate} for many handshakes; see {@link CachingCertificateCompressor} for one that doesn't.
+     */
+    CompressedCertificate compress13(TlsContext context, TlsCertificateCompressor compressor) throws IOException
+    {
+        Integer algorithm = Integers.valueOf(compressor.getAlgorithm());
+
+        CompressedCertificate compressedCertificate = (CompressedCertificate)compressedCertificates.get(algorithm);
+        if (null == compressedCertificate)
+        {
+            ByteArrayOutputStream buf = new ByteArrayOutputStream();
+            encode(context, buf, null);
+            byte[] certificateMessage = buf.toByteArray();
+
+            compressedCertificate = new CompressedCertificate(algorithm.intValue(), certificateMessage.length,
+                compressor.compress(certificateMessage));
+
+            compressedCertificates.put(algorithm, compressedCertificate);
+        }
+        return compressedCertificate;
+    }
+
     /**
      * Parse a {@link Certificate} from an {@link InputStream}.
      *
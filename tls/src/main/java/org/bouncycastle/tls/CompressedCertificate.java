@@ -0,0 +1,89 @@
+package org.bouncycastle.tls;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Parsing and encoding of a <i>CompressedCertificate</i> struct from RFC 8879.
+ * <pre>
+ * struct {
+ *     CertificateCompressionAlgorithm algorithm;
+ *     uint24 uncompressed_length;
+ *     opaque compressed_certificate_message&lt;1..2^24-1&gt;;
+ * } CompressedCertificate;
+ * </pre>
+ */
+public class CompressedCertificate
+{
+    protected final int algorithm;
+    protected final int uncompressedLength;
+    protected final byte[] compressedCertificateMessage;
+
+    public CompressedCertificate(int algorithm, int uncompressedLength, byte[] compressedCertificateMessage)
+    {
+        if (!TlsUtils.isValidUint16(algorithm))
+        {
+            throw new IllegalArgumentException("'algorithm' should be a uint16");
+        }
+        if (!TlsUtils.isValidUint24(uncompressedLength))
+        {
+            throw new IllegalArgumentException("'uncompressedLength' should be a uint24");
+        }
+        if (null == compressedCertificateMessage || compressedCertificateMessage.length < 1
+            || !TlsUtils.isValidUint24(compressedCertificateMessage.length))
+        {
+            throw new IllegalArgumentException("'compressedCertificateMessage' must have length from 1 to (2^24 - 1)");
+        }
+
+        this.algorithm = algorithm;
+        this.uncompressedLength = uncompressedLength;
+        this.compressedCertificateMessage = compressedCertificateMessage;
+    }
+
+    /**
+     * @return {@link CertificateCompressionAlgorithm}
+     */
+    public int getAlgorithm()
+    {
+        return algorithm;
+    }
+
+    public int getUncompressedLength()
+    {
+        return uncompressedLength;
+    }
+
+    public byte[] getCompressedCertificateMessage()
+    {
+        return compressedCertificateMessage;
+    }
+
+    /**
+     * Encode this {@link CompressedCertificate} to an {@link OutputStream}.
+     *
+     * @param output the {@link OutputStream} to encode to.
+     * @throws IOException
+     */
+    public void encode(OutputStream output) throws IOException
+    {
+        TlsUtils.writeUint16(algorithm, output);
+        TlsUtils.writeUint24(uncompressedLength, output);
+        TlsUtils.writeOpaque24(compressedCertificateMessage, output);
+    }
+
+    /**
+     * Parse a {@link CompressedCertificate} from an {@link InputStream}.
+     *
+     * @param input the {@link InputStream} to parse from.
+     * @return a {@link CompressedCertificate} object.
+     * @throws IOException
+     */
+    public static CompressedCertificate parse(InputStream input) throws IOException
+    {
+        int algorithm = TlsUtils.readUint16(input);
+        int uncompressedLength = TlsUtils.readUint24(input);
+        byte[] compressedCertificateMessage = TlsUtils.readOpaque24(input, 1);
+        return new CompressedCertificate(algorithm, uncompressedLength, compressedCertificateMessage);
+    }
+}
@@ -0,0 +1,165 @@
+package org.bouncycastle.tls;
+
+import org.bouncycastle.util.Arrays;
+
+/**
+ * A bounded, in-memory {@link TlsAntiReplayFilter} that records ClientHellos in a pair of Bloom filters.
+ * <p>
+ * Each filter covers one generation of twice the freshness window; at the start of a new generation the
+ * older filter is discarded, so a ClientHello is remembered for between two and four windows. A false
+ * positive only costs a full handshake (the early data is rejected), and once a generation has recorded
+ * its capacity of ClientHellos, early data is rejected until the next generation begins.
+ * </p>
+ */
+public class DefaultTlsAntiReplayFilter
+    implements TlsAntiReplayFilter
+{
+    public static final long DEFAULT_WINDOW_MILLIS = 10L * 1000L;
+    public static final int DEFAULT_CAPACITY = 1 << 16;
+
+    private static final int BITS_PER_ENTRY = 10;
+    private static final int HASH_COUNT = 7;
+
+    protected final long windowMillis;
+    protected final int capacity;
+
+    private final int bitCount;
+
+    private long[] current, previous;
+    private int currentCount = 0;
+    private long currentStart = -1L;
+
+    public DefaultTlsAntiReplayFilter()
+    {
+        this(DEFAULT_WINDOW_MILLIS, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param windowMillis the freshness window in milliseconds.
+     * @param capacity the number of ClientHellos that can be recorded in each generation.
+     */
+    public DefaultTlsAntiReplayFilter(long windowMillis, int capacity)
+    {
+        if (windowMillis < 1)
+        {
+            throw new IllegalArgumentException("'windowMillis' must be positive");
+        }
+        if (capacity < 1 || capacity > (Integer.MAX_VALUE / BITS_PER_ENTRY))
+        {
+            throw new IllegalArgumentException("'capacity' out of range");
+        }
+
+        this.windowMillis = windowMillis;
+        this.capacity = capacity;
+
+        int words = (capacity * BITS_PER_ENTRY + 63) >>> 6;
+        this.bitCount = words << 6;
+        this.current = new long[words];
+        this.previous = new long[words];
+    }
+
+    public long getWindowMillis()
+    {
+        return windowMillis;
+    }
+
+    public boolean checkAndRecord(byte[] clientHelloID)
+    {
+        if (null == clientHelloID || clientHelloID.length < 1)
+        {
+            return false;
+        }
+
+        long h1 = hash(clientHelloID), h2 = mix(h1) | 1L;
+
+        synchronized (this)
+        {
+            advance(System.currentTimeMillis());
+
+            boolean seen = contains(current, h1, h2) || contains(previous, h1, h2);
+            if (!seen)
+            {
+                if (currentCount >= capacity)
+                {
+                    return false;
+                }
+
+                ++currentCount;
+                insert(current, h1, h2);
+            }
+            return !seen;
+        }
+    }
+
+    private void advance(long now)
+    {
+        long generationMillis = 2L * windowMillis;
+
+        if (currentStart < 0L)
+        {
+            this.currentStart = now;
+        }
+        else if ((now - currentStart) >= generationMillis)
+        {
+            long[] tmp = previous;
+            this.previous = current;
+            this.current = tmp;
+
+            if ((now - currentStart) >= (2L * generationMillis))
+            {
+                // Both generations have expired
+                Arrays.fill(previous, 0L);
+            }
+            Arrays.fill(current, 0L);
+
+            this.currentCount = 0;
+            this.currentStart = now;
+        }
+    }
+
+    private boolean contains(long[] bits, long h1, long h2)
+    {
+        for (int i = 0; i < HASH_COUNT; ++i)
+        {
+            int index = index(h1 + i * h2);
+            if (0L == (bits[index >>> 6] & (1L << index)))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void insert(long[] bits, long h1, long h2)
+    {
+        for (int i = 0; i < HASH_COUNT; ++i)
+        {
+            int index = index(h1 + i * h2);
+            bits[index >>> 6] |= (1L << index);
+        }
+    }
+
+    private int index(long h)
+    {
+        return (int)((h >>> 1) % bitCount);
+    }
+
+    private static long hash(byte[] data)
+    {
+        // FNV-1a; the inputs (PSK binders) are already pseudorandom
+        long h = 0xCBF29CE484222325L;
+        for (int i = 0; i < data.length; ++i)
+        {
+            h ^= (data[i] & 0xFF);
+            h *= 0x100000001B3L;
+        }
+        return mix(h);
+    }
+
+    private static long mix(long z)
+    {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
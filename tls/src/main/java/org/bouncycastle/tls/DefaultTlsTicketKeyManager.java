@@ -0,0 +1,248 @@
+package org.bouncycastle.tls;
+
+import java.io.IOException;
+import java.security.SecureRandom;
+import java.util.Vector;
+
+import org.bouncycastle.tls.crypto.CryptoHashAlgorithm;
+import org.bouncycastle.tls.crypto.TlsCrypto;
+import org.bouncycastle.tls.crypto.TlsSecret;
+import org.bouncycastle.util.Arrays;
+
+/**
+ * A {@link TlsTicketKeyManager} holding a rotating set of randomly generated ticket keys.
+ * <p>
+ * A new key is generated once the current one has been in use for the rotation period; retired keys
+ * are kept (for opening tickets only) until every ticket they sealed has expired. Tickets are sealed
+ * encrypt-then-MAC as key_name || iv || ciphertext || HMAC-SHA256(key_name || iv || ciphertext),
+ * where the ciphertext is the state XORed with HKDF-Expand(enc_key, iv, |state|).
+ * </p>
+ */
+public class DefaultTlsTicketKeyManager
+    implements TlsTicketKeyManager
+{
+    public static final long DEFAULT_ROTATION_PERIOD_MILLIS = 60L * 60L * 1000L;
+    public static final long DEFAULT_TICKET_LIFETIME_SECONDS = 2L * 60L * 60L;
+
+    private static final int KEY_NAME_LENGTH = 16;
+    private static final int KEY_LENGTH = 32;
+    private static final int IV_LENGTH = 16;
+    private static final int MAC_LENGTH = 32;
+
+    private static final int HASH_ALGORITHM = CryptoHashAlgorithm.sha256;
+    private static final int MAX_STATE_LENGTH = 255 * 32;
+
+    private static class TicketKey
+    {
+        final byte[] name;
+        final TlsSecret encKey;
+        final TlsSecret macKey;
+        final long created;
+
+        long retired = -1L;
+
+        TicketKey(byte[] name, TlsSecret encKey, TlsSecret macKey, long created)
+        {
+            this.name = name;
+            this.encKey = encKey;
+            this.macKey = macKey;
+            this.created = created;
+        }
+
+        void destroy()
+        {
+            encKey.destroy();
+            macKey.destroy();
+        }
+    }
+
+    protected final TlsCrypto crypto;
+    protected final long rotationPeriodMillis;
+    protected final long ticketLifetimeSeconds;
+
+    private TicketKey currentKey = null;
+    private final Vector retiredKeys = new Vector();
+
+    public DefaultTlsTicketKeyManager(TlsCrypto crypto)
+    {
+        this(crypto, DEFAULT_ROTATION_PERIOD_MILLIS, DEFAULT_TICKET_LIFETIME_SECONDS);
+    }
+
+    public DefaultTlsTicketKeyManager(TlsCrypto crypto, long rotationPeriodMillis, long ticketLifetimeSeconds)
+    {
+        if (null == crypto)
+        {
+            throw new NullPointerException("'crypto' cannot be null");
+        }
+        if (rotationPeriodMillis < 1)
+        {
+            throw new IllegalArgumentException("'rotationPeriodMillis' must be positive");
+        }
+        if (ticketLifetimeSeconds < 1 || ticketLifetimeSeconds > 604800L)
+        {
+            throw new IllegalArgumentException("'ticketLifetimeSeconds' must be from 1 to 604800");
+        }
+
+        this.crypto = crypto;
+        this.rotationPeriodMillis = rotationPeriodMillis;
+        this.ticketLifetimeSeconds = ticketLifetimeSeconds;
+    }
+
+    public long getTicketLifetime()
+    {
+        return ticketLifetimeSeconds;
+    }
+
+    /**
+     * Retire the current key immediately; the next ticket will be sealed under a fresh key.
+     */
+    public synchronized void rotate()
+    {
+        if (null != currentKey)
+        {
+            retire(currentKey, System.currentTimeMillis());
+            this.currentKey = null;
+        }
+    }
+
+    public byte[] sealTicket(byte[] state) throws IOException
+    {
+        if (null == state || state.length < 1 || state.length > MAX_STATE_LENGTH)
+        {
+            throw new TlsFatalAlert(AlertDescription.internal_error);
+        }
+
+        TicketKey key = getSealingKey(System.currentTimeMillis());
+
+        byte[] iv = new byte[IV_LENGTH];
+        crypto.getSecureRandom().nextBytes(iv);
+
+        int ctOff = KEY_NAME_LENGTH + IV_LENGTH, ctLen = state.length;
+        byte[] ticket = new byte[ctOff + ctLen + MAC_LENGTH];
+        System.arraycopy(key.name, 0, ticket, 0, KEY_NAME_LENGTH);
+        System.arraycopy(iv, 0, ticket, KEY_NAME_LENGTH, IV_LENGTH);
+
+        byte[] keyStream = key.encKey.hkdfExpand(HASH_ALGORITHM, iv, ctLen).extract();
+        for (int i = 0; i < ctLen; ++i)
+        {
+            ticket[ctOff + i] = (byte)(state[i] ^ keyStream[i]);
+        }
+        Arrays.fill(keyStream, (byte)0);
+
+        byte[] mac = key.macKey.calculateHMAC(HASH_ALGORITHM, ticket, 0, ctOff + ctLen);
+        System.arraycopy(mac, 0, ticket, ctOff + ctLen, MAC_LENGTH);
+
+        return ticket;
+    }
+
+    public byte[] openTicket(byte[] ticket) throws IOException
+    {
+        int ctOff = KEY_NAME_LENGTH + IV_LENGTH;
+        if (null == ticket || ticket.length < (ctOff + 1 + MAC_LENGTH))
+        {
+            return null;
+        }
+
+        TicketKey key = getOpeningKey(ticket, System.currentTimeMillis());
+        if (null == key)
+        {
+            return null;
+        }
+
+        int ctLen = ticket.length - ctOff - MAC_LENGTH;
+
+        byte[] state;
+        try
+        {
+            byte[] mac = key.macKey.calculateHMAC(HASH_ALGORITHM, ticket, 0, ctOff + ctLen);
+            if (!Arrays.constantTimeAreEqual(MAC_LENGTH, mac, 0, ticket, ctOff + ctLen))
+            {
+                return null;
+            }
+
+            byte[] iv = Arrays.copyOfRange(ticket, KEY_NAME_LENGTH, ctOff);
+            state = key.encKey.hkdfExpand(HASH_ALGORITHM, iv, ctLen).extract();
+        }
+        catch (IllegalStateException e)
+        {
+            // The key expired (and was destroyed) concurrently; so has any ticket it sealed.
+            return null;
+        }
+
+        for (int i = 0; i < ctLen; ++i)
+        {
+            state[i] ^= ticket[ctOff + i];
+        }
+        return state;
+    }
+
+    private TicketKey createKey(long now)
+    {
+        SecureRandom random = crypto.getSecureRandom();
+
+        byte[] name = new byte[KEY_NAME_LENGTH];
+        byte[] encKey = new byte[KEY_LENGTH];
+        byte[] macKey = new byte[KEY_LENGTH];
+        random.nextBytes(name);
+        random.nextBytes(encKey);
+        random.nextBytes(macKey);
+
+        return new TicketKey(name, crypto.createSecret(encKey), crypto.createSecret(macKey), now);
+    }
+
+    private synchronized TicketKey getSealingKey(long now)
+    {
+        expireKeys(now);
+
+        if (null != currentKey && (now - currentKey.created) >= rotationPeriodMillis)
+        {
+            retire(currentKey, now);
+            this.currentKey = null;
+        }
+        if (null == currentKey)
+        {
+            this.currentKey = createKey(now);
+        }
+        return currentKey;
+    }
+
+    private synchronized TicketKey getOpeningKey(byte[] ticket, long now)
+    {
+        expireKeys(now);
+
+        if (null != currentKey && Arrays.constantTimeAreEqual(KEY_NAME_LENGTH, currentKey.name, 0, ticket, 0))
+        {
+            return currentKey;
+        }
+        for (int i = 0; i < retiredKeys.size(); ++i)
+        {
+            TicketKey key = (TicketKey)retiredKeys.elementAt(i);
+            if (Arrays.constantTimeAreEqual(KEY_NAME_LENGTH, key.name, 0, ticket, 0))
+            {
+                return key;
+            }
+        }
+        return null;
+    }
+
+    private void expireKeys(long now)
+    {
+        long ticketLifetimeMillis = ticketLifetimeSeconds * 1000L;
+
+        for (int i = retiredKeys.size() - 1; i >= 0; --i)
+        {
+            TicketKey key = (TicketKey)retiredKeys.elementAt(i);
+            if ((now - key.retired) > ticketLifetimeMillis)
+            {
+                retiredKeys.removeElementAt(i);
+                key.destroy();
+            }
+        }
+    }
+
+    private void retire(TicketKey key, long now)
+    {
+        key.retired = now;
+        retiredKeys.addElement(key);
+    }
+}
@@ -160,8 +160,7 @@ public class OfferedPsks
             TlsPSK psk = psks[i];
             TlsSecret earlySecret = earlySecrets[i];
 
-            // TODO[tls13-psk] Handle resumption PSKs
-            boolean isExternalPSK = true;
+            boolean isExternalPSK = !(psk instanceof TlsPSKResumption);
             int pskCryptoHashAlgorithm = TlsCryptoUtils.getHashForPRF(psk.getPRFAlgorithm());
 
             // TODO[tls13-psk] Cache the transcript hashes per algorithm to avoid duplicates for multiple PSKs
@@ -5,10 +5,10 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InterruptedIOException;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 
 import org.bouncycastle.tls.crypto.TlsCipher;
 import org.bouncycastle.tls.crypto.TlsDecodeResult;
-import org.bouncycastle.tls.crypto.TlsEncodeResult;
 import org.bouncycastle.tls.crypto.TlsNullNullCipher;
 
 /**
@@ -18,7 +18,16 @@ class RecordStream
 {
     private static int DEFAULT_PLAINTEXT_LIMIT = (1 << 14);
 
+    /*
+     * RFC 8446 5.2. The length MUST NOT exceed 2^14 + 256 bytes; rejected early data is counted
+     * against max_early_data_size net of the AEAD tag and content type of each record.
+     */
+    private static final int EARLY_DATA_CIPHERTEXT_LIMIT = (1 << 14) + 256;
+    private static final int EARLY_DATA_RECORD_OVERHEAD = 17;
+
     private final Record inputRecord = new Record();
+    private ByteBuffer writeBuffer = ByteBuffer.allocate(0);
+    private ByteBuffer readBuffer = null;
     private final SequenceNumber readSeqNo = new SequenceNumber(), writeSeqNo = new SequenceNumber();
 
     private TlsProtocol handler;
@@ -27,13 +36,18 @@ class RecordStream
     private TlsCipher pendingCipher = null;
     private TlsCipher readCipher = TlsNullNullCipher.INSTANCE;
     private TlsCipher readCipherDeferred = null;
+    private TlsCipher readCipherEndOfEarlyData = null;
     private TlsCipher writeCipher = TlsNullNullCipher.INSTANCE;
 
     private ProtocolVersion writeVersion = null;
 
     private int plaintextLimit = DEFAULT_PLAINTEXT_LIMIT;
+    private int readRecordSizeLimit = DEFAULT_PLAINTEXT_LIMIT, writeRecordSizeLimit = DEFAULT_PLAINTEXT_LIMIT;
+    private int readPlaintextLimit = DEFAULT_PLAINTEXT_LIMIT;
     private int ciphertextLimit = DEFAULT_PLAINTEXT_LIMIT;
     private boolean ignoreChangeCipherSpec = false;
+    private long earlyDataSkipLimit = -1L;
+    private boolean earlyDataSkipTrial = false;
 
     RecordStream(TlsProtocol handler, InputStream input, OutputStream output)
     {
@@ -42,15 +56,30 @@ class RecordStream
         this.output = output;
     }
 
+    /**
+     * @return the maximum length of plaintext to send in a single record.
+     */
     int getPlaintextLimit()
     {
-        return plaintextLimit;
+        return Math.min(plaintextLimit, writeRecordSizeLimit);
     }
 
     void setPlaintextLimit(int plaintextLimit)
     {
         this.plaintextLimit = plaintextLimit;
-        this.ciphertextLimit = readCipher.getCiphertextDecodeLimit(plaintextLimit);
+        updateReadLimits();
+    }
+
+    /**
+     * Apply the limits negotiated via the "record_size_limit" extension (RFC 8449), expressed here as the
+     * maximum length of record content (i.e. excluding any TLS 1.3 content type). The write limit takes effect
+     * immediately; the read limit only applies to protected records.
+     */
+    void setRecordSizeLimits(int readRecordSizeLimit, int writeRecordSizeLimit)
+    {
+        this.readRecordSizeLimit = Math.min(DEFAULT_PLAINTEXT_LIMIT, readRecordSizeLimit);
+        this.writeRecordSizeLimit = Math.min(DEFAULT_PLAINTEXT_LIMIT, writeRecordSizeLimit);
+        updateReadLimits();
     }
 
     void setWriteVersion(ProtocolVersion writeVersion)
@@ -97,11 +126,51 @@ class RecordStream
         else
         {
             this.readCipher = pendingCipher;
-            this.ciphertextLimit = readCipher.getCiphertextDecodeLimit(plaintextLimit);
+            updateReadLimits();
             readSeqNo.reset();
         }
     }
 
+    /**
+     * TLS 1.3 server accepting early data: the pending (handshake) cipher only takes over reading once
+     * EndOfEarlyData has been received under the early data cipher.
+     */
+    void enablePendingCipherReadAfterEarlyData()
+        throws IOException
+    {
+        if (pendingCipher == null || readCipherEndOfEarlyData != null)
+        {
+            throw new TlsFatalAlert(AlertDescription.internal_error);
+        }
+        this.readCipherEndOfEarlyData = pendingCipher;
+        updateReadLimits();
+    }
+
+    void notifyEndOfEarlyDataReceived()
+        throws IOException
+    {
+        if (readCipherEndOfEarlyData == null || readCipherDeferred != null)
+        {
+            throw new TlsFatalAlert(AlertDescription.unexpected_message);
+        }
+        this.readCipher = readCipherEndOfEarlyData;
+        this.readCipherEndOfEarlyData = null;
+        updateReadLimits();
+        readSeqNo.reset();
+    }
+
+    /**
+     * TLS 1.3 server rejecting early data (RFC 8446 4.2.10): discard early data records, up to a total of
+     * maxEarlyDataSize. With trialDecrypt, records are discarded until one decrypts with the read cipher;
+     * otherwise (after a HelloRetryRequest) all application_data records are discarded until the next
+     * handshake record.
+     */
+    void skipEarlyData(long maxEarlyDataSize, boolean trialDecrypt)
+    {
+        this.earlyDataSkipLimit = Math.max(0L, maxEarlyDataSize);
+        this.earlyDataSkipTrial = trialDecrypt;
+    }
+
     void enablePendingCipherWrite()
         throws IOException
     {
@@ -148,7 +217,7 @@ class RecordStream
 
         int length = TlsUtils.readUint16(recordHeader, RecordFormat.LENGTH_OFFSET);
 
-        checkLength(length, ciphertextLimit, AlertDescription.record_overflow);
+        checkLength(length, getCiphertextLimit(recordType), AlertDescription.record_overflow);
 
         int recordSize = RecordFormat.FRAGMENT_OFFSET + length;
         int applicationDataLimit = 0;
@@ -158,7 +227,7 @@ class RecordStream
         {
             int plaintextDecodeLimit = readCipher.getPlaintextDecodeLimit(length);
 
-            applicationDataLimit = Math.max(0, Math.min(plaintextLimit, plaintextDecodeLimit));
+            applicationDataLimit = Math.max(0, Math.min(readPlaintextLimit, plaintextDecodeLimit));
         }
 
         return new RecordPreview(recordSize, applicationDataLimit);
@@ -166,14 +235,14 @@ class RecordStream
 
     RecordPreview previewOutputRecord(int contentLength)
     {
-        int contentLimit = Math.max(0, Math.min(plaintextLimit, contentLength));
+        int contentLimit = Math.max(0, Math.min(getPlaintextLimit(), contentLength));
         int recordSize = previewOutputRecordSize(contentLimit);
         return new RecordPreview(recordSize, contentLimit);
     }
 
     int previewOutputRecordSize(int contentLength)
     {
-//        assert contentLength <= plaintextLimit
+//        assert contentLength <= getPlaintextLimit()
         return RecordFormat.FRAGMENT_OFFSET + writeCipher.getCiphertextEncodeLimit(contentLength);        
     }
 
@@ -195,7 +264,12 @@ class RecordStream
 
         ProtocolVersion recordVersion = TlsUtils.readVersion(input, inputOff + RecordFormat.VERSION_OFFSET);
 
-        checkLength(length, ciphertextLimit, AlertDescription.record_overflow);
+        checkLength(length, getCiphertextLimit(recordType), AlertDescription.record_overflow);
+
+        if (skipEarlyData(recordType, length))
+        {
+            return true;
+        }
 
         if (ignoreChangeCipherSpec && ContentType.change_cipher_spec == recordType)
         {
@@ -206,10 +280,113 @@ class RecordStream
         TlsDecodeResult decoded = decodeAndVerify(recordType, recordVersion, input,
             inputOff + RecordFormat.FRAGMENT_OFFSET, length);
 
-        handler.processRecord(decoded.contentType, decoded.buf, decoded.off, decoded.len);
+        if (null != decoded)
+        {
+            handler.processRecord(decoded.contentType, decoded.buf, decoded.off, decoded.len);
+        }
         return true;
     }
 
+    /**
+     * Decrypt a single complete application_data record from input into output. Only application data is
+     * ever written to output; a TLS 1.3 record carrying protocol data is decrypted into an internal buffer.
+     *
+     * @return the number of bytes of application data written to output, or -1 if the record is not
+     *         eligible (in which case input is left untouched).
+     */
+    int readFullRecord(ByteBuffer input, ByteBuffer output)
+        throws IOException
+    {
+        int inputLen = input.remaining();
+        if (inputLen < RecordFormat.FRAGMENT_OFFSET)
+        {
+            return -1;
+        }
+
+        int inputPos = input.position();
+        short recordType = (short)(input.get(inputPos + RecordFormat.TYPE_OFFSET) & 0xFF);
+        int length = ((input.get(inputPos + RecordFormat.LENGTH_OFFSET) & 0xFF) << 8)
+            | (input.get(inputPos + RecordFormat.LENGTH_OFFSET + 1) & 0xFF);
+
+        if (inputLen != (RecordFormat.FRAGMENT_OFFSET + length)
+            || ContentType.application_data != recordType
+            || !handler.isApplicationDataReady())
+        {
+            return -1;
+        }
+
+        checkRecordType(recordType);
+
+        int plaintextLimit = readCipher.getPlaintextDecodeLimit(length);
+        if (output.remaining() < plaintextLimit)
+        {
+            return -1;
+        }
+
+        ProtocolVersion recordVersion = ProtocolVersion.get(input.get(inputPos + RecordFormat.VERSION_OFFSET) & 0xFF,
+            input.get(inputPos + RecordFormat.VERSION_OFFSET + 1) & 0xFF);
+
+        checkLength(length, ciphertextLimit, AlertDescription.record_overflow);
+
+        ((java.nio.Buffer)input).position(inputPos + RecordFormat.FRAGMENT_OFFSET);
+
+        long seqNo = readSeqNo.nextValue(AlertDescription.unexpected_message);
+
+        if (!readCipher.usesOpaqueRecordTypeDecode())
+        {
+            // The record type is the content type, so only application data is decrypted into output.
+            int outputStart = output.position();
+            readCipher.decodeCiphertext(seqNo, recordType, recordVersion, input, output);
+            int len = output.position() - outputStart;
+
+            checkLength(len, readPlaintextLimit, AlertDescription.record_overflow);
+
+            handler.processApplicationData();
+            return len;
+        }
+
+        /*
+         * (TLS 1.3) The content type is only known once the record is decrypted, so decrypt into our own
+         * buffer, including the TLSInnerPlaintext content type, and only hand application data to the caller.
+         * This costs a copy of the application data, but protocol records (e.g. NewSessionTicket) are never
+         * written into the caller's buffer.
+         */
+        ByteBuffer plaintext = getReadBuffer(plaintextLimit + 1, input.isDirect());
+        short contentType = readCipher.decodeCiphertext(seqNo, recordType, recordVersion, input, plaintext);
+        ((java.nio.Buffer)plaintext).flip();
+        int len = plaintext.remaining();
+
+        checkLength(len, readPlaintextLimit, AlertDescription.record_overflow);
+
+        if (ContentType.application_data == contentType)
+        {
+            output.put(plaintext);
+            handler.processApplicationData();
+            return len;
+        }
+
+        /*
+         * RFC 5246 6.2.1 Implementations MUST NOT send zero-length fragments of Handshake, Alert,
+         * or ChangeCipherSpec content types.
+         */
+        if (len < 1)
+        {
+            throw new TlsFatalAlert(AlertDescription.illegal_parameter);
+        }
+
+        if (plaintext.hasArray())
+        {
+            handler.processRecord(contentType, plaintext.array(), plaintext.arrayOffset(), len);
+        }
+        else
+        {
+            byte[] buf = new byte[len];
+            plaintext.get(buf);
+            handler.processRecord(contentType, buf, 0, len);
+        }
+        return 0;
+    }
+
     boolean readRecord()
         throws IOException
     {
@@ -224,13 +401,18 @@ class RecordStream
 
         int length = TlsUtils.readUint16(inputRecord.buf, RecordFormat.LENGTH_OFFSET);
 
-        checkLength(length, ciphertextLimit, AlertDescription.record_overflow);
+        checkLength(length, getCiphertextLimit(recordType), AlertDescription.record_overflow);
 
         inputRecord.readFragment(input, length);
 
         TlsDecodeResult decoded;
         try
         {
+            if (skipEarlyData(recordType, length))
+            {
+                return true;
+            }
+
             if (ignoreChangeCipherSpec && ContentType.change_cipher_spec == recordType)
             {
                 checkChangeCipherSpec(inputRecord.buf, RecordFormat.FRAGMENT_OFFSET, length);
@@ -244,17 +426,49 @@ class RecordStream
             inputRecord.reset();
         }
 
-        handler.processRecord(decoded.contentType, decoded.buf, decoded.off, decoded.len);
+        if (null != decoded)
+        {
+            handler.processRecord(decoded.contentType, decoded.buf, decoded.off, decoded.len);
+        }
         return true;
     }
 
+    /**
+     * @return the decoded record, or null if it was discarded as rejected early data.
+     */
     TlsDecodeResult decodeAndVerify(short recordType, ProtocolVersion recordVersion, byte[] ciphertext, int off, int len)
         throws IOException
     {
-        long seqNo = readSeqNo.nextValue(AlertDescription.unexpected_message);
-        TlsDecodeResult decoded = readCipher.decodeCiphertext(seqNo, recordType, recordVersion, ciphertext, off, len);
+        TlsDecodeResult decoded;
+        if (earlyDataSkipTrial && earlyDataSkipLimit >= 0L && ContentType.application_data == recordType)
+        {
+            try
+            {
+                decoded = readCipher.decodeCiphertext(readSeqNo.currentValue(), recordType, recordVersion, ciphertext,
+                    off, len);
+            }
+            catch (TlsFatalAlert e)
+            {
+                if (AlertDescription.bad_record_mac != e.getAlertDescription())
+                {
+                    throw e;
+                }
+
+                consumeEarlyDataSkip(len);
+                return null;
+            }
+
+            // The first record that decrypts begins the client's second flight
+            this.earlyDataSkipLimit = -1L;
+            readSeqNo.nextValue(AlertDescription.unexpected_message);
+        }
+        else
+        {
+            long seqNo = readSeqNo.nextValue(AlertDescription.unexpected_message);
+            decoded = readCipher.decodeCiphertext(seqNo, recordType, recordVersion, ciphertext, off, len);
+        }
 
-        checkLength(decoded.len, plaintextLimit, AlertDescription.record_overflow);
+        checkLength(decoded.len, readPlaintextLimit, AlertDescription.record_overflow);
 
         /*
          * RFC 5246 6.2.1 Implementations MUST NOT send zero-length fragments of Handshake, Alert,
@@ -280,7 +494,7 @@ class RecordStream
         /*
          * RFC 5246 6.2.1 The length should not exceed 2^14.
          */
-        checkLength(plaintextLength, plaintextLimit, AlertDescription.internal_error);
+        checkLength(plaintextLength, getPlaintextLimit(), AlertDescription.internal_error);
 
         /*
          * RFC 5246 6.2.1 Implementations MUST NOT send zero-length fragments of Handshake, Alert,
@@ -294,19 +508,28 @@ class RecordStream
         long seqNo = writeSeqNo.nextValue(AlertDescription.internal_error);
         ProtocolVersion recordVersion = writeVersion;
 
-        TlsEncodeResult encoded = writeCipher.encodePlaintext(seqNo, contentType, recordVersion,
-            RecordFormat.FRAGMENT_OFFSET, plaintext, plaintextOffset, plaintextLength);
+        /*
+         * The record is encoded into a buffer that is kept for the life of the connection, so that (at least
+         * for the ciphers that support it) writing a record doesn't allocate.
+         */
+        ByteBuffer record = getWriteBuffer(plaintextLength);
+        ((java.nio.Buffer)record).position(RecordFormat.FRAGMENT_OFFSET);
+
+        short recordType = writeCipher.encodePlaintext(seqNo, contentType, recordVersion, plaintext, plaintextOffset,
+            plaintextLength, record);
 
-        int ciphertextLength = encoded.len - RecordFormat.FRAGMENT_OFFSET;
+        int recordLength = record.position();
+        int ciphertextLength = recordLength - RecordFormat.FRAGMENT_OFFSET;
         TlsUtils.checkUint16(ciphertextLength);
 
-        TlsUtils.writeUint8(encoded.recordType, encoded.buf, encoded.off + RecordFormat.TYPE_OFFSET);
-        TlsUtils.writeVersion(recordVersion, encoded.buf, encoded.off + RecordFormat.VERSION_OFFSET);
-        TlsUtils.writeUint16(ciphertextLength, encoded.buf, encoded.off + RecordFormat.LENGTH_OFFSET);
+        byte[] buf = record.array();
+        TlsUtils.writeUint8(recordType, buf, RecordFormat.TYPE_OFFSET);
+        TlsUtils.writeVersion(recordVersion, buf, RecordFormat.VERSION_OFFSET);
+        TlsUtils.writeUint16(ciphertextLength, buf, RecordFormat.LENGTH_OFFSET);
 
         try
         {
-            output.write(encoded.buf, encoded.off, encoded.len);
+            output.write(buf, 0, recordLength);
         }
         catch (InterruptedIOException e)
         {
@@ -316,9 +539,53 @@ class RecordStream
         output.flush();
     }
 
+    void writeRecord(short contentType, ByteBuffer[] plaintext, int offset, int length, int plaintextLength,
+        ByteBuffer recordOutput)
+        throws IOException
+    {
+        // Never send anything until a valid ClientHello has been received
+        if (writeVersion == null)
+        {
+            return;
+        }
+
+        /*
+         * RFC 5246 6.2.1 The length should not exceed 2^14.
+         */
+        checkLength(plaintextLength, getPlaintextLimit(), AlertDescription.internal_error);
+
+        /*
+         * RFC 5246 6.2.1 Implementations MUST NOT send zero-length fragments of Handshake, Alert,
+         * or ChangeCipherSpec content types.
+         */
+        if (plaintextLength < 1 && contentType != ContentType.application_data)
+        {
+            throw new TlsFatalAlert(AlertDescription.internal_error);
+        }
+
+        long seqNo = writeSeqNo.nextValue(AlertDescription.internal_error);
+        ProtocolVersion recordVersion = writeVersion;
+
+        int recordStart = recordOutput.position();
+        ((java.nio.Buffer)recordOutput).position(recordStart + RecordFormat.FRAGMENT_OFFSET);
+
+        short recordType = writeCipher.encodePlaintext(seqNo, contentType, recordVersion, plaintext, offset, length,
+            plaintextLength, recordOutput);
+
+        int ciphertextLength = recordOutput.position() - recordStart - RecordFormat.FRAGMENT_OFFSET;
+        TlsUtils.checkUint16(ciphertextLength);
+
+        recordOutput.put(recordStart + RecordFormat.TYPE_OFFSET, (byte)recordType);
+        recordOutput.put(recordStart + RecordFormat.VERSION_OFFSET, (byte)recordVersion.getMajorVersion());
+        recordOutput.put(recordStart + RecordFormat.VERSION_OFFSET + 1, (byte)recordVersion.getMinorVersion());
+        recordOutput.put(recordStart + RecordFormat.LENGTH_OFFSET, (byte)(ciphertextLength >>> 8));
+        recordOutput.put(recordStart + RecordFormat.LENGTH_OFFSET + 1, (byte)ciphertextLength);
+    }
+
     void close() throws IOException
     {
         inputRecord.reset();
+        this.readBuffer = null;
 
         IOException io = null;
         try
@@ -353,6 +620,91 @@ class RecordStream
         }
     }
 
+    private ByteBuffer getWriteBuffer(int plaintextLength)
+    {
+        int required = RecordFormat.FRAGMENT_OFFSET + writeCipher.getCiphertextEncodeLimit(plaintextLength);
+        if (writeBuffer.capacity() < required)
+        {
+            // Size for a full record, so the buffer only grows when the cipher or the limits change
+            int fullRecord = RecordFormat.FRAGMENT_OFFSET + writeCipher.getCiphertextEncodeLimit(getPlaintextLimit());
+            this.writeBuffer = ByteBuffer.allocate(Math.max(required, fullRecord));
+        }
+
+        ((java.nio.Buffer)writeBuffer).clear();
+        return writeBuffer;
+    }
+
+    private ByteBuffer getReadBuffer(int required, boolean direct)
+    {
+        if (readBuffer == null || readBuffer.capacity() < required || readBuffer.isDirect() != direct)
+        {
+            // Size for a full record, so the buffer is only replaced when the kind of input changes
+            int capacity = Math.max(required, ciphertextLimit);
+            this.readBuffer = direct ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+        }
+
+        ((java.nio.Buffer)readBuffer).clear();
+        return readBuffer;
+    }
+
+    private void updateReadLimits()
+    {
+        /*
+         * RFC 8449 4. Unprotected messages are not subject to the record size limit. Nor is early data, which
+         * is sent before the client can know the server's limit.
+         */
+        boolean limited = TlsNullNullCipher.INSTANCE != readCipher && null == readCipherEndOfEarlyData;
+
+        this.readPlaintextLimit = limited ? Math.min(plaintextLimit, readRecordSizeLimit) : plaintextLimit;
+        this.ciphertextLimit = readCipher.getCiphertextDecodeLimit(readPlaintextLimit);
+    }
+
+    private int getCiphertextLimit(short recordType)
+    {
+        /*
+         * NOTE: Early data being skipped may be protected by a cipher we don't have, and in any case was sent
+         * without knowledge of our record size limit.
+         */
+        if (earlyDataSkipLimit >= 0L && ContentType.application_data == recordType)
+        {
+            return earlyDataSkipTrial
+                ?   Math.max(ciphertextLimit, EARLY_DATA_CIPHERTEXT_LIMIT)
+                :   EARLY_DATA_CIPHERTEXT_LIMIT;
+        }
+        return ciphertextLimit;
+    }
+
+    private boolean skipEarlyData(short recordType, int length)
+        throws IOException
+    {
+        if (earlyDataSkipLimit < 0L || earlyDataSkipTrial)
+        {
+            return false;
+        }
+        if (ContentType.application_data != recordType)
+        {
+            if (ContentType.handshake == recordType)
+            {
+                this.earlyDataSkipLimit = -1L;
+            }
+            return false;
+        }
+
+        consumeEarlyDataSkip(length);
+        return true;
+    }
+
+    private void consumeEarlyDataSkip(int length)
+        throws IOException
+    {
+        long count = Math.max(1, length - EARLY_DATA_RECORD_OVERHEAD);
+        if (count > earlyDataSkipLimit)
+        {
+            throw new TlsFatalAlert(AlertDescription.unexpected_message, "Too much early data");
+        }
+        this.earlyDataSkipLimit -= count;
+    }
+
     private void checkChangeCipherSpec(byte[] buf, int off, int len)
         throws IOException
     {
@@ -366,13 +718,17 @@ class RecordStream
     private short checkRecordType(byte[] buf, int off)
         throws IOException
     {
-        short recordType = TlsUtils.readUint8(buf, off);
+        return checkRecordType(TlsUtils.readUint8(buf, off));
+    }
 
+    private short checkRecordType(short recordType)
+        throws IOException
+    {
         if (null != readCipherDeferred && recordType == ContentType.application_data)
         {
             this.readCipher = readCipherDeferred;
             this.readCipherDeferred = null;
-            this.ciphertextLimit = readCipher.getCiphertextDecodeLimit(plaintextLimit);
+            updateReadLimits();
             readSeqNo.reset();
         }
         else if (readCipher.usesOpaqueRecordTypeDecode())
@@ -396,7 +752,7 @@ class RecordStream
             {
             case ContentType.application_data:
             {
-                if (!handler.isApplicationDataReady())
+                if (!handler.isApplicationDataReady() && !(earlyDataSkipLimit >= 0L && !earlyDataSkipTrial))
                 {
                     throw new TlsFatalAlert(AlertDescription.unexpected_message,
                         "Not ready for " + ContentType.getText(ContentType.application_data));
@@ -16,6 +16,8 @@ public class SecurityParameters
     boolean secureRenegotiation = false;
     int cipherSuite = CipherSuite.TLS_NULL_WITH_NULL_NULL;
     short maxFragmentLength = -1;
+    int recordSizeLimitLocal = -1;
+    int recordSizeLimitPeer = -1;
     int prfAlgorithm = -1;
     int prfCryptoHashAlgorithm = -1;
     int prfHashLength = -1;
@@ -27,6 +29,7 @@ public class SecurityParameters
     TlsSecret exporterMasterSecret = null;
     TlsSecret handshakeSecret = null;
     TlsSecret masterSecret = null;
+    TlsSecret resumptionMasterSecret = null;
     TlsSecret trafficSecretClient = null;
     TlsSecret trafficSecretServer = null;
     byte[] clientRandom = null;
@@ -41,6 +44,8 @@ public class SecurityParameters
     boolean extendedMasterSecret = false;
     boolean extendedPadding = false;
     boolean truncatedHMac = false;
+    boolean earlyDataAccepted = false;
+    long earlyDataSize = 0L;
     ProtocolName applicationProtocol = null;
     boolean applicationProtocolSet = false;
     short[] clientCertTypes = null;
@@ -69,6 +74,17 @@ public class SecurityParameters
     byte[] connectionIDPeer;
 
     void clear()
+    {
+        clearHandshake();
+
+        this.resumptionMasterSecret = clearSecret(resumptionMasterSecret);
+    }
+
+    /*
+     * As clear(), but keeps the (TLS 1.3) resumption master secret, which NewSessionTicket messages sent or
+     * received after the handshake still need. It is cleared by clear() when the connection closes.
+     */
+    void clearHandshake()
     {
         this.sessionHash = null;
         this.sessionID = null;
@@ -190,6 +206,23 @@ public class SecurityParameters
         return maxFragmentLength;
     }
 
+    /**
+     * @return the "record_size_limit" (RFC 8449) we advertised, or -1 if the extension was not negotiated.
+     */
+    public int getRecordSizeLimitLocal()
+    {
+        return recordSizeLimitLocal;
+    }
+
+    /**
+     * @return the "record_size_limit" (RFC 8449) advertised by the peer, or -1 if the extension was not
+     *         negotiated.
+     */
+    public int getRecordSizeLimitPeer()
+    {
+        return recordSizeLimitPeer;
+    }
+
     /**
      * @deprecated Use {@link #getPRFAlgorithm()} instead.
      */
@@ -269,6 +302,15 @@ public class SecurityParameters
         return masterSecret;
     }
 
+    /**
+     * (D)TLS 1.3 only: the resumption_master_secret, which outlives the handshake so that NewSessionTicket
+     * messages can be processed later in the connection.
+     */
+    public TlsSecret getResumptionMasterSecret()
+    {
+        return resumptionMasterSecret;
+    }
+
     public TlsSecret getTrafficSecretClient()
     {
         return trafficSecretClient;
@@ -339,6 +381,24 @@ public class SecurityParameters
         return truncatedHMac;
     }
 
+    /**
+     * @return true if TLS 1.3 early data (RFC 8446 4.2.10) was accepted by the server in this handshake.
+     */
+    public boolean isEarlyDataAccepted()
+    {
+        return earlyDataAccepted;
+    }
+
+    /**
+     * @return the number of bytes of early data sent (client) or received (server) in this handshake. On
+     *         the server, this much application data was received before the handshake completed, and is
+     *         open to replay.
+     */
+    public long getEarlyDataSize()
+    {
+        return earlyDataSize;
+    }
+
     public ProtocolName getApplicationProtocol()
     {
         return applicationProtocol;
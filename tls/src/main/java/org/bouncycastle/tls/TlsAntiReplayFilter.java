@@ -0,0 +1,29 @@
+package org.bouncycastle.tls;
+
+/**
+ * Base interface for the server-side defence against replay of TLS 1.3 early data (RFC 8446 8).
+ * <p>
+ * Early data is only accepted when the client's view of the ticket age agrees with the server's to
+ * within {@link #getWindowMillis()} (RFC 8446 8.3), AND this filter has not already seen the same
+ * ClientHello (RFC 8446 8.2). The filter must therefore remember each ClientHello for at least twice
+ * the window.
+ * </p>
+ */
+public interface TlsAntiReplayFilter
+{
+    /**
+     * @return the tolerance, in milliseconds, allowed between the client's and the server's view of the
+     *         ticket age.
+     */
+    long getWindowMillis();
+
+    /**
+     * Check whether a ClientHello offering early data may be a replay, and record it either way.
+     *
+     * @param clientHelloID a value identifying the ClientHello; the binder of the selected PSK is used, so
+     *            this value is unpredictable to anyone not holding the PSK.
+     * @return true if the ClientHello has not been seen before (so its early data may be accepted), or
+     *         false if it may be a replay (or the filter is unable to say).
+     */
+    boolean checkAndRecord(byte[] clientHelloID);
+}
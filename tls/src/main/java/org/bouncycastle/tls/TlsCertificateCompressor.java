@@ -0,0 +1,38 @@
+package org.bouncycastle.tls;
+
+import java.io.IOException;
+
+/**
+ * Base interface for an implementation of one of the certificate compression algorithms of RFC 8879.
+ * <p>
+ * In TLS 1.3, a client offers the algorithms of its compressors in the "compress_certificate" extension,
+ * and a server holding a compressor for one of them sends its Certificate message as a
+ * CompressedCertificate message instead.
+ * </p>
+ *
+ * @see ZlibCertificateCompressor
+ */
+public interface TlsCertificateCompressor
+{
+    /**
+     * @return the {@link CertificateCompressionAlgorithm} implemented by this compressor.
+     */
+    int getAlgorithm();
+
+    /**
+     * @param certificateMessage the body of a Certificate message.
+     * @return the compressed form of the message.
+     * @throws IOException
+     */
+    byte[] compress(byte[] certificateMessage) throws IOException;
+
+    /**
+     * @param compressedCertificateMessage the compressed form of a Certificate message body.
+     * @param uncompressedLength the length claimed by the peer for the uncompressed message.
+     * @return the uncompressed message; implementations must not produce more than
+     *         <code>uncompressedLength</code> bytes while decompressing.
+     * @throws IOException if the input cannot be decompressed to exactly
+     *             <code>uncompressedLength</code> bytes.
+     */
+    byte[] decompress(byte[] compressedCertificateMessage, int uncompressedLength) throws IOException;
+}
@@ -32,6 +32,33 @@ public interface TlsClient
      */
     Vector getExternalPSKs();
 
+    /**
+     * Return the {@link TlsPSKResumption resumption PSKs} to offer in the ClientHello, normally ones
+     * previously passed to {@link #notifyResumptionPSK(TlsPSKResumption)} by connections to the same
+     * server. Expired PSKs, and those whose PRF does not match any offered cipher suite, are skipped.
+     * Note that this will only be called when TLS 1.3 or higher is amongst the offered protocol versions.
+     *
+     * @return a {@link Vector} of {@link TlsPSKResumption} instances, or null if none should be offered.
+     */
+    Vector getResumptionPSKs();
+
+    /**
+     * RFC 8446 4.2.10. Early Data Indication.
+     * <p>
+     * Called when the first PSK to be offered is a {@link TlsPSKResumption} permitting early data (see
+     * {@link TlsPSKResumption#getMaxEarlyDataSize()}). Any data returned is sent (0-RTT) immediately
+     * after the ClientHello. The server may reject it, in which case it is discarded and must be resent
+     * once the handshake completes if still wanted; check
+     * {@link SecurityParameters#isEarlyDataAccepted()}. Since early data can be replayed (RFC 8446 8), it
+     * should only be used for idempotent requests.
+     *
+     * @param resumptionPSK the PSK that will protect the early data.
+     * @return the early data to send (no more than the PSK's max early data size), or null for none.
+     * @throws IOException
+     */
+    byte[] getEarlyData(TlsPSKResumption resumptionPSK)
+        throws IOException;
+
     boolean isFallback();
 
     // Hashtable is (Integer -> byte[])
@@ -126,4 +153,17 @@ public interface TlsClient
      */
     void notifyNewSessionTicket(NewSessionTicket newSessionTicket)
         throws IOException;
+
+    /**
+     * RFC 8446 4.6.1. New Session Ticket Message
+     * <p>
+     * This method will be called when a TLS 1.3 NewSessionTicket message is received, with the
+     * resumption PSK that it establishes. The PSK may be offered in later connections to the same
+     * server via {@link #getResumptionPSKs()}.
+     *
+     * @param resumptionPSK The resumption PSK.
+     * @throws IOException
+     */
+    void notifyResumptionPSK(TlsPSKResumption resumptionPSK)
+        throws IOException;
 }
@@ -9,10 +9,13 @@ import java.util.Hashtable;
 import java.util.Vector;
 
 import org.bouncycastle.tls.crypto.TlsAgreement;
+import org.bouncycastle.tls.crypto.TlsCipher;
+import org.bouncycastle.tls.crypto.TlsNullNullCipher;
 import org.bouncycastle.tls.crypto.TlsSecret;
 import org.bouncycastle.tls.crypto.TlsStreamSigner;
 import org.bouncycastle.util.Arrays;
 import org.bouncycastle.util.Integers;
+import org.bouncycastle.util.Objects;
 
 public class TlsClientProtocol
     extends TlsProtocol
@@ -29,6 +32,9 @@ public class TlsClientProtocol
     protected CertificateStatus certificateStatus = null;
     protected CertificateRequest certificateRequest = null;
 
+    protected boolean offeredEarlyData13 = false;
+    protected TlsPSKResumption earlyDataPSK13 = null;
+
     /**
      * Constructor for non-blocking mode.<br>
      * <br>
@@ -119,6 +125,8 @@ public class TlsClientProtocol
 
         this.certificateStatus = null;
         this.certificateRequest = null;
+
+        this.earlyDataPSK13 = null;
     }
 
     protected TlsContext getContext()
@@ -166,6 +174,26 @@ public class TlsClientProtocol
             }
             break;
         }
+        case HandshakeType.compressed_certificate:
+        {
+            switch (this.connection_state)
+            {
+            case CS_SERVER_ENCRYPTED_EXTENSIONS:
+            {
+                skip13CertificateRequest();
+                // NB: Fall through to next case label
+            }
+            case CS_SERVER_CERTIFICATE_REQUEST:
+            {
+                receive13ServerCompressedCertificate(buf);
+                this.connection_state = CS_SERVER_CERTIFICATE;
+                break;
+            }
+            default:
+                throw new TlsFatalAlert(AlertDescription.unexpected_message);
+            }
+            break;
+        }
         case HandshakeType.certificate_request:
         {
             switch (this.connection_state)
@@ -243,10 +271,16 @@ public class TlsClientProtocol
                 recordStream.setIgnoreChangeCipherSpec(false);
 
                 /*
-                 * TODO[tls13] After receiving the server's Finished message, if the server has accepted early
-                 * data, an EndOfEarlyData message will be sent to indicate the key change. This message will
-                 * be encrypted with the 0-RTT traffic keys.
+                 * RFC 8446 4.5. If the server has accepted early data, an EndOfEarlyData message is sent
+                 * (encrypted with the 0-RTT traffic keys) to indicate the key change.
                  */
+                if (tlsClientContext.getSecurityParametersHandshake().isEarlyDataAccepted())
+                {
+                    HandshakeMessageOutput.send(this, HandshakeType.end_of_early_data, TlsUtils.EMPTY_BYTES);
+                    this.connection_state = CS_CLIENT_END_OF_EARLY_DATA;
+
+                    recordStream.enablePendingCipherWrite();
+                }
 
                 if (null != certificateRequest)
                 {
@@ -282,6 +316,9 @@ public class TlsClientProtocol
 
                 TlsUtils.establish13PhaseApplication(tlsClientContext, serverFinishedTranscriptHash, recordStream);
 
+                byte[] clientFinishedTranscriptHash = TlsUtils.getCurrentPRFHash(handshakeHash);
+                TlsUtils.establish13ResumptionMasterSecret(tlsClientContext, clientFinishedTranscriptHash);
+
                 recordStream.enablePendingCipherWrite();
                 recordStream.enablePendingCipherRead(false);
 
@@ -337,7 +374,6 @@ public class TlsClientProtocol
         case HandshakeType.certificate_url:
         case HandshakeType.client_hello:
         case HandshakeType.client_key_exchange:
-        case HandshakeType.compressed_certificate:
         case HandshakeType.end_of_early_data:
         case HandshakeType.hello_request:
         case HandshakeType.hello_verify_request:
@@ -482,8 +518,21 @@ public class TlsClientProtocol
                 // TODO[tls13] Only treat as HRR if it's TLS 1.3??
                 if (serverHello.isHelloRetryRequest())
                 {
+                    if (offeredEarlyData13)
+                    {
+                        // RFC 8446 4.2.10. The early data is rejected; the second ClientHello is unprotected.
+                        this.earlyDataPSK13 = null;
+                        recordStream.setPendingCipher(TlsNullNullCipher.INSTANCE);
+                        recordStream.enablePendingCipherWrite();
+                    }
+
                     process13HelloRetryRequest(serverHello);
                     handshakeHash.notifyPRFDetermined();
+                    if (null != clientBinders)
+                    {
+                        // NOTE: The binders in the second ClientHello are calculated from the buffered transcript
+                        handshakeHash.forceBuffering();
+                    }
                     handshakeHash.sealHashAlgorithms();
                     TlsUtils.adjustTranscriptForRetry(handshakeHash);
                     buf.updateHash(handshakeHash);
@@ -495,6 +544,16 @@ public class TlsClientProtocol
                 else
                 {
                     processServerHello(serverHello);
+
+                    /*
+                     * RFC 8446 4.2.10. A client that attempts to send 0-RTT data MUST fail a connection if it
+                     * receives a ServerHello with TLS 1.2 or older.
+                     */
+                    if (offeredEarlyData13 && !TlsUtils.isTLSv13(securityParameters.getNegotiatedVersion()))
+                    {
+                        throw new TlsFatalAlert(AlertDescription.protocol_version);
+                    }
+
                     handshakeHash.notifyPRFDetermined();
                     if (TlsUtils.isTLSv13(securityParameters.getNegotiatedVersion()))
                     {
@@ -1023,6 +1082,13 @@ public class TlsClientProtocol
                 this.selectedPSK13 = true;
             }
 
+            // NOTE: Early data can only be accepted with the first offered PSK (and its cipher suite)
+            if (null != earlyDataPSK13
+                && (0 != selected_identity || earlyDataPSK13.getCipherSuite() != securityParameters.getCipherSuite()))
+            {
+                this.earlyDataPSK13 = null;
+            }
+
             tlsClient.notifySelectedPSK(selectedPSK);
         }
 
@@ -1073,15 +1139,11 @@ public class TlsClientProtocol
 
         TlsUtils.establish13PhaseHandshake(tlsClientContext, serverHelloTranscriptHash, recordStream);
 
-        // See RFC 8446 D.4.
-        if (!afterHelloRetryRequest)
+        // See RFC 8446 D.4. (if offering early data, this was sent immediately after the first ClientHello)
+        if (!afterHelloRetryRequest && !offeredEarlyData13)
         {
             recordStream.setIgnoreChangeCipherSpec(true);
 
-            /*
-             * TODO[tls13] If offering early_data, the record is placed immediately after the first
-             * ClientHello.
-             */
             /*
              * TODO[tls13] Ideally wait until just after Server Finished received, but then we'd need to defer
              * the enabling of the pending write cipher
@@ -1089,7 +1151,11 @@ public class TlsClientProtocol
             sendChangeCipherSpecMessage();
         }
 
-        recordStream.enablePendingCipherWrite();
+        // NOTE: While early data might be accepted, writing stays with the early data cipher (see EncryptedExtensions)
+        if (null == earlyDataPSK13)
+        {
+            recordStream.enablePendingCipherWrite();
+        }
         recordStream.enablePendingCipherRead(false);
     }
 
@@ -1435,7 +1501,13 @@ public class TlsClientProtocol
             tlsClient.processServerExtensions(sessionServerExtensions);
         }
 
+        // NOTE: The record size limit is negotiated per connection, even when resuming
+        TlsUtils.processRecordSizeLimitExtension(securityParameters, clientExtensions, serverHelloExtensions,
+            AlertDescription.illegal_parameter);
+
         applyMaxFragmentLengthExtension(securityParameters.getMaxFragmentLength());
+        applyRecordSizeLimitExtension(securityParameters.getRecordSizeLimitLocal(),
+            securityParameters.getRecordSizeLimitPeer());
 
         if (securityParameters.isResumedSession())
         {
@@ -1518,6 +1590,27 @@ public class TlsClientProtocol
         securityParameters.applicationProtocol = TlsExtensionsUtils.getALPNExtensionServer(serverExtensions);
         securityParameters.applicationProtocolSet = true;
 
+        if (TlsExtensionsUtils.hasEarlyDataIndication(serverExtensions))
+        {
+            /*
+             * RFC 8446 4.2.10. [..] the client MUST verify that the server selected the first PSK [..] and
+             * that the selected ALPN protocol, if any, is the same as the one associated with the PSK.
+             */
+            if (null == earlyDataPSK13
+                || !Objects.areEqual(earlyDataPSK13.getApplicationProtocol(), securityParameters.getApplicationProtocol()))
+            {
+                throw new TlsFatalAlert(AlertDescription.illegal_parameter);
+            }
+
+            securityParameters.earlyDataAccepted = true;
+        }
+        else if (null != earlyDataPSK13)
+        {
+            // The early data was rejected; the rest of our flight uses the handshake traffic keys
+            this.earlyDataPSK13 = null;
+            recordStream.enablePendingCipherWrite();
+        }
+
         Hashtable sessionClientExtensions = clientExtensions, sessionServerExtensions = serverExtensions;
         if (securityParameters.isResumedSession())
         {
@@ -1554,7 +1647,12 @@ public class TlsClientProtocol
             tlsClient.processServerExtensions(serverExtensions);
         }
 
+        TlsUtils.processRecordSizeLimitExtension(securityParameters, clientExtensions, serverExtensions,
+            AlertDescription.illegal_parameter);
+
         applyMaxFragmentLengthExtension(securityParameters.getMaxFragmentLength());
+        applyRecordSizeLimitExtension(securityParameters.getRecordSizeLimitLocal(),
+            securityParameters.getRecordSizeLimitPeer());
     }
 
     protected void receive13NewSessionTicket(ByteArrayInputStream buf)
@@ -1565,8 +1663,6 @@ public class TlsClientProtocol
             throw new TlsFatalAlert(AlertDescription.unexpected_message);
         }
 
-        // TODO[tls13] Do something more than just ignore them
-
 //        struct {
 //            uint32 ticket_lifetime;
 //            uint32 ticket_age_add;
@@ -1575,12 +1671,38 @@ public class TlsClientProtocol
 //            Extension extensions<0..2^16-2>;
 //        } NewSessionTicket;
 
-        TlsUtils.readUint32(buf);
-        TlsUtils.readUint32(buf);
-        TlsUtils.readOpaque8(buf);
-        TlsUtils.readOpaque16(buf);
-        TlsUtils.readOpaque16(buf);
+        long ticketLifetime = TlsUtils.readUint32(buf);
+        long ticketAgeAdd = TlsUtils.readUint32(buf);
+        byte[] ticketNonce = TlsUtils.readOpaque8(buf);
+        byte[] ticket = TlsUtils.readOpaque16(buf, 1);
+        byte[] extBytes = TlsUtils.readOpaque16(buf);
         assertEmpty(buf);
+
+        /*
+         * RFC 8446 4.6.1. Servers MUST NOT use any value greater than 604800 seconds (7 days).
+         */
+        if (ticketLifetime > 604800L)
+        {
+            throw new TlsFatalAlert(AlertDescription.illegal_parameter);
+        }
+
+        Hashtable extensions = readExtensionsData13(HandshakeType.new_session_ticket, extBytes);
+
+        long maxEarlyDataSize = Math.max(0L, TlsExtensionsUtils.getEarlyDataMaxSize(extensions));
+
+        // A zero lifetime means the ticket should be discarded immediately
+        if (ticketLifetime < 1)
+        {
+            return;
+        }
+
+        SecurityParameters securityParameters = tlsClientContext.getSecurityParametersConnection();
+
+        TlsSecret psk = TlsUtils.calculate13ResumptionPSK(securityParameters, ticketNonce);
+
+        tlsClient.notifyResumptionPSK(new TlsPSKResumption(ticket, psk, securityParameters.getCipherSuite(),
+            ticketAgeAdd, System.currentTimeMillis(), ticketLifetime, securityParameters.getApplicationProtocol(),
+            maxEarlyDataSize));
     }
 
     protected void receive13ServerCertificate(ByteArrayInputStream buf)
@@ -1597,6 +1719,20 @@ public class TlsClientProtocol
         handleServerCertificate();
     }
 
+    protected void receive13ServerCompressedCertificate(ByteArrayInputStream buf)
+        throws IOException
+    {
+        if (selectedPSK13)
+        {
+            throw new TlsFatalAlert(AlertDescription.unexpected_message);
+        }
+
+        this.authentication = TlsUtils.receive13ServerCompressedCertificate(tlsClientContext, tlsClient, buf,
+            clientExtensions, serverExtensions);
+
+        handleServerCertificate();
+    }
+
     protected void receive13ServerCertificateVerify(ByteArrayInputStream buf)
         throws IOException
     {
@@ -1713,14 +1849,11 @@ public class TlsClientProtocol
          * extension [RFC7685].
          */
 
-        // See RFC 8446 D.4.
+        // See RFC 8446 D.4. (if offering early data, this was sent immediately after the first ClientHello)
+        if (!offeredEarlyData13)
         {
             recordStream.setIgnoreChangeCipherSpec(true);
 
-            /*
-             * TODO[tls13] If offering early_data, the record is placed immediately after the first
-             * ClientHello.
-             */
             sendChangeCipherSpecMessage();
         }
 
@@ -1877,6 +2010,12 @@ public class TlsClientProtocol
         this.clientBinders = TlsUtils.addPreSharedKeyToClientHello(tlsClientContext, tlsClient, clientExtensions,
             offeredCipherSuites);
 
+        byte[] earlyData = get13EarlyData(offeredCipherSuites);
+        if (null != earlyData)
+        {
+            TlsExtensionsUtils.addEarlyDataIndication(clientExtensions);
+        }
+
         // TODO[tls13-psk] Perhaps don't add key_share if external PSK(s) offered and 'psk_dhe_ke' not offered  
         this.clientAgreements = TlsUtils.addKeyShareToClientHello(tlsClientContext, tlsClient, clientExtensions);
 
@@ -1951,6 +2090,65 @@ public class TlsClientProtocol
             null, offeredCipherSuites, clientExtensions, bindersSize);
 
         sendClientHelloMessage();
+
+        if (null != earlyData)
+        {
+            send13EarlyData(earlyData);
+        }
+    }
+
+    protected void send13EarlyData(byte[] earlyData) throws IOException
+    {
+        TlsCipher earlyDataCipher = TlsUtils.init13EarlyDataCipherClient(tlsClientContext,
+            earlyDataPSK13.getCipherSuite(), clientBinders.earlySecrets[0], handshakeHash);
+
+        recordStream.setWriteVersion(ProtocolVersion.TLSv12);
+
+        // See RFC 8446 D.4. If offering early data, the record is placed immediately after the first ClientHello.
+        recordStream.setIgnoreChangeCipherSpec(true);
+        sendChangeCipherSpecMessage();
+
+        recordStream.setPendingCipher(earlyDataCipher);
+        recordStream.enablePendingCipherWrite();
+
+        int plaintextLimit = recordStream.getPlaintextLimit();
+        for (int off = 0; off < earlyData.length; off += plaintextLimit)
+        {
+            int len = Math.min(plaintextLimit, earlyData.length - off);
+            safeWriteRecord(ContentType.application_data, earlyData, off, len);
+        }
+
+        tlsClientContext.getSecurityParametersHandshake().earlyDataSize = earlyData.length;
+        this.offeredEarlyData13 = true;
+    }
+
+    private byte[] get13EarlyData(int[] offeredCipherSuites) throws IOException
+    {
+        this.earlyDataPSK13 = null;
+
+        if (null == clientBinders || !(clientBinders.psks[0] instanceof TlsPSKResumption))
+        {
+            return null;
+        }
+
+        TlsPSKResumption psk = (TlsPSKResumption)clientBinders.psks[0];
+        if (psk.getMaxEarlyDataSize() <= 0L || !Arrays.contains(offeredCipherSuites, psk.getCipherSuite()))
+        {
+            return null;
+        }
+
+        byte[] earlyData = tlsClient.getEarlyData(psk);
+        if (null == earlyData || earlyData.length < 1)
+        {
+            return null;
+        }
+        if (earlyData.length > psk.getMaxEarlyDataSize())
+        {
+            throw new TlsFatalAlert(AlertDescription.internal_error);
+        }
+
+        this.earlyDataPSK13 = psk;
+        return earlyData;
     }
 
     protected void sendClientHelloMessage() throws IOException
@@ -0,0 +1,207 @@
+package org.bouncycastle.tls;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import org.bouncycastle.tls.crypto.TlsCrypto;
+import org.bouncycastle.tls.crypto.TlsSecret;
+import org.bouncycastle.util.Arrays;
+
+/**
+ * A TLS 1.3 resumption PSK, i.e. one established by a NewSessionTicket message (RFC 8446 4.6.1).
+ * <p>
+ * On the client this is what {@link TlsClient#notifyResumptionPSK(TlsPSKResumption)} receives and what
+ * {@link TlsClient#getResumptionPSKs()} should return; the identity is the (opaque) ticket. On the server
+ * it is recovered from a ticket offered by the client, using the {@link TlsTicketKeyManager} that sealed
+ * it.
+ * </p>
+ */
+public class TlsPSKResumption
+    implements TlsPSK
+{
+    private static final short STATE_FORMAT = 2;
+
+    protected final byte[] identity;
+    protected final TlsSecret key;
+    protected final int cipherSuite;
+    protected final int prfAlgorithm;
+    protected final long ticketAgeAdd;
+    protected final long ticketIssueTime;
+    protected final long ticketLifetime;
+    protected final ProtocolName applicationProtocol;
+    protected final long maxEarlyDataSize;
+
+    /**
+     * @param identity the ticket.
+     * @param key the PSK derived from the resumption master secret and ticket nonce.
+     * @param cipherSuite the cipher suite of the connection that issued the ticket.
+     * @param ticketAgeAdd the ticket_age_add value of the NewSessionTicket.
+     * @param ticketIssueTime the time (in milliseconds since the epoch) at which the ticket was issued
+     *            (server) or received (client).
+     * @param ticketLifetime the ticket lifetime in seconds.
+     * @param applicationProtocol the ALPN protocol of the connection that issued the ticket (may be null).
+     */
+    public TlsPSKResumption(byte[] identity, TlsSecret key, int cipherSuite, long ticketAgeAdd,
+        long ticketIssueTime, long ticketLifetime, ProtocolName applicationProtocol)
+    {
+        this(identity, key, cipherSuite, ticketAgeAdd, ticketIssueTime, ticketLifetime, applicationProtocol, 0L);
+    }
+
+    /**
+     * As for {@link #TlsPSKResumption(byte[], TlsSecret, int, long, long, long, ProtocolName)}, additionally
+     * permitting early data.
+     *
+     * @param maxEarlyDataSize the max_early_data_size of the NewSessionTicket, or 0 if early data is not
+     *            permitted with this PSK.
+     */
+    public TlsPSKResumption(byte[] identity, TlsSecret key, int cipherSuite, long ticketAgeAdd,
+        long ticketIssueTime, long ticketLifetime, ProtocolName applicationProtocol, long maxEarlyDataSize)
+    {
+        int prfAlgorithm = TlsUtils.getPRFAlgorithm13(cipherSuite);
+        if (prfAlgorithm < 0)
+        {
+            throw new IllegalArgumentException("'cipherSuite' is not a TLS 1.3 cipher suite");
+        }
+        if (!TlsUtils.isValidUint32(ticketAgeAdd))
+        {
+            throw new IllegalArgumentException("'ticketAgeAdd' should be a uint32");
+        }
+        if (!TlsUtils.isValidUint32(ticketLifetime))
+        {
+            throw new IllegalArgumentException("'ticketLifetime' should be a uint32");
+        }
+        if (!TlsUtils.isValidUint32(maxEarlyDataSize))
+        {
+            throw new IllegalArgumentException("'maxEarlyDataSize' should be a uint32");
+        }
+
+        this.identity = Arrays.clone(identity);
+        this.key = key;
+        this.cipherSuite = cipherSuite;
+        this.prfAlgorithm = prfAlgorithm;
+        this.ticketAgeAdd = ticketAgeAdd;
+        this.ticketIssueTime = ticketIssueTime;
+        this.ticketLifetime = ticketLifetime;
+        this.applicationProtocol = applicationProtocol;
+        this.maxEarlyDataSize = maxEarlyDataSize;
+    }
+
+    public byte[] getIdentity()
+    {
+        return identity;
+    }
+
+    public TlsSecret getKey()
+    {
+        return key;
+    }
+
+    public int getPRFAlgorithm()
+    {
+        return prfAlgorithm;
+    }
+
+    public int getCipherSuite()
+    {
+        return cipherSuite;
+    }
+
+    public long getTicketAgeAdd()
+    {
+        return ticketAgeAdd;
+    }
+
+    public long getTicketIssueTime()
+    {
+        return ticketIssueTime;
+    }
+
+    public long getTicketLifetime()
+    {
+        return ticketLifetime;
+    }
+
+    public ProtocolName getApplicationProtocol()
+    {
+        return applicationProtocol;
+    }
+
+    /**
+     * @return the maximum amount of early data (RFC 8446 4.2.10) that may be sent when offering this PSK,
+     *         or 0 if early data is not permitted.
+     */
+    public long getMaxEarlyDataSize()
+    {
+        return maxEarlyDataSize;
+    }
+
+    /**
+     * @param now the current time in milliseconds since the epoch.
+     * @return the obfuscated_ticket_age to send when offering this PSK.
+     */
+    public long getObfuscatedTicketAge(long now)
+    {
+        return (Math.max(0L, now - ticketIssueTime) + ticketAgeAdd) & 0xFFFFFFFFL;
+    }
+
+    /**
+     * @param now the current time in milliseconds since the epoch.
+     * @return true if the ticket lifetime has elapsed.
+     */
+    public boolean isExpired(long now)
+    {
+        return (now - ticketIssueTime) > (ticketLifetime * 1000L);
+    }
+
+    static byte[] encodeTicketState(ProtocolVersion negotiatedVersion, int cipherSuite, long ticketAgeAdd,
+        long ticketIssueTime, long ticketLifetime, byte[] key, ProtocolName applicationProtocol,
+        long maxEarlyDataSize) throws IOException
+    {
+        ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        TlsUtils.writeUint8(STATE_FORMAT, buf);
+        TlsUtils.writeVersion(negotiatedVersion, buf);
+        TlsUtils.writeUint16(cipherSuite, buf);
+        TlsUtils.writeUint32(ticketAgeAdd, buf);
+        TlsUtils.writeUint64(ticketIssueTime, buf);
+        TlsUtils.writeUint32(ticketLifetime, buf);
+        TlsUtils.writeOpaque8(key, buf);
+        TlsUtils.writeOpaque8(null == applicationProtocol ? TlsUtils.EMPTY_BYTES : applicationProtocol.getBytes(),
+            buf);
+        TlsUtils.writeUint32(maxEarlyDataSize, buf);
+        return buf.toByteArray();
+    }
+
+    /**
+     * @return the resumption PSK carried in the ticket state, or null if the state is unusable with the
+     *         negotiated version.
+     */
+    static TlsPSKResumption parseTicketState(TlsCrypto crypto, ProtocolVersion negotiatedVersion, byte[] ticket,
+        byte[] state) throws IOException
+    {
+        ByteArrayInputStream buf = new ByteArrayInputStream(state);
+        if (STATE_FORMAT != TlsUtils.readUint8(buf)
+            || !negotiatedVersion.equals(TlsUtils.readVersion(buf)))
+        {
+            return null;
+        }
+
+        int cipherSuite = TlsUtils.readUint16(buf);
+        if (TlsUtils.getPRFAlgorithm13(cipherSuite) < 0)
+        {
+            return null;
+        }
+
+        long ticketAgeAdd = TlsUtils.readUint32(buf);
+        long ticketIssueTime = (TlsUtils.readUint32(buf) << 32) | TlsUtils.readUint32(buf);
+        long ticketLifetime = TlsUtils.readUint32(buf);
+        byte[] key = TlsUtils.readOpaque8(buf, 1);
+        byte[] applicationProtocol = TlsUtils.readOpaque8(buf);
+        long maxEarlyDataSize = TlsUtils.readUint32(buf);
+        TlsProtocol.assertEmpty(buf);
+
+        return new TlsPSKResumption(ticket, crypto.createSecret(key), cipherSuite, ticketAgeAdd, ticketIssueTime,
+            ticketLifetime, applicationProtocol.length < 1 ? null : ProtocolName.asRawBytes(applicationProtocol),
+            maxEarlyDataSize);
+    }
+}
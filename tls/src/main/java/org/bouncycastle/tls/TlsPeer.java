@@ -1,6 +1,7 @@
 package org.bouncycastle.tls;
 
 import java.io.IOException;
+import java.util.Vector;
 
 import org.bouncycastle.tls.crypto.TlsCertificate;
 import org.bouncycastle.tls.crypto.TlsCrypto;
@@ -57,6 +58,17 @@ public interface TlsPeer
 
     int getMaxHandshakeMessageSize();
 
+    /**
+     * Return the certificate compressors (RFC 8879) this peer supports, in order of preference, or null
+     * to not use certificate compression. A client offers the algorithms of its compressors in the
+     * "compress_certificate" extension (TLS 1.3 only); a server compresses its Certificate message with
+     * the first of its compressors that the client offered.
+     *
+     * @return a {@link Vector} of {@link TlsCertificateCompressor}, or null.
+     * @see ZlibCertificateCompressor
+     */
+    Vector getCertificateCompressors();
+
     short[] getPskKeyExchangeModes();
 
     /**
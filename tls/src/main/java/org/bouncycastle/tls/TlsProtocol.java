@@ -125,15 +125,26 @@ public abstract class TlsProtocol
     protected static final short ADS_MODE_0_N = 1; // 0/n record splitting
     protected static final short ADS_MODE_0_N_FIRSTONLY = 2; // 0/n record splitting on first data fragment only
 
+    /*
+     * Dynamic record sizing: records sent while the connection warms up (or after it has been idle) each fit
+     * in a single TCP segment, so the peer can process them as they arrive. Record sizes then grow with each
+     * record sent, up to the plaintext limit, and stay there once DRS_BOOST_THRESHOLD bytes have been sent.
+     */
+    private static final int DRS_SEGMENT_SIZE = 1208; // Conservative TCP MSS estimate
+    private static final long DRS_BOOST_THRESHOLD = 128 * 1024;
+    private static final long DRS_IDLE_MILLIS = 1000L;
+
     /*
      * Queues for data from some protocols.
      */
     private ByteQueue applicationDataQueue = new ByteQueue(0);
+    private byte[] inputScratch = TlsUtils.EMPTY_BYTES;
     private ByteQueue alertQueue = new ByteQueue(2);
     private ByteQueue handshakeQueue = new ByteQueue(0);
 //    private ByteQueue heartbeatQueue = new ByteQueue();
 
     final RecordStream recordStream;
+    // Serializes all writes through recordStream, whichever thread they come from
     final Object recordWriteLock = new Object();
 
     private int maxHandshakeMessageSize = -1;
@@ -152,6 +163,12 @@ public abstract class TlsProtocol
     private volatile boolean keyUpdatePendingSend = false;
     private volatile boolean resumableHandshake = false;
     private volatile int appDataSplitMode = ADS_MODE_1_Nsub1;
+    private volatile boolean dynamicRecordSizing = false;
+
+    // Dynamic record sizing state, guarded by recordWriteLock
+    private long drsBytesSent = 0L;
+    private int drsRecordsSent = 0;
+    private long drsLastWriteTime = 0L;
 
     protected TlsSession tlsSession = null;
     protected SessionParameters sessionParameters = null;
@@ -287,19 +304,27 @@ public abstract class TlsProtocol
         {
             this.closed = true;
 
-            if (!appDataReady)
+            try
             {
-                cleanupHandshake();
-
-                if (user_canceled)
+                if (!appDataReady)
                 {
-                    raiseAlertWarning(AlertDescription.user_canceled, "User canceled handshake");
+                    cleanupHandshake();
+
+                    if (user_canceled)
+                    {
+                        raiseAlertWarning(AlertDescription.user_canceled, "User canceled handshake");
+                    }
                 }
-            }
 
-            raiseAlertWarning(AlertDescription.close_notify, "Connection closed");
+                raiseAlertWarning(AlertDescription.close_notify, "Connection closed");
 
-            closeConnection();
+                closeConnection();
+            }
+            finally
+            {
+                // NOTE: Sending close_notify fails if the peer has already gone, secrets are dropped regardless
+                cleanupConnection();
+            }
 
             getPeer().notifyConnectionClosed();
         }
@@ -338,7 +363,14 @@ public abstract class TlsProtocol
             cleanupHandshake();
         }
 
-        closeConnection();
+        try
+        {
+            closeConnection();
+        }
+        finally
+        {
+            cleanupConnection();
+        }
 
         getPeer().notifyConnectionClosed();
     }
@@ -405,6 +437,21 @@ public abstract class TlsProtocol
         }
     }
 
+    protected void applyRecordSizeLimitExtension(int recordSizeLimitLocal, int recordSizeLimitPeer)
+        throws IOException
+    {
+        if (recordSizeLimitLocal >= 0 && recordSizeLimitPeer >= 0)
+        {
+            /*
+             * RFC 8449 4. In TLS 1.3, the limit applies to the TLSInnerPlaintext, so includes the content type
+             * (and any padding).
+             */
+            int adjust = TlsUtils.isTLSv13(getContext()) ? 1 : 0;
+
+            recordStream.setRecordSizeLimits(recordSizeLimitLocal - adjust, recordSizeLimitPeer - adjust);
+        }
+    }
+
     protected void checkReceivedChangeCipherSpec(boolean expected)
         throws IOException
     {
@@ -451,6 +498,25 @@ public abstract class TlsProtocol
         securityParameters.extendedPadding = peer.shouldUseExtendedPadding();
     }
 
+    protected void cleanupConnection()
+    {
+        TlsContext context = getContext();
+        if (null != context)
+        {
+            SecurityParameters securityParametersConnection = context.getSecurityParametersConnection();
+            if (null != securityParametersConnection)
+            {
+                securityParametersConnection.clear();
+            }
+
+            SecurityParameters securityParametersHandshake = context.getSecurityParametersHandshake();
+            if (null != securityParametersHandshake)
+            {
+                securityParametersHandshake.clear();
+            }
+        }
+    }
+
     protected void cleanupHandshake()
     {
         TlsContext context = getContext();
@@ -459,7 +525,7 @@ public abstract class TlsProtocol
             SecurityParameters securityParameters = context.getSecurityParameters();
             if (null != securityParameters)
             {
-                securityParameters.clear();
+                securityParameters.clearHandshake();
             }
         }
 
@@ -567,7 +633,7 @@ public abstract class TlsProtocol
         {
             if (!appDataReady)
             {
-                throw new TlsFatalAlert(AlertDescription.unexpected_message);
+                checkEarlyData(len);
             }
             applicationDataQueue.addData(buf, off, len);
             processApplicationDataQueue();
@@ -613,6 +679,19 @@ public abstract class TlsProtocol
         }
     }
 
+    /**
+     * Called when application data is received before the handshake has completed, which is only
+     * permitted for TLS 1.3 early data (RFC 8446 4.2.10) that the server has accepted.
+     *
+     * @param len the length of the application data.
+     * @throws IOException if the application data is not acceptable.
+     */
+    protected void checkEarlyData(int len)
+        throws IOException
+    {
+        throw new TlsFatalAlert(AlertDescription.unexpected_message);
+    }
+
     private void processHandshakeQueue(ByteQueue queue)
         throws IOException
     {
@@ -716,6 +795,20 @@ public abstract class TlsProtocol
         }
     }
 
+    /**
+     * Account for application data that the record layer decrypted directly into a caller's buffer,
+     * bypassing the application data queue.
+     */
+    void processApplicationData()
+        throws IOException
+    {
+        if (!appDataReady)
+        {
+            throw new TlsFatalAlert(AlertDescription.unexpected_message);
+        }
+        processApplicationDataQueue();
+    }
+
     private void processApplicationDataQueue()
     {
         /*
@@ -942,12 +1035,70 @@ public abstract class TlsProtocol
         }
     }
 
+    protected int safeReadFullRecord(ByteBuffer input, ByteBuffer output)
+        throws IOException
+    {
+        try
+        {
+            return recordStream.readFullRecord(input, output);
+        }
+        catch (TlsFatalAlert e)
+        {
+            handleException(e.getAlertDescription(), "Failed to process record", e);
+            throw e;
+        }
+        catch (IOException e)
+        {
+            handleException(AlertDescription.internal_error, "Failed to process record", e);
+            throw e;
+        }
+        catch (RuntimeException e)
+        {
+            handleException(AlertDescription.internal_error, "Failed to process record", e);
+            throw new TlsFatalAlert(AlertDescription.internal_error, e);
+        }
+    }
+
     protected void safeWriteRecord(short type, byte[] buf, int offset, int len)
         throws IOException
     {
         try
         {
-            recordStream.writeRecord(type, buf, offset, len);
+            /*
+             * NOTE: Records are also written from the reading thread (alerts, post-handshake messages), and
+             * RecordStream reuses one write buffer and the write cipher state per connection.
+             */
+            synchronized (recordWriteLock)
+            {
+                recordStream.writeRecord(type, buf, offset, len);
+            }
+        }
+        catch (TlsFatalAlert e)
+        {
+            handleException(e.getAlertDescription(), "Failed to write record", e);
+            throw e;
+        }
+        catch (IOException e)
+        {
+            handleException(AlertDescription.internal_error, "Failed to write record", e);
+            throw e;
+        }
+        catch (RuntimeException e)
+        {
+            handleException(AlertDescription.internal_error, "Failed to write record", e);
+            throw new TlsFatalAlert(AlertDescription.internal_error, e);
+        }
+    }
+
+    protected void safeWriteRecord(short type, ByteBuffer[] bufs, int offset, int length, int len, ByteBuffer output)
+        throws IOException
+    {
+        try
+        {
+            synchronized (recordWriteLock)
+            {
+                recordStream.writeRecord(type, bufs, offset, length, len, output);
+            }
         }
         catch (TlsFatalAlert e)
         {
@@ -1065,14 +1216,84 @@ public abstract class TlsProtocol
                 }
 
                 // Fragment data according to the current fragment limit.
-                int toWrite = Math.min(len, recordStream.getPlaintextLimit());
+                int toWrite = Math.min(len, getApplicationDataRecordLimit());
                 safeWriteRecord(ContentType.application_data, buf, off, toWrite);
+                updateApplicationDataRecordSizing(toWrite);
                 off += toWrite;
                 len -= toWrite;
             }
         }
     }
 
+    /**
+     * Write a single record of application data gathered from an array of {@link ByteBuffer}s. Only allowed
+     * in non-blocking mode.<br>
+     * <br>
+     * At most {@link #getApplicationDataLimit()} bytes are consumed from the buffers. Where possible the
+     * record is encrypted straight from the source buffers into <code>output</code>; if that is not
+     * possible (output already pending, record splitting or a key update due, or too little room in
+     * <code>output</code>), the data is written as for {@link #writeApplicationData(byte[], int, int)} and
+     * has to be collected with {@link #readOutput(ByteBuffer, int)}.
+     *
+     * @param srcs The buffers containing application data to send
+     * @param offset The index of the first buffer to use
+     * @param length The number of buffers available from offset
+     * @param output The buffer to receive the encoded record
+     * @return The number of bytes of application data consumed from the buffers
+     * @throws IllegalStateException If called before the initial handshake has completed.
+     * @throws IOException           If connection is already closed, or for encryption or transport errors.
+     */
+    public int writeApplicationData(ByteBuffer[] srcs, int offset, int length, ByteBuffer output)
+        throws IOException
+    {
+        if (blocking)
+        {
+            throw new IllegalStateException("Cannot use writeApplicationData(ByteBuffer[]) in blocking mode! Use getOutputStream() instead.");
+        }
+        if (!appDataReady)
+        {
+            throw new IllegalStateException("Cannot write application data until initial handshake completed.");
+        }
+
+        synchronized (recordWriteLock)
+        {
+            int len = 0, limit = getApplicationDataRecordLimit();
+            for (int i = 0; i < length && len < limit; ++i)
+            {
+                len += Math.min(srcs[offset + i].remaining(), limit - len);
+            }
+
+            if (closed)
+            {
+                throw new IOException("Cannot write application data on closed/failed TLS connection");
+            }
+
+            if (len > 0
+                && !appDataSplitEnabled
+                && !(keyUpdateEnabled && (keyUpdatePendingSend || recordStream.needsKeyUpdate()))
+                && outputBuffer.getBuffer().available() == 0
+                && !output.isReadOnly()
+                && output.remaining() >= recordStream.previewOutputRecordSize(len))
+            {
+                safeWriteRecord(ContentType.application_data, srcs, offset, length, len, output);
+                updateApplicationDataRecordSizing(len);
+                return len;
+            }
+
+            byte[] buf = new byte[len];
+            for (int i = 0, pos = 0; pos < len; ++i)
+            {
+                ByteBuffer src = srcs[offset + i];
+                int count = Math.min(src.remaining(), len - pos);
+                src.get(buf, pos, count);
+                pos += count;
+            }
+
+            writeApplicationData(buf, 0, len);
+            return len;
+        }
+    }
+
     public int getAppDataSplitMode()
     {
         return appDataSplitMode;
@@ -1088,6 +1309,24 @@ public abstract class TlsProtocol
         this.appDataSplitMode = appDataSplitMode;
     }
 
+    public boolean isDynamicRecordSizing()
+    {
+        return dynamicRecordSizing;
+    }
+
+    /**
+     * Enable or disable dynamic record sizing of application data (disabled by default). When enabled, the
+     * first records sent on a new (or idle) connection are small enough to fit in a single TCP segment, which
+     * reduces the time until the peer can start processing data. Record sizes then ramp up to the
+     * plaintext limit, so that bulk transfers still use full-sized records.
+     *
+     * @param dynamicRecordSizing true to size records dynamically.
+     */
+    public void setDynamicRecordSizing(boolean dynamicRecordSizing)
+    {
+        this.dynamicRecordSizing = dynamicRecordSizing;
+    }
+
     public boolean isResumableHandshake()
     {
         return resumableHandshake;
@@ -1288,6 +1527,8 @@ public abstract class TlsProtocol
             return new RecordPreview(0, 0);
         }
 
+        applicationDataSize = Math.min(applicationDataSize, getApplicationDataLimit());
+
         if (appDataSplitEnabled)
         {
             switch (appDataSplitMode)
@@ -1411,9 +1652,112 @@ public abstract class TlsProtocol
         }
     }
 
+    /**
+     * Offer input from a {@link ByteBuffer}, consuming all of its remaining content. Only allowed in
+     * non-blocking mode.<br>
+     * <br>
+     * If the input is exactly one application data record, and <code>output</code> has room for the whole
+     * record fragment, the record is decrypted straight from <code>input</code> into <code>output</code>
+     * without any intermediate copy. Otherwise this behaves like {@link #offerInput(byte[], int, int)} and
+     * any application data has to be collected with {@link #readInput(ByteBuffer, int)}. The content of
+     * <code>input</code> is never modified.
+     * @param input The input buffer to offer
+     * @param output A buffer to decrypt application data into, may be null
+     * @return The number of bytes of application data written to output
+     * @throws IOException If an error occurs while decrypting or processing a record
+     */
+    public int offerInput(ByteBuffer input, ByteBuffer output) throws IOException
+    {
+        if (blocking)
+        {
+            throw new IllegalStateException("Cannot use offerInput() in blocking mode! Use getInputStream() instead.");
+        }
+        if (closed)
+        {
+            throw new IOException("Connection is closed, cannot accept any more input");
+        }
+
+        if (null != output && !output.isReadOnly()
+            && inputBuffers.available() == 0 && applicationDataQueue.available() == 0)
+        {
+            int len = safeReadFullRecord(input, output);
+            if (len >= 0)
+            {
+                if (closed)
+                {
+                    if (!appDataReady)
+                    {
+                        // NOTE: Any close during the handshake should have raised an exception.
+                        throw new TlsFatalAlert(AlertDescription.internal_error);
+                    }
+                }
+                return len;
+            }
+        }
+
+        // NOTE: Decryption happens in place, so the input is always copied here
+        int inputLen = input.remaining();
+        if (inputScratch.length < inputLen)
+        {
+            inputScratch = new byte[inputLen];
+        }
+        input.get(inputScratch, 0, inputLen);
+
+        offerInput(inputScratch, 0, inputLen);
+        return 0;
+    }
+
     public int getApplicationDataLimit()
     {
-        return recordStream.getPlaintextLimit();
+        synchronized (recordWriteLock)
+        {
+            return getApplicationDataRecordLimit();
+        }
+    }
+
+    private int getApplicationDataRecordLimit()
+    {
+        int limit = recordStream.getPlaintextLimit();
+        if (!dynamicRecordSizing)
+        {
+            return limit;
+        }
+
+        long bytesSent = drsBytesSent;
+        int recordsSent = drsRecordsSent;
+        if ((System.currentTimeMillis() - drsLastWriteTime) >= DRS_IDLE_MILLIS)
+        {
+            // Idle for long enough that the congestion window may have been reset
+            bytesSent = 0L;
+            recordsSent = 0;
+        }
+
+        if (bytesSent >= DRS_BOOST_THRESHOLD)
+        {
+            return limit;
+        }
+
+        int recordOverhead = recordStream.previewOutputRecordSize(DRS_SEGMENT_SIZE) - DRS_SEGMENT_SIZE;
+        long segmentLimit = Math.max(1, DRS_SEGMENT_SIZE - recordOverhead);
+
+        return (int)Math.min(limit, segmentLimit * (recordsSent + 1));
+    }
+
+    private void updateApplicationDataRecordSizing(int len)
+    {
+        if (dynamicRecordSizing)
+        {
+            long now = System.currentTimeMillis();
+            if ((now - drsLastWriteTime) >= DRS_IDLE_MILLIS)
+            {
+                this.drsBytesSent = 0L;
+                this.drsRecordsSent = 0;
+            }
+
+            this.drsBytesSent += len;
+            ++this.drsRecordsSent;
+            this.drsLastWriteTime = now;
+        }
     }
 
     /**
@@ -1703,7 +2047,10 @@ public abstract class TlsProtocol
 
         try
         {
-            recordStream.writeRecord(ContentType.alert, alert, 0, 2);
+            synchronized (recordWriteLock)
+            {
+                recordStream.writeRecord(ContentType.alert, alert, 0, 2);
+            }
         }
         catch (Exception e)
         {
@@ -1779,6 +2126,16 @@ public abstract class TlsProtocol
     }
 
     protected void send13CertificateMessage(Certificate certificate) throws IOException
+    {
+        send13CertificateMessage(certificate, null);
+    }
+
+    /**
+     * @param certificateCompressor if non-null, the certificate is sent as a CompressedCertificate
+     *            message (RFC 8879) using this compressor.
+     */
+    protected void send13CertificateMessage(Certificate certificate, TlsCertificateCompressor certificateCompressor)
+        throws IOException
     {
         if (null == certificate)
         {
@@ -1792,9 +2149,21 @@ public abstract class TlsProtocol
             throw new TlsFatalAlert(AlertDescription.internal_error);
         }
 
-        HandshakeMessageOutput message = new HandshakeMessageOutput(HandshakeType.certificate);
-        certificate.encode(context, message, null);
-        message.send(this);
+        if (null == certificateCompressor)
+        {
+            HandshakeMessageOutput message = new HandshakeMessageOutput(HandshakeType.certificate);
+            certificate.encode(context, message, null);
+            message.send(this);
+        }
+        else
+        {
+            CompressedCertificate compressedCertificate = certificate.compress13(context, certificateCompressor);
+
+            HandshakeMessageOutput message = new HandshakeMessageOutput(HandshakeType.compressed_certificate,
+                7 + compressedCertificate.getCompressedCertificateMessage().length);
+            compressedCertificate.encode(message);
+            message.send(this);
+        }
 
         securityParameters.localCertificate = certificate;
     }
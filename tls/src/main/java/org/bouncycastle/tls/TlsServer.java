@@ -135,4 +135,43 @@ public interface TlsServer
      */
     NewSessionTicket getNewSessionTicket()
         throws IOException;
+
+    /**
+     * RFC 8446 4.6.1. New Session Ticket Message.
+     * <p>
+     * If this returns non-null, a TLS 1.3 server will send a NewSessionTicket after each full handshake,
+     * sealed by the returned manager, and will accept such tickets (for 'psk_dhe_ke') in place of a full
+     * handshake. Tickets are not issued for connections where the client authenticated, since the
+     * client's certificate is not carried in the ticket. The same manager should be returned for every
+     * connection that is to share resumption.
+     *
+     * @return a {@link TlsTicketKeyManager}, or null to disable TLS 1.3 session tickets.
+     * @throws IOException
+     */
+    TlsTicketKeyManager getTicketKeyManager()
+        throws IOException;
+
+    /**
+     * RFC 8446 4.2.10. Early Data Indication.
+     * <p>
+     * If this returns a positive value, NewSessionTicket messages will permit the client to send up to
+     * this much early (0-RTT) data when resuming with the ticket. Early data is then accepted only if
+     * {@link #getAntiReplayFilter()} returns a filter that passes the ClientHello, and it is delivered
+     * ahead of the handshake completing, through the usual application data channel. Since early data
+     * can be replayed (RFC 8446 8), it should only be enabled for idempotent requests.
+     *
+     * @return the max_early_data_size to advertise in tickets, or 0 to disable early data.
+     */
+    long getMaxEarlyDataSize();
+
+    /**
+     * RFC 8446 8. 0-RTT and Anti-Replay.
+     * <p>
+     * The same filter should be returned for every connection sharing a {@link TlsTicketKeyManager}.
+     *
+     * @return a {@link TlsAntiReplayFilter}, or null to reject all early data.
+     * @throws IOException
+     */
+    TlsAntiReplayFilter getAntiReplayFilter()
+        throws IOException;
 }
@@ -15,6 +15,7 @@ import org.bouncycastle.tls.crypto.TlsECConfig;
 import org.bouncycastle.tls.crypto.TlsKemConfig;
 import org.bouncycastle.tls.crypto.TlsSecret;
 import org.bouncycastle.util.Arrays;
+import org.bouncycastle.util.Objects;
 
 public class TlsServerProtocol
     extends TlsProtocol
@@ -25,6 +26,7 @@ public class TlsServerProtocol
     protected int[] offeredCipherSuites = null;
     protected TlsKeyExchange keyExchange = null;
     protected CertificateRequest certificateRequest = null;
+    protected long earlyDataLimit13 = 0L;
 
     /**
      * Constructor for non-blocking mode.<br>
@@ -103,6 +105,25 @@ public class TlsServerProtocol
         this.offeredCipherSuites = null;
         this.keyExchange = null;
         this.certificateRequest = null;
+        this.earlyDataLimit13 = 0L;
+    }
+
+    protected void checkEarlyData(int len)
+        throws IOException
+    {
+        SecurityParameters securityParameters = tlsServerContext.getSecurityParametersHandshake();
+        if (null == securityParameters || !securityParameters.isEarlyDataAccepted()
+            || CS_SERVER_FINISHED != connection_state)
+        {
+            throw new TlsFatalAlert(AlertDescription.unexpected_message);
+        }
+
+        long earlyDataSize = securityParameters.getEarlyDataSize() + len;
+        if (earlyDataSize > earlyDataLimit13)
+        {
+            throw new TlsFatalAlert(AlertDescription.unexpected_message, "Too much early data");
+        }
+        securityParameters.earlyDataSize = earlyDataSize;
     }
 
     protected boolean expectCertificateVerifyMessage()
@@ -203,6 +224,14 @@ public class TlsServerProtocol
                 }
             }
 
+            securityParameters.resumedSession = isResumptionPSK(selectedPSK);
+
+            // RFC 8446 4.2.10. A client MUST NOT include the "early_data" extension in its followup ClientHello.
+            if (clientHelloExtensions.containsKey(TlsExtensionsUtils.EXT_early_data))
+            {
+                throw new TlsFatalAlert(AlertDescription.illegal_parameter);
+            }
+
             /*
              * TODO[tls13] Confirm fields in the ClientHello haven't changed
              * 
@@ -261,14 +290,13 @@ public class TlsServerProtocol
             tlsServer.processClientExtensions(clientHelloExtensions);
 
             /*
-             * NOTE: Currently no server support for session resumption
+             * NOTE: Resumption is via (stateless) tickets only, with no session cache lookup.
              * 
-             * If adding support, ensure securityParameters.tlsUnique is set to the localVerifyData, but
-             * ONLY when extended_master_secret has been negotiated (otherwise NULL).
+             * If adding support for session_id resumption, ensure securityParameters.tlsUnique is set to
+             * the localVerifyData, but ONLY when extended_master_secret has been negotiated (otherwise NULL).
              */
             {
-                // TODO[tls13] Resumption/PSK
-                securityParameters.resumedSession = false;
+                securityParameters.resumedSession = isResumptionPSK(selectedPSK);
 
                 this.tlsSession = TlsUtils.importSession(TlsUtils.EMPTY_BYTES, null);
                 this.sessionParameters = null;
@@ -294,6 +322,22 @@ public class TlsServerProtocol
                 TlsUtils.negotiatedCipherSuite(securityParameters, cipherSuite);
             }
 
+            /*
+             * RFC 8446 4.2.11. A resumption PSK is only usable with a cipher suite having the same hash as the
+             * one that issued the ticket; otherwise fall back to a full handshake.
+             */
+            if (isResumptionPSK(selectedPSK)
+                && selectedPSK.psk.getPRFAlgorithm() != securityParameters.getPRFAlgorithm())
+            {
+                selectedPSK = null;
+                securityParameters.resumedSession = false;
+
+                if (null == securityParameters.getClientSigAlgs())
+                {
+                    throw new TlsFatalAlert(AlertDescription.missing_extension);
+                }
+            }
+
             int[] clientSupportedGroups = securityParameters.getClientSupportedGroups();
             int[] serverSupportedGroups = securityParameters.getServerSupportedGroups();
 
@@ -311,6 +355,12 @@ public class TlsServerProtocol
 
                 this.retryCookie = tlsServerContext.getNonceGenerator().generateNonce(16);
 
+                if (TlsExtensionsUtils.hasEarlyDataIndication(clientHelloExtensions))
+                {
+                    // RFC 8446 4.2.10. Skip early data (which we can't decrypt) until the second ClientHello.
+                    recordStream.skipEarlyData(get13EarlyDataSkipLimit(selectedPSK), false);
+                }
+
                 return generate13HelloRetryRequest(clientHello);
             }
 
@@ -355,6 +405,22 @@ public class TlsServerProtocol
         securityParameters.applicationProtocol = TlsExtensionsUtils.getALPNExtensionServer(serverEncryptedExtensions);
         securityParameters.applicationProtocolSet = true;
 
+        if (!afterHelloRetryRequest && TlsExtensionsUtils.hasEarlyDataIndication(clientHelloExtensions))
+        {
+            this.earlyDataLimit13 = select13EarlyDataLimit(clientHelloExtensions, selectedPSK);
+            if (earlyDataLimit13 > 0L)
+            {
+                securityParameters.earlyDataAccepted = true;
+
+                TlsExtensionsUtils.addEarlyDataIndication(serverEncryptedExtensions);
+            }
+            else
+            {
+                // RFC 8446 4.2.10. Skip early data (by trial decryption) until the client's second flight.
+                recordStream.skipEarlyData(get13EarlyDataSkipLimit(selectedPSK), true);
+            }
+        }
+
         if (!serverEncryptedExtensions.isEmpty())
         {
             securityParameters.maxFragmentLength = TlsUtils.processMaxFragmentLengthExtension(
@@ -428,7 +494,12 @@ public class TlsServerProtocol
 
         this.serverExtensions = serverEncryptedExtensions;
 
+        TlsUtils.processRecordSizeLimitExtension(securityParameters, clientHelloExtensions,
+            serverEncryptedExtensions, AlertDescription.internal_error);
+
         applyMaxFragmentLengthExtension(securityParameters.getMaxFragmentLength());
+        applyRecordSizeLimitExtension(securityParameters.getRecordSizeLimitLocal(),
+            securityParameters.getRecordSizeLimitPeer());
 
         TlsUtils.checkExtensionData13(serverHelloExtensions, HandshakeType.server_hello,
             AlertDescription.internal_error);
@@ -846,7 +917,12 @@ public class TlsServerProtocol
             }
         }
 
+        TlsUtils.processRecordSizeLimitExtension(securityParameters, clientExtensions, serverExtensions,
+            AlertDescription.internal_error);
+
         applyMaxFragmentLengthExtension(securityParameters.getMaxFragmentLength());
+        applyRecordSizeLimitExtension(securityParameters.getRecordSizeLimitLocal(),
+            securityParameters.getRecordSizeLimitPeer());
 
         return new ServerHello(serverVersion, securityParameters.getServerRandom(), securityParameters.getSessionID(),
             securityParameters.getCipherSuite(), serverExtensions);
@@ -876,10 +952,9 @@ public class TlsServerProtocol
         }
 
         /*
-         * TODO[tls13] Abbreviated handshakes (PSK resumption)
-         * 
-         * NOTE: No CertificateRequest, Certificate, CertificateVerify messages, but client
-         * might now send EndOfEarlyData after receiving server Finished message.
+         * NOTE: For PSK handshakes (including resumption) there are no CertificateRequest, Certificate,
+         * CertificateVerify messages, but client might now send EndOfEarlyData after receiving server
+         * Finished message.
          */
 
         switch (type)
@@ -941,11 +1016,43 @@ public class TlsServerProtocol
             }
             break;
         }
+        case HandshakeType.end_of_early_data:
+        {
+            switch (this.connection_state)
+            {
+            case CS_SERVER_FINISHED:
+            {
+                if (!tlsServerContext.getSecurityParametersHandshake().isEarlyDataAccepted())
+                {
+                    throw new TlsFatalAlert(AlertDescription.unexpected_message);
+                }
+
+                assertEmpty(buf);
+                this.connection_state = CS_CLIENT_END_OF_EARLY_DATA;
+
+                // NOTE: The rest of the client's flight is protected with the handshake traffic keys
+                recordStream.notifyEndOfEarlyDataReceived();
+                break;
+            }
+            default:
+                throw new TlsFatalAlert(AlertDescription.unexpected_message);
+            }
+            break;
+        }
         case HandshakeType.finished:
         {
             switch (this.connection_state)
             {
             case CS_SERVER_FINISHED:
+            {
+                // RFC 8446 4.5. If the server accepted early data, the client sends EndOfEarlyData first
+                if (tlsServerContext.getSecurityParametersHandshake().isEarlyDataAccepted())
+                {
+                    throw new TlsFatalAlert(AlertDescription.unexpected_message);
+                }
+                // NB: Fall through to next case label
+            }
+            case CS_CLIENT_END_OF_EARLY_DATA:
             {
                 skip13ClientCertificate();
                 // NB: Fall through to next case label
@@ -958,8 +1065,17 @@ public class TlsServerProtocol
             case CS_CLIENT_CERTIFICATE_VERIFY:
             {
                 receive13ClientFinished(buf);
+                buf.updateHash(handshakeHash);
                 this.connection_state = CS_CLIENT_FINISHED;
 
+                TlsTicketKeyManager ticketKeyManager = tlsServer.getTicketKeyManager();
+                if (null != ticketKeyManager)
+                {
+                    byte[] clientFinishedTranscriptHash = TlsUtils.getCurrentPRFHash(handshakeHash);
+
+                    TlsUtils.establish13ResumptionMasterSecret(tlsServerContext, clientFinishedTranscriptHash);
+                }
+
                 // See RFC 8446 D.4.
                 recordStream.setIgnoreChangeCipherSpec(false);
 
@@ -967,6 +1083,18 @@ public class TlsServerProtocol
                 recordStream.enablePendingCipherRead(false);
 
                 completeHandshake();
+
+                if (null != ticketKeyManager)
+                {
+                    Certificate peerCertificate = tlsServerContext.getSecurityParametersConnection()
+                        .getPeerCertificate();
+
+                    // NOTE: The ticket doesn't carry the client's certificate, so don't resume authenticated clients
+                    if (null == peerCertificate || peerCertificate.isEmpty())
+                    {
+                        send13NewSessionTicketMessage(ticketKeyManager);
+                    }
+                }
                 break;
             }
             default:
@@ -986,7 +1114,6 @@ public class TlsServerProtocol
         case HandshakeType.client_key_exchange:
         case HandshakeType.compressed_certificate:
         case HandshakeType.encrypted_extensions:
-        case HandshakeType.end_of_early_data:
         case HandshakeType.hello_request:
         case HandshakeType.hello_verify_request:
         case HandshakeType.message_hash:
@@ -1008,11 +1135,6 @@ public class TlsServerProtocol
         if (connection_state > CS_CLIENT_HELLO
             && TlsUtils.isTLSv13(securityParameters.getNegotiatedVersion()))
         {
-            if (securityParameters.isResumedSession())
-            {
-                throw new TlsFatalAlert(AlertDescription.internal_error);
-            }
-
             handle13HandshakeMessage(type, buf);
             return;
         }
@@ -1080,6 +1202,17 @@ public class TlsServerProtocol
                     }
                     else
                     {
+                        if (securityParameters.isEarlyDataAccepted())
+                        {
+                            byte[] clientHelloTranscriptHash = TlsUtils.getCurrentPRFHash(handshakeHash);
+
+                            TlsUtils.establish13PhaseEarly(tlsServerContext, clientHelloTranscriptHash,
+                                recordStream);
+
+                            // NOTE: Early data from the client follows the ClientHello (and any ChangeCipherSpec)
+                            recordStream.enablePendingCipherRead(true);
+                        }
+
                         sendServerHelloMessage(serverHello);
                         this.connection_state = CS_SERVER_HELLO;
 
@@ -1565,6 +1698,115 @@ public class TlsServerProtocol
         message.send(this);
     }
 
+    private static boolean isResumptionPSK(OfferedPsks.SelectedConfig selectedPSK)
+    {
+        return null != selectedPSK && selectedPSK.psk instanceof TlsPSKResumption;
+    }
+
+    private long get13EarlyDataSkipLimit(OfferedPsks.SelectedConfig selectedPSK)
+    {
+        long limit = tlsServer.getMaxEarlyDataSize();
+        if (isResumptionPSK(selectedPSK))
+        {
+            limit = Math.max(limit, ((TlsPSKResumption)selectedPSK.psk).getMaxEarlyDataSize());
+        }
+        return limit;
+    }
+
+    /**
+     * RFC 8446 4.2.10. Early data is only accepted with the first offered PSK, which must be a resumption PSK
+     * permitting early data with the negotiated cipher suite and ALPN protocol, and only if the ClientHello
+     * passes the anti-replay checks of RFC 8446 8.
+     *
+     * @return the max_early_data_size to enforce, or 0 if early data is rejected.
+     */
+    private long select13EarlyDataLimit(Hashtable clientHelloExtensions, OfferedPsks.SelectedConfig selectedPSK)
+        throws IOException
+    {
+        if (!isResumptionPSK(selectedPSK) || 0 != selectedPSK.index || tlsServer.getMaxEarlyDataSize() <= 0L)
+        {
+            return 0L;
+        }
+
+        SecurityParameters securityParameters = tlsServerContext.getSecurityParametersHandshake();
+        TlsPSKResumption psk = (TlsPSKResumption)selectedPSK.psk;
+
+        if (psk.getMaxEarlyDataSize() <= 0L
+            || psk.getCipherSuite() != securityParameters.getCipherSuite()
+            || !Objects.areEqual(psk.getApplicationProtocol(), securityParameters.getApplicationProtocol()))
+        {
+            return 0L;
+        }
+
+        TlsAntiReplayFilter antiReplayFilter = tlsServer.getAntiReplayFilter();
+        if (null == antiReplayFilter)
+        {
+            return 0L;
+        }
+
+        OfferedPsks offeredPsks = TlsExtensionsUtils.getPreSharedKeyClientHello(clientHelloExtensions);
+        PskIdentity identity = (PskIdentity)offeredPsks.getIdentities().elementAt(0);
+        byte[] binder = (byte[])offeredPsks.getBinders().elementAt(0);
+
+        // RFC 8446 8.3. The client's view of the ticket age must be close to the server's.
+        long clientTicketAge = (identity.getObfuscatedTicketAge() - psk.getTicketAgeAdd()) & 0xFFFFFFFFL;
+        long serverTicketAge = System.currentTimeMillis() - psk.getTicketIssueTime();
+        if (Math.abs(clientTicketAge - serverTicketAge) > antiReplayFilter.getWindowMillis())
+        {
+            return 0L;
+        }
+
+        // RFC 8446 8.2. Last, since this records the ClientHello.
+        if (!antiReplayFilter.checkAndRecord(binder))
+        {
+            return 0L;
+        }
+
+        return psk.getMaxEarlyDataSize();
+    }
+
+    protected void send13NewSessionTicketMessage(TlsTicketKeyManager ticketKeyManager) throws IOException
+    {
+        SecurityParameters securityParameters = tlsServerContext.getSecurityParametersConnection();
+
+        long ticketLifetime = Math.min(ticketKeyManager.getTicketLifetime(), 604800L);
+        long ticketAgeAdd = tlsServerContext.getCrypto().getSecureRandom().nextInt() & 0xFFFFFFFFL;
+        byte[] ticketNonce = tlsServerContext.getNonceGenerator().generateNonce(8);
+
+        long maxEarlyDataSize = Math.max(0L, Math.min(tlsServer.getMaxEarlyDataSize(), 0xFFFFFFFFL));
+
+        Hashtable extensions = new Hashtable();
+        if (maxEarlyDataSize > 0L)
+        {
+            TlsExtensionsUtils.addEarlyDataMaxSize(extensions, maxEarlyDataSize);
+        }
+
+        byte[] psk = TlsUtils.calculate13ResumptionPSK(securityParameters, ticketNonce).extract();
+        byte[] state = TlsPSKResumption.encodeTicketState(securityParameters.getNegotiatedVersion(),
+            securityParameters.getCipherSuite(), ticketAgeAdd, System.currentTimeMillis(), ticketLifetime, psk,
+            securityParameters.getApplicationProtocol(), maxEarlyDataSize);
+        Arrays.fill(psk, (byte)0);
+
+        byte[] ticket = ticketKeyManager.sealTicket(state);
+        Arrays.fill(state, (byte)0);
+
+//        struct {
+//            uint32 ticket_lifetime;
+//            uint32 ticket_age_add;
+//            opaque ticket_nonce<0..255>;
+//            opaque ticket<1..2^16-1>;
+//            Extension extensions<0..2^16-2>;
+//        } NewSessionTicket;
+
+        HandshakeMessageOutput message = new HandshakeMessageOutput(HandshakeType.new_session_ticket);
+        TlsUtils.writeUint32(ticketLifetime, message);
+        TlsUtils.writeUint32(ticketAgeAdd, message);
+        TlsUtils.writeOpaque8(ticketNonce, message);
+        TlsUtils.writeOpaque16(ticket, message);
+        TlsUtils.writeOpaque16(writeExtensionsData(extensions), message);
+        message.send(this);
+    }
+
     protected void send13ServerHelloCoda(ServerHello serverHello, boolean afterHelloRetryRequest) throws IOException
     {
         final SecurityParameters securityParameters = tlsServerContext.getSecurityParametersHandshake();
@@ -1574,7 +1816,14 @@ public class TlsServerProtocol
         TlsUtils.establish13PhaseHandshake(tlsServerContext, serverHelloTranscriptHash, recordStream);
 
         recordStream.enablePendingCipherWrite();
-        recordStream.enablePendingCipherRead(true);
+        if (securityParameters.isEarlyDataAccepted())
+        {
+            recordStream.enablePendingCipherReadAfterEarlyData();
+        }
+        else
+        {
+            recordStream.enablePendingCipherRead(true);
+        }
 
         send13EncryptedExtensionsMessage(serverExtensions);
         this.connection_state = CS_SERVER_ENCRYPTED_EXTENSIONS;
@@ -1622,7 +1871,9 @@ public class TlsServerProtocol
                  */
 
                 Certificate serverCertificate = serverCredentials.getCertificate();
-                send13CertificateMessage(serverCertificate);
+                TlsCertificateCompressor certificateCompressor = TlsUtils.select13CertificateCompressor(tlsServer,
+                    clientExtensions);
+                send13CertificateMessage(serverCertificate, certificateCompressor);
                 securityParameters.tlsServerEndPoint = null;
                 this.connection_state = CS_SERVER_CERTIFICATE;
             }
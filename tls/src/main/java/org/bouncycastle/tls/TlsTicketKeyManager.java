@@ -0,0 +1,35 @@
+package org.bouncycastle.tls;
+
+import java.io.IOException;
+
+/**
+ * Base interface for an object that protects the state carried in TLS 1.3 session tickets, so that a
+ * server can resume sessions without keeping any per-session state of its own.
+ */
+public interface TlsTicketKeyManager
+{
+    /**
+     * @return the lifetime, in seconds, to advertise for tickets sealed by this manager. Must not
+     *         exceed 604800 (7 days).
+     */
+    long getTicketLifetime();
+
+    /**
+     * Encrypt and authenticate ticket state under the current ticket key.
+     *
+     * @param state the (plaintext) state to be carried in the ticket.
+     * @return the opaque ticket to send to the client.
+     * @throws IOException
+     */
+    byte[] sealTicket(byte[] state) throws IOException;
+
+    /**
+     * Recover ticket state from a ticket previously returned by {@link #sealTicket(byte[])}.
+     *
+     * @param ticket the opaque ticket offered by the client.
+     * @return the state carried in the ticket, or null if the ticket was not sealed by this manager,
+     *         fails authentication, or was sealed under a key that is no longer held.
+     * @throws IOException
+     */
+    byte[] openTicket(byte[] ticket) throws IOException;
+}
@@ -1872,8 +1872,6 @@ public class TlsUtils
                 transcriptHash);
         }
 
-        // TODO[tls13] Early data (client->server only)
-
         recordStream.setPendingCipher(initCipher(context));
     }
 
@@ -1890,6 +1888,28 @@ public class TlsUtils
             serverFinishedTranscriptHash);
     }
 
+    static void establish13ResumptionMasterSecret(TlsContext context, byte[] clientFinishedTranscriptHash)
+        throws IOException
+    {
+        SecurityParameters securityParameters = context.getSecurityParametersHandshake();
+
+        securityParameters.resumptionMasterSecret = deriveSecret(securityParameters,
+            securityParameters.getMasterSecret(), "res master", clientFinishedTranscriptHash);
+    }
+
+    static TlsSecret calculate13ResumptionPSK(SecurityParameters securityParameters, byte[] ticketNonce)
+        throws IOException
+    {
+        TlsSecret resumptionMasterSecret = securityParameters.getResumptionMasterSecret();
+        if (null == resumptionMasterSecret)
+        {
+            throw new TlsFatalAlert(AlertDescription.internal_error);
+        }
+
+        return TlsCryptoUtils.hkdfExpandLabel(resumptionMasterSecret, securityParameters.getPRFCryptoHashAlgorithm(),
+            "resumption", ticketNonce, securityParameters.getPRFHashLength());
+    }
+
     static void establish13PhaseEarly(TlsContext context, byte[] clientHelloTranscriptHash, RecordStream recordStream)
         throws IOException
     {
@@ -1898,7 +1918,7 @@ public class TlsUtils
 
         // TODO[tls13] binder_key
 
-        // TODO[tls13] Early data (client->server only)
+        // NOTE: Early data is client->server only (see TlsAEADCipher)
         if (null != recordStream)
         {
             establish13TrafficSecrets(context, clientHelloTranscriptHash, phaseSecret, "c e traffic", null,
@@ -1909,6 +1929,54 @@ public class TlsUtils
             clientHelloTranscriptHash);
     }
 
+    /**
+     * The client sends early data before anything has been negotiated, so the cipher protecting it is
+     * created from the parameters of the PSK instead of the handshake's {@link SecurityParameters}.
+     */
+    static TlsCipher init13EarlyDataCipherClient(TlsContext context, int cipherSuite, TlsSecret earlySecret,
+        TlsHandshakeHash handshakeHash) throws IOException
+    {
+        final SecurityParameters earlyDataParameters = new SecurityParameters();
+        earlyDataParameters.entity = ConnectionEnd.client;
+        earlyDataParameters.negotiatedVersion = ProtocolVersion.TLSv13;
+        negotiatedCipherSuite(earlyDataParameters, cipherSuite);
+
+        TlsHash hash = context.getCrypto().createHash(earlyDataParameters.getPRFCryptoHashAlgorithm());
+        handshakeHash.copyBufferTo(new TlsHashOutputStream(hash));
+        byte[] clientHelloTranscriptHash = hash.calculateHash();
+
+        earlyDataParameters.trafficSecretClient = deriveSecret(earlyDataParameters, earlySecret, "c e traffic",
+            clientHelloTranscriptHash);
+
+        int encryptionAlgorithm = getEncryptionAlgorithm(cipherSuite);
+        int macAlgorithm = getMACAlgorithm(cipherSuite);
+
+        if (encryptionAlgorithm < 0 || macAlgorithm < 0)
+        {
+            throw new TlsFatalAlert(AlertDescription.internal_error);
+        }
+
+        TlsCryptoParameters cryptoParams = new TlsCryptoParameters(context)
+        {
+            public SecurityParameters getSecurityParametersConnection()
+            {
+                return earlyDataParameters;
+            }
+
+            public SecurityParameters getSecurityParametersHandshake()
+            {
+                return earlyDataParameters;
+            }
+
+            public ProtocolVersion getServerVersion()
+            {
+                return ProtocolVersion.TLSv13;
+            }
+        };
+
+        return context.getCrypto().createCipher(cryptoParams, encryptionAlgorithm, macAlgorithm);
+    }
+
     static void establish13PhaseHandshake(TlsContext context, byte[] serverHelloTranscriptHash,
         RecordStream recordStream) throws IOException
     {
@@ -5263,6 +5331,45 @@ public class TlsUtils
         return authentication;
     }
 
+    static TlsAuthentication receive13ServerCompressedCertificate(TlsClientContext clientContext,
+        TlsClient client, ByteArrayInputStream buf, Hashtable clientExtensions, Hashtable serverExtensions)
+        throws IOException
+    {
+        CompressedCertificate compressedCertificate = CompressedCertificate.parse(buf);
+
+        TlsProtocol.assertEmpty(buf);
+
+        /*
+         * RFC 8879 4. If the specified compression algorithm is not one of the algorithms offered in the
+         * "compress_certificate" extension, the connection MUST be terminated with an "illegal_parameter" alert.
+         */
+        int algorithm = compressedCertificate.getAlgorithm();
+        int[] offeredAlgorithms = TlsExtensionsUtils.getCompressCertificateExtension(clientExtensions);
+        if (null == offeredAlgorithms || !Arrays.contains(offeredAlgorithms, algorithm))
+        {
+            throw new TlsFatalAlert(AlertDescription.illegal_parameter);
+        }
+
+        TlsCertificateCompressor compressor = getCertificateCompressor(client.getCertificateCompressors(),
+            algorithm);
+        if (null == compressor)
+        {
+            throw new TlsFatalAlert(AlertDescription.internal_error);
+        }
+
+        int uncompressedLength = compressedCertificate.getUncompressedLength();
+        if (uncompressedLength > client.getMaxHandshakeMessageSize())
+        {
+            throw new TlsFatalAlert(AlertDescription.bad_certificate,
+                "Compressed certificate expands beyond maximum handshake message size");
+        }
+
+        byte[] certificateMessage = decompressCertificateMessage(compressor, compressedCertificate);
+
+        return receive13ServerCertificate(clientContext, client, new ByteArrayInputStream(certificateMessage),
+            serverExtensions);
+    }
+
     static TlsAuthentication skip13ServerCertificate(TlsClientContext clientContext) throws IOException
     {
         SecurityParameters securityParameters = clientContext.getSecurityParametersHandshake();
@@ -5277,6 +5384,111 @@ public class TlsUtils
         return null;
     }
 
+    static int[] getCertificateCompressionAlgorithms(Vector certificateCompressors)
+    {
+        if (isNullOrEmpty(certificateCompressors))
+        {
+            return null;
+        }
+
+        int count = certificateCompressors.size();
+        int[] algorithms = new int[count];
+        int algorithmCount = 0;
+        for (int i = 0; i < count; ++i)
+        {
+            int algorithm = ((TlsCertificateCompressor)certificateCompressors.elementAt(i)).getAlgorithm();
+            if (null == getCertificateCompressor(certificateCompressors, algorithm, i))
+            {
+                algorithms[algorithmCount++] = algorithm;
+            }
+        }
+        return truncate(algorithms, algorithmCount);
+    }
+
+    static TlsCertificateCompressor getCertificateCompressor(Vector certificateCompressors, int algorithm)
+    {
+        if (null == certificateCompressors)
+        {
+            return null;
+        }
+
+        return getCertificateCompressor(certificateCompressors, algorithm, certificateCompressors.size());
+    }
+
+    private static TlsCertificateCompressor getCertificateCompressor(Vector certificateCompressors,
+        int algorithm, int count)
+    {
+        for (int i = 0; i < count; ++i)
+        {
+            TlsCertificateCompressor compressor = (TlsCertificateCompressor)certificateCompressors.elementAt(i);
+            if (algorithm == compressor.getAlgorithm())
+            {
+                return compressor;
+            }
+        }
+        return null;
+    }
+
+    static TlsCertificateCompressor select13CertificateCompressor(TlsPeer peer, Hashtable peerExtensions)
+        throws IOException
+    {
+        int[] peerAlgorithms = TlsExtensionsUtils.getCompressCertificateExtension(peerExtensions);
+        if (null == peerAlgorithms)
+        {
+            return null;
+        }
+
+        Vector certificateCompressors = peer.getCertificateCompressors();
+        if (null != certificateCompressors)
+        {
+            for (int i = 0; i < certificateCompressors.size(); ++i)
+            {
+                TlsCertificateCompressor compressor = (TlsCertificateCompressor)certificateCompressors.elementAt(i);
+                if (Arrays.contains(peerAlgorithms, compressor.getAlgorithm()))
+                {
+                    return compressor;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static byte[] decompressCertificateMessage(TlsCertificateCompressor compressor,
+        CompressedCertificate compressedCertificate) throws IOException
+    {
+        int uncompressedLength = compressedCertificate.getUncompressedLength();
+
+        byte[] certificateMessage;
+        try
+        {
+            certificateMessage = compressor.decompress(compressedCertificate.getCompressedCertificateMessage(),
+                uncompressedLength);
+        }
+        catch (TlsFatalAlert e)
+        {
+            throw e;
+        }
+        catch (IOException e)
+        {
+            throw new TlsFatalAlert(AlertDescription.bad_certificate, e);
+        }
+        catch (RuntimeException e)
+        {
+            throw new TlsFatalAlert(AlertDescription.bad_certificate, e);
+        }
+
+        /*
+         * RFC 8879 4. If the received CompressedCertificate message cannot be decompressed, or the length
+         * doesn't match uncompressed_length, the connection MUST be terminated with a "bad_certificate" alert.
+         */
+        if (null == certificateMessage || certificateMessage.length != uncompressedLength)
+        {
+            throw new TlsFatalAlert(AlertDescription.bad_certificate);
+        }
+
+        return certificateMessage;
+    }
+
     public static boolean containsNonAscii(byte[] bs)
     {
         for (int i = 0; i < bs.length; ++i)
@@ -5814,6 +6026,7 @@ public class TlsUtils
         case ExtensionType.application_layer_protocol_negotiation:
         case ExtensionType.client_certificate_type:
         case ExtensionType.server_certificate_type:
+        case ExtensionType.record_size_limit:
         {
             switch (handshakeType)
             {
@@ -5955,13 +6168,20 @@ public class TlsUtils
 
     static void addPreSharedKeyToClientExtensions(TlsPSK[] psks, Hashtable clientExtensions) throws IOException
     {
+        long now = System.currentTimeMillis();
+
         Vector identities = new Vector(psks.length);
         for (int i = 0; i < psks.length; ++i)
         {
             TlsPSK psk = psks[i];
 
-            // TODO[tls13-psk] Handle obfuscated_ticket_age for resumption PSKs
-            identities.add(new PskIdentity(psk.getIdentity(), 0L));
+            long obfuscatedTicketAge = 0L;
+            if (psk instanceof TlsPSKResumption)
+            {
+                obfuscatedTicketAge = ((TlsPSKResumption)psk).getObfuscatedTicketAge(now);
+            }
+
+            identities.add(new PskIdentity(psk.getIdentity(), obfuscatedTicketAge));
         }
 
         TlsExtensionsUtils.addPreSharedKeyClientHello(clientExtensions, new OfferedPsks(identities));
@@ -5976,7 +6196,8 @@ public class TlsUtils
         }
 
         TlsPSKExternal[] pskExternals = getPSKExternalsClient(client, offeredCipherSuites);
-        if (null == pskExternals)
+        TlsPSKResumption[] pskResumptions = getPSKResumptionsClient(client, offeredCipherSuites);
+        if (null == pskExternals && null == pskResumptions)
         {
             return null;
         }
@@ -5985,17 +6206,33 @@ public class TlsUtils
         if (isNullOrEmpty(pskKeyExchangeModes))
         {
             throw new TlsFatalAlert(AlertDescription.internal_error,
-                "External PSKs configured but no PskKeyExchangeMode available");
+                "PSKs configured but no PskKeyExchangeMode available");
         }
 
-        TlsSecret[] pskEarlySecrets = getPSKEarlySecrets(clientContext.getCrypto(), pskExternals);
+        TlsPSK[] psks;
+        if (null == pskResumptions)
+        {
+            psks = pskExternals;
+        }
+        else if (null == pskExternals)
+        {
+            psks = pskResumptions;
+        }
+        else
+        {
+            psks = new TlsPSK[pskExternals.length + pskResumptions.length];
+            System.arraycopy(pskExternals, 0, psks, 0, pskExternals.length);
+            System.arraycopy(pskResumptions, 0, psks, pskExternals.length, pskResumptions.length);
+        }
 
-        int bindersSize = OfferedPsks.getBindersSize(pskExternals);
+        TlsSecret[] pskEarlySecrets = getPSKEarlySecrets(clientContext.getCrypto(), psks);
 
-        addPreSharedKeyToClientExtensions(pskExternals, clientExtensions);
+        int bindersSize = OfferedPsks.getBindersSize(psks);
+
+        addPreSharedKeyToClientExtensions(psks, clientExtensions);
         TlsExtensionsUtils.addPSKKeyExchangeModesExtension(clientExtensions, pskKeyExchangeModes);
 
-        return new OfferedPsks.BindersConfig(pskExternals, pskKeyExchangeModes, pskEarlySecrets, bindersSize);
+        return new OfferedPsks.BindersConfig(psks, pskKeyExchangeModes, pskEarlySecrets, bindersSize);
     }
 
     static OfferedPsks.BindersConfig addPreSharedKeyToClientHelloRetry(TlsClientContext clientContext,
@@ -6057,48 +6294,68 @@ public class TlsUtils
             if (Arrays.contains(pskKeyExchangeModes, PskKeyExchangeMode.psk_dhe_ke))
             {
                 // TODO[tls13] Prefer to get the exact index from the server?
-                TlsPSKExternal psk = server.getExternalPSK(offeredPsks.getIdentities());
-                if (null != psk)
+                TlsPSK psk = server.getExternalPSK(offeredPsks.getIdentities());
+                int index = (null == psk) ? -1 : offeredPsks.getIndexOfIdentity(
+                    new PskIdentity(psk.getIdentity(), 0L));
+
+                if (index < 0)
                 {
-                    int index = offeredPsks.getIndexOfIdentity(new PskIdentity(psk.getIdentity(), 0L));
-                    if (index >= 0)
+                    TlsTicketKeyManager ticketKeyManager = server.getTicketKeyManager();
+                    if (null != ticketKeyManager)
                     {
-                        byte[] binder = (byte[])offeredPsks.getBinders().elementAt(index);
-
-                        TlsCrypto crypto = serverContext.getCrypto();
-                        TlsSecret earlySecret = getPSKEarlySecret(crypto, psk);
-
-                        // TODO[tls13-psk] Handle resumption PSKs
-                        boolean isExternalPSK = true;
-                        int pskCryptoHashAlgorithm = TlsCryptoUtils.getHashForPRF(psk.getPRFAlgorithm());
-
-                        byte[] transcriptHash;
+                        Vector identities = offeredPsks.getIdentities();
+                        for (int i = 0, count = identities.size(); i < count; ++i)
                         {
-                            handshakeHashUpdated = true;
-                            int bindersSize = offeredPsks.getBindersSize();
-                            clientHelloMessage.updateHashPrefix(handshakeHash, bindersSize);
+                            PskIdentity identity = (PskIdentity)identities.elementAt(i);
 
-                            if (afterHelloRetryRequest)
+                            TlsPSKResumption pskResumption = openResumptionTicket(serverContext, ticketKeyManager,
+                                identity.getIdentity());
+                            if (null != pskResumption)
                             {
-                                transcriptHash = handshakeHash.getFinalHash(pskCryptoHashAlgorithm);
+                                psk = pskResumption;
+                                index = i;
+                                break;
                             }
-                            else
-                            {
-                                TlsHash hash = crypto.createHash(pskCryptoHashAlgorithm);
-                                handshakeHash.copyBufferTo(new TlsHashOutputStream(hash));
-                                transcriptHash = hash.calculateHash();
-                            }
-
-                            clientHelloMessage.updateHashSuffix(handshakeHash, bindersSize);
                         }
+                    }
+                }
+
+                if (index >= 0)
+                {
+                    byte[] binder = (byte[])offeredPsks.getBinders().elementAt(index);
 
-                        byte[] calculatedBinder = calculatePSKBinder(crypto, isExternalPSK, pskCryptoHashAlgorithm,
-                            earlySecret, transcriptHash);
+                    TlsCrypto crypto = serverContext.getCrypto();
+                    TlsSecret earlySecret = getPSKEarlySecret(crypto, psk);
 
-                        if (Arrays.constantTimeAreEqual(calculatedBinder, binder))
+                    boolean isExternalPSK = !(psk instanceof TlsPSKResumption);
+                    int pskCryptoHashAlgorithm = TlsCryptoUtils.getHashForPRF(psk.getPRFAlgorithm());
+
+                    byte[] transcriptHash;
+                    {
+                        handshakeHashUpdated = true;
+                        int bindersSize = offeredPsks.getBindersSize();
+                        clientHelloMessage.updateHashPrefix(handshakeHash, bindersSize);
+
+                        if (afterHelloRetryRequest)
                         {
-                            return new OfferedPsks.SelectedConfig(index, psk, pskKeyExchangeModes, earlySecret);
+                            transcriptHash = handshakeHash.getFinalHash(pskCryptoHashAlgorithm);
                         }
+                        else
+                        {
+                            TlsHash hash = crypto.createHash(pskCryptoHashAlgorithm);
+                            handshakeHash.copyBufferTo(new TlsHashOutputStream(hash));
+                            transcriptHash = hash.calculateHash();
+                        }
+
+                        clientHelloMessage.updateHashSuffix(handshakeHash, bindersSize);
+                    }
+
+                    byte[] calculatedBinder = calculatePSKBinder(crypto, isExternalPSK, pskCryptoHashAlgorithm,
+                        earlySecret, transcriptHash);
+
+                    if (Arrays.constantTimeAreEqual(calculatedBinder, binder))
+                    {
+                        return new OfferedPsks.SelectedConfig(index, psk, pskKeyExchangeModes, earlySecret);
                     }
                 }
             }
@@ -6112,6 +6369,27 @@ public class TlsUtils
         return null;
     }
 
+    static TlsPSKResumption openResumptionTicket(TlsServerContext serverContext,
+        TlsTicketKeyManager ticketKeyManager, byte[] ticket) throws IOException
+    {
+        byte[] state = ticketKeyManager.openTicket(ticket);
+        if (null == state)
+        {
+            return null;
+        }
+
+        SecurityParameters securityParameters = serverContext.getSecurityParametersHandshake();
+
+        TlsPSKResumption pskResumption = TlsPSKResumption.parseTicketState(serverContext.getCrypto(),
+            securityParameters.getNegotiatedVersion(), ticket, state);
+        if (null == pskResumption || pskResumption.isExpired(System.currentTimeMillis()))
+        {
+            return null;
+        }
+
+        return pskResumption;
+    }
+
     static TlsSecret getPSKEarlySecret(TlsCrypto crypto, TlsPSK psk)
     {
         int cryptoHashAlgorithm = TlsCryptoUtils.getHashForPRF(psk.getPRFAlgorithm());
@@ -6167,6 +6445,53 @@ public class TlsUtils
         return result;
     }
 
+    static TlsPSKResumption[] getPSKResumptionsClient(TlsClient client, int[] offeredCipherSuites)
+        throws IOException
+    {
+        Vector resumptionPSKs = client.getResumptionPSKs();
+        if (isNullOrEmpty(resumptionPSKs))
+        {
+            return null;
+        }
+
+        int[] prfAlgorithms = getPRFAlgorithms13(offeredCipherSuites);
+        long now = System.currentTimeMillis();
+
+        int count = resumptionPSKs.size();
+        TlsPSKResumption[] result = new TlsPSKResumption[count];
+
+        int resultCount = 0;
+        for (int i = 0; i < count; ++i)
+        {
+            Object element = resumptionPSKs.elementAt(i);
+            if (!(element instanceof TlsPSKResumption))
+            {
+                throw new TlsFatalAlert(AlertDescription.internal_error,
+                    "Resumption PSKs element is not a TlsPSKResumption");
+            }
+
+            TlsPSKResumption pskResumption = (TlsPSKResumption)element;
+            if (pskResumption.isExpired(now) || !Arrays.contains(prfAlgorithms, pskResumption.getPRFAlgorithm()))
+            {
+                continue;
+            }
+
+            result[resultCount++] = pskResumption;
+        }
+
+        if (resultCount < 1)
+        {
+            return null;
+        }
+        if (resultCount < count)
+        {
+            TlsPSKResumption[] tmp = new TlsPSKResumption[resultCount];
+            System.arraycopy(result, 0, tmp, 0, resultCount);
+            result = tmp;
+        }
+        return result;
+    }
+
     static Vector getPSKIndices(TlsPSK[] psks, int prfAlgorithm)
     {
         Vector v = new Vector(psks.length);
@@ -6197,6 +6522,34 @@ public class TlsUtils
         return maxFragmentLength;
     }
 
+    static void processRecordSizeLimitExtension(SecurityParameters securityParameters, Hashtable clientExtensions,
+        Hashtable serverExtensions, short alertDescription)
+        throws IOException
+    {
+        int clientLimit = -1, serverLimit = TlsExtensionsUtils.getRecordSizeLimitExtension(serverExtensions);
+        if (serverLimit >= 0)
+        {
+            clientLimit = TlsExtensionsUtils.getRecordSizeLimitExtension(clientExtensions);
+            if (clientLimit < 0)
+            {
+                throw new TlsFatalAlert(alertDescription);
+            }
+
+            /*
+             * RFC 8449 5. A client MUST treat receipt of both "max_fragment_length" and "record_size_limit" as
+             * a fatal error, and it SHOULD generate an "illegal_parameter" alert.
+             */
+            if (serverExtensions.containsKey(TlsExtensionsUtils.EXT_max_fragment_length))
+            {
+                throw new TlsFatalAlert(alertDescription);
+            }
+        }
+
+        boolean isServer = ConnectionEnd.server == securityParameters.getEntity();
+        securityParameters.recordSizeLimitLocal = isServer ? serverLimit : clientLimit;
+        securityParameters.recordSizeLimitPeer = isServer ? clientLimit : serverLimit;
+    }
+
     static short processClientCertificateTypeExtension(Hashtable clientExtensions, Hashtable serverExtensions,
         short alertDescription)
         throws IOException
@@ -0,0 +1,114 @@
+package org.bouncycastle.tls;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * A {@link TlsCertificateCompressor} for the "zlib" algorithm of RFC 8879, using {@link Deflater} and
+ * {@link Inflater}.
+ */
+public class ZlibCertificateCompressor
+    implements TlsCertificateCompressor
+{
+    protected final int level;
+
+    /**
+     * Compress at {@link Deflater#BEST_COMPRESSION}. This is slow, so a server should not compress its
+     * chain on every handshake, either by reusing its {@link Certificate} or by wrapping this compressor in
+     * a {@link CachingCertificateCompressor}.
+     */
+    public ZlibCertificateCompressor()
+    {
+        this(Deflater.BEST_COMPRESSION);
+    }
+
+    /**
+     * @param level the compression level (0-9), or {@link Deflater#DEFAULT_COMPRESSION}.
+     */
+    public ZlibCertificateCompressor(int level)
+    {
+        if (level != Deflater.DEFAULT_COMPRESSION && (level < 0 || level > 9))
+        {
+            throw new IllegalArgumentException("'level' is not a valid compression level");
+        }
+
+        this.level = level;
+    }
+
+    public int getAlgorithm()
+    {
+        return CertificateCompressionAlgorithm.zlib;
+    }
+
+    public byte[] compress(byte[] certificateMessage) throws IOException
+    {
+        Deflater deflater = new Deflater(level);
+        try
+        {
+            deflater.setInput(certificateMessage);
+            deflater.finish();
+
+            ByteArrayOutputStream output = new ByteArrayOutputStream(certificateMessage.length);
+            byte[] chunk = new byte[4096];
+            while (!deflater.finished())
+            {
+                int count = deflater.deflate(chunk);
+                output.write(chunk, 0, count);
+            }
+            return output.toByteArray();
+        }
+        finally
+        {
+            deflater.end();
+        }
+    }
+
+    public byte[] decompress(byte[] compressedCertificateMessage, int uncompressedLength) throws IOException
+    {
+        if (uncompressedLength < 0)
+        {
+            throw new TlsFatalAlert(AlertDescription.bad_certificate);
+        }
+
+        Inflater inflater = new Inflater();
+        try
+        {
+            inflater.setInput(compressedCertificateMessage);
+
+            byte[] output = new byte[uncompressedLength];
+            int pos = 0;
+            while (pos < uncompressedLength)
+            {
+                int count = inflater.inflate(output, pos, uncompressedLength - pos);
+                if (count < 1 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary()))
+                {
+                    throw new TlsFatalAlert(AlertDescription.bad_certificate, "zlib stream shorter than declared");
+                }
+                pos += count;
+            }
+
+            // The stream must end exactly here, with no trailing data
+            if (!inflater.finished() && inflater.inflate(new byte[1]) > 0)
+            {
+                throw new TlsFatalAlert(AlertDescription.bad_certificate, "zlib stream longer than declared");
+            }
+            if (!inflater.finished() || inflater.getRemaining() > 0)
+            {
+                throw new TlsFatalAlert(AlertDescription.bad_certificate, "zlib stream not properly terminated");
+            }
+
+            return output;
+        }
+        catch (DataFormatException e)
+        {
+            throw new TlsFatalAlert(AlertDescription.bad_certificate, "invalid zlib stream", e);
+        }
+        finally
+        {
+            inflater.end();
+        }
+    }
+}
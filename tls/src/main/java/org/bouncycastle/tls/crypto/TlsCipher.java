@@ -1,6 +1,7 @@
     package org.bouncycastle.tls.crypto;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 import org.bouncycastle.tls.ProtocolVersion;
 
@@ -77,6 +78,99 @@ public interface TlsCipher
     TlsDecodeResult decodeCiphertext(long seqNo, short recordType, ProtocolVersion recordVersion, byte[] ciphertext,
         int offset, int len) throws IOException;
 
+    /**
+     * Encode the passed in plaintext, writing the encoded record fragment (everything after the record
+     * header) to a caller-supplied output buffer, so that a buffer can be reused from record to record.
+     * <p>
+     * The default implementation stages the data through the byte[] based
+     * {@link #encodePlaintext(long, short, ProtocolVersion, int, byte[], int, int)}; implementations able
+     * to encode directly into (the backing array of) the output should override it.
+     * </p>
+     *
+     * @param seqNo sequence number of the message represented by plaintext.
+     * @param contentType content type of the message represented by plaintext.
+     * @param recordVersion {@link ProtocolVersion} used for the record.
+     * @param plaintext array holding input plaintext to the cipher.
+     * @param offset offset into input array the plaintext starts at.
+     * @param len length of the plaintext in the array.
+     * @param output buffer to receive the record fragment, starting at its current position. It must have
+     *            at least {@link #getCiphertextEncodeLimit(int)} bytes remaining for len bytes of plaintext.
+     * @return the record type to use for the record header.
+     * @throws IOException
+     */
+    default short encodePlaintext(long seqNo, short contentType, ProtocolVersion recordVersion, byte[] plaintext,
+        int offset, int len, ByteBuffer output) throws IOException
+    {
+        TlsEncodeResult encoded = encodePlaintext(seqNo, contentType, recordVersion, 0, plaintext, offset, len);
+        output.put(encoded.buf, encoded.off, encoded.len);
+        return encoded.recordType;
+    }
+
+    /**
+     * Encode plaintext gathered from an array of {@link ByteBuffer}s, writing the encoded record
+     * fragment (everything after the record header) to output.
+     * <p>
+     * The default implementation stages the data through the byte[] based
+     * {@link #encodePlaintext(long, short, ProtocolVersion, int, byte[], int, int)}; implementations able
+     * to work on the buffers directly should override it.
+     * </p>
+     *
+     * @param seqNo sequence number of the message represented by plaintext.
+     * @param contentType content type of the message represented by plaintext.
+     * @param recordVersion {@link ProtocolVersion} used for the record.
+     * @param plaintext buffers holding the input plaintext, consumed in order.
+     * @param offset index of the first buffer to use.
+     * @param length number of buffers available from offset.
+     * @param len total length of the plaintext to consume.
+     * @param output buffer to receive the record fragment, starting at its current position.
+     * @return the record type to use for the record header.
+     * @throws IOException
+     */
+    default short encodePlaintext(long seqNo, short contentType, ProtocolVersion recordVersion, ByteBuffer[] plaintext,
+        int offset, int length, int len, ByteBuffer output) throws IOException
+    {
+        byte[] buf = new byte[len];
+        for (int i = 0, pos = 0; pos < len; ++i)
+        {
+            ByteBuffer src = plaintext[offset + i];
+            int count = Math.min(src.remaining(), len - pos);
+            src.get(buf, pos, count);
+            pos += count;
+        }
+
+        TlsEncodeResult encoded = encodePlaintext(seqNo, contentType, recordVersion, 0, buf, 0, len);
+        output.put(encoded.buf, encoded.off, encoded.len);
+        return encoded.recordType;
+    }
+
+    /**
+     * Decode the ciphertext remaining in a {@link ByteBuffer}, writing the plaintext to output.
+     * <p>
+     * On return the ciphertext buffer has been consumed and the position of output has been advanced
+     * past the plaintext. The ciphertext buffer itself is never modified. The default implementation
+     * stages the data through the byte[] based
+     * {@link #decodeCiphertext(long, short, ProtocolVersion, byte[], int, int)}.
+     * </p>
+     *
+     * @param seqNo sequence number of the message represented by ciphertext.
+     * @param recordType content type used in the record for this message.
+     * @param recordVersion {@link ProtocolVersion} used for the record.
+     * @param ciphertext buffer holding the record fragment.
+     * @param output buffer to receive the plaintext, must have at least ciphertext.remaining() bytes free.
+     * @return the content type of the decoded plaintext.
+     * @throws IOException
+     */
+    default short decodeCiphertext(long seqNo, short recordType, ProtocolVersion recordVersion, ByteBuffer ciphertext,
+        ByteBuffer output) throws IOException
+    {
+        byte[] buf = new byte[ciphertext.remaining()];
+        ciphertext.get(buf);
+
+        TlsDecodeResult decoded = decodeCiphertext(seqNo, recordType, recordVersion, buf, 0, buf.length);
+        output.put(decoded.buf, decoded.off, decoded.len);
+        return decoded.contentType;
+    }
+
     void rekeyDecoder() throws IOException;
 
     void rekeyEncoder() throws IOException;
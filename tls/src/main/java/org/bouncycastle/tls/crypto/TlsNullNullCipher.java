@@ -1,6 +1,7 @@
 package org.bouncycastle.tls.crypto;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 import org.bouncycastle.tls.AlertDescription;
 import org.bouncycastle.tls.ProtocolVersion;
@@ -42,6 +43,13 @@ public class TlsNullNullCipher
         return new TlsEncodeResult(result, 0, result.length, contentType);
     }
 
+    public short encodePlaintext(long seqNo, short contentType, ProtocolVersion recordVersion, byte[] plaintext,
+        int offset, int len, ByteBuffer output) throws IOException
+    {
+        output.put(plaintext, offset, len);
+        return contentType;
+    }
+
     public TlsDecodeResult decodeCiphertext(long seqNo, short recordType, ProtocolVersion recordVersion,
         byte[] ciphertext, int offset, int len) throws IOException
     {
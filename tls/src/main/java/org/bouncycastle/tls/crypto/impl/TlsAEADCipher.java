@@ -1,6 +1,7 @@
 package org.bouncycastle.tls.crypto.impl;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 import org.bouncycastle.tls.AlertDescription;
 import org.bouncycastle.tls.ContentType;
@@ -38,6 +39,8 @@ public final class TlsAEADCipher
 
     private final TlsAEADCipherImpl decryptCipher, encryptCipher;
     private final byte[] decryptNonce, encryptNonce;
+    private final byte[] decryptRecordNonce, encryptRecordNonce;
+    private final byte[] decryptAdditionalData, encryptAdditionalData;
     private final byte[] decryptConnectionID, encryptConnectionID;
     private final boolean decryptUseInnerPlaintext, encryptUseInnerPlaintext;
 
@@ -88,11 +91,26 @@ public final class TlsAEADCipher
         this.decryptNonce = new byte[fixed_iv_length];
         this.encryptNonce = new byte[fixed_iv_length];
 
+        // Per-record scratch space, reused for every record in the respective direction
+        this.decryptRecordNonce = new byte[fixed_iv_length + record_iv_length];
+        this.encryptRecordNonce = new byte[fixed_iv_length + record_iv_length];
+        this.decryptAdditionalData = new byte[getAdditionalDataLength(decryptConnectionID)];
+        this.encryptAdditionalData = new byte[getAdditionalDataLength(encryptConnectionID)];
+
         final boolean isServer = cryptoParams.isServer();
         if (isTLSv13)
         {
-            rekeyCipher(securityParameters, decryptCipher, decryptNonce, !isServer);
-            rekeyCipher(securityParameters, encryptCipher, encryptNonce, isServer);
+            // NOTE: Early data is client->server only, so a cipher for it has no server traffic secret
+            boolean serverToClient = null != securityParameters.getTrafficSecretServer();
+
+            if (serverToClient || isServer)
+            {
+                rekeyCipher(securityParameters, decryptCipher, decryptNonce, !isServer);
+            }
+            if (serverToClient || !isServer)
+            {
+                rekeyCipher(securityParameters, encryptCipher, encryptNonce, isServer);
+            }
             return;
         }
 
@@ -154,41 +172,117 @@ public final class TlsAEADCipher
     public TlsEncodeResult encodePlaintext(long seqNo, short contentType, ProtocolVersion recordVersion,
         int headerAllocation, byte[] plaintext, int plaintextOffset, int plaintextLength) throws IOException
     {
-        byte[] nonce = new byte[encryptNonce.length + record_iv_length];
+        byte[] output = new byte[headerAllocation + getCiphertextEncodeLimit(plaintextLength)];
 
-        switch (nonceMode)
+        short recordType = encodePlaintext(seqNo, contentType, recordVersion, plaintext, plaintextOffset,
+            plaintextLength, output, headerAllocation, output.length - headerAllocation);
+
+        return new TlsEncodeResult(output, 0, output.length, recordType);
+    }
+
+    public short encodePlaintext(long seqNo, short contentType, ProtocolVersion recordVersion, byte[] plaintext,
+        int offset, int len, ByteBuffer output) throws IOException
+    {
+        if (!output.hasArray())
         {
-        case NONCE_RFC5288:
-            System.arraycopy(encryptNonce, 0, nonce, 0, encryptNonce.length);
-            // RFC 5288/6655: The nonce_explicit MAY be the 64-bit sequence number.
-            TlsUtils.writeUint64(seqNo, nonce, encryptNonce.length);
-            break;
-        case NONCE_RFC7905:
-            TlsUtils.writeUint64(seqNo, nonce, nonce.length - 8);
-            for (int i = 0; i < encryptNonce.length; ++i)
+            return TlsCipher.super.encodePlaintext(seqNo, contentType, recordVersion, plaintext, offset, len, output);
+        }
+
+        int outputPos = output.position();
+        int ciphertextLength = getCiphertextEncodeLimit(len);
+
+        short recordType = encodePlaintext(seqNo, contentType, recordVersion, plaintext, offset, len, output.array(),
+            output.arrayOffset() + outputPos, output.remaining());
+
+        ((java.nio.Buffer)output).position(outputPos + ciphertextLength);
+        return recordType;
+    }
+
+    public TlsDecodeResult decodeCiphertext(long seqNo, short recordType, ProtocolVersion recordVersion,
+        byte[] ciphertext, int ciphertextOffset, int ciphertextLength) throws IOException
+    {
+        if (getPlaintextDecodeLimit(ciphertextLength) < 0)
+        {
+            throw new TlsFatalAlert(AlertDescription.decode_error);
+        }
+
+        byte[] nonce = createDecryptNonce(seqNo);
+        if (record_iv_length != 0)
+        {
+            System.arraycopy(ciphertext, ciphertextOffset, nonce, nonce.length - record_iv_length, record_iv_length);
+        }
+
+        decryptCipher.init(nonce, macSize);
+
+        int encryptionOffset = ciphertextOffset + record_iv_length;
+        int encryptionLength = ciphertextLength - record_iv_length;
+        int innerPlaintextLength = decryptCipher.getOutputSize(encryptionLength);
+
+        byte[] additionalData = getAdditionalData(seqNo, recordType, recordVersion, ciphertextLength,
+            innerPlaintextLength, decryptConnectionID, decryptAdditionalData);
+
+        int outputPos;
+        try
+        {
+            outputPos = decryptCipher.doFinal(additionalData, ciphertext, encryptionOffset, encryptionLength,
+                ciphertext, encryptionOffset);
+        }
+        catch (RuntimeException e)
+        {
+            throw new TlsFatalAlert(AlertDescription.bad_record_mac, e);
+        }
+
+        if (outputPos != innerPlaintextLength)
+        {
+            // NOTE: The additional data mechanism for AEAD ciphers requires exact output size prediction.
+            throw new TlsFatalAlert(AlertDescription.internal_error);
+        }
+
+        short contentType = recordType;
+        int plaintextLength = innerPlaintextLength;
+
+        if (decryptUseInnerPlaintext)
+        {
+            // Strip padding and read true content type from TLSInnerPlaintext
+            for (;;)
             {
-                nonce[i] ^= encryptNonce[i];
+                if (--plaintextLength < 0)
+                {
+                    throw new TlsFatalAlert(AlertDescription.unexpected_message);
+                }
+
+                byte octet = ciphertext[encryptionOffset + plaintextLength];
+                if (0 != octet)
+                {
+                    contentType = (short)(octet & 0xFF);
+                    break;
+                }
             }
-            break;
-        default:
-            throw new TlsFatalAlert(AlertDescription.internal_error);
         }
 
-        // TODO[tls13, cid] If we support adding padding to (D)TLSInnerPlaintext, this will need review
-        int innerPlaintextLength = plaintextLength + (encryptUseInnerPlaintext ? 1 : 0);
+        return new TlsDecodeResult(ciphertext, encryptionOffset, plaintextLength, contentType);
+    }
+
+    public short encodePlaintext(long seqNo, short contentType, ProtocolVersion recordVersion, ByteBuffer[] plaintext,
+        int offset, int length, int len, ByteBuffer output) throws IOException
+    {
+        byte[] nonce = createEncryptNonce(seqNo);
+
+        int innerPlaintextLength = len + (encryptUseInnerPlaintext ? 1 : 0);
 
         encryptCipher.init(nonce, macSize);
 
         int encryptionLength = encryptCipher.getOutputSize(innerPlaintextLength);
         int ciphertextLength = record_iv_length + encryptionLength;
 
-        byte[] output = new byte[headerAllocation + ciphertextLength];
-        int outputPos = headerAllocation;
+        if (output.remaining() < ciphertextLength)
+        {
+            throw new TlsFatalAlert(AlertDescription.internal_error);
+        }
 
         if (record_iv_length != 0)
         {
-            System.arraycopy(nonce, nonce.length - record_iv_length, output, outputPos, record_iv_length);
-            outputPos += record_iv_length;
+            output.put(nonce, nonce.length - record_iv_length, record_iv_length);
         }
 
         short recordType = contentType;
@@ -198,77 +292,97 @@ public final class TlsAEADCipher
         }
 
         byte[] additionalData = getAdditionalData(seqNo, recordType, recordVersion, ciphertextLength,
-            innerPlaintextLength, encryptConnectionID);
-
-        try
+            innerPlaintextLength, encryptConnectionID, encryptAdditionalData);
+
+        /*
+         * Gather the plaintext into place in the output and encrypt it there, so the sources are never
+         * staged through an intermediate array.
+         */
+        int outputStart = output.position();
+        for (int i = 0, pos = 0; pos < len; ++i)
         {
-            System.arraycopy(plaintext, plaintextOffset, output, outputPos, plaintextLength);
-            if (encryptUseInnerPlaintext)
+            ByteBuffer src = plaintext[offset + i];
+            int count = Math.min(src.remaining(), len - pos);
+            if (count > 0)
             {
-                output[outputPos + plaintextLength] = (byte)contentType;
+                int srcLimit = src.limit();
+                ((java.nio.Buffer)src).limit(src.position() + count);
+                output.put(src);
+                ((java.nio.Buffer)src).limit(srcLimit);
+                pos += count;
             }
+        }
+        if (encryptUseInnerPlaintext)
+        {
+            output.put((byte)contentType);
+        }
 
-            outputPos += encryptCipher.doFinal(additionalData, output, outputPos, innerPlaintextLength, output,
-                outputPos);
+        ByteBuffer input = output.duplicate();
+        ((java.nio.Buffer)input).position(outputStart);
+        ((java.nio.Buffer)input).limit(outputStart + innerPlaintextLength);
+        ((java.nio.Buffer)output).position(outputStart);
+
+        int encrypted;
+        try
+        {
+            encrypted = encryptCipher.doFinal(additionalData, input, output);
         }
         catch (RuntimeException e)
         {
             throw new TlsFatalAlert(AlertDescription.internal_error, e);
         }
 
-        if (outputPos != output.length)
+        if (encrypted != encryptionLength)
         {
             // NOTE: The additional data mechanism for AEAD ciphers requires exact output size prediction.
             throw new TlsFatalAlert(AlertDescription.internal_error);
         }
 
-        return new TlsEncodeResult(output, 0, output.length, recordType);
+        return recordType;
     }
 
-    public TlsDecodeResult decodeCiphertext(long seqNo, short recordType, ProtocolVersion recordVersion,
-        byte[] ciphertext, int ciphertextOffset, int ciphertextLength) throws IOException
+    public short decodeCiphertext(long seqNo, short recordType, ProtocolVersion recordVersion, ByteBuffer ciphertext,
+        ByteBuffer output) throws IOException
     {
+        int ciphertextLength = ciphertext.remaining();
         if (getPlaintextDecodeLimit(ciphertextLength) < 0)
         {
             throw new TlsFatalAlert(AlertDescription.decode_error);
         }
 
-        byte[] nonce = new byte[decryptNonce.length + record_iv_length];
-
-        switch (nonceMode)
+        byte[] nonce = createDecryptNonce(seqNo);
+        if (record_iv_length != 0)
         {
-        case NONCE_RFC5288:
-            System.arraycopy(decryptNonce, 0, nonce, 0, decryptNonce.length);
-            System.arraycopy(ciphertext, ciphertextOffset, nonce, nonce.length - record_iv_length, record_iv_length);
-            break;
-        case NONCE_RFC7905:
-            TlsUtils.writeUint64(seqNo, nonce, nonce.length - 8);
-            for (int i = 0; i < decryptNonce.length; ++i)
-            {
-                nonce[i] ^= decryptNonce[i];
-            }
-            break;
-        default:
-            throw new TlsFatalAlert(AlertDescription.internal_error);
+            ciphertext.get(nonce, nonce.length - record_iv_length, record_iv_length);
         }
 
         decryptCipher.init(nonce, macSize);
 
-        int encryptionOffset = ciphertextOffset + record_iv_length;
         int encryptionLength = ciphertextLength - record_iv_length;
         int innerPlaintextLength = decryptCipher.getOutputSize(encryptionLength);
 
+        if (output.remaining() < innerPlaintextLength)
+        {
+            throw new TlsFatalAlert(AlertDescription.internal_error);
+        }
+
         byte[] additionalData = getAdditionalData(seqNo, recordType, recordVersion, ciphertextLength,
-            innerPlaintextLength, decryptConnectionID);
+            innerPlaintextLength, decryptConnectionID, decryptAdditionalData);
 
+        int outputStart = output.position();
         int outputPos;
         try
         {
-            outputPos = decryptCipher.doFinal(additionalData, ciphertext, encryptionOffset, encryptionLength,
-                ciphertext, encryptionOffset);
+            outputPos = decryptCipher.doFinal(additionalData, ciphertext, output);
+        }
+        catch (IOException e)
+        {
+            discardOutput(output, outputStart);
+            throw e;
         }
         catch (RuntimeException e)
         {
+            discardOutput(output, outputStart);
             throw new TlsFatalAlert(AlertDescription.bad_record_mac, e);
         }
 
@@ -291,16 +405,18 @@ public final class TlsAEADCipher
                     throw new TlsFatalAlert(AlertDescription.unexpected_message);
                 }
 
-                byte octet = ciphertext[encryptionOffset + plaintextLength];
+                byte octet = output.get(outputStart + plaintextLength);
                 if (0 != octet)
                 {
                     contentType = (short)(octet & 0xFF);
                     break;
                 }
             }
+
+            ((java.nio.Buffer)output).position(outputStart + plaintextLength);
         }
 
-        return new TlsDecodeResult(ciphertext, encryptionOffset, plaintextLength, contentType);
+        return contentType;
     }
 
     public void rekeyDecoder() throws IOException
@@ -323,8 +439,132 @@ public final class TlsAEADCipher
         return encryptUseInnerPlaintext;
     }
 
+    private short encodePlaintext(long seqNo, short contentType, ProtocolVersion recordVersion, byte[] plaintext,
+        int plaintextOffset, int plaintextLength, byte[] output, int outputOffset, int outputAvailable)
+        throws IOException
+    {
+        byte[] nonce = createEncryptNonce(seqNo);
+
+        // TODO[tls13, cid] If we support adding padding to (D)TLSInnerPlaintext, this will need review
+        int innerPlaintextLength = plaintextLength + (encryptUseInnerPlaintext ? 1 : 0);
+
+        encryptCipher.init(nonce, macSize);
+
+        int encryptionLength = encryptCipher.getOutputSize(innerPlaintextLength);
+        int ciphertextLength = record_iv_length + encryptionLength;
+
+        // NOTE: Callers size the output using getCiphertextEncodeLimit, so it must be exact.
+        if (ciphertextLength != getCiphertextEncodeLimit(plaintextLength) || outputAvailable < ciphertextLength)
+        {
+            throw new TlsFatalAlert(AlertDescription.internal_error);
+        }
+
+        int outputPos = outputOffset;
+
+        if (record_iv_length != 0)
+        {
+            System.arraycopy(nonce, nonce.length - record_iv_length, output, outputPos, record_iv_length);
+            outputPos += record_iv_length;
+        }
+
+        short recordType = contentType;
+        if (encryptUseInnerPlaintext)
+        {
+            recordType = isTLSv13 ? ContentType.application_data : ContentType.tls12_cid;
+        }
+
+        byte[] additionalData = getAdditionalData(seqNo, recordType, recordVersion, ciphertextLength,
+            innerPlaintextLength, encryptConnectionID, encryptAdditionalData);
+
+        try
+        {
+            System.arraycopy(plaintext, plaintextOffset, output, outputPos, plaintextLength);
+            if (encryptUseInnerPlaintext)
+            {
+                output[outputPos + plaintextLength] = (byte)contentType;
+            }
+
+            outputPos += encryptCipher.doFinal(additionalData, output, outputPos, innerPlaintextLength, output,
+                outputPos);
+        }
+        catch (RuntimeException e)
+        {
+            throw new TlsFatalAlert(AlertDescription.internal_error, e);
+        }
+
+        if (outputPos - outputOffset != ciphertextLength)
+        {
+            // NOTE: The additional data mechanism for AEAD ciphers requires exact output size prediction.
+            throw new TlsFatalAlert(AlertDescription.internal_error);
+        }
+
+        return recordType;
+    }
+
+    private byte[] createDecryptNonce(long seqNo) throws IOException
+    {
+        byte[] nonce = decryptRecordNonce;
+
+        switch (nonceMode)
+        {
+        case NONCE_RFC5288:
+            // NOTE: The caller fills in the nonce_explicit from the record.
+            System.arraycopy(decryptNonce, 0, nonce, 0, decryptNonce.length);
+            break;
+        case NONCE_RFC7905:
+            System.arraycopy(decryptNonce, 0, nonce, 0, decryptNonce.length);
+            xorSequenceNumber(seqNo, nonce);
+            break;
+        default:
+            throw new TlsFatalAlert(AlertDescription.internal_error);
+        }
+
+        return nonce;
+    }
+
+    private byte[] createEncryptNonce(long seqNo) throws IOException
+    {
+        byte[] nonce = encryptRecordNonce;
+
+        switch (nonceMode)
+        {
+        case NONCE_RFC5288:
+            System.arraycopy(encryptNonce, 0, nonce, 0, encryptNonce.length);
+            // RFC 5288/6655: The nonce_explicit MAY be the 64-bit sequence number.
+            TlsUtils.writeUint64(seqNo, nonce, encryptNonce.length);
+            break;
+        case NONCE_RFC7905:
+            System.arraycopy(encryptNonce, 0, nonce, 0, encryptNonce.length);
+            xorSequenceNumber(seqNo, nonce);
+            break;
+        default:
+            throw new TlsFatalAlert(AlertDescription.internal_error);
+        }
+
+        return nonce;
+    }
+
+    private static void xorSequenceNumber(long seqNo, byte[] nonce)
+    {
+        for (int i = nonce.length - 1; i >= nonce.length - 8; --i)
+        {
+            nonce[i] ^= (byte)seqNo;
+            seqNo >>>= 8;
+        }
+    }
+
+    private static void discardOutput(ByteBuffer output, int outputStart)
+    {
+        // Don't leave unauthenticated plaintext behind in the caller's buffer.
+        for (int i = output.position() - 1; i >= outputStart; --i)
+        {
+            output.put(i, (byte)0);
+        }
+        ((java.nio.Buffer)output).position(outputStart);
+    }
+
     private byte[] getAdditionalData(long seqNo, short recordType, ProtocolVersion recordVersion,
-        int ciphertextLength, int plaintextLength, byte[] connectionID) throws IOException
+        int ciphertextLength, int plaintextLength, byte[] connectionID, byte[] additional_data) throws IOException
     {
         if (!Arrays.isNullOrEmpty(connectionID))
         {
@@ -333,7 +573,6 @@ public final class TlsAEADCipher
              *     + sequence_number + cid + length_of_DTLSInnerPlaintext
              */
             int cidLength = connectionID.length;
-            byte[] additional_data = new byte[23 + cidLength];
             TlsUtils.writeUint64(SEQUENCE_NUMBER_PLACEHOLDER, additional_data, 0);
             TlsUtils.writeUint8(ContentType.tls12_cid, additional_data, 8);
             TlsUtils.writeUint8(cidLength, additional_data, 9);
@@ -342,31 +581,36 @@ public final class TlsAEADCipher
             TlsUtils.writeUint64(seqNo, additional_data, 13);
             System.arraycopy(connectionID, 0, additional_data, 21, cidLength);
             TlsUtils.writeUint16(plaintextLength, additional_data, 21 + cidLength);
-            return additional_data;
         }
         else if (isTLSv13)
         {
             /*
              * TLSCiphertext.opaque_type || TLSCiphertext.legacy_record_version || TLSCiphertext.length
              */
-            byte[] additional_data = new byte[5];
             TlsUtils.writeUint8(recordType, additional_data, 0);
             TlsUtils.writeVersion(recordVersion, additional_data, 1);
             TlsUtils.writeUint16(ciphertextLength, additional_data, 3);
-            return additional_data;
         }
         else
         {
             /*
              * seq_num + TLSCompressed.type + TLSCompressed.version + TLSCompressed.length
              */
-            byte[] additional_data = new byte[13];
             TlsUtils.writeUint64(seqNo, additional_data, 0);
             TlsUtils.writeUint8(recordType, additional_data, 8);
             TlsUtils.writeVersion(recordVersion, additional_data, 9);
             TlsUtils.writeUint16(plaintextLength, additional_data, 11);
-            return additional_data;
         }
+        return additional_data;
+    }
+
+    private int getAdditionalDataLength(byte[] connectionID)
+    {
+        if (!Arrays.isNullOrEmpty(connectionID))
+        {
+            return 23 + connectionID.length;
+        }
+        return isTLSv13 ? 5 : 13;
     }
 
     private void rekeyCipher(SecurityParameters securityParameters, TlsAEADCipherImpl cipher, byte[] nonce,
@@ -381,7 +625,6 @@ public final class TlsAEADCipher
             ?   securityParameters.getTrafficSecretServer()
             :   securityParameters.getTrafficSecretClient();
 
-        // TODO[tls13] For early data, have to disable server->client
         if (null == secret)
         {
             throw new TlsFatalAlert(AlertDescription.internal_error);
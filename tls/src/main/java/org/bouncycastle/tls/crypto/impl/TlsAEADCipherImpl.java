@@ -1,6 +1,7 @@
 package org.bouncycastle.tls.crypto.impl;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 /**
  * Base interface for services supporting AEAD encryption/decryption.
@@ -49,4 +50,43 @@ public interface TlsAEADCipherImpl
      */
     int doFinal(byte[] additionalData, byte[] input, int inputOffset, int inputLength, byte[] output, int outputOffset)
         throws IOException;
+
+    /**
+     * Perform the cipher encryption/decryption of the remaining content of input, writing the result to
+     * output. Both buffers have their positions advanced. Input and output may be views of the same
+     * memory provided they start at the same position.
+     * <p>
+     * The default implementation uses the backing arrays where available and otherwise stages the data
+     * through temporary arrays.
+     * </p>
+     * @param additionalData any additional data to be included in the MAC calculation.
+     * @param input buffer holding input data to the cipher.
+     * @param output buffer to hold the cipher output.
+     * @return the amount of data written to output.
+     * @throws IOException in case of failure.
+     */
+    default int doFinal(byte[] additionalData, ByteBuffer input, ByteBuffer output)
+        throws IOException
+    {
+        int inputLength = input.remaining();
+        int len;
+
+        if (input.hasArray() && output.hasArray())
+        {
+            len = doFinal(additionalData, input.array(), input.arrayOffset() + input.position(), inputLength,
+                output.array(), output.arrayOffset() + output.position());
+            ((java.nio.Buffer)input).position(input.limit());
+            ((java.nio.Buffer)output).position(output.position() + len);
+        }
+        else
+        {
+            byte[] in = new byte[inputLength];
+            input.get(in);
+            byte[] out = new byte[getOutputSize(inputLength)];
+            len = doFinal(additionalData, in, 0, inputLength, out, 0);
+            output.put(out, 0, len);
+        }
+
+        return len;
+    }
 }
@@ -1,6 +1,7 @@
 package org.bouncycastle.tls.crypto.impl;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 import org.bouncycastle.tls.AlertDescription;
 import org.bouncycastle.tls.ContentType;
@@ -185,86 +186,37 @@ public final class TlsBlockCipher
     public TlsEncodeResult encodePlaintext(long seqNo, short contentType, ProtocolVersion recordVersion,
         int headerAllocation, byte[] plaintext, int offset, int len) throws IOException
     {
-        int blockSize = encryptCipher.getBlockSize();
-        int macSize = writeMac.getSize();
-
-        // TODO[cid] If we support adding padding to DTLSInnerPlaintext, this will need review
-        int innerPlaintextLength = len + (encryptUseInnerPlaintext ? 1 : 0);
-
-        int enc_input_length = innerPlaintextLength;
-        if (!encryptThenMAC)
-        {
-            enc_input_length += macSize;
-        }
-
-        int padding_length = blockSize - (enc_input_length % blockSize);
-        if (useExtraPadding)
-        {
-            // Add a random number of extra blocks worth of padding
-            int maxExtraPadBlocks = (256 - padding_length) / blockSize;
-            int actualExtraPadBlocks = chooseExtraPadBlocks(maxExtraPadBlocks);
-            padding_length += actualExtraPadBlocks * blockSize;
-        }
-
-        int totalSize = innerPlaintextLength + macSize + padding_length;
-        if (useExplicitIV)
-        {
-            totalSize += blockSize;
-        }
+        int padding_length = choosePaddingLength(len);
+        int totalSize = getEncodeLength(len, padding_length);
 
         byte[] outBuf = new byte[headerAllocation + totalSize];
-        int outOff = headerAllocation;
-
-        if (useExplicitIV)
-        {
-            // Technically the explicit IV will be the encryption of this nonce
-            byte[] explicitIV = cryptoParams.getNonceGenerator().generateNonce(blockSize);
-            System.arraycopy(explicitIV, 0, outBuf, outOff, blockSize);
-            outOff += blockSize;
-        }
-
-        int innerPlaintextOffset = outOff;
-
-        System.arraycopy(plaintext, offset, outBuf, outOff, len);
-        outOff += len;
+        short recordType = encodePlaintext(seqNo, contentType, plaintext, offset, len, padding_length, outBuf,
+            headerAllocation, totalSize);
 
-        short recordType = contentType;
-        if (encryptUseInnerPlaintext)
-        {
-            outBuf[outOff++] = (byte)contentType;
-            recordType = ContentType.tls12_cid;
-        }
-
-        if (!encryptThenMAC)
-        {
-            byte[] mac = writeMac.calculateMac(seqNo, recordType, encryptConnectionID, outBuf, innerPlaintextOffset,
-                innerPlaintextLength);
-            System.arraycopy(mac, 0, outBuf, outOff, mac.length);
-            outOff += mac.length;
-        }
+        return new TlsEncodeResult(outBuf, 0, outBuf.length, recordType);
+    }
 
-        byte padByte = (byte)(padding_length - 1);
-        for (int i = 0; i < padding_length; ++i)
+    public short encodePlaintext(long seqNo, short contentType, ProtocolVersion recordVersion, byte[] plaintext,
+        int offset, int len, ByteBuffer output) throws IOException
+    {
+        if (!output.hasArray())
         {
-            outBuf[outOff++] = padByte;
+            return TlsCipher.super.encodePlaintext(seqNo, contentType, recordVersion, plaintext, offset, len, output);
         }
 
-        encryptCipher.doFinal(outBuf, headerAllocation, outOff - headerAllocation, outBuf, headerAllocation);
+        int padding_length = choosePaddingLength(len);
+        int totalSize = getEncodeLength(len, padding_length);
 
-        if (encryptThenMAC)
-        {
-            byte[] mac = writeMac.calculateMac(seqNo, recordType, encryptConnectionID, outBuf, headerAllocation,
-                outOff - headerAllocation);
-            System.arraycopy(mac, 0, outBuf, outOff, mac.length);
-            outOff += mac.length;
-        }
-
-        if (outOff != outBuf.length)
+        if (output.remaining() < totalSize)
         {
             throw new TlsFatalAlert(AlertDescription.internal_error);
         }
 
-        return new TlsEncodeResult(outBuf, 0, outBuf.length, recordType);
+        int outputPos = output.position();
+        short recordType = encodePlaintext(seqNo, contentType, plaintext, offset, len, padding_length,
+            output.array(), output.arrayOffset() + outputPos, totalSize);
+        output.position(outputPos + totalSize);
+        return recordType;
     }
 
     public TlsDecodeResult decodeCiphertext(long seqNo, short recordType, ProtocolVersion recordVersion,
@@ -448,6 +400,99 @@ public final class TlsBlockCipher
         return totalPad;
     }
 
+    private int choosePaddingLength(int len)
+    {
+        int blockSize = encryptCipher.getBlockSize();
+
+        // TODO[cid] If we support adding padding to DTLSInnerPlaintext, this will need review
+        int enc_input_length = len + (encryptUseInnerPlaintext ? 1 : 0);
+        if (!encryptThenMAC)
+        {
+            enc_input_length += writeMac.getSize();
+        }
+
+        int padding_length = blockSize - (enc_input_length % blockSize);
+        if (useExtraPadding)
+        {
+            // Add a random number of extra blocks worth of padding
+            int maxExtraPadBlocks = (256 - padding_length) / blockSize;
+            int actualExtraPadBlocks = chooseExtraPadBlocks(maxExtraPadBlocks);
+            padding_length += actualExtraPadBlocks * blockSize;
+        }
+        return padding_length;
+    }
+
+    private int getEncodeLength(int len, int padding_length)
+    {
+        int innerPlaintextLength = len + (encryptUseInnerPlaintext ? 1 : 0);
+
+        int totalSize = innerPlaintextLength + writeMac.getSize() + padding_length;
+        if (useExplicitIV)
+        {
+            totalSize += encryptCipher.getBlockSize();
+        }
+        return totalSize;
+    }
+
+    private short encodePlaintext(long seqNo, short contentType, byte[] plaintext, int offset, int len,
+        int padding_length, byte[] outBuf, int outStart, int totalSize) throws IOException
+    {
+        int blockSize = encryptCipher.getBlockSize();
+        int innerPlaintextLength = len + (encryptUseInnerPlaintext ? 1 : 0);
+        int outOff = outStart;
+
+        if (useExplicitIV)
+        {
+            // Technically the explicit IV will be the encryption of this nonce
+            byte[] explicitIV = cryptoParams.getNonceGenerator().generateNonce(blockSize);
+            System.arraycopy(explicitIV, 0, outBuf, outOff, blockSize);
+            outOff += blockSize;
+        }
+
+        int innerPlaintextOffset = outOff;
+
+        System.arraycopy(plaintext, offset, outBuf, outOff, len);
+        outOff += len;
+
+        short recordType = contentType;
+        if (encryptUseInnerPlaintext)
+        {
+            outBuf[outOff++] = (byte)contentType;
+            recordType = ContentType.tls12_cid;
+        }
+
+        if (!encryptThenMAC)
+        {
+            byte[] mac = writeMac.calculateMac(seqNo, recordType, encryptConnectionID, outBuf, innerPlaintextOffset,
+                innerPlaintextLength);
+            System.arraycopy(mac, 0, outBuf, outOff, mac.length);
+            outOff += mac.length;
+        }
+
+        byte padByte = (byte)(padding_length - 1);
+        for (int i = 0; i < padding_length; ++i)
+        {
+            outBuf[outOff++] = padByte;
+        }
+
+        encryptCipher.doFinal(outBuf, outStart, outOff - outStart, outBuf, outStart);
+
+        if (encryptThenMAC)
+        {
+            byte[] mac = writeMac.calculateMac(seqNo, recordType, encryptConnectionID, outBuf, outStart,
+                outOff - outStart);
+            System.arraycopy(mac, 0, outBuf, outOff, mac.length);
+            outOff += mac.length;
+        }
+
+        if (outOff - outStart != totalSize)
+        {
+            throw new TlsFatalAlert(AlertDescription.internal_error);
+        }
+
+        return recordType;
+    }
+
     private int chooseExtraPadBlocks(int max)
     {
         byte[] random = cryptoParams.getNonceGenerator().generateNonce(4);
@@ -1,6 +1,7 @@
 package org.bouncycastle.tls.crypto.impl;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 import org.bouncycastle.tls.AlertDescription;
 import org.bouncycastle.tls.ContentType;
@@ -100,26 +101,29 @@ public final class TlsNullCipher
     public TlsEncodeResult encodePlaintext(long seqNo, short contentType, ProtocolVersion recordVersion, int headerAllocation,
         byte[] plaintext, int offset, int len) throws IOException
     {
-        int macSize = writeMac.getSize();
-
-        // TODO[cid] If we support adding padding to DTLSInnerPlaintext, this will need review
-        int innerPlaintextLength = len + (encryptUseInnerPlaintext ? 1 : 0);
-
-        byte[] ciphertext = new byte[headerAllocation + innerPlaintextLength + macSize];
-        System.arraycopy(plaintext, offset, ciphertext, headerAllocation, len);
+        byte[] ciphertext = new byte[headerAllocation + getCiphertextEncodeLimit(len)];
+        short recordType = encodePlaintext(seqNo, contentType, plaintext, offset, len, ciphertext, headerAllocation);
+        return new TlsEncodeResult(ciphertext, 0, ciphertext.length, recordType);
+    }
 
-        short recordType = contentType;
-        if (encryptUseInnerPlaintext)
+    public short encodePlaintext(long seqNo, short contentType, ProtocolVersion recordVersion, byte[] plaintext,
+        int offset, int len, ByteBuffer output) throws IOException
+    {
+        int ciphertextLength = getCiphertextEncodeLimit(len);
+        if (!output.hasArray())
         {
-            ciphertext[headerAllocation + len] = (byte)contentType;
-            recordType = ContentType.tls12_cid;
+            return TlsCipher.super.encodePlaintext(seqNo, contentType, recordVersion, plaintext, offset, len, output);
+        }
+        if (output.remaining() < ciphertextLength)
+        {
+            throw new TlsFatalAlert(AlertDescription.internal_error);
         }
 
-        byte[] mac = writeMac.calculateMac(seqNo, recordType, encryptConnectionID, ciphertext, headerAllocation,
-            innerPlaintextLength);
-        System.arraycopy(mac, 0, ciphertext, headerAllocation + innerPlaintextLength, mac.length);
-
-        return new TlsEncodeResult(ciphertext, 0, ciphertext.length, recordType);
+        int outputPos = output.position();
+        short recordType = encodePlaintext(seqNo, contentType, plaintext, offset, len, output.array(),
+            output.arrayOffset() + outputPos);
+        output.position(outputPos + ciphertextLength);
+        return recordType;
     }
 
     public TlsDecodeResult decodeCiphertext(long seqNo, short recordType, ProtocolVersion recordVersion,
@@ -186,4 +190,26 @@ public final class TlsNullCipher
     {
         return encryptUseInnerPlaintext;
     }
+
+    private short encodePlaintext(long seqNo, short contentType, byte[] plaintext, int offset, int len,
+        byte[] output, int outputOffset) throws IOException
+    {
+        // TODO[cid] If we support adding padding to DTLSInnerPlaintext, this will need review
+        int innerPlaintextLength = len + (encryptUseInnerPlaintext ? 1 : 0);
+
+        System.arraycopy(plaintext, offset, output, outputOffset, len);
+
+        short recordType = contentType;
+        if (encryptUseInnerPlaintext)
+        {
+            output[outputOffset + len] = (byte)contentType;
+            recordType = ContentType.tls12_cid;
+        }
+
+        byte[] mac = writeMac.calculateMac(seqNo, recordType, encryptConnectionID, output, outputOffset,
+            innerPlaintextLength);
+        System.arraycopy(mac, 0, output, outputOffset + innerPlaintextLength, mac.length);
+
+        return recordType;
+    }
 }
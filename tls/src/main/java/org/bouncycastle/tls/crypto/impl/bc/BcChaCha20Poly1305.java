@@ -2,8 +2,14 @@ package org.bouncycastle.tls.crypto.impl.bc;
 
 import java.io.IOException;
 
+import org.bouncycastle.crypto.CryptoServicesRegistrar;
+import org.bouncycastle.crypto.NativeServices;
+import org.bouncycastle.crypto.PacketCipherException;
 import org.bouncycastle.crypto.engines.ChaCha7539Engine;
 import org.bouncycastle.crypto.macs.Poly1305;
+import org.bouncycastle.crypto.modes.ChaCha20Poly1305ModePacketCipher;
+import org.bouncycastle.crypto.modes.ChaCha20Poly1305PacketCipher;
+import org.bouncycastle.crypto.params.AEADParameters;
 import org.bouncycastle.crypto.params.KeyParameter;
 import org.bouncycastle.crypto.params.ParametersWithIV;
 import org.bouncycastle.tls.AlertDescription;
@@ -22,15 +28,28 @@ public class BcChaCha20Poly1305 implements TlsAEADCipherImpl
 
     protected final boolean isEncrypting;
 
+    // Records are always processed whole, so when the native packet cipher is available each record is
+    // a single call into it rather than a pass through the Java engine and MAC.
+    private final ChaCha20Poly1305ModePacketCipher packetCipher;
+    private KeyParameter packetKey;
+    private byte[] packetNonce;
+
     public BcChaCha20Poly1305(boolean isEncrypting)
     {
         this.isEncrypting = isEncrypting;
+        this.packetCipher = CryptoServicesRegistrar.hasEnabledService(NativeServices.CHACHA20_POLY1305_PC)
+            ? ChaCha20Poly1305PacketCipher.newInstance() : null;
     }
 
     public int doFinal(byte[] additionalData, byte[] input, int inputOffset, int inputLength, byte[] output,
         int outputOffset)
         throws IOException
     {
+        if (null != packetCipher)
+        {
+            return doFinalPacket(additionalData, input, inputOffset, inputLength, output, outputOffset);
+        }
+
         int additionalDataLength = 0;
         if (!Arrays.isNullOrEmpty(additionalData))
         {
@@ -100,6 +119,12 @@ public class BcChaCha20Poly1305 implements TlsAEADCipherImpl
             throw new TlsFatalAlert(AlertDescription.internal_error);
         }
 
+        if (null != packetCipher)
+        {
+            this.packetNonce = Arrays.clone(nonce);
+            return;
+        }
+
         cipher.init(isEncrypting, new ParametersWithIV(null, nonce));
         initMAC();
     }
@@ -107,9 +132,37 @@ public class BcChaCha20Poly1305 implements TlsAEADCipherImpl
     public void setKey(byte[] key, int keyOff, int keyLen) throws IOException
     {
         KeyParameter cipherKey = new KeyParameter(key, keyOff, keyLen);
+
+        if (null != packetCipher)
+        {
+            this.packetKey = cipherKey;
+            return;
+        }
+
         cipher.init(isEncrypting, new ParametersWithIV(cipherKey, ZEROES, 0, 12));
     }
 
+    protected int doFinalPacket(byte[] additionalData, byte[] input, int inputOffset, int inputLength,
+        byte[] output, int outputOffset)
+        throws IOException
+    {
+        byte[] aad = Arrays.isNullOrEmpty(additionalData) ? null : additionalData;
+
+        try
+        {
+            return packetCipher.processPacket(isEncrypting, new AEADParameters(packetKey, 128, packetNonce, aad),
+                input, inputOffset, inputLength, output, outputOffset);
+        }
+        catch (PacketCipherException e)
+        {
+            if (PacketCipherException.Reason.INVALID_CIPHERTEXT == e.getReason())
+            {
+                throw new TlsFatalAlert(AlertDescription.bad_record_mac, e);
+            }
+            throw new TlsFatalAlert(AlertDescription.internal_error, e);
+        }
+    }
+
     protected void initMAC()
     {
         byte[] firstBlock = new byte[64];
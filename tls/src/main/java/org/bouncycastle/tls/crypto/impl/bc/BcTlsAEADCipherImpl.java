@@ -1,6 +1,7 @@
 package org.bouncycastle.tls.crypto.impl.bc;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 import org.bouncycastle.crypto.InvalidCipherTextException;
 import org.bouncycastle.crypto.modes.AEADBlockCipher;
@@ -61,4 +62,26 @@ final class BcTlsAEADCipherImpl
 
         return len;
     }
+
+    public int doFinal(byte[] additionalData, ByteBuffer input, ByteBuffer output)
+        throws IOException
+    {
+        if (!Arrays.isNullOrEmpty(additionalData))
+        {
+            cipher.processAADBytes(additionalData, 0, additionalData.length);
+        }
+
+        int len = cipher.processBytes(input, output);
+
+        try
+        {
+            len += cipher.doFinal(output);
+        }
+        catch (InvalidCipherTextException e)
+        {
+            throw new TlsFatalAlert(AlertDescription.bad_record_mac, e);
+        }
+
+        return len;
+    }
 }
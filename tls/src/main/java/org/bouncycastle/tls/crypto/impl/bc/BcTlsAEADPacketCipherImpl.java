@@ -0,0 +1,82 @@
+package org.bouncycastle.tls.crypto.impl.bc;
+
+import java.io.IOException;
+
+import org.bouncycastle.crypto.PacketCipherException;
+import org.bouncycastle.crypto.modes.AEADModePacketCipher;
+import org.bouncycastle.crypto.modes.KeyedAEADPacketCipher;
+import org.bouncycastle.crypto.params.KeyParameter;
+import org.bouncycastle.tls.AlertDescription;
+import org.bouncycastle.tls.TlsFatalAlert;
+import org.bouncycastle.tls.crypto.impl.TlsAEADCipherImpl;
+import org.bouncycastle.util.Arrays;
+
+/**
+ * A {@link TlsAEADCipherImpl} backed by a packet cipher bound to the key of the connection direction, so that
+ * each record is sealed or opened (nonce and additional data included) in a single call, rather than driving a
+ * stateful AEAD mode through init/processAADBytes/processBytes/doFinal.
+ */
+final class BcTlsAEADPacketCipherImpl
+    implements TlsAEADCipherImpl
+{
+    private final AEADModePacketCipher cipher;
+    private final boolean isEncrypting;
+
+    private KeyedAEADPacketCipher keyedCipher = null;
+    private byte[] nonce = null;
+    private int macSize = -1;
+
+    BcTlsAEADPacketCipherImpl(AEADModePacketCipher cipher, boolean isEncrypting)
+    {
+        this.cipher = cipher;
+        this.isEncrypting = isEncrypting;
+    }
+
+    public void setKey(byte[] key, int keyOff, int keyLen)
+    {
+        // NOTE: Held for the life of the connection direction (until a TLS 1.3 key update)
+        this.keyedCipher = cipher.withKey(new KeyParameter(key, keyOff, keyLen));
+    }
+
+    public void init(byte[] nonce, int macSize) throws IOException
+    {
+        if (null == keyedCipher || macSize < 1)
+        {
+            throw new TlsFatalAlert(AlertDescription.internal_error);
+        }
+
+        // The nonce is only used by the following doFinal, but the caller may reuse its array
+        if (null == this.nonce || this.nonce.length != nonce.length)
+        {
+            this.nonce = new byte[nonce.length];
+        }
+        System.arraycopy(nonce, 0, this.nonce, 0, nonce.length);
+
+        this.macSize = macSize;
+    }
+
+    public int getOutputSize(int inputLength)
+    {
+        return isEncrypting ? inputLength + macSize : inputLength - macSize;
+    }
+
+    public int doFinal(byte[] additionalData, byte[] input, int inputOffset, int inputLength, byte[] output,
+        int outputOffset) throws IOException
+    {
+        byte[] aad = Arrays.isNullOrEmpty(additionalData) ? null : additionalData;
+
+        try
+        {
+            return keyedCipher.processPacket(isEncrypting, nonce, aad, macSize, input, inputOffset, inputLength,
+                output, outputOffset);
+        }
+        catch (PacketCipherException e)
+        {
+            if (PacketCipherException.Reason.INVALID_CIPHERTEXT == e.getReason())
+            {
+                throw new TlsFatalAlert(AlertDescription.bad_record_mac, e);
+            }
+            throw new TlsFatalAlert(AlertDescription.internal_error, e);
+        }
+    }
+}
@@ -6,7 +6,9 @@ import java.security.SecureRandom;
 import java.util.Vector;
 
 import org.bouncycastle.crypto.BlockCipher;
+import org.bouncycastle.crypto.CryptoServicesRegistrar;
 import org.bouncycastle.crypto.Digest;
+import org.bouncycastle.crypto.NativeServices;
 import org.bouncycastle.crypto.agreement.srp.SRP6Client;
 import org.bouncycastle.crypto.agreement.srp.SRP6Server;
 import org.bouncycastle.crypto.agreement.srp.SRP6VerifierGenerator;
@@ -26,6 +28,9 @@ import org.bouncycastle.crypto.engines.SEEDEngine;
 import org.bouncycastle.crypto.engines.SM4Engine;
 import org.bouncycastle.crypto.macs.HMac;
 import org.bouncycastle.crypto.modes.AEADBlockCipher;
+import org.bouncycastle.crypto.modes.AEADModePacketCipher;
+import org.bouncycastle.crypto.modes.AESCCMPacketCipher;
+import org.bouncycastle.crypto.modes.AESGCMPacketCipher;
 import org.bouncycastle.crypto.modes.CBCBlockCipher;
 import org.bouncycastle.crypto.modes.CCMBlockCipher;
 import org.bouncycastle.crypto.modes.GCMBlockCipher;
@@ -65,6 +70,7 @@ import org.bouncycastle.tls.crypto.TlsSRPConfig;
 import org.bouncycastle.tls.crypto.TlsSecret;
 import org.bouncycastle.tls.crypto.impl.AbstractTlsCrypto;
 import org.bouncycastle.tls.crypto.impl.TlsAEADCipher;
+import org.bouncycastle.tls.crypto.impl.TlsAEADCipherImpl;
 import org.bouncycastle.tls.crypto.impl.TlsBlockCipher;
 import org.bouncycastle.tls.crypto.impl.TlsImplUtils;
 import org.bouncycastle.tls.crypto.impl.TlsNullCipher;
@@ -600,8 +606,8 @@ public class BcTlsCrypto
     protected TlsAEADCipher createCipher_AES_CCM(TlsCryptoParameters cryptoParams, int cipherKeySize, int macSize)
         throws IOException
     {
-        BcTlsAEADCipherImpl encrypt = new BcTlsAEADCipherImpl(createAEADBlockCipher_AES_CCM(), true);
-        BcTlsAEADCipherImpl decrypt = new BcTlsAEADCipherImpl(createAEADBlockCipher_AES_CCM(), false);
+        TlsAEADCipherImpl encrypt = createAEADCipherImpl_AES_CCM(true);
+        TlsAEADCipherImpl decrypt = createAEADCipherImpl_AES_CCM(false);
 
         return new TlsAEADCipher(cryptoParams, encrypt, decrypt, cipherKeySize, macSize, TlsAEADCipher.AEAD_CCM);
     }
@@ -609,8 +615,8 @@ public class BcTlsCrypto
     protected TlsAEADCipher createCipher_AES_GCM(TlsCryptoParameters cryptoParams, int cipherKeySize, int macSize)
         throws IOException
     {
-        BcTlsAEADCipherImpl encrypt = new BcTlsAEADCipherImpl(createAEADBlockCipher_AES_GCM(), true);
-        BcTlsAEADCipherImpl decrypt = new BcTlsAEADCipherImpl(createAEADBlockCipher_AES_GCM(), false);
+        TlsAEADCipherImpl encrypt = createAEADCipherImpl_AES_GCM(true);
+        TlsAEADCipherImpl decrypt = createAEADCipherImpl_AES_GCM(false);
 
         return new TlsAEADCipher(cryptoParams, encrypt, decrypt, cipherKeySize, macSize, TlsAEADCipher.AEAD_GCM);
     }
@@ -711,6 +717,54 @@ public class BcTlsCrypto
         return GCMBlockCipher.newInstance(engine);
     }
 
+    protected TlsAEADCipherImpl createAEADCipherImpl_AES_CCM(boolean isEncrypting)
+    {
+        AEADModePacketCipher packetCipher = createAEADPacketCipher_AES_CCM();
+        if (null != packetCipher)
+        {
+            return new BcTlsAEADPacketCipherImpl(packetCipher, isEncrypting);
+        }
+        return new BcTlsAEADCipherImpl(createAEADBlockCipher_AES_CCM(), isEncrypting);
+    }
+
+    protected TlsAEADCipherImpl createAEADCipherImpl_AES_GCM(boolean isEncrypting)
+    {
+        AEADModePacketCipher packetCipher = createAEADPacketCipher_AES_GCM();
+        if (null != packetCipher)
+        {
+            return new BcTlsAEADPacketCipherImpl(packetCipher, isEncrypting);
+        }
+        return new BcTlsAEADCipherImpl(createAEADBlockCipher_AES_GCM(), isEncrypting);
+    }
+
+    /**
+     * Return a packet cipher to process each AES-CCM record in a single call, or null to use
+     * {@link #createAEADBlockCipher_AES_CCM()} instead.
+     */
+    protected AEADModePacketCipher createAEADPacketCipher_AES_CCM()
+    {
+        // Only worthwhile with a native packet cipher, which keeps the expanded key for the connection direction
+        if (CryptoServicesRegistrar.hasEnabledService(NativeServices.AES_CCM_PC))
+        {
+            return AESCCMPacketCipher.newInstance();
+        }
+        return null;
+    }
+
+    /**
+     * Return a packet cipher to process each AES-GCM record in a single call, or null to use
+     * {@link #createAEADBlockCipher_AES_GCM()} instead.
+     */
+    protected AEADModePacketCipher createAEADPacketCipher_AES_GCM()
+    {
+        // Only worthwhile with a native packet cipher, which keeps the expanded key for the connection direction
+        if (CryptoServicesRegistrar.hasEnabledService(NativeServices.AES_GCM_PC))
+        {
+            return AESGCMPacketCipher.newInstance();
+        }
+        return null;
+    }
+
     protected AEADBlockCipher createAEADBlockCipher_AES_CCM()
     {
         return createCCMMode(createAESEngine());
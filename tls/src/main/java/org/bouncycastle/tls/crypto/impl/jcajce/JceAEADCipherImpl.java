@@ -1,6 +1,7 @@
 package org.bouncycastle.tls.crypto.impl.jcajce;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.security.AccessController;
 import java.security.AlgorithmParameters;
 import java.security.GeneralSecurityException;
@@ -155,4 +156,23 @@ public class JceAEADCipherImpl
             throw Exceptions.illegalStateException("", e);
         }
     }
+
+    public int doFinal(byte[] additionalData, ByteBuffer input, ByteBuffer output)
+        throws IOException
+    {
+        if (!Arrays.isNullOrEmpty(additionalData))
+        {
+            cipher.updateAAD(additionalData);
+        }
+
+        // NOTE: As above, a single call for the whole record.
+        try
+        {
+            return cipher.doFinal(input, output);
+        }
+        catch (GeneralSecurityException e)
+        {
+            throw Exceptions.illegalStateException("", e);
+        }
+    }
 }
@@ -28,7 +28,9 @@ public class AllTests
         suite.addTestSuite(InstanceTest.class);
         suite.addTestSuite(KeyManagerFactoryTest.class);
         suite.addTestSuite(PSSCredentialsTest.class);
+        suite.addTestSuite(SSLEngineByteBufferTest.class);
         suite.addTestSuite(SSLServerSocketTest.class);
+        suite.addTestSuite(SSLSessionContextTest.class);
         suite.addTestSuite(SSLSocketTest.class);
 
         if (hasClass("javax.net.ssl.CertPathTrustManagerParameters"))
@@ -0,0 +1,245 @@
+package org.bouncycastle.jsse.provider.test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.security.KeyPair;
+import java.security.KeyStore;
+import java.security.SecureRandom;
+import java.security.cert.X509Certificate;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLEngineResult;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.TrustManagerFactory;
+
+import junit.framework.TestCase;
+import org.bouncycastle.util.Arrays;
+
+/**
+ * Exercise SSLEngine wrap/unwrap with direct and heap buffers, and with the application data spread
+ * across several source and destination buffers.
+ */
+public class SSLEngineByteBufferTest
+    extends TestCase
+{
+    private static final int PAYLOAD_SIZE = 100000;
+
+    private static SSLContext clientContext;
+    private static SSLContext serverContext;
+
+    protected void setUp()
+        throws Exception
+    {
+        ProviderUtils.setupHighPriority(false);
+
+        if (clientContext != null)
+        {
+            return;
+        }
+
+        char[] serverPassword = "serverPassword".toCharArray();
+
+        KeyPair caKeyPair = TestUtils.generateECKeyPair();
+        X509Certificate caCert = TestUtils.generateRootCert(caKeyPair);
+
+        KeyStore ks = KeyStore.getInstance("JKS");
+        ks.load(null, null);
+        ks.setKeyEntry("server", caKeyPair.getPrivate(), serverPassword, new X509Certificate[]{ caCert });
+
+        KeyStore ts = KeyStore.getInstance("JKS");
+        ts.load(null, null);
+        ts.setCertificateEntry("ca", caCert);
+
+        TrustManagerFactory tmf = TrustManagerFactory.getInstance("PKIX", ProviderUtils.PROVIDER_NAME_BCJSSE);
+        tmf.init(ts);
+
+        KeyManagerFactory kmf = KeyManagerFactory.getInstance("PKIX", ProviderUtils.PROVIDER_NAME_BCJSSE);
+        kmf.init(ks, serverPassword);
+
+        SSLContext client = SSLContext.getInstance("TLS", ProviderUtils.PROVIDER_NAME_BCJSSE);
+        client.init(null, tmf.getTrustManagers(), new SecureRandom());
+
+        SSLContext server = SSLContext.getInstance("TLS", ProviderUtils.PROVIDER_NAME_BCJSSE);
+        server.init(kmf.getKeyManagers(), null, new SecureRandom());
+
+        clientContext = client;
+        serverContext = server;
+    }
+
+    public void testTLS13GCMDirect()
+        throws Exception
+    {
+        runTransfer("TLSv1.3", "TLS_AES_128_GCM_SHA256", true);
+    }
+
+    public void testTLS13GCMHeap()
+        throws Exception
+    {
+        runTransfer("TLSv1.3", "TLS_AES_256_GCM_SHA384", false);
+    }
+
+    public void testTLS13ChaChaDirect()
+        throws Exception
+    {
+        runTransfer("TLSv1.3", "TLS_CHACHA20_POLY1305_SHA256", true);
+    }
+
+    public void testTLS12GCMDirect()
+        throws Exception
+    {
+        runTransfer("TLSv1.2", "TLS_ECDHE_ECDSA_WITH_AES_128_GCM_SHA256", true);
+    }
+
+    public void testTLS12GCMHeap()
+        throws Exception
+    {
+        runTransfer("TLSv1.2", "TLS_ECDHE_ECDSA_WITH_AES_256_GCM_SHA384", false);
+    }
+
+    public void testTLS12CBCDirect()
+        throws Exception
+    {
+        runTransfer("TLSv1.2", "TLS_ECDHE_ECDSA_WITH_AES_128_CBC_SHA256", true);
+    }
+
+    private void runTransfer(String protocol, String cipherSuite, boolean direct)
+        throws Exception
+    {
+        SSLEngine clientEngine = clientContext.createSSLEngine();
+        clientEngine.setEnabledCipherSuites(new String[]{ cipherSuite });
+        clientEngine.setEnabledProtocols(new String[]{ protocol });
+        clientEngine.setUseClientMode(true);
+
+        SSLEngine serverEngine = serverContext.createSSLEngine();
+        serverEngine.setEnabledCipherSuites(new String[]{ cipherSuite });
+        serverEngine.setEnabledProtocols(new String[]{ protocol });
+        serverEngine.setUseClientMode(false);
+
+        SSLSession session = clientEngine.getSession();
+        int appBufSize = session.getApplicationBufferSize();
+        int netBufSize = session.getPacketBufferSize();
+
+        byte[] clientData = new byte[PAYLOAD_SIZE];
+        byte[] serverData = new byte[PAYLOAD_SIZE / 3];
+        SecureRandom random = new SecureRandom();
+        random.nextBytes(clientData);
+        random.nextBytes(serverData);
+
+        ByteBuffer[] clientOut = split(clientData, direct);
+        ByteBuffer[] serverOut = split(serverData, direct);
+
+        /*
+         * A large first destination allows records to be decrypted in place; a small one forces the
+         * decrypted data to be scattered across the destinations.
+         */
+        int firstSize = direct ? netBufSize : appBufSize / 2;
+        ByteBuffer[] clientIn = new ByteBuffer[]{ allocate(firstSize, direct), allocate(appBufSize, direct) };
+        ByteBuffer[] serverIn = new ByteBuffer[]{ allocate(firstSize, direct), allocate(appBufSize, direct) };
+
+        ByteBuffer clientToServer = allocate(netBufSize, direct);
+        ByteBuffer serverToClient = allocate(netBufSize, direct);
+
+        ByteArrayOutputStream clientReceived = new ByteArrayOutputStream();
+        ByteArrayOutputStream serverReceived = new ByteArrayOutputStream();
+
+        for (int rounds = 0; clientReceived.size() < serverData.length || serverReceived.size() < clientData.length;
+            ++rounds)
+        {
+            assertTrue("no progress", rounds < 10000);
+
+            clientEngine.wrap(clientOut, clientToServer);
+            serverEngine.wrap(serverOut, serverToClient);
+
+            ((java.nio.Buffer)clientToServer).flip();
+            ((java.nio.Buffer)serverToClient).flip();
+
+            unwrapAll(clientEngine, serverToClient, clientIn, clientReceived);
+            unwrapAll(serverEngine, clientToServer, serverIn, serverReceived);
+
+            clientToServer.compact();
+            serverToClient.compact();
+        }
+
+        assertEquals(protocol, clientEngine.getSession().getProtocol());
+        assertEquals(cipherSuite, clientEngine.getSession().getCipherSuite());
+
+        assertTrue(Arrays.areEqual(clientData, serverReceived.toByteArray()));
+        assertTrue(Arrays.areEqual(serverData, clientReceived.toByteArray()));
+
+        /*
+         * The close_notify is a protocol record (in TLS 1.3 only recognisable once decrypted), so none of
+         * its plaintext should pass through the caller's destination buffer.
+         */
+        clientEngine.closeOutbound();
+        clientToServer.clear();
+        clientEngine.wrap(ByteBuffer.allocate(0), clientToServer);
+        ((java.nio.Buffer)clientToServer).flip();
+
+        byte[] sentinel = new byte[netBufSize];
+        Arrays.fill(sentinel, (byte)0x5A);
+        ByteBuffer dst = fill(sentinel, direct);
+        ((java.nio.Buffer)dst).clear();
+
+        SSLEngineResult result = serverEngine.unwrap(clientToServer, dst);
+        assertEquals(SSLEngineResult.Status.CLOSED, result.getStatus());
+        assertEquals(0, result.bytesProduced());
+
+        byte[] after = new byte[netBufSize];
+        dst.get(after);
+        assertTrue("destination modified by protocol record", Arrays.areEqual(sentinel, after));
+
+        serverEngine.closeOutbound();
+    }
+
+    private static void unwrapAll(SSLEngine engine, ByteBuffer src, ByteBuffer[] dsts, ByteArrayOutputStream received)
+        throws Exception
+    {
+        for (;;)
+        {
+            SSLEngineResult result = engine.unwrap(src, dsts);
+
+            for (int i = 0; i < dsts.length; ++i)
+            {
+                ByteBuffer dst = dsts[i];
+                ((java.nio.Buffer)dst).flip();
+                byte[] data = new byte[dst.remaining()];
+                dst.get(data);
+                received.write(data, 0, data.length);
+                dst.clear();
+            }
+
+            if (result.getStatus() != SSLEngineResult.Status.OK || result.bytesConsumed() == 0)
+            {
+                return;
+            }
+        }
+    }
+
+    private static ByteBuffer[] split(byte[] data, boolean direct)
+    {
+        // Deliberately uneven, with an empty buffer in the middle
+        int a = data.length / 7, b = data.length / 2;
+
+        ByteBuffer[] bufs = new ByteBuffer[4];
+        bufs[0] = fill(Arrays.copyOfRange(data, 0, a), direct);
+        bufs[1] = fill(new byte[0], direct);
+        bufs[2] = fill(Arrays.copyOfRange(data, a, b), !direct);
+        bufs[3] = fill(Arrays.copyOfRange(data, b, data.length), direct);
+        return bufs;
+    }
+
+    private static ByteBuffer fill(byte[] data, boolean direct)
+    {
+        ByteBuffer buf = allocate(data.length, direct);
+        buf.put(data);
+        ((java.nio.Buffer)buf).flip();
+        return buf;
+    }
+
+    private static ByteBuffer allocate(int size, boolean direct)
+    {
+        return direct ? ByteBuffer.allocateDirect(size) : ByteBuffer.allocate(size);
+    }
+}
@@ -0,0 +1,422 @@
+package org.bouncycastle.jsse.provider.test;
+
+import java.nio.ByteBuffer;
+import java.security.KeyPair;
+import java.security.KeyStore;
+import java.security.SecureRandom;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLEngineResult;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSessionContext;
+import javax.net.ssl.TrustManagerFactory;
+
+import junit.framework.TestCase;
+import org.bouncycastle.util.Arrays;
+
+/**
+ * Exercise the client and server session caches: size-limit eviction, timeout expiry, lookup by peer once
+ * a session has been evicted, changing the limits at runtime, and concurrent use.
+ */
+public class SSLSessionContextTest
+    extends TestCase
+{
+    private static final String HOST = "localhost";
+    private static final String PROTOCOL = "TLSv1.2";
+
+    private static KeyManagerFactory kmf;
+    private static TrustManagerFactory tmf;
+
+    private SSLContext clientContext;
+    private SSLContext serverContext;
+
+    protected void setUp()
+        throws Exception
+    {
+        ProviderUtils.setupHighPriority(false);
+
+        if (kmf == null)
+        {
+            char[] serverPassword = "serverPassword".toCharArray();
+
+            KeyPair caKeyPair = TestUtils.generateECKeyPair();
+            X509Certificate caCert = TestUtils.generateRootCert(caKeyPair);
+
+            KeyStore ks = KeyStore.getInstance("JKS");
+            ks.load(null, null);
+            ks.setKeyEntry("server", caKeyPair.getPrivate(), serverPassword, new X509Certificate[]{ caCert });
+
+            KeyStore ts = KeyStore.getInstance("JKS");
+            ts.load(null, null);
+            ts.setCertificateEntry("ca", caCert);
+
+            TrustManagerFactory trustMgrFact = TrustManagerFactory.getInstance("PKIX",
+                ProviderUtils.PROVIDER_NAME_BCJSSE);
+            trustMgrFact.init(ts);
+
+            KeyManagerFactory keyMgrFact = KeyManagerFactory.getInstance("PKIX", ProviderUtils.PROVIDER_NAME_BCJSSE);
+            keyMgrFact.init(ks, serverPassword);
+
+            tmf = trustMgrFact;
+            kmf = keyMgrFact;
+        }
+
+        // fresh contexts, so each test starts with empty caches
+        clientContext = SSLContext.getInstance("TLS", ProviderUtils.PROVIDER_NAME_BCJSSE);
+        clientContext.init(null, tmf.getTrustManagers(), new SecureRandom());
+
+        serverContext = SSLContext.getInstance("TLS", ProviderUtils.PROVIDER_NAME_BCJSSE);
+        serverContext.init(kmf.getKeyManagers(), null, new SecureRandom());
+    }
+
+    public void testSizeLimitEviction()
+        throws Exception
+    {
+        SSLSessionContext clientSessions = clientContext.getClientSessionContext();
+        SSLSessionContext serverSessions = serverContext.getServerSessionContext();
+
+        clientSessions.setSessionCacheSize(4);
+        serverSessions.setSessionCacheSize(4);
+
+        List<byte[]> ids = new ArrayList<byte[]>();
+        for (int port = 1; port <= 10; ++port)
+        {
+            byte[] id = handshake(HOST, port).getId();
+            assertFalse("session ID repeated", contains(ids, id));
+            ids.add(id);
+
+            assertTrue(countIds(clientSessions) <= 4);
+            assertTrue(countIds(serverSessions) <= 4);
+        }
+
+        assertEquals(4, countIds(clientSessions));
+        assertEquals(4, countIds(serverSessions));
+
+        // nothing was looked up, so the oldest sessions are the ones evicted
+        for (int i = 0; i < ids.size(); ++i)
+        {
+            boolean retained = i >= ids.size() - 4;
+            assertEquals(retained, null != clientSessions.getSession((byte[])ids.get(i)));
+            assertEquals(retained, null != serverSessions.getSession((byte[])ids.get(i)));
+        }
+    }
+
+    public void testRecentlyUsedSurvivesEviction()
+        throws Exception
+    {
+        SSLSessionContext serverSessions = serverContext.getServerSessionContext();
+        serverSessions.setSessionCacheSize(3);
+
+        byte[] first = handshake(HOST, 1).getId();
+        handshake(HOST, 2);
+        handshake(HOST, 3);
+
+        // resuming the first session marks it as recently used on the server
+        assertTrue(Arrays.areEqual(first, handshake(HOST, 1).getId()));
+
+        handshake(HOST, 4);
+
+        assertNotNull(serverSessions.getSession(first));
+        assertEquals(3, countIds(serverSessions));
+    }
+
+    public void testPeerLookupAfterEviction()
+        throws Exception
+    {
+        SSLSessionContext clientSessions = clientContext.getClientSessionContext();
+        clientSessions.setSessionCacheSize(1);
+
+        byte[] idA = handshake(HOST, 1).getId();
+
+        // the client finds the session for the peer and resumes it
+        assertTrue(Arrays.areEqual(idA, handshake(HOST, 1).getId()));
+        assertTrue(Arrays.areEqual(idA, handshake(HOST.toUpperCase(), 1).getId()));
+
+        // a second peer evicts the first peer's session, by ID and by peer
+        byte[] idB = handshake(HOST, 2).getId();
+        assertFalse(Arrays.areEqual(idA, idB));
+        assertNull(clientSessions.getSession(idA));
+        assertNotNull(clientSessions.getSession(idB));
+
+        // so the first peer gets a full handshake, though the server could still have resumed the session
+        assertNotNull(serverContext.getServerSessionContext().getSession(idA));
+        byte[] idA2 = handshake(HOST, 1).getId();
+        assertFalse(Arrays.areEqual(idA, idA2));
+
+        // which in turn evicted the second peer's session
+        assertNull(clientSessions.getSession(idB));
+        assertFalse(Arrays.areEqual(idB, handshake(HOST, 2).getId()));
+    }
+
+    public void testTimeoutExpiry()
+        throws Exception
+    {
+        SSLSessionContext clientSessions = clientContext.getClientSessionContext();
+        SSLSessionContext serverSessions = serverContext.getServerSessionContext();
+
+        clientSessions.setSessionTimeout(1);
+        serverSessions.setSessionTimeout(1);
+
+        byte[] id = handshake(HOST, 1).getId();
+        assertNotNull(clientSessions.getSession(id));
+        assertNotNull(serverSessions.getSession(id));
+
+        Thread.sleep(1500);
+
+        assertNull(clientSessions.getSession(id));
+        assertNull(serverSessions.getSession(id));
+        assertEquals(0, countIds(clientSessions));
+        assertEquals(0, countIds(serverSessions));
+
+        // the expired session is not offered to the peer again
+        assertFalse(Arrays.areEqual(id, handshake(HOST, 1).getId()));
+    }
+
+    public void testRuntimeLimitChanges()
+        throws Exception
+    {
+        SSLSessionContext clientSessions = clientContext.getClientSessionContext();
+
+        List<byte[]> ids = new ArrayList<byte[]>();
+        for (int port = 1; port <= 6; ++port)
+        {
+            ids.add(handshake(HOST, port).getId());
+        }
+        assertEquals(6, countIds(clientSessions));
+
+        // shrinking the cache evicts immediately
+        clientSessions.setSessionCacheSize(3);
+        assertEquals(3, clientSessions.getSessionCacheSize());
+        assertEquals(3, countIds(clientSessions));
+        for (int i = 0; i < ids.size(); ++i)
+        {
+            assertEquals(i >= 3, null != clientSessions.getSession((byte[])ids.get(i)));
+        }
+
+        // zero means no limit
+        clientSessions.setSessionCacheSize(0);
+        for (int port = 7; port <= 9; ++port)
+        {
+            ids.add(handshake(HOST, port).getId());
+        }
+        assertEquals(6, countIds(clientSessions));
+
+        Thread.sleep(1500);
+
+        // zero means no timeout, so nothing expires...
+        clientSessions.setSessionTimeout(0);
+        assertEquals(0, clientSessions.getSessionTimeout());
+        assertEquals(6, countIds(clientSessions));
+
+        // ...until a timeout the sessions have outlived is set
+        clientSessions.setSessionTimeout(1);
+        assertEquals(1, clientSessions.getSessionTimeout());
+        assertEquals(0, countIds(clientSessions));
+
+        try
+        {
+            clientSessions.setSessionCacheSize(-1);
+            fail("negative cache size accepted");
+        }
+        catch (IllegalArgumentException e)
+        {
+            // expected
+        }
+
+        try
+        {
+            clientSessions.setSessionTimeout(-1);
+            fail("negative timeout accepted");
+        }
+        catch (IllegalArgumentException e)
+        {
+            // expected
+        }
+
+        assertEquals(0, clientSessions.getSessionCacheSize());
+        assertEquals(1, clientSessions.getSessionTimeout());
+    }
+
+    public void testConcurrentAccess()
+        throws Exception
+    {
+        final int threadCount = 8;
+        final int handshakesPerThread = 25;
+        final int limit = 8;
+
+        final SSLSessionContext clientSessions = clientContext.getClientSessionContext();
+        final SSLSessionContext serverSessions = serverContext.getServerSessionContext();
+
+        clientSessions.setSessionCacheSize(limit);
+        serverSessions.setSessionCacheSize(limit);
+
+        final List<Exception> failures = Collections.synchronizedList(new ArrayList<Exception>());
+
+        Thread[] threads = new Thread[threadCount];
+        for (int t = 0; t != threadCount; t++)
+        {
+            final int index = t;
+            threads[t] = new Thread()
+            {
+                public void run()
+                {
+                    try
+                    {
+                        for (int i = 0; i != handshakesPerThread; i++)
+                        {
+                            // a small set of peers per thread, shared with the neighbouring thread, so
+                            // sessions are resumed as well as added and evicted
+                            int port = 1 + (index / 2) * 4 + (i % 4);
+                            SSLSession session = handshake(HOST, port);
+                            assertNotNull(session.getId());
+
+                            for (Enumeration<byte[]> e = serverSessions.getIds(); e.hasMoreElements();)
+                            {
+                                serverSessions.getSession((byte[])e.nextElement());
+                            }
+                            clientSessions.getSession(session.getId());
+                        }
+                    }
+                    catch (Exception e)
+                    {
+                        failures.add(e);
+                    }
+                    catch (Throwable e)
+                    {
+                        failures.add(new Exception(e));
+                    }
+                }
+            };
+            threads[t].start();
+        }
+
+        for (int t = 0; t != threadCount; t++)
+        {
+            threads[t].join();
+        }
+
+        if (!failures.isEmpty())
+        {
+            throw (Exception)failures.get(0);
+        }
+
+        // the cache may briefly exceed its limit under contention; an uncontended addition restores it
+        handshake(HOST, 1000);
+
+        assertTrue(countIds(clientSessions) <= limit);
+        assertTrue(countIds(serverSessions) <= limit);
+
+        // every ID listed is still retrievable
+        for (Enumeration<byte[]> e = clientSessions.getIds(); e.hasMoreElements();)
+        {
+            assertNotNull(clientSessions.getSession((byte[])e.nextElement()));
+        }
+        for (Enumeration<byte[]> e = serverSessions.getIds(); e.hasMoreElements();)
+        {
+            assertNotNull(serverSessions.getSession((byte[])e.nextElement()));
+        }
+    }
+
+    private SSLSession handshake(String peerHost, int peerPort)
+        throws Exception
+    {
+        SSLEngine clientEngine = clientContext.createSSLEngine(peerHost, peerPort);
+        clientEngine.setEnabledProtocols(new String[]{ PROTOCOL });
+        clientEngine.setUseClientMode(true);
+
+        SSLEngine serverEngine = serverContext.createSSLEngine();
+        serverEngine.setEnabledProtocols(new String[]{ PROTOCOL });
+        serverEngine.setUseClientMode(false);
+
+        int netBufSize = clientEngine.getSession().getPacketBufferSize();
+        int appBufSize = clientEngine.getSession().getApplicationBufferSize();
+
+        ByteBuffer empty = ByteBuffer.allocate(0);
+        ByteBuffer clientToServer = ByteBuffer.allocate(netBufSize);
+        ByteBuffer serverToClient = ByteBuffer.allocate(netBufSize);
+        ByteBuffer clientIn = ByteBuffer.allocate(appBufSize);
+        ByteBuffer serverIn = ByteBuffer.allocate(appBufSize);
+
+        clientEngine.beginHandshake();
+        serverEngine.beginHandshake();
+
+        for (int rounds = 0; isHandshaking(clientEngine) || isHandshaking(serverEngine); ++rounds)
+        {
+            assertTrue("no progress", rounds < 100);
+
+            clientEngine.wrap(empty, clientToServer);
+            serverEngine.wrap(empty, serverToClient);
+
+            ((java.nio.Buffer)clientToServer).flip();
+            ((java.nio.Buffer)serverToClient).flip();
+
+            unwrapAll(clientEngine, serverToClient, clientIn);
+            unwrapAll(serverEngine, clientToServer, serverIn);
+
+            clientToServer.compact();
+            serverToClient.compact();
+        }
+
+        assertEquals(PROTOCOL, clientEngine.getSession().getProtocol());
+        assertTrue(Arrays.areEqual(clientEngine.getSession().getId(), serverEngine.getSession().getId()));
+
+        return clientEngine.getSession();
+    }
+
+    private static boolean isHandshaking(SSLEngine engine)
+    {
+        runDelegatedTasks(engine);
+
+        SSLEngineResult.HandshakeStatus status = engine.getHandshakeStatus();
+        return status != SSLEngineResult.HandshakeStatus.NOT_HANDSHAKING
+            && status != SSLEngineResult.HandshakeStatus.FINISHED;
+    }
+
+    private static void runDelegatedTasks(SSLEngine engine)
+    {
+        Runnable task;
+        while ((task = engine.getDelegatedTask()) != null)
+        {
+            task.run();
+        }
+    }
+
+    private static void unwrapAll(SSLEngine engine, ByteBuffer src, ByteBuffer dst)
+        throws Exception
+    {
+        while (src.hasRemaining())
+        {
+            SSLEngineResult result = engine.unwrap(src, dst);
+            if (result.getStatus() != SSLEngineResult.Status.OK || result.bytesConsumed() == 0)
+            {
+                break;
+            }
+            runDelegatedTasks(engine);
+        }
+        ((java.nio.Buffer)dst).clear();
+    }
+
+    private static int countIds(SSLSessionContext sessionContext)
+    {
+        return Collections.list(sessionContext.getIds()).size();
+    }
+
+    private static boolean contains(List<byte[]> ids, byte[] id)
+    {
+        for (int i = 0; i < ids.size(); ++i)
+        {
+            if (Arrays.areEqual((byte[])ids.get(i), id))
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+}
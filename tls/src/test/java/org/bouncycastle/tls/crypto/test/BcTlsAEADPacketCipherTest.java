@@ -0,0 +1,180 @@
+package org.bouncycastle.tls.crypto.test;
+
+import java.io.IOException;
+import java.security.SecureRandom;
+
+import org.bouncycastle.crypto.modes.AEADModePacketCipher;
+import org.bouncycastle.crypto.modes.AESCCMPacketCipher;
+import org.bouncycastle.crypto.modes.AESGCMPacketCipher;
+import org.bouncycastle.tls.AlertDescription;
+import org.bouncycastle.tls.TlsFatalAlert;
+import org.bouncycastle.tls.crypto.impl.TlsAEADCipherImpl;
+import org.bouncycastle.tls.crypto.impl.bc.BcTlsCrypto;
+import org.bouncycastle.util.Arrays;
+
+import junit.framework.TestCase;
+
+/**
+ * Checks the AES-GCM and AES-CCM record ciphers BcTlsCrypto builds on packet ciphers against the ones it builds on
+ * the AEAD block cipher modes. The packet path is forced, so this runs whether or not the native packet ciphers
+ * are available (and exercises them when they are).
+ */
+public class BcTlsAEADPacketCipherTest
+    extends TestCase
+{
+    private static final int[] LENGTHS = { 0, 1, 15, 16, 17, 63, 64, 65, 255, 1500 };
+
+    private final SecureRandom random = new SecureRandom();
+
+    private final TestCrypto packetCrypto = new TestCrypto(true);
+    private final TestCrypto blockCrypto = new TestCrypto(false);
+
+    public void testGCM() throws IOException
+    {
+        implTestRecords(false, 16);
+    }
+
+    public void testCCM() throws IOException
+    {
+        implTestRecords(true, 16);
+    }
+
+    public void testCCM8() throws IOException
+    {
+        implTestRecords(true, 8);
+    }
+
+    public void testBadRecordMac() throws IOException
+    {
+        implTestBadRecordMac(false);
+        implTestBadRecordMac(true);
+    }
+
+    private void implTestRecords(boolean ccm, int macSize) throws IOException
+    {
+        for (int keySize = 16; keySize <= 32; keySize += 16)
+        {
+            TlsAEADCipherImpl packetEncrypt = packetCrypto.createAEADCipherImpl(ccm, true);
+            TlsAEADCipherImpl packetDecrypt = packetCrypto.createAEADCipherImpl(ccm, false);
+            TlsAEADCipherImpl blockEncrypt = blockCrypto.createAEADCipherImpl(ccm, true);
+            TlsAEADCipherImpl blockDecrypt = blockCrypto.createAEADCipherImpl(ccm, false);
+
+            // A second key part way through, as for a TLS 1.3 key update
+            for (int epoch = 0; epoch < 2; ++epoch)
+            {
+                byte[] key = randomBytes(keySize);
+                packetEncrypt.setKey(key, 0, keySize);
+                packetDecrypt.setKey(key, 0, keySize);
+                blockEncrypt.setKey(key, 0, keySize);
+                blockDecrypt.setKey(key, 0, keySize);
+
+                byte[] iv = randomBytes(12);
+
+                for (int i = 0; i < LENGTHS.length; ++i)
+                {
+                    byte[] nonce = Arrays.clone(iv);
+                    nonce[11] ^= (byte)i;
+
+                    byte[] additionalData = randomBytes(13);
+                    byte[] plaintext = randomBytes(LENGTHS[i]);
+
+                    // Packet path seals, block path opens
+                    byte[] record = seal(packetEncrypt, nonce, macSize, additionalData, plaintext);
+                    assertTrue(Arrays.areEqual(plaintext, open(blockDecrypt, nonce, macSize, additionalData, record)));
+
+                    // Block path seals the same record, packet path opens it in place
+                    assertTrue(Arrays.areEqual(record, seal(blockEncrypt, nonce, macSize, additionalData, plaintext)));
+                    assertTrue(Arrays.areEqual(plaintext, open(packetDecrypt, nonce, macSize, additionalData, record)));
+                }
+            }
+        }
+    }
+
+    private void implTestBadRecordMac(boolean ccm) throws IOException
+    {
+        TlsAEADCipherImpl encrypt = packetCrypto.createAEADCipherImpl(ccm, true);
+        TlsAEADCipherImpl decrypt = packetCrypto.createAEADCipherImpl(ccm, false);
+
+        byte[] key = randomBytes(16);
+        encrypt.setKey(key, 0, key.length);
+        decrypt.setKey(key, 0, key.length);
+
+        byte[] nonce = randomBytes(12);
+        byte[] additionalData = randomBytes(13);
+        byte[] record = seal(encrypt, nonce, 16, additionalData, randomBytes(100));
+        record[record.length - 1] ^= 1;
+
+        try
+        {
+            open(decrypt, nonce, 16, additionalData, record);
+            fail("tampered record opened");
+        }
+        catch (TlsFatalAlert e)
+        {
+            assertEquals(AlertDescription.bad_record_mac, e.getAlertDescription());
+        }
+    }
+
+    private byte[] randomBytes(int len)
+    {
+        byte[] bs = new byte[len];
+        random.nextBytes(bs);
+        return bs;
+    }
+
+    // As TlsAEADCipher seals a record, in place after the plaintext has been copied into the output
+    private static byte[] seal(TlsAEADCipherImpl cipher, byte[] nonce, int macSize, byte[] additionalData,
+        byte[] plaintext) throws IOException
+    {
+        cipher.init(nonce, macSize);
+
+        byte[] output = new byte[5 + cipher.getOutputSize(plaintext.length)];
+        System.arraycopy(plaintext, 0, output, 5, plaintext.length);
+
+        int len = cipher.doFinal(additionalData, output, 5, plaintext.length, output, 5);
+        assertEquals(plaintext.length + macSize, len);
+
+        return Arrays.copyOfRange(output, 5, 5 + len);
+    }
+
+    // As TlsAEADCipher opens a record, in place
+    private static byte[] open(TlsAEADCipherImpl cipher, byte[] nonce, int macSize, byte[] additionalData,
+        byte[] record) throws IOException
+    {
+        cipher.init(nonce, macSize);
+
+        byte[] buf = new byte[5 + record.length];
+        System.arraycopy(record, 0, buf, 5, record.length);
+
+        int len = cipher.doFinal(additionalData, buf, 5, record.length, buf, 5);
+        assertEquals(record.length - macSize, len);
+
+        return Arrays.copyOfRange(buf, 5, 5 + len);
+    }
+
+    private static class TestCrypto
+        extends BcTlsCrypto
+    {
+        private final boolean usePacketCiphers;
+
+        TestCrypto(boolean usePacketCiphers)
+        {
+            this.usePacketCiphers = usePacketCiphers;
+        }
+
+        TlsAEADCipherImpl createAEADCipherImpl(boolean ccm, boolean isEncrypting)
+        {
+            return ccm ? createAEADCipherImpl_AES_CCM(isEncrypting) : createAEADCipherImpl_AES_GCM(isEncrypting);
+        }
+
+        protected AEADModePacketCipher createAEADPacketCipher_AES_CCM()
+        {
+            return usePacketCiphers ? AESCCMPacketCipher.newInstance() : null;
+        }
+
+        protected AEADModePacketCipher createAEADPacketCipher_AES_GCM()
+        {
+            return usePacketCiphers ? AESGCMPacketCipher.newInstance() : null;
+        }
+    }
+}
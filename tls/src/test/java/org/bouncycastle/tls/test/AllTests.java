@@ -30,11 +30,15 @@ public class AllTests
         suite.addTestSuite(DTLSRawKeysProtocolTest.class);
         suite.addTestSuite(OCSPTest.class);
         suite.addTestSuite(PRFTest.class);
+        suite.addTestSuite(Tls13CertificateCompressionTest.class);
         suite.addTestSuite(Tls13PSKProtocolTest.class);
+        suite.addTestSuite(Tls13EarlyDataProtocolTest.class);
+        suite.addTestSuite(Tls13ResumptionProtocolTest.class);
         suite.addTestSuite(TlsProtocolNonBlockingTest.class);
         suite.addTestSuite(TlsProtocolTest.class);
         suite.addTestSuite(TlsPSKProtocolTest.class);
         suite.addTestSuite(TlsRawKeysProtocolTest.class);
+        suite.addTestSuite(TlsRecordSizeLimitTest.class);
         suite.addTestSuite(TlsSRPProtocolTest.class);
         suite.addTestSuite(TlsUtilsTest.class);
 
@@ -0,0 +1,341 @@
+package org.bouncycastle.tls.test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.util.Vector;
+
+import org.bouncycastle.tls.AlertDescription;
+import org.bouncycastle.tls.CachingCertificateCompressor;
+import org.bouncycastle.tls.Certificate;
+import org.bouncycastle.tls.CertificateCompressionAlgorithm;
+import org.bouncycastle.tls.ProtocolVersion;
+import org.bouncycastle.tls.SignatureAndHashAlgorithm;
+import org.bouncycastle.tls.TlsCertificateCompressor;
+import org.bouncycastle.tls.TlsClientProtocol;
+import org.bouncycastle.tls.TlsCredentialedSigner;
+import org.bouncycastle.tls.TlsCredentials;
+import org.bouncycastle.tls.TlsFatalAlert;
+import org.bouncycastle.tls.TlsServerProtocol;
+import org.bouncycastle.tls.ZlibCertificateCompressor;
+import org.bouncycastle.tls.crypto.TlsStreamSigner;
+import org.bouncycastle.util.Arrays;
+import org.bouncycastle.util.io.Streams;
+
+import junit.framework.TestCase;
+
+public class Tls13CertificateCompressionTest
+    extends TestCase
+{
+    public void testCompressedCertificate() throws Exception
+    {
+        CountingCompressor serverCompressor = new CountingCompressor();
+        Certificate[] sharedCertificate = new Certificate[1];
+
+        for (int i = 0; i < 3; ++i)
+        {
+            CountingCompressor clientCompressor = new CountingCompressor();
+
+            CompressionClient client = new CompressionClient(clientCompressor);
+            CompressionServer server = new CompressionServer(serverCompressor, sharedCertificate);
+            runConnection(client, server);
+
+            assertEquals(1, clientCompressor.decompressCount);
+            assertTrue(client.serverCertificateLength > 0);
+        }
+
+        // The server reused its credentials, so the chain was only compressed once
+        assertEquals(1, serverCompressor.compressCount);
+    }
+
+    public void testCachedAcrossCertificates() throws Exception
+    {
+        CountingCompressor serverCompressor = new CountingCompressor();
+        TlsCertificateCompressor cachingCompressor = new CachingCertificateCompressor(serverCompressor);
+
+        for (int i = 0; i < 3; ++i)
+        {
+            CountingCompressor clientCompressor = new CountingCompressor();
+
+            // A new Certificate for every handshake, as BCJSSE builds them
+            CompressionClient client = new CompressionClient(clientCompressor);
+            CompressionServer server = new CompressionServer(cachingCompressor, null);
+            runConnection(client, server);
+
+            assertEquals(1, clientCompressor.decompressCount);
+            assertTrue(client.serverCertificateLength > 0);
+        }
+
+        assertEquals(1, serverCompressor.compressCount);
+    }
+
+    public void testCachingCompressor() throws Exception
+    {
+        CountingCompressor compressor = new CountingCompressor();
+        CachingCertificateCompressor cachingCompressor = new CachingCertificateCompressor(compressor, 2);
+
+        byte[] a = new byte[100], b = new byte[200], c = new byte[300];
+        Arrays.fill(b, (byte)1);
+        Arrays.fill(c, (byte)2);
+
+        byte[] compressedA = cachingCompressor.compress(a);
+        assertTrue(Arrays.areEqual(compressedA, cachingCompressor.compress(Arrays.clone(a))));
+        assertEquals(1, compressor.compressCount);
+
+        // 'a' was used more recently than 'b', so 'c' pushes out 'b'
+        cachingCompressor.compress(b);
+        cachingCompressor.compress(a);
+        cachingCompressor.compress(c);
+        assertEquals(3, compressor.compressCount);
+        cachingCompressor.compress(a);
+        assertEquals(3, compressor.compressCount);
+        cachingCompressor.compress(b);
+        assertEquals(4, compressor.compressCount);
+
+        assertTrue(Arrays.areEqual(c, cachingCompressor.decompress(cachingCompressor.compress(c), c.length)));
+    }
+
+    public void testNotOfferedByClient() throws Exception
+    {
+        CountingCompressor serverCompressor = new CountingCompressor();
+
+        CompressionClient client = new CompressionClient(null);
+        CompressionServer server = new CompressionServer(serverCompressor, new Certificate[1]);
+        runConnection(client, server);
+
+        assertEquals(0, serverCompressor.compressCount);
+        assertTrue(client.serverCertificateLength > 0);
+    }
+
+    public void testNotSupportedByServer() throws Exception
+    {
+        CountingCompressor clientCompressor = new CountingCompressor();
+
+        CompressionClient client = new CompressionClient(clientCompressor);
+        CompressionServer server = new CompressionServer(null, new Certificate[1]);
+        runConnection(client, server);
+
+        assertEquals(0, clientCompressor.decompressCount);
+        assertTrue(client.serverCertificateLength > 0);
+    }
+
+    public void testZlibCompressor() throws Exception
+    {
+        ZlibCertificateCompressor compressor = new ZlibCertificateCompressor();
+        assertEquals(CertificateCompressionAlgorithm.zlib, compressor.getAlgorithm());
+
+        byte[] message = new byte[4000];
+        for (int i = 0; i < message.length; ++i)
+        {
+            message[i] = (byte)(i % 37);
+        }
+
+        byte[] compressed = compressor.compress(message);
+        assertTrue(compressed.length < message.length);
+        assertTrue(Arrays.areEqual(message, compressor.decompress(compressed, message.length)));
+
+        // Declared length too long or too short
+        checkBadCertificate(compressor, compressed, message.length + 1);
+        checkBadCertificate(compressor, compressed, message.length - 1);
+
+        // Truncated, trailing garbage, corrupted
+        checkBadCertificate(compressor, Arrays.copyOf(compressed, compressed.length - 1), message.length);
+        checkBadCertificate(compressor, Arrays.append(compressed, (byte)0), message.length);
+        byte[] corrupted = Arrays.clone(compressed);
+        corrupted[0] ^= 0x01;
+        checkBadCertificate(compressor, corrupted, message.length);
+    }
+
+    private static void checkBadCertificate(ZlibCertificateCompressor compressor, byte[] compressed,
+        int uncompressedLength) throws IOException
+    {
+        try
+        {
+            compressor.decompress(compressed, uncompressedLength);
+            fail("expected failure to decompress");
+        }
+        catch (TlsFatalAlert e)
+        {
+            assertEquals(AlertDescription.bad_certificate, e.getAlertDescription());
+        }
+    }
+
+    private static void runConnection(CompressionClient client, CompressionServer server) throws Exception
+    {
+        PipedInputStream clientRead = TlsTestUtils.createPipedInputStream();
+        PipedInputStream serverRead = TlsTestUtils.createPipedInputStream();
+        PipedOutputStream clientWrite = new PipedOutputStream(serverRead);
+        PipedOutputStream serverWrite = new PipedOutputStream(clientRead);
+
+        TlsClientProtocol clientProtocol = new TlsClientProtocol(clientRead, clientWrite);
+        TlsServerProtocol serverProtocol = new TlsServerProtocol(serverRead, serverWrite);
+
+        ServerThread serverThread = new ServerThread(serverProtocol, server);
+        serverThread.start();
+
+        clientProtocol.connect(client);
+
+        byte[] data = new byte[1000];
+        client.getCrypto().getSecureRandom().nextBytes(data);
+
+        OutputStream output = clientProtocol.getOutputStream();
+        output.write(data);
+
+        byte[] echo = new byte[data.length];
+        int count = Streams.readFully(clientProtocol.getInputStream(), echo);
+
+        assertEquals(count, data.length);
+        assertTrue(Arrays.areEqual(data, echo));
+
+        output.close();
+
+        serverThread.join();
+    }
+
+    static class CountingCompressor
+        extends ZlibCertificateCompressor
+    {
+        volatile int compressCount = 0, decompressCount = 0;
+
+        public byte[] compress(byte[] certificateMessage) throws IOException
+        {
+            ++compressCount;
+            return super.compress(certificateMessage);
+        }
+
+        public byte[] decompress(byte[] compressedCertificateMessage, int uncompressedLength) throws IOException
+        {
+            ++decompressCount;
+            return super.decompress(compressedCertificateMessage, uncompressedLength);
+        }
+    }
+
+    static class CompressionClient
+        extends MockTlsClient
+    {
+        private final CountingCompressor compressor;
+
+        int serverCertificateLength = 0;
+
+        CompressionClient(CountingCompressor compressor)
+        {
+            super(null);
+
+            this.compressor = compressor;
+        }
+
+        protected ProtocolVersion[] getSupportedVersions()
+        {
+            return ProtocolVersion.TLSv13.only();
+        }
+
+        public Vector getCertificateCompressors()
+        {
+            return null == compressor ? null : vector(compressor);
+        }
+
+        public void notifyHandshakeComplete() throws IOException
+        {
+            super.notifyHandshakeComplete();
+
+            this.serverCertificateLength = context.getSecurityParametersConnection().getPeerCertificate().getLength();
+        }
+    }
+
+    static class CompressionServer
+        extends MockTlsServer
+    {
+        private final TlsCertificateCompressor compressor;
+        private final Certificate[] sharedCertificate;
+
+        /**
+         * @param sharedCertificate if null, a new {@link Certificate} is loaded for each handshake.
+         */
+        CompressionServer(TlsCertificateCompressor compressor, Certificate[] sharedCertificate)
+        {
+            this.compressor = compressor;
+            this.sharedCertificate = sharedCertificate;
+        }
+
+        public Vector getCertificateCompressors()
+        {
+            return null == compressor ? null : vector(compressor);
+        }
+
+        public TlsCredentials getCredentials() throws IOException
+        {
+            final TlsCredentialedSigner signer = (TlsCredentialedSigner)super.getCredentials();
+            if (null == sharedCertificate)
+            {
+                return signer;
+            }
+
+            synchronized (sharedCertificate)
+            {
+                if (null == sharedCertificate[0])
+                {
+                    sharedCertificate[0] = signer.getCertificate();
+                }
+            }
+
+            // Simulates a server that holds on to its credentials across handshakes
+            return new TlsCredentialedSigner()
+            {
+                public Certificate getCertificate()
+                {
+                    return sharedCertificate[0];
+                }
+
+                public byte[] generateRawSignature(byte[] hash) throws IOException
+                {
+                    return signer.generateRawSignature(hash);
+                }
+
+                public SignatureAndHashAlgorithm getSignatureAndHashAlgorithm()
+                {
+                    return signer.getSignatureAndHashAlgorithm();
+                }
+
+                public TlsStreamSigner getStreamSigner() throws IOException
+                {
+                    return signer.getStreamSigner();
+                }
+            };
+        }
+    }
+
+    static class ServerThread
+        extends Thread
+    {
+        private final TlsServerProtocol serverProtocol;
+        private final CompressionServer server;
+
+        ServerThread(TlsServerProtocol serverProtocol, CompressionServer server)
+        {
+            this.serverProtocol = serverProtocol;
+            this.server = server;
+        }
+
+        public void run()
+        {
+            try
+            {
+                serverProtocol.accept(server);
+                Streams.pipeAll(serverProtocol.getInputStream(), serverProtocol.getOutputStream());
+                serverProtocol.close();
+            }
+            catch (Exception e)
+            {
+//                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    private static Vector vector(Object element)
+    {
+        Vector v = new Vector(1);
+        v.addElement(element);
+        return v;
+    }
+}
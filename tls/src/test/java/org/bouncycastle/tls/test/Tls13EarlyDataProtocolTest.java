@@ -0,0 +1,306 @@
+package org.bouncycastle.tls.test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.util.Vector;
+
+import org.bouncycastle.tls.DefaultTlsAntiReplayFilter;
+import org.bouncycastle.tls.DefaultTlsTicketKeyManager;
+import org.bouncycastle.tls.NamedGroup;
+import org.bouncycastle.tls.TlsAntiReplayFilter;
+import org.bouncycastle.tls.TlsClientProtocol;
+import org.bouncycastle.tls.TlsPSKResumption;
+import org.bouncycastle.tls.TlsServerProtocol;
+import org.bouncycastle.tls.TlsTicketKeyManager;
+import org.bouncycastle.tls.crypto.impl.bc.BcTlsCrypto;
+import org.bouncycastle.util.Arrays;
+import org.bouncycastle.util.Pack;
+import org.bouncycastle.util.io.Streams;
+
+import junit.framework.TestCase;
+
+public class Tls13EarlyDataProtocolTest
+    extends TestCase
+{
+    private static final int MAX_EARLY_DATA_SIZE = 1 << 15;
+
+    public void testEarlyDataAccepted() throws Exception
+    {
+        TlsTicketKeyManager ticketKeyManager = new DefaultTlsTicketKeyManager(new BcTlsCrypto());
+        TlsAntiReplayFilter antiReplayFilter = new DefaultTlsAntiReplayFilter();
+
+        Vector tickets = issueTickets(ticketKeyManager, antiReplayFilter);
+        assertEquals(MAX_EARLY_DATA_SIZE, ((TlsPSKResumption)tickets.elementAt(0)).getMaxEarlyDataSize());
+
+        // More than one record's worth of early data
+        EarlyDataClient client = new EarlyDataClient(tickets, 20000);
+        EarlyDataServer server = new EarlyDataServer(ticketKeyManager, antiReplayFilter, MAX_EARLY_DATA_SIZE);
+        runConnection(client, server);
+
+        assertTrue(client.earlyDataOffered);
+        assertTrue(client.earlyDataAccepted);
+        assertTrue(server.earlyDataAccepted);
+        assertEquals(20000, server.earlyDataSize);
+    }
+
+    public void testEarlyDataRejectedByFilter() throws Exception
+    {
+        TlsTicketKeyManager ticketKeyManager = new DefaultTlsTicketKeyManager(new BcTlsCrypto());
+        TlsAntiReplayFilter antiReplayFilter = new TlsAntiReplayFilter()
+        {
+            public long getWindowMillis()
+            {
+                return DefaultTlsAntiReplayFilter.DEFAULT_WINDOW_MILLIS;
+            }
+
+            public boolean checkAndRecord(byte[] clientHelloID)
+            {
+                // Treat every ClientHello as a replay
+                return false;
+            }
+        };
+
+        Vector tickets = issueTickets(ticketKeyManager, antiReplayFilter);
+
+        // The server must skip the early data, then complete a 1-RTT (resumed) handshake
+        EarlyDataClient client = new EarlyDataClient(tickets, 20000);
+        EarlyDataServer server = new EarlyDataServer(ticketKeyManager, antiReplayFilter, MAX_EARLY_DATA_SIZE);
+        runConnection(client, server);
+
+        assertTrue(client.earlyDataOffered);
+        assertFalse(client.earlyDataAccepted);
+        assertFalse(server.earlyDataAccepted);
+        assertTrue(server.resumed);
+    }
+
+    public void testEarlyDataRejectedByHelloRetryRequest() throws Exception
+    {
+        TlsTicketKeyManager ticketKeyManager = new DefaultTlsTicketKeyManager(new BcTlsCrypto());
+        TlsAntiReplayFilter antiReplayFilter = new DefaultTlsAntiReplayFilter();
+
+        Vector tickets = issueTickets(ticketKeyManager, antiReplayFilter);
+
+        EarlyDataClient client = new EarlyDataClient(tickets, 1000);
+        EarlyDataServer server = new EarlyDataServer(ticketKeyManager, antiReplayFilter, MAX_EARLY_DATA_SIZE)
+        {
+            public int[] getSupportedGroups() throws IOException
+            {
+                // Not amongst the client's key shares
+                return new int[]{ NamedGroup.secp256r1 };
+            }
+        };
+        runConnection(client, server);
+
+        assertTrue(client.earlyDataOffered);
+        assertFalse(client.earlyDataAccepted);
+        assertFalse(server.earlyDataAccepted);
+        assertTrue(server.resumed);
+    }
+
+    public void testEarlyDataDisabled() throws Exception
+    {
+        TlsTicketKeyManager ticketKeyManager = new DefaultTlsTicketKeyManager(new BcTlsCrypto());
+
+        Vector tickets = new Vector();
+        {
+            Tls13ResumptionProtocolTest.ResumptionClient client = new Tls13ResumptionProtocolTest.ResumptionClient(
+                null);
+            EarlyDataServer server = new EarlyDataServer(ticketKeyManager, null, 0);
+            runConnection(client, server, new byte[0]);
+            tickets.addAll(client.resumptionPSKs);
+        }
+        assertEquals(0L, ((TlsPSKResumption)tickets.elementAt(0)).getMaxEarlyDataSize());
+
+        EarlyDataClient client = new EarlyDataClient(tickets, 1000);
+        EarlyDataServer server = new EarlyDataServer(ticketKeyManager, null, 0);
+        runConnection(client, server);
+
+        assertFalse(client.earlyDataOffered);
+        assertFalse(server.earlyDataAccepted);
+        assertTrue(server.resumed);
+    }
+
+    public void testAntiReplayFilter() throws Exception
+    {
+        DefaultTlsAntiReplayFilter filter = new DefaultTlsAntiReplayFilter(60000L, 100);
+
+        // NOTE: Fixed IDs, since random ones would occasionally hit a (permitted) false positive
+        byte[][] ids = new byte[100][];
+        for (int i = 0; i < ids.length; ++i)
+        {
+            ids[i] = createID(i);
+
+            assertTrue(filter.checkAndRecord(ids[i]));
+        }
+
+        for (int i = 0; i < ids.length; ++i)
+        {
+            assertFalse(filter.checkAndRecord(ids[i]));
+        }
+
+        // Capacity is exhausted for this generation, so anything new is rejected too
+        assertFalse(filter.checkAndRecord(createID(ids.length)));
+
+        assertFalse(filter.checkAndRecord(null));
+        assertFalse(filter.checkAndRecord(new byte[0]));
+    }
+
+    private static byte[] createID(int i)
+    {
+        byte[] id = new byte[32];
+        Arrays.fill(id, (byte)0x5A);
+        Pack.intToBigEndian(i, id, 0);
+        return id;
+    }
+
+    private static Vector issueTickets(TlsTicketKeyManager ticketKeyManager, TlsAntiReplayFilter antiReplayFilter)
+        throws Exception
+    {
+        Tls13ResumptionProtocolTest.ResumptionClient client = new Tls13ResumptionProtocolTest.ResumptionClient(null);
+        EarlyDataServer server = new EarlyDataServer(ticketKeyManager, antiReplayFilter, MAX_EARLY_DATA_SIZE);
+        runConnection(client, server, new byte[0]);
+
+        assertEquals(1, client.resumptionPSKs.size());
+        return client.resumptionPSKs;
+    }
+
+    private static void runConnection(EarlyDataClient client, EarlyDataServer server) throws Exception
+    {
+        runConnection(client, server, client.earlyData);
+    }
+
+    private static void runConnection(Tls13ResumptionProtocolTest.ResumptionClient client, EarlyDataServer server,
+        byte[] earlyData) throws Exception
+    {
+        PipedInputStream clientRead = TlsTestUtils.createPipedInputStream();
+        PipedInputStream serverRead = TlsTestUtils.createPipedInputStream();
+        PipedOutputStream clientWrite = new PipedOutputStream(serverRead);
+        PipedOutputStream serverWrite = new PipedOutputStream(clientRead);
+
+        TlsClientProtocol clientProtocol = new TlsClientProtocol(clientRead, clientWrite);
+        TlsServerProtocol serverProtocol = new TlsServerProtocol(serverRead, serverWrite);
+
+        ServerThread serverThread = new ServerThread(serverProtocol, server);
+        serverThread.start();
+
+        clientProtocol.connect(client);
+
+        byte[] data = new byte[1000];
+        client.getCrypto().getSecureRandom().nextBytes(data);
+
+        OutputStream output = clientProtocol.getOutputStream();
+        output.write(data);
+
+        // Accepted early data is echoed (ahead of the 1-RTT data) like any other application data
+        boolean earlyDataAccepted = client instanceof EarlyDataClient && ((EarlyDataClient)client).earlyDataAccepted;
+        byte[] expected = earlyDataAccepted
+            ?   Arrays.concatenate(earlyData, data)
+            :   data;
+
+        byte[] echo = new byte[expected.length];
+        int count = Streams.readFully(clientProtocol.getInputStream(), echo);
+
+        assertEquals(count, expected.length);
+        assertTrue(Arrays.areEqual(expected, echo));
+
+        output.close();
+
+        serverThread.join();
+    }
+
+    static class EarlyDataClient
+        extends Tls13ResumptionProtocolTest.ResumptionClient
+    {
+        final byte[] earlyData;
+
+        boolean earlyDataOffered = false;
+        boolean earlyDataAccepted = false;
+
+        EarlyDataClient(Vector offeredPSKs, int earlyDataSize)
+        {
+            super(offeredPSKs);
+
+            this.earlyData = new byte[earlyDataSize];
+            getCrypto().getSecureRandom().nextBytes(earlyData);
+        }
+
+        public byte[] getEarlyData(TlsPSKResumption resumptionPSK) throws IOException
+        {
+            this.earlyDataOffered = true;
+            return earlyData;
+        }
+
+        public void notifyHandshakeComplete() throws IOException
+        {
+            super.notifyHandshakeComplete();
+
+            this.earlyDataAccepted = context.getSecurityParametersConnection().isEarlyDataAccepted();
+        }
+    }
+
+    static class EarlyDataServer
+        extends Tls13ResumptionProtocolTest.ResumptionServer
+    {
+        private final TlsAntiReplayFilter antiReplayFilter;
+        private final long maxEarlyDataSize;
+
+        volatile boolean earlyDataAccepted = false;
+        volatile long earlyDataSize = 0L;
+
+        EarlyDataServer(TlsTicketKeyManager ticketKeyManager, TlsAntiReplayFilter antiReplayFilter,
+            long maxEarlyDataSize)
+        {
+            super(ticketKeyManager);
+
+            this.antiReplayFilter = antiReplayFilter;
+            this.maxEarlyDataSize = maxEarlyDataSize;
+        }
+
+        public long getMaxEarlyDataSize()
+        {
+            return maxEarlyDataSize;
+        }
+
+        public TlsAntiReplayFilter getAntiReplayFilter()
+        {
+            return antiReplayFilter;
+        }
+
+        public void notifyHandshakeComplete() throws IOException
+        {
+            super.notifyHandshakeComplete();
+
+            this.earlyDataAccepted = context.getSecurityParametersConnection().isEarlyDataAccepted();
+            this.earlyDataSize = context.getSecurityParametersConnection().getEarlyDataSize();
+        }
+    }
+
+    static class ServerThread
+        extends Thread
+    {
+        private final TlsServerProtocol serverProtocol;
+        private final EarlyDataServer server;
+
+        ServerThread(TlsServerProtocol serverProtocol, EarlyDataServer server)
+        {
+            this.serverProtocol = serverProtocol;
+            this.server = server;
+        }
+
+        public void run()
+        {
+            try
+            {
+                serverProtocol.accept(server);
+                Streams.pipeAll(serverProtocol.getInputStream(), serverProtocol.getOutputStream());
+                serverProtocol.close();
+            }
+            catch (Exception e)
+            {
+//                throw new RuntimeException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package org.bouncycastle.tls.test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.util.Vector;
+
+import org.bouncycastle.tls.DefaultTlsTicketKeyManager;
+import org.bouncycastle.tls.SecurityParameters;
+import org.bouncycastle.tls.TlsClientProtocol;
+import org.bouncycastle.tls.TlsPSK;
+import org.bouncycastle.tls.TlsPSKExternal;
+import org.bouncycastle.tls.TlsPSKResumption;
+import org.bouncycastle.tls.TlsServerProtocol;
+import org.bouncycastle.tls.TlsTicketKeyManager;
+import org.bouncycastle.tls.crypto.impl.bc.BcTlsCrypto;
+import org.bouncycastle.util.Arrays;
+import org.bouncycastle.util.io.Streams;
+
+import junit.framework.TestCase;
+
+public class Tls13ResumptionProtocolTest
+    extends TestCase
+{
+    public void testResumption() throws Exception
+    {
+        TlsTicketKeyManager ticketKeyManager = new DefaultTlsTicketKeyManager(new BcTlsCrypto());
+
+        // Full (external PSK) handshake, which should issue a ticket
+        ResumptionClient client1 = new ResumptionClient(null);
+        ResumptionServer server1 = new ResumptionServer(ticketKeyManager);
+        runConnection(client1, server1);
+
+        assertFalse(server1.resumed);
+        assertTrue(client1.selectedPSK instanceof TlsPSKExternal);
+        assertEquals(1, client1.resumptionPSKs.size());
+
+        // Resumed handshake, offering only the ticket
+        ResumptionClient client2 = new ResumptionClient(client1.resumptionPSKs);
+        ResumptionServer server2 = new ResumptionServer(ticketKeyManager);
+        runConnection(client2, server2);
+
+        assertTrue(server2.resumed);
+        assertTrue(client2.selectedPSK instanceof TlsPSKResumption);
+        assertEquals(1, client2.resumptionPSKs.size());
+
+        // The resumption master secret outlives the handshake, but not the connection
+        assertNull(client2.securityParameters.getResumptionMasterSecret());
+        assertNull(server2.securityParameters.getResumptionMasterSecret());
+    }
+
+    public void testTicketKeyManager() throws Exception
+    {
+        BcTlsCrypto crypto = new BcTlsCrypto();
+        DefaultTlsTicketKeyManager ticketKeyManager = new DefaultTlsTicketKeyManager(crypto);
+
+        byte[] state = new byte[100];
+        crypto.getSecureRandom().nextBytes(state);
+
+        byte[] ticket = ticketKeyManager.sealTicket(state);
+        assertTrue(Arrays.areEqual(state, ticketKeyManager.openTicket(ticket)));
+
+        byte[] other = ticketKeyManager.sealTicket(state);
+        assertFalse(Arrays.areEqual(ticket, other));
+
+        for (int i = 0; i < ticket.length; ++i)
+        {
+            byte[] tampered = Arrays.clone(ticket);
+            tampered[i] ^= 0x01;
+            assertNull(ticketKeyManager.openTicket(tampered));
+        }
+        assertNull(ticketKeyManager.openTicket(Arrays.copyOf(ticket, ticket.length - 1)));
+
+        // Retired keys remain usable for opening
+        ticketKeyManager.rotate();
+        byte[] rotated = ticketKeyManager.sealTicket(state);
+        assertFalse(Arrays.areEqual(Arrays.copyOf(ticket, 16), Arrays.copyOf(rotated, 16)));
+        assertTrue(Arrays.areEqual(state, ticketKeyManager.openTicket(ticket)));
+        assertTrue(Arrays.areEqual(state, ticketKeyManager.openTicket(rotated)));
+
+        // Tickets from a different manager are not recognised
+        assertNull(new DefaultTlsTicketKeyManager(crypto).openTicket(ticket));
+    }
+
+    private static void runConnection(ResumptionClient client, ResumptionServer server) throws Exception
+    {
+        PipedInputStream clientRead = TlsTestUtils.createPipedInputStream();
+        PipedInputStream serverRead = TlsTestUtils.createPipedInputStream();
+        PipedOutputStream clientWrite = new PipedOutputStream(serverRead);
+        PipedOutputStream serverWrite = new PipedOutputStream(clientRead);
+
+        TlsClientProtocol clientProtocol = new TlsClientProtocol(clientRead, clientWrite);
+        TlsServerProtocol serverProtocol = new TlsServerProtocol(serverRead, serverWrite);
+
+        ServerThread serverThread = new ServerThread(serverProtocol, server);
+        serverThread.start();
+
+        clientProtocol.connect(client);
+
+        byte[] data = new byte[1000];
+        client.getCrypto().getSecureRandom().nextBytes(data);
+
+        OutputStream output = clientProtocol.getOutputStream();
+        output.write(data);
+
+        byte[] echo = new byte[data.length];
+        int count = Streams.readFully(clientProtocol.getInputStream(), echo);
+
+        assertEquals(count, data.length);
+        assertTrue(Arrays.areEqual(data, echo));
+
+        output.close();
+
+        serverThread.join();
+    }
+
+    static class ResumptionClient
+        extends MockPSKTls13Client
+    {
+        private final Vector offeredPSKs;
+
+        final Vector resumptionPSKs = new Vector();
+        TlsPSK selectedPSK = null;
+        SecurityParameters securityParameters = null;
+
+        ResumptionClient(Vector offeredPSKs)
+        {
+            this.offeredPSKs = offeredPSKs;
+        }
+
+        public Vector getExternalPSKs()
+        {
+            return null == offeredPSKs ? super.getExternalPSKs() : null;
+        }
+
+        public Vector getResumptionPSKs()
+        {
+            return offeredPSKs;
+        }
+
+        public void notifySelectedPSK(TlsPSK selectedPSK) throws IOException
+        {
+            super.notifySelectedPSK(selectedPSK);
+
+            this.selectedPSK = selectedPSK;
+        }
+
+        public void notifyHandshakeComplete() throws IOException
+        {
+            super.notifyHandshakeComplete();
+
+            this.securityParameters = context.getSecurityParametersConnection();
+        }
+
+        public void notifyResumptionPSK(TlsPSKResumption resumptionPSK) throws IOException
+        {
+            resumptionPSKs.addElement(resumptionPSK);
+        }
+    }
+
+    static class ResumptionServer
+        extends MockPSKTls13Server
+    {
+        private final TlsTicketKeyManager ticketKeyManager;
+
+        volatile boolean resumed = false;
+        volatile SecurityParameters securityParameters = null;
+
+        ResumptionServer(TlsTicketKeyManager ticketKeyManager)
+        {
+            this.ticketKeyManager = ticketKeyManager;
+        }
+
+        public TlsTicketKeyManager getTicketKeyManager()
+        {
+            return ticketKeyManager;
+        }
+
+        public void notifyHandshakeComplete() throws IOException
+        {
+            super.notifyHandshakeComplete();
+
+            this.securityParameters = context.getSecurityParametersConnection();
+            this.resumed = securityParameters.isResumedSession();
+        }
+    }
+
+    static class ServerThread
+        extends Thread
+    {
+        private final TlsServerProtocol serverProtocol;
+        private final ResumptionServer server;
+
+        ServerThread(TlsServerProtocol serverProtocol, ResumptionServer server)
+        {
+            this.serverProtocol = serverProtocol;
+            this.server = server;
+        }
+
+        public void run()
+        {
+            try
+            {
+                serverProtocol.accept(server);
+                Streams.pipeAll(serverProtocol.getInputStream(), serverProtocol.getOutputStream());
+                serverProtocol.close();
+            }
+            catch (Exception e)
+            {
+//                throw new RuntimeException(e);
+            }
+        }
+    }
+}
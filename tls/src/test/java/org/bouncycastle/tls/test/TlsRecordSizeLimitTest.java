@@ -0,0 +1,262 @@
+package org.bouncycastle.tls.test;
+
+import java.io.IOException;
+import java.util.Hashtable;
+import java.util.Vector;
+
+import org.bouncycastle.tls.ProtocolVersion;
+import org.bouncycastle.tls.SecurityParameters;
+import org.bouncycastle.tls.TlsClientProtocol;
+import org.bouncycastle.tls.TlsExtensionsUtils;
+import org.bouncycastle.tls.TlsProtocol;
+import org.bouncycastle.tls.TlsServerProtocol;
+import org.bouncycastle.tls.TlsUtils;
+import org.bouncycastle.util.Arrays;
+
+import junit.framework.TestCase;
+
+public class TlsRecordSizeLimitTest
+    extends TestCase
+{
+    public void testRecordSizeLimitTLSv12() throws IOException
+    {
+        RecordSizeLimitClient client = new RecordSizeLimitClient(ProtocolVersion.TLSv12, 300);
+        RecordSizeLimitServer server = new RecordSizeLimitServer(ProtocolVersion.TLSv12, (1 << 14) + 1);
+
+        Connection connection = new Connection(client, server);
+        SecurityParameters clientParams = client.securityParameters;
+        SecurityParameters serverParams = server.securityParameters;
+
+        assertEquals(300, clientParams.getRecordSizeLimitLocal());
+        assertEquals(1 << 14, clientParams.getRecordSizeLimitPeer());
+        assertEquals(1 << 14, serverParams.getRecordSizeLimitLocal());
+        assertEquals(300, serverParams.getRecordSizeLimitPeer());
+
+        // max_fragment_length was offered too, but must be ignored
+        assertEquals(-1, clientParams.getMaxFragmentLength());
+
+        Vector records = connection.send(connection.serverProtocol, connection.clientProtocol, 5000);
+        assertTrue(records.size() >= 5000 / 300);
+        assertTrue(getMaxRecordLength(records) <= 300 + 100);
+    }
+
+    public void testRecordSizeLimitTLSv13() throws IOException
+    {
+        RecordSizeLimitClient client = new RecordSizeLimitClient(ProtocolVersion.TLSv13, 257);
+        RecordSizeLimitServer server = new RecordSizeLimitServer(ProtocolVersion.TLSv13, 1025);
+
+        Connection connection = new Connection(client, server);
+        SecurityParameters clientParams = client.securityParameters;
+
+        assertEquals(257, clientParams.getRecordSizeLimitLocal());
+        assertEquals(1025, clientParams.getRecordSizeLimitPeer());
+
+        // TLS 1.3 limits include the content type, so content is limited to 256/1024 bytes
+        Vector records = connection.send(connection.serverProtocol, connection.clientProtocol, 5000);
+        assertEquals(20, records.size());
+        assertTrue(getMaxRecordLength(records) <= 257 + 16);
+
+        records = connection.send(connection.clientProtocol, connection.serverProtocol, 5000);
+        assertEquals(5, records.size());
+        assertTrue(getMaxRecordLength(records) <= 1025 + 16);
+    }
+
+    public void testRecordSizeLimitNotNegotiated() throws IOException
+    {
+        RecordSizeLimitClient client = new RecordSizeLimitClient(ProtocolVersion.TLSv13, 257);
+        RecordSizeLimitServer server = new RecordSizeLimitServer(ProtocolVersion.TLSv13, -1);
+
+        Connection connection = new Connection(client, server);
+        SecurityParameters clientParams = client.securityParameters;
+
+        assertEquals(-1, clientParams.getRecordSizeLimitLocal());
+        assertEquals(-1, clientParams.getRecordSizeLimitPeer());
+
+        // The server fell back to max_fragment_length (2^9)
+        Vector records = connection.send(connection.serverProtocol, connection.clientProtocol, 5000);
+        assertEquals(10, records.size());
+    }
+
+    public void testDynamicRecordSizing() throws IOException
+    {
+        RecordSizeLimitClient client = new RecordSizeLimitClient(ProtocolVersion.TLSv13, -1);
+        client.offerMaxFragmentLength = false;
+        RecordSizeLimitServer server = new RecordSizeLimitServer(ProtocolVersion.TLSv13, -1);
+
+        Connection connection = new Connection(client, server);
+
+        TlsServerProtocol serverProtocol = connection.serverProtocol;
+        assertFalse(serverProtocol.isDynamicRecordSizing());
+        assertEquals(1 << 14, serverProtocol.getApplicationDataLimit());
+
+        serverProtocol.setDynamicRecordSizing(true);
+        assertTrue(serverProtocol.getApplicationDataLimit() < 1208);
+
+        Vector records = connection.send(serverProtocol, connection.clientProtocol, 300 * 1024);
+
+        // Starts with records that fit in a single segment, then ramps up to full-sized records
+        assertTrue(((Integer)records.firstElement()).intValue() <= 1208);
+        for (int i = 1; i < records.size() - 1; ++i)
+        {
+            int previous = ((Integer)records.elementAt(i - 1)).intValue();
+            int current = ((Integer)records.elementAt(i)).intValue();
+            assertTrue(current >= previous);
+        }
+        assertEquals((1 << 14) + 1 + 16, getMaxRecordLength(records));
+        assertEquals(1 << 14, serverProtocol.getApplicationDataLimit());
+    }
+
+    private static int getMaxRecordLength(Vector records)
+    {
+        int max = 0;
+        for (int i = 0; i < records.size(); ++i)
+        {
+            max = Math.max(max, ((Integer)records.elementAt(i)).intValue());
+        }
+        return max;
+    }
+
+    static class Connection
+    {
+        final TlsClientProtocol clientProtocol = new TlsClientProtocol();
+        final TlsServerProtocol serverProtocol = new TlsServerProtocol();
+
+        Connection(MockTlsClient client, MockTlsServer server) throws IOException
+        {
+            clientProtocol.connect(client);
+            serverProtocol.accept(server);
+
+            boolean hadDataFromServer = true, hadDataFromClient = true;
+            while (hadDataFromServer || hadDataFromClient)
+            {
+                hadDataFromServer = pump(serverProtocol, clientProtocol) != null;
+                hadDataFromClient = pump(clientProtocol, serverProtocol) != null;
+            }
+
+            assertTrue(clientProtocol.isConnected());
+            assertTrue(serverProtocol.isConnected());
+        }
+
+        /**
+         * @return the lengths of the records carrying the data.
+         */
+        Vector send(TlsProtocol writer, TlsProtocol reader, int dataSize) throws IOException
+        {
+            byte[] data = new byte[dataSize];
+            for (int i = 0; i < dataSize; ++i)
+            {
+                data[i] = (byte)i;
+            }
+
+            writer.writeApplicationData(data, 0, dataSize);
+            Vector records = pump(writer, reader);
+
+            assertEquals(dataSize, reader.getAvailableInputBytes());
+            byte[] readData = new byte[dataSize];
+            reader.readInput(readData, 0, dataSize);
+            assertTrue(Arrays.areEqual(data, readData));
+
+            return records;
+        }
+
+        private static Vector pump(TlsProtocol from, TlsProtocol to) throws IOException
+        {
+            int byteCount = from.getAvailableOutputBytes();
+            if (byteCount == 0)
+            {
+                return null;
+            }
+
+            byte[] buffer = new byte[byteCount];
+            from.readOutput(buffer, 0, buffer.length);
+
+            Vector records = new Vector();
+            for (int pos = 0; pos < byteCount;)
+            {
+                int length = TlsUtils.readUint16(buffer, pos + 3);
+                records.addElement(Integer.valueOf(length));
+                pos += 5 + length;
+            }
+
+            to.offerInput(buffer);
+            return records;
+        }
+    }
+
+    static class RecordSizeLimitClient
+        extends MockTlsClient
+    {
+        private final ProtocolVersion version;
+        private final int recordSizeLimit;
+
+        boolean offerMaxFragmentLength = true;
+        SecurityParameters securityParameters = null;
+
+        RecordSizeLimitClient(ProtocolVersion version, int recordSizeLimit)
+        {
+            super(null);
+
+            this.version = version;
+            this.recordSizeLimit = recordSizeLimit;
+        }
+
+        protected ProtocolVersion[] getSupportedVersions()
+        {
+            return version.only();
+        }
+
+        protected int getRecordSizeLimit()
+        {
+            return recordSizeLimit;
+        }
+
+        public Hashtable getClientExtensions() throws IOException
+        {
+            Hashtable clientExtensions = super.getClientExtensions();
+            if (!offerMaxFragmentLength)
+            {
+                clientExtensions.remove(TlsExtensionsUtils.EXT_max_fragment_length);
+            }
+            return clientExtensions;
+        }
+
+        public void notifyHandshakeComplete() throws IOException
+        {
+            super.notifyHandshakeComplete();
+
+            this.securityParameters = context.getSecurityParametersConnection();
+        }
+    }
+
+    static class RecordSizeLimitServer
+        extends MockTlsServer
+    {
+        private final ProtocolVersion version;
+        private final int recordSizeLimit;
+
+        SecurityParameters securityParameters = null;
+
+        RecordSizeLimitServer(ProtocolVersion version, int recordSizeLimit)
+        {
+            this.version = version;
+            this.recordSizeLimit = recordSizeLimit;
+        }
+
+        protected ProtocolVersion[] getSupportedVersions()
+        {
+            return version.only();
+        }
+
+        protected int getRecordSizeLimit()
+        {
+            return recordSizeLimit;
+        }
+
+        public void notifyHandshakeComplete() throws IOException
+        {
+            super.notifyHandshakeComplete();
+
+            this.securityParameters = context.getSecurityParametersConnection();
+        }
+    }
+}